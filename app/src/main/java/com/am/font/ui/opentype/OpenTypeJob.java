@@ -58,7 +58,7 @@ class OpenTypeJob extends Job<OpenTypeJob.Callback> {
             parser.parse(reader, TableRecord.TAG_CMAP, TableRecord.TAG_HEAD, TableRecord.TAG_HHEA,
                     TableRecord.TAG_MAXP, TableRecord.TAG_HMTX, TableRecord.TAG_NAME,
                     TableRecord.TAG_OS2, TableRecord.TAG_POST, TableRecord.TAG_CVT,
-                    TableRecord.TAG_FPGM, TableRecord.TAG_GLYF, TableRecord.TAG_LOCA,
+                    TableRecord.TAG_FPGM, TableRecord.TAG_LOCA, TableRecord.TAG_GLYF,
                     TableRecord.TAG_PREP, TableRecord.TAG_GASP, TableRecord.TAG_CFF,
                     TableRecord.TAG_CFF2, TableRecord.TAG_VORG, TableRecord.TAG_SVG,
                     TableRecord.TAG_EBDT, TableRecord.TAG_EBLC, TableRecord.TAG_EBSC,
@@ -19,6 +19,8 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads a TrueType font file into a RandomAccessFile.
@@ -163,6 +165,11 @@ public class FileOpenTypeReader implements OpenTypeReader {
         return builder.toString();
     }
 
+    @Override
+    public ByteBuffer map(long pos, int size) throws IOException {
+        return mFile.getChannel().map(FileChannel.MapMode.READ_ONLY, pos, size);
+    }
+
     @Override
     public void close() throws IOException {
         mFile.close();
@@ -19,19 +19,44 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
 
+import com.am.font.opentype.tables.AxisVariationsTable;
 import com.am.font.opentype.tables.BaseTable;
+import com.am.font.opentype.tables.BitmapDataTable;
+import com.am.font.opentype.tables.BitmapLocationTable;
 import com.am.font.opentype.tables.CharacterMappingTable;
+import com.am.font.opentype.tables.ColorPaletteTable;
+import com.am.font.opentype.tables.ColorTable;
+import com.am.font.opentype.tables.CompactFontFormat2Table;
+import com.am.font.opentype.tables.CompactFontFormatTable;
+import com.am.font.opentype.tables.ControlValueProgramTable;
+import com.am.font.opentype.tables.ControlValueTable;
+import com.am.font.opentype.tables.FontProgramTable;
+import com.am.font.opentype.tables.FontVariationsTable;
+import com.am.font.opentype.tables.GlyphOutlineSource;
 import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.GlyphVariationsTable;
 import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalDeviceMetricsTable;
 import com.am.font.opentype.tables.HorizontalHeaderTable;
 import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.HorizontalMetricsVariationsTable;
 import com.am.font.opentype.tables.IndexToLocationTable;
 import com.am.font.opentype.tables.KerningTable;
+import com.am.font.opentype.tables.LinearThresholdTable;
 import com.am.font.opentype.tables.MaximumProfileTable;
+import com.am.font.opentype.tables.MetricsVariationsTable;
 import com.am.font.opentype.tables.NamingTable;
 import com.am.font.opentype.tables.OS2Table;
 import com.am.font.opentype.tables.PCL5Table;
 import com.am.font.opentype.tables.PostScriptTable;
+import com.am.font.opentype.tables.ScalableVectorGraphicsTable;
+import com.am.font.opentype.tables.StandardBitmapGraphicsTable;
+import com.am.font.opentype.tables.VariationInstance;
+import com.am.font.opentype.tables.VerticalDeviceMetricsTable;
+import com.am.font.opentype.tables.VerticalHeaderTable;
+import com.am.font.opentype.tables.VerticalMetricsTable;
+import com.am.font.opentype.tables.VerticalMetricsVariationsTable;
+import com.am.font.opentype.tables.VerticalOriginTable;
 
 import java.util.Objects;
 /**
@@ -55,48 +80,48 @@ public class OpenType {
     private NamingTable mName;
     private OS2Table mOS2;
     private PostScriptTable mPost;
-    private BaseTable mCvt;
-    private BaseTable mFpgm;
+    private ControlValueTable mCvt;
+    private FontProgramTable mFpgm;
     private GlyphTable mGlyf;
     private IndexToLocationTable mLoca;
-    private BaseTable mPrep;
+    private ControlValueProgramTable mPrep;
     private BaseTable mGasp;
-    private BaseTable mCff;
-    private BaseTable mCff2;
-    private BaseTable mVorg;
-    private BaseTable mSvg;
-    private BaseTable mEbdt;
-    private BaseTable mEblc;
+    private CompactFontFormatTable mCff;
+    private CompactFontFormat2Table mCff2;
+    private VerticalOriginTable mVorg;
+    private ScalableVectorGraphicsTable mSvg;
+    private BitmapDataTable mEbdt;
+    private BitmapLocationTable mEblc;
     private BaseTable mEbsc;
-    private BaseTable mCbdt;
-    private BaseTable mCblc;
-    private BaseTable mSbix;
+    private BitmapDataTable mCbdt;
+    private BitmapLocationTable mCblc;
+    private StandardBitmapGraphicsTable mSbix;
     private BaseTable mBase;
     private BaseTable mGdef;
     private BaseTable mGpos;
     private BaseTable mGsub;
     private BaseTable mJstf;
     private BaseTable mMath;
-    private BaseTable mAvar;
+    private AxisVariationsTable mAvar;
     private BaseTable mCvar;
-    private BaseTable mFvar;
-    private BaseTable mGvar;
-    private BaseTable mHvar;
-    private BaseTable mMvar;
+    private FontVariationsTable mFvar;
+    private GlyphVariationsTable mGvar;
+    private HorizontalMetricsVariationsTable mHvar;
+    private MetricsVariationsTable mMvar;
     private BaseTable mStat;
-    private BaseTable mVvar;
-    private BaseTable mColr;
-    private BaseTable mCpal;
+    private VerticalMetricsVariationsTable mVvar;
+    private ColorTable mColr;
+    private ColorPaletteTable mCpal;
     private BaseTable mDsig;
-    private BaseTable mHdmx;
+    private HorizontalDeviceMetricsTable mHdmx;
     private KerningTable mKern;
-    private BaseTable mLtsh;
+    private LinearThresholdTable mLtsh;
     private BaseTable mMerg;
     private BaseTable mMeta;
     private PCL5Table mPclt;
-    private BaseTable mVdmx;
-    private BaseTable mVhea;
-    private BaseTable mVmtx;
+    private VerticalDeviceMetricsTable mVdmx;
+    private VerticalHeaderTable mVhea;
+    private VerticalMetricsTable mVmtx;
 
     public OpenType(int sfntVersion, int numTables, int searchRange, int entrySelector,
                     int rangeShift, Map<Integer, TableRecord> records) {
@@ -161,13 +186,15 @@ public class OpenType {
                     break;
                 // Tables Related to TrueType Outlines
                 case TableRecord.TAG_CVT:
-                    mCvt = null;
+                    mCvt = new ControlValueTable(reader, record);
                     break;
                 case TableRecord.TAG_FPGM:
-                    mFpgm = null;
+                    mFpgm = new FontProgramTable(reader, record);
                     break;
                 case TableRecord.TAG_GLYF:
-                    mGlyf = new GlyphTable(reader, record);
+                    if (mLoca != null && mMaxp != null) {
+                        mGlyf = new GlyphTable(reader, record, mLoca, mMaxp);
+                    }
                     break;
                 case TableRecord.TAG_LOCA:
                     if (mHead != null && mMaxp != null) {
@@ -176,43 +203,47 @@ public class OpenType {
                     }
                     break;
                 case TableRecord.TAG_PREP:
-                    mPrep = null;
+                    mPrep = new ControlValueProgramTable(reader, record);
                     break;
                 case TableRecord.TAG_GASP:
                     mGasp = null;
                     break;
                 // Tables Related to CFF Outlines
                 case TableRecord.TAG_CFF:
-                    mCff = null;
+                    mCff = new CompactFontFormatTable(reader, record,
+                            mHead == null ? 0 : mHead.getUnitsPerEm());
                     break;
                 case TableRecord.TAG_CFF2:
-                    mCff2 = null;
+                    mCff2 = new CompactFontFormat2Table(reader, record);
                     break;
                 case TableRecord.TAG_VORG:
-                    mVorg = null;
+                    mVorg = new VerticalOriginTable(reader, record);
                     break;
                 // Table Related to SVG Outlines
                 case TableRecord.TAG_SVG:
-                    mSvg = null;
+                    mSvg = new ScalableVectorGraphicsTable(reader, record);
                     break;
                 // Tables Related to Bitmap Glyphs
                 case TableRecord.TAG_EBDT:
-                    mEbdt = null;
+                    mEbdt = new BitmapDataTable(reader, record);
                     break;
                 case TableRecord.TAG_EBLC:
-                    mEblc = null;
+                    mEblc = new BitmapLocationTable(reader, record);
                     break;
                 case TableRecord.TAG_EBSC:
                     mEbsc = null;
                     break;
                 case TableRecord.TAG_CBDT:
-                    mCbdt = null;
+                    mCbdt = new BitmapDataTable(reader, record);
                     break;
                 case TableRecord.TAG_CBLC:
-                    mCblc = null;
+                    mCblc = new BitmapLocationTable(reader, record);
                     break;
                 case TableRecord.TAG_SBIX:
-                    mSbix = null;
+                    if (mMaxp != null) {
+                        mSbix = new StandardBitmapGraphicsTable(reader, record,
+                                mMaxp.getNumGlyphs());
+                    }
                     break;
                 // Advanced Typographic Tables
                 case TableRecord.TAG_BASE:
@@ -235,45 +266,47 @@ public class OpenType {
                     break;
                 // Tables used for OpenType Font Variations
                 case TableRecord.TAG_AVAR:
-                    mAvar = null;
+                    mAvar = new AxisVariationsTable(reader, record);
                     break;
                 case TableRecord.TAG_CVAR:
                     mCvar = null;
                     break;
                 case TableRecord.TAG_FVAR:
-                    mFvar = null;
+                    mFvar = new FontVariationsTable(reader, record);
                     break;
                 case TableRecord.TAG_GVAR:
-                    mGvar = null;
+                    mGvar = new GlyphVariationsTable(reader, record);
                     break;
                 case TableRecord.TAG_HVAR:
-                    mHvar = null;
+                    mHvar = new HorizontalMetricsVariationsTable(reader, record);
                     break;
                 case TableRecord.TAG_MVAR:
-                    mMvar = null;
+                    mMvar = new MetricsVariationsTable(reader, record);
                     break;
                 case TableRecord.TAG_STAT:
                     mStat = null;
                     break;
                 case TableRecord.TAG_VVAR:
-                    mVvar = null;
+                    mVvar = new VerticalMetricsVariationsTable(reader, record);
                     break;
                 // Tables Related to Color Fonts
                 case TableRecord.TAG_COLR:
-                    mColr = null;
+                    mColr = new ColorTable(reader, record);
                     break;
                 case TableRecord.TAG_CPAL:
-                    mCpal = null;
+                    mCpal = new ColorPaletteTable(reader, record);
                     break;
                 // Other OpenType Tables
                 case TableRecord.TAG_HDMX:
-                    mHdmx = null;
+                    if (mMaxp != null)
+                        mHdmx = new HorizontalDeviceMetricsTable(reader, record,
+                                mMaxp.getNumGlyphs());
                     break;
                 case TableRecord.TAG_KERN:
                     mKern = new KerningTable(reader, record);
                     break;
                 case TableRecord.TAG_LTSH:
-                    mLtsh = null;
+                    mLtsh = new LinearThresholdTable(reader, record);
                     break;
                 case TableRecord.TAG_MERG:
                     mMerg = null;
@@ -285,13 +318,18 @@ public class OpenType {
                     mPclt = new PCL5Table(reader, record);
                     break;
                 case TableRecord.TAG_VDMX:
-                    mVdmx = null;
+                    mVdmx = new VerticalDeviceMetricsTable(reader, record);
                     break;
                 case TableRecord.TAG_VHEA:
-                    mVhea = null;
+                    mVhea = new VerticalHeaderTable(reader, record);
                     break;
                 case TableRecord.TAG_VMTX:
-                    mVmtx = null;
+                    if (mVhea != null && mMaxp != null) {
+                        final int numOfLongVerMetrics = mVhea.getNumOfLongVerMetrics();
+                        final int numGlyphs = mMaxp.getNumGlyphs();
+                        mVmtx = new VerticalMetricsTable(reader, record,
+                                numOfLongVerMetrics, numGlyphs);
+                    }
                     break;
             }
         }
@@ -480,6 +518,279 @@ public class OpenType {
         return mLoca;
     }
 
+    /**
+     * 获取Control Value Table
+     *
+     * @return Control Value Table
+     */
+    public ControlValueTable getControlValueTable() {
+        return mCvt;
+    }
+
+    /**
+     * 获取Font Program Table
+     *
+     * @return Font Program Table
+     */
+    public FontProgramTable getFontProgramTable() {
+        return mFpgm;
+    }
+
+    /**
+     * 获取Control Value Program Table
+     *
+     * @return Control Value Program Table
+     */
+    public ControlValueProgramTable getControlValueProgramTable() {
+        return mPrep;
+    }
+
+    /**
+     * 获取Compact Font Format Table
+     *
+     * @return Compact Font Format Table
+     */
+    public CompactFontFormatTable getCompactFontFormatTable() {
+        return mCff;
+    }
+
+    /**
+     * 获取Compact Font Format Version 2 Table
+     *
+     * @return Compact Font Format Version 2 Table
+     */
+    public CompactFontFormat2Table getCompactFontFormat2Table() {
+        return mCff2;
+    }
+
+    /**
+     * 获取指定实例的字形轮廓来源，TrueType 轮廓应用 'gvar'，CFF2 轮廓应用其变体数据
+     *
+     * @param instance 实例，为空时与 {@link #getGlyphOutlineSource()} 相同
+     * @return 字形轮廓来源，均未解析时返回空
+     */
+    public GlyphOutlineSource getGlyphOutlineSource(VariationInstance instance) {
+        if (mGlyf != null)
+            return mGvar == null ? mGlyf : mGvar.getGlyphOutlineSource(mGlyf, instance);
+        if (mCff != null)
+            return mCff;
+        return mCff2 == null ? null : mCff2.getGlyphOutlineSource(instance);
+    }
+
+    /**
+     * 获取The SVG (Scalable Vector Graphics) Table
+     *
+     * @return The SVG (Scalable Vector Graphics) Table
+     */
+    public ScalableVectorGraphicsTable getScalableVectorGraphicsTable() {
+        return mSvg;
+    }
+
+    /**
+     * 获取Embedded Bitmap Data Table
+     *
+     * @return Embedded Bitmap Data Table
+     */
+    public BitmapDataTable getEmbeddedBitmapDataTable() {
+        return mEbdt;
+    }
+
+    /**
+     * 获取Embedded Bitmap Location Table
+     *
+     * @return Embedded Bitmap Location Table
+     */
+    public BitmapLocationTable getEmbeddedBitmapLocationTable() {
+        return mEblc;
+    }
+
+    /**
+     * 获取Color Bitmap Data Table
+     *
+     * @return Color Bitmap Data Table
+     */
+    public BitmapDataTable getColorBitmapDataTable() {
+        return mCbdt;
+    }
+
+    /**
+     * 获取Color Bitmap Location Table
+     *
+     * @return Color Bitmap Location Table
+     */
+    public BitmapLocationTable getColorBitmapLocationTable() {
+        return mCblc;
+    }
+
+    /**
+     * 获取Standard Bitmap Graphics Table
+     *
+     * @return Standard Bitmap Graphics Table
+     */
+    public StandardBitmapGraphicsTable getStandardBitmapGraphicsTable() {
+        return mSbix;
+    }
+
+    /**
+     * 获取Color Table
+     *
+     * @return Color Table
+     */
+    public ColorTable getColorTable() {
+        return mColr;
+    }
+
+    /**
+     * 获取Color Palette Table
+     *
+     * @return Color Palette Table
+     */
+    public ColorPaletteTable getColorPaletteTable() {
+        return mCpal;
+    }
+
+    /**
+     * 获取Vertical Header Table
+     *
+     * @return Vertical Header Table
+     */
+    public VerticalHeaderTable getVerticalHeaderTable() {
+        return mVhea;
+    }
+
+    /**
+     * 获取Vertical Metrics Table
+     *
+     * @return Vertical Metrics Table
+     */
+    public VerticalMetricsTable getVerticalMetricsTable() {
+        return mVmtx;
+    }
+
+    /**
+     * 获取Vertical Origin Table
+     *
+     * @return Vertical Origin Table
+     */
+    public VerticalOriginTable getVerticalOriginTable() {
+        return mVorg;
+    }
+
+    /**
+     * 获取Horizontal Metrics Variations Table
+     *
+     * @return Horizontal Metrics Variations Table
+     */
+    public HorizontalMetricsVariationsTable getHorizontalMetricsVariationsTable() {
+        return mHvar;
+    }
+
+    /**
+     * 获取Vertical Metrics Variations Table
+     *
+     * @return Vertical Metrics Variations Table
+     */
+    public VerticalMetricsVariationsTable getVerticalMetricsVariationsTable() {
+        return mVvar;
+    }
+
+    /**
+     * 获取Metrics Variations Table
+     *
+     * @return Metrics Variations Table
+     */
+    public MetricsVariationsTable getMetricsVariationsTable() {
+        return mMvar;
+    }
+
+    /**
+     * 获取Font Variations Table
+     *
+     * @return Font Variations Table
+     */
+    public FontVariationsTable getFontVariationsTable() {
+        return mFvar;
+    }
+
+    /**
+     * 获取Axis Variations Table
+     *
+     * @return Axis Variations Table
+     */
+    public AxisVariationsTable getAxisVariationsTable() {
+        return mAvar;
+    }
+
+    /**
+     * 获取可变字体实例，归一化时应用 avar 映射（如已解析）
+     *
+     * @param userCoordinates 用户坐标，按 fvar 轴顺序排列，缺少的轴取默认值
+     * @return 实例，未解析 fvar 表时返回空
+     */
+    public VariationInstance getVariationInstance(float... userCoordinates) {
+        return mFvar == null ? null : mFvar.getInstance(mAvar, userCoordinates);
+    }
+
+    /**
+     * 获取可变字体实例，归一化时应用 avar 映射（如已解析）
+     *
+     * @param axisTags 轴标签，未指定的轴取默认值
+     * @param values   用户坐标
+     * @return 实例，未解析 fvar 表时返回空
+     */
+    public VariationInstance getVariationInstance(int[] axisTags, float[] values) {
+        return mFvar == null ? null : mFvar.getInstance(mAvar, axisTags, values);
+    }
+
+    /**
+     * 获取Glyph Variations Table
+     *
+     * @return Glyph Variations Table
+     */
+    public GlyphVariationsTable getGlyphVariationsTable() {
+        return mGvar;
+    }
+
+    /**
+     * 获取Horizontal Device Metrics Table
+     *
+     * @return Horizontal Device Metrics Table
+     */
+    public HorizontalDeviceMetricsTable getHorizontalDeviceMetricsTable() {
+        return mHdmx;
+    }
+
+    /**
+     * 获取Linear Threshold Table
+     *
+     * @return Linear Threshold Table
+     */
+    public LinearThresholdTable getLinearThresholdTable() {
+        return mLtsh;
+    }
+
+    /**
+     * 获取Vertical Device Metrics Table
+     *
+     * @return Vertical Device Metrics Table
+     */
+    public VerticalDeviceMetricsTable getVerticalDeviceMetricsTable() {
+        return mVdmx;
+    }
+
+    /**
+     * 获取字形轮廓来源，TrueType 轮廓优先
+     *
+     * @return 'glyf'、'CFF ' 或 'CFF2' 表，均未解析时返回空
+     */
+    public GlyphOutlineSource getGlyphOutlineSource() {
+        if (mGlyf != null)
+            return mGlyf;
+        if (mCff != null)
+            return mCff;
+        return mCff2;
+    }
+
     /**
      * 获取PCL 5 Table
      *
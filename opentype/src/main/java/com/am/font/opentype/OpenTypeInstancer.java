@@ -0,0 +1,724 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.am.font.opentype.tables.FontVariationsTable;
+import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.GlyphVariationsTable;
+import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.HorizontalMetricsVariationsTable;
+import com.am.font.opentype.tables.MetricsVariationsTable;
+import com.am.font.opentype.tables.VariationInstance;
+
+/**
+ * 静态实例生成器
+ * Writes a static TrueType font for one location of a variable font. The 'gvar' deltas are
+ * applied to 'glyf' (outline points are rounded to integers, composite component offsets are
+ * moved), advance widths come from 'HVAR' or, without it, from the phantom points, and the
+ * 'MVAR' deltas are applied to the 'OS/2', 'hhea', 'vhea' and 'post' metrics. 'head', 'hhea',
+ * 'loca' and 'hmtx' are rebuilt; the variation tables are dropped together with the tables
+ * whose data is only valid for the default instance ('hdmx', 'LTSH', 'VDMX', 'DSIG').
+ * 'cvar' is not applied, and variation data inside 'GDEF'/'GPOS' is copied unchanged.
+ * 字形在 ForkJoinPool 中并行处理；字体对象需已解析 head、hhea、hmtx、maxp、loca 与 glyf 表，
+ * 变化数据取自已解析的 gvar、HVAR 与 MVAR 表。同一个读取器不应同时被其他线程使用。
+ */
+@SuppressWarnings("unused")
+public class OpenTypeInstancer {
+
+    private static final int GLYPHS_PER_TASK = 64;
+    private static final int[] DROPPED_TABLES = {TableRecord.TAG_AVAR, TableRecord.TAG_CVAR,
+            TableRecord.TAG_FVAR, TableRecord.TAG_GVAR, TableRecord.TAG_HVAR,
+            TableRecord.TAG_MVAR, TableRecord.TAG_STAT, TableRecord.TAG_VVAR,
+            TableRecord.TAG_HDMX, TableRecord.TAG_LTSH, TableRecord.TAG_VDMX,
+            TableRecord.TAG_DSIG};
+    private static final int TAG_WEIGHT = 0x77676874;// wght
+    private static final int TAG_WIDTH = 0x77647468;// wdth
+    private static final float[] WIDTH_CLASSES = {50, 62.5f, 75, 87.5f, 100, 112.5f, 125, 150,
+            200};// usWidthClass 1-9 对应的宽度百分比
+    private final OpenType mFont;
+    private final OpenTypeReader mReader;
+    private final GlyphTable mGlyf;
+    private final HorizontalMetricsTable mHmtx;
+    private final GlyphVariationsTable mGvar;
+    private final HorizontalMetricsVariationsTable mHvar;
+    private final MetricsVariationsTable mMvar;
+    private final int mNumGlyphs;
+
+    public OpenTypeInstancer(OpenType font, OpenTypeReader reader) throws IOException {
+        if (font == null || reader == null || font.getHeadTable() == null ||
+                font.getHorizontalHeaderTable() == null ||
+                font.getHorizontalMetricsTable() == null ||
+                font.getMaximumProfileTable() == null || font.getGlyphTable() == null)
+            throw new IOException();
+        mFont = font;
+        mReader = reader;
+        mGlyf = font.getGlyphTable();
+        mHmtx = font.getHorizontalMetricsTable();
+        mGvar = font.getGlyphVariationsTable();
+        mHvar = font.getHorizontalMetricsVariationsTable();
+        mMvar = font.getMetricsVariationsTable();
+        mNumGlyphs = font.getMaximumProfileTable().getNumGlyphs();
+    }
+
+    /**
+     * 生成静态实例，使用临时的 ForkJoinPool 并行处理字形
+     *
+     * @param instance 实例
+     * @return 字体文件数据
+     * @throws IOException 数据错误
+     */
+    public byte[] instantiate(VariationInstance instance) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return instantiate(instance, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 生成静态实例
+     *
+     * @param instance 实例，为空时生成默认实例
+     * @param pool     并行处理字形所用的线程池
+     * @return 字体文件数据
+     * @throws IOException 数据错误
+     */
+    public byte[] instantiate(VariationInstance instance, ForkJoinPool pool) throws IOException {
+        final Job job = new Job(instance, mNumGlyphs);
+        pool.invoke(new GlyphTask(job, 0, mNumGlyphs));
+        if (job.mError != null)
+            throw job.mError;
+        final List<Integer> tags = new ArrayList<>();
+        for (Integer tag : mFont.getTableRecords().keySet()) {
+            if (!isDropped(tag))
+                tags.add(tag);
+        }
+        Collections.sort(tags);
+        final byte[][] tables = new byte[tags.size()][];
+        final byte[][] glyf = buildGlyphData(job);
+        final byte[] hmtx = buildHorizontalMetrics(job);
+        for (int i = 0; i < tables.length; i++) {
+            final int tag = tags.get(i);
+            switch (tag) {
+                case TableRecord.TAG_GLYF:
+                    tables[i] = glyf[0];
+                    break;
+                case TableRecord.TAG_LOCA:
+                    tables[i] = glyf[1];
+                    break;
+                case TableRecord.TAG_HMTX:
+                    tables[i] = hmtx;
+                    break;
+                default:
+                    tables[i] = readTable(mFont.getTableRecord(tag));
+                    patchTable(tag, tables[i], job, glyf[1].length > (mNumGlyphs + 1) * 2);
+                    break;
+            }
+        }
+        return buildFont(tags, tables);
+    }
+
+    private static boolean isDropped(int tag) {
+        for (int dropped : DROPPED_TABLES) {
+            if (dropped == tag)
+                return true;
+        }
+        return false;
+    }
+
+    private byte[] readTable(TableRecord record) throws IOException {
+        final byte[] data = new byte[record.getLength()];
+        mReader.seek(record.getOffset());
+        int read = 0;
+        while (read < data.length) {
+            final int count = mReader.read(data, read, data.length - read);
+            if (count < 0)
+                throw new EOFException();
+            read += count;
+        }
+        return data;
+    }
+
+    /**
+     * 处理单个字形：应用增量、重新编码并计算度量
+     */
+    private void instantiateGlyph(Job job, int glyphId) throws IOException {
+        final float[] deltas = mGvar == null ? null :
+                mGvar.getPointDeltas(mGlyf, glyphId, job.mInstance);
+        final Object description = mGlyf.getGlyphDescription(glyphId);
+        final int numPoints;
+        int xMin0 = 0;
+        if (description == null) {
+            numPoints = 0;
+        } else {
+            final GlyphTable.GlyphOutline outline = mGlyf.getGlyphOutline(glyphId);
+            xMin0 = outline.getXMin();
+            final int[][] points = getRoundedPoints(job, glyphId, 0);
+            final int[] bounds = getBounds(points);
+            if (description instanceof GlyphTable.SimpleGlyphDescription) {
+                numPoints = outline.getNumberOfPoints();
+                job.mGlyphs[glyphId] = encodeSimpleGlyph(
+                        (GlyphTable.SimpleGlyphDescription) description, points, bounds);
+            } else {
+                final GlyphTable.CompositeGlyphDescription composite =
+                        (GlyphTable.CompositeGlyphDescription) description;
+                numPoints = composite.getComponents().size();
+                job.mGlyphs[glyphId] = encodeCompositeGlyph(composite, deltas, bounds);
+            }
+            if (points[0].length > 0) {
+                job.mBounds[glyphId * 4] = bounds[0];
+                job.mBounds[glyphId * 4 + 1] = bounds[1];
+                job.mBounds[glyphId * 4 + 2] = bounds[2];
+                job.mBounds[glyphId * 4 + 3] = bounds[3];
+                job.mHasContours[glyphId] = true;
+            }
+        }
+        final int lsb0 = mHmtx.getLsb(glyphId);
+        final float leftDelta = deltas == null ? 0 : deltas[numPoints * 2];
+        final float rightDelta = deltas == null ? 0 : deltas[numPoints * 2 + 2];
+        final float advanceDelta = mHvar != null ?
+                mHvar.getAdvanceWidthDelta(glyphId, job.mCoordinates) : rightDelta - leftDelta;
+        job.mAdvances[glyphId] = Math.max(0,
+                Math.round(mHmtx.getAdvanceWidth(glyphId) + advanceDelta));
+        final float leftSideX = xMin0 - lsb0 + leftDelta;
+        final int xMin = job.mHasContours[glyphId] ? job.mBounds[glyphId * 4] : xMin0;
+        job.mLsbs[glyphId] = Math.round(xMin - leftSideX);
+    }
+
+    /**
+     * 获取取整后的字形点坐标，复合字形按取整后的组件偏移量组合
+     */
+    private int[][] getRoundedPoints(Job job, int glyphId, int depth) throws IOException {
+        final Object description = mGlyf.getGlyphDescription(glyphId);
+        if (description == null)
+            return new int[][]{new int[0], new int[0]};
+        final float[] deltas = mGvar == null ? null :
+                mGvar.getPointDeltas(mGlyf, glyphId, job.mInstance);
+        if (description instanceof GlyphTable.SimpleGlyphDescription) {
+            final GlyphTable.GlyphOutline outline = mGlyf.getGlyphOutline(glyphId);
+            final float[] xs = outline.getXCoordinates();
+            final float[] ys = outline.getYCoordinates();
+            final int[] rxs = new int[xs.length];
+            final int[] rys = new int[ys.length];
+            for (int i = 0; i < xs.length; i++) {
+                rxs[i] = Math.round(xs[i] + (deltas == null ? 0 : deltas[i * 2]));
+                rys[i] = Math.round(ys[i] + (deltas == null ? 0 : deltas[i * 2 + 1]));
+            }
+            return new int[][]{rxs, rys};
+        }
+        // 嵌套深度与循环引用已在解析默认轮廓时校验
+        final List<GlyphTable.ComponentRecord> components =
+                ((GlyphTable.CompositeGlyphDescription) description).getComponents();
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+        for (int index = 0; index < components.size(); index++) {
+            final GlyphTable.ComponentRecord component = components.get(index);
+            final int[][] child = getRoundedPoints(job, component.getGlyphIndex(), depth + 1);
+            final int[] cxs = child[0];
+            final int[] cys = child[1];
+            final float a = component.getXScale();
+            final float b = component.getScale01();
+            final float c = component.getScale10();
+            final float d = component.getYScale();
+            final int flags = component.getFlags();
+            float dx;
+            float dy;
+            if ((flags & GlyphTable.ARGS_ARE_XY_VALUES) != 0) {
+                dx = getOffset(component.getArgument1(), deltas, index * 2);
+                dy = getOffset(component.getArgument2(), deltas, index * 2 + 1);
+                dx *= component.getOffsetXScale();
+                dy *= component.getOffsetYScale();
+            } else {
+                final int parent = component.getArgument1();
+                final int point = component.getArgument2();
+                if (parent >= xs.length || point >= cxs.length)
+                    throw new IOException();
+                dx = xs[parent] - (a * cxs[point] + c * cys[point]);
+                dy = ys[parent] - (b * cxs[point] + d * cys[point]);
+            }
+            final int count = xs.length;
+            final int[] nxs = new int[count + cxs.length];
+            final int[] nys = new int[count + cxs.length];
+            System.arraycopy(xs, 0, nxs, 0, count);
+            System.arraycopy(ys, 0, nys, 0, count);
+            for (int i = 0; i < cxs.length; i++) {
+                nxs[count + i] = Math.round(a * cxs[i] + c * cys[i] + dx);
+                nys[count + i] = Math.round(b * cxs[i] + d * cys[i] + dy);
+            }
+            xs = nxs;
+            ys = nys;
+        }
+        return new int[][]{xs, ys};
+    }
+
+    private static int getOffset(int argument, float[] deltas, int index) {
+        return deltas == null ? argument : argument + Math.round(deltas[index]);
+    }
+
+    private static int[] getBounds(int[][] points) {
+        final int[] xs = points[0];
+        final int[] ys = points[1];
+        if (xs.length == 0)
+            return new int[4];
+        int xMin = xs[0];
+        int yMin = ys[0];
+        int xMax = xs[0];
+        int yMax = ys[0];
+        for (int i = 1; i < xs.length; i++) {
+            xMin = Math.min(xMin, xs[i]);
+            yMin = Math.min(yMin, ys[i]);
+            xMax = Math.max(xMax, xs[i]);
+            yMax = Math.max(yMax, ys[i]);
+        }
+        return new int[]{xMin, yMin, xMax, yMax};
+    }
+
+    private static byte[] encodeSimpleGlyph(GlyphTable.SimpleGlyphDescription description,
+                                            int[][] points, int[] bounds) {
+        final int[] endPtsOfContours = description.getEndPtsOfContours();
+        final int[] instructions = description.getInstructions();
+        final int[] originalFlags = description.getFlags();
+        final int[] xs = points[0];
+        final int[] ys = points[1];
+        final int numPoints = xs.length;
+        final ByteBuffer data = ByteBuffer.allocate(12 + endPtsOfContours.length * 2 +
+                instructions.length + numPoints * 5);
+        data.putShort((short) endPtsOfContours.length);
+        data.putShort((short) bounds[0]).putShort((short) bounds[1])
+                .putShort((short) bounds[2]).putShort((short) bounds[3]);
+        for (int end : endPtsOfContours) {
+            data.putShort((short) end);
+        }
+        data.putShort((short) instructions.length);
+        for (int instruction : instructions) {
+            data.put((byte) instruction);
+        }
+        final int[] flags = new int[numPoints];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < numPoints; i++) {
+            int flag = originalFlags[i] & GlyphTable.ON_CURVE_POINT;
+            if (i == 0)
+                flag |= originalFlags[0] & GlyphTable.OVERLAP_SIMPLE;
+            flag |= getVectorFlag(xs[i] - x, GlyphTable.X_SHORT_VECTOR,
+                    GlyphTable.X_IS_SAME_OR_POSITIVE_X_SHORT_VECTOR);
+            flag |= getVectorFlag(ys[i] - y, GlyphTable.Y_SHORT_VECTOR,
+                    GlyphTable.Y_IS_SAME_OR_POSITIVE_Y_SHORT_VECTOR);
+            flags[i] = flag;
+            x = xs[i];
+            y = ys[i];
+        }
+        for (int i = 0; i < numPoints; ) {
+            final int flag = flags[i];
+            int repeat = 0;
+            while (i + repeat + 1 < numPoints && flags[i + repeat + 1] == flag && repeat < 255)
+                repeat++;
+            if (repeat > 0) {
+                data.put((byte) (flag | GlyphTable.REPEAT_FLAG)).put((byte) repeat);
+            } else {
+                data.put((byte) flag);
+            }
+            i += repeat + 1;
+        }
+        putCoordinates(data, xs, flags, GlyphTable.X_SHORT_VECTOR,
+                GlyphTable.X_IS_SAME_OR_POSITIVE_X_SHORT_VECTOR);
+        putCoordinates(data, ys, flags, GlyphTable.Y_SHORT_VECTOR,
+                GlyphTable.Y_IS_SAME_OR_POSITIVE_Y_SHORT_VECTOR);
+        final byte[] result = new byte[data.position()];
+        System.arraycopy(data.array(), 0, result, 0, result.length);
+        return result;
+    }
+
+    private static int getVectorFlag(int delta, int shortVector, int sameOrPositive) {
+        if (delta == 0)
+            return sameOrPositive;
+        if (delta > -256 && delta < 256)
+            return delta > 0 ? shortVector | sameOrPositive : shortVector;
+        return 0;
+    }
+
+    private static void putCoordinates(ByteBuffer data, int[] values, int[] flags,
+                                       int shortVector, int sameOrPositive) {
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            final int delta = values[i] - previous;
+            previous = values[i];
+            if ((flags[i] & shortVector) != 0)
+                data.put((byte) Math.abs(delta));
+            else if ((flags[i] & sameOrPositive) == 0)
+                data.putShort((short) delta);
+        }
+    }
+
+    private static byte[] encodeCompositeGlyph(GlyphTable.CompositeGlyphDescription description,
+                                               float[] deltas, int[] bounds) {
+        final List<GlyphTable.ComponentRecord> components = description.getComponents();
+        final int[] instructions = description.getInstructions();
+        final ByteBuffer data = ByteBuffer.allocate(10 + components.size() * 16 + 2 +
+                instructions.length);
+        data.putShort((short) -1);
+        data.putShort((short) bounds[0]).putShort((short) bounds[1])
+                .putShort((short) bounds[2]).putShort((short) bounds[3]);
+        boolean hasInstructions = false;
+        for (int index = 0; index < components.size(); index++) {
+            final GlyphTable.ComponentRecord component = components.get(index);
+            int flags = component.getFlags() & ~GlyphTable.ARG_1_AND_2_ARE_WORDS;
+            final boolean xy = (flags & GlyphTable.ARGS_ARE_XY_VALUES) != 0;
+            final int argument1 = xy ? getOffset(component.getArgument1(), deltas, index * 2) :
+                    component.getArgument1();
+            final int argument2 = xy ? getOffset(component.getArgument2(), deltas,
+                    index * 2 + 1) : component.getArgument2();
+            final boolean words = xy ?
+                    argument1 < -128 || argument1 > 127 || argument2 < -128 || argument2 > 127 :
+                    argument1 > 255 || argument2 > 255;
+            if (words)
+                flags |= GlyphTable.ARG_1_AND_2_ARE_WORDS;
+            if ((flags & GlyphTable.WE_HAVE_INSTRUCTIONS) != 0)
+                hasInstructions = true;
+            data.putShort((short) flags).putShort((short) component.getGlyphIndex());
+            if (words)
+                data.putShort((short) argument1).putShort((short) argument2);
+            else
+                data.put((byte) argument1).put((byte) argument2);
+            if ((flags & GlyphTable.WE_HAVE_A_SCALE) != 0) {
+                data.putShort(toF2Dot14(component.getXScale()));
+            } else if ((flags & GlyphTable.WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+                data.putShort(toF2Dot14(component.getXScale()))
+                        .putShort(toF2Dot14(component.getYScale()));
+            } else if ((flags & GlyphTable.WE_HAVE_A_TWO_BY_TWO) != 0) {
+                data.putShort(toF2Dot14(component.getXScale()))
+                        .putShort(toF2Dot14(component.getScale01()))
+                        .putShort(toF2Dot14(component.getScale10()))
+                        .putShort(toF2Dot14(component.getYScale()));
+            }
+        }
+        if (hasInstructions) {
+            data.putShort((short) instructions.length);
+            for (int instruction : instructions) {
+                data.put((byte) instruction);
+            }
+        }
+        final byte[] result = new byte[data.position()];
+        System.arraycopy(data.array(), 0, result, 0, result.length);
+        return result;
+    }
+
+    private static short toF2Dot14(float value) {
+        return (short) Math.round(value * 16384);
+    }
+
+    /**
+     * 拼接字形数据并生成 loca 表，字形按 4 字节对齐
+     *
+     * @return glyf 与 loca 表数据
+     */
+    private byte[][] buildGlyphData(Job job) {
+        int length = 0;
+        for (byte[] glyph : job.mGlyphs) {
+            if (glyph != null)
+                length += (glyph.length + 3) & ~3;
+        }
+        final boolean longOffsets = length > 0x1FFFE;
+        final byte[] glyf = new byte[length];
+        final ByteBuffer loca = ByteBuffer.allocate((mNumGlyphs + 1) * (longOffsets ? 4 : 2));
+        int offset = 0;
+        for (int i = 0; i <= mNumGlyphs; i++) {
+            if (longOffsets)
+                loca.putInt(offset);
+            else
+                loca.putShort((short) (offset >> 1));
+            if (i == mNumGlyphs)
+                break;
+            final byte[] glyph = job.mGlyphs[i];
+            if (glyph != null) {
+                System.arraycopy(glyph, 0, glyf, offset, glyph.length);
+                offset += (glyph.length + 3) & ~3;
+            }
+        }
+        return new byte[][]{glyf, loca.array()};
+    }
+
+    private byte[] buildHorizontalMetrics(Job job) {
+        final int[] advances = job.mAdvances;
+        int numberOfHMetrics = mNumGlyphs;
+        while (numberOfHMetrics > 1 &&
+                advances[numberOfHMetrics - 1] == advances[numberOfHMetrics - 2])
+            numberOfHMetrics--;
+        job.mNumberOfHMetrics = numberOfHMetrics;
+        final ByteBuffer data = ByteBuffer.allocate(numberOfHMetrics * 4 +
+                (mNumGlyphs - numberOfHMetrics) * 2);
+        for (int i = 0; i < mNumGlyphs; i++) {
+            if (i < numberOfHMetrics)
+                data.putShort((short) advances[i]);
+            data.putShort((short) job.mLsbs[i]);
+        }
+        return data.array();
+    }
+
+    private void patchTable(int tag, byte[] table, Job job, boolean longOffsets) {
+        final ByteBuffer data = ByteBuffer.wrap(table);
+        switch (tag) {
+            case TableRecord.TAG_HEAD: {
+                if (table.length < 54)
+                    return;
+                final int[] bounds = getFontBounds(job);
+                data.putInt(8, 0);// checkSumAdjustment 在生成字体文件时重新计算
+                data.putShort(36, (short) bounds[0]).putShort(38, (short) bounds[1])
+                        .putShort(40, (short) bounds[2]).putShort(42, (short) bounds[3]);
+                data.putShort(50, (short) (longOffsets ? 1 : 0));
+                break;
+            }
+            case TableRecord.TAG_HHEA: {
+                if (table.length < 36)
+                    return;
+                int advanceWidthMax = 0;
+                int minLeftSideBearing = Integer.MAX_VALUE;
+                int minRightSideBearing = Integer.MAX_VALUE;
+                int xMaxExtent = Integer.MIN_VALUE;
+                for (int i = 0; i < mNumGlyphs; i++) {
+                    advanceWidthMax = Math.max(advanceWidthMax, job.mAdvances[i]);
+                    if (!job.mHasContours[i])
+                        continue;
+                    final int lsb = job.mLsbs[i];
+                    final int extent = lsb + job.mBounds[i * 4 + 2] - job.mBounds[i * 4];
+                    minLeftSideBearing = Math.min(minLeftSideBearing, lsb);
+                    minRightSideBearing = Math.min(minRightSideBearing,
+                            job.mAdvances[i] - extent);
+                    xMaxExtent = Math.max(xMaxExtent, extent);
+                }
+                if (xMaxExtent == Integer.MIN_VALUE) {
+                    minLeftSideBearing = 0;
+                    minRightSideBearing = 0;
+                    xMaxExtent = 0;
+                }
+                data.putShort(10, (short) advanceWidthMax)
+                        .putShort(12, (short) minLeftSideBearing)
+                        .putShort(14, (short) minRightSideBearing)
+                        .putShort(16, (short) xMaxExtent);
+                applyDelta(data, 18, MetricsVariationsTable.TAG_HORIZONTAL_CARET_RISE, job);
+                applyDelta(data, 20, MetricsVariationsTable.TAG_HORIZONTAL_CARET_RUN, job);
+                applyDelta(data, 22, MetricsVariationsTable.TAG_HORIZONTAL_CARET_OFFSET, job);
+                data.putShort(34, (short) job.mNumberOfHMetrics);
+                break;
+            }
+            case TableRecord.TAG_OS2: {
+                patchOS2(data, job);
+                break;
+            }
+            case TableRecord.TAG_POST: {
+                applyDelta(data, 8, MetricsVariationsTable.TAG_UNDERLINE_OFFSET, job);
+                applyDelta(data, 10, MetricsVariationsTable.TAG_UNDERLINE_SIZE, job);
+                break;
+            }
+            case TableRecord.TAG_VHEA: {
+                applyDelta(data, 4, MetricsVariationsTable.TAG_VERTICAL_ASCENDER, job);
+                applyDelta(data, 6, MetricsVariationsTable.TAG_VERTICAL_DESCENDER, job);
+                applyDelta(data, 8, MetricsVariationsTable.TAG_VERTICAL_LINE_GAP, job);
+                break;
+            }
+        }
+    }
+
+    private void patchOS2(ByteBuffer data, Job job) {
+        if (data.capacity() < 8)
+            return;
+        final VariationInstance instance = job.mInstance;
+        final FontVariationsTable fvar = mFont.getFontVariationsTable();
+        if (instance != null && fvar != null) {
+            for (int i = 0; i < instance.getAxisCount(); i++) {
+                final FontVariationsTable.VariationAxisRecord axis = fvar.getAxes().get(i);
+                final float value = Math.max(axis.getMinValue(),
+                        Math.min(axis.getMaxValue(), instance.getUserCoordinate(i)));
+                if (instance.getAxisTag(i) == TAG_WEIGHT) {
+                    data.putShort(4, (short) Math.max(1, Math.min(1000, Math.round(value))));
+                } else if (instance.getAxisTag(i) == TAG_WIDTH) {
+                    int widthClass = 0;
+                    for (int c = 1; c < WIDTH_CLASSES.length; c++) {
+                        if (Math.abs(WIDTH_CLASSES[c] - value) <
+                                Math.abs(WIDTH_CLASSES[widthClass] - value))
+                            widthClass = c;
+                    }
+                    data.putShort(6, (short) (widthClass + 1));
+                }
+            }
+        }
+        applyDelta(data, 10, MetricsVariationsTable.TAG_SUBSCRIPT_X_SIZE, job);
+        applyDelta(data, 12, MetricsVariationsTable.TAG_SUBSCRIPT_Y_SIZE, job);
+        applyDelta(data, 14, MetricsVariationsTable.TAG_SUBSCRIPT_X_OFFSET, job);
+        applyDelta(data, 16, MetricsVariationsTable.TAG_SUBSCRIPT_Y_OFFSET, job);
+        applyDelta(data, 18, MetricsVariationsTable.TAG_SUPERSCRIPT_X_SIZE, job);
+        applyDelta(data, 20, MetricsVariationsTable.TAG_SUPERSCRIPT_Y_SIZE, job);
+        applyDelta(data, 22, MetricsVariationsTable.TAG_SUPERSCRIPT_X_OFFSET, job);
+        applyDelta(data, 24, MetricsVariationsTable.TAG_SUPERSCRIPT_Y_OFFSET, job);
+        applyDelta(data, 26, MetricsVariationsTable.TAG_STRIKEOUT_SIZE, job);
+        applyDelta(data, 28, MetricsVariationsTable.TAG_STRIKEOUT_OFFSET, job);
+        applyDelta(data, 68, MetricsVariationsTable.TAG_HORIZONTAL_ASCENDER, job);
+        applyDelta(data, 70, MetricsVariationsTable.TAG_HORIZONTAL_DESCENDER, job);
+        applyDelta(data, 72, MetricsVariationsTable.TAG_HORIZONTAL_LINE_GAP, job);
+        applyUnsignedDelta(data, 74, MetricsVariationsTable.TAG_HORIZONTAL_CLIPPING_ASCENT, job);
+        applyUnsignedDelta(data, 76, MetricsVariationsTable.TAG_HORIZONTAL_CLIPPING_DESCENT,
+                job);
+        if (data.getChar(0) >= 2) {
+            applyDelta(data, 86, MetricsVariationsTable.TAG_X_HEIGHT, job);
+            applyDelta(data, 88, MetricsVariationsTable.TAG_CAP_HEIGHT, job);
+        }
+    }
+
+    private void applyDelta(ByteBuffer data, int offset, int valueTag, Job job) {
+        if (mMvar == null || offset + 2 > data.capacity() || !mMvar.containsValue(valueTag))
+            return;
+        data.putShort(offset, (short) (data.getShort(offset) +
+                Math.round(mMvar.getDelta(valueTag, job.mCoordinates))));
+    }
+
+    private void applyUnsignedDelta(ByteBuffer data, int offset, int valueTag, Job job) {
+        if (mMvar == null || offset + 2 > data.capacity() || !mMvar.containsValue(valueTag))
+            return;
+        data.putShort(offset, (short) Math.max(0, data.getChar(offset) +
+                Math.round(mMvar.getDelta(valueTag, job.mCoordinates))));
+    }
+
+    private int[] getFontBounds(Job job) {
+        int xMin = Integer.MAX_VALUE;
+        int yMin = Integer.MAX_VALUE;
+        int xMax = Integer.MIN_VALUE;
+        int yMax = Integer.MIN_VALUE;
+        for (int i = 0; i < mNumGlyphs; i++) {
+            if (!job.mHasContours[i])
+                continue;
+            xMin = Math.min(xMin, job.mBounds[i * 4]);
+            yMin = Math.min(yMin, job.mBounds[i * 4 + 1]);
+            xMax = Math.max(xMax, job.mBounds[i * 4 + 2]);
+            yMax = Math.max(yMax, job.mBounds[i * 4 + 3]);
+        }
+        if (xMin > xMax)
+            return new int[4];
+        return new int[]{xMin, yMin, xMax, yMax};
+    }
+
+    /**
+     * 生成字体文件：表目录按标签排序，各表按 4 字节对齐并计算校验和，最后写入 head 的 checkSumAdjustment
+     */
+    private static byte[] buildFont(List<Integer> tags, byte[][] tables) {
+        final int numTables = tags.size();
+        int entrySelector = 0;
+        while ((1 << (entrySelector + 1)) <= numTables)
+            entrySelector++;
+        final int searchRange = (1 << entrySelector) * 16;
+        int length = 12 + numTables * 16;
+        for (byte[] table : tables) {
+            length += (table.length + 3) & ~3;
+        }
+        final ByteBuffer data = ByteBuffer.allocate(length);
+        data.putInt(0x00010000).putShort((short) numTables).putShort((short) searchRange)
+                .putShort((short) entrySelector).putShort((short) (numTables * 16 - searchRange));
+        int offset = 12 + numTables * 16;
+        int headOffset = -1;
+        for (int i = 0; i < numTables; i++) {
+            final int tag = tags.get(i);
+            if (tag == TableRecord.TAG_HEAD)
+                headOffset = offset;
+            data.putInt(tag).putInt(getCheckSum(tables[i])).putInt(offset)
+                    .putInt(tables[i].length);
+            System.arraycopy(tables[i], 0, data.array(), offset, tables[i].length);
+            offset += (tables[i].length + 3) & ~3;
+        }
+        if (headOffset >= 0)
+            data.putInt(headOffset + 8, 0xB1B0AFBA - getCheckSum(data.array()));
+        return data.array();
+    }
+
+    private static int getCheckSum(byte[] data) {
+        int sum = 0;
+        for (int i = 0; i < data.length; i += 4) {
+            int value = 0;
+            for (int j = 0; j < 4; j++) {
+                value = (value << 8) | (i + j < data.length ? data[i + j] & 0xFF : 0);
+            }
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * 单次生成的状态，各字形的结果写入各自的位置，无需同步
+     */
+    private static final class Job {
+        final VariationInstance mInstance;
+        final float[] mCoordinates;
+        final byte[][] mGlyphs;
+        final int[] mAdvances;
+        final int[] mLsbs;
+        final int[] mBounds;
+        final boolean[] mHasContours;
+        int mNumberOfHMetrics;
+        volatile IOException mError;
+
+        Job(VariationInstance instance, int numGlyphs) {
+            mInstance = instance;
+            mCoordinates = instance == null ? null : instance.getCoordinates();
+            mGlyphs = new byte[numGlyphs][];
+            mAdvances = new int[numGlyphs];
+            mLsbs = new int[numGlyphs];
+            mBounds = new int[numGlyphs * 4];
+            mHasContours = new boolean[numGlyphs];
+        }
+    }
+
+    /**
+     * 按字形范围拆分的并行任务
+     */
+    private final class GlyphTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Job mJob;
+        private final int mStart;
+        private final int mEnd;
+
+        GlyphTask(Job job, int start, int end) {
+            mJob = job;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart > GLYPHS_PER_TASK) {
+                final int middle = (mStart + mEnd) >>> 1;
+                invokeAll(new GlyphTask(mJob, mStart, middle), new GlyphTask(mJob, middle, mEnd));
+                return;
+            }
+            for (int i = mStart; i < mEnd && mJob.mError == null; i++) {
+                try {
+                    instantiateGlyph(mJob, i);
+                } catch (IOException e) {
+                    mJob.mError = e;
+                } catch (IndexOutOfBoundsException e) {
+                    mJob.mError = new IOException(e);
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads a OpenType font file.
@@ -338,4 +339,21 @@ public interface OpenTypeReader extends Closeable {
      * @throws IOException  if an I/O error occurs.
      */
     String readString(long length, String charsetName) throws IOException;
+
+    /**
+     * Maps a region of this file directly into memory. The returned buffer
+     * is read-only, uses big-endian byte order and stays valid after this
+     * reader is closed, so tables can keep it and decode their data lazily
+     * without copying the bytes into the Java heap.
+     *
+     * @param pos  the position within the file at which the mapped region
+     *             is to start.
+     * @param size the size of the region to be mapped.
+     * @return the mapped buffer, or {@code null} if this reader does not
+     * support mapping, which is the default.
+     * @throws IOException if an I/O error occurs.
+     */
+    default ByteBuffer map(long pos, int size) throws IOException {
+        return null;
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+/**
+ * 图形状态
+ * TrueType graphics state. Distances are F26Dot6; vectors are unit vectors kept as doubles.
+ */
+final class GraphicsState {
+
+    static final int ROUND_TO_HALF_GRID = 0;
+    static final int ROUND_TO_GRID = 1;
+    static final int ROUND_TO_DOUBLE_GRID = 2;
+    static final int ROUND_DOWN_TO_GRID = 3;
+    static final int ROUND_UP_TO_GRID = 4;
+    static final int ROUND_OFF = 5;
+    static final int ROUND_SUPER = 6;
+    static final int ROUND_SUPER_45 = 7;
+    double mProjectionX = 1;
+    double mProjectionY;
+    double mFreedomX = 1;
+    double mFreedomY;
+    double mDualX = 1;
+    double mDualY;
+    int mRp0;
+    int mRp1;
+    int mRp2;
+    int mZp0 = 1;
+    int mZp1 = 1;
+    int mZp2 = 1;
+    int mLoop = 1;
+    int mRoundState = ROUND_TO_GRID;
+    int mPeriod = 64;
+    int mPhase;
+    int mThreshold = 32;
+    int mMinimumDistance = 64;
+    int mControlValueCutIn = 68;// 17/16 像素
+    int mSingleWidthCutIn;
+    int mSingleWidthValue;
+    int mDeltaBase = 9;
+    int mDeltaShift = 3;
+    boolean mAutoFlip = true;
+    int mInstructControl;
+
+    GraphicsState copy() {
+        final GraphicsState state = new GraphicsState();
+        state.set(this);
+        return state;
+    }
+
+    void set(GraphicsState state) {
+        mProjectionX = state.mProjectionX;
+        mProjectionY = state.mProjectionY;
+        mFreedomX = state.mFreedomX;
+        mFreedomY = state.mFreedomY;
+        mDualX = state.mDualX;
+        mDualY = state.mDualY;
+        mRp0 = state.mRp0;
+        mRp1 = state.mRp1;
+        mRp2 = state.mRp2;
+        mZp0 = state.mZp0;
+        mZp1 = state.mZp1;
+        mZp2 = state.mZp2;
+        mLoop = state.mLoop;
+        mRoundState = state.mRoundState;
+        mPeriod = state.mPeriod;
+        mPhase = state.mPhase;
+        mThreshold = state.mThreshold;
+        mMinimumDistance = state.mMinimumDistance;
+        mControlValueCutIn = state.mControlValueCutIn;
+        mSingleWidthCutIn = state.mSingleWidthCutIn;
+        mSingleWidthValue = state.mSingleWidthValue;
+        mDeltaBase = state.mDeltaBase;
+        mDeltaShift = state.mDeltaShift;
+        mAutoFlip = state.mAutoFlip;
+        mInstructControl = state.mInstructControl;
+    }
+
+    /**
+     * 每个程序开始执行前重置的状态
+     */
+    void reset() {
+        mProjectionX = mFreedomX = mDualX = 1;
+        mProjectionY = mFreedomY = mDualY = 0;
+        mRp0 = mRp1 = mRp2 = 0;
+        mZp0 = mZp1 = mZp2 = 1;
+        mLoop = 1;
+        mRoundState = ROUND_TO_GRID;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+import com.am.font.opentype.tables.GlyphTable;
+
+/**
+ * 微调后的字形
+ * Outline of a glyph after its TrueType instructions ran at a given ppem. The outline is
+ * expressed in font design units (grid-fitted pixel positions multiplied by unitsPerEm / ppem)
+ * with the hinted origin at x = 0, so it can be fed straight into the rasterizer at the same
+ * pixel size.
+ */
+@SuppressWarnings("unused")
+public class HintedGlyph {
+
+    private final int mGlyphId;
+    private final int mPpem;
+    private final GlyphTable.GlyphOutline mOutline;
+    private final float mAdvanceWidth;
+    private final boolean mHinted;
+
+    HintedGlyph(int glyphId, int ppem, GlyphTable.GlyphOutline outline, float advanceWidth,
+                boolean hinted) {
+        mGlyphId = glyphId;
+        mPpem = ppem;
+        mOutline = outline;
+        mAdvanceWidth = advanceWidth;
+        mHinted = hinted;
+    }
+
+    /**
+     * 获取字形ID
+     *
+     * @return 字形ID
+     */
+    public int getGlyphId() {
+        return mGlyphId;
+    }
+
+    /**
+     * 获取像素尺寸
+     *
+     * @return 每 em 像素数
+     */
+    public int getPpem() {
+        return mPpem;
+    }
+
+    /**
+     * 获取轮廓
+     *
+     * @return 轮廓，坐标为字体设计单位
+     */
+    public GlyphTable.GlyphOutline getOutline() {
+        return mOutline;
+    }
+
+    /**
+     * 获取步进宽度
+     *
+     * @return 步进宽度（像素），微调成功时为整数
+     */
+    public float getAdvanceWidth() {
+        return mAdvanceWidth;
+    }
+
+    /**
+     * 判断是否已微调
+     *
+     * @return 字形程序执行失败或字体不含指令时为 false，此时轮廓仅经过缩放
+     */
+    public boolean isHinted() {
+        return mHinted;
+    }
+
+    @Override
+    public String toString() {
+        return "HintedGlyph{" +
+                "glyphId=" + mGlyphId +
+                ", ppem=" + mPpem +
+                ", advanceWidth=" + mAdvanceWidth +
+                ", hinted=" + mHinted +
+                '}';
+    }
+}
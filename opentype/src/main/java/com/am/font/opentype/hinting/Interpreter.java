@@ -0,0 +1,1352 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * TrueType 指令解释器
+ * Executes font, control value and glyph programs. Coordinates and distances are F26Dot6.
+ * Malformed programs (stack underflow, bad point or function references, runaway loops)
+ * abort with an {@link IOException}; callers fall back to unhinted outlines.
+ * 非线程安全。
+ */
+final class Interpreter {
+
+    private static final int MAX_CALL_DEPTH = 64;
+    private static final int MAX_INSTRUCTIONS = 1000000;
+    private static final int STACK_SLACK = 32;// 不少字体低报 maxStackElements
+    private static final int TWILIGHT = 0;
+    final GraphicsState mState = new GraphicsState();
+    final Zone mTwilight;
+    final Zone mGlyph = new Zone(64);
+    int[] mStorage;
+    int[] mCvt = new int[0];
+    // 存储区及 CVT 与缓存共享时，首次写入前复制
+    boolean mStorageShared;
+    boolean mCvtShared;
+    Function[] mFunctions;
+    final Function[] mInstructionDefs = new Function[256];
+    int mPpem;
+    int mUnitsPerEm;
+    boolean mControlValueProgram;
+    private int[] mStack;
+    private int mTop;
+    private int mInstructionCount;
+
+    Interpreter(int maxStackElements, int maxStorage, int maxFunctionDefs, int maxTwilightPoints,
+                int unitsPerEm) {
+        mStack = new int[Math.max(maxStackElements, 0) + STACK_SLACK];
+        mStorage = new int[Math.max(maxStorage, 0)];
+        mFunctions = new Function[Math.max(maxFunctionDefs, 0)];
+        mTwilight = new Zone(Math.max(maxTwilightPoints, 0));
+        mTwilight.mCount = Math.max(maxTwilightPoints, 0);
+        mUnitsPerEm = unitsPerEm;
+    }
+
+    /**
+     * 执行程序
+     *
+     * @param code 指令
+     * @throws IOException 指令错误
+     */
+    void execute(byte[] code) throws IOException {
+        mTop = 0;
+        mInstructionCount = 0;
+        execute(code, 0, code.length, 0);
+    }
+
+    /**
+     * 字体设计单位转换为 F26Dot6
+     */
+    int scale(double value) {
+        return (int) Math.round(value * mPpem * 64 / mUnitsPerEm);
+    }
+
+    private void execute(byte[] code, int start, int end, int depth) throws IOException {
+        if (depth > MAX_CALL_DEPTH)
+            throw new IOException();
+        final GraphicsState gs = mState;
+        int ip = start;
+        while (ip < end) {
+            if (++mInstructionCount > MAX_INSTRUCTIONS)
+                throw new IOException();
+            final int position = ip;
+            final int opcode = code[ip++] & 0xFF;
+            switch (opcode) {
+                case 0x00:// SVTCA[y]
+                case 0x01:// SVTCA[x]
+                    setProjection(opcode & 1, 1 - (opcode & 1));
+                    setFreedom(opcode & 1, 1 - (opcode & 1));
+                    break;
+                case 0x02:// SPVTCA
+                case 0x03:
+                    setProjection(opcode & 1, 1 - (opcode & 1));
+                    break;
+                case 0x04:// SFVTCA
+                case 0x05:
+                    setFreedom(opcode & 1, 1 - (opcode & 1));
+                    break;
+                case 0x06:// SPVTL
+                case 0x07:
+                case 0x08:// SFVTL
+                case 0x09:
+                case 0x86:// SDPVTL
+                case 0x87: {
+                    final int p1 = pop();
+                    final int p2 = pop();
+                    final Zone z1 = getZone(gs.mZp1);
+                    final Zone z2 = getZone(gs.mZp2);
+                    checkPoint(z1, p2);
+                    checkPoint(z2, p1);
+                    double x = z1.mCurrentX[p2] - z2.mCurrentX[p1];
+                    double y = z1.mCurrentY[p2] - z2.mCurrentY[p1];
+                    if ((opcode & 1) != 0) {
+                        final double t = x;
+                        x = -y;
+                        y = t;
+                    }
+                    if (opcode >= 0x86) {
+                        double dx = z1.mOriginalX[p2] - z2.mOriginalX[p1];
+                        double dy = z1.mOriginalY[p2] - z2.mOriginalY[p1];
+                        if ((opcode & 1) != 0) {
+                            final double t = dx;
+                            dx = -dy;
+                            dy = t;
+                        }
+                        setProjection(x, y);
+                        final double length = Math.hypot(dx, dy);
+                        gs.mDualX = length == 0 ? 1 : dx / length;
+                        gs.mDualY = length == 0 ? 0 : dy / length;
+                    } else if (opcode <= 0x07) {
+                        setProjection(x, y);
+                    } else {
+                        setFreedom(x, y);
+                    }
+                    break;
+                }
+                case 0x0A: {// SPVFS
+                    final int y = pop();
+                    final int x = pop();
+                    setProjection(x, y);
+                    break;
+                }
+                case 0x0B: {// SFVFS
+                    final int y = pop();
+                    final int x = pop();
+                    setFreedom(x, y);
+                    break;
+                }
+                case 0x0C:// GPV
+                    push((int) Math.round(gs.mProjectionX * 0x4000));
+                    push((int) Math.round(gs.mProjectionY * 0x4000));
+                    break;
+                case 0x0D:// GFV
+                    push((int) Math.round(gs.mFreedomX * 0x4000));
+                    push((int) Math.round(gs.mFreedomY * 0x4000));
+                    break;
+                case 0x0E:// SFVTPV
+                    gs.mFreedomX = gs.mProjectionX;
+                    gs.mFreedomY = gs.mProjectionY;
+                    break;
+                case 0x0F:// ISECT
+                    intersect();
+                    break;
+                case 0x10:// SRP0
+                    gs.mRp0 = pop();
+                    break;
+                case 0x11:// SRP1
+                    gs.mRp1 = pop();
+                    break;
+                case 0x12:// SRP2
+                    gs.mRp2 = pop();
+                    break;
+                case 0x13:// SZP0
+                    gs.mZp0 = popZone();
+                    break;
+                case 0x14:// SZP1
+                    gs.mZp1 = popZone();
+                    break;
+                case 0x15:// SZP2
+                    gs.mZp2 = popZone();
+                    break;
+                case 0x16:// SZPS
+                    gs.mZp0 = gs.mZp1 = gs.mZp2 = popZone();
+                    break;
+                case 0x17: {// SLOOP
+                    final int loop = pop();
+                    if (loop < 0)
+                        throw new IOException();
+                    gs.mLoop = loop;
+                    break;
+                }
+                case 0x18:// RTG
+                    gs.mRoundState = GraphicsState.ROUND_TO_GRID;
+                    break;
+                case 0x19:// RTHG
+                    gs.mRoundState = GraphicsState.ROUND_TO_HALF_GRID;
+                    break;
+                case 0x1A:// SMD
+                    gs.mMinimumDistance = pop();
+                    break;
+                case 0x1B:// ELSE
+                    ip = skip(code, ip, end, false);
+                    break;
+                case 0x1C:// JMPR
+                    ip = jump(position, pop(), start, end);
+                    break;
+                case 0x1D:// SCVTCI
+                    gs.mControlValueCutIn = pop();
+                    break;
+                case 0x1E:// SSWCI
+                    gs.mSingleWidthCutIn = pop();
+                    break;
+                case 0x1F:// SSW
+                    gs.mSingleWidthValue = scale(pop());
+                    break;
+                case 0x20: {// DUP
+                    final int value = pop();
+                    push(value);
+                    push(value);
+                    break;
+                }
+                case 0x21:// POP
+                    pop();
+                    break;
+                case 0x22:// CLEAR
+                    mTop = 0;
+                    break;
+                case 0x23: {// SWAP
+                    final int b = pop();
+                    final int a = pop();
+                    push(b);
+                    push(a);
+                    break;
+                }
+                case 0x24:// DEPTH
+                    push(mTop);
+                    break;
+                case 0x25: {// CINDEX
+                    final int index = pop();
+                    if (index <= 0 || index > mTop)
+                        throw new IOException();
+                    push(mStack[mTop - index]);
+                    break;
+                }
+                case 0x26: {// MINDEX
+                    final int index = pop();
+                    if (index <= 0 || index > mTop)
+                        throw new IOException();
+                    final int value = mStack[mTop - index];
+                    System.arraycopy(mStack, mTop - index + 1, mStack, mTop - index, index - 1);
+                    mStack[mTop - 1] = value;
+                    break;
+                }
+                case 0x27: {// ALIGNPTS
+                    final int p2 = pop();
+                    final int p1 = pop();
+                    final Zone z0 = getZone(gs.mZp0);
+                    final Zone z1 = getZone(gs.mZp1);
+                    checkPoint(z0, p2);
+                    checkPoint(z1, p1);
+                    final int distance = project(z0.mCurrentX[p2] - z1.mCurrentX[p1],
+                            z0.mCurrentY[p2] - z1.mCurrentY[p1]) / 2;
+                    move(z1, p1, distance, true);
+                    move(z0, p2, -distance, true);
+                    break;
+                }
+                case 0x29: {// UTP
+                    final int p = pop();
+                    final Zone zone = getZone(gs.mZp0);
+                    checkPoint(zone, p);
+                    if (gs.mFreedomX != 0)
+                        zone.mFlags[p] &= ~Zone.TOUCHED_X;
+                    if (gs.mFreedomY != 0)
+                        zone.mFlags[p] &= ~Zone.TOUCHED_Y;
+                    break;
+                }
+                case 0x2A: {// LOOPCALL
+                    final Function function = getFunction(pop());
+                    final int count = pop();
+                    for (int i = 0; i < count; i++) {
+                        execute(function.mCode, function.mStart, function.mEnd, depth + 1);
+                    }
+                    break;
+                }
+                case 0x2B: {// CALL
+                    final Function function = getFunction(pop());
+                    execute(function.mCode, function.mStart, function.mEnd, depth + 1);
+                    break;
+                }
+                case 0x2C: {// FDEF
+                    final int number = pop();
+                    if (number < 0 || number > 0xFFFF)
+                        throw new IOException();
+                    final int body = ip;
+                    ip = skipFunction(code, ip, end);
+                    if (number >= mFunctions.length)
+                        mFunctions = Arrays.copyOf(mFunctions, number + 1);
+                    mFunctions[number] = new Function(code, body, ip - 1);
+                    break;
+                }
+                case 0x2D:// ENDF
+                    return;
+                case 0x2E:// MDAP
+                case 0x2F: {
+                    final int p = pop();
+                    final Zone zone = getZone(gs.mZp0);
+                    checkPoint(zone, p);
+                    int distance = 0;
+                    if ((opcode & 1) != 0) {
+                        final int current = project(zone.mCurrentX[p], zone.mCurrentY[p]);
+                        distance = round(current) - current;
+                    }
+                    move(zone, p, distance, true);
+                    gs.mRp0 = gs.mRp1 = p;
+                    break;
+                }
+                case 0x30:// IUP[y]
+                case 0x31:// IUP[x]
+                    interpolateUntouched((opcode & 1) != 0);
+                    break;
+                case 0x32:// SHP
+                case 0x33:
+                    shiftPoints(opcode & 1);
+                    break;
+                case 0x34:// SHC
+                case 0x35:
+                    shiftContour(opcode & 1);
+                    break;
+                case 0x36:// SHZ
+                case 0x37:
+                    shiftZone(opcode & 1);
+                    break;
+                case 0x38:// SHPIX
+                    shiftPixels();
+                    break;
+                case 0x39:// IP
+                    interpolatePoints();
+                    break;
+                case 0x3A:// MSIRP
+                case 0x3B: {
+                    final int distance = pop();
+                    final int p = pop();
+                    final Zone z0 = getZone(gs.mZp0);
+                    final Zone z1 = getZone(gs.mZp1);
+                    checkPoint(z0, gs.mRp0);
+                    checkPoint(z1, p);
+                    if (z1 == mTwilight) {
+                        z1.mOriginalX[p] = z0.mOriginalX[gs.mRp0];
+                        z1.mOriginalY[p] = z0.mOriginalY[gs.mRp0];
+                        z1.mCurrentX[p] = z1.mOriginalX[p];
+                        z1.mCurrentY[p] = z1.mOriginalY[p];
+                    }
+                    final int current = project(z1.mCurrentX[p] - z0.mCurrentX[gs.mRp0],
+                            z1.mCurrentY[p] - z0.mCurrentY[gs.mRp0]);
+                    move(z1, p, distance - current, true);
+                    gs.mRp1 = gs.mRp0;
+                    gs.mRp2 = p;
+                    if ((opcode & 1) != 0)
+                        gs.mRp0 = p;
+                    break;
+                }
+                case 0x3C:// ALIGNRP
+                    alignToReference();
+                    break;
+                case 0x3D:// RTDG
+                    gs.mRoundState = GraphicsState.ROUND_TO_DOUBLE_GRID;
+                    break;
+                case 0x3E:// MIAP
+                case 0x3F: {
+                    final int index = pop();
+                    final int p = pop();
+                    final Zone zone = getZone(gs.mZp0);
+                    checkPoint(zone, p);
+                    int distance = readCvt(index);
+                    if (zone == mTwilight) {
+                        zone.mOriginalX[p] = (int) Math.round(distance * gs.mFreedomX);
+                        zone.mOriginalY[p] = (int) Math.round(distance * gs.mFreedomY);
+                        zone.mCurrentX[p] = zone.mOriginalX[p];
+                        zone.mCurrentY[p] = zone.mOriginalY[p];
+                    }
+                    final int current = project(zone.mCurrentX[p], zone.mCurrentY[p]);
+                    if ((opcode & 1) != 0) {
+                        if (Math.abs(distance - current) > gs.mControlValueCutIn)
+                            distance = current;
+                        distance = round(distance);
+                    }
+                    move(zone, p, distance - current, true);
+                    gs.mRp0 = gs.mRp1 = p;
+                    break;
+                }
+                case 0x40: {// NPUSHB
+                    checkLength(ip, 1, end);
+                    final int count = code[ip++] & 0xFF;
+                    checkLength(ip, count, end);
+                    for (int i = 0; i < count; i++) {
+                        push(code[ip++] & 0xFF);
+                    }
+                    break;
+                }
+                case 0x41: {// NPUSHW
+                    checkLength(ip, 1, end);
+                    final int count = code[ip++] & 0xFF;
+                    checkLength(ip, count * 2, end);
+                    for (int i = 0; i < count; i++) {
+                        push((short) (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)));
+                        ip += 2;
+                    }
+                    break;
+                }
+                case 0x42: {// WS
+                    final int value = pop();
+                    final int index = pop();
+                    // 与常见实现一致，越界写入被忽略
+                    if (index >= 0 && index < mStorage.length) {
+                        if (mStorageShared) {
+                            mStorage = mStorage.clone();
+                            mStorageShared = false;
+                        }
+                        mStorage[index] = value;
+                    }
+                    break;
+                }
+                case 0x43: {// RS
+                    final int index = pop();
+                    push(index >= 0 && index < mStorage.length ? mStorage[index] : 0);
+                    break;
+                }
+                case 0x44: {// WCVTP
+                    final int value = pop();
+                    writeCvt(pop(), value);
+                    break;
+                }
+                case 0x45:// RCVT
+                    push(readCvt(pop()));
+                    break;
+                case 0x46:// GC[current]
+                case 0x47: {// GC[original]
+                    final int p = pop();
+                    final Zone zone = getZone(gs.mZp2);
+                    checkPoint(zone, p);
+                    if ((opcode & 1) != 0)
+                        push(dualProject(zone.mOriginalX[p], zone.mOriginalY[p]));
+                    else
+                        push(project(zone.mCurrentX[p], zone.mCurrentY[p]));
+                    break;
+                }
+                case 0x48: {// SCFS
+                    final int value = pop();
+                    final int p = pop();
+                    final Zone zone = getZone(gs.mZp2);
+                    checkPoint(zone, p);
+                    move(zone, p, value - project(zone.mCurrentX[p], zone.mCurrentY[p]), true);
+                    if (zone == mTwilight) {
+                        zone.mOriginalX[p] = zone.mCurrentX[p];
+                        zone.mOriginalY[p] = zone.mCurrentY[p];
+                    }
+                    break;
+                }
+                case 0x49:// MD[current]
+                case 0x4A: {// MD[original]
+                    final int p1 = pop();
+                    final int p2 = pop();
+                    final Zone z0 = getZone(gs.mZp0);
+                    final Zone z1 = getZone(gs.mZp1);
+                    checkPoint(z1, p1);
+                    checkPoint(z0, p2);
+                    if ((opcode & 1) != 0)
+                        push(project(z0.mCurrentX[p2] - z1.mCurrentX[p1],
+                                z0.mCurrentY[p2] - z1.mCurrentY[p1]));
+                    else
+                        push(dualProject(z0.mOriginalX[p2] - z1.mOriginalX[p1],
+                                z0.mOriginalY[p2] - z1.mOriginalY[p1]));
+                    break;
+                }
+                case 0x4B:// MPPEM
+                    push(mPpem);
+                    break;
+                case 0x4C:// MPS（按 72 dpi 计算的点大小）
+                    push(mPpem * 64);
+                    break;
+                case 0x4D:// FLIPON
+                    gs.mAutoFlip = true;
+                    break;
+                case 0x4E:// FLIPOFF
+                    gs.mAutoFlip = false;
+                    break;
+                case 0x4F:// DEBUG
+                    pop();
+                    break;
+                case 0x50:// LT
+                case 0x51:// LTEQ
+                case 0x52:// GT
+                case 0x53:// GTEQ
+                case 0x54:// EQ
+                case 0x55: {// NEQ
+                    final int b = pop();
+                    final int a = pop();
+                    final boolean result;
+                    switch (opcode) {
+                        case 0x50:
+                            result = a < b;
+                            break;
+                        case 0x51:
+                            result = a <= b;
+                            break;
+                        case 0x52:
+                            result = a > b;
+                            break;
+                        case 0x53:
+                            result = a >= b;
+                            break;
+                        case 0x54:
+                            result = a == b;
+                            break;
+                        default:
+                            result = a != b;
+                            break;
+                    }
+                    push(result ? 1 : 0);
+                    break;
+                }
+                case 0x56:// ODD
+                    push((round(pop()) & 127) == 64 ? 1 : 0);
+                    break;
+                case 0x57:// EVEN
+                    push((round(pop()) & 127) == 0 ? 1 : 0);
+                    break;
+                case 0x58:// IF
+                    if (pop() == 0)
+                        ip = skip(code, ip, end, true);
+                    break;
+                case 0x59:// EIF
+                    break;
+                case 0x5A: {// AND
+                    final int b = pop();
+                    final int a = pop();
+                    push(a != 0 && b != 0 ? 1 : 0);
+                    break;
+                }
+                case 0x5B: {// OR
+                    final int b = pop();
+                    final int a = pop();
+                    push(a != 0 || b != 0 ? 1 : 0);
+                    break;
+                }
+                case 0x5C:// NOT
+                    push(pop() == 0 ? 1 : 0);
+                    break;
+                case 0x5D:// DELTAP1
+                    deltaPoints(0);
+                    break;
+                case 0x71:// DELTAP2
+                    deltaPoints(16);
+                    break;
+                case 0x72:// DELTAP3
+                    deltaPoints(32);
+                    break;
+                case 0x73:// DELTAC1
+                    deltaControlValues(0);
+                    break;
+                case 0x74:// DELTAC2
+                    deltaControlValues(16);
+                    break;
+                case 0x75:// DELTAC3
+                    deltaControlValues(32);
+                    break;
+                case 0x5E:// SDB
+                    gs.mDeltaBase = pop();
+                    break;
+                case 0x5F:// SDS
+                    gs.mDeltaShift = Math.min(Math.max(pop(), 0), 6);
+                    break;
+                case 0x60: {// ADD
+                    final int b = pop();
+                    push(pop() + b);
+                    break;
+                }
+                case 0x61: {// SUB
+                    final int b = pop();
+                    push(pop() - b);
+                    break;
+                }
+                case 0x62: {// DIV
+                    final int b = pop();
+                    final int a = pop();
+                    if (b == 0)
+                        throw new IOException();
+                    push((int) ((long) a * 64 / b));
+                    break;
+                }
+                case 0x63: {// MUL
+                    final int b = pop();
+                    final int a = pop();
+                    push((int) Math.round((double) a * b / 64));
+                    break;
+                }
+                case 0x64:// ABS
+                    push(Math.abs(pop()));
+                    break;
+                case 0x65:// NEG
+                    push(-pop());
+                    break;
+                case 0x66:// FLOOR
+                    push(pop() & -64);
+                    break;
+                case 0x67:// CEILING
+                    push((pop() + 63) & -64);
+                    break;
+                case 0x68:// ROUND
+                case 0x69:
+                case 0x6A:
+                case 0x6B:
+                    push(round(pop()));
+                    break;
+                case 0x6C:// NROUND（无引擎补偿，保持原值）
+                case 0x6D:
+                case 0x6E:
+                case 0x6F:
+                    break;
+                case 0x70: {// WCVTF
+                    final int value = pop();
+                    writeCvt(pop(), scale(value));
+                    break;
+                }
+                case 0x76:// SROUND
+                    setSuperRound(pop(), 64);
+                    gs.mRoundState = GraphicsState.ROUND_SUPER;
+                    break;
+                case 0x77:// S45ROUND
+                    setSuperRound(pop(), 45);
+                    gs.mRoundState = GraphicsState.ROUND_SUPER_45;
+                    break;
+                case 0x78: {// JROT
+                    final int condition = pop();
+                    final int offset = pop();
+                    if (condition != 0)
+                        ip = jump(position, offset, start, end);
+                    break;
+                }
+                case 0x79: {// JROF
+                    final int condition = pop();
+                    final int offset = pop();
+                    if (condition == 0)
+                        ip = jump(position, offset, start, end);
+                    break;
+                }
+                case 0x7A:// ROFF
+                    gs.mRoundState = GraphicsState.ROUND_OFF;
+                    break;
+                case 0x7C:// RUTG
+                    gs.mRoundState = GraphicsState.ROUND_UP_TO_GRID;
+                    break;
+                case 0x7D:// RDTG
+                    gs.mRoundState = GraphicsState.ROUND_DOWN_TO_GRID;
+                    break;
+                case 0x7E:// SANGW
+                case 0x7F:// AA
+                case 0x85:// SCANCTRL
+                case 0x8D:// SCANTYPE
+                    pop();
+                    break;
+                case 0x80:// FLIPPT
+                    flipPoints();
+                    break;
+                case 0x81:// FLIPRGON
+                case 0x82: {// FLIPRGOFF
+                    final int high = pop();
+                    final int low = pop();
+                    final Zone zone = mGlyph;
+                    if (low < 0 || high >= zone.mCount || low > high)
+                        throw new IOException();
+                    for (int i = low; i <= high; i++) {
+                        if (opcode == 0x81)
+                            zone.mFlags[i] |= Zone.ON_CURVE;
+                        else
+                            zone.mFlags[i] &= ~Zone.ON_CURVE;
+                    }
+                    break;
+                }
+                case 0x88: {// GETINFO
+                    final int selector = pop();
+                    int result = 0;
+                    if ((selector & 1) != 0)
+                        result |= 35;// 解释器版本
+                    if ((selector & 32) != 0)
+                        result |= 1 << 12;// 灰度渲染
+                    push(result);
+                    break;
+                }
+                case 0x89: {// IDEF
+                    final int number = pop();
+                    if (number < 0 || number > 0xFF)
+                        throw new IOException();
+                    final int body = ip;
+                    ip = skipFunction(code, ip, end);
+                    mInstructionDefs[number] = new Function(code, body, ip - 1);
+                    break;
+                }
+                case 0x8A: {// ROLL
+                    final int c = pop();
+                    final int b = pop();
+                    final int a = pop();
+                    push(b);
+                    push(c);
+                    push(a);
+                    break;
+                }
+                case 0x8B: {// MAX
+                    final int b = pop();
+                    push(Math.max(pop(), b));
+                    break;
+                }
+                case 0x8C: {// MIN
+                    final int b = pop();
+                    push(Math.min(pop(), b));
+                    break;
+                }
+                case 0x8E: {// INSTCTRL
+                    final int selector = pop();
+                    final int value = pop();
+                    if (mControlValueProgram && selector >= 1 && selector <= 3) {
+                        final int mask = 1 << (selector - 1);
+                        if (value != 0)
+                            gs.mInstructControl |= mask;
+                        else
+                            gs.mInstructControl &= ~mask;
+                    }
+                    break;
+                }
+                default:
+                    if (opcode >= 0xB0 && opcode <= 0xB7) {// PUSHB
+                        final int count = opcode - 0xAF;
+                        checkLength(ip, count, end);
+                        for (int i = 0; i < count; i++) {
+                            push(code[ip++] & 0xFF);
+                        }
+                    } else if (opcode >= 0xB8 && opcode <= 0xBF) {// PUSHW
+                        final int count = opcode - 0xB7;
+                        checkLength(ip, count * 2, end);
+                        for (int i = 0; i < count; i++) {
+                            push((short) (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)));
+                            ip += 2;
+                        }
+                    } else if (opcode >= 0xC0 && opcode <= 0xDF) {
+                        moveDirectRelative(opcode);
+                    } else if (opcode >= 0xE0) {
+                        moveIndirectRelative(opcode);
+                    } else {
+                        final Function function = mInstructionDefs[opcode];
+                        if (function == null)
+                            throw new IOException();
+                        execute(function.mCode, function.mStart, function.mEnd, depth + 1);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void push(int value) throws IOException {
+        if (mTop >= mStack.length)
+            throw new IOException();
+        mStack[mTop++] = value;
+    }
+
+    private int pop() throws IOException {
+        if (mTop <= 0)
+            throw new IOException();
+        return mStack[--mTop];
+    }
+
+    /**
+     * 循环次数，与常见实现一致，参数不足时只处理栈中已有的参数
+     */
+    private int getLoopCount() {
+        return Math.min(mState.mLoop, mTop);
+    }
+
+    private int popZone() throws IOException {
+        final int zone = pop();
+        if (zone != 0 && zone != 1)
+            throw new IOException();
+        return zone;
+    }
+
+    private Zone getZone(int zone) {
+        return zone == TWILIGHT ? mTwilight : mGlyph;
+    }
+
+    private static void checkPoint(Zone zone, int point) throws IOException {
+        if (point < 0 || point >= zone.mCount)
+            throw new IOException();
+    }
+
+    private static void checkLength(int ip, int length, int end) throws IOException {
+        if (ip + length > end)
+            throw new IOException();
+    }
+
+    private Function getFunction(int number) throws IOException {
+        if (number < 0 || number >= mFunctions.length || mFunctions[number] == null)
+            throw new IOException();
+        return mFunctions[number];
+    }
+
+    private int readCvt(int index) {
+        return index >= 0 && index < mCvt.length ? mCvt[index] : 0;
+    }
+
+    private void writeCvt(int index, int value) {
+        if (index >= 0 && index < mCvt.length) {
+            if (mCvtShared) {
+                mCvt = mCvt.clone();
+                mCvtShared = false;
+            }
+            mCvt[index] = value;
+        }
+    }
+
+    private static int jump(int position, int offset, int start, int end) throws IOException {
+        final int target = position + offset;
+        if (target < start || target > end)
+            throw new IOException();
+        return target;
+    }
+
+    private static int getInstructionLength(byte[] code, int ip, int end) throws IOException {
+        final int opcode = code[ip] & 0xFF;
+        final int length;
+        if (opcode == 0x40 || opcode == 0x41) {
+            if (ip + 1 >= end)
+                throw new IOException();
+            final int count = code[ip + 1] & 0xFF;
+            length = 2 + (opcode == 0x40 ? count : count * 2);
+        } else if (opcode >= 0xB0 && opcode <= 0xB7) {
+            length = 1 + opcode - 0xAF;
+        } else if (opcode >= 0xB8 && opcode <= 0xBF) {
+            length = 1 + (opcode - 0xB7) * 2;
+        } else {
+            length = 1;
+        }
+        return length;
+    }
+
+    /**
+     * 跳过条件分支
+     *
+     * @return 匹配的 ELSE（仅当 toElse 为真）或 EIF 之后的位置
+     */
+    private static int skip(byte[] code, int ip, int end, boolean toElse) throws IOException {
+        int level = 0;
+        while (ip < end) {
+            final int opcode = code[ip] & 0xFF;
+            ip += getInstructionLength(code, ip, end);
+            if (opcode == 0x58) {
+                level++;
+            } else if (opcode == 0x59) {
+                if (level == 0)
+                    return ip;
+                level--;
+            } else if (opcode == 0x1B && level == 0 && toElse) {
+                return ip;
+            }
+        }
+        throw new IOException();
+    }
+
+    /**
+     * 跳过函数定义
+     *
+     * @return ENDF 之后的位置
+     */
+    private static int skipFunction(byte[] code, int ip, int end) throws IOException {
+        while (ip < end) {
+            final int opcode = code[ip] & 0xFF;
+            ip += getInstructionLength(code, ip, end);
+            if (opcode == 0x2D)
+                return ip;
+            if (opcode == 0x2C || opcode == 0x89)
+                throw new IOException();
+        }
+        throw new IOException();
+    }
+
+    private void setProjection(double x, double y) {
+        final double length = Math.hypot(x, y);
+        final GraphicsState gs = mState;
+        gs.mProjectionX = gs.mDualX = length == 0 ? 1 : x / length;
+        gs.mProjectionY = gs.mDualY = length == 0 ? 0 : y / length;
+    }
+
+    private void setFreedom(double x, double y) {
+        final double length = Math.hypot(x, y);
+        mState.mFreedomX = length == 0 ? 1 : x / length;
+        mState.mFreedomY = length == 0 ? 0 : y / length;
+    }
+
+    private int project(int dx, int dy) {
+        return (int) Math.round(dx * mState.mProjectionX + dy * mState.mProjectionY);
+    }
+
+    private int dualProject(int dx, int dy) {
+        return (int) Math.round(dx * mState.mDualX + dy * mState.mDualY);
+    }
+
+    /**
+     * 沿自由向量移动点，使其在投影向量上的投影改变 distance
+     */
+    private void move(Zone zone, int point, int distance, boolean touch) {
+        final GraphicsState gs = mState;
+        double dot = gs.mFreedomX * gs.mProjectionX + gs.mFreedomY * gs.mProjectionY;
+        if (Math.abs(dot) < 1.0 / 16)
+            dot = 1;
+        if (gs.mFreedomX != 0) {
+            zone.mCurrentX[point] += (int) Math.round(distance * gs.mFreedomX / dot);
+            if (touch)
+                zone.mFlags[point] |= Zone.TOUCHED_X;
+        }
+        if (gs.mFreedomY != 0) {
+            zone.mCurrentY[point] += (int) Math.round(distance * gs.mFreedomY / dot);
+            if (touch)
+                zone.mFlags[point] |= Zone.TOUCHED_Y;
+        }
+    }
+
+    int round(int value) {
+        final GraphicsState gs = mState;
+        switch (gs.mRoundState) {
+            case GraphicsState.ROUND_TO_HALF_GRID:
+                return value >= 0 ? (value & -64) + 32 : -((-value & -64) + 32);
+            case GraphicsState.ROUND_TO_GRID:
+                return value >= 0 ? (value + 32) & -64 : -((-value + 32) & -64);
+            case GraphicsState.ROUND_TO_DOUBLE_GRID:
+                return value >= 0 ? (value + 16) & -32 : -((-value + 16) & -32);
+            case GraphicsState.ROUND_DOWN_TO_GRID:
+                return value >= 0 ? value & -64 : -(-value & -64);
+            case GraphicsState.ROUND_UP_TO_GRID:
+                return value >= 0 ? (value + 63) & -64 : -((-value + 63) & -64);
+            case GraphicsState.ROUND_SUPER:
+            case GraphicsState.ROUND_SUPER_45: {
+                if (value >= 0) {
+                    final int result = floorDiv(value - gs.mPhase + gs.mThreshold,
+                            gs.mPeriod) * gs.mPeriod + gs.mPhase;
+                    return result < 0 ? gs.mPhase : result;
+                }
+                final int result = -(floorDiv(-value - gs.mPhase + gs.mThreshold,
+                        gs.mPeriod) * gs.mPeriod + gs.mPhase);
+                return result > 0 ? -gs.mPhase : result;
+            }
+            default:
+                return value;
+        }
+    }
+
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        if (x % y != 0 && (x ^ y) < 0)
+            q--;
+        return q;
+    }
+
+    private void setSuperRound(int selector, int gridPeriod) {
+        final GraphicsState gs = mState;
+        switch (selector & 0xC0) {
+            case 0x00:
+                gs.mPeriod = gridPeriod / 2;
+                break;
+            case 0x80:
+                gs.mPeriod = gridPeriod * 2;
+                break;
+            default:
+                gs.mPeriod = gridPeriod;
+                break;
+        }
+        switch (selector & 0x30) {
+            case 0x00:
+                gs.mPhase = 0;
+                break;
+            case 0x10:
+                gs.mPhase = gs.mPeriod / 4;
+                break;
+            case 0x20:
+                gs.mPhase = gs.mPeriod / 2;
+                break;
+            default:
+                gs.mPhase = gs.mPeriod * 3 / 4;
+                break;
+        }
+        if ((selector & 0x0F) == 0)
+            gs.mThreshold = gs.mPeriod - 1;
+        else
+            gs.mThreshold = ((selector & 0x0F) - 4) * gs.mPeriod / 8;
+    }
+
+    private void intersect() throws IOException {
+        final GraphicsState gs = mState;
+        final int b1 = pop();
+        final int b0 = pop();
+        final int a1 = pop();
+        final int a0 = pop();
+        final int point = pop();
+        final Zone zb = getZone(gs.mZp0);
+        final Zone za = getZone(gs.mZp1);
+        final Zone zone = getZone(gs.mZp2);
+        checkPoint(zb, b0);
+        checkPoint(zb, b1);
+        checkPoint(za, a0);
+        checkPoint(za, a1);
+        checkPoint(zone, point);
+        final double dbx = zb.mCurrentX[b1] - zb.mCurrentX[b0];
+        final double dby = zb.mCurrentY[b1] - zb.mCurrentY[b0];
+        final double dax = za.mCurrentX[a1] - za.mCurrentX[a0];
+        final double day = za.mCurrentY[a1] - za.mCurrentY[a0];
+        final double dx = zb.mCurrentX[b0] - za.mCurrentX[a0];
+        final double dy = zb.mCurrentY[b0] - za.mCurrentY[a0];
+        final double discriminant = dax * dby - day * dbx;
+        final double dot = dax * dbx + day * dby;
+        if (Math.abs(discriminant) * 19 >= Math.abs(dot) && discriminant != 0) {
+            final double value = (dx * dby - dy * dbx) / discriminant;
+            zone.mCurrentX[point] = (int) Math.round(za.mCurrentX[a0] + dax * value);
+            zone.mCurrentY[point] = (int) Math.round(za.mCurrentY[a0] + day * value);
+        } else {
+            // 近似平行，取四个端点的中点
+            zone.mCurrentX[point] = (za.mCurrentX[a0] + za.mCurrentX[a1] +
+                    zb.mCurrentX[b0] + zb.mCurrentX[b1]) / 4;
+            zone.mCurrentY[point] = (za.mCurrentY[a0] + za.mCurrentY[a1] +
+                    zb.mCurrentY[b0] + zb.mCurrentY[b1]) / 4;
+        }
+        zone.mFlags[point] |= Zone.TOUCHED_X | Zone.TOUCHED_Y;
+    }
+
+    /**
+     * 计算 SHP、SHC、SHZ 使用的参考点位移
+     *
+     * @return 位移在投影向量上的投影
+     */
+    private int getShift(int opcode, Zone[] zone, int[] point) throws IOException {
+        final GraphicsState gs = mState;
+        final Zone reference = (opcode & 1) == 0 ? getZone(gs.mZp1) : getZone(gs.mZp0);
+        final int p = (opcode & 1) == 0 ? gs.mRp2 : gs.mRp1;
+        checkPoint(reference, p);
+        zone[0] = reference;
+        point[0] = p;
+        return project(reference.mCurrentX[p] - reference.mOriginalX[p],
+                reference.mCurrentY[p] - reference.mOriginalY[p]);
+    }
+
+    private void shiftPoints(int opcode) throws IOException {
+        final Zone[] reference = new Zone[1];
+        final int[] point = new int[1];
+        final int distance = getShift(opcode, reference, point);
+        final Zone zone = getZone(mState.mZp2);
+        for (int i = 0, loop = getLoopCount(); i < loop; i++) {
+            final int p = pop();
+            checkPoint(zone, p);
+            move(zone, p, distance, true);
+        }
+        mState.mLoop = 1;
+    }
+
+    private void shiftContour(int opcode) throws IOException {
+        final Zone[] reference = new Zone[1];
+        final int[] point = new int[1];
+        final int distance = getShift(opcode, reference, point);
+        final int contour = pop();
+        final Zone zone = getZone(mState.mZp2);
+        if (contour < 0 || contour >= zone.mEndPoints.length)
+            throw new IOException();
+        final int start = contour == 0 ? 0 : zone.mEndPoints[contour - 1] + 1;
+        final int end = zone.mEndPoints[contour];
+        for (int p = start; p <= end; p++) {
+            if (zone != reference[0] || p != point[0])
+                move(zone, p, distance, true);
+        }
+    }
+
+    private void shiftZone(int opcode) throws IOException {
+        final Zone[] reference = new Zone[1];
+        final int[] point = new int[1];
+        final int distance = getShift(opcode, reference, point);
+        final Zone zone = getZone(popZone());
+        // 字形区域不移动幻影点
+        final int count = zone == mTwilight ? zone.mCount : Math.max(zone.mCount - 4, 0);
+        for (int p = 0; p < count; p++) {
+            if (zone != reference[0] || p != point[0])
+                move(zone, p, distance, false);
+        }
+    }
+
+    private void shiftPixels() throws IOException {
+        final GraphicsState gs = mState;
+        final int distance = pop();
+        final Zone zone = getZone(gs.mZp2);
+        final int dx = (int) Math.round(distance * gs.mFreedomX);
+        final int dy = (int) Math.round(distance * gs.mFreedomY);
+        for (int i = 0, loop = getLoopCount(); i < loop; i++) {
+            final int p = pop();
+            checkPoint(zone, p);
+            zone.mCurrentX[p] += dx;
+            zone.mCurrentY[p] += dy;
+            if (gs.mFreedomX != 0)
+                zone.mFlags[p] |= Zone.TOUCHED_X;
+            if (gs.mFreedomY != 0)
+                zone.mFlags[p] |= Zone.TOUCHED_Y;
+        }
+        gs.mLoop = 1;
+    }
+
+    private void interpolatePoints() throws IOException {
+        final GraphicsState gs = mState;
+        final Zone z0 = getZone(gs.mZp0);
+        final Zone z1 = getZone(gs.mZp1);
+        final Zone zone = getZone(gs.mZp2);
+        checkPoint(z0, gs.mRp1);
+        checkPoint(z1, gs.mRp2);
+        final int rp1 = gs.mRp1;
+        final int rp2 = gs.mRp2;
+        final int originalRange = dualProject(z1.mOriginalX[rp2] - z0.mOriginalX[rp1],
+                z1.mOriginalY[rp2] - z0.mOriginalY[rp1]);
+        final int currentRange = project(z1.mCurrentX[rp2] - z0.mCurrentX[rp1],
+                z1.mCurrentY[rp2] - z0.mCurrentY[rp1]);
+        for (int i = 0, loop = getLoopCount(); i < loop; i++) {
+            final int p = pop();
+            checkPoint(zone, p);
+            final int original = dualProject(zone.mOriginalX[p] - z0.mOriginalX[rp1],
+                    zone.mOriginalY[p] - z0.mOriginalY[rp1]);
+            final int current = project(zone.mCurrentX[p] - z0.mCurrentX[rp1],
+                    zone.mCurrentY[p] - z0.mCurrentY[rp1]);
+            final int target = originalRange == 0 ? original :
+                    (int) Math.round((double) original * currentRange / originalRange);
+            move(zone, p, target - current, true);
+        }
+        gs.mLoop = 1;
+    }
+
+    private void alignToReference() throws IOException {
+        final GraphicsState gs = mState;
+        final Zone z0 = getZone(gs.mZp0);
+        final Zone zone = getZone(gs.mZp1);
+        checkPoint(z0, gs.mRp0);
+        for (int i = 0, loop = getLoopCount(); i < loop; i++) {
+            final int p = pop();
+            checkPoint(zone, p);
+            move(zone, p, -project(zone.mCurrentX[p] - z0.mCurrentX[gs.mRp0],
+                    zone.mCurrentY[p] - z0.mCurrentY[gs.mRp0]), true);
+        }
+        gs.mLoop = 1;
+    }
+
+    private void flipPoints() throws IOException {
+        final Zone zone = mGlyph;
+        for (int i = 0, loop = getLoopCount(); i < loop; i++) {
+            final int p = pop();
+            checkPoint(zone, p);
+            zone.mFlags[p] ^= Zone.ON_CURVE;
+        }
+        mState.mLoop = 1;
+    }
+
+    private void deltaPoints(int base) throws IOException {
+        final GraphicsState gs = mState;
+        final int count = Math.min(pop(), mTop / 2);
+        final Zone zone = getZone(gs.mZp0);
+        for (int i = 0; i < count; i++) {
+            final int p = pop();
+            final int argument = pop();
+            final int distance = getDelta(base, argument);
+            if (distance != 0) {
+                checkPoint(zone, p);
+                move(zone, p, distance, true);
+            }
+        }
+    }
+
+    private void deltaControlValues(int base) throws IOException {
+        final int count = Math.min(pop(), mTop / 2);
+        for (int i = 0; i < count; i++) {
+            final int index = pop();
+            final int argument = pop();
+            final int distance = getDelta(base, argument);
+            if (distance != 0)
+                writeCvt(index, readCvt(index) + distance);
+        }
+    }
+
+    private int getDelta(int base, int argument) {
+        final GraphicsState gs = mState;
+        if (base + gs.mDeltaBase + ((argument >> 4) & 0x0F) != mPpem)
+            return 0;
+        int step = (argument & 0x0F) - 8;
+        if (step >= 0)
+            step++;
+        return step * 64 / (1 << gs.mDeltaShift);
+    }
+
+    private void interpolateUntouched(boolean horizontal) {
+        final Zone zone = mGlyph;
+        final byte flag = horizontal ? Zone.TOUCHED_X : Zone.TOUCHED_Y;
+        final int[] original = horizontal ? zone.mOriginalX : zone.mOriginalY;
+        final int[] current = horizontal ? zone.mCurrentX : zone.mCurrentY;
+        int start = 0;
+        for (int end : zone.mEndPoints) {
+            int first = -1;
+            int touchedCount = 0;
+            for (int p = start; p <= end; p++) {
+                if ((zone.mFlags[p] & flag) != 0) {
+                    if (first < 0)
+                        first = p;
+                    touchedCount++;
+                }
+            }
+            if (touchedCount == 1) {
+                final int delta = current[first] - original[first];
+                for (int p = start; p <= end; p++) {
+                    if (p != first)
+                        current[p] = original[p] + delta;
+                }
+            } else if (touchedCount > 1) {
+                int touched = first;
+                do {
+                    int next = touched == end ? start : touched + 1;
+                    while ((zone.mFlags[next] & flag) == 0) {
+                        next = next == end ? start : next + 1;
+                    }
+                    interpolateRange(original, current, touched, next, start, end);
+                    touched = next;
+                } while (touched != first);
+            }
+            start = end + 1;
+        }
+    }
+
+    private static void interpolateRange(int[] original, int[] current, int from, int to,
+                                         int start, int end) {
+        int o1 = original[from];
+        int o2 = original[to];
+        int c1 = current[from];
+        int c2 = current[to];
+        if (o1 > o2) {
+            int t = o1;
+            o1 = o2;
+            o2 = t;
+            t = c1;
+            c1 = c2;
+            c2 = t;
+        }
+        final int d1 = c1 - o1;
+        final int d2 = c2 - o2;
+        int p = from == end ? start : from + 1;
+        while (p != to) {
+            final int o = original[p];
+            if (o <= o1)
+                current[p] = o + d1;
+            else if (o >= o2)
+                current[p] = o + d2;
+            else
+                current[p] = c1 + (int) Math.round((double) (o - o1) * (c2 - c1) / (o2 - o1));
+            p = p == end ? start : p + 1;
+        }
+    }
+
+    private void moveDirectRelative(int opcode) throws IOException {
+        final GraphicsState gs = mState;
+        final int p = pop();
+        final Zone z0 = getZone(gs.mZp0);
+        final Zone z1 = getZone(gs.mZp1);
+        checkPoint(z0, gs.mRp0);
+        checkPoint(z1, p);
+        int original = dualProject(z1.mOriginalX[p] - z0.mOriginalX[gs.mRp0],
+                z1.mOriginalY[p] - z0.mOriginalY[gs.mRp0]);
+        if (Math.abs(original - (original >= 0 ? gs.mSingleWidthValue :
+                -gs.mSingleWidthValue)) < gs.mSingleWidthCutIn)
+            original = original >= 0 ? gs.mSingleWidthValue : -gs.mSingleWidthValue;
+        int distance = (opcode & 0x04) != 0 ? round(original) : original;
+        if ((opcode & 0x08) != 0)
+            distance = applyMinimumDistance(original, distance);
+        final int current = project(z1.mCurrentX[p] - z0.mCurrentX[gs.mRp0],
+                z1.mCurrentY[p] - z0.mCurrentY[gs.mRp0]);
+        move(z1, p, distance - current, true);
+        gs.mRp1 = gs.mRp0;
+        gs.mRp2 = p;
+        if ((opcode & 0x10) != 0)
+            gs.mRp0 = p;
+    }
+
+    private void moveIndirectRelative(int opcode) throws IOException {
+        final GraphicsState gs = mState;
+        final int index = pop();
+        final int p = pop();
+        final Zone z0 = getZone(gs.mZp0);
+        final Zone z1 = getZone(gs.mZp1);
+        checkPoint(z0, gs.mRp0);
+        checkPoint(z1, p);
+        int cvt = readCvt(index);
+        if (Math.abs(cvt - (cvt >= 0 ? gs.mSingleWidthValue : -gs.mSingleWidthValue)) <
+                gs.mSingleWidthCutIn)
+            cvt = cvt >= 0 ? gs.mSingleWidthValue : -gs.mSingleWidthValue;
+        if (z1 == mTwilight) {
+            z1.mOriginalX[p] = z0.mOriginalX[gs.mRp0] + (int) Math.round(cvt * gs.mFreedomX);
+            z1.mOriginalY[p] = z0.mOriginalY[gs.mRp0] + (int) Math.round(cvt * gs.mFreedomY);
+            z1.mCurrentX[p] = z1.mOriginalX[p];
+            z1.mCurrentY[p] = z1.mOriginalY[p];
+        }
+        final int original = dualProject(z1.mOriginalX[p] - z0.mOriginalX[gs.mRp0],
+                z1.mOriginalY[p] - z0.mOriginalY[gs.mRp0]);
+        final int current = project(z1.mCurrentX[p] - z0.mCurrentX[gs.mRp0],
+                z1.mCurrentY[p] - z0.mCurrentY[gs.mRp0]);
+        if (gs.mAutoFlip && (original ^ cvt) < 0)
+            cvt = -cvt;
+        int distance;
+        if ((opcode & 0x04) != 0) {
+            if (gs.mZp0 == gs.mZp1 && Math.abs(cvt - original) > gs.mControlValueCutIn)
+                cvt = original;
+            distance = round(cvt);
+        } else {
+            distance = cvt;
+        }
+        if ((opcode & 0x08) != 0)
+            distance = applyMinimumDistance(original, distance);
+        move(z1, p, distance - current, true);
+        gs.mRp1 = gs.mRp0;
+        gs.mRp2 = p;
+        if ((opcode & 0x10) != 0)
+            gs.mRp0 = p;
+    }
+
+    private int applyMinimumDistance(int original, int distance) {
+        final int minimum = mState.mMinimumDistance;
+        if (original >= 0)
+            return Math.max(distance, minimum);
+        return Math.min(distance, -minimum);
+    }
+
+    /**
+     * 函数定义
+     */
+    static final class Function {
+        final byte[] mCode;
+        final int mStart;
+        final int mEnd;
+
+        Function(byte[] code, int start, int end) {
+            mCode = code;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.tables.ControlValueProgramTable;
+import com.am.font.opentype.tables.ControlValueTable;
+import com.am.font.opentype.tables.FontProgramTable;
+import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalHeaderTable;
+import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.MaximumProfileTable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TrueType 字形微调器
+ * Runs the 'fpgm' program once per font, the 'prep' program once per ppem (the resulting CVT,
+ * storage, graphics state and twilight zone are cached for the most recently used sizes) and
+ * the glyph programs on that state; the CVT and storage area are copied only when a glyph
+ * program writes to them. A failing glyph program falls back to the scaled, unhinted outline;
+ * a failing 'fpgm' or 'prep' disables hinting for the font or size.
+ * 线程安全，每个线程使用独立的解释器。
+ */
+@SuppressWarnings("unused")
+public class TrueTypeHinter {
+
+    private static final GraphicsState DEFAULT_STATE = new GraphicsState();
+    private static final byte[] EMPTY_CODE = new byte[0];
+    private static final int MAX_CACHED_SIZES = 32;
+    private final GlyphTable mGlyphTable;
+    private final HorizontalMetricsTable mHorizontalMetricsTable;
+    private final int mNumberOfHMetrics;
+    private final int mAscender;
+    private final int mDescender;
+    private final int mUnitsPerEm;
+    private final int[] mControlValues;
+    private final byte[] mControlValueProgram;
+    private final MaximumProfileTable mMaximumProfileTable;
+    private final boolean mEnabled;
+    private final Interpreter.Function[] mFunctions;
+    private final Interpreter.Function[] mInstructionDefs;
+    private final int[] mStorage;
+    private final SizeCache mSizes = new SizeCache();
+    private final ThreadLocal<Interpreter> mInterpreters = new ThreadLocal<Interpreter>() {
+        @Override
+        protected Interpreter initialValue() {
+            return createInterpreter();
+        }
+    };
+
+    public TrueTypeHinter(OpenType font) throws IOException {
+        if (font == null)
+            throw new IllegalArgumentException();
+        final GlyphTable glyf = font.getGlyphTable();
+        final HeaderTable head = font.getHeadTable();
+        final MaximumProfileTable maxp = font.getMaximumProfileTable();
+        if (glyf == null || head == null || maxp == null)
+            throw new IOException();
+        final HorizontalHeaderTable hhea = font.getHorizontalHeaderTable();
+        final ControlValueTable cvt = font.getControlValueTable();
+        final FontProgramTable fpgm = font.getFontProgramTable();
+        final ControlValueProgramTable prep = font.getControlValueProgramTable();
+        mGlyphTable = glyf;
+        mMaximumProfileTable = maxp;
+        mHorizontalMetricsTable = font.getHorizontalMetricsTable();
+        mNumberOfHMetrics = hhea == null ? 0 : hhea.getNumberOfHMetrics();
+        mAscender = hhea == null ? 0 : hhea.getAscender();
+        mDescender = hhea == null ? 0 : hhea.getDescender();
+        mUnitsPerEm = head.getUnitsPerEm();
+        mControlValues = cvt == null ? new int[0] : cvt.getValues();
+        mControlValueProgram = prep == null ? EMPTY_CODE : prep.getInstructions();
+        final Interpreter interpreter = createInterpreter();
+        boolean enabled = true;
+        if (fpgm != null) {
+            interpreter.mPpem = 0;
+            try {
+                interpreter.execute(fpgm.getInstructions());
+            } catch (IOException e) {
+                enabled = false;
+            }
+        }
+        mEnabled = enabled;
+        mFunctions = interpreter.mFunctions;
+        mInstructionDefs = interpreter.mInstructionDefs;
+        mStorage = interpreter.mStorage;
+    }
+
+    private Interpreter createInterpreter() {
+        final MaximumProfileTable maxp = mMaximumProfileTable;
+        return new Interpreter(maxp.getMaxStackElements(), maxp.getMaxStorage(),
+                maxp.getMaxFunctionDefs(), maxp.getMaxTwilightPoints(), mUnitsPerEm);
+    }
+
+    /**
+     * 判断是否启用微调
+     *
+     * @return 'fpgm' 执行失败时为 false，此时仅输出缩放后的轮廓
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * 获取每 em 设计单位
+     *
+     * @return unitsPerEm
+     */
+    public int getUnitsPerEm() {
+        return mUnitsPerEm;
+    }
+
+    /**
+     * 微调字形
+     *
+     * @param glyphId 字形ID
+     * @param ppem    每 em 像素数
+     * @return 微调后的字形
+     * @throws IOException 字形ID越界或字形数据错误（指令错误不会抛出，而是返回未微调的轮廓）
+     */
+    public HintedGlyph hint(int glyphId, int ppem) throws IOException {
+        if (ppem <= 0)
+            throw new IllegalArgumentException();
+        final Interpreter interpreter = mInterpreters.get();
+        final SizeState size = getSizeState(interpreter, ppem);
+        if (size.mValid) {
+            size.load(interpreter);
+            try {
+                return createGlyph(glyphId, ppem,
+                        loadGlyph(interpreter, size, glyphId, 0, null, true), true);
+            } catch (IOException e) {
+                // 指令或数据错误，改用未微调的轮廓；数据错误会在下面再次抛出
+            }
+        }
+        interpreter.mPpem = ppem;
+        return createGlyph(glyphId, ppem,
+                loadGlyph(interpreter, size, glyphId, 0, null, false), false);
+    }
+
+    /**
+     * 清除按像素尺寸缓存的 'prep' 执行结果
+     */
+    public void clear() {
+        synchronized (mSizes) {
+            mSizes.clear();
+        }
+    }
+
+    int getCachedSizeCount() {
+        synchronized (mSizes) {
+            return mSizes.size();
+        }
+    }
+
+    private SizeState getSizeState(Interpreter interpreter, int ppem) {
+        synchronized (mSizes) {
+            final SizeState cached = mSizes.get(ppem);
+            if (cached != null)
+                return cached;
+        }
+        final int[] cvt = new int[mControlValues.length];
+        interpreter.mPpem = ppem;
+        for (int i = 0; i < cvt.length; i++) {
+            cvt[i] = interpreter.scale(mControlValues[i]);
+        }
+        interpreter.mCvt = cvt;
+        interpreter.mCvtShared = false;
+        interpreter.mFunctions = Arrays.copyOf(mFunctions, mFunctions.length);
+        System.arraycopy(mInstructionDefs, 0, interpreter.mInstructionDefs, 0,
+                mInstructionDefs.length);
+        interpreter.mStorage = Arrays.copyOf(mStorage, mStorage.length);
+        interpreter.mStorageShared = false;
+        interpreter.mState.set(DEFAULT_STATE);
+        interpreter.mTwilight.clear(interpreter.mTwilight.mCount);
+        interpreter.mGlyph.clear(0);
+        boolean valid = mEnabled;
+        if (valid) {
+            interpreter.mControlValueProgram = true;
+            try {
+                interpreter.execute(mControlValueProgram);
+            } catch (IOException e) {
+                valid = false;
+            } finally {
+                interpreter.mControlValueProgram = false;
+            }
+        }
+        final SizeState size = new SizeState(ppem, valid, interpreter);
+        // 'prep' 在锁外执行，其他线程可能已缓存同一尺寸
+        synchronized (mSizes) {
+            final SizeState previous = mSizes.get(ppem);
+            if (previous != null)
+                return previous;
+            mSizes.put(ppem, size);
+        }
+        return size;
+    }
+
+    private int getAdvanceWidth(int glyphId) {
+        if (mHorizontalMetricsTable == null || mNumberOfHMetrics <= 0)
+            return 0;
+        return mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+    }
+
+    private int getLeftSideBearing(int glyphId) {
+        if (mHorizontalMetricsTable == null || mNumberOfHMetrics <= 0)
+            return 0;
+        return mHorizontalMetricsTable.getLsb(glyphId);
+    }
+
+    /**
+     * 加载字形到独立的区域，末尾四个点为幻影点。
+     * 与 {@link GlyphTable} 一致，'maxp' 的 maxComponentDepth 仅供参考，嵌套深度以固定上限及循环检测限制。
+     */
+    private Zone loadGlyph(Interpreter interpreter, SizeState size, int glyphId, int depth,
+                           int[] path, boolean instruct) throws IOException {
+        final Object description = mGlyphTable.getGlyphDescription(glyphId);
+        if (description instanceof GlyphTable.SimpleGlyphDescription) {
+            final GlyphTable.SimpleGlyphDescription simple =
+                    (GlyphTable.SimpleGlyphDescription) description;
+            final int[] flags = simple.getFlags();
+            final int[] dxs = simple.getXCoordinates();
+            final int[] dys = simple.getYCoordinates();
+            final int count = flags.length;
+            final Zone zone = new Zone(count + 4);
+            zone.mCount = count + 4;
+            zone.mEndPoints = simple.getEndPtsOfContours();
+            int x = 0;
+            int y = 0;
+            int xMin = count == 0 ? 0 : Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                x += dxs[i];
+                y += dys[i];
+                xMin = Math.min(xMin, x);
+                zone.mOriginalX[i] = zone.mCurrentX[i] = interpreter.scale(x);
+                zone.mOriginalY[i] = zone.mCurrentY[i] = interpreter.scale(y);
+                zone.mFlags[i] = (flags[i] & GlyphTable.ON_CURVE_POINT) != 0 ? Zone.ON_CURVE : 0;
+            }
+            setPhantomPoints(interpreter, zone, count, glyphId, xMin);
+            if (instruct)
+                execute(interpreter, size, zone, simple.getInstructions());
+            return zone;
+        }
+        if (!(description instanceof GlyphTable.CompositeGlyphDescription)) {
+            // 空字形
+            final Zone zone = new Zone(4);
+            zone.mCount = 4;
+            setPhantomPoints(interpreter, zone, 0, glyphId, 0);
+            if (instruct)
+                execute(interpreter, size, zone, null);
+            return zone;
+        }
+        if (depth >= GlyphTable.MAX_COMPONENT_DEPTH)
+            throw new IOException();// 嵌套过深
+        if (path == null)
+            path = new int[GlyphTable.MAX_COMPONENT_DEPTH];
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == glyphId)
+                throw new IOException();// 循环引用
+        }
+        path[depth] = glyphId;
+        final GlyphTable.CompositeGlyphDescription composite =
+                (GlyphTable.CompositeGlyphDescription) description;
+        final List<GlyphTable.ComponentRecord> components = composite.getComponents();
+        final Zone zone = new Zone(32);
+        int[] endPoints = new int[4];
+        int contours = 0;
+        int count = 0;
+        Zone metrics = null;
+        for (GlyphTable.ComponentRecord component : components) {
+            final Zone child = loadGlyph(interpreter, size, component.getGlyphIndex(),
+                    depth + 1, path, instruct);
+            final int points = child.mCount - 4;
+            final int flags = component.getFlags();
+            final float a = component.getXScale();
+            final float b = component.getScale01();
+            final float c = component.getScale10();
+            final float d = component.getYScale();
+            if (a != 1 || b != 0 || c != 0 || d != 1)
+                transform(child, points, a, b, c, d);
+            int dx;
+            int dy;
+            if ((flags & GlyphTable.ARGS_ARE_XY_VALUES) != 0) {
+                final float ox = component.getArgument1();
+                final float oy = component.getArgument2();
+                dx = interpreter.scale(ox * component.getOffsetXScale());
+                dy = interpreter.scale(oy * component.getOffsetYScale());
+                if (instruct && (flags & GlyphTable.ROUND_XY_TO_GRID) != 0) {
+                    dx = roundToGrid(dx);
+                    dy = roundToGrid(dy);
+                }
+            } else {
+                final int parent = component.getArgument1();
+                final int point = component.getArgument2();
+                if (parent >= count || point >= points)
+                    throw new IOException();
+                dx = zone.mCurrentX[parent] - child.mCurrentX[point];
+                dy = zone.mCurrentY[parent] - child.mCurrentY[point];
+            }
+            zone.ensureCapacity(count + points + 4);
+            for (int i = 0; i < points; i++) {
+                zone.mOriginalX[count + i] = child.mOriginalX[i] + dx;
+                zone.mOriginalY[count + i] = child.mOriginalY[i] + dy;
+                zone.mCurrentX[count + i] = child.mCurrentX[i] + dx;
+                zone.mCurrentY[count + i] = child.mCurrentY[i] + dy;
+                zone.mFlags[count + i] = (byte) (child.mFlags[i] & Zone.ON_CURVE);
+            }
+            if (contours + child.mEndPoints.length > endPoints.length)
+                endPoints = Arrays.copyOf(endPoints,
+                        Math.max(endPoints.length * 2, contours + child.mEndPoints.length));
+            for (int end : child.mEndPoints) {
+                endPoints[contours++] = count + end;
+            }
+            if ((flags & GlyphTable.USE_MY_METRICS) != 0)
+                metrics = child;
+            count += points;
+        }
+        zone.ensureCapacity(count + 4);
+        zone.mCount = count + 4;
+        zone.mEndPoints = Arrays.copyOf(endPoints, contours);
+        if (metrics != null) {
+            final int from = metrics.mCount - 4;
+            for (int i = 0; i < 4; i++) {
+                zone.mOriginalX[count + i] = metrics.mOriginalX[from + i];
+                zone.mOriginalY[count + i] = metrics.mOriginalY[from + i];
+                zone.mCurrentX[count + i] = metrics.mCurrentX[from + i];
+                zone.mCurrentY[count + i] = metrics.mCurrentY[from + i];
+                zone.mFlags[count + i] = 0;
+            }
+        } else {
+            setPhantomPoints(interpreter, zone, count, glyphId,
+                    mGlyphTable.getGlyphOutline(glyphId).getXMin());
+        }
+        if (instruct)
+            execute(interpreter, size, zone, composite.getInstructions());
+        return zone;
+    }
+
+    private void setPhantomPoints(Interpreter interpreter, Zone zone, int count, int glyphId,
+                                  int xMin) {
+        final int x = interpreter.scale(xMin - getLeftSideBearing(glyphId));
+        final int advance = interpreter.scale(getAdvanceWidth(glyphId));
+        final int ascender = interpreter.scale(mAscender);
+        final int descender = interpreter.scale(mDescender);
+        final int[] xs = {x, x + advance, 0, 0};
+        final int[] ys = {0, 0, ascender, descender};
+        for (int i = 0; i < 4; i++) {
+            zone.mOriginalX[count + i] = zone.mCurrentX[count + i] = xs[i];
+            zone.mOriginalY[count + i] = zone.mCurrentY[count + i] = ys[i];
+            zone.mFlags[count + i] = 0;
+        }
+    }
+
+    private static void transform(Zone zone, int count, float a, float b, float c, float d) {
+        for (int i = 0; i < count; i++) {
+            int x = zone.mOriginalX[i];
+            int y = zone.mOriginalY[i];
+            zone.mOriginalX[i] = Math.round(a * x + c * y);
+            zone.mOriginalY[i] = Math.round(b * x + d * y);
+            x = zone.mCurrentX[i];
+            y = zone.mCurrentY[i];
+            zone.mCurrentX[i] = Math.round(a * x + c * y);
+            zone.mCurrentY[i] = Math.round(b * x + d * y);
+        }
+    }
+
+    private static int roundToGrid(int value) {
+        return value >= 0 ? (value + 32) & -64 : -((-value + 32) & -64);
+    }
+
+    /**
+     * 对区域执行字形程序，幻影点先取整
+     */
+    private static void execute(Interpreter interpreter, SizeState size, Zone zone,
+                                int[] instructions) throws IOException {
+        final int phantom = zone.mCount - 4;
+        zone.mCurrentX[phantom] = roundToGrid(zone.mCurrentX[phantom]);
+        zone.mCurrentX[phantom + 1] = roundToGrid(zone.mCurrentX[phantom + 1]);
+        zone.mCurrentY[phantom + 2] = roundToGrid(zone.mCurrentY[phantom + 2]);
+        zone.mCurrentY[phantom + 3] = roundToGrid(zone.mCurrentY[phantom + 3]);
+        if (instructions == null || instructions.length == 0 ||
+                (size.mState.mInstructControl & 1) != 0)
+            return;
+        final byte[] code = new byte[instructions.length];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = (byte) instructions[i];
+        }
+        final GraphicsState gs = interpreter.mState;
+        gs.set((size.mState.mInstructControl & 2) != 0 ? DEFAULT_STATE : size.mState);
+        gs.reset();
+        interpreter.mGlyph.set(zone);
+        interpreter.execute(code);
+        zone.set(interpreter.mGlyph);
+    }
+
+    private HintedGlyph createGlyph(int glyphId, int ppem, Zone zone, boolean hinted) {
+        final int count = zone.mCount - 4;
+        final int origin = zone.mCurrentX[count];
+        final float scale = mUnitsPerEm / (64f * ppem);
+        final float[] xs = new float[count];
+        final float[] ys = new float[count];
+        final boolean[] onCurves = new boolean[count];
+        float xMin = Float.MAX_VALUE;
+        float yMin = Float.MAX_VALUE;
+        float xMax = -Float.MAX_VALUE;
+        float yMax = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            final float x = (zone.mCurrentX[i] - origin) * scale;
+            final float y = zone.mCurrentY[i] * scale;
+            xs[i] = x;
+            ys[i] = y;
+            onCurves[i] = (zone.mFlags[i] & Zone.ON_CURVE) != 0;
+            xMin = Math.min(xMin, x);
+            yMin = Math.min(yMin, y);
+            xMax = Math.max(xMax, x);
+            yMax = Math.max(yMax, y);
+        }
+        final GlyphTable.GlyphOutline outline = count == 0 ?
+                new GlyphTable.GlyphOutline(0, 0, 0, 0, new int[0], xs, ys, onCurves) :
+                new GlyphTable.GlyphOutline((int) Math.floor(xMin), (int) Math.floor(yMin),
+                        (int) Math.ceil(xMax), (int) Math.ceil(yMax), zone.mEndPoints.clone(),
+                        xs, ys, onCurves);
+        final float advance = (zone.mCurrentX[count + 1] - origin) / 64f;
+        return new HintedGlyph(glyphId, ppem, outline, advance, hinted);
+    }
+
+    /**
+     * 像素尺寸状态，保存 'prep' 执行后的结果
+     */
+    private static final class SizeState {
+        private final int mPpem;
+        private final boolean mValid;
+        private final int[] mCvt;
+        private final int[] mStorage;
+        private final GraphicsState mState;
+        private final Interpreter.Function[] mFunctions;
+        private final Interpreter.Function[] mInstructionDefs;
+        private final Zone mTwilight;
+
+        SizeState(int ppem, boolean valid, Interpreter interpreter) {
+            mPpem = ppem;
+            mValid = valid;
+            // 接管 'prep' 的结果，解释器之后的写入会先复制
+            mCvt = interpreter.mCvt;
+            mStorage = interpreter.mStorage;
+            interpreter.mCvtShared = true;
+            interpreter.mStorageShared = true;
+            mState = interpreter.mState.copy();
+            mFunctions = interpreter.mFunctions.clone();
+            mInstructionDefs = interpreter.mInstructionDefs.clone();
+            mTwilight = interpreter.mTwilight.copy();
+        }
+
+        /**
+         * 将状态载入解释器，CVT 及存储区在字形程序首次写入时复制，修改不会影响缓存
+         */
+        void load(Interpreter interpreter) {
+            interpreter.mCvt = mCvt;
+            interpreter.mCvtShared = true;
+            interpreter.mStorage = mStorage;
+            interpreter.mStorageShared = true;
+            interpreter.mFunctions = mFunctions.clone();
+            System.arraycopy(mInstructionDefs, 0, interpreter.mInstructionDefs, 0,
+                    mInstructionDefs.length);
+            interpreter.mTwilight.set(mTwilight);
+            interpreter.mState.set(mState);
+            interpreter.mPpem = mPpem;
+        }
+    }
+
+    /**
+     * 像素尺寸缓存，按访问顺序淘汰最近最少使用的条目
+     */
+    private static final class SizeCache extends LinkedHashMap<Integer, SizeState> {
+
+        private static final long serialVersionUID = 1L;
+
+        SizeCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, SizeState> eldest) {
+            return size() > MAX_CACHED_SIZES;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+import java.util.Arrays;
+
+/**
+ * 区域
+ * Points of the glyph zone or the twilight zone. Original and current coordinates are F26Dot6.
+ */
+final class Zone {
+
+    static final byte TOUCHED_X = 0x01;
+    static final byte TOUCHED_Y = 0x02;
+    static final byte ON_CURVE = 0x04;
+    int mCount;
+    int[] mOriginalX;
+    int[] mOriginalY;
+    int[] mCurrentX;
+    int[] mCurrentY;
+    byte[] mFlags;
+    int[] mEndPoints = new int[0];
+
+    Zone(int capacity) {
+        mOriginalX = new int[capacity];
+        mOriginalY = new int[capacity];
+        mCurrentX = new int[capacity];
+        mCurrentY = new int[capacity];
+        mFlags = new byte[capacity];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= mOriginalX.length)
+            return;
+        mOriginalX = Arrays.copyOf(mOriginalX, capacity);
+        mOriginalY = Arrays.copyOf(mOriginalY, capacity);
+        mCurrentX = Arrays.copyOf(mCurrentX, capacity);
+        mCurrentY = Arrays.copyOf(mCurrentY, capacity);
+        mFlags = Arrays.copyOf(mFlags, capacity);
+    }
+
+    void set(Zone zone) {
+        ensureCapacity(zone.mCount);
+        mCount = zone.mCount;
+        System.arraycopy(zone.mOriginalX, 0, mOriginalX, 0, mCount);
+        System.arraycopy(zone.mOriginalY, 0, mOriginalY, 0, mCount);
+        System.arraycopy(zone.mCurrentX, 0, mCurrentX, 0, mCount);
+        System.arraycopy(zone.mCurrentY, 0, mCurrentY, 0, mCount);
+        System.arraycopy(zone.mFlags, 0, mFlags, 0, mCount);
+        mEndPoints = zone.mEndPoints;
+    }
+
+    Zone copy() {
+        final Zone zone = new Zone(mCount);
+        zone.set(this);
+        return zone;
+    }
+
+    void clear(int count) {
+        ensureCapacity(count);
+        mCount = count;
+        Arrays.fill(mOriginalX, 0, count, 0);
+        Arrays.fill(mOriginalY, 0, count, 0);
+        Arrays.fill(mCurrentX, 0, count, 0);
+        Arrays.fill(mCurrentY, 0, count, 0);
+        Arrays.fill(mFlags, 0, count, (byte) 0);
+        mEndPoints = new int[0];
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.tables.ColorPaint;
+
+/**
+ * 合成运算
+ * Porter-Duff operators and the separable and non-separable blend modes of the W3C
+ * Compositing and Blending specification, applied to premultiplied ARGB pixels.
+ */
+final class ColorCompositor {
+
+    private ColorCompositor() {
+        //no instance
+    }
+
+    /**
+     * 源像素以 SRC_OVER 合成到目标
+     */
+    static void srcOver(int[] source, int[] target, int size) {
+        for (int i = 0; i < size; i++) {
+            final int s = source[i];
+            final int sa = s >>> 24;
+            if (sa == 0)
+                continue;
+            target[i] = sa == 255 ? s : srcOver(s, target[i]);
+        }
+    }
+
+    static int srcOver(int s, int d) {
+        final int ia = 255 - (s >>> 24);
+        return (s >>> 24) + div255((d >>> 24) * ia) << 24 |
+                ((s >>> 16) & 0xFF) + div255(((d >>> 16) & 0xFF) * ia) << 16 |
+                ((s >>> 8) & 0xFF) + div255(((d >>> 8) & 0xFF) * ia) << 8 |
+                (s & 0xFF) + div255((d & 0xFF) * ia);
+    }
+
+    /**
+     * 以 x * 257 + 128 >> 16 的方式近似除以 255 并四舍五入
+     */
+    static int div255(int value) {
+        value += 128;
+        return (value + (value >>> 8)) >>> 8;
+    }
+
+    /**
+     * 源像素以指定模式合成到背景，结果写入背景
+     */
+    static void composite(int[] source, int[] backdrop, int size, int mode) {
+        switch (mode) {
+            case ColorPaint.COMPOSITE_SRC_OVER:
+                srcOver(source, backdrop, size);
+                return;
+            case ColorPaint.COMPOSITE_DEST:
+                return;
+            case ColorPaint.COMPOSITE_SRC:
+                System.arraycopy(source, 0, backdrop, 0, size);
+                return;
+            default:
+                break;
+        }
+        final float[] s = new float[4];
+        final float[] d = new float[4];
+        final float[] r = new float[4];
+        final float[][] scratch = new float[4][3];
+        for (int i = 0; i < size; i++) {
+            unpack(source[i], s);
+            unpack(backdrop[i], d);
+            composite(s, d, mode, r, scratch);
+            backdrop[i] = pack(r);
+        }
+    }
+
+    private static void unpack(int color, float[] out) {
+        out[0] = (color >>> 24) / 255f;
+        out[1] = ((color >>> 16) & 0xFF) / 255f;
+        out[2] = ((color >>> 8) & 0xFF) / 255f;
+        out[3] = (color & 0xFF) / 255f;
+    }
+
+    private static int pack(float[] color) {
+        final int a = clamp(color[0]);
+        return a << 24 | Math.min(clamp(color[1]), a) << 16 | Math.min(clamp(color[2]), a) << 8 |
+                Math.min(clamp(color[3]), a);
+    }
+
+    private static int clamp(float value) {
+        return Math.max(0, Math.min(255, (int) (value * 255 + 0.5f)));
+    }
+
+    /**
+     * 预乘颜色合成：a, r, g, b
+     */
+    private static void composite(float[] s, float[] d, int mode, float[] r,
+                                  float[][] scratch) {
+        final float sa = s[0];
+        final float da = d[0];
+        final float fs;
+        final float fd;
+        switch (mode) {
+            case ColorPaint.COMPOSITE_CLEAR:
+                fs = 0;
+                fd = 0;
+                break;
+            case ColorPaint.COMPOSITE_DEST_OVER:
+                fs = 1 - da;
+                fd = 1;
+                break;
+            case ColorPaint.COMPOSITE_SRC_IN:
+                fs = da;
+                fd = 0;
+                break;
+            case ColorPaint.COMPOSITE_DEST_IN:
+                fs = 0;
+                fd = sa;
+                break;
+            case ColorPaint.COMPOSITE_SRC_OUT:
+                fs = 1 - da;
+                fd = 0;
+                break;
+            case ColorPaint.COMPOSITE_DEST_OUT:
+                fs = 0;
+                fd = 1 - sa;
+                break;
+            case ColorPaint.COMPOSITE_SRC_ATOP:
+                fs = da;
+                fd = 1 - sa;
+                break;
+            case ColorPaint.COMPOSITE_DEST_ATOP:
+                fs = 1 - da;
+                fd = sa;
+                break;
+            case ColorPaint.COMPOSITE_XOR:
+                fs = 1 - da;
+                fd = 1 - sa;
+                break;
+            case ColorPaint.COMPOSITE_PLUS:
+                for (int i = 0; i < 4; i++) {
+                    r[i] = Math.min(1, s[i] + d[i]);
+                }
+                return;
+            default:
+                blend(s, d, mode, r, scratch);
+                return;
+        }
+        for (int i = 0; i < 4; i++) {
+            r[i] = s[i] * fs + d[i] * fd;
+        }
+    }
+
+    /**
+     * 混合模式：Rc = Sc(1 - Da) + Dc(1 - Sa) + Sa·Da·B(Cs, Cd)
+     */
+    private static void blend(float[] s, float[] d, int mode, float[] r, float[][] scratch) {
+        final float sa = s[0];
+        final float da = d[0];
+        r[0] = sa + da - sa * da;
+        final float[] cs = scratch[0];
+        final float[] cd = scratch[1];
+        final float[] b = scratch[2];
+        final float[] t = scratch[3];
+        for (int i = 0; i < 3; i++) {
+            cs[i] = sa > 0 ? s[i + 1] / sa : 0;
+            cd[i] = da > 0 ? d[i + 1] / da : 0;
+        }
+        switch (mode) {
+            case ColorPaint.COMPOSITE_HSL_HUE:
+                setSat(cs, sat(cd), t);
+                setLum(t, lum(cd), b);
+                break;
+            case ColorPaint.COMPOSITE_HSL_SATURATION:
+                setSat(cd, sat(cs), t);
+                setLum(t, lum(cd), b);
+                break;
+            case ColorPaint.COMPOSITE_HSL_COLOR:
+                setLum(cs, lum(cd), b);
+                break;
+            case ColorPaint.COMPOSITE_HSL_LUMINOSITY:
+                setLum(cd, lum(cs), b);
+                break;
+            default:
+                for (int i = 0; i < 3; i++) {
+                    b[i] = blend(cs[i], cd[i], mode);
+                }
+                break;
+        }
+        for (int i = 0; i < 3; i++) {
+            r[i + 1] = s[i + 1] * (1 - da) + d[i + 1] * (1 - sa) + sa * da * b[i];
+        }
+    }
+
+    private static float blend(float cs, float cd, int mode) {
+        switch (mode) {
+            default:
+            case ColorPaint.COMPOSITE_MULTIPLY:
+                return cs * cd;
+            case ColorPaint.COMPOSITE_SCREEN:
+                return cs + cd - cs * cd;
+            case ColorPaint.COMPOSITE_OVERLAY:
+                return hardLight(cd, cs);
+            case ColorPaint.COMPOSITE_DARKEN:
+                return Math.min(cs, cd);
+            case ColorPaint.COMPOSITE_LIGHTEN:
+                return Math.max(cs, cd);
+            case ColorPaint.COMPOSITE_COLOR_DODGE:
+                if (cd == 0)
+                    return 0;
+                return cs >= 1 ? 1 : Math.min(1, cd / (1 - cs));
+            case ColorPaint.COMPOSITE_COLOR_BURN:
+                if (cd >= 1)
+                    return 1;
+                return cs <= 0 ? 0 : 1 - Math.min(1, (1 - cd) / cs);
+            case ColorPaint.COMPOSITE_HARD_LIGHT:
+                return hardLight(cs, cd);
+            case ColorPaint.COMPOSITE_SOFT_LIGHT: {
+                if (cs <= 0.5f)
+                    return cd - (1 - 2 * cs) * cd * (1 - cd);
+                final float dc = cd <= 0.25f ? ((16 * cd - 12) * cd + 4) * cd :
+                        (float) Math.sqrt(cd);
+                return cd + (2 * cs - 1) * (dc - cd);
+            }
+            case ColorPaint.COMPOSITE_DIFFERENCE:
+                return Math.abs(cs - cd);
+            case ColorPaint.COMPOSITE_EXCLUSION:
+                return cs + cd - 2 * cs * cd;
+        }
+    }
+
+    private static float hardLight(float cs, float cd) {
+        if (cs <= 0.5f)
+            return cd * 2 * cs;
+        final float s = 2 * cs - 1;
+        return cd + s - cd * s;
+    }
+
+    private static float lum(float[] c) {
+        return 0.3f * c[0] + 0.59f * c[1] + 0.11f * c[2];
+    }
+
+    private static float sat(float[] c) {
+        return Math.max(c[0], Math.max(c[1], c[2])) - Math.min(c[0], Math.min(c[1], c[2]));
+    }
+
+    private static void setLum(float[] c, float l, float[] out) {
+        final float d = l - lum(c);
+        for (int i = 0; i < 3; i++) {
+            out[i] = c[i] + d;
+        }
+        // ClipColor
+        final float lum = lum(out);
+        final float n = Math.min(out[0], Math.min(out[1], out[2]));
+        final float x = Math.max(out[0], Math.max(out[1], out[2]));
+        for (int i = 0; i < 3; i++) {
+            if (n < 0 && lum - n != 0)
+                out[i] = lum + (out[i] - lum) * lum / (lum - n);
+            if (x > 1 && x - lum != 0)
+                out[i] = lum + (out[i] - lum) * (1 - lum) / (x - lum);
+        }
+    }
+
+    private static void setSat(float[] c, float s, float[] out) {
+        out[0] = out[1] = out[2] = 0;
+        int max = 0;
+        int min = 0;
+        for (int i = 1; i < 3; i++) {
+            if (c[i] > c[max])
+                max = i;
+            if (c[i] < c[min])
+                min = i;
+        }
+        if (max == min || c[max] <= c[min])
+            return;
+        final int mid = 3 - max - min;
+        out[mid] = (c[mid] - c[min]) * s / (c[max] - c[min]);
+        out[max] = s;
+    }
+}
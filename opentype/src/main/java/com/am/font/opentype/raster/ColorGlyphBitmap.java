@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 彩色字形位图
+ * Premultiplied ARGB bitmap of a color glyph, stored row by row from top to bottom.
+ * The position is given relative to the glyph origin on the baseline, in the same way as
+ * {@link GlyphBitmap}.
+ */
+@SuppressWarnings("unused")
+public class ColorGlyphBitmap {
+
+    static final ColorGlyphBitmap EMPTY = new ColorGlyphBitmap(0, 0, 0, 0, new int[0]);
+    private final int mWidth;
+    private final int mHeight;
+    private final int mLeft;
+    private final int mTop;
+    private final int[] mPixels;
+
+    public ColorGlyphBitmap(int width, int height, int left, int top, int[] pixels) {
+        mWidth = width;
+        mHeight = height;
+        mLeft = left;
+        mTop = top;
+        mPixels = pixels;
+    }
+
+    /**
+     * 获取宽度
+     *
+     * @return 宽度（像素）
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 获取高度
+     *
+     * @return 高度（像素）
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 获取左边距
+     *
+     * @return 字形原点到位图左边缘的距离（像素）
+     */
+    public int getLeft() {
+        return mLeft;
+    }
+
+    /**
+     * 获取上边距
+     *
+     * @return 基线到位图上边缘的距离（像素），向上为正
+     */
+    public int getTop() {
+        return mTop;
+    }
+
+    /**
+     * 获取像素数据
+     *
+     * @return 预乘 ARGB 像素，行跨度等于宽度
+     */
+    public int[] getPixels() {
+        return mPixels;
+    }
+
+    /**
+     * 获取像素
+     *
+     * @param x 横坐标
+     * @param y 纵坐标（自上而下）
+     * @return 预乘 ARGB 像素
+     */
+    public int getPixel(int x, int y) {
+        return mPixels[y * mWidth + x];
+    }
+
+    /**
+     * 判断是否为空位图
+     *
+     * @return 是否为空位图
+     */
+    public boolean isEmpty() {
+        return mWidth <= 0 || mHeight <= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ColorGlyphBitmap that = (ColorGlyphBitmap) o;
+        return mWidth == that.mWidth &&
+                mHeight == that.mHeight &&
+                mLeft == that.mLeft &&
+                mTop == that.mTop &&
+                Arrays.equals(mPixels, that.mPixels);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(mWidth, mHeight, mLeft, mTop);
+        result = 31 * result + Arrays.hashCode(mPixels);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ColorGlyphBitmap{" +
+                "width=" + mWidth +
+                ", height=" + mHeight +
+                ", left=" + mLeft +
+                ", top=" + mTop +
+                '}';
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.tables.ColorPaint;
+import com.am.font.opentype.tables.ColorPaletteTable;
+import com.am.font.opentype.tables.ColorTable;
+import com.am.font.opentype.tables.GlyphOutlineSource;
+import com.am.font.opentype.tables.HeaderTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 彩色字形渲染器
+ * Renders 'COLR' color glyphs (version 0 layers and version 1 paint graphs) into premultiplied
+ * ARGB bitmaps in pure Java. Glyph outlines are rasterized into coverage masks with
+ * {@link GlyphRasterizer}; solid colors and linear, radial and sweep gradients are shaded per
+ * pixel through the inverse of the current transformation, and composite nodes are blended
+ * with the operators of {@link ColorCompositor}.
+ * 中间图层与覆盖率缓冲区取自渲染器内部的缓冲池，渲染过程中不随绘制节点分配；渲染器非线程安全，
+ * 多线程使用时每个线程各持有一个实例。
+ */
+@SuppressWarnings("unused")
+public class ColorGlyphRenderer {
+
+    private static final int GRADIENT_STEPS = 256;
+    private final GlyphRasterizer mRasterizer;
+    private final ColorTable mColorTable;
+    private final ColorPaletteTable mPaletteTable;
+    private final int mUnitsPerEm;
+    private final ArrayList<int[]> mLayerPool = new ArrayList<>();
+    private final ArrayList<float[]> mMaskPool = new ArrayList<>();
+    private final int[] mGradient = new int[GRADIENT_STEPS];
+    private final float[] mBounds = new float[4];
+    private int mWidth;
+    private int mHeight;
+    private int mSize;
+    private int mForeground;
+
+    public ColorGlyphRenderer(GlyphOutlineSource source, HeaderTable headerTable,
+                              ColorTable colorTable, ColorPaletteTable paletteTable) {
+        if (colorTable == null)
+            throw new IllegalArgumentException();
+        mRasterizer = new GlyphRasterizer(source, headerTable);
+        mColorTable = colorTable;
+        mPaletteTable = paletteTable;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+    }
+
+    /**
+     * 判断是否为彩色字形
+     *
+     * @param glyphId 字形ID
+     * @return 是否为彩色字形
+     */
+    public boolean isColorGlyph(int glyphId) {
+        return mColorTable.isColorGlyph(glyphId);
+    }
+
+    /**
+     * 渲染彩色字形
+     *
+     * @param glyphId    字形ID
+     * @param pixelSize  像素大小（ppem）
+     * @param palette    调色板序号
+     * @param foreground 前景色（非预乘 ARGB）
+     * @return 彩色位图，非彩色字形或空字形返回宽高为0的位图
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public ColorGlyphBitmap render(int glyphId, float pixelSize, int palette, int foreground)
+            throws IOException {
+        final ColorPaint paint = mColorTable.getPaint(glyphId, mPaletteTable, palette);
+        if (paint == null)
+            return ColorGlyphBitmap.EMPTY;
+        final float scale = pixelSize / mUnitsPerEm;
+        final float[] bounds = mBounds;
+        final float[] clip = mColorTable.getClipBox(glyphId);
+        if (clip != null) {
+            bounds[0] = clip[0] * scale;
+            bounds[1] = clip[1] * scale;
+            bounds[2] = clip[2] * scale;
+            bounds[3] = clip[3] * scale;
+        } else {
+            bounds[0] = bounds[1] = Float.POSITIVE_INFINITY;
+            bounds[2] = bounds[3] = Float.NEGATIVE_INFINITY;
+            measure(paint, new float[]{scale, 0, 0, scale, 0, 0}, new float[4], 0);
+        }
+        if (!(bounds[0] < bounds[2]) || !(bounds[1] < bounds[3]))
+            return ColorGlyphBitmap.EMPTY;
+        final int left = (int) Math.floor(bounds[0]);
+        final int bottom = (int) Math.floor(bounds[1]);
+        final int right = (int) Math.ceil(bounds[2]);
+        final int top = (int) Math.ceil(bounds[3]);
+        final long size = (long) (right - left) * (top - bottom);
+        if (size > Integer.MAX_VALUE - 2)
+            throw new IllegalArgumentException();
+        if (mWidth * mHeight != size) {
+            // 画布大小改变，缓冲池中的缓冲区按需重新分配
+            mLayerPool.clear();
+            mMaskPool.clear();
+        }
+        mWidth = right - left;
+        mHeight = top - bottom;
+        mSize = (int) size;
+        mForeground = foreground;
+        final int[] pixels = new int[mSize];
+        // 字体单位到画布像素（y 向下）
+        draw(paint, new float[]{scale, 0, 0, -scale, -left, top}, pixels, 0);
+        return new ColorGlyphBitmap(mWidth, mHeight, left, top, pixels);
+    }
+
+    /**
+     * 计算未提供裁剪框时的绘制边界（像素，y 向上）
+     */
+    private void measure(ColorPaint paint, float[] matrix, float[] bounds, int depth)
+            throws IOException {
+        if (paint == null || depth > 64)
+            return;
+        switch (paint.getFormat()) {
+            default:
+                break;
+            case ColorPaint.FORMAT_LAYERS: {
+                final ColorPaint.Layers layers = (ColorPaint.Layers) paint;
+                for (int i = 0; i < layers.getLayerCount(); i++) {
+                    measure(layers.getLayer(i), matrix, bounds, depth + 1);
+                }
+                break;
+            }
+            case ColorPaint.FORMAT_GLYPH:
+                // 字形轮廓即其子绘制的裁剪区域
+                if (mRasterizer.getBounds(((ColorPaint.Glyph) paint).getGlyphId(), matrix,
+                        bounds)) {
+                    mBounds[0] = Math.min(mBounds[0], bounds[0]);
+                    mBounds[1] = Math.min(mBounds[1], bounds[1]);
+                    mBounds[2] = Math.max(mBounds[2], bounds[2]);
+                    mBounds[3] = Math.max(mBounds[3], bounds[3]);
+                }
+                break;
+            case ColorPaint.FORMAT_COLR_GLYPH:
+                measure(((ColorPaint.ColrGlyph) paint).getPaint(), matrix, bounds, depth + 1);
+                break;
+            case ColorPaint.FORMAT_TRANSFORM: {
+                final ColorPaint.Transform transform = (ColorPaint.Transform) paint;
+                measure(transform.getPaint(), concat(matrix, transform), bounds, depth + 1);
+                break;
+            }
+            case ColorPaint.FORMAT_COMPOSITE: {
+                final ColorPaint.Composite composite = (ColorPaint.Composite) paint;
+                measure(composite.getSource(), matrix, bounds, depth + 1);
+                measure(composite.getBackdrop(), matrix, bounds, depth + 1);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 以 SRC_OVER 将绘制画到目标图层
+     */
+    private void draw(ColorPaint paint, float[] matrix, int[] target, int depth)
+            throws IOException {
+        if (paint == null || depth > 64)
+            return;
+        switch (paint.getFormat()) {
+            default:
+                break;
+            case ColorPaint.FORMAT_LAYERS: {
+                final ColorPaint.Layers layers = (ColorPaint.Layers) paint;
+                for (int i = 0; i < layers.getLayerCount(); i++) {
+                    draw(layers.getLayer(i), matrix, target, depth + 1);
+                }
+                break;
+            }
+            case ColorPaint.FORMAT_SOLID:
+            case ColorPaint.FORMAT_LINEAR_GRADIENT:
+            case ColorPaint.FORMAT_RADIAL_GRADIENT:
+            case ColorPaint.FORMAT_SWEEP_GRADIENT:
+                fill(paint, matrix, null, target);
+                break;
+            case ColorPaint.FORMAT_GLYPH: {
+                final ColorPaint.Glyph glyph = (ColorPaint.Glyph) paint;
+                final float[] mask = obtainMask();
+                mRasterizer.rasterize(glyph.getGlyphId(), matrix, mWidth, mHeight, mask);
+                final ColorPaint child = glyph.getPaint();
+                final int format = child == null ? -1 : child.getFormat();
+                if (format == ColorPaint.FORMAT_SOLID ||
+                        format == ColorPaint.FORMAT_LINEAR_GRADIENT ||
+                        format == ColorPaint.FORMAT_RADIAL_GRADIENT ||
+                        format == ColorPaint.FORMAT_SWEEP_GRADIENT) {
+                    fill(child, matrix, mask, target);
+                } else {
+                    final int[] layer = obtainLayer();
+                    draw(child, matrix, layer, depth + 1);
+                    for (int i = 0; i < mSize; i++) {
+                        final int color = layer[i];
+                        final float coverage = mask[i];
+                        if (color == 0 || coverage <= 0)
+                            continue;
+                        target[i] = ColorCompositor.srcOver(
+                                coverage >= 1 ? color : scale(color, coverage), target[i]);
+                    }
+                    recycleLayer(layer);
+                }
+                recycleMask(mask);
+                break;
+            }
+            case ColorPaint.FORMAT_COLR_GLYPH:
+                draw(((ColorPaint.ColrGlyph) paint).getPaint(), matrix, target, depth + 1);
+                break;
+            case ColorPaint.FORMAT_TRANSFORM: {
+                final ColorPaint.Transform transform = (ColorPaint.Transform) paint;
+                draw(transform.getPaint(), concat(matrix, transform), target, depth + 1);
+                break;
+            }
+            case ColorPaint.FORMAT_COMPOSITE: {
+                final ColorPaint.Composite composite = (ColorPaint.Composite) paint;
+                final int[] backdrop = obtainLayer();
+                draw(composite.getBackdrop(), matrix, backdrop, depth + 1);
+                final int[] source = obtainLayer();
+                draw(composite.getSource(), matrix, source, depth + 1);
+                ColorCompositor.composite(source, backdrop, mSize, composite.getMode());
+                ColorCompositor.srcOver(backdrop, target, mSize);
+                recycleLayer(source);
+                recycleLayer(backdrop);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 以纯色或渐变填充（可选覆盖率遮罩）
+     */
+    private void fill(ColorPaint paint, float[] matrix, float[] mask, int[] target) {
+        if (paint.getFormat() == ColorPaint.FORMAT_SOLID) {
+            final ColorPaint.Solid solid = (ColorPaint.Solid) paint;
+            final int color = premultiply(resolve(solid.getColor(), solid.isForeground()));
+            if (color == 0)
+                return;
+            for (int i = 0; i < mSize; i++) {
+                final float coverage = mask == null ? 1 : mask[i];
+                if (coverage <= 0)
+                    continue;
+                target[i] = ColorCompositor.srcOver(
+                        coverage >= 1 ? color : scale(color, coverage), target[i]);
+            }
+            return;
+        }
+        final ColorPaint.Gradient gradient = (ColorPaint.Gradient) paint;
+        final ColorPaint.ColorLine line = gradient.getColorLine();
+        final int count = line.getStopCount();
+        if (count == 0)
+            return;
+        final float first = line.getStopOffset(0);
+        final float last = line.getStopOffset(count - 1);
+        buildGradient(line, first, last);
+        // 画布像素中心到绘制空间（字体单位）的逆变换
+        final float det = matrix[0] * matrix[3] - matrix[1] * matrix[2];
+        if (det == 0 || Float.isNaN(det))
+            return;
+        final float ia = matrix[3] / det;
+        final float ib = -matrix[1] / det;
+        final float ic = -matrix[2] / det;
+        final float id = matrix[0] / det;
+        final float ie = -(ia * matrix[4] + ic * matrix[5]);
+        final float iff = -(ib * matrix[4] + id * matrix[5]);
+        final Shader shader = createShader(gradient);
+        final int extend = line.getExtend();
+        final float span = last - first;
+        int i = 0;
+        for (int y = 0; y < mHeight; y++) {
+            final float py = y + 0.5f;
+            for (int x = 0; x < mWidth; x++, i++) {
+                final float coverage = mask == null ? 1 : mask[i];
+                if (coverage <= 0)
+                    continue;
+                final float px = x + 0.5f;
+                final float t = shader.getT(ia * px + ic * py + ie, ib * px + id * py + iff);
+                if (Float.isNaN(t))
+                    continue;// 两点锥形渐变未覆盖的区域
+                final int color = mGradient[toIndex(t, first, span, extend)];
+                if (color == 0)
+                    continue;
+                target[i] = ColorCompositor.srcOver(
+                        coverage >= 1 ? color : scale(color, coverage), target[i]);
+            }
+        }
+    }
+
+    private static int toIndex(float t, float first, float span, int extend) {
+        float u = span <= 0 ? (t < first ? 0 : 1) : (t - first) / span;
+        switch (extend) {
+            default:
+            case ColorPaint.EXTEND_PAD:
+                break;
+            case ColorPaint.EXTEND_REPEAT:
+                u = u - (float) Math.floor(u);
+                break;
+            case ColorPaint.EXTEND_REFLECT: {
+                final float m = u - 2 * (float) Math.floor(u * 0.5f);
+                u = m > 1 ? 2 - m : m;
+                break;
+            }
+        }
+        final int index = (int) (u * (GRADIENT_STEPS - 1) + 0.5f);
+        return Math.max(0, Math.min(GRADIENT_STEPS - 1, index));
+    }
+
+    /**
+     * 在首尾色标之间以预乘颜色插值，生成查找表
+     */
+    private void buildGradient(ColorPaint.ColorLine line, float first, float last) {
+        final int count = line.getStopCount();
+        final float span = last - first;
+        int stop = 0;
+        for (int i = 0; i < GRADIENT_STEPS; i++) {
+            final float t = span <= 0 ? first : first + span * i / (GRADIENT_STEPS - 1);
+            while (stop < count - 2 && line.getStopOffset(stop + 1) <= t) {
+                stop++;
+            }
+            final int c0 = premultiply(resolve(line.getColor(stop), line.isForeground(stop)));
+            if (count == 1) {
+                mGradient[i] = c0;
+                continue;
+            }
+            final int c1 = premultiply(resolve(line.getColor(stop + 1),
+                    line.isForeground(stop + 1)));
+            final float o0 = line.getStopOffset(stop);
+            final float o1 = line.getStopOffset(stop + 1);
+            final float f = o1 <= o0 ? (t < o1 ? 0 : 1) : Math.max(0, Math.min(1,
+                    (t - o0) / (o1 - o0)));
+            mGradient[i] = lerp(c0, c1, f);
+        }
+    }
+
+    private Shader createShader(ColorPaint.Gradient gradient) {
+        switch (gradient.getFormat()) {
+            default:
+            case ColorPaint.FORMAT_LINEAR_GRADIENT: {
+                final ColorPaint.LinearGradient linear = (ColorPaint.LinearGradient) gradient;
+                // 颜色线垂直于 p0p2：将 p0p1 投影到 p0p2 的法线方向上
+                final float x0 = linear.getX0();
+                final float y0 = linear.getY0();
+                final float nx = -(linear.getY2() - y0);
+                final float ny = linear.getX2() - x0;
+                final float nn = nx * nx + ny * ny;
+                float vx = linear.getX1() - x0;
+                float vy = linear.getY1() - y0;
+                if (nn > 0) {
+                    final float k = (vx * nx + vy * ny) / nn;
+                    vx = nx * k;
+                    vy = ny * k;
+                }
+                final float ll = vx * vx + vy * vy;
+                final float dx = ll == 0 ? 0 : vx / ll;
+                final float dy = ll == 0 ? 0 : vy / ll;
+                return new Shader() {
+                    @Override
+                    public float getT(float x, float y) {
+                        return (x - x0) * dx + (y - y0) * dy;
+                    }
+                };
+            }
+            case ColorPaint.FORMAT_RADIAL_GRADIENT: {
+                final ColorPaint.RadialGradient radial = (ColorPaint.RadialGradient) gradient;
+                final float x0 = radial.getX0();
+                final float y0 = radial.getY0();
+                final float r0 = radial.getRadius0();
+                final float cdx = radial.getX1() - x0;
+                final float cdy = radial.getY1() - y0;
+                final float dr = radial.getRadius1() - r0;
+                final float a = cdx * cdx + cdy * cdy - dr * dr;
+                return new Shader() {
+                    @Override
+                    public float getT(float x, float y) {
+                        // |p - c(t)| = r(t)，取 r(t) >= 0 的最大解
+                        final float pdx = x - x0;
+                        final float pdy = y - y0;
+                        final float b = pdx * cdx + pdy * cdy + r0 * dr;
+                        final float c = pdx * pdx + pdy * pdy - r0 * r0;
+                        if (Math.abs(a) < 1e-6f) {
+                            if (b == 0)
+                                return Float.NaN;
+                            final float t = c / (2 * b);
+                            return r0 + t * dr >= 0 ? t : Float.NaN;
+                        }
+                        final float disc = b * b - a * c;
+                        if (disc < 0)
+                            return Float.NaN;
+                        final float root = (float) Math.sqrt(disc);
+                        final float t1 = (b + root) / a;
+                        final float t2 = (b - root) / a;
+                        final float high = Math.max(t1, t2);
+                        final float low = Math.min(t1, t2);
+                        if (r0 + high * dr >= 0)
+                            return high;
+                        if (r0 + low * dr >= 0)
+                            return low;
+                        return Float.NaN;
+                    }
+                };
+            }
+            case ColorPaint.FORMAT_SWEEP_GRADIENT: {
+                final ColorPaint.SweepGradient sweep = (ColorPaint.SweepGradient) gradient;
+                final float cx = sweep.getCenterX();
+                final float cy = sweep.getCenterY();
+                final float start = sweep.getStartAngle();
+                final float range = sweep.getEndAngle() - start;
+                return new Shader() {
+                    @Override
+                    public float getT(float x, float y) {
+                        // 逆时针角度，范围 [0, 360)
+                        float angle = (float) Math.toDegrees(Math.atan2(y - cy, x - cx));
+                        if (angle < 0)
+                            angle += 360;
+                        return range == 0 ? (angle < start ? -1 : 2) : (angle - start) / range;
+                    }
+                };
+            }
+        }
+    }
+
+    private int resolve(int color, boolean foreground) {
+        if (!foreground)
+            return color;
+        final int alpha = ColorCompositor.div255((mForeground >>> 24) * (color >>> 24));
+        return alpha << 24 | (mForeground & 0x00FFFFFF);
+    }
+
+    private static int premultiply(int color) {
+        final int a = color >>> 24;
+        if (a == 255)
+            return color;
+        return a << 24 | ColorCompositor.div255(((color >>> 16) & 0xFF) * a) << 16 |
+                ColorCompositor.div255(((color >>> 8) & 0xFF) * a) << 8 |
+                ColorCompositor.div255((color & 0xFF) * a);
+    }
+
+    private static int scale(int color, float coverage) {
+        final int c = (int) (coverage * 256);
+        return ((color >>> 24) * c >>> 8) << 24 | (((color >>> 16) & 0xFF) * c >>> 8) << 16 |
+                (((color >>> 8) & 0xFF) * c >>> 8) << 8 | ((color & 0xFF) * c >>> 8);
+    }
+
+    private static int lerp(int c0, int c1, float f) {
+        final int w = (int) (f * 256);
+        final int iw = 256 - w;
+        return ((c0 >>> 24) * iw + (c1 >>> 24) * w >>> 8) << 24 |
+                (((c0 >>> 16) & 0xFF) * iw + ((c1 >>> 16) & 0xFF) * w >>> 8) << 16 |
+                (((c0 >>> 8) & 0xFF) * iw + ((c1 >>> 8) & 0xFF) * w >>> 8) << 8 |
+                ((c0 & 0xFF) * iw + (c1 & 0xFF) * w >>> 8);
+    }
+
+    /**
+     * 当前矩阵右乘绘制变换：画布 = M · T · 子绘制
+     */
+    private static float[] concat(float[] m, ColorPaint.Transform t) {
+        final float a = t.getXX();
+        final float b = t.getYX();
+        final float c = t.getXY();
+        final float d = t.getYY();
+        final float e = t.getDX();
+        final float f = t.getDY();
+        return new float[]{
+                m[0] * a + m[2] * b,
+                m[1] * a + m[3] * b,
+                m[0] * c + m[2] * d,
+                m[1] * c + m[3] * d,
+                m[0] * e + m[2] * f + m[4],
+                m[1] * e + m[3] * f + m[5]};
+    }
+
+    private int[] obtainLayer() {
+        final int[] layer = mLayerPool.isEmpty() ? new int[mSize] :
+                mLayerPool.remove(mLayerPool.size() - 1);
+        Arrays.fill(layer, 0, mSize, 0);
+        return layer;
+    }
+
+    private void recycleLayer(int[] layer) {
+        mLayerPool.add(layer);
+    }
+
+    private float[] obtainMask() {
+        return mMaskPool.isEmpty() ? new float[mSize] : mMaskPool.remove(mMaskPool.size() - 1);
+    }
+
+    private void recycleMask(float[] mask) {
+        mMaskPool.add(mask);
+    }
+
+    /**
+     * 渐变参数计算
+     */
+    private interface Shader {
+        /**
+         * 计算绘制空间中一点在颜色线上的位置
+         *
+         * @param x 横坐标（字体单位）
+         * @param y 纵坐标（字体单位）
+         * @return 颜色线位置，未覆盖时返回 NaN
+         */
+        float getT(float x, float y);
+    }
+}
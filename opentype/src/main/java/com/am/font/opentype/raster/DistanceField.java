@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 距离场
+ * Signed distance field of a glyph, stored row by row from top to bottom with the channels
+ * of a pixel interleaved (one channel for SDF, RGB for MSDF). A value of 128 lies on the
+ * outline; values grow towards the inside, and the full 0-255 span covers range pixels.
+ * Left and top position the field relative to the glyph origin like {@link GlyphBitmap}.
+ */
+@SuppressWarnings("unused")
+public class DistanceField {
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mLeft;
+    private final int mTop;
+    private final int mChannels;
+    private final float mRange;
+    private final byte[] mData;
+
+    public DistanceField(int width, int height, int left, int top, int channels, float range,
+                         byte[] data) {
+        mWidth = width;
+        mHeight = height;
+        mLeft = left;
+        mTop = top;
+        mChannels = channels;
+        mRange = range;
+        mData = data;
+    }
+
+    /**
+     * 获取宽度
+     *
+     * @return 宽度（像素）
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 获取高度
+     *
+     * @return 高度（像素）
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 获取左边距
+     *
+     * @return 字形原点到距离场左边缘的距离（像素）
+     */
+    public int getLeft() {
+        return mLeft;
+    }
+
+    /**
+     * 获取上边距
+     *
+     * @return 基线到距离场上边缘的距离（像素），向上为正
+     */
+    public int getTop() {
+        return mTop;
+    }
+
+    /**
+     * 获取通道数
+     *
+     * @return 1 为 SDF，3 为 MSDF
+     */
+    public int getChannels() {
+        return mChannels;
+    }
+
+    /**
+     * 获取距离范围
+     *
+     * @return 0-255 所覆盖的距离（像素）
+     */
+    public float getRange() {
+        return mRange;
+    }
+
+    /**
+     * 获取数据
+     *
+     * @return 数据，行跨度等于宽度乘以通道数
+     */
+    public byte[] getData() {
+        return mData;
+    }
+
+    /**
+     * 获取像素值
+     *
+     * @param x       横坐标
+     * @param y       纵坐标（自上而下）
+     * @param channel 通道
+     * @return 值（0-255）
+     */
+    public int getValue(int x, int y, int channel) {
+        return mData[(y * mWidth + x) * mChannels + channel] & 0xFF;
+    }
+
+    /**
+     * 判断是否为空距离场
+     *
+     * @return 是否为空距离场
+     */
+    public boolean isEmpty() {
+        return mWidth <= 0 || mHeight <= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DistanceField that = (DistanceField) o;
+        return mWidth == that.mWidth &&
+                mHeight == that.mHeight &&
+                mLeft == that.mLeft &&
+                mTop == that.mTop &&
+                mChannels == that.mChannels &&
+                Float.compare(that.mRange, mRange) == 0 &&
+                Arrays.equals(mData, that.mData);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(mWidth, mHeight, mLeft, mTop, mChannels, mRange);
+        result = 31 * result + Arrays.hashCode(mData);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DistanceField{" +
+                "width=" + mWidth +
+                ", height=" + mHeight +
+                ", left=" + mLeft +
+                ", top=" + mTop +
+                ", channels=" + mChannels +
+                ", range=" + mRange +
+                '}';
+    }
+}
@@ -0,0 +1,917 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.tables.GlyphOutlineSink;
+import com.am.font.opentype.tables.GlyphOutlineSource;
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.IntLruCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 距离场生成器
+ * Computes signed distance fields directly from the outline segments: distances to lines
+ * and quadratic curves are solved exactly (cubic curves are approximated by quadratics), and
+ * the inside is decided with the non-zero winding rule. Multi-channel fields colour the edges
+ * of every contour so that corners switch channels, store per channel pseudo-distances and
+ * fall back to the true distance wherever the channel median disagrees with the winding.
+ * The most recently used fields are cached per glyph ID (a generator serves a single font,
+ * size and range); batches are spread over a {@link ForkJoinPool}.
+ * 线程安全。
+ */
+@SuppressWarnings("unused")
+public class DistanceFieldGenerator {
+
+    public static final int DEFAULT_MAX_CACHED_FIELDS = 256;
+    private static final int BATCH_THRESHOLD = 8;
+    private final GlyphOutlineSource mSource;
+    private final int mUnitsPerEm;
+    private final float mPixelSize;
+    private final float mRange;
+    private final boolean mMultiChannel;
+    private final IntLruCache<DistanceField> mFields;
+
+    /**
+     * 创建生成器，缓存最近使用的 {@link #DEFAULT_MAX_CACHED_FIELDS} 个距离场
+     *
+     * @param source       字形轮廓来源（'glyf' 或 'CFF '）
+     * @param headerTable  头表
+     * @param pixelSize    像素大小（每 em 像素数）
+     * @param range        距离范围（像素），0-255 所覆盖的距离
+     * @param multiChannel 是否生成多通道距离场
+     */
+    public DistanceFieldGenerator(GlyphOutlineSource source, HeaderTable headerTable,
+                                  float pixelSize, float range, boolean multiChannel) {
+        this(source, headerTable, pixelSize, range, multiChannel, DEFAULT_MAX_CACHED_FIELDS);
+    }
+
+    /**
+     * 创建生成器
+     *
+     * @param source          字形轮廓来源（'glyf' 或 'CFF '）
+     * @param headerTable     头表
+     * @param pixelSize       像素大小（每 em 像素数）
+     * @param range           距离范围（像素），0-255 所覆盖的距离
+     * @param multiChannel    是否生成多通道距离场
+     * @param maxCachedFields 最多缓存的距离场数
+     */
+    public DistanceFieldGenerator(GlyphOutlineSource source, HeaderTable headerTable,
+                                  float pixelSize, float range, boolean multiChannel,
+                                  int maxCachedFields) {
+        if (source == null || headerTable == null || headerTable.getUnitsPerEm() <= 0 ||
+                pixelSize <= 0 || range <= 0 || maxCachedFields <= 0)
+            throw new IllegalArgumentException();
+        mFields = new IntLruCache<>(maxCachedFields);
+        mSource = source;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+        mPixelSize = pixelSize;
+        mRange = range;
+        mMultiChannel = multiChannel;
+    }
+
+    /**
+     * 获取像素大小
+     *
+     * @return 像素大小
+     */
+    public float getPixelSize() {
+        return mPixelSize;
+    }
+
+    /**
+     * 获取距离范围
+     *
+     * @return 距离范围（像素）
+     */
+    public float getRange() {
+        return mRange;
+    }
+
+    /**
+     * 判断是否生成多通道距离场
+     *
+     * @return 是否生成多通道距离场
+     */
+    public boolean isMultiChannel() {
+        return mMultiChannel;
+    }
+
+    /**
+     * 获取距离场，优先使用缓存
+     *
+     * @param glyphId 字形ID
+     * @return 距离场
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public DistanceField get(int glyphId) throws IOException {
+        final DistanceField cached = mFields.get(glyphId);
+        if (cached != null)
+            return cached;
+        final DistanceField field = generate(glyphId);
+        final DistanceField previous = mFields.putIfAbsent(glyphId, field);
+        return previous == null ? field : previous;
+    }
+
+    /**
+     * 并行获取距离场，优先使用缓存
+     *
+     * @param glyphIds 字形ID
+     * @param pool     线程池
+     * @return 距离场，与字形ID一一对应
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public DistanceField[] get(int[] glyphIds, ForkJoinPool pool) throws IOException {
+        final DistanceField[] fields = new DistanceField[glyphIds.length];
+        try {
+            pool.invoke(new BatchTask(glyphIds, fields, 0, glyphIds.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return fields;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mFields.clear();
+    }
+
+    /**
+     * 生成距离场（不使用缓存）
+     *
+     * @param glyphId 字形ID
+     * @return 距离场
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public DistanceField generate(int glyphId) throws IOException {
+        final Shape shape = new Shape(mPixelSize / mUnitsPerEm);
+        mSource.decodeOutline(glyphId, shape);
+        shape.finish();
+        final int channels = mMultiChannel ? 3 : 1;
+        if (shape.mCount == 0)
+            return new DistanceField(0, 0, 0, 0, channels, mRange, new byte[0]);
+        final float padding = (float) Math.ceil(mRange * 0.5f) + 1;
+        final int left = (int) Math.floor(shape.mMinX - padding);
+        final int top = (int) Math.floor(shape.mMinY - padding);
+        final int width = (int) Math.ceil(shape.mMaxX + padding) - left;
+        final int height = (int) Math.ceil(shape.mMaxY + padding) - top;
+        final byte[] data = new byte[width * height * channels];
+        final Crossings crossings = new Crossings();
+        for (int y = 0; y < height; y++) {
+            final float py = top + y + 0.5f;
+            shape.getCrossings(py, crossings);
+            int winding = crossings.mTotal;
+            int next = 0;
+            double previous = Double.MAX_VALUE;
+            shape.resetBounds();
+            for (int x = 0; x < width; x++) {
+                final float px = left + x + 0.5f;
+                while (next < crossings.mCount && crossings.mX[next] <= px) {
+                    winding -= crossings.mDirections[next];
+                    next++;
+                }
+                final int index = (y * width + x) * channels;
+                if (mMultiChannel) {
+                    shape.getMultiDistance(px, py, winding != 0, mRange, data, index);
+                } else {
+                    previous = shape.getDistance(px, py, winding != 0, previous);
+                    data[index] = encode(previous, mRange);
+                }
+            }
+        }
+        // 与位图一致：top 为基线以上的像素数
+        return new DistanceField(width, height, left, -top, channels, mRange, data);
+    }
+
+    private static byte encode(double distance, float range) {
+        final double value = (distance / range + 0.5) * 255;
+        return (byte) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    private static int solveQuadratic(double[] roots, double a, double b, double c) {
+        if (Math.abs(a) < 1e-14) {
+            if (Math.abs(b) < 1e-14)
+                return 0;
+            roots[0] = -c / b;
+            return 1;
+        }
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant > 0) {
+            discriminant = Math.sqrt(discriminant);
+            roots[0] = (-b + discriminant) / (2 * a);
+            roots[1] = (-b - discriminant) / (2 * a);
+            return 2;
+        } else if (discriminant == 0) {
+            roots[0] = -b / (2 * a);
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int solveCubic(double[] roots, double a, double b, double c, double d) {
+        if (a != 0) {
+            final double bn = b / a;
+            final double cn = c / a;
+            final double dn = d / a;
+            // 首项系数过小时按二次方程求解更稳定
+            if (Math.abs(bn) < 1e6 && Math.abs(cn) < 1e6 && Math.abs(dn) < 1e6)
+                return solveCubicNormed(roots, bn, cn, dn);
+        }
+        return solveQuadratic(roots, b, c, d);
+    }
+
+    private static int solveCubicNormed(double[] roots, double a, double b, double c) {
+        final double a2 = a * a;
+        double q = (a2 - 3 * b) / 9;
+        final double r = (a * (2 * a2 - 9 * b) + 27 * c) / 54;
+        final double r2 = r * r;
+        final double q3 = q * q * q;
+        if (r2 < q3) {
+            double t = r / Math.sqrt(q3);
+            t = Math.acos(Math.max(-1, Math.min(1, t)));
+            final double offset = a / 3;
+            q = -2 * Math.sqrt(q);
+            roots[0] = q * Math.cos(t / 3) - offset;
+            roots[1] = q * Math.cos((t + 2 * Math.PI) / 3) - offset;
+            roots[2] = q * Math.cos((t - 2 * Math.PI) / 3) - offset;
+            return 3;
+        }
+        double u = -Math.cbrt(Math.abs(r) + Math.sqrt(r2 - q3));
+        if (r < 0)
+            u = -u;
+        final double v = u == 0 ? 0 : q / u;
+        final double offset = a / 3;
+        roots[0] = (u + v) - offset;
+        roots[1] = -0.5 * (u + v) - offset;
+        roots[2] = 0.5 * Math.sqrt(3) * (u - v);
+        return Math.abs(roots[2]) < 1e-14 ? 2 : 1;
+    }
+
+    /**
+     * 扫描线交点
+     */
+    private static final class Crossings {
+        private float[] mX = new float[16];
+        private int[] mDirections = new int[16];
+        private int mCount;
+        private int mTotal;
+
+        void add(float x, int direction) {
+            if (mCount == mX.length) {
+                mX = Arrays.copyOf(mX, mCount * 2);
+                mDirections = Arrays.copyOf(mDirections, mCount * 2);
+            }
+            // 插入排序，交点数量很少
+            int i = mCount;
+            while (i > 0 && mX[i - 1] > x) {
+                mX[i] = mX[i - 1];
+                mDirections[i] = mDirections[i - 1];
+                i--;
+            }
+            mX[i] = x;
+            mDirections[i] = direction;
+            mCount++;
+            mTotal += direction;
+        }
+    }
+
+    /**
+     * 批量任务
+     */
+    private final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] mGlyphIds;
+        private final DistanceField[] mResults;
+        private final int mStart;
+        private final int mEnd;
+
+        BatchTask(int[] glyphIds, DistanceField[] results, int start, int end) {
+            mGlyphIds = glyphIds;
+            mResults = results;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= BATCH_THRESHOLD) {
+                for (int i = mStart; i < mEnd; i++) {
+                    try {
+                        mResults[i] = DistanceFieldGenerator.this.get(mGlyphIds[i]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            final int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new BatchTask(mGlyphIds, mResults, mStart, middle),
+                    new BatchTask(mGlyphIds, mResults, middle, mEnd));
+        }
+    }
+
+    /**
+     * 轮廓线段集合
+     * Segments in pixel space with the y axis pointing down. Each segment stores three points
+     * (a line repeats its end point), its control point bounds and its edge colour.
+     */
+    private static final class Shape implements GlyphOutlineSink {
+        private static final int LINE = 1;
+        private static final int QUAD = 2;
+        private static final int RED = 1;
+        private static final int GREEN = 2;
+        private static final int BLUE = 4;
+        private static final int WHITE = RED | GREEN | BLUE;
+        private static final int YELLOW = RED | GREEN;
+        private static final int MAGENTA = RED | BLUE;
+        private static final int CYAN = GREEN | BLUE;
+        private static final int[] COLORS = {CYAN, MAGENTA, YELLOW};
+        private static final double CORNER_THRESHOLD = Math.sin(3.0);
+        private static final double LIPSCHITZ_BOUND = 1.0001;
+        private final float mScale;
+        private final double[] mRoots = new double[3];
+        private final double[] mBest = new double[3];
+        private final double[] mBestOrthogonality = new double[3];
+        private final double[] mBestDistance = new double[3];
+        private final double[] mBestParam = new double[3];
+        private final int[] mBestEdge = new int[3];
+        private final double[] mChannels = new double[3];
+        private final double[] mPreviousBest = new double[3];
+        private byte[] mKinds = new byte[32];
+        private float[] mPoints = new float[32 * 6];
+        private float[] mBounds = new float[32 * 4];
+        private int[] mColors = new int[32];
+        private int mCount;
+        private int mContourStart;
+        private boolean mOpen;
+        private float mStartX;
+        private float mStartY;
+        private float mX;
+        private float mY;
+        private float mMinX = Float.MAX_VALUE;
+        private float mMinY = Float.MAX_VALUE;
+        private float mMaxX = -Float.MAX_VALUE;
+        private float mMaxY = -Float.MAX_VALUE;
+        private double mOrientation = 1;
+        // 最近一次距离计算的结果
+        private double mDistance;
+        private double mOrthogonality;
+        private double mParam;
+
+        Shape(float scale) {
+            mScale = scale;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            if (mOpen)
+                closePath();
+            mStartX = mX = x * mScale;
+            mStartY = mY = -y * mScale;
+            mContourStart = mCount;
+            mOpen = true;
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            final float x1 = x * mScale;
+            final float y1 = -y * mScale;
+            addLine(mX, mY, x1, y1);
+            mX = x1;
+            mY = y1;
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            final float cx = x1 * mScale;
+            final float cy = -y1 * mScale;
+            final float ex = x2 * mScale;
+            final float ey = -y2 * mScale;
+            addQuad(mX, mY, cx, cy, ex, ey);
+            mX = ex;
+            mY = ey;
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            // 将三次曲线均分为四段，每段以二次曲线近似
+            final float x0 = mX;
+            final float y0 = mY;
+            final float c1x = x1 * mScale;
+            final float c1y = -y1 * mScale;
+            final float c2x = x2 * mScale;
+            final float c2y = -y2 * mScale;
+            final float ex = x3 * mScale;
+            final float ey = -y3 * mScale;
+            float px = x0;
+            float py = y0;
+            for (int i = 1; i <= 4; i++) {
+                final float t0 = (i - 1) / 4f;
+                final float t1 = i / 4f;
+                final float qx = cubic(x0, c1x, c2x, ex, t1);
+                final float qy = cubic(y0, c1y, c2y, ey, t1);
+                // 以两端切线交点的近似值作为控制点
+                final float d0x = cubicDerivative(x0, c1x, c2x, ex, t0);
+                final float d0y = cubicDerivative(y0, c1y, c2y, ey, t0);
+                final float d1x = cubicDerivative(x0, c1x, c2x, ex, t1);
+                final float d1y = cubicDerivative(y0, c1y, c2y, ey, t1);
+                final float h = (t1 - t0) / 2f;
+                final float cx = (px + d0x * h + qx - d1x * h) * 0.5f;
+                final float cy = (py + d0y * h + qy - d1y * h) * 0.5f;
+                addQuad(px, py, cx, cy, qx, qy);
+                px = qx;
+                py = qy;
+            }
+            mX = ex;
+            mY = ey;
+        }
+
+        @Override
+        public void closePath() {
+            if (!mOpen)
+                return;
+            mOpen = false;
+            if (mX != mStartX || mY != mStartY)
+                addLine(mX, mY, mStartX, mStartY);
+            mX = mStartX;
+            mY = mStartY;
+            final int count = mCount - mContourStart;
+            if (count == 0)
+                return;
+            if (count < 3)
+                splitContour();
+            colorContour(mContourStart, mCount);
+        }
+
+        void finish() {
+            if (mOpen)
+                closePath();
+            // 以总面积的符号确定方向，使内部距离为正
+            double area = 0;
+            for (int i = 0; i < mCount; i++) {
+                final int p = i * 6;
+                area += cross(mPoints[p], mPoints[p + 1], mPoints[p + 2], mPoints[p + 3]);
+                area += cross(mPoints[p + 2], mPoints[p + 3], mPoints[p + 4], mPoints[p + 5]);
+            }
+            mOrientation = area < 0 ? 1 : -1;
+        }
+
+        private static float cubic(float p0, float p1, float p2, float p3, float t) {
+            final float u = 1 - t;
+            return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+        }
+
+        private static float cubicDerivative(float p0, float p1, float p2, float p3, float t) {
+            final float u = 1 - t;
+            return 3 * (u * u * (p1 - p0) + 2 * u * t * (p2 - p1) + t * t * (p3 - p2));
+        }
+
+        private static double cross(double ax, double ay, double bx, double by) {
+            return ax * by - ay * bx;
+        }
+
+        private void addLine(float x0, float y0, float x1, float y1) {
+            if (x0 == x1 && y0 == y1)
+                return;
+            add(LINE, x0, y0, x1, y1, x1, y1);
+        }
+
+        private void addQuad(float x0, float y0, float x1, float y1, float x2, float y2) {
+            if (x0 == x2 && y0 == y2 && x0 == x1 && y0 == y1)
+                return;
+            if ((x1 == x0 && y1 == y0) || (x1 == x2 && y1 == y2)) {
+                addLine(x0, y0, x2, y2);
+                return;
+            }
+            add(QUAD, x0, y0, x1, y1, x2, y2);
+        }
+
+        private void add(int kind, float x0, float y0, float x1, float y1, float x2, float y2) {
+            if (mCount == mKinds.length) {
+                final int size = mCount * 2;
+                mKinds = Arrays.copyOf(mKinds, size);
+                mPoints = Arrays.copyOf(mPoints, size * 6);
+                mBounds = Arrays.copyOf(mBounds, size * 4);
+                mColors = Arrays.copyOf(mColors, size);
+            }
+            final int p = mCount * 6;
+            mPoints[p] = x0;
+            mPoints[p + 1] = y0;
+            mPoints[p + 2] = x1;
+            mPoints[p + 3] = y1;
+            mPoints[p + 4] = x2;
+            mPoints[p + 5] = y2;
+            final int b = mCount * 4;
+            mBounds[b] = Math.min(x0, Math.min(x1, x2));
+            mBounds[b + 1] = Math.min(y0, Math.min(y1, y2));
+            mBounds[b + 2] = Math.max(x0, Math.max(x1, x2));
+            mBounds[b + 3] = Math.max(y0, Math.max(y1, y2));
+            mMinX = Math.min(mMinX, mBounds[b]);
+            mMinY = Math.min(mMinY, mBounds[b + 1]);
+            mMaxX = Math.max(mMaxX, mBounds[b + 2]);
+            mMaxY = Math.max(mMaxY, mBounds[b + 3]);
+            mKinds[mCount] = (byte) kind;
+            mColors[mCount] = WHITE;
+            mCount++;
+        }
+
+        /**
+         * 线段少于三条的轮廓无法区分三种颜色，将每条线段三等分
+         */
+        private void splitContour() {
+            final int start = mContourStart;
+            final int count = mCount - start;
+            final byte[] kinds = Arrays.copyOfRange(mKinds, start, mCount);
+            final float[] points = Arrays.copyOfRange(mPoints, start * 6, mCount * 6);
+            mCount = start;
+            for (int i = 0; i < count; i++) {
+                final int p = i * 6;
+                final float x0 = points[p];
+                final float y0 = points[p + 1];
+                final float x1 = points[p + 2];
+                final float y1 = points[p + 3];
+                final float x2 = points[p + 4];
+                final float y2 = points[p + 5];
+                if (kinds[i] == LINE) {
+                    final float ax = x0 + (x2 - x0) / 3;
+                    final float ay = y0 + (y2 - y0) / 3;
+                    final float bx = x0 + (x2 - x0) * 2 / 3;
+                    final float by = y0 + (y2 - y0) * 2 / 3;
+                    add(LINE, x0, y0, ax, ay, ax, ay);
+                    add(LINE, ax, ay, bx, by, bx, by);
+                    add(LINE, bx, by, x2, y2, x2, y2);
+                } else {
+                    float px = x0;
+                    float py = y0;
+                    for (int j = 1; j <= 3; j++) {
+                        final float t0 = (j - 1) / 3f;
+                        final float t1 = j / 3f;
+                        // 子曲线控制点为两端切线的交点
+                        final float qx = quad(x0, x1, x2, t1);
+                        final float qy = quad(y0, y1, y2, t1);
+                        final float cx = (1 - t0) * ((1 - t1) * x0 + t1 * x1) +
+                                t0 * ((1 - t1) * x1 + t1 * x2);
+                        final float cy = (1 - t0) * ((1 - t1) * y0 + t1 * y1) +
+                                t0 * ((1 - t1) * y1 + t1 * y2);
+                        add(QUAD, px, py, cx, cy, qx, qy);
+                        px = qx;
+                        py = qy;
+                    }
+                }
+            }
+        }
+
+        private static float quad(float p0, float p1, float p2, float t) {
+            final float u = 1 - t;
+            return u * u * p0 + 2 * u * t * p1 + t * t * p2;
+        }
+
+        /**
+         * 边着色：在拐角处切换颜色，使每个拐角两侧的边至少有一个通道不同
+         */
+        private void colorContour(int start, int end) {
+            final int count = end - start;
+            final boolean[] corners = new boolean[count];
+            int cornerCount = 0;
+            int firstCorner = -1;
+            for (int i = 0; i < count; i++) {
+                final int previous = start + (i + count - 1) % count;
+                if (isCorner(previous, start + i)) {
+                    corners[i] = true;
+                    cornerCount++;
+                    if (firstCorner < 0)
+                        firstCorner = i;
+                }
+            }
+            if (cornerCount == 0) {
+                for (int i = start; i < end; i++) {
+                    mColors[i] = WHITE;
+                }
+            } else if (cornerCount == 1) {
+                // 水滴形：将轮廓分为三组
+                final int[] colors = {MAGENTA, WHITE, YELLOW};
+                for (int k = 0; k < count; k++) {
+                    mColors[start + (firstCorner + k) % count] = colors[k * 3 / count];
+                }
+            } else {
+                int span = 0;
+                for (int k = 0; k < count; k++) {
+                    final int i = (firstCorner + k) % count;
+                    if (k > 0 && corners[i])
+                        span++;
+                    int color = COLORS[span % 3];
+                    if (cornerCount % 3 == 1 && span == cornerCount - 1)
+                        color = COLORS[1];
+                    mColors[start + i] = color;
+                }
+            }
+        }
+
+        private boolean isCorner(int previous, int next) {
+            final int p = previous * 6;
+            final int n = next * 6;
+            // 前一线段终点处方向
+            double ax = mPoints[p + 4] - mPoints[p + 2];
+            double ay = mPoints[p + 5] - mPoints[p + 3];
+            if (mKinds[previous] == LINE) {
+                ax = mPoints[p + 2] - mPoints[p];
+                ay = mPoints[p + 3] - mPoints[p + 1];
+            }
+            // 后一线段起点处方向
+            final double bx = mPoints[n + 2] - mPoints[n];
+            final double by = mPoints[n + 3] - mPoints[n + 1];
+            final double la = Math.hypot(ax, ay);
+            final double lb = Math.hypot(bx, by);
+            if (la == 0 || lb == 0)
+                return false;
+            final double dot = (ax * bx + ay * by) / (la * lb);
+            final double cross = cross(ax, ay, bx, by) / (la * lb);
+            return dot <= 0 || Math.abs(cross) > CORNER_THRESHOLD;
+        }
+
+        void getCrossings(float y, Crossings crossings) {
+            crossings.mCount = 0;
+            crossings.mTotal = 0;
+            for (int i = 0; i < mCount; i++) {
+                final int b = i * 4;
+                if (y < mBounds[b + 1] || y > mBounds[b + 3])
+                    continue;
+                final int p = i * 6;
+                final float x0 = mPoints[p];
+                final float y0 = mPoints[p + 1];
+                final float x1 = mPoints[p + 2];
+                final float y1 = mPoints[p + 3];
+                if (mKinds[i] == LINE) {
+                    if ((y0 <= y && y < y1) || (y1 <= y && y < y0))
+                        crossings.add(x0 + (y - y0) * (x1 - x0) / (y1 - y0), y1 > y0 ? 1 : -1);
+                    continue;
+                }
+                final float x2 = mPoints[p + 4];
+                final float y2 = mPoints[p + 5];
+                // 在纵向极值处拆分为单调区间，区间按半开规则计数
+                final float a = y0 - 2 * y1 + y2;
+                final float extremum = a == 0 ? -1 : (y0 - y1) / a;
+                if (extremum > 0 && extremum < 1) {
+                    addCrossing(crossings, y, x0, y0, x1, y1, x2, y2, 0, extremum);
+                    addCrossing(crossings, y, x0, y0, x1, y1, x2, y2, extremum, 1);
+                } else {
+                    addCrossing(crossings, y, x0, y0, x1, y1, x2, y2, 0, 1);
+                }
+            }
+        }
+
+        private void addCrossing(Crossings crossings, float y, float x0, float y0, float x1,
+                                 float y1, float x2, float y2, float t0, float t1) {
+            final float ya = t0 == 0 ? y0 : quad(y0, y1, y2, t0);
+            final float yb = t1 == 1 ? y2 : quad(y0, y1, y2, t1);
+            if (!((ya <= y && y < yb) || (yb <= y && y < ya)))
+                return;
+            final int count = solveQuadratic(mRoots, y0 - 2 * y1 + y2, 2 * (y1 - y0), y0 - y);
+            double t = (t0 + t1) * 0.5;
+            double error = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                final double root = mRoots[i];
+                final double e = Math.max(t0 - root, root - t1);
+                if (e < error) {
+                    error = e;
+                    t = Math.max(t0, Math.min(t1, root));
+                }
+            }
+            crossings.add(quad(x0, x1, x2, (float) t), yb > ya ? 1 : -1);
+        }
+
+        /**
+         * 计算点到线段的带符号距离及正交度，结果存入 mDistance、mOrthogonality 与 mParam
+         */
+        private void distance(int i, double px, double py) {
+            final int p = i * 6;
+            final double x0 = mPoints[p];
+            final double y0 = mPoints[p + 1];
+            final double x1 = mPoints[p + 2];
+            final double y1 = mPoints[p + 3];
+            if (mKinds[i] == LINE) {
+                final double aqx = px - x0;
+                final double aqy = py - y0;
+                final double abx = x1 - x0;
+                final double aby = y1 - y0;
+                final double length = Math.hypot(abx, aby);
+                final double param = (aqx * abx + aqy * aby) / (length * length);
+                final double eqx = (param > 0.5 ? x1 : x0) - px;
+                final double eqy = (param > 0.5 ? y1 : y0) - py;
+                final double endpointDistance = Math.hypot(eqx, eqy);
+                mParam = param;
+                if (param > 0 && param < 1) {
+                    final double orthogonal = cross(aqx, aqy, abx, aby) / length;
+                    if (Math.abs(orthogonal) < endpointDistance) {
+                        mDistance = orthogonal;
+                        mOrthogonality = 0;
+                        return;
+                    }
+                }
+                mDistance = sign(cross(aqx, aqy, abx, aby)) * endpointDistance;
+                mOrthogonality = endpointDistance == 0 ? 0 :
+                        Math.abs((abx * eqx + aby * eqy) / (length * endpointDistance));
+                return;
+            }
+            final double x2 = mPoints[p + 4];
+            final double y2 = mPoints[p + 5];
+            final double qax = x0 - px;
+            final double qay = y0 - py;
+            final double abx = x1 - x0;
+            final double aby = y1 - y0;
+            final double brx = x2 - x1 - abx;
+            final double bry = y2 - y1 - aby;
+            final double a = brx * brx + bry * bry;
+            final double b = 3 * (abx * brx + aby * bry);
+            final double c = 2 * (abx * abx + aby * aby) + (qax * brx + qay * bry);
+            final double d = qax * abx + qay * aby;
+            final int count = solveCubic(mRoots, a, b, c, d);
+            final double d0x = abx;
+            final double d0y = aby;
+            final double d1x = x2 - x1;
+            final double d1y = y2 - y1;
+            double minDistance = sign(cross(d0x, d0y, qax, qay)) * Math.hypot(qax, qay);
+            double param = -(qax * d0x + qay * d0y) / (d0x * d0x + d0y * d0y);
+            final double endDistance = Math.hypot(x2 - px, y2 - py);
+            if (endDistance < Math.abs(minDistance)) {
+                minDistance = sign(cross(d1x, d1y, x2 - px, y2 - py)) * endDistance;
+                param = ((px - x1) * d1x + (py - y1) * d1y) / (d1x * d1x + d1y * d1y);
+            }
+            for (int k = 0; k < count; k++) {
+                final double t = mRoots[k];
+                if (t > 0 && t < 1) {
+                    final double qex = qax + 2 * t * abx + t * t * brx;
+                    final double qey = qay + 2 * t * aby + t * t * bry;
+                    final double distance = Math.hypot(qex, qey);
+                    if (distance <= Math.abs(minDistance)) {
+                        minDistance = sign(cross(abx + t * brx, aby + t * bry, qex, qey)) *
+                                distance;
+                        param = t;
+                    }
+                }
+            }
+            mDistance = minDistance;
+            mParam = param;
+            if (param >= 0 && param <= 1) {
+                mOrthogonality = 0;
+            } else if (param < 0.5) {
+                mOrthogonality = orthogonality(d0x, d0y, qax, qay);
+            } else {
+                mOrthogonality = orthogonality(d1x, d1y, x2 - px, y2 - py);
+            }
+        }
+
+        /**
+         * 将端点外侧的距离转换为到端点切线的伪距离
+         */
+        private double toPseudoDistance(int i, double distance, double param, double px,
+                                        double py) {
+            final int p = i * 6;
+            final boolean line = mKinds[i] == LINE;
+            final double dx;
+            final double dy;
+            final double qx;
+            final double qy;
+            if (param < 0) {
+                dx = mPoints[p + 2] - mPoints[p];
+                dy = mPoints[p + 3] - mPoints[p + 1];
+                qx = px - mPoints[p];
+                qy = py - mPoints[p + 1];
+            } else if (param > 1) {
+                dx = line ? mPoints[p + 2] - mPoints[p] : mPoints[p + 4] - mPoints[p + 2];
+                dy = line ? mPoints[p + 3] - mPoints[p + 1] : mPoints[p + 5] - mPoints[p + 3];
+                qx = px - mPoints[p + 4];
+                qy = py - mPoints[p + 5];
+            } else {
+                return distance;
+            }
+            final double length = Math.hypot(dx, dy);
+            final double projection = (qx * dx + qy * dy) / length;
+            if (param < 0 ? projection < 0 : projection > 0) {
+                final double pseudo = cross(qx, qy, dx, dy) / length;
+                if (Math.abs(pseudo) <= Math.abs(distance))
+                    return pseudo;
+            }
+            return distance;
+        }
+
+        void resetBounds() {
+            Arrays.fill(mPreviousBest, Double.MAX_VALUE);
+        }
+
+        private static double orthogonality(double dx, double dy, double qx, double qy) {
+            final double length = Math.hypot(dx, dy) * Math.hypot(qx, qy);
+            return length == 0 ? 0 : Math.abs((dx * qx + dy * qy) / length);
+        }
+
+        private static double sign(double value) {
+            return value < 0 ? -1 : 1;
+        }
+
+        private double getBoundsDistanceSquared(int i, double px, double py) {
+            final int b = i * 4;
+            final double dx = Math.max(Math.max(mBounds[b] - px, px - mBounds[b + 2]), 0);
+            final double dy = Math.max(Math.max(mBounds[b + 1] - py, py - mBounds[b + 3]), 0);
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * 距离场是 1-Lipschitz 的，相邻像素的距离加一即可作为裁剪上界
+         */
+        double getDistance(double px, double py, boolean inside, double previous) {
+            final double limit = previous == Double.MAX_VALUE ? previous :
+                    Math.abs(previous) + LIPSCHITZ_BOUND;
+            double best = limit;
+            for (int i = 0; i < mCount; i++) {
+                if (getBoundsDistanceSquared(i, px, py) >= best * best)
+                    continue;
+                distance(i, px, py);
+                best = Math.min(best, Math.abs(mDistance));
+            }
+            if (best == limit && limit != Double.MAX_VALUE)
+                return getDistance(px, py, inside, Double.MAX_VALUE);
+            return inside ? best : -best;
+        }
+
+        void getMultiDistance(double px, double py, boolean inside, float range, byte[] data,
+                              int index) {
+            final double[] best = mBest;
+            final double[] orthogonality = mBestOrthogonality;
+            final double[] signed = mBestDistance;
+            final double[] params = mBestParam;
+            final int[] edges = mBestEdge;
+            for (int channel = 0; channel < 3; channel++) {
+                best[channel] = mPreviousBest[channel] == Double.MAX_VALUE ? Double.MAX_VALUE :
+                        mPreviousBest[channel] + LIPSCHITZ_BOUND;
+            }
+            Arrays.fill(orthogonality, Double.MAX_VALUE);
+            Arrays.fill(edges, -1);
+            double limit = Math.max(best[0], Math.max(best[1], best[2]));
+            for (int i = 0; i < mCount; i++) {
+                if (getBoundsDistanceSquared(i, px, py) > limit * limit)
+                    continue;
+                distance(i, px, py);
+                final double distance = Math.abs(mDistance);
+                final int color = mColors[i];
+                for (int channel = 0; channel < 3; channel++) {
+                    if ((color & (1 << channel)) == 0)
+                        continue;
+                    final double difference = distance - best[channel];
+                    if (difference < -1e-9 || (difference <= 1e-9 &&
+                            mOrthogonality < orthogonality[channel])) {
+                        best[channel] = distance;
+                        orthogonality[channel] = mOrthogonality;
+                        signed[channel] = mDistance;
+                        params[channel] = mParam;
+                        edges[channel] = i;
+                    }
+                }
+                limit = Math.max(best[0], Math.max(best[1], best[2]));
+            }
+            if (edges[0] < 0 || edges[1] < 0 || edges[2] < 0) {
+                if (limit != Double.MAX_VALUE) {
+                    resetBounds();
+                    getMultiDistance(px, py, inside, range, data, index);
+                    return;
+                }
+            }
+            System.arraycopy(best, 0, mPreviousBest, 0, 3);
+            final double trueDistance =
+                    (inside ? 1 : -1) * Math.min(best[0], Math.min(best[1], best[2]));
+            final double[] channels = mChannels;
+            for (int channel = 0; channel < 3; channel++) {
+                channels[channel] = edges[channel] < 0 ? trueDistance : mOrientation *
+                        toPseudoDistance(edges[channel], signed[channel], params[channel],
+                                px, py);
+            }
+            final double median = Math.max(Math.min(channels[0], channels[1]),
+                    Math.min(Math.max(channels[0], channels[1]), channels[2]));
+            if ((median > 0) != inside) {
+                // 中值与实际内外不一致，退化为单通道距离
+                Arrays.fill(channels, trueDistance);
+            }
+            for (int channel = 0; channel < 3; channel++) {
+                data[index + channel] = encode(channels[channel], range);
+            }
+        }
+    }
+}
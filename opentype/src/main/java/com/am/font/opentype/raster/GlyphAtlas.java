@@ -0,0 +1,711 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * 字形图集
+ * Packs glyph bitmaps into fixed size 8-bit coverage pages with a skyline bottom-left
+ * packer. Glyphs are inserted incrementally; when no page has room and the page limit has
+ * been reached, the least recently used page is cleared and reused. Each page tracks the
+ * bounds of the pixels changed since the last upload, so renderers only need to upload
+ * dirty rectangles. Regions carry the page generation they were packed in; a region whose
+ * page has since been evicted is no longer valid.
+ * 非线程安全，通常由渲染线程独占使用。
+ */
+@SuppressWarnings("unused")
+public class GlyphAtlas {
+
+    public static final int MAX_PAGE_SIZE = 0x7FFF;
+
+    private final int mPageWidth;
+    private final int mPageHeight;
+    private final int mMaxPages;
+    private final int mPadding;
+    private final ArrayList<Page> mPages = new ArrayList<>();
+    private final HashMap<GlyphKey, Region> mRegions = new HashMap<>();
+    private final GlyphKey mProbe = new GlyphKey();// 查找用的键，避免每次查找创建对象
+    private long mClock;
+
+    /**
+     * 创建图集
+     *
+     * @param pageWidth  页面宽度
+     * @param pageHeight 页面高度
+     * @param maxPages   最大页面数
+     * @param padding    字形间距（像素），用于避免纹理采样时相互渗色
+     */
+    public GlyphAtlas(int pageWidth, int pageHeight, int maxPages, int padding) {
+        if (pageWidth <= 0 || pageWidth > MAX_PAGE_SIZE || pageHeight <= 0 ||
+                pageHeight > MAX_PAGE_SIZE || maxPages <= 0 || padding < 0)
+            throw new IllegalArgumentException();
+        mPageWidth = pageWidth;
+        mPageHeight = pageHeight;
+        mMaxPages = maxPages;
+        mPadding = padding;
+    }
+
+    /**
+     * 获取页面宽度
+     *
+     * @return 页面宽度
+     */
+    public int getPageWidth() {
+        return mPageWidth;
+    }
+
+    /**
+     * 获取页面高度
+     *
+     * @return 页面高度
+     */
+    public int getPageHeight() {
+        return mPageHeight;
+    }
+
+    /**
+     * 获取最大页面数
+     *
+     * @return 最大页面数
+     */
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * 获取已创建的页面数
+     *
+     * @return 页面数
+     */
+    public int getPageCount() {
+        return mPages.size();
+    }
+
+    /**
+     * 获取页面
+     *
+     * @param index 页面序号
+     * @return 页面
+     */
+    public Page getPage(int index) {
+        return mPages.get(index);
+    }
+
+    /**
+     * 获取已打包的字形数
+     *
+     * @return 字形数
+     */
+    public int getRegionCount() {
+        return mRegions.size();
+    }
+
+    /**
+     * 获取字形区域，并将其所在页面标记为最近使用
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param phase   亚像素相位
+     * @return 字形区域，未打包时返回空
+     */
+    public Region get(Object font, int glyphId, int ppem, int phase) {
+        final Region region = mRegions.get(mProbe.set(font, glyphId, ppem, phase));
+        mProbe.set(null, 0, 0, 0);// 不持有字体
+        if (region != null && region.mPage >= 0)
+            mPages.get(region.mPage).mLastUsed = ++mClock;
+        return region;
+    }
+
+    /**
+     * 获取字形区域，未打包时从位图缓存获取（或光栅化）并打包
+     *
+     * @param cache      位图缓存
+     * @param rasterizer 光栅化器
+     * @param font       字体（以引用判等）
+     * @param glyphId    字形ID
+     * @param ppem       像素大小
+     * @param offsetX    横向偏移（像素），按位图缓存的亚像素级数量化
+     * @return 字形区域，字形大于页面时返回空
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public Region get(GlyphBitmapCache cache, GlyphRasterizer rasterizer, Object font,
+                      int glyphId, int ppem, float offsetX) throws IOException {
+        final int phase = cache.getSubpixelPhase(offsetX);
+        final Region region = get(font, glyphId, ppem, phase);
+        if (region != null)
+            return region;
+        return put(font, glyphId, ppem, phase,
+                cache.get(rasterizer, font, glyphId, ppem, offsetX));
+    }
+
+    /**
+     * 打包字形位图，已存在时替换
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param phase   亚像素相位
+     * @param bitmap  字形位图
+     * @return 字形区域，字形大于页面时返回空
+     */
+    public Region put(Object font, int glyphId, int ppem, int phase, GlyphBitmap bitmap) {
+        final GlyphKey key = new GlyphKey(font, glyphId, ppem, phase);
+        final Region old = mRegions.remove(key);
+        if (old != null && old.mPage >= 0)
+            mPages.get(old.mPage).mKeys.remove(key);
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        if (bitmap.isEmpty()) {
+            // 空白字形（如空格）不占用页面空间
+            final Region region = new Region(-1, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0);
+            mRegions.put(key, region);
+            return region;
+        }
+        final int packedWidth = width + mPadding;
+        final int packedHeight = height + mPadding;
+        if (packedWidth > mPageWidth || packedHeight > mPageHeight)
+            return null;
+        Page page = null;
+        int position = -1;
+        for (Page item : mPages) {
+            position = item.find(packedWidth, packedHeight);
+            if (position >= 0) {
+                page = item;
+                break;
+            }
+        }
+        if (page == null) {
+            if (mPages.size() < mMaxPages) {
+                page = new Page(mPages.size(), mPageWidth, mPageHeight);
+                mPages.add(page);
+            } else {
+                page = mPages.get(0);
+                for (Page item : mPages) {
+                    if (item.mLastUsed < page.mLastUsed)
+                        page = item;
+                }
+                evict(page);
+            }
+            position = page.find(packedWidth, packedHeight);
+        }
+        final int x = position & 0xFFFF;
+        final int y = position >>> 16;
+        page.add(packedWidth, packedHeight, x, y);
+        page.draw(bitmap, x, y);
+        page.mKeys.add(key);
+        page.mLastUsed = ++mClock;
+        final Region region = new Region(page.mIndex, page.mGeneration, x, y, width, height,
+                bitmap.getLeft(), bitmap.getTop(),
+                (float) x / mPageWidth, (float) y / mPageHeight,
+                (float) (x + width) / mPageWidth, (float) (y + height) / mPageHeight);
+        mRegions.put(key, region);
+        return region;
+    }
+
+    /**
+     * 判断区域是否仍然有效（所在页面未被回收）
+     *
+     * @param region 字形区域
+     * @return 是否有效
+     */
+    public boolean isValid(Region region) {
+        return region.mPage < 0 || (region.mPage < mPages.size() &&
+                mPages.get(region.mPage).mGeneration == region.mGeneration);
+    }
+
+    /**
+     * 清空图集，保留已创建的页面
+     */
+    public void clear() {
+        for (Page page : mPages) {
+            evict(page);
+        }
+        mRegions.clear();
+    }
+
+    private void evict(Page page) {
+        for (GlyphKey key : page.mKeys) {
+            mRegions.remove(key);
+        }
+        page.reset();
+    }
+
+    /**
+     * 页面
+     * 8-bit coverage pixels in row-major order, one byte per pixel.
+     */
+    public static class Page {
+        private final int mIndex;
+        private final int mWidth;
+        private final int mHeight;
+        private final byte[] mPixels;
+        private final ArrayList<GlyphKey> mKeys = new ArrayList<>();
+        // 天际线：每段的起点、宽度及高度
+        private int[] mSkylineX = new int[16];
+        private int[] mSkylineY = new int[16];
+        private int[] mSkylineWidth = new int[16];
+        private int mSkylineCount;
+        private int mGeneration;
+        private long mLastUsed;
+        private int mDirtyLeft;
+        private int mDirtyTop;
+        private int mDirtyRight;
+        private int mDirtyBottom;
+
+        Page(int index, int width, int height) {
+            mIndex = index;
+            mWidth = width;
+            mHeight = height;
+            mPixels = new byte[width * height];
+            mSkylineWidth[0] = width;
+            mSkylineCount = 1;
+            setDirty(0, 0, width, height);
+        }
+
+        /**
+         * 获取页面序号
+         *
+         * @return 页面序号
+         */
+        public int getIndex() {
+            return mIndex;
+        }
+
+        /**
+         * 获取宽度
+         *
+         * @return 宽度
+         */
+        public int getWidth() {
+            return mWidth;
+        }
+
+        /**
+         * 获取高度
+         *
+         * @return 高度
+         */
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * 获取像素（不可修改）
+         *
+         * @return 像素
+         */
+        public byte[] getPixels() {
+            return mPixels;
+        }
+
+        /**
+         * 获取代数，页面每次被回收后递增
+         *
+         * @return 代数
+         */
+        public int getGeneration() {
+            return mGeneration;
+        }
+
+        /**
+         * 判断是否有未上传的修改
+         *
+         * @return 是否有修改
+         */
+        public boolean isDirty() {
+            return mDirtyRight > mDirtyLeft && mDirtyBottom > mDirtyTop;
+        }
+
+        /**
+         * 获取修改区域左边界
+         *
+         * @return 左边界
+         */
+        public int getDirtyLeft() {
+            return mDirtyLeft;
+        }
+
+        /**
+         * 获取修改区域上边界
+         *
+         * @return 上边界
+         */
+        public int getDirtyTop() {
+            return mDirtyTop;
+        }
+
+        /**
+         * 获取修改区域右边界（不含）
+         *
+         * @return 右边界
+         */
+        public int getDirtyRight() {
+            return mDirtyRight;
+        }
+
+        /**
+         * 获取修改区域下边界（不含）
+         *
+         * @return 下边界
+         */
+        public int getDirtyBottom() {
+            return mDirtyBottom;
+        }
+
+        /**
+         * 清除修改区域，通常在上传完成后调用
+         */
+        public void clearDirty() {
+            mDirtyLeft = mDirtyTop = mDirtyRight = mDirtyBottom = 0;
+        }
+
+        /**
+         * 查找可放置位置
+         *
+         * @return 位置（低16位为x，高16位为y），无可用位置时返回-1
+         */
+        int find(int width, int height) {
+            int bestBottom = Integer.MAX_VALUE;
+            int bestWidth = Integer.MAX_VALUE;
+            int best = -1;
+            for (int i = 0; i < mSkylineCount; i++) {
+                final int x = mSkylineX[i];
+                if (x + width > mWidth)
+                    break;
+                int y = 0;
+                int remaining = width;
+                int j = i;
+                while (remaining > 0) {
+                    y = Math.max(y, mSkylineY[j]);
+                    remaining -= mSkylineWidth[j];
+                    j++;
+                }
+                if (y + height > mHeight)
+                    continue;
+                final int bottom = y + height;
+                if (bottom < bestBottom ||
+                        (bottom == bestBottom && mSkylineWidth[i] < bestWidth)) {
+                    bestBottom = bottom;
+                    bestWidth = mSkylineWidth[i];
+                    best = (y << 16) | x;
+                }
+            }
+            return best;
+        }
+
+        void add(int width, int height, int x, int y) {
+            int index = 0;
+            while (mSkylineX[index] != x) {
+                index++;
+            }
+            insert(index, x, y + height, width);
+            // 裁剪被新线段覆盖的线段
+            final int right = x + width;
+            int i = index + 1;
+            while (i < mSkylineCount && mSkylineX[i] < right) {
+                final int end = mSkylineX[i] + mSkylineWidth[i];
+                if (end <= right) {
+                    remove(i);
+                } else {
+                    mSkylineWidth[i] = end - right;
+                    mSkylineX[i] = right;
+                    break;
+                }
+            }
+            // 合并相同高度的相邻线段
+            i = 0;
+            while (i < mSkylineCount - 1) {
+                if (mSkylineY[i] == mSkylineY[i + 1]) {
+                    mSkylineWidth[i] += mSkylineWidth[i + 1];
+                    remove(i + 1);
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        void draw(GlyphBitmap bitmap, int x, int y) {
+            final int width = bitmap.getWidth();
+            final int height = bitmap.getHeight();
+            final byte[] coverage = bitmap.getCoverage();
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(coverage, row * width, mPixels, (y + row) * mWidth + x, width);
+            }
+            setDirty(x, y, x + width, y + height);
+        }
+
+        void reset() {
+            mKeys.clear();
+            Arrays.fill(mPixels, (byte) 0);
+            mSkylineX[0] = 0;
+            mSkylineY[0] = 0;
+            mSkylineWidth[0] = mWidth;
+            mSkylineCount = 1;
+            mGeneration++;
+            mLastUsed = 0;
+            setDirty(0, 0, mWidth, mHeight);
+        }
+
+        private void setDirty(int left, int top, int right, int bottom) {
+            if (isDirty()) {
+                mDirtyLeft = Math.min(mDirtyLeft, left);
+                mDirtyTop = Math.min(mDirtyTop, top);
+                mDirtyRight = Math.max(mDirtyRight, right);
+                mDirtyBottom = Math.max(mDirtyBottom, bottom);
+            } else {
+                mDirtyLeft = left;
+                mDirtyTop = top;
+                mDirtyRight = right;
+                mDirtyBottom = bottom;
+            }
+        }
+
+        private void insert(int index, int x, int y, int width) {
+            if (mSkylineCount == mSkylineX.length) {
+                final int size = mSkylineCount * 2;
+                mSkylineX = Arrays.copyOf(mSkylineX, size);
+                mSkylineY = Arrays.copyOf(mSkylineY, size);
+                mSkylineWidth = Arrays.copyOf(mSkylineWidth, size);
+            }
+            final int count = mSkylineCount - index;
+            System.arraycopy(mSkylineX, index, mSkylineX, index + 1, count);
+            System.arraycopy(mSkylineY, index, mSkylineY, index + 1, count);
+            System.arraycopy(mSkylineWidth, index, mSkylineWidth, index + 1, count);
+            mSkylineX[index] = x;
+            mSkylineY[index] = y;
+            mSkylineWidth[index] = width;
+            mSkylineCount++;
+        }
+
+        private void remove(int index) {
+            final int count = mSkylineCount - index - 1;
+            System.arraycopy(mSkylineX, index + 1, mSkylineX, index, count);
+            System.arraycopy(mSkylineY, index + 1, mSkylineY, index, count);
+            System.arraycopy(mSkylineWidth, index + 1, mSkylineWidth, index, count);
+            mSkylineCount--;
+        }
+
+        @Override
+        public String toString() {
+            return "Page{" +
+                    "index=" + mIndex +
+                    ", width=" + mWidth +
+                    ", height=" + mHeight +
+                    ", generation=" + mGeneration +
+                    ", glyphs=" + mKeys.size() +
+                    '}';
+        }
+    }
+
+    /**
+     * 字形区域
+     * Location of a packed glyph. x, y, width and height are in page pixels; the texture
+     * coordinates are normalized to [0, 1]. Left and top are the glyph bitmap bearings.
+     * Empty glyphs have page -1 and a zero sized region.
+     */
+    public static class Region {
+        private final int mPage;
+        private final int mGeneration;
+        private final int mX;
+        private final int mY;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mLeft;
+        private final int mTop;
+        private final float mU0;
+        private final float mV0;
+        private final float mU1;
+        private final float mV1;
+
+        Region(int page, int generation, int x, int y, int width, int height, int left, int top,
+               float u0, float v0, float u1, float v1) {
+            mPage = page;
+            mGeneration = generation;
+            mX = x;
+            mY = y;
+            mWidth = width;
+            mHeight = height;
+            mLeft = left;
+            mTop = top;
+            mU0 = u0;
+            mV0 = v0;
+            mU1 = u1;
+            mV1 = v1;
+        }
+
+        /**
+         * 获取所在页面序号，空白字形为 -1
+         *
+         * @return 所在页面序号，空白字形为 -1
+         */
+        public int getPage() {
+            return mPage;
+        }
+
+        /**
+         * 获取打包时所在页面的代数
+         *
+         * @return 打包时所在页面的代数
+         */
+        public int getGeneration() {
+            return mGeneration;
+        }
+
+        /**
+         * 获取页面内横坐标
+         *
+         * @return 页面内横坐标
+         */
+        public int getX() {
+            return mX;
+        }
+
+        /**
+         * 获取页面内纵坐标
+         *
+         * @return 页面内纵坐标
+         */
+        public int getY() {
+            return mY;
+        }
+
+        /**
+         * 获取宽度
+         *
+         * @return 宽度
+         */
+        public int getWidth() {
+            return mWidth;
+        }
+
+        /**
+         * 获取高度
+         *
+         * @return 高度
+         */
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * 获取位图左侧相对原点的偏移
+         *
+         * @return 位图左侧相对原点的偏移
+         */
+        public int getLeft() {
+            return mLeft;
+        }
+
+        /**
+         * 获取位图顶部相对基线的偏移（向上为正）
+         *
+         * @return 位图顶部相对基线的偏移（向上为正）
+         */
+        public int getTop() {
+            return mTop;
+        }
+
+        /**
+         * 获取左侧纹理坐标
+         *
+         * @return 左侧纹理坐标
+         */
+        public float getU0() {
+            return mU0;
+        }
+
+        /**
+         * 获取顶部纹理坐标
+         *
+         * @return 顶部纹理坐标
+         */
+        public float getV0() {
+            return mV0;
+        }
+
+        /**
+         * 获取右侧纹理坐标
+         *
+         * @return 右侧纹理坐标
+         */
+        public float getU1() {
+            return mU1;
+        }
+
+        /**
+         * 获取底部纹理坐标
+         *
+         * @return 底部纹理坐标
+         */
+        public float getV1() {
+            return mV1;
+        }
+
+        /**
+         * 判断是否为空白字形
+         *
+         * @return 是否为空白字形
+         */
+        public boolean isEmpty() {
+            return mPage < 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Region region = (Region) o;
+            return mPage == region.mPage &&
+                    mGeneration == region.mGeneration &&
+                    mX == region.mX &&
+                    mY == region.mY &&
+                    mWidth == region.mWidth &&
+                    mHeight == region.mHeight &&
+                    mLeft == region.mLeft &&
+                    mTop == region.mTop;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mPage, mGeneration, mX, mY, mWidth, mHeight, mLeft, mTop);
+        }
+
+        @Override
+        public String toString() {
+            return "Region{" +
+                    "page=" + mPage +
+                    ", generation=" + mGeneration +
+                    ", x=" + mX +
+                    ", y=" + mY +
+                    ", width=" + mWidth +
+                    ", height=" + mHeight +
+                    ", left=" + mLeft +
+                    ", top=" + mTop +
+                    ", u0=" + mU0 +
+                    ", v0=" + mV0 +
+                    ", u1=" + mU1 +
+                    ", v1=" + mV1 +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 字形位图
+ * 8-bit coverage bitmap of a glyph, stored row by row from top to bottom.
+ * The position is given relative to the glyph origin on the baseline:
+ * left is the distance from the origin to the left edge and top is the distance
+ * from the baseline up to the top edge, both in pixels.
+ */
+@SuppressWarnings("unused")
+public class GlyphBitmap {
+
+    static final GlyphBitmap EMPTY = new GlyphBitmap(0, 0, 0, 0, new byte[0]);
+    private final int mWidth;
+    private final int mHeight;
+    private final int mLeft;
+    private final int mTop;
+    private final byte[] mCoverage;
+
+    public GlyphBitmap(int width, int height, int left, int top, byte[] coverage) {
+        mWidth = width;
+        mHeight = height;
+        mLeft = left;
+        mTop = top;
+        mCoverage = coverage;
+    }
+
+    /**
+     * 获取宽度
+     *
+     * @return 宽度（像素）
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 获取高度
+     *
+     * @return 高度（像素）
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 获取左边距
+     *
+     * @return 字形原点到位图左边缘的距离（像素）
+     */
+    public int getLeft() {
+        return mLeft;
+    }
+
+    /**
+     * 获取上边距
+     *
+     * @return 基线到位图上边缘的距离（像素），向上为正
+     */
+    public int getTop() {
+        return mTop;
+    }
+
+    /**
+     * 获取覆盖率数据
+     *
+     * @return 覆盖率数据，每像素一字节（0-255），行跨度等于宽度
+     */
+    public byte[] getCoverage() {
+        return mCoverage;
+    }
+
+    /**
+     * 获取像素覆盖率
+     *
+     * @param x 横坐标
+     * @param y 纵坐标（自上而下）
+     * @return 覆盖率（0-255）
+     */
+    public int getCoverage(int x, int y) {
+        return mCoverage[y * mWidth + x] & 0xFF;
+    }
+
+    /**
+     * 判断是否为空位图
+     *
+     * @return 是否为空位图
+     */
+    public boolean isEmpty() {
+        return mWidth <= 0 || mHeight <= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GlyphBitmap that = (GlyphBitmap) o;
+        return mWidth == that.mWidth &&
+                mHeight == that.mHeight &&
+                mLeft == that.mLeft &&
+                mTop == that.mTop &&
+                Arrays.equals(mCoverage, that.mCoverage);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(mWidth, mHeight, mLeft, mTop);
+        result = 31 * result + Arrays.hashCode(mCoverage);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "GlyphBitmap{" +
+                "width=" + mWidth +
+                ", height=" + mHeight +
+                ", left=" + mLeft +
+                ", top=" + mTop +
+                '}';
+    }
+}
@@ -0,0 +1,779 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 字形位图缓存
+ * Bounded concurrent cache of rasterized glyph bitmaps keyed by font identity, glyph ID,
+ * pixel size and quantized horizontal subpixel offset. Entries are spread over lock striped
+ * LRU maps, each owning an equal share of the byte budget. Coverage data is kept either in
+ * on-heap arrays or in a single direct {@link ByteBuffer} slab carved into power of two size
+ * classes, which keeps large caches out of the garbage collected heap; when the slab runs out
+ * of blocks, least recently used entries of the other stripes are evicted as well.
+ * 字体以引用判等，通常传入 {@link com.am.font.opentype.OpenType} 实例即可。
+ */
+@SuppressWarnings("unused")
+public class GlyphBitmapCache {
+
+    public static final int DEFAULT_SUBPIXEL_STEPS = 4;
+    private static final int STRIPES = 16;
+    private static final int ENTRY_OVERHEAD = 64;// 条目对象及键的估算开销（字节）
+    private final long mMaxSize;
+    private final int mSubpixelSteps;
+    private final Stripe[] mStripes = new Stripe[STRIPES];
+    private final SlabAllocator mAllocator;
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /**
+     * 创建堆内缓存
+     *
+     * @param maxSize 最大占用字节数
+     */
+    public GlyphBitmapCache(long maxSize) {
+        this(maxSize, DEFAULT_SUBPIXEL_STEPS, false);
+    }
+
+    /**
+     * 创建缓存
+     *
+     * @param maxSize       最大占用字节数
+     * @param subpixelSteps 横向亚像素偏移量化级数，1 表示不区分亚像素偏移
+     * @param offHeap       是否将位图数据存放在堆外内存
+     */
+    public GlyphBitmapCache(long maxSize, int subpixelSteps, boolean offHeap) {
+        if (maxSize <= 0 || subpixelSteps <= 0)
+            throw new IllegalArgumentException();
+        mMaxSize = maxSize;
+        mSubpixelSteps = subpixelSteps;
+        if (offHeap) {
+            if (maxSize > Integer.MAX_VALUE || maxSize < SlabAllocator.PAGE_SIZE)
+                throw new IllegalArgumentException();
+            mAllocator = new SlabAllocator((int) maxSize);
+        } else {
+            mAllocator = null;
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            mStripes[i] = new Stripe(maxSize / STRIPES);
+        }
+    }
+
+    /**
+     * 获取最大占用字节数
+     *
+     * @return 最大占用字节数
+     */
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * 获取当前占用字节数（含条目估算开销）
+     *
+     * @return 当前占用字节数
+     */
+    public long getSize() {
+        long size = 0;
+        for (Stripe stripe : mStripes) {
+            size += stripe.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * 获取缓存条目数
+     *
+     * @return 条目数
+     */
+    public int getCount() {
+        int count = 0;
+        for (Stripe stripe : mStripes) {
+            count += stripe.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * 判断位图数据是否存放在堆外内存
+     *
+     * @return 是否存放在堆外内存
+     */
+    public boolean isOffHeap() {
+        return mAllocator != null;
+    }
+
+    /**
+     * 获取亚像素量化级数
+     *
+     * @return 亚像素量化级数
+     */
+    public int getSubpixelSteps() {
+        return mSubpixelSteps;
+    }
+
+    /**
+     * 量化横向亚像素偏移，仅使用偏移的小数部分
+     *
+     * @param offsetX 横向偏移（像素）
+     * @return 亚像素相位，范围 [0, subpixelSteps)
+     */
+    public int getSubpixelPhase(float offsetX) {
+        final float fraction = offsetX - (float) Math.floor(offsetX);
+        return Math.min((int) (fraction * mSubpixelSteps), mSubpixelSteps - 1);
+    }
+
+    /**
+     * 获取亚像素相位对应的光栅化偏移
+     *
+     * @param phase 亚像素相位
+     * @return 横向偏移（像素）
+     */
+    public float getSubpixelOffset(int phase) {
+        return (float) phase / mSubpixelSteps;
+    }
+
+    /**
+     * 获取缓存的位图
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param offsetX 横向偏移（像素）
+     * @return 位图，未缓存时返回空；堆外缓存返回的是数据副本，
+     * 频繁读取时应使用 {@link #get(Object, int, int, float, BitmapBuffer)}
+     */
+    public GlyphBitmap get(Object font, int glyphId, int ppem, float offsetX) {
+        final int phase = getSubpixelPhase(offsetX);
+        final int hash = hash(font, glyphId, ppem, phase);
+        final GlyphBitmap bitmap = getStripe(hash).get(font, glyphId, ppem, phase, hash);
+        if (bitmap == null)
+            mMissCount.incrementAndGet();
+        else
+            mHitCount.incrementAndGet();
+        return bitmap;
+    }
+
+    /**
+     * 将缓存的位图读入调用方持有的缓冲区，查找与命中均不创建对象（缓冲区容量不足时除外）
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param offsetX 横向偏移（像素）
+     * @param out     输出缓冲区，未命中时不修改
+     * @return 是否命中
+     */
+    public boolean get(Object font, int glyphId, int ppem, float offsetX, BitmapBuffer out) {
+        final int phase = getSubpixelPhase(offsetX);
+        final int hash = hash(font, glyphId, ppem, phase);
+        final boolean hit = getStripe(hash).read(font, glyphId, ppem, phase, hash, out);
+        if (hit)
+            mHitCount.incrementAndGet();
+        else
+            mMissCount.incrementAndGet();
+        return hit;
+    }
+
+    /**
+     * 获取缓存的位图，未缓存时光栅化并放入缓存
+     *
+     * @param rasterizer 光栅化器（调用线程独占）
+     * @param font       字体（以引用判等）
+     * @param glyphId    字形ID
+     * @param ppem       像素大小
+     * @param offsetX    横向偏移（像素）
+     * @return 位图
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphBitmap get(GlyphRasterizer rasterizer, Object font, int glyphId, int ppem,
+                           float offsetX) throws IOException {
+        final int phase = getSubpixelPhase(offsetX);
+        final int hash = hash(font, glyphId, ppem, phase);
+        final GlyphBitmap cached = getStripe(hash).get(font, glyphId, ppem, phase, hash);
+        if (cached != null) {
+            mHitCount.incrementAndGet();
+            return cached;
+        }
+        mMissCount.incrementAndGet();
+        final GlyphBitmap bitmap =
+                rasterizer.rasterize(glyphId, ppem, getSubpixelOffset(phase), 0);
+        put(font, glyphId, ppem, phase, hash, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 放入位图
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param offsetX 横向偏移（像素）
+     * @param bitmap  位图
+     */
+    public void put(Object font, int glyphId, int ppem, float offsetX, GlyphBitmap bitmap) {
+        final int phase = getSubpixelPhase(offsetX);
+        put(font, glyphId, ppem, phase, hash(font, glyphId, ppem, phase), bitmap);
+    }
+
+    /**
+     * 移除字体的全部位图
+     *
+     * @param font 字体
+     */
+    public void remove(Object font) {
+        for (Stripe stripe : mStripes) {
+            stripe.remove(font);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Stripe stripe : mStripes) {
+            stripe.clear();
+        }
+    }
+
+    private static int hash(Object font, int glyphId, int ppem, int phase) {
+        int result = System.identityHashCode(font);
+        result = 31 * result + glyphId;
+        result = 31 * result + ppem;
+        result = 31 * result + phase;
+        return result ^ (result >>> 16);
+    }
+
+    private Stripe getStripe(int hash) {
+        return mStripes[hash & (STRIPES - 1)];
+    }
+
+    private void put(Object font, int glyphId, int ppem, int phase, int hash,
+                     GlyphBitmap bitmap) {
+        final Stripe stripe = getStripe(hash);
+        final byte[] coverage = bitmap.getCoverage();
+        final boolean offHeap = mAllocator != null && !bitmap.isEmpty() &&
+                coverage.length <= SlabAllocator.PAGE_SIZE;
+        final long cost;
+        if (offHeap)
+            cost = SlabAllocator.getBlockSize(coverage.length) + ENTRY_OVERHEAD;
+        else
+            cost = coverage.length + ENTRY_OVERHEAD;
+        if (cost > stripe.mMaxSize)
+            return;
+        int block = -1;
+        if (offHeap) {
+            block = allocate(coverage.length, hash & (STRIPES - 1));
+            if (block < 0)
+                return;
+            mAllocator.write(block, coverage);
+        }
+        stripe.put(new Entry(font, glyphId, ppem, phase, hash, bitmap, block, cost));
+    }
+
+    /**
+     * 分配堆外数据块。整个缓存共用一块内存，某一分段的条目不足以腾出所需大小类的空间时，
+     * 依次淘汰其他分段的条目。分配时不持有任何分段的锁，因此不会出现分段间的死锁。
+     */
+    private int allocate(int length, int stripe) {
+        int block = mAllocator.allocate(length);
+        int victim = stripe;
+        int exhausted = 0;
+        while (block < 0 && exhausted < STRIPES) {
+            if (mStripes[victim].evictEldest()) {
+                block = mAllocator.allocate(length);
+            } else {
+                exhausted++;
+                victim = (victim + 1) & (STRIPES - 1);
+            }
+        }
+        return block;
+    }
+
+    /**
+     * 位图缓冲区
+     * Reusable destination for {@link #get(Object, int, int, float, BitmapBuffer)}. The coverage
+     * array grows as needed and is reused between lookups, its row stride equals the width.
+     */
+    public static final class BitmapBuffer {
+        private byte[] mCoverage = new byte[0];
+        private int mWidth;
+        private int mHeight;
+        private int mLeft;
+        private int mTop;
+
+        /**
+         * 获取宽度
+         *
+         * @return 宽度（像素）
+         */
+        public int getWidth() {
+            return mWidth;
+        }
+
+        /**
+         * 获取高度
+         *
+         * @return 高度（像素）
+         */
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * 获取左边距
+         *
+         * @return 字形原点到位图左边缘的距离（像素）
+         */
+        public int getLeft() {
+            return mLeft;
+        }
+
+        /**
+         * 获取上边距
+         *
+         * @return 基线到位图上边缘的距离（像素），向上为正
+         */
+        public int getTop() {
+            return mTop;
+        }
+
+        /**
+         * 获取覆盖率数据，仅前 width * height 字节有效
+         *
+         * @return 覆盖率数据
+         */
+        public byte[] getCoverage() {
+            return mCoverage;
+        }
+
+        /**
+         * 获取像素覆盖率
+         *
+         * @param x 横坐标
+         * @param y 纵坐标（自上而下）
+         * @return 覆盖率（0-255）
+         */
+        public int getCoverage(int x, int y) {
+            return mCoverage[y * mWidth + x] & 0xFF;
+        }
+
+        /**
+         * 判断是否为空位图
+         *
+         * @return 是否为空位图
+         */
+        public boolean isEmpty() {
+            return mWidth <= 0 || mHeight <= 0;
+        }
+
+        /**
+         * 转换为独立的位图
+         *
+         * @return 位图
+         */
+        public GlyphBitmap toBitmap() {
+            return new GlyphBitmap(mWidth, mHeight, mLeft, mTop,
+                    Arrays.copyOf(mCoverage, mWidth * mHeight));
+        }
+
+        byte[] set(int width, int height, int left, int top) {
+            final int length = width * height;
+            if (mCoverage.length < length)
+                mCoverage = new byte[length];
+            mWidth = width;
+            mHeight = height;
+            mLeft = left;
+            mTop = top;
+            return mCoverage;
+        }
+    }
+
+    /**
+     * 缓存条目，同时是分段哈希表的链表节点及 LRU 双向链表节点
+     */
+    private static final class Entry {
+        private final Object mFont;
+        private final int mGlyphId;
+        private final int mPpem;
+        private final int mPhase;
+        private final int mHash;
+        private final GlyphBitmap mBitmap;// 堆内数据
+        private final int mWidth;
+        private final int mHeight;
+        private final int mLeft;
+        private final int mTop;
+        private final int mBlock;// 堆外数据块偏移，-1 表示堆内
+        private final long mCost;
+        private Entry mNext;// 同一哈希桶中的下一个条目
+        private Entry mOlder;
+        private Entry mNewer;
+
+        Entry() {
+            this(null, 0, 0, 0, 0, null, -1, 0);
+        }
+
+        Entry(Object font, int glyphId, int ppem, int phase, int hash, GlyphBitmap bitmap,
+              int block, long cost) {
+            mFont = font;
+            mGlyphId = glyphId;
+            mPpem = ppem;
+            mPhase = phase;
+            mHash = hash;
+            mBitmap = block < 0 ? bitmap : null;
+            mWidth = bitmap == null ? 0 : bitmap.getWidth();
+            mHeight = bitmap == null ? 0 : bitmap.getHeight();
+            mLeft = bitmap == null ? 0 : bitmap.getLeft();
+            mTop = bitmap == null ? 0 : bitmap.getTop();
+            mBlock = block;
+            mCost = cost;
+        }
+
+        boolean matches(Object font, int glyphId, int ppem, int phase, int hash) {
+            return mHash == hash && mFont == font && mGlyphId == glyphId && mPpem == ppem &&
+                    mPhase == phase;
+        }
+    }
+
+    /**
+     * 分段 LRU
+     * Open hash table chained through the entries themselves, with the entries also linked
+     * into a circular access-order list, so lookups compare primitive key fields directly and
+     * neither lookups nor hits allocate.
+     */
+    private final class Stripe {
+        private final long mMaxSize;
+        private final Entry mHead = new Entry();// LRU 链表哨兵，mNewer 为最久未使用的条目
+        private Entry[] mTable = new Entry[16];
+        private int mCount;
+        private long mSize;
+
+        Stripe(long maxSize) {
+            mMaxSize = maxSize;
+            mHead.mOlder = mHead;
+            mHead.mNewer = mHead;
+        }
+
+        synchronized long getSize() {
+            return mSize;
+        }
+
+        synchronized int getCount() {
+            return mCount;
+        }
+
+        synchronized GlyphBitmap get(Object font, int glyphId, int ppem, int phase, int hash) {
+            final Entry entry = find(font, glyphId, ppem, phase, hash);
+            if (entry == null)
+                return null;
+            if (entry.mBitmap != null)
+                return entry.mBitmap;
+            final byte[] coverage = new byte[entry.mWidth * entry.mHeight];
+            mAllocator.read(entry.mBlock, coverage, coverage.length);
+            return new GlyphBitmap(entry.mWidth, entry.mHeight, entry.mLeft, entry.mTop,
+                    coverage);
+        }
+
+        synchronized boolean read(Object font, int glyphId, int ppem, int phase, int hash,
+                                  BitmapBuffer out) {
+            final Entry entry = find(font, glyphId, ppem, phase, hash);
+            if (entry == null)
+                return false;
+            final int length = entry.mWidth * entry.mHeight;
+            final byte[] coverage = out.set(entry.mWidth, entry.mHeight, entry.mLeft,
+                    entry.mTop);
+            if (entry.mBitmap != null)
+                System.arraycopy(entry.mBitmap.getCoverage(), 0, coverage, 0, length);
+            else
+                mAllocator.read(entry.mBlock, coverage, length);
+            return true;
+        }
+
+        synchronized void put(Entry entry) {
+            final Entry old = find(entry.mFont, entry.mGlyphId, entry.mPpem, entry.mPhase,
+                    entry.mHash);
+            if (old != null)
+                removeEntry(old);
+            while (mSize + entry.mCost > mMaxSize && mCount > 0) {
+                removeEntry(mHead.mNewer);
+            }
+            if (mCount >= mTable.length - (mTable.length >> 2))
+                resize();
+            final int index = entry.mHash & (mTable.length - 1);
+            entry.mNext = mTable[index];
+            mTable[index] = entry;
+            linkNewest(entry);
+            mCount++;
+            mSize += entry.mCost;
+        }
+
+        synchronized boolean evictEldest() {
+            if (mCount == 0)
+                return false;
+            removeEntry(mHead.mNewer);
+            return true;
+        }
+
+        synchronized void remove(Object font) {
+            Entry entry = mHead.mNewer;
+            while (entry != mHead) {
+                final Entry newer = entry.mNewer;
+                if (entry.mFont == font)
+                    removeEntry(entry);
+                entry = newer;
+            }
+        }
+
+        synchronized void clear() {
+            while (mCount > 0) {
+                removeEntry(mHead.mNewer);
+            }
+        }
+
+        private Entry find(Object font, int glyphId, int ppem, int phase, int hash) {
+            Entry entry = mTable[hash & (mTable.length - 1)];
+            while (entry != null && !entry.matches(font, glyphId, ppem, phase, hash)) {
+                entry = entry.mNext;
+            }
+            if (entry != null && entry.mNewer != mHead) {
+                unlink(entry);
+                linkNewest(entry);
+            }
+            return entry;
+        }
+
+        private void removeEntry(Entry entry) {
+            final int index = entry.mHash & (mTable.length - 1);
+            Entry previous = null;
+            Entry current = mTable[index];
+            while (current != entry) {
+                previous = current;
+                current = current.mNext;
+            }
+            if (previous == null)
+                mTable[index] = entry.mNext;
+            else
+                previous.mNext = entry.mNext;
+            entry.mNext = null;
+            unlink(entry);
+            mCount--;
+            mSize -= entry.mCost;
+            if (entry.mBlock >= 0)
+                mAllocator.free(entry.mBlock);
+        }
+
+        private void resize() {
+            final Entry[] table = new Entry[mTable.length << 1];
+            for (Entry head : mTable) {
+                Entry entry = head;
+                while (entry != null) {
+                    final Entry next = entry.mNext;
+                    final int index = entry.mHash & (table.length - 1);
+                    entry.mNext = table[index];
+                    table[index] = entry;
+                    entry = next;
+                }
+            }
+            mTable = table;
+        }
+
+        private void linkNewest(Entry entry) {
+            entry.mOlder = mHead.mOlder;
+            entry.mNewer = mHead;
+            mHead.mOlder.mNewer = entry;
+            mHead.mOlder = entry;
+        }
+
+        private void unlink(Entry entry) {
+            entry.mOlder.mNewer = entry.mNewer;
+            entry.mNewer.mOlder = entry.mOlder;
+        }
+    }
+
+    /**
+     * 堆外内存分配器
+     * The slab is divided into fixed size pages. A page serves blocks of a single power of two
+     * size class and tracks its free blocks with a bit set; pages with free blocks are linked
+     * per size class, and pages that become completely free return to the shared page pool.
+     */
+    private static final class SlabAllocator {
+        static final int PAGE_SHIFT = 16;
+        static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        private static final int MIN_BLOCK_SHIFT = 6;
+        private static final int CLASSES = PAGE_SHIFT - MIN_BLOCK_SHIFT + 1;
+        private final ByteBuffer mSlab;
+        private final int[] mPageClass;// 页面大小类，-1 表示空闲页
+        private final int[] mPageUsed;
+        private final long[][] mPageFree;// 空闲块位图
+        private final int[] mPrevious;
+        private final int[] mNext;
+        private final int[] mPartialHeads = new int[CLASSES];
+        private final int[] mFreePages;
+        private int mFreePageCount;
+
+        SlabAllocator(int capacity) {
+            final int pages = capacity >> PAGE_SHIFT;
+            mSlab = ByteBuffer.allocateDirect(pages << PAGE_SHIFT);
+            mPageClass = new int[pages];
+            mPageUsed = new int[pages];
+            mPageFree = new long[pages][(PAGE_SIZE >> MIN_BLOCK_SHIFT) >> 6];
+            mPrevious = new int[pages];
+            mNext = new int[pages];
+            mFreePages = new int[pages];
+            Arrays.fill(mPageClass, -1);
+            Arrays.fill(mPartialHeads, -1);
+            for (int i = 0; i < pages; i++) {
+                mFreePages[i] = pages - 1 - i;
+            }
+            mFreePageCount = pages;
+        }
+
+        static int getSizeClass(int length) {
+            final int size = Math.max(length, 1 << MIN_BLOCK_SHIFT);
+            return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_BLOCK_SHIFT;
+        }
+
+        static int getBlockSize(int length) {
+            return 1 << (getSizeClass(length) + MIN_BLOCK_SHIFT);
+        }
+
+        synchronized int allocate(int length) {
+            final int sizeClass = getSizeClass(length);
+            final int blockShift = sizeClass + MIN_BLOCK_SHIFT;
+            final int blocks = PAGE_SIZE >> blockShift;
+            int page = mPartialHeads[sizeClass];
+            if (page < 0) {
+                if (mFreePageCount == 0)
+                    return -1;
+                page = mFreePages[--mFreePageCount];
+                mPageClass[page] = sizeClass;
+                mPageUsed[page] = 0;
+                final long[] bits = mPageFree[page];
+                Arrays.fill(bits, 0);
+                for (int i = 0; i < blocks; i += 64) {
+                    final int count = Math.min(64, blocks - i);
+                    bits[i >> 6] = count == 64 ? -1L : (1L << count) - 1;
+                }
+                link(page, sizeClass);
+            }
+            final long[] bits = mPageFree[page];
+            int index = -1;
+            for (int w = 0; w < bits.length; w++) {
+                if (bits[w] != 0) {
+                    final int bit = Long.numberOfTrailingZeros(bits[w]);
+                    bits[w] &= ~(1L << bit);
+                    index = (w << 6) + bit;
+                    break;
+                }
+            }
+            mPageUsed[page]++;
+            if (mPageUsed[page] == blocks)
+                unlink(page, sizeClass);
+            return (page << PAGE_SHIFT) + (index << blockShift);
+        }
+
+        synchronized void free(int block) {
+            final int page = block >>> PAGE_SHIFT;
+            final int sizeClass = mPageClass[page];
+            final int blockShift = sizeClass + MIN_BLOCK_SHIFT;
+            final int blocks = PAGE_SIZE >> blockShift;
+            final int index = (block & (PAGE_SIZE - 1)) >> blockShift;
+            mPageFree[page][index >> 6] |= 1L << (index & 63);
+            if (mPageUsed[page] == blocks)
+                link(page, sizeClass);
+            mPageUsed[page]--;
+            if (mPageUsed[page] == 0) {
+                unlink(page, sizeClass);
+                mPageClass[page] = -1;
+                mFreePages[mFreePageCount++] = page;
+            }
+        }
+
+        // 读写均使用绝对位置，不修改共享缓冲区的位置，因此无需为每次访问复制缓冲区视图；
+        // 按 8 字节一组读写以减少逐字节访问的次数（字节序为大端）
+        void write(int block, byte[] data) {
+            final ByteBuffer slab = mSlab;
+            final int length = data.length;
+            int i = 0;
+            for (; i + 8 <= length; i += 8) {
+                long value = 0;
+                for (int j = 0; j < 8; j++) {
+                    value = value << 8 | (data[i + j] & 0xFF);
+                }
+                slab.putLong(block + i, value);
+            }
+            for (; i < length; i++) {
+                slab.put(block + i, data[i]);
+            }
+        }
+
+        void read(int block, byte[] data, int length) {
+            final ByteBuffer slab = mSlab;
+            int i = 0;
+            for (; i + 8 <= length; i += 8) {
+                final long value = slab.getLong(block + i);
+                for (int j = 0; j < 8; j++) {
+                    data[i + j] = (byte) (value >>> (56 - (j << 3)));
+                }
+            }
+            for (; i < length; i++) {
+                data[i] = slab.get(block + i);
+            }
+        }
+
+        private void link(int page, int sizeClass) {
+            final int head = mPartialHeads[sizeClass];
+            mPrevious[page] = -1;
+            mNext[page] = head;
+            if (head >= 0)
+                mPrevious[head] = page;
+            mPartialHeads[sizeClass] = page;
+        }
+
+        private void unlink(int page, int sizeClass) {
+            final int previous = mPrevious[page];
+            final int next = mNext[page];
+            if (previous >= 0)
+                mNext[previous] = next;
+            else
+                mPartialHeads[sizeClass] = next;
+            if (next >= 0)
+                mPrevious[next] = previous;
+        }
+    }
+}
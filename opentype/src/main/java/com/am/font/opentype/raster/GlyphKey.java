@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+/**
+ * 字形键
+ * Identifies one rendered variant of a glyph: the font (compared by reference), glyph ID,
+ * pixel size and quantized subpixel phase. Keys stored in maps are never modified; an owner
+ * may keep one extra key and {@link #set} it for each lookup, avoiding an allocation per hit.
+ */
+final class GlyphKey {
+
+    private Object mFont;
+    private int mGlyphId;
+    private int mPpem;
+    private int mPhase;
+    private int mHashCode;
+
+    GlyphKey() {
+    }
+
+    GlyphKey(Object font, int glyphId, int ppem, int phase) {
+        set(font, glyphId, ppem, phase);
+    }
+
+    /**
+     * 设置键值，仅用于查找用的键
+     *
+     * @param font    字体（以引用判等）
+     * @param glyphId 字形ID
+     * @param ppem    像素大小
+     * @param phase   亚像素相位
+     * @return 自身
+     */
+    GlyphKey set(Object font, int glyphId, int ppem, int phase) {
+        mFont = font;
+        mGlyphId = glyphId;
+        mPpem = ppem;
+        mPhase = phase;
+        int result = System.identityHashCode(font);
+        result = 31 * result + glyphId;
+        result = 31 * result + ppem;
+        result = 31 * result + phase;
+        mHashCode = result;
+        return this;
+    }
+
+    Object getFont() {
+        return mFont;
+    }
+
+    int getGlyphId() {
+        return mGlyphId;
+    }
+
+    int getPpem() {
+        return mPpem;
+    }
+
+    int getPhase() {
+        return mPhase;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GlyphKey key = (GlyphKey) o;
+        return mFont == key.mFont &&
+                mGlyphId == key.mGlyphId &&
+                mPpem == key.mPpem &&
+                mPhase == key.mPhase;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "GlyphKey{" +
+                "glyphId=" + mGlyphId +
+                ", ppem=" + mPpem +
+                ", phase=" + mPhase +
+                '}';
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.tables.GlyphOutlineSink;
+import com.am.font.opentype.tables.GlyphOutlineSource;
+import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.HeaderTable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 字形光栅化器
+ * Pure Java scanline rasterizer that turns glyph outlines into 8-bit anti-aliased coverage
+ * bitmaps. Curves are flattened into line segments, and every segment accumulates the exact
+ * signed area it covers in each pixel; a single prefix sum over the accumulation buffer
+ * then yields the coverage, so no edge lists or sorting are needed.
+ * 光栅化器复用内部缓冲区，非线程安全，多线程使用时每个线程各持有一个实例。
+ */
+@SuppressWarnings("unused")
+public class GlyphRasterizer {
+
+    private final GlyphOutlineSource mSource;
+    private final int mUnitsPerEm;
+    private final PathRecorder mRecorder = new PathRecorder();
+    private float[] mAccumulation = new float[256];
+
+    public GlyphRasterizer(GlyphOutlineSource source, HeaderTable headerTable) {
+        if (source == null || headerTable == null || headerTable.getUnitsPerEm() <= 0)
+            throw new IllegalArgumentException();
+        mSource = source;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+    }
+
+    /**
+     * 获取每 em 设计单位数
+     *
+     * @return 每 em 设计单位数
+     */
+    public int getUnitsPerEm() {
+        return mUnitsPerEm;
+    }
+
+    /**
+     * 光栅化字形
+     *
+     * @param glyphId   字形ID
+     * @param pixelSize 像素大小（ppem）
+     * @return 字形位图，空字形返回宽高为0的位图
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphBitmap rasterize(int glyphId, float pixelSize) throws IOException {
+        return rasterize(glyphId, pixelSize, 0, 0);
+    }
+
+    /**
+     * 光栅化字形
+     *
+     * @param glyphId   字形ID
+     * @param pixelSize 像素大小（ppem）
+     * @param offsetX   横向亚像素偏移（像素）
+     * @param offsetY   纵向亚像素偏移（像素，向上为正）
+     * @return 字形位图，空字形返回宽高为0的位图
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphBitmap rasterize(int glyphId, float pixelSize, float offsetX, float offsetY)
+            throws IOException {
+        mRecorder.reset(pixelSize / mUnitsPerEm, offsetX, offsetY);
+        mSource.decodeOutline(glyphId, mRecorder);
+        return rasterize();
+    }
+
+    /**
+     * 光栅化已解析的轮廓
+     *
+     * @param outline   字形轮廓
+     * @param pixelSize 像素大小（ppem）
+     * @param offsetX   横向亚像素偏移（像素）
+     * @param offsetY   纵向亚像素偏移（像素，向上为正）
+     * @return 字形位图，空字形返回宽高为0的位图
+     */
+    public GlyphBitmap rasterize(GlyphTable.GlyphOutline outline, float pixelSize,
+                                 float offsetX, float offsetY) {
+        mRecorder.reset(pixelSize / mUnitsPerEm, offsetX, offsetY);
+        outline.decodeOutline(mRecorder);
+        return rasterize();
+    }
+
+    /**
+     * 计算变换后字形轮廓的边界
+     *
+     * @param glyphId 字形ID
+     * @param matrix  字体单位到目标空间的仿射矩阵 xx, yx, xy, yy, dx, dy
+     * @param bounds  输出 minX, minY, maxX, maxY，空字形时不修改
+     * @return 字形是否有轮廓
+     * @throws IOException 字形ID越界或数据错误
+     */
+    boolean getBounds(int glyphId, float[] matrix, float[] bounds) throws IOException {
+        final PathRecorder recorder = mRecorder;
+        recorder.reset(matrix[0], matrix[1], matrix[2], matrix[3], matrix[4], matrix[5]);
+        mSource.decodeOutline(glyphId, recorder);
+        recorder.finish();
+        if (recorder.mCount == 0)
+            return false;
+        bounds[0] = recorder.mMinX;
+        bounds[1] = recorder.mMinY;
+        bounds[2] = recorder.mMaxX;
+        bounds[3] = recorder.mMaxY;
+        return true;
+    }
+
+    /**
+     * 在固定画布内光栅化变换后的字形，画布外的部分被裁剪
+     *
+     * @param glyphId  字形ID
+     * @param matrix   字体单位到画布像素（y 向下）的仿射矩阵 xx, yx, xy, yy, dx, dy
+     * @param width    画布宽度
+     * @param height   画布高度
+     * @param coverage 覆盖率输出（0-1），长度不小于 width * height
+     * @throws IOException 字形ID越界或数据错误
+     */
+    void rasterize(int glyphId, float[] matrix, int width, int height, float[] coverage)
+            throws IOException {
+        final PathRecorder recorder = mRecorder;
+        recorder.reset(matrix[0], matrix[1], matrix[2], matrix[3], matrix[4], matrix[5]);
+        mSource.decodeOutline(glyphId, recorder);
+        recorder.finish();
+        final int size = width * height;
+        if (recorder.mCount == 0 || recorder.mMaxX <= 0 || recorder.mMinX >= width ||
+                recorder.mMaxY <= 0 || recorder.mMinY >= height) {
+            Arrays.fill(coverage, 0, size, 0);
+            return;
+        }
+        final int length = size + 2;
+        if (mAccumulation.length < length)
+            mAccumulation = new float[Math.max(length, mAccumulation.length * 2)];
+        final float[] accumulation = mAccumulation;
+        Arrays.fill(accumulation, 0, length, 0);
+        final float[] lines = recorder.mLines;
+        for (int i = 0; i < recorder.mCount; i += 4) {
+            drawClippedLine(accumulation, width, height,
+                    lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+        }
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += accumulation[i];
+            coverage[i] = Math.min(Math.abs(sum), 1);
+        }
+    }
+
+    /**
+     * 横向裁剪线段：画布左侧的部分替换为 x = 0 处的竖线（覆盖整行剩余部分），
+     * 右侧的部分替换为 x = width 处的竖线（只影响行末之后），绕数保持不变
+     */
+    private static void drawClippedLine(float[] accumulation, int width, int height,
+                                        float x0, float y0, float x1, float y1) {
+        if (x0 >= 0 && x1 >= 0 && x0 <= width && x1 <= width) {
+            drawLine(accumulation, width, height, x0, y0, x1, y1);
+            return;
+        }
+        // 与 x = 0、x = width 的交点把线段分为至多三段
+        float split0 = (0 - x0) / (x1 - x0);
+        float split1 = (width - x0) / (x1 - x0);
+        if (split0 > split1) {
+            final float t = split0;
+            split0 = split1;
+            split1 = t;
+        }
+        float px = x0;
+        float py = y0;
+        for (int i = 0; i < 3; i++) {
+            final float t = i == 0 ? split0 : (i == 1 ? split1 : 1);
+            if (t <= 0 || t > 1 || (i < 2 && t == 1))
+                continue;
+            final float nx = i == 2 ? x1 : x0 + (x1 - x0) * t;
+            final float ny = i == 2 ? y1 : y0 + (y1 - y0) * t;
+            final float mx = 0.5f * (px + nx);
+            if (mx < 0)
+                drawLine(accumulation, width, height, 0, py, 0, ny);
+            else if (mx > width)
+                drawLine(accumulation, width, height, width, py, width, ny);
+            else
+                drawLine(accumulation, width, height, Math.max(0, Math.min(px, width)), py,
+                        Math.max(0, Math.min(nx, width)), ny);
+            px = nx;
+            py = ny;
+        }
+    }
+
+    private GlyphBitmap rasterize() {
+        final PathRecorder recorder = mRecorder;
+        recorder.finish();
+        if (recorder.mCount == 0)
+            return GlyphBitmap.EMPTY;
+        final int left = (int) Math.floor(recorder.mMinX);
+        final int right = (int) Math.ceil(recorder.mMaxX);
+        final int bottom = (int) Math.floor(recorder.mMinY);
+        final int top = (int) Math.ceil(recorder.mMaxY);
+        final int width = right - left;
+        final int height = top - bottom;
+        if (width <= 0 || height <= 0)
+            return GlyphBitmap.EMPTY;
+        final long size = (long) width * height;
+        if (size > Integer.MAX_VALUE - 2)
+            throw new IllegalArgumentException();
+        final int length = (int) size + 2;
+        if (mAccumulation.length < length)
+            mAccumulation = new float[Math.max(length, mAccumulation.length * 2)];
+        final float[] accumulation = mAccumulation;
+        Arrays.fill(accumulation, 0, length, 0);
+        final float[] lines = recorder.mLines;
+        for (int i = 0; i < recorder.mCount; i += 4) {
+            drawLine(accumulation, width, height,
+                    lines[i] - left, top - lines[i + 1],
+                    lines[i + 2] - left, top - lines[i + 3]);
+        }
+        final byte[] coverage = new byte[(int) size];
+        float sum = 0;
+        for (int i = 0; i < coverage.length; i++) {
+            sum += accumulation[i];
+            final float value = Math.min(Math.abs(sum), 1);
+            coverage[i] = (byte) (int) (value * 255 + 0.5f);
+        }
+        return new GlyphBitmap(width, height, left, top, coverage);
+    }
+
+    /**
+     * 累积线段在每个像素内覆盖的有向面积
+     */
+    private static void drawLine(float[] accumulation, int width, int height,
+                                 float x0, float y0, float x1, float y1) {
+        if (y0 == y1)
+            return;
+        final float direction;
+        if (y0 < y1) {
+            direction = 1;
+        } else {
+            direction = -1;
+            float t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        final float dxdy = (x1 - x0) / (y1 - y0);
+        float x = x0;
+        if (y0 < 0)
+            x -= y0 * dxdy;
+        final int yStart = Math.max((int) y0, 0);
+        final int yEnd = Math.min(height, (int) Math.ceil(y1));
+        for (int y = yStart; y < yEnd; y++) {
+            final int lineStart = y * width;
+            final float dy = Math.min(y + 1, y1) - Math.max(y, y0);
+            final float xNext = x + dxdy * dy;
+            final float d = dy * direction;
+            final float xa;
+            final float xb;
+            if (x < xNext) {
+                xa = x;
+                xb = xNext;
+            } else {
+                xa = xNext;
+                xb = x;
+            }
+            final float xaFloor = (float) Math.floor(xa);
+            final int xai = Math.max((int) xaFloor, 0);
+            final float xbCeil = (float) Math.ceil(xb);
+            final int xbi = Math.min((int) xbCeil, width);
+            if (xbi <= xai + 1) {
+                // 线段在本行只落入一个像素
+                final float xmf = 0.5f * (x + xNext) - xaFloor;
+                accumulation[lineStart + xai] += d - d * xmf;
+                accumulation[lineStart + xai + 1] += d * xmf;
+            } else {
+                final float s = 1 / (xb - xa);
+                final float xaf = xa - xaFloor;
+                final float a0 = 0.5f * s * (1 - xaf) * (1 - xaf);
+                final float xbf = xb - xbCeil + 1;
+                final float am = 0.5f * s * xbf * xbf;
+                accumulation[lineStart + xai] += d * a0;
+                if (xbi == xai + 2) {
+                    accumulation[lineStart + xai + 1] += d * (1 - a0 - am);
+                } else {
+                    final float a1 = s * (1.5f - xaf);
+                    accumulation[lineStart + xai + 1] += d * (a1 - a0);
+                    for (int xi = xai + 2; xi < xbi - 1; xi++) {
+                        accumulation[lineStart + xi] += d * s;
+                    }
+                    final float a2 = a1 + (xbi - xai - 3) * s;
+                    accumulation[lineStart + xbi - 1] += d * (1 - a2 - am);
+                }
+                accumulation[lineStart + xbi] += d * am;
+            }
+            x = xNext;
+        }
+    }
+
+    /**
+     * 将路径命令缩放到像素空间并展平为线段
+     */
+    private static class PathRecorder implements GlyphOutlineSink {
+
+        private static final float TOLERANCE = 3;// 曲线展平容差系数
+        private static final int MAX_SEGMENTS = 100;
+        float[] mLines = new float[512];// x0, y0, x1, y1
+        int mCount;
+        float mMinX;
+        float mMinY;
+        float mMaxX;
+        float mMaxY;
+        private float mXX;
+        private float mYX;
+        private float mXY;
+        private float mYY;
+        private float mDX;
+        private float mDY;
+        private float mStartX;
+        private float mStartY;
+        private float mCurrentX;
+        private float mCurrentY;
+        private boolean mOpen;
+
+        void reset(float scale, float offsetX, float offsetY) {
+            reset(scale, 0, 0, scale, offsetX, offsetY);
+        }
+
+        void reset(float xx, float yx, float xy, float yy, float dx, float dy) {
+            mCount = 0;
+            mMinX = Float.POSITIVE_INFINITY;
+            mMinY = Float.POSITIVE_INFINITY;
+            mMaxX = Float.NEGATIVE_INFINITY;
+            mMaxY = Float.NEGATIVE_INFINITY;
+            mXX = xx;
+            mYX = yx;
+            mXY = xy;
+            mYY = yy;
+            mDX = dx;
+            mDY = dy;
+            mOpen = false;
+        }
+
+        private float mapX(float x, float y) {
+            return mXX * x + mXY * y + mDX;
+        }
+
+        private float mapY(float x, float y) {
+            return mYX * x + mYY * y + mDY;
+        }
+
+        void finish() {
+            if (mOpen)
+                closePath();
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            if (mOpen)
+                closePath();
+            mStartX = mCurrentX = mapX(x, y);
+            mStartY = mCurrentY = mapY(x, y);
+            mOpen = true;
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            addLine(mapX(x, y), mapY(x, y));
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            final float x0 = mCurrentX;
+            final float y0 = mCurrentY;
+            final float cx = mapX(x1, y1);
+            final float cy = mapY(x1, y1);
+            final float ex = mapX(x2, y2);
+            final float ey = mapY(x2, y2);
+            final float devX = x0 - 2 * cx + ex;
+            final float devY = y0 - 2 * cy + ey;
+            final float devSq = devX * devX + devY * devY;
+            if (devSq < 0.333f) {
+                addLine(ex, ey);
+                return;
+            }
+            final int n = Math.min(MAX_SEGMENTS,
+                    1 + (int) Math.sqrt(Math.sqrt(TOLERANCE * devSq)));
+            for (int i = 1; i < n; i++) {
+                final float t = (float) i / n;
+                final float mt = 1 - t;
+                addLine(mt * mt * x0 + 2 * mt * t * cx + t * t * ex,
+                        mt * mt * y0 + 2 * mt * t * cy + t * t * ey);
+            }
+            addLine(ex, ey);
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            final float x0 = mCurrentX;
+            final float y0 = mCurrentY;
+            final float ax = mapX(x1, y1);
+            final float ay = mapY(x1, y1);
+            final float bx = mapX(x2, y2);
+            final float by = mapY(x2, y2);
+            final float ex = mapX(x3, y3);
+            final float ey = mapY(x3, y3);
+            final float dev1X = x0 - 2 * ax + bx;
+            final float dev1Y = y0 - 2 * ay + by;
+            final float dev2X = ax - 2 * bx + ex;
+            final float dev2Y = ay - 2 * by + ey;
+            // 三次曲线偏离弦的距离以 3 倍二阶差分为界，与二次曲线使用相同的误差标准
+            final float devSq = 9 * Math.max(dev1X * dev1X + dev1Y * dev1Y,
+                    dev2X * dev2X + dev2Y * dev2Y);
+            if (devSq < 0.333f) {
+                addLine(ex, ey);
+                return;
+            }
+            final int n = Math.min(MAX_SEGMENTS,
+                    1 + (int) Math.sqrt(Math.sqrt(TOLERANCE * devSq)));
+            for (int i = 1; i < n; i++) {
+                final float t = (float) i / n;
+                final float mt = 1 - t;
+                final float a = mt * mt * mt;
+                final float b = 3 * mt * mt * t;
+                final float c = 3 * mt * t * t;
+                final float d = t * t * t;
+                addLine(a * x0 + b * ax + c * bx + d * ex, a * y0 + b * ay + c * by + d * ey);
+            }
+            addLine(ex, ey);
+        }
+
+        @Override
+        public void closePath() {
+            if (!mOpen)
+                return;
+            addLine(mStartX, mStartY);
+            mOpen = false;
+        }
+
+        private void addLine(float x, float y) {
+            if (mCount + 4 > mLines.length)
+                mLines = Arrays.copyOf(mLines, mLines.length * 2);
+            final float[] lines = mLines;
+            lines[mCount++] = mCurrentX;
+            lines[mCount++] = mCurrentY;
+            lines[mCount++] = x;
+            lines[mCount++] = y;
+            if (x < mMinX) mMinX = x;
+            if (x > mMaxX) mMaxX = x;
+            if (y < mMinY) mMinY = y;
+            if (y > mMaxY) mMaxY = y;
+            if (mCurrentX < mMinX) mMinX = mCurrentX;
+            if (mCurrentX > mMaxX) mMaxX = mCurrentX;
+            if (mCurrentY < mMinY) mMinY = mCurrentY;
+            if (mCurrentY > mMaxY) mMaxY = mCurrentY;
+            mCurrentX = x;
+            mCurrentY = y;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Axis Variations Table
+ * The axis variations table ('avar') is an optional table used in variable fonts. It can be
+ * used to modify aspects of how a design varies for different instances along a particular
+ * design-variation axis. Each axis has a segment map that maps default-normalized
+ * coordinates to modified normalized coordinates with a piecewise linear function.
+ * 版本 2 新增的跨轴映射数据暂不解析，仅使用各轴的分段映射。
+ */
+@SuppressWarnings("unused")
+public class AxisVariationsTable extends BaseTable {
+
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final float[][] mFromCoordinates;
+    private final float[][] mToCoordinates;
+
+    public AxisVariationsTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_AVAR)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final int majorVersion = reader.readUnsignedShort();
+        final int minorVersion = reader.readUnsignedShort();
+        reader.skip(2);// reserved
+        final int axisCount = reader.readUnsignedShort();
+        if (majorVersion != 1 && majorVersion != 2)
+            throw new IOException();
+        final float[][] fromCoordinates = new float[axisCount][];
+        final float[][] toCoordinates = new float[axisCount][];
+        for (int i = 0; i < axisCount; i++) {
+            final int positionMapCount = reader.readUnsignedShort();
+            final float[] from = new float[positionMapCount];
+            final float[] to = new float[positionMapCount];
+            for (int j = 0; j < positionMapCount; j++) {
+                from[j] = reader.readFixed2Dot14();
+                to[j] = reader.readFixed2Dot14();
+                if (j > 0 && from[j] < from[j - 1])
+                    throw new IOException();// Sorted by fromCoordinate.
+            }
+            fromCoordinates[i] = from;
+            toCoordinates[i] = to;
+        }
+        mMajorVersion = majorVersion;
+        mMinorVersion = minorVersion;
+        mFromCoordinates = fromCoordinates;
+        mToCoordinates = toCoordinates;
+    }
+
+    /**
+     * Major version number of the axis variations table.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the axis variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The number of variation axes for this font. This must be the same number as axisCount
+     * in the 'fvar' table.
+     *
+     * @return Axis count.
+     */
+    public int getAxisCount() {
+        return mFromCoordinates.length;
+    }
+
+    /**
+     * The number of correspondence pairs for the axis.
+     *
+     * @param axis axis index
+     * @return Position map count.
+     */
+    public int getPositionMapCount(int axis) {
+        return mFromCoordinates[axis].length;
+    }
+
+    /**
+     * A normalized coordinate value obtained using default normalization.
+     *
+     * @param axis  axis index
+     * @param index map index
+     * @return From coordinate.
+     */
+    public float getFromCoordinate(int axis, int index) {
+        return mFromCoordinates[axis][index];
+    }
+
+    /**
+     * The modified, normalized coordinate value.
+     *
+     * @param axis  axis index
+     * @param index map index
+     * @return To coordinate.
+     */
+    public float getToCoordinate(int axis, int index) {
+        return mToCoordinates[axis][index];
+    }
+
+    /**
+     * 按分段映射修改归一化坐标
+     *
+     * @param axis  轴序号
+     * @param value 默认归一化坐标
+     * @return 修改后的归一化坐标，轴不存在或映射为空时原样返回
+     */
+    public float map(int axis, float value) {
+        if (axis < 0 || axis >= mFromCoordinates.length)
+            return value;
+        final float[] from = mFromCoordinates[axis];
+        final float[] to = mToCoordinates[axis];
+        final int count = from.length;
+        if (count == 0)
+            return value;
+        if (value <= from[0])
+            return to[0] + (value - from[0]);
+        if (value >= from[count - 1])
+            return to[count - 1] + (value - from[count - 1]);
+        int index = 1;
+        while (index < count - 1 && from[index] < value) {
+            index++;
+        }
+        if (from[index] == value)
+            return to[index];
+        final float f0 = from[index - 1];
+        final float f1 = from[index];
+        if (f1 == f0)
+            return to[index];
+        return to[index - 1] + (to[index] - to[index - 1]) * (value - f0) / (f1 - f0);
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+        result = 31 * result + Arrays.deepHashCode(mFromCoordinates);
+        result = 31 * result + Arrays.deepHashCode(mToCoordinates);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "AxisVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", fromCoordinates=" + Arrays.deepToString(mFromCoordinates) +
+                ", toCoordinates=" + Arrays.deepToString(mToCoordinates) +
+                '}';
+    }
+}
@@ -15,8 +15,12 @@
  */
 package com.am.font.opentype.tables;
 
+import com.am.font.opentype.OpenTypeReader;
 import com.am.font.opentype.TableRecord;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -42,6 +46,32 @@ public class BaseTable {
         return mRecord;
     }
 
+    /**
+     * 读取表数据，供需要按需解析的表使用（读取器在解析完成后通常会被关闭）。
+     * 读取器支持内存映射时直接返回映射区域，否则复制到堆内存
+     *
+     * @param reader 字体数据读取器
+     * @param record 表记录
+     * @return 表数据（大端序）
+     * @throws IOException 读写错误
+     */
+    protected static ByteBuffer readTableData(OpenTypeReader reader, TableRecord record)
+            throws IOException {
+        final ByteBuffer mapped = reader.map(record.getOffset(), record.getLength());
+        if (mapped != null)
+            return mapped;
+        final byte[] data = new byte[record.getLength()];
+        reader.seek(record.getOffset());
+        int read = 0;
+        while (read < data.length) {
+            final int count = reader.read(data, read, data.length - read);
+            if (count < 0)
+                throw new EOFException();
+            read += count;
+        }
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     public boolean equals(Object o) {
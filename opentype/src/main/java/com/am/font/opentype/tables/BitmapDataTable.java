@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Embedded Bitmap Data Table / Color Bitmap Data Table
+ * The EBDT table is used to embed monochrome or grayscale bitmap glyph data. The CBDT table
+ * shares the same header (version 3.0) and adds the PNG image formats 17, 18 and 19 for color
+ * bitmaps. Glyphs are located through the matching {@link BitmapLocationTable}.
+ * 表数据在构造时不做解析，字形图像以字体数据的视图返回，不复制、不解码。
+ */
+@SuppressWarnings("unused")
+public class BitmapDataTable extends BaseTable {
+
+    private final ByteBuffer mData;
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+
+    public BitmapDataTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || (record.getTableTag() != TableRecord.TAG_EBDT
+                && record.getTableTag() != TableRecord.TAG_CBDT))
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        if (data.limit() < 4)
+            throw new IOException();
+        mData = data;
+        mMajorVersion = data.getChar(0);
+        mMinorVersion = data.getChar(2);
+    }
+
+    /**
+     * Major version of the table.
+     *
+     * @return Major version, 2 for EBDT and 3 for CBDT.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version of the table, set to 0.
+     *
+     * @return Minor version.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * 获取位图字形
+     *
+     * @param location  位置表
+     * @param sizeIndex 尺寸序号
+     * @param glyphId   字形ID
+     * @return 位图字形，该尺寸不包含字形时返回空
+     * @throws IOException 数据错误
+     */
+    public BitmapGlyph getGlyph(BitmapLocationTable location, int sizeIndex, int glyphId)
+            throws IOException {
+        final BitmapLocationTable.Location glyph = location.findGlyph(sizeIndex, glyphId);
+        if (glyph == null)
+            return null;
+        final int offset = glyph.mOffset;
+        final int end = offset + glyph.mLength;
+        if (offset < 0 || end < offset || end > mData.limit())
+            throw new IOException();
+        try {
+            switch (glyph.mImageFormat) {
+                default:
+                    throw new IOException();
+                case 1:
+                case 2:
+                    // SmallGlyphMetrics, then byte-aligned (1) or bit-aligned (2) image data
+                    return createGlyph(glyphId, glyph, readSmallMetrics(glyph, offset),
+                            offset + 5, end);
+                case 5:
+                    // Metrics in EBLC, bit-aligned image data only
+                    return createGlyph(glyphId, glyph, requireMetrics(glyph), offset, end);
+                case 6:
+                case 7:
+                    // BigGlyphMetrics, then byte-aligned (6) or bit-aligned (7) image data
+                    return createGlyph(glyphId, glyph,
+                            BitmapGlyph.readBigMetrics(mData, offset), offset + 8, end);
+                case 8:
+                    // SmallGlyphMetrics, uint8 pad, components
+                    return createComposite(glyphId, glyph, readSmallMetrics(glyph, offset),
+                            offset + 6, end);
+                case 9:
+                    // BigGlyphMetrics, components
+                    return createComposite(glyphId, glyph,
+                            BitmapGlyph.readBigMetrics(mData, offset), offset + 8, end);
+                case 17:
+                    // SmallGlyphMetrics, uint32 dataLen, PNG
+                    return createPng(glyphId, glyph, readSmallMetrics(glyph, offset),
+                            offset + 5, end);
+                case 18:
+                    // BigGlyphMetrics, uint32 dataLen, PNG
+                    return createPng(glyphId, glyph,
+                            BitmapGlyph.readBigMetrics(mData, offset), offset + 8, end);
+                case 19:
+                    // Metrics in CBLC, uint32 dataLen, PNG
+                    return createPng(glyphId, glyph, requireMetrics(glyph), offset, end);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private int[] readSmallMetrics(BitmapLocationTable.Location glyph, int offset) {
+        return BitmapGlyph.readSmallMetrics(mData, offset, glyph.mVertical);
+    }
+
+    private static int[] requireMetrics(BitmapLocationTable.Location glyph) throws IOException {
+        if (glyph.mMetrics == null)
+            throw new IOException();
+        return glyph.mMetrics.clone();
+    }
+
+    private BitmapGlyph createGlyph(int glyphId, BitmapLocationTable.Location glyph,
+                                    int[] metrics, int start, int end) throws IOException {
+        return new BitmapGlyph(glyphId, glyph.mImageFormat, glyph.mBitDepth, metrics,
+                slice(start, end), null);
+    }
+
+    private BitmapGlyph createPng(int glyphId, BitmapLocationTable.Location glyph,
+                                  int[] metrics, int offset, int end) throws IOException {
+        final int length = mData.getInt(offset);
+        final int start = offset + 4;
+        if (length < 0 || length > end - start)
+            throw new IOException();
+        return new BitmapGlyph(glyphId, glyph.mImageFormat, glyph.mBitDepth, metrics,
+                slice(start, start + length), null);
+    }
+
+    private BitmapGlyph createComposite(int glyphId, BitmapLocationTable.Location glyph,
+                                        int[] metrics, int offset, int end)
+            throws IOException {
+        final int count = mData.getChar(offset);
+        if (offset + 2 + count * 4 > end)
+            throw new IOException();
+        final int[] components = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            final int component = offset + 2 + i * 4;
+            components[i * 3] = mData.getChar(component);
+            components[i * 3 + 1] = mData.get(component + 2);
+            components[i * 3 + 2] = mData.get(component + 3);
+        }
+        return new BitmapGlyph(glyphId, glyph.mImageFormat, glyph.mBitDepth, metrics, null,
+                components);
+    }
+
+    private ByteBuffer slice(int start, int end) throws IOException {
+        if (start > end)
+            throw new IOException();
+        final ByteBuffer buffer = mData.duplicate();
+        buffer.limit(end);
+        buffer.position(start);
+        return buffer.slice();
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+    }
+
+    @Override
+    public String getString() {
+        return "BitmapDataTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                '}';
+    }
+}
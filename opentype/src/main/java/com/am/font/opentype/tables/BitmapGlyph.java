@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 位图字形
+ * A glyph image read from the 'EBDT' or 'CBDT' table, together with its glyph metrics.
+ * The image data is a view of the font data: a PNG stream for formats 17, 18 and 19, and
+ * uncompressed pixel rows (byte-aligned or bit-aligned, see {@link #isBitAligned()}) for the
+ * other formats. Formats 8 and 9 carry no image but a list of component glyphs.
+ */
+@SuppressWarnings("unused")
+public class BitmapGlyph {
+
+    static final int METRIC_HEIGHT = 0;
+    static final int METRIC_WIDTH = 1;
+    static final int METRIC_HORI_BEARING_X = 2;
+    static final int METRIC_HORI_BEARING_Y = 3;
+    static final int METRIC_HORI_ADVANCE = 4;
+    static final int METRIC_VERT_BEARING_X = 5;
+    static final int METRIC_VERT_BEARING_Y = 6;
+    static final int METRIC_VERT_ADVANCE = 7;
+    static final int METRIC_COUNT = 8;
+    private final int mGlyphId;
+    private final int mImageFormat;
+    private final int mBitDepth;
+    private final int[] mMetrics;
+    private final ByteBuffer mImage;
+    private final int[] mComponents;
+
+    BitmapGlyph(int glyphId, int imageFormat, int bitDepth, int[] metrics, ByteBuffer image,
+                int[] components) {
+        mGlyphId = glyphId;
+        mImageFormat = imageFormat;
+        mBitDepth = bitDepth;
+        mMetrics = metrics;
+        mImage = image;
+        mComponents = components;
+    }
+
+    /**
+     * 读取 BigGlyphMetrics
+     *
+     * @param data   数据
+     * @param offset 偏移
+     * @return 度量
+     */
+    static int[] readBigMetrics(ByteBuffer data, int offset) {
+        final int[] metrics = new int[METRIC_COUNT];
+        metrics[METRIC_HEIGHT] = data.get(offset) & 0xFF;
+        metrics[METRIC_WIDTH] = data.get(offset + 1) & 0xFF;
+        metrics[METRIC_HORI_BEARING_X] = data.get(offset + 2);
+        metrics[METRIC_HORI_BEARING_Y] = data.get(offset + 3);
+        metrics[METRIC_HORI_ADVANCE] = data.get(offset + 4) & 0xFF;
+        metrics[METRIC_VERT_BEARING_X] = data.get(offset + 5);
+        metrics[METRIC_VERT_BEARING_Y] = data.get(offset + 6);
+        metrics[METRIC_VERT_ADVANCE] = data.get(offset + 7) & 0xFF;
+        return metrics;
+    }
+
+    /**
+     * 读取 SmallGlyphMetrics，按尺寸的标志位归入水平或垂直度量
+     *
+     * @param data     数据
+     * @param offset   偏移
+     * @param vertical 是否为垂直度量
+     * @return 度量
+     */
+    static int[] readSmallMetrics(ByteBuffer data, int offset, boolean vertical) {
+        final int[] metrics = new int[METRIC_COUNT];
+        metrics[METRIC_HEIGHT] = data.get(offset) & 0xFF;
+        metrics[METRIC_WIDTH] = data.get(offset + 1) & 0xFF;
+        final int base = vertical ? METRIC_VERT_BEARING_X : METRIC_HORI_BEARING_X;
+        metrics[base] = data.get(offset + 2);
+        metrics[base + 1] = data.get(offset + 3);
+        metrics[base + 2] = data.get(offset + 4) & 0xFF;
+        return metrics;
+    }
+
+    /**
+     * 获取字形ID
+     *
+     * @return 字形ID
+     */
+    public int getGlyphId() {
+        return mGlyphId;
+    }
+
+    /**
+     * Format of EBDT/CBDT image data.
+     *
+     * @return Image format.
+     */
+    public int getImageFormat() {
+        return mImageFormat;
+    }
+
+    /**
+     * 获取色深
+     *
+     * @return 色深（位），彩色位图为32
+     */
+    public int getBitDepth() {
+        return mBitDepth;
+    }
+
+    /**
+     * Number of rows of data.
+     *
+     * @return Height.
+     */
+    public int getHeight() {
+        return mMetrics[METRIC_HEIGHT];
+    }
+
+    /**
+     * Number of columns of data.
+     *
+     * @return Width.
+     */
+    public int getWidth() {
+        return mMetrics[METRIC_WIDTH];
+    }
+
+    /**
+     * Distance in pixels from the horizontal origin to the left edge of the bitmap.
+     *
+     * @return Hori bearing x.
+     */
+    public int getHoriBearingX() {
+        return mMetrics[METRIC_HORI_BEARING_X];
+    }
+
+    /**
+     * Distance in pixels from the horizontal origin to the top edge of the bitmap.
+     *
+     * @return Hori bearing y.
+     */
+    public int getHoriBearingY() {
+        return mMetrics[METRIC_HORI_BEARING_Y];
+    }
+
+    /**
+     * Horizontal advance width in pixels.
+     *
+     * @return Hori advance.
+     */
+    public int getHoriAdvance() {
+        return mMetrics[METRIC_HORI_ADVANCE];
+    }
+
+    /**
+     * Distance in pixels from the vertical origin to the left edge of the bitmap.
+     *
+     * @return Vert bearing x.
+     */
+    public int getVertBearingX() {
+        return mMetrics[METRIC_VERT_BEARING_X];
+    }
+
+    /**
+     * Distance in pixels from the vertical origin to the top edge of the bitmap.
+     *
+     * @return Vert bearing y.
+     */
+    public int getVertBearingY() {
+        return mMetrics[METRIC_VERT_BEARING_Y];
+    }
+
+    /**
+     * Vertical advance width in pixels.
+     *
+     * @return Vert advance.
+     */
+    public int getVertAdvance() {
+        return mMetrics[METRIC_VERT_ADVANCE];
+    }
+
+    /**
+     * 判断图像数据是否为PNG
+     *
+     * @return 格式 17、18、19 时返回true
+     */
+    public boolean isPng() {
+        return mImageFormat == 17 || mImageFormat == 18 || mImageFormat == 19;
+    }
+
+    /**
+     * 判断图像数据是否按位紧密排列（行末不补齐到字节）
+     *
+     * @return 格式 2、5、7 时返回true
+     */
+    public boolean isBitAligned() {
+        return mImageFormat == 2 || mImageFormat == 5 || mImageFormat == 7;
+    }
+
+    /**
+     * 获取图像数据，直接引用字体数据，不复制
+     *
+     * @return 图像数据（只读），组合字形为空
+     */
+    public ByteBuffer getImageData() {
+        return mImage == null ? null : mImage.duplicate();
+    }
+
+    /**
+     * 获取组件数目
+     *
+     * @return 组件数目，仅格式 8、9 不为0
+     */
+    public int getComponentCount() {
+        return mComponents == null ? 0 : mComponents.length / 3;
+    }
+
+    /**
+     * Component glyph ID.
+     *
+     * @param index 组件序号
+     * @return Glyph ID.
+     */
+    public int getComponentGlyphId(int index) {
+        return mComponents[index * 3];
+    }
+
+    /**
+     * Position of component left.
+     *
+     * @param index 组件序号
+     * @return X offset.
+     */
+    public int getComponentXOffset(int index) {
+        return mComponents[index * 3 + 1];
+    }
+
+    /**
+     * Position of component top.
+     *
+     * @param index 组件序号
+     * @return Y offset.
+     */
+    public int getComponentYOffset(int index) {
+        return mComponents[index * 3 + 2];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitmapGlyph that = (BitmapGlyph) o;
+        return mGlyphId == that.mGlyphId &&
+                mImageFormat == that.mImageFormat &&
+                mBitDepth == that.mBitDepth &&
+                Arrays.equals(mMetrics, that.mMetrics) &&
+                Objects.equals(mImage, that.mImage) &&
+                Arrays.equals(mComponents, that.mComponents);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(mGlyphId, mImageFormat, mBitDepth, mImage);
+        result = 31 * result + Arrays.hashCode(mMetrics);
+        result = 31 * result + Arrays.hashCode(mComponents);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapGlyph{" +
+                "glyphId=" + mGlyphId +
+                ", imageFormat=" + mImageFormat +
+                ", bitDepth=" + mBitDepth +
+                ", metrics=" + Arrays.toString(mMetrics) +
+                ", imageLength=" + (mImage == null ? 0 : mImage.remaining()) +
+                ", components=" + Arrays.toString(mComponents) +
+                '}';
+    }
+}
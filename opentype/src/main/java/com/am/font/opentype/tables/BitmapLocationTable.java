@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Embedded Bitmap Location Table / Color Bitmap Location Table
+ * The EBLC table provides embedded bitmap locators. It is used together with the EBDT table,
+ * which provides embedded, monochrome or grayscale bitmap glyph data. The CBLC table shares
+ * the same format (version 3.0) and locates color bitmaps in the CBDT table.
+ * 仅在构造时读取 BitmapSize 记录；各尺寸的 IndexSubTableArray 在首次查找时读取并缓存，
+ * 字形位置按字形范围二分查找后直接从子表计算，不预先展开。
+ */
+@SuppressWarnings("unused")
+public class BitmapLocationTable extends BaseTable {
+
+    private static final int SIZE_RECORD_LENGTH = 48;
+    private final ByteBuffer mData;
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final BitmapSize[] mSizes;
+    private final AtomicReferenceArray<int[]> mSubTableArrays;
+
+    public BitmapLocationTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || (record.getTableTag() != TableRecord.TAG_EBLC
+                && record.getTableTag() != TableRecord.TAG_CBLC))
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mMajorVersion = data.getChar(0);
+            mMinorVersion = data.getChar(2);
+            final int numSizes = data.getInt(4);
+            if (numSizes < 0 || 8L + (long) numSizes * SIZE_RECORD_LENGTH > data.limit())
+                throw new IOException();
+            mSizes = new BitmapSize[numSizes];
+            for (int i = 0; i < numSizes; i++) {
+                final int offset = 8 + i * SIZE_RECORD_LENGTH;
+                // colorRef (offset + 12) is not used, hori and vert SbitLineMetrics are
+                // 12 bytes each.
+                mSizes[i] = new BitmapSize(data.getInt(offset), data.getInt(offset + 8),
+                        data.get(offset + 16), data.get(offset + 17),
+                        data.get(offset + 28), data.get(offset + 29),
+                        data.getChar(offset + 40), data.getChar(offset + 42),
+                        data.get(offset + 44) & 0xFF, data.get(offset + 45) & 0xFF,
+                        data.get(offset + 46) & 0xFF, data.get(offset + 47));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        mData = data;
+        mSubTableArrays = new AtomicReferenceArray<>(mSizes.length);
+    }
+
+    /**
+     * Major version of the table.
+     *
+     * @return Major version, 2 for EBLC and 3 for CBLC.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version of the table, set to 0.
+     *
+     * @return Minor version.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * Number of BitmapSize records.
+     *
+     * @return Number of sizes.
+     */
+    public int getNumSizes() {
+        return mSizes.length;
+    }
+
+    /**
+     * 获取尺寸
+     *
+     * @param index 尺寸序号
+     * @return 尺寸
+     */
+    public BitmapSize getSize(int index) {
+        return mSizes[index];
+    }
+
+    /**
+     * 查找最适合目标字号的尺寸：优先取不小于目标的最小尺寸，否则取最大尺寸
+     *
+     * @param ppem    目标字号（像素）
+     * @param glyphId 需要包含的字形ID，小于0时不检查
+     * @return 尺寸序号，没有合适的尺寸时返回-1
+     */
+    public int findSize(int ppem, int glyphId) {
+        int above = -1;
+        int below = -1;
+        for (int i = 0; i < mSizes.length; i++) {
+            final BitmapSize size = mSizes[i];
+            if (glyphId >= 0 && !size.containsGlyph(glyphId))
+                continue;
+            final int value = size.getPpemY();
+            if (value >= ppem) {
+                if (above < 0 || value < mSizes[above].getPpemY())
+                    above = i;
+            } else {
+                if (below < 0 || value > mSizes[below].getPpemY())
+                    below = i;
+            }
+        }
+        return above >= 0 ? above : below;
+    }
+
+    /**
+     * 获取IndexSubTableArray：每个子表依次为 firstGlyphIndex、lastGlyphIndex 与子表的表内偏移
+     */
+    private int[] getSubTableArray(int sizeIndex) throws IOException {
+        int[] array = mSubTableArrays.get(sizeIndex);
+        if (array != null)
+            return array;
+        final BitmapSize size = mSizes[sizeIndex];
+        final int offset = size.getIndexSubTableArrayOffset();
+        final int count = size.getNumberOfIndexSubTables();
+        if (offset < 0 || count < 0 || (long) offset + count * 8L > mData.limit())
+            throw new IOException();
+        array = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            final int entry = offset + i * 8;
+            array[i * 3] = mData.getChar(entry);
+            array[i * 3 + 1] = mData.getChar(entry + 2);
+            array[i * 3 + 2] = offset + mData.getInt(entry + 4);
+        }
+        mSubTableArrays.compareAndSet(sizeIndex, null, array);
+        return mSubTableArrays.get(sizeIndex);
+    }
+
+    /**
+     * 查找字形图像在数据表中的位置
+     *
+     * @param sizeIndex 尺寸序号
+     * @param glyphId   字形ID
+     * @return 位置，该尺寸不包含字形时返回空
+     * @throws IOException 数据错误
+     */
+    Location findGlyph(int sizeIndex, int glyphId) throws IOException {
+        final BitmapSize size = mSizes[sizeIndex];
+        if (!size.containsGlyph(glyphId))
+            return null;
+        final int[] array = getSubTableArray(sizeIndex);
+        // 子表按 firstGlyphIndex 升序排列
+        int low = 0;
+        int high = array.length / 3 - 1;
+        int found = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid * 3] <= glyphId) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || glyphId > array[found * 3 + 1])
+            return null;
+        final int first = array[found * 3];
+        final int subTable = array[found * 3 + 2];
+        final boolean vertical = (size.getFlags() & BitmapSize.FLAG_HORIZONTAL_METRICS) == 0
+                && (size.getFlags() & BitmapSize.FLAG_VERTICAL_METRICS) != 0;
+        try {
+            final int indexFormat = mData.getChar(subTable);
+            final int imageFormat = mData.getChar(subTable + 2);
+            final int imageDataOffset = mData.getInt(subTable + 4);
+            final int start;
+            final int end;
+            int[] metrics = null;
+            switch (indexFormat) {
+                default:
+                    return null;
+                case 1: {
+                    // Offset32 sbitOffsets[lastGlyphIndex - firstGlyphIndex + 2]
+                    final int offset = subTable + 8 + (glyphId - first) * 4;
+                    start = mData.getInt(offset);
+                    end = mData.getInt(offset + 4);
+                    break;
+                }
+                case 2: {
+                    // All glyphs have identical data sizes and metrics
+                    final int imageSize = mData.getInt(subTable + 8);
+                    metrics = BitmapGlyph.readBigMetrics(mData, subTable + 12);
+                    start = (glyphId - first) * imageSize;
+                    end = start + imageSize;
+                    break;
+                }
+                case 3: {
+                    // Offset16 sbitOffsets[lastGlyphIndex - firstGlyphIndex + 2]
+                    final int offset = subTable + 8 + (glyphId - first) * 2;
+                    start = mData.getChar(offset);
+                    end = mData.getChar(offset + 2);
+                    break;
+                }
+                case 4: {
+                    // Sparse glyph codes, GlyphIdOffsetPair glyphArray[numGlyphs + 1]
+                    final int numGlyphs = mData.getInt(subTable + 8);
+                    final int index = searchGlyph(subTable + 12, 4, numGlyphs, glyphId);
+                    if (index < 0)
+                        return null;
+                    final int pair = subTable + 12 + index * 4;
+                    start = mData.getChar(pair + 2);
+                    end = mData.getChar(pair + 6);
+                    break;
+                }
+                case 5: {
+                    // Sparse glyph codes with identical data sizes and metrics
+                    final int imageSize = mData.getInt(subTable + 8);
+                    metrics = BitmapGlyph.readBigMetrics(mData, subTable + 12);
+                    final int numGlyphs = mData.getInt(subTable + 20);
+                    final int index = searchGlyph(subTable + 24, 2, numGlyphs, glyphId);
+                    if (index < 0)
+                        return null;
+                    start = index * imageSize;
+                    end = start + imageSize;
+                    break;
+                }
+            }
+            if (end <= start)
+                return null;// 范围内缺失的字形
+            return new Location(imageFormat, imageDataOffset + start, end - start,
+                    size.getBitDepth(), vertical, metrics);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private int searchGlyph(int offset, int stride, int count, int glyphId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int value = mData.getChar(offset + mid * stride);
+            if (value < glyphId)
+                low = mid + 1;
+            else if (value > glyphId)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+        result = 31 * result + Arrays.hashCode(mSizes);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "BitmapLocationTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", sizes=" + Arrays.toString(mSizes) +
+                '}';
+    }
+
+    /**
+     * 字形图像位置
+     */
+    static final class Location {
+        final int mImageFormat;
+        final int mOffset;
+        final int mLength;
+        final int mBitDepth;
+        final boolean mVertical;
+        final int[] mMetrics;
+
+        Location(int imageFormat, int offset, int length, int bitDepth, boolean vertical,
+                 int[] metrics) {
+            mImageFormat = imageFormat;
+            mOffset = offset;
+            mLength = length;
+            mBitDepth = bitDepth;
+            mVertical = vertical;
+            mMetrics = metrics;
+        }
+    }
+}
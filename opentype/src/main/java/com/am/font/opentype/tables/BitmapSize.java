@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.util.Objects;
+
+/**
+ * Bitmap Size Record
+ * Each strike is defined by one BitmapSize record. It gives the size, color depth and glyph
+ * range of the strike together with the line metrics of the horizontal and vertical layout.
+ */
+@SuppressWarnings("unused")
+public class BitmapSize {
+
+    /**
+     * Horizontal metrics.
+     */
+    public static final int FLAG_HORIZONTAL_METRICS = 0x01;
+    /**
+     * Vertical metrics.
+     */
+    public static final int FLAG_VERTICAL_METRICS = 0x02;
+    private final int mIndexSubTableArrayOffset;
+    private final int mNumberOfIndexSubTables;
+    private final int mHoriAscender;
+    private final int mHoriDescender;
+    private final int mVertAscender;
+    private final int mVertDescender;
+    private final int mStartGlyphIndex;
+    private final int mEndGlyphIndex;
+    private final int mPpemX;
+    private final int mPpemY;
+    private final int mBitDepth;
+    private final int mFlags;
+
+    BitmapSize(int indexSubTableArrayOffset, int numberOfIndexSubTables,
+               int horiAscender, int horiDescender, int vertAscender, int vertDescender,
+               int startGlyphIndex, int endGlyphIndex, int ppemX, int ppemY, int bitDepth,
+               int flags) {
+        mIndexSubTableArrayOffset = indexSubTableArrayOffset;
+        mNumberOfIndexSubTables = numberOfIndexSubTables;
+        mHoriAscender = horiAscender;
+        mHoriDescender = horiDescender;
+        mVertAscender = vertAscender;
+        mVertDescender = vertDescender;
+        mStartGlyphIndex = startGlyphIndex;
+        mEndGlyphIndex = endGlyphIndex;
+        mPpemX = ppemX;
+        mPpemY = ppemY;
+        mBitDepth = bitDepth;
+        mFlags = flags;
+    }
+
+    /**
+     * Offset to IndexSubtableArray, from beginning of the location table.
+     *
+     * @return Index subtable array offset.
+     */
+    public int getIndexSubTableArrayOffset() {
+        return mIndexSubTableArrayOffset;
+    }
+
+    /**
+     * There is an IndexSubtable for each range or format change.
+     *
+     * @return Number of index subtables.
+     */
+    public int getNumberOfIndexSubTables() {
+        return mNumberOfIndexSubTables;
+    }
+
+    /**
+     * Ascender of the horizontal line metrics, in pixels.
+     *
+     * @return Ascender.
+     */
+    public int getHoriAscender() {
+        return mHoriAscender;
+    }
+
+    /**
+     * Descender of the horizontal line metrics, in pixels.
+     *
+     * @return Descender.
+     */
+    public int getHoriDescender() {
+        return mHoriDescender;
+    }
+
+    /**
+     * Ascender of the vertical line metrics, in pixels.
+     *
+     * @return Ascender.
+     */
+    public int getVertAscender() {
+        return mVertAscender;
+    }
+
+    /**
+     * Descender of the vertical line metrics, in pixels.
+     *
+     * @return Descender.
+     */
+    public int getVertDescender() {
+        return mVertDescender;
+    }
+
+    /**
+     * Lowest glyph index for this size.
+     *
+     * @return Start glyph index.
+     */
+    public int getStartGlyphIndex() {
+        return mStartGlyphIndex;
+    }
+
+    /**
+     * Highest glyph index for this size.
+     *
+     * @return End glyph index.
+     */
+    public int getEndGlyphIndex() {
+        return mEndGlyphIndex;
+    }
+
+    /**
+     * Horizontal pixels per em.
+     *
+     * @return Ppem x.
+     */
+    public int getPpemX() {
+        return mPpemX;
+    }
+
+    /**
+     * Vertical pixels per em.
+     *
+     * @return Ppem y.
+     */
+    public int getPpemY() {
+        return mPpemY;
+    }
+
+    /**
+     * The Microsoft rasterizer v.1.7 or greater supports the following bitDepth values,
+     * as described below: 1, 2, 4, and 8 (and 32 for color bitmaps).
+     *
+     * @return Bit depth.
+     */
+    public int getBitDepth() {
+        return mBitDepth;
+    }
+
+    /**
+     * Vertical or horizontal (see Bitmap Flags).
+     *
+     * @return Flags.
+     */
+    public int getFlags() {
+        return mFlags;
+    }
+
+    /**
+     * 判断是否包含字形
+     *
+     * @param glyphId 字形ID
+     * @return 字形ID在本尺寸的范围内时返回true
+     */
+    public boolean containsGlyph(int glyphId) {
+        return glyphId >= mStartGlyphIndex && glyphId <= mEndGlyphIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitmapSize that = (BitmapSize) o;
+        return mIndexSubTableArrayOffset == that.mIndexSubTableArrayOffset &&
+                mNumberOfIndexSubTables == that.mNumberOfIndexSubTables &&
+                mHoriAscender == that.mHoriAscender &&
+                mHoriDescender == that.mHoriDescender &&
+                mVertAscender == that.mVertAscender &&
+                mVertDescender == that.mVertDescender &&
+                mStartGlyphIndex == that.mStartGlyphIndex &&
+                mEndGlyphIndex == that.mEndGlyphIndex &&
+                mPpemX == that.mPpemX &&
+                mPpemY == that.mPpemY &&
+                mBitDepth == that.mBitDepth &&
+                mFlags == that.mFlags;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mIndexSubTableArrayOffset, mNumberOfIndexSubTables, mHoriAscender,
+                mHoriDescender, mVertAscender, mVertDescender, mStartGlyphIndex, mEndGlyphIndex,
+                mPpemX, mPpemY, mBitDepth, mFlags);
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapSize{" +
+                "indexSubTableArrayOffset=" + mIndexSubTableArrayOffset +
+                ", numberOfIndexSubTables=" + mNumberOfIndexSubTables +
+                ", horiAscender=" + mHoriAscender +
+                ", horiDescender=" + mHoriDescender +
+                ", vertAscender=" + mVertAscender +
+                ", vertDescender=" + mVertDescender +
+                ", startGlyphIndex=" + mStartGlyphIndex +
+                ", endGlyphIndex=" + mEndGlyphIndex +
+                ", ppemX=" + mPpemX +
+                ", ppemY=" + mPpemY +
+                ", bitDepth=" + mBitDepth +
+                ", flags=" + mFlags +
+                '}';
+    }
+}
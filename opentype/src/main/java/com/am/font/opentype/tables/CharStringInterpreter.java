@@ -0,0 +1,700 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Type 2 CharString 解释器
+ * Executes Type 2 charstrings (CFF) and CFF2 charstrings and emits cubic outlines. Hints are
+ * parsed only as far as needed to skip hintmask bytes. Subroutines are executed in place when
+ * called, nothing is expanded ahead of time. In CFF2 mode the blend operator applies the
+ * region scalars of the current vsindex.
+ * 解释器复用内部缓冲区，非线程安全。
+ */
+final class CharStringInterpreter {
+
+    private static final int MAX_STACK = 513;
+    private static final int MAX_SUBR_DEPTH = 10;
+    private static final int MAX_SEAC_DEPTH = 1;
+    private static final ThreadLocal<CharStringInterpreter> INTERPRETERS =
+            new ThreadLocal<CharStringInterpreter>() {
+                @Override
+                protected CharStringInterpreter initialValue() {
+                    return new CharStringInterpreter();
+                }
+            };
+    private final float[] mStack = new float[MAX_STACK];
+    private final float[] mTransient = new float[32];
+    private int mTop;
+    private int mStems;
+    private boolean mHaveWidth;
+    private boolean mOpen;
+    private boolean mEnded;
+    private float mX;
+    private float mY;
+    private float mOffsetX;
+    private float mOffsetY;
+    private float[] mMatrix;
+    private ByteBuffer mData;
+    private CompactFontFormatIndex mCharStrings;
+    private CompactFontFormatIndex mGlobalSubrs;
+    private int[] mSeacGlyphIds;
+    private GlyphOutlineSink mSink;
+    private boolean mCff2;
+    private float[][] mScalars;
+    private int mVsIndex;
+
+    /**
+     * 获取当前线程的解释器
+     *
+     * @return 解释器
+     */
+    static CharStringInterpreter get() {
+        return INTERPRETERS.get();
+    }
+
+    /**
+     * 解码字形
+     *
+     * @param data         表数据
+     * @param charStrings  CharStrings INDEX
+     * @param glyphId      字形ID
+     * @param globalSubrs  全局子程序
+     * @param localSubrs   局部子程序
+     * @param seacGlyphIds 标准编码到字形ID的映射，用于 endchar 的重音组合，CID 字体为空
+     * @param matrix       输出坐标的仿射变换 xx, yx, xy, yy, dx, dy，为空时不变换
+     * @param sink         轮廓接收器
+     * @throws IOException 数据错误
+     */
+    void decode(ByteBuffer data, CompactFontFormatIndex charStrings, int glyphId,
+                CompactFontFormatIndex globalSubrs, CompactFontFormatIndex localSubrs,
+                int[] seacGlyphIds, float[] matrix, GlyphOutlineSink sink) throws IOException {
+        mCff2 = false;
+        mScalars = null;
+        mSeacGlyphIds = seacGlyphIds;
+        mMatrix = matrix;
+        decode(data, charStrings, glyphId, globalSubrs, localSubrs, sink);
+    }
+
+    /**
+     * 解码 CFF2 字形
+     *
+     * @param data        表数据
+     * @param charStrings CharStrings INDEX
+     * @param glyphId     字形ID
+     * @param globalSubrs 全局子程序
+     * @param localSubrs  局部子程序
+     * @param vsindex     Private DICT 指定的默认 vsindex
+     * @param scalars     各数据子表的区域系数，默认实例为全零，无变体数据时为空
+     * @param sink        轮廓接收器
+     * @throws IOException 数据错误
+     */
+    void decode(ByteBuffer data, CompactFontFormatIndex charStrings, int glyphId,
+                CompactFontFormatIndex globalSubrs, CompactFontFormatIndex localSubrs,
+                int vsindex, float[][] scalars, GlyphOutlineSink sink) throws IOException {
+        mCff2 = true;
+        mScalars = scalars;
+        mVsIndex = vsindex;
+        mSeacGlyphIds = null;
+        mMatrix = null;
+        decode(data, charStrings, glyphId, globalSubrs, localSubrs, sink);
+    }
+
+    private void decode(ByteBuffer data, CompactFontFormatIndex charStrings, int glyphId,
+                        CompactFontFormatIndex globalSubrs, CompactFontFormatIndex localSubrs,
+                        GlyphOutlineSink sink) throws IOException {
+        mData = data;
+        mCharStrings = charStrings;
+        mGlobalSubrs = globalSubrs;
+        mSink = sink;
+        try {
+            decode(glyphId, localSubrs, 0, 0, 0);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        } finally {
+            mData = null;
+            mCharStrings = null;
+            mGlobalSubrs = null;
+            mSeacGlyphIds = null;
+            mSink = null;
+            mScalars = null;
+            mMatrix = null;
+        }
+    }
+
+    private void decode(int glyphId, CompactFontFormatIndex localSubrs, float offsetX,
+                        float offsetY, int depth) throws IOException {
+        mTop = 0;
+        mStems = 0;
+        mHaveWidth = false;
+        mOpen = false;
+        mEnded = false;
+        mX = 0;
+        mY = 0;
+        mOffsetX = offsetX;
+        mOffsetY = offsetY;
+        execute(mCharStrings.getStart(glyphId), mCharStrings.getEnd(glyphId), localSubrs,
+                0, depth);
+        closePath();
+    }
+
+    private void execute(int start, int end, CompactFontFormatIndex localSubrs, int subrDepth,
+                         int seacDepth) throws IOException {
+        if (subrDepth > MAX_SUBR_DEPTH)
+            throw new IOException();
+        final ByteBuffer data = mData;
+        final float[] s = mStack;
+        int position = start;
+        while (position < end) {
+            final int b0 = data.get(position++) & 0xFF;
+            if (b0 >= 32 || b0 == 28) {
+                if (mTop >= MAX_STACK)
+                    throw new IOException();
+                if (b0 == 28) {
+                    s[mTop++] = data.getShort(position);
+                    position += 2;
+                } else if (b0 <= 246) {
+                    s[mTop++] = b0 - 139;
+                } else if (b0 <= 250) {
+                    s[mTop++] = (b0 - 247) * 256 + (data.get(position++) & 0xFF) + 108;
+                } else if (b0 <= 254) {
+                    s[mTop++] = -(b0 - 251) * 256 - (data.get(position++) & 0xFF) - 108;
+                } else {
+                    s[mTop++] = data.getInt(position) / 65536f;
+                    position += 4;
+                }
+                continue;
+            }
+            switch (b0) {
+                case 1:// hstem
+                case 3:// vstem
+                case 18:// hstemhm
+                case 23:// vstemhm
+                    parseWidth((mTop & 1) != 0);
+                    mStems += mTop / 2;
+                    mTop = 0;
+                    break;
+                case 19:// hintmask
+                case 20:// cntrmask
+                    // 紧随 hstem 的参数为隐含的 vstem
+                    parseWidth((mTop & 1) != 0);
+                    mStems += mTop / 2;
+                    mTop = 0;
+                    position += (mStems + 7) / 8;
+                    break;
+                case 21:// rmoveto
+                    parseWidth(mTop > 2);
+                    checkArguments(2);
+                    moveTo(mX + s[0], mY + s[1]);
+                    break;
+                case 22:// hmoveto
+                    parseWidth(mTop > 1);
+                    checkArguments(1);
+                    moveTo(mX + s[0], mY);
+                    break;
+                case 4:// vmoveto
+                    parseWidth(mTop > 1);
+                    checkArguments(1);
+                    moveTo(mX, mY + s[0]);
+                    break;
+                case 5:// rlineto
+                    for (int i = 0; i + 2 <= mTop; i += 2) {
+                        lineTo(mX + s[i], mY + s[i + 1]);
+                    }
+                    mTop = 0;
+                    break;
+                case 6:// hlineto
+                case 7: {// vlineto
+                    boolean horizontal = b0 == 6;
+                    for (int i = 0; i < mTop; i++) {
+                        if (horizontal)
+                            lineTo(mX + s[i], mY);
+                        else
+                            lineTo(mX, mY + s[i]);
+                        horizontal = !horizontal;
+                    }
+                    mTop = 0;
+                    break;
+                }
+                case 8:// rrcurveto
+                    for (int i = 0; i + 6 <= mTop; i += 6) {
+                        curveTo(s, i);
+                    }
+                    mTop = 0;
+                    break;
+                case 24: {// rcurveline
+                    int i = 0;
+                    for (; i + 6 <= mTop - 2; i += 6) {
+                        curveTo(s, i);
+                    }
+                    if (i + 2 <= mTop)
+                        lineTo(mX + s[i], mY + s[i + 1]);
+                    mTop = 0;
+                    break;
+                }
+                case 25: {// rlinecurve
+                    int i = 0;
+                    for (; i + 2 <= mTop - 6; i += 2) {
+                        lineTo(mX + s[i], mY + s[i + 1]);
+                    }
+                    if (i + 6 <= mTop)
+                        curveTo(s, i);
+                    mTop = 0;
+                    break;
+                }
+                case 26: {// vvcurveto
+                    int i = 0;
+                    float dx1 = 0;
+                    if ((mTop & 1) != 0) {
+                        dx1 = s[0];
+                        i = 1;
+                    }
+                    for (; i + 4 <= mTop; i += 4) {
+                        final float x1 = mX + dx1;
+                        final float y1 = mY + s[i];
+                        final float x2 = x1 + s[i + 1];
+                        final float y2 = y1 + s[i + 2];
+                        curveTo(x1, y1, x2, y2, x2, y2 + s[i + 3]);
+                        dx1 = 0;
+                    }
+                    mTop = 0;
+                    break;
+                }
+                case 27: {// hhcurveto
+                    int i = 0;
+                    float dy1 = 0;
+                    if ((mTop & 1) != 0) {
+                        dy1 = s[0];
+                        i = 1;
+                    }
+                    for (; i + 4 <= mTop; i += 4) {
+                        final float x1 = mX + s[i];
+                        final float y1 = mY + dy1;
+                        final float x2 = x1 + s[i + 1];
+                        final float y2 = y1 + s[i + 2];
+                        curveTo(x1, y1, x2, y2, x2 + s[i + 3], y2);
+                        dy1 = 0;
+                    }
+                    mTop = 0;
+                    break;
+                }
+                case 30:// vhcurveto
+                case 31: {// hvcurveto
+                    boolean horizontal = b0 == 31;
+                    for (int i = 0; i + 4 <= mTop; ) {
+                        final boolean last = mTop - i == 5;
+                        if (horizontal) {
+                            final float x1 = mX + s[i];
+                            final float y1 = mY;
+                            final float x2 = x1 + s[i + 1];
+                            final float y2 = y1 + s[i + 2];
+                            curveTo(x1, y1, x2, y2, x2 + (last ? s[i + 4] : 0), y2 + s[i + 3]);
+                        } else {
+                            final float x1 = mX;
+                            final float y1 = mY + s[i];
+                            final float x2 = x1 + s[i + 1];
+                            final float y2 = y1 + s[i + 2];
+                            curveTo(x1, y1, x2, y2, x2 + s[i + 3], y2 + (last ? s[i + 4] : 0));
+                        }
+                        i += last ? 5 : 4;
+                        horizontal = !horizontal;
+                    }
+                    mTop = 0;
+                    break;
+                }
+                case 10:// callsubr
+                case 29: {// callgsubr
+                    final CompactFontFormatIndex subrs = b0 == 10 ? localSubrs : mGlobalSubrs;
+                    if (subrs == null || mTop < 1)
+                        throw new IOException();
+                    final int index = (int) s[--mTop] + subrs.getSubroutineBias();
+                    execute(subrs.getStart(index), subrs.getEnd(index), localSubrs,
+                            subrDepth + 1, seacDepth);
+                    if (mEnded)
+                        return;
+                    break;
+                }
+                case 11:// return
+                    return;
+                case 14:// endchar
+                    parseWidth(mTop == 1 || mTop == 5);
+                    if (mTop >= 4) {
+                        seac(localSubrs, seacDepth);
+                    } else {
+                        closePath();
+                    }
+                    mTop = 0;
+                    mEnded = true;
+                    return;
+                case 12:
+                    executeEscape(data.get(position++) & 0xFF);
+                    break;
+                case 15:// vsindex
+                    if (!mCff2 || mTop < 1)
+                        throw new IOException();
+                    mVsIndex = (int) s[--mTop];
+                    mTop = 0;
+                    break;
+                case 16:// blend
+                    blend();
+                    break;
+                default:
+                    throw new IOException();
+            }
+        }
+    }
+
+    private void executeEscape(int operator) throws IOException {
+        final float[] s = mStack;
+        switch (operator) {
+            case 35: {// flex
+                checkArguments(13);
+                curveTo(s, 0);
+                curveTo(s, 6);
+                break;
+            }
+            case 34: {// hflex
+                checkArguments(7);
+                final float y = mY;
+                curveTo(mX + s[0], y, mX + s[0] + s[1], y + s[2], mX + s[0] + s[1] + s[3],
+                        y + s[2]);
+                curveTo(mX + s[4], mY, mX + s[4] + s[5], y, mX + s[4] + s[5] + s[6], y);
+                break;
+            }
+            case 36: {// hflex1
+                checkArguments(9);
+                final float y = mY;
+                final float x1 = mX + s[0];
+                final float y1 = y + s[1];
+                final float x2 = x1 + s[2];
+                final float y2 = y1 + s[3];
+                curveTo(x1, y1, x2, y2, x2 + s[4], y2);
+                final float x4 = mX + s[5];
+                final float y4 = mY;
+                final float x5 = x4 + s[6];
+                final float y5 = y4 + s[7];
+                curveTo(x4, y4, x5, y5, x5 + s[8], y);
+                break;
+            }
+            case 37: {// flex1
+                checkArguments(11);
+                final float x = mX;
+                final float y = mY;
+                float dx = 0;
+                float dy = 0;
+                for (int i = 0; i < 10; i += 2) {
+                    dx += s[i];
+                    dy += s[i + 1];
+                }
+                final float x1 = x + s[0];
+                final float y1 = y + s[1];
+                final float x2 = x1 + s[2];
+                final float y2 = y1 + s[3];
+                final float x3 = x2 + s[4];
+                final float y3 = y2 + s[5];
+                curveTo(x1, y1, x2, y2, x3, y3);
+                final float x4 = x3 + s[6];
+                final float y4 = y3 + s[7];
+                final float x5 = x4 + s[8];
+                final float y5 = y4 + s[9];
+                if (Math.abs(dx) > Math.abs(dy))
+                    curveTo(x4, y4, x5, y5, x5 + s[10], y);
+                else
+                    curveTo(x4, y4, x5, y5, x, y5 + s[10]);
+                break;
+            }
+            default:
+                executeArithmetic(operator);
+                return;
+        }
+        mTop = 0;
+    }
+
+    /**
+     * 算术与存储运算符，不清空参数栈
+     */
+    private void executeArithmetic(int operator) throws IOException {
+        final float[] s = mStack;
+        switch (operator) {
+            case 3:// and
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] = s[mTop - 1] != 0 && s[mTop] != 0 ? 1 : 0;
+                break;
+            case 4:// or
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] = s[mTop - 1] != 0 || s[mTop] != 0 ? 1 : 0;
+                break;
+            case 5:// not
+                checkOperands(1);
+                s[mTop - 1] = s[mTop - 1] == 0 ? 1 : 0;
+                break;
+            case 9:// abs
+                checkOperands(1);
+                s[mTop - 1] = Math.abs(s[mTop - 1]);
+                break;
+            case 10:// add
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] += s[mTop];
+                break;
+            case 11:// sub
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] -= s[mTop];
+                break;
+            case 12:// div
+                checkOperands(2);
+                mTop--;
+                if (s[mTop] == 0)
+                    throw new IOException();
+                s[mTop - 1] /= s[mTop];
+                break;
+            case 14:// neg
+                checkOperands(1);
+                s[mTop - 1] = -s[mTop - 1];
+                break;
+            case 15:// eq
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] = s[mTop - 1] == s[mTop] ? 1 : 0;
+                break;
+            case 18:// drop
+                checkOperands(1);
+                mTop--;
+                break;
+            case 20: {// put
+                checkOperands(2);
+                final int index = (int) s[mTop - 1];
+                if (index < 0 || index >= mTransient.length)
+                    throw new IOException();
+                mTransient[index] = s[mTop - 2];
+                mTop -= 2;
+                break;
+            }
+            case 21: {// get
+                checkOperands(1);
+                final int index = (int) s[mTop - 1];
+                if (index < 0 || index >= mTransient.length)
+                    throw new IOException();
+                s[mTop - 1] = mTransient[index];
+                break;
+            }
+            case 22:// ifelse
+                checkOperands(4);
+                mTop -= 3;
+                if (s[mTop + 1] > s[mTop + 2])
+                    s[mTop - 1] = s[mTop];
+                break;
+            case 23:// random，输出需稳定，取固定值
+                push(0.5f);
+                break;
+            case 24:// mul
+                checkOperands(2);
+                mTop--;
+                s[mTop - 1] *= s[mTop];
+                break;
+            case 26:// sqrt
+                checkOperands(1);
+                s[mTop - 1] = (float) Math.sqrt(Math.abs(s[mTop - 1]));
+                break;
+            case 27:// dup
+                checkOperands(1);
+                push(s[mTop - 1]);
+                break;
+            case 28: {// exch
+                checkOperands(2);
+                final float t = s[mTop - 1];
+                s[mTop - 1] = s[mTop - 2];
+                s[mTop - 2] = t;
+                break;
+            }
+            case 29: {// index
+                checkOperands(1);
+                int index = (int) s[mTop - 1];
+                if (index < 0)
+                    index = 0;
+                if (index > mTop - 2)
+                    throw new IOException();
+                s[mTop - 1] = s[mTop - 2 - index];
+                break;
+            }
+            case 30: {// roll
+                checkOperands(2);
+                final int j = (int) s[mTop - 1];
+                final int n = (int) s[mTop - 2];
+                mTop -= 2;
+                if (n <= 0 || n > mTop)
+                    throw new IOException();
+                final int shift = ((j % n) + n) % n;
+                final int base = mTop - n;
+                final float[] copy = new float[n];
+                System.arraycopy(s, base, copy, 0, n);
+                for (int i = 0; i < n; i++) {
+                    s[base + (i + shift) % n] = copy[i];
+                }
+                break;
+            }
+            default:
+                throw new IOException();
+        }
+    }
+
+    /**
+     * 按当前 vsindex 的区域系数混合默认值与增量，结果留在参数栈中
+     */
+    private void blend() throws IOException {
+        if (!mCff2 || mTop < 1 || mScalars == null || mVsIndex < 0 ||
+                mVsIndex >= mScalars.length)
+            throw new IOException();
+        final float[] s = mStack;
+        final int count = (int) s[--mTop];
+        final float[] scalars = mScalars[mVsIndex];
+        final int regions = scalars.length;
+        final int base = mTop - count * (regions + 1);
+        if (count < 0 || base < 0)
+            throw new IOException();
+        int delta = base + count;
+        for (int i = 0; i < count; i++) {
+            float value = s[base + i];
+            for (int j = 0; j < regions; j++) {
+                value += s[delta++] * scalars[j];
+            }
+            s[base + i] = value;
+        }
+        mTop = base + count;
+    }
+
+    private void push(float value) throws IOException {
+        if (mTop >= MAX_STACK)
+            throw new IOException();
+        mStack[mTop++] = value;
+    }
+
+    private void checkOperands(int count) throws IOException {
+        if (mTop < count)
+            throw new IOException();
+    }
+
+    private void checkArguments(int count) throws IOException {
+        if (mTop < count)
+            throw new IOException();
+        mTop = 0;
+    }
+
+    /**
+     * 首个清栈运算符可能携带步进宽度参数，宽度由 'hmtx' 提供，此处仅将其移出参数栈
+     */
+    private void parseWidth(boolean hasWidth) {
+        if (mHaveWidth || mCff2)
+            return;
+        mHaveWidth = true;
+        if (hasWidth && mTop > 0) {
+            System.arraycopy(mStack, 1, mStack, 0, mTop - 1);
+            mTop--;
+        }
+    }
+
+    private void seac(CompactFontFormatIndex localSubrs, int depth) throws IOException {
+        final float[] s = mStack;
+        final float adx = s[mTop - 4];
+        final float ady = s[mTop - 3];
+        final int base = (int) s[mTop - 2];
+        final int accent = (int) s[mTop - 1];
+        if (depth >= MAX_SEAC_DEPTH || mSeacGlyphIds == null || base < 0 || base > 255 ||
+                accent < 0 || accent > 255)
+            throw new IOException();
+        final int baseGlyph = mSeacGlyphIds[base];
+        final int accentGlyph = mSeacGlyphIds[accent];
+        if (baseGlyph < 0 || accentGlyph < 0)
+            throw new IOException();
+        closePath();
+        final float offsetX = mOffsetX;
+        final float offsetY = mOffsetY;
+        decode(baseGlyph, localSubrs, offsetX, offsetY, depth + 1);
+        decode(accentGlyph, localSubrs, offsetX + adx, offsetY + ady, depth + 1);
+    }
+
+    private void moveTo(float x, float y) {
+        closePath();
+        mX = x;
+        mY = y;
+        final float[] m = mMatrix;
+        x += mOffsetX;
+        y += mOffsetY;
+        if (m == null)
+            mSink.moveTo(x, y);
+        else
+            mSink.moveTo(m[0] * x + m[2] * y + m[4], m[1] * x + m[3] * y + m[5]);
+        mOpen = true;
+    }
+
+    private void lineTo(float x, float y) throws IOException {
+        if (!mOpen)
+            throw new IOException();
+        mX = x;
+        mY = y;
+        final float[] m = mMatrix;
+        x += mOffsetX;
+        y += mOffsetY;
+        if (m == null)
+            mSink.lineTo(x, y);
+        else
+            mSink.lineTo(m[0] * x + m[2] * y + m[4], m[1] * x + m[3] * y + m[5]);
+    }
+
+    private void curveTo(float[] s, int i) throws IOException {
+        final float x1 = mX + s[i];
+        final float y1 = mY + s[i + 1];
+        final float x2 = x1 + s[i + 2];
+        final float y2 = y1 + s[i + 3];
+        curveTo(x1, y1, x2, y2, x2 + s[i + 4], y2 + s[i + 5]);
+    }
+
+    private void curveTo(float x1, float y1, float x2, float y2, float x3, float y3)
+            throws IOException {
+        if (!mOpen)
+            throw new IOException();
+        mX = x3;
+        mY = y3;
+        final float ox = mOffsetX;
+        final float oy = mOffsetY;
+        final float[] m = mMatrix;
+        if (m == null) {
+            mSink.curveTo(x1 + ox, y1 + oy, x2 + ox, y2 + oy, x3 + ox, y3 + oy);
+            return;
+        }
+        x1 += ox;
+        y1 += oy;
+        x2 += ox;
+        y2 += oy;
+        x3 += ox;
+        y3 += oy;
+        mSink.curveTo(m[0] * x1 + m[2] * y1 + m[4], m[1] * x1 + m[3] * y1 + m[5],
+                m[0] * x2 + m[2] * y2 + m[4], m[1] * x2 + m[3] * y2 + m[5],
+                m[0] * x3 + m[2] * y3 + m[4], m[1] * x3 + m[3] * y3 + m[5]);
+    }
+
+    private void closePath() {
+        if (mOpen) {
+            mSink.closePath();
+            mOpen = false;
+        }
+    }
+}
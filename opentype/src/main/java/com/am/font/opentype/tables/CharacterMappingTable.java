@@ -53,6 +53,20 @@ public class CharacterMappingTable extends BaseTable {
             final int offset = reader.readUnsignedInt();
             encodingRecords.add(new EncodingRecord(platformID, encodingID, offset));
         }
+        // 优先选取 Unicode 完整字符集子表，其次 BMP 子表，均不存在时使用第一个子表
+        int selected = 0;
+        int priority = -1;
+        for (int i = 0; i < numTables; i++) {
+            final EncodingRecord encodingRecord = encodingRecords.get(i);
+            final int p = getUnicodePriority(encodingRecord.getPlatformID(),
+                    encodingRecord.getEncodingID());
+            if (p > priority) {
+                selected = i;
+                priority = p;
+            }
+        }
+        if (numTables > 0)
+            reader.seek(record.getOffset() + encodingRecords.get(selected).getOffset());
         final long point = reader.getPointer();
         final int format = reader.readUnsignedShort();
         final SubTable subTable;
@@ -133,8 +147,8 @@ public class CharacterMappingTable extends BaseTable {
             }
             final long pos = reader.getPointer();
             final int[] glyphIdArray;
-            if (pos < record.getOffset() + length) {
-                final int count = (int) (record.getOffset() + length - pos) / 2;
+            if (pos < point + length) {
+                final int count = (int) (point + length - pos) / 2;
                 glyphIdArray = new int[count];
                 for (int i = 0; i < count; i++) {
                     glyphIdArray[i] = reader.readUnsignedShort();
@@ -319,6 +333,64 @@ public class CharacterMappingTable extends BaseTable {
         return mSubTable;
     }
 
+    /**
+     * Maps a Unicode code point to a glyph ID through the selected sub table.
+     *
+     * @param codePoint Unicode code point
+     * @return Glyph ID, 0 (missing glyph) if the code point is not mapped.
+     */
+    public int getGlyphId(int codePoint) {
+        return mSubTable.getGlyphId(codePoint);
+    }
+
+    private static int getUnicodePriority(int platformID, int encodingID) {
+        if (platformID == 3) {
+            if (encodingID == 10)
+                return 6;// Unicode full repertoire
+            if (encodingID == 1)
+                return 4;// Unicode BMP
+            if (encodingID == 0)
+                return 1;// Symbol
+            return 0;
+        }
+        if (platformID == 0) {
+            if (encodingID == 4 || encodingID == 6)
+                return 5;// Unicode 2.0 full repertoire and full repertoire for format 13
+            if (encodingID == 5)
+                return -1;// Unicode Variation Sequences
+            return 3;// Unicode BMP
+        }
+        return 0;
+    }
+
+    private static int[] toRanges(List<SequentialMapGroupRecord> groups) {
+        // 每组依次为 startCharCode、endCharCode、startGlyphID，便于二分查找时顺序访问
+        final int[] ranges = new int[groups.size() * 3];
+        for (int i = 0; i < groups.size(); i++) {
+            final SequentialMapGroupRecord group = groups.get(i);
+            ranges[i * 3] = group.getStartCharCode();
+            ranges[i * 3 + 1] = group.getEndCharCode();
+            ranges[i * 3 + 2] = group.getStartGlyphID();
+        }
+        return ranges;
+    }
+
+    private static int getSequentialGlyphId(int[] ranges, int charCode) {
+        int low = 0;
+        int high = ranges.length / 3 - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int index = mid * 3;
+            if (charCode < ranges[index])
+                high = mid - 1;
+            else if (charCode > ranges[index + 1])
+                low = mid + 1;
+            else
+                return ranges[index + 2] + (charCode - ranges[index]);
+        }
+        return 0;
+    }
+
     @Override
     public int getHashCode() {
         return Objects.hash(super.getHashCode(), mVersion, mNumTables, mEncodingRecords, mSubTable);
@@ -963,6 +1035,17 @@ public class CharacterMappingTable extends BaseTable {
             return format;
         }
 
+        /**
+         * Maps a character code to a glyph ID, formats without a character lookup
+         * (format 2, format 14 and unknown formats) map every character code to 0.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        public int getGlyphId(int charCode) {
+            return 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1028,6 +1111,17 @@ public class CharacterMappingTable extends BaseTable {
             return mGlyphIds;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            return charCode >= 0 && charCode < mGlyphIds.length ? mGlyphIds[charCode] : 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1293,6 +1387,40 @@ public class CharacterMappingTable extends BaseTable {
             return mGlyphIdArray;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            if (charCode < 0 || charCode > 0xFFFF)
+                return 0;
+            // 二分查找首个 endCode >= charCode 的分段
+            final int segCount = mEndCode.length;
+            int low = 0;
+            int high = segCount - 1;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mEndCode[mid] < charCode)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            if (low >= segCount || mEndCode[low] < charCode || mStartCode[low] > charCode)
+                return 0;
+            final int idRangeOffset = mIdRangeOffset[low];
+            if (idRangeOffset == 0)
+                return (charCode + mIdDelta[low]) & 0xFFFF;
+            // idRangeOffset 相对于自身位置，glyphIdArray 紧随 idRangeOffset 数组之后
+            final int index = idRangeOffset / 2 + (charCode - mStartCode[low]) - (segCount - low);
+            if (mGlyphIdArray == null || index < 0 || index >= mGlyphIdArray.length)
+                return 0;
+            final int glyphId = mGlyphIdArray[index];
+            return glyphId == 0 ? 0 : (glyphId + mIdDelta[low]) & 0xFFFF;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1410,6 +1538,18 @@ public class CharacterMappingTable extends BaseTable {
             return mGlyphIdArray;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            final int index = charCode - mFirstCode;
+            return index >= 0 && index < mGlyphIdArray.length ? mGlyphIdArray[index] : 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1453,6 +1593,7 @@ public class CharacterMappingTable extends BaseTable {
         private final int[] mIs32;
         private final int mNumGroups;
         private final List<SequentialMapGroupRecord> mGroups;
+        private final int[] mRanges;
 
         @SuppressWarnings("WeakerAccess")
         public SubTable8(int format, int length, int language, int[] is32, int numGroups,
@@ -1463,6 +1604,7 @@ public class CharacterMappingTable extends BaseTable {
             mIs32 = is32;
             mNumGroups = numGroups;
             mGroups = groups;
+            mRanges = toRanges(groups);
         }
 
         /**
@@ -1512,6 +1654,17 @@ public class CharacterMappingTable extends BaseTable {
             return mGroups;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            return getSequentialGlyphId(mRanges, charCode);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1612,6 +1765,18 @@ public class CharacterMappingTable extends BaseTable {
             return mGlyphs;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            final long index = (long) charCode - mStartCharCode;
+            return index >= 0 && index < mGlyphs.length ? mGlyphs[(int) index] : 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1654,6 +1819,7 @@ public class CharacterMappingTable extends BaseTable {
         private final int mLanguage;
         private final int mNumGroups;
         private final List<SequentialMapGroupRecord> mGroups;
+        private final int[] mRanges;
 
         @SuppressWarnings("WeakerAccess")
         public SubTable12(int format, int length, int language, int numGroups,
@@ -1663,6 +1829,7 @@ public class CharacterMappingTable extends BaseTable {
             mLanguage = language;
             mNumGroups = numGroups;
             mGroups = groups;
+            mRanges = toRanges(groups);
         }
 
         /**
@@ -1702,6 +1869,17 @@ public class CharacterMappingTable extends BaseTable {
             return mGroups;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            return getSequentialGlyphId(mRanges, charCode);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -1787,6 +1965,29 @@ public class CharacterMappingTable extends BaseTable {
             return mGroups;
         }
 
+        /**
+         * Maps a character code to a glyph ID.
+         *
+         * @param charCode character code
+         * @return Glyph ID, 0 (missing glyph) if the character code is not mapped.
+         */
+        @Override
+        public int getGlyphId(int charCode) {
+            int low = 0;
+            int high = mGroups.size() - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final ConstantMapGroupRecord group = mGroups.get(mid);
+                if (charCode < group.getStartCharCode())
+                    high = mid - 1;
+                else if (charCode > group.getEndCharCode())
+                    low = mid + 1;
+                else
+                    return group.getGlyphID();
+            }
+            return 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -0,0 +1,921 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 颜色绘制
+ * A node of a resolved color glyph description from the 'COLR' table. Palette indices are
+ * already resolved to ARGB colors of one 'CPAL' palette, and every transformation format
+ * (translate, scale, rotate, skew, with or without center) is reduced to an affine
+ * {@link Transform}. Version 0 layers are expressed with the same nodes: a {@link Layers}
+ * node whose children are {@link Glyph} nodes filled with a {@link Solid} paint.
+ * 引用前景色的颜色（palette index 0xFFFF）不在解析时确定，渲染时由调用方提供。
+ */
+@SuppressWarnings("unused")
+public class ColorPaint {
+
+    public static final int FORMAT_LAYERS = 1;
+    public static final int FORMAT_SOLID = 2;
+    public static final int FORMAT_LINEAR_GRADIENT = 4;
+    public static final int FORMAT_RADIAL_GRADIENT = 6;
+    public static final int FORMAT_SWEEP_GRADIENT = 8;
+    public static final int FORMAT_GLYPH = 10;
+    public static final int FORMAT_COLR_GLYPH = 11;
+    public static final int FORMAT_TRANSFORM = 12;
+    public static final int FORMAT_COMPOSITE = 32;
+    public static final int EXTEND_PAD = 0;
+    public static final int EXTEND_REPEAT = 1;
+    public static final int EXTEND_REFLECT = 2;
+    public static final int COMPOSITE_CLEAR = 0;
+    public static final int COMPOSITE_SRC = 1;
+    public static final int COMPOSITE_DEST = 2;
+    public static final int COMPOSITE_SRC_OVER = 3;
+    public static final int COMPOSITE_DEST_OVER = 4;
+    public static final int COMPOSITE_SRC_IN = 5;
+    public static final int COMPOSITE_DEST_IN = 6;
+    public static final int COMPOSITE_SRC_OUT = 7;
+    public static final int COMPOSITE_DEST_OUT = 8;
+    public static final int COMPOSITE_SRC_ATOP = 9;
+    public static final int COMPOSITE_DEST_ATOP = 10;
+    public static final int COMPOSITE_XOR = 11;
+    public static final int COMPOSITE_PLUS = 12;
+    public static final int COMPOSITE_SCREEN = 13;
+    public static final int COMPOSITE_OVERLAY = 14;
+    public static final int COMPOSITE_DARKEN = 15;
+    public static final int COMPOSITE_LIGHTEN = 16;
+    public static final int COMPOSITE_COLOR_DODGE = 17;
+    public static final int COMPOSITE_COLOR_BURN = 18;
+    public static final int COMPOSITE_HARD_LIGHT = 19;
+    public static final int COMPOSITE_SOFT_LIGHT = 20;
+    public static final int COMPOSITE_DIFFERENCE = 21;
+    public static final int COMPOSITE_EXCLUSION = 22;
+    public static final int COMPOSITE_MULTIPLY = 23;
+    public static final int COMPOSITE_HSL_HUE = 24;
+    public static final int COMPOSITE_HSL_SATURATION = 25;
+    public static final int COMPOSITE_HSL_COLOR = 26;
+    public static final int COMPOSITE_HSL_LUMINOSITY = 27;
+    private final int mFormat;
+
+    ColorPaint(int format) {
+        mFormat = format;
+    }
+
+    /**
+     * Paint format, one of the FORMAT_* constants.
+     *
+     * @return Format.
+     */
+    public int getFormat() {
+        return mFormat;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ColorPaint that = (ColorPaint) o;
+        return mFormat == that.mFormat;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mFormat);
+    }
+
+    @Override
+    public String toString() {
+        return "ColorPaint{" +
+                "format=" + mFormat +
+                '}';
+    }
+
+    /**
+     * PaintColrLayers, or the layers of a version 0 base glyph.
+     */
+    public static class Layers extends ColorPaint {
+        private final ColorPaint[] mLayers;
+
+        Layers(ColorPaint[] layers) {
+            super(FORMAT_LAYERS);
+            mLayers = layers;
+        }
+
+        /**
+         * Number of layers, painted bottom to top.
+         *
+         * @return Layer count.
+         */
+        public int getLayerCount() {
+            return mLayers.length;
+        }
+
+        /**
+         * 获取图层
+         *
+         * @param index 图层序号
+         * @return 图层
+         */
+        public ColorPaint getLayer(int index) {
+            return mLayers[index];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Layers)) return false;
+            if (!super.equals(o)) return false;
+            Layers layers = (Layers) o;
+            return Arrays.equals(mLayers, layers.mLayers);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * super.hashCode() + Arrays.hashCode(mLayers);
+        }
+
+        @Override
+        public String toString() {
+            return "Layers{" +
+                    "layers=" + Arrays.toString(mLayers) +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintSolid
+     */
+    public static class Solid extends ColorPaint {
+        private final int mColor;
+        private final boolean mForeground;
+
+        Solid(int color, boolean foreground) {
+            super(FORMAT_SOLID);
+            mColor = color;
+            mForeground = foreground;
+        }
+
+        /**
+         * 获取颜色
+         *
+         * @return ARGB 颜色（非预乘），已乘以绘制的 alpha；使用前景色时仅 alpha 有效
+         */
+        public int getColor() {
+            return mColor;
+        }
+
+        /**
+         * 判断是否使用前景色
+         *
+         * @return 是否使用前景色
+         */
+        public boolean isForeground() {
+            return mForeground;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Solid)) return false;
+            if (!super.equals(o)) return false;
+            Solid solid = (Solid) o;
+            return mColor == solid.mColor &&
+                    mForeground == solid.mForeground;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mColor, mForeground);
+        }
+
+        @Override
+        public String toString() {
+            return "Solid{" +
+                    "color=" + Integer.toHexString(mColor) +
+                    ", foreground=" + mForeground +
+                    '}';
+        }
+    }
+
+    /**
+     * ColorLine
+     */
+    public static class ColorLine {
+        private final int mExtend;
+        private final float[] mStopOffsets;
+        private final int[] mColors;
+        private final boolean[] mForegrounds;
+
+        ColorLine(int extend, float[] stopOffsets, int[] colors, boolean[] foregrounds) {
+            mExtend = extend;
+            mStopOffsets = stopOffsets;
+            mColors = colors;
+            mForegrounds = foregrounds;
+        }
+
+        /**
+         * An Extend enum value, one of the EXTEND_* constants.
+         *
+         * @return Extend.
+         */
+        public int getExtend() {
+            return mExtend;
+        }
+
+        /**
+         * Number of ColorStop records.
+         *
+         * @return Stop count.
+         */
+        public int getStopCount() {
+            return mStopOffsets.length;
+        }
+
+        /**
+         * Position on a color line, stops are sorted by offset.
+         *
+         * @param index 色标序号
+         * @return Stop offset.
+         */
+        public float getStopOffset(int index) {
+            return mStopOffsets[index];
+        }
+
+        /**
+         * 获取色标颜色
+         *
+         * @param index 色标序号
+         * @return ARGB 颜色（非预乘），已乘以色标的 alpha；使用前景色时仅 alpha 有效
+         */
+        public int getColor(int index) {
+            return mColors[index];
+        }
+
+        /**
+         * 判断色标是否使用前景色
+         *
+         * @param index 色标序号
+         * @return 是否使用前景色
+         */
+        public boolean isForeground(int index) {
+            return mForegrounds[index];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ColorLine that = (ColorLine) o;
+            return mExtend == that.mExtend &&
+                    Arrays.equals(mStopOffsets, that.mStopOffsets) &&
+                    Arrays.equals(mColors, that.mColors) &&
+                    Arrays.equals(mForegrounds, that.mForegrounds);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(mExtend);
+            result = 31 * result + Arrays.hashCode(mStopOffsets);
+            result = 31 * result + Arrays.hashCode(mColors);
+            result = 31 * result + Arrays.hashCode(mForegrounds);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "ColorLine{" +
+                    "extend=" + mExtend +
+                    ", stopOffsets=" + Arrays.toString(mStopOffsets) +
+                    ", colors=" + Arrays.toString(mColors) +
+                    ", foregrounds=" + Arrays.toString(mForegrounds) +
+                    '}';
+        }
+    }
+
+    /**
+     * 渐变基类
+     */
+    public static class Gradient extends ColorPaint {
+        private final ColorLine mColorLine;
+
+        Gradient(int format, ColorLine colorLine) {
+            super(format);
+            mColorLine = colorLine;
+        }
+
+        /**
+         * 获取颜色线
+         *
+         * @return 颜色线
+         */
+        public ColorLine getColorLine() {
+            return mColorLine;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Gradient)) return false;
+            if (!super.equals(o)) return false;
+            Gradient gradient = (Gradient) o;
+            return Objects.equals(mColorLine, gradient.mColorLine);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mColorLine);
+        }
+    }
+
+    /**
+     * PaintLinearGradient
+     * The gradient runs from p0 to p1; p2 sets the rotation of the gradient: color lines are
+     * perpendicular to the line p0 to p2.
+     */
+    public static class LinearGradient extends Gradient {
+        private final float mX0;
+        private final float mY0;
+        private final float mX1;
+        private final float mY1;
+        private final float mX2;
+        private final float mY2;
+
+        LinearGradient(ColorLine colorLine, float x0, float y0, float x1, float y1, float x2,
+                       float y2) {
+            super(FORMAT_LINEAR_GRADIENT, colorLine);
+            mX0 = x0;
+            mY0 = y0;
+            mX1 = x1;
+            mY1 = y1;
+            mX2 = x2;
+            mY2 = y2;
+        }
+
+        /**
+         * Start point (p₀) x coordinate.
+         *
+         * @return X0.
+         */
+        public float getX0() {
+            return mX0;
+        }
+
+        /**
+         * Start point (p₀) y coordinate.
+         *
+         * @return Y0.
+         */
+        public float getY0() {
+            return mY0;
+        }
+
+        /**
+         * End point (p₁) x coordinate.
+         *
+         * @return X1.
+         */
+        public float getX1() {
+            return mX1;
+        }
+
+        /**
+         * End point (p₁) y coordinate.
+         *
+         * @return Y1.
+         */
+        public float getY1() {
+            return mY1;
+        }
+
+        /**
+         * Rotation point (p₂) x coordinate.
+         *
+         * @return X2.
+         */
+        public float getX2() {
+            return mX2;
+        }
+
+        /**
+         * Rotation point (p₂) y coordinate.
+         *
+         * @return Y2.
+         */
+        public float getY2() {
+            return mY2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LinearGradient)) return false;
+            if (!super.equals(o)) return false;
+            LinearGradient that = (LinearGradient) o;
+            return mX0 == that.mX0 && mY0 == that.mY0 &&
+                    mX1 == that.mX1 && mY1 == that.mY1 &&
+                    mX2 == that.mX2 && mY2 == that.mY2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mX0, mY0, mX1, mY1, mX2, mY2);
+        }
+
+        @Override
+        public String toString() {
+            return "LinearGradient{" +
+                    "colorLine=" + getColorLine() +
+                    ", p0=(" + mX0 + ", " + mY0 + ')' +
+                    ", p1=(" + mX1 + ", " + mY1 + ')' +
+                    ", p2=(" + mX2 + ", " + mY2 + ')' +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintRadialGradient
+     * The gradient is interpolated between the start circle (x0, y0, radius0) and the end
+     * circle (x1, y1, radius1).
+     */
+    public static class RadialGradient extends Gradient {
+        private final float mX0;
+        private final float mY0;
+        private final float mRadius0;
+        private final float mX1;
+        private final float mY1;
+        private final float mRadius1;
+
+        RadialGradient(ColorLine colorLine, float x0, float y0, float radius0, float x1,
+                       float y1, float radius1) {
+            super(FORMAT_RADIAL_GRADIENT, colorLine);
+            mX0 = x0;
+            mY0 = y0;
+            mRadius0 = radius0;
+            mX1 = x1;
+            mY1 = y1;
+            mRadius1 = radius1;
+        }
+
+        /**
+         * Start circle center x coordinate.
+         *
+         * @return X0.
+         */
+        public float getX0() {
+            return mX0;
+        }
+
+        /**
+         * Start circle center y coordinate.
+         *
+         * @return Y0.
+         */
+        public float getY0() {
+            return mY0;
+        }
+
+        /**
+         * Start circle radius.
+         *
+         * @return Radius0.
+         */
+        public float getRadius0() {
+            return mRadius0;
+        }
+
+        /**
+         * End circle center x coordinate.
+         *
+         * @return X1.
+         */
+        public float getX1() {
+            return mX1;
+        }
+
+        /**
+         * End circle center y coordinate.
+         *
+         * @return Y1.
+         */
+        public float getY1() {
+            return mY1;
+        }
+
+        /**
+         * End circle radius.
+         *
+         * @return Radius1.
+         */
+        public float getRadius1() {
+            return mRadius1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RadialGradient)) return false;
+            if (!super.equals(o)) return false;
+            RadialGradient that = (RadialGradient) o;
+            return mX0 == that.mX0 && mY0 == that.mY0 && mRadius0 == that.mRadius0 &&
+                    mX1 == that.mX1 && mY1 == that.mY1 && mRadius1 == that.mRadius1;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mX0, mY0, mRadius0, mX1, mY1, mRadius1);
+        }
+
+        @Override
+        public String toString() {
+            return "RadialGradient{" +
+                    "colorLine=" + getColorLine() +
+                    ", c0=(" + mX0 + ", " + mY0 + ", " + mRadius0 + ')' +
+                    ", c1=(" + mX1 + ", " + mY1 + ", " + mRadius1 + ')' +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintSweepGradient
+     * Angles are in degrees, counter-clockwise from the positive x axis.
+     */
+    public static class SweepGradient extends Gradient {
+        private final float mCenterX;
+        private final float mCenterY;
+        private final float mStartAngle;
+        private final float mEndAngle;
+
+        SweepGradient(ColorLine colorLine, float centerX, float centerY, float startAngle,
+                      float endAngle) {
+            super(FORMAT_SWEEP_GRADIENT, colorLine);
+            mCenterX = centerX;
+            mCenterY = centerY;
+            mStartAngle = startAngle;
+            mEndAngle = endAngle;
+        }
+
+        /**
+         * Center x coordinate.
+         *
+         * @return Center x.
+         */
+        public float getCenterX() {
+            return mCenterX;
+        }
+
+        /**
+         * Center y coordinate.
+         *
+         * @return Center y.
+         */
+        public float getCenterY() {
+            return mCenterY;
+        }
+
+        /**
+         * Start of the angular range of the gradient, in degrees.
+         *
+         * @return Start Angle.
+         */
+        public float getStartAngle() {
+            return mStartAngle;
+        }
+
+        /**
+         * End of the angular range of the gradient, in degrees.
+         *
+         * @return End Angle.
+         */
+        public float getEndAngle() {
+            return mEndAngle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SweepGradient)) return false;
+            if (!super.equals(o)) return false;
+            SweepGradient that = (SweepGradient) o;
+            return mCenterX == that.mCenterX && mCenterY == that.mCenterY &&
+                    mStartAngle == that.mStartAngle && mEndAngle == that.mEndAngle;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mCenterX, mCenterY, mStartAngle, mEndAngle);
+        }
+
+        @Override
+        public String toString() {
+            return "SweepGradient{" +
+                    "colorLine=" + getColorLine() +
+                    ", center=(" + mCenterX + ", " + mCenterY + ')' +
+                    ", startAngle=" + mStartAngle +
+                    ", endAngle=" + mEndAngle +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintGlyph
+     * The glyph outline is used as a clip region for the child paint.
+     */
+    public static class Glyph extends ColorPaint {
+        private final int mGlyphId;
+        private final ColorPaint mPaint;
+
+        Glyph(int glyphId, ColorPaint paint) {
+            super(FORMAT_GLYPH);
+            mGlyphId = glyphId;
+            mPaint = paint;
+        }
+
+        /**
+         * Glyph ID for the source outline.
+         *
+         * @return Glyph ID.
+         */
+        public int getGlyphId() {
+            return mGlyphId;
+        }
+
+        /**
+         * 获取填充
+         *
+         * @return 填充
+         */
+        public ColorPaint getPaint() {
+            return mPaint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Glyph)) return false;
+            if (!super.equals(o)) return false;
+            Glyph glyph = (Glyph) o;
+            return mGlyphId == glyph.mGlyphId &&
+                    Objects.equals(mPaint, glyph.mPaint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mGlyphId, mPaint);
+        }
+
+        @Override
+        public String toString() {
+            return "Glyph{" +
+                    "glyphId=" + mGlyphId +
+                    ", paint=" + mPaint +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintColrGlyph
+     * Reuses the color glyph description of another base glyph.
+     */
+    public static class ColrGlyph extends ColorPaint {
+        private final int mGlyphId;
+        private final ColorPaint mPaint;
+
+        ColrGlyph(int glyphId, ColorPaint paint) {
+            super(FORMAT_COLR_GLYPH);
+            mGlyphId = glyphId;
+            mPaint = paint;
+        }
+
+        /**
+         * Glyph ID for a BaseGlyphList base glyph.
+         *
+         * @return Glyph ID.
+         */
+        public int getGlyphId() {
+            return mGlyphId;
+        }
+
+        /**
+         * 获取所引用字形的绘制
+         *
+         * @return 绘制
+         */
+        public ColorPaint getPaint() {
+            return mPaint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ColrGlyph)) return false;
+            if (!super.equals(o)) return false;
+            ColrGlyph that = (ColrGlyph) o;
+            return mGlyphId == that.mGlyphId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mGlyphId);
+        }
+
+        @Override
+        public String toString() {
+            return "ColrGlyph{" +
+                    "glyphId=" + mGlyphId +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintTransform, PaintTranslate, PaintScale*, PaintRotate* and PaintSkew*
+     * x' = xx * x + xy * y + dx, y' = yx * x + yy * y + dy
+     */
+    public static class Transform extends ColorPaint {
+        private final float[] mMatrix;
+        private final ColorPaint mPaint;
+
+        Transform(float[] matrix, ColorPaint paint) {
+            super(FORMAT_TRANSFORM);
+            mMatrix = matrix;
+            mPaint = paint;
+        }
+
+        /**
+         * 获取仿射矩阵
+         *
+         * @return xx, yx, xy, yy, dx, dy，每次调用返回新数组
+         */
+        public float[] getMatrix() {
+            return mMatrix.clone();
+        }
+
+        /**
+         * x-component of transformed x-basis vector.
+         *
+         * @return Xx.
+         */
+        public float getXX() {
+            return mMatrix[0];
+        }
+
+        /**
+         * y-component of transformed x-basis vector.
+         *
+         * @return Yx.
+         */
+        public float getYX() {
+            return mMatrix[1];
+        }
+
+        /**
+         * x-component of transformed y-basis vector.
+         *
+         * @return Xy.
+         */
+        public float getXY() {
+            return mMatrix[2];
+        }
+
+        /**
+         * y-component of transformed y-basis vector.
+         *
+         * @return Yy.
+         */
+        public float getYY() {
+            return mMatrix[3];
+        }
+
+        /**
+         * Translation in x direction.
+         *
+         * @return Dx.
+         */
+        public float getDX() {
+            return mMatrix[4];
+        }
+
+        /**
+         * Translation in y direction.
+         *
+         * @return Dy.
+         */
+        public float getDY() {
+            return mMatrix[5];
+        }
+
+        /**
+         * 获取被变换的绘制
+         *
+         * @return 绘制
+         */
+        public ColorPaint getPaint() {
+            return mPaint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Transform)) return false;
+            if (!super.equals(o)) return false;
+            Transform transform = (Transform) o;
+            return Arrays.equals(mMatrix, transform.mMatrix) &&
+                    Objects.equals(mPaint, transform.mPaint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(super.hashCode(), mPaint) + Arrays.hashCode(mMatrix);
+        }
+
+        @Override
+        public String toString() {
+            return "Transform{" +
+                    "matrix=" + Arrays.toString(mMatrix) +
+                    ", paint=" + mPaint +
+                    '}';
+        }
+    }
+
+    /**
+     * PaintComposite
+     */
+    public static class Composite extends ColorPaint {
+        private final ColorPaint mSource;
+        private final int mMode;
+        private final ColorPaint mBackdrop;
+
+        Composite(ColorPaint source, int mode, ColorPaint backdrop) {
+            super(FORMAT_COMPOSITE);
+            mSource = source;
+            mMode = mode;
+            mBackdrop = backdrop;
+        }
+
+        /**
+         * 获取源绘制
+         *
+         * @return 源绘制
+         */
+        public ColorPaint getSource() {
+            return mSource;
+        }
+
+        /**
+         * A CompositeMode enumeration value, one of the COMPOSITE_* constants.
+         *
+         * @return Composite mode.
+         */
+        public int getMode() {
+            return mMode;
+        }
+
+        /**
+         * 获取背景绘制
+         *
+         * @return 背景绘制
+         */
+        public ColorPaint getBackdrop() {
+            return mBackdrop;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Composite)) return false;
+            if (!super.equals(o)) return false;
+            Composite composite = (Composite) o;
+            return mMode == composite.mMode &&
+                    Objects.equals(mSource, composite.mSource) &&
+                    Objects.equals(mBackdrop, composite.mBackdrop);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), mSource, mMode, mBackdrop);
+        }
+
+        @Override
+        public String toString() {
+            return "Composite{" +
+                    "source=" + mSource +
+                    ", mode=" + mMode +
+                    ", backdrop=" + mBackdrop +
+                    '}';
+        }
+    }
+}
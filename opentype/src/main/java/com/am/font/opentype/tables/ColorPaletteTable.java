@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Color Palette Table
+ * The palette table is a set of one or more palettes, each containing a predefined number of
+ * color records. It may also contain name table IDs describing the palettes and their
+ * entries.
+ * 颜色记录在构造时转换为 ARGB（非预乘）保存。
+ */
+@SuppressWarnings("unused")
+public class ColorPaletteTable extends BaseTable {
+
+    /**
+     * Bit 0: palette is appropriate to use when displaying the font on a light background.
+     */
+    public static final int USABLE_WITH_LIGHT_BACKGROUND = 0x0001;
+    /**
+     * Bit 1: palette is appropriate to use when displaying the font on a dark background.
+     */
+    public static final int USABLE_WITH_DARK_BACKGROUND = 0x0002;
+    private static final int NO_NAME_ID = 0xFFFF;
+    private final int mVersion;
+    private final int mNumPaletteEntries;
+    private final int[] mColorRecordIndices;
+    private final int[] mColors;
+    private final int[] mPaletteTypes;
+    private final int[] mPaletteLabels;
+    private final int[] mPaletteEntryLabels;
+
+    public ColorPaletteTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_CPAL)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            mNumPaletteEntries = data.getChar(2);
+            final int numPalettes = data.getChar(4);
+            final int numColorRecords = data.getChar(6);
+            final int colorRecordsArrayOffset = data.getInt(8);
+            mColorRecordIndices = new int[numPalettes];
+            for (int i = 0; i < numPalettes; i++) {
+                mColorRecordIndices[i] = data.getChar(12 + i * 2);
+                if (mColorRecordIndices[i] + mNumPaletteEntries > numColorRecords)
+                    throw new IOException();
+            }
+            mColors = new int[numColorRecords];
+            for (int i = 0; i < numColorRecords; i++) {
+                // BGRA
+                final int offset = colorRecordsArrayOffset + i * 4;
+                mColors[i] = (data.get(offset + 3) & 0xFF) << 24 |
+                        (data.get(offset + 2) & 0xFF) << 16 |
+                        (data.get(offset + 1) & 0xFF) << 8 |
+                        (data.get(offset) & 0xFF);
+            }
+            if (mVersion >= 1) {
+                final int header = 12 + numPalettes * 2;
+                mPaletteTypes = readArray(data, data.getInt(header), numPalettes, true);
+                mPaletteLabels = readArray(data, data.getInt(header + 4), numPalettes, false);
+                mPaletteEntryLabels = readArray(data, data.getInt(header + 8),
+                        mNumPaletteEntries, false);
+            } else {
+                mPaletteTypes = null;
+                mPaletteLabels = null;
+                mPaletteEntryLabels = null;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static int[] readArray(ByteBuffer data, int offset, int count, boolean uint32) {
+        if (offset == 0)
+            return null;
+        final int[] array = new int[count];
+        for (int i = 0; i < count; i++) {
+            array[i] = uint32 ? data.getInt(offset + i * 4) : data.getChar(offset + i * 2);
+        }
+        return array;
+    }
+
+    /**
+     * Table version number.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of palette entries in each palette.
+     *
+     * @return Number of palette entries.
+     */
+    public int getNumPaletteEntries() {
+        return mNumPaletteEntries;
+    }
+
+    /**
+     * Number of palettes in the table.
+     *
+     * @return Number of palettes.
+     */
+    public int getNumPalettes() {
+        return mColorRecordIndices.length;
+    }
+
+    /**
+     * 获取颜色
+     *
+     * @param palette 调色板序号
+     * @param entry   调色板条目序号
+     * @return ARGB 颜色（非预乘）
+     */
+    public int getColor(int palette, int entry) {
+        if (entry < 0 || entry >= mNumPaletteEntries)
+            throw new IndexOutOfBoundsException();
+        return mColors[mColorRecordIndices[palette] + entry];
+    }
+
+    /**
+     * 获取调色板
+     *
+     * @param palette 调色板序号
+     * @return ARGB 颜色（非预乘），每次调用返回新数组
+     */
+    public int[] getPalette(int palette) {
+        final int start = mColorRecordIndices[palette];
+        return Arrays.copyOfRange(mColors, start, start + mNumPaletteEntries);
+    }
+
+    /**
+     * Palette type flags, version 1 only.
+     *
+     * @param palette 调色板序号
+     * @return Palette type, 0 if not present.
+     */
+    public int getPaletteType(int palette) {
+        return mPaletteTypes == null ? 0 : mPaletteTypes[palette];
+    }
+
+    /**
+     * The 'name' table name ID of the palette, version 1 only.
+     *
+     * @param palette 调色板序号
+     * @return Name ID, 0xFFFF if not present.
+     */
+    public int getPaletteLabel(int palette) {
+        return mPaletteLabels == null ? NO_NAME_ID : mPaletteLabels[palette];
+    }
+
+    /**
+     * The 'name' table name ID of the palette entry, version 1 only.
+     *
+     * @param entry 调色板条目序号
+     * @return Name ID, 0xFFFF if not present.
+     */
+    public int getPaletteEntryLabel(int entry) {
+        return mPaletteEntryLabels == null ? NO_NAME_ID : mPaletteEntryLabels[entry];
+    }
+
+    /**
+     * 查找带有指定类型标志的第一个调色板
+     *
+     * @param flags 类型标志
+     * @return 调色板序号，没有时返回0
+     */
+    public int findPalette(int flags) {
+        if (mPaletteTypes != null) {
+            for (int i = 0; i < mPaletteTypes.length; i++) {
+                if ((mPaletteTypes[i] & flags) == flags)
+                    return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion, mNumPaletteEntries);
+        result = 31 * result + Arrays.hashCode(mColorRecordIndices);
+        result = 31 * result + Arrays.hashCode(mColors);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "ColorPaletteTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numPaletteEntries=" + mNumPaletteEntries +
+                ", numPalettes=" + mColorRecordIndices.length +
+                ", paletteTypes=" + Arrays.toString(mPaletteTypes) +
+                '}';
+    }
+}
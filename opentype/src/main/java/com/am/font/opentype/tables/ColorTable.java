@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Color Table
+ * The COLR table adds support for multi-colored glyphs. Version 0 describes a color glyph as
+ * a stack of layers, each a glyph outline filled with a palette color. Version 1 adds a
+ * directed acyclic graph of paint tables with gradients, transformations and compositing.
+ * 基础字形记录与 BaseGlyphPaintRecord 均按字形ID排序，直接在表数据上二分查找；解析后的绘制树
+ * 按（字形, 调色板）缓存（淘汰最近最少使用的条目），重复绘制同一字形时不再遍历偏移。可变绘制格式取默认实例的值。
+ */
+@SuppressWarnings("unused")
+public class ColorTable extends BaseTable {
+
+    /**
+     * Palette index for the text foreground color.
+     */
+    public static final int FOREGROUND_PALETTE_INDEX = 0xFFFF;
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final Resolved NONE = new Resolved(null, null);
+    private final ByteBuffer mData;
+    private final int mVersion;
+    private final int mNumBaseGlyphRecords;
+    private final int mBaseGlyphRecordsOffset;
+    private final int mLayerRecordsOffset;
+    private final int mNumLayerRecords;
+    private final int mBaseGlyphListOffset;
+    private final int mNumBaseGlyphPaintRecords;
+    private final int mLayerListOffset;
+    private final int mNumLayers;
+    private final int mClipListOffset;
+    private final int mNumClips;
+    private final PaintCache mPaints = new PaintCache();
+
+    public ColorTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_COLR)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            mNumBaseGlyphRecords = data.getChar(2);
+            mBaseGlyphRecordsOffset = data.getInt(4);
+            mLayerRecordsOffset = data.getInt(8);
+            mNumLayerRecords = data.getChar(12);
+            if ((long) mBaseGlyphRecordsOffset + mNumBaseGlyphRecords * 6L > data.limit() ||
+                    (long) mLayerRecordsOffset + mNumLayerRecords * 4L > data.limit())
+                throw new IOException();
+            if (mVersion >= 1) {
+                mBaseGlyphListOffset = data.getInt(14);
+                mNumBaseGlyphPaintRecords = mBaseGlyphListOffset == 0 ? 0 :
+                        data.getInt(mBaseGlyphListOffset);
+                mLayerListOffset = data.getInt(18);
+                mNumLayers = mLayerListOffset == 0 ? 0 : data.getInt(mLayerListOffset);
+                mClipListOffset = data.getInt(22);
+                mNumClips = mClipListOffset == 0 ? 0 : data.getInt(mClipListOffset + 1);
+                if (mNumBaseGlyphPaintRecords < 0 || mNumLayers < 0 || mNumClips < 0 ||
+                        (long) mBaseGlyphListOffset + 4 + mNumBaseGlyphPaintRecords * 6L >
+                                data.limit() ||
+                        (long) mLayerListOffset + 4 + mNumLayers * 4L > data.limit() ||
+                        (long) mClipListOffset + 5 + mNumClips * 7L > data.limit())
+                    throw new IOException();
+            } else {
+                mBaseGlyphListOffset = 0;
+                mNumBaseGlyphPaintRecords = 0;
+                mLayerListOffset = 0;
+                mNumLayers = 0;
+                mClipListOffset = 0;
+                mNumClips = 0;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        mData = data;
+    }
+
+    /**
+     * Table version number.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of BaseGlyph records (version 0).
+     *
+     * @return Number of base glyph records.
+     */
+    public int getNumBaseGlyphRecords() {
+        return mNumBaseGlyphRecords;
+    }
+
+    /**
+     * Number of Layer records (version 0).
+     *
+     * @return Number of layer records.
+     */
+    public int getNumLayerRecords() {
+        return mNumLayerRecords;
+    }
+
+    /**
+     * Number of BaseGlyphPaint records (version 1).
+     *
+     * @return Number of base glyph paint records.
+     */
+    public int getNumBaseGlyphPaintRecords() {
+        return mNumBaseGlyphPaintRecords;
+    }
+
+    /**
+     * 判断是否为彩色字形
+     *
+     * @param glyphId 字形ID
+     * @return 字形有版本 0 或版本 1 的颜色描述时返回true
+     */
+    public boolean isColorGlyph(int glyphId) {
+        return findBaseGlyphPaint(glyphId) >= 0 || findBaseGlyph(glyphId) >= 0;
+    }
+
+    /**
+     * 二分查找 BaseGlyphPaintRecord
+     *
+     * @return 绘制表的表内偏移，没有时返回-1
+     */
+    private int findBaseGlyphPaint(int glyphId) {
+        int low = 0;
+        int high = mNumBaseGlyphPaintRecords - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int offset = mBaseGlyphListOffset + 4 + mid * 6;
+            final int value = mData.getChar(offset);
+            if (value < glyphId)
+                low = mid + 1;
+            else if (value > glyphId)
+                high = mid - 1;
+            else
+                return mBaseGlyphListOffset + mData.getInt(offset + 2);
+        }
+        return -1;
+    }
+
+    /**
+     * 二分查找 BaseGlyph 记录
+     *
+     * @return 记录的表内偏移，没有时返回-1
+     */
+    private int findBaseGlyph(int glyphId) {
+        int low = 0;
+        int high = mNumBaseGlyphRecords - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int offset = mBaseGlyphRecordsOffset + mid * 6;
+            final int value = mData.getChar(offset);
+            if (value < glyphId)
+                low = mid + 1;
+            else if (value > glyphId)
+                high = mid - 1;
+            else
+                return offset;
+        }
+        return -1;
+    }
+
+    /**
+     * 获取字形的裁剪框（版本 1）
+     *
+     * @param glyphId 字形ID
+     * @return xMin, yMin, xMax, yMax（字体单位），没有时返回空
+     * @throws IOException 数据错误
+     */
+    public float[] getClipBox(int glyphId) throws IOException {
+        int low = 0;
+        int high = mNumClips - 1;
+        try {
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int offset = mClipListOffset + 5 + mid * 7;
+                if (mData.getChar(offset + 2) < glyphId) {
+                    low = mid + 1;
+                } else if (mData.getChar(offset) > glyphId) {
+                    high = mid - 1;
+                } else {
+                    // ClipBox format 1 and 2 share the leading fields, format 2 adds a
+                    // VarIndexBase.
+                    final int box = mClipListOffset + readOffset24(offset + 4);
+                    return new float[]{mData.getShort(box + 1), mData.getShort(box + 3),
+                            mData.getShort(box + 5), mData.getShort(box + 7)};
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        return null;
+    }
+
+    /**
+     * 获取字形的颜色描述，结果按（字形, 调色板）缓存
+     *
+     * @param glyphId 字形ID
+     * @param cpal    调色板表，为空时全部颜色按前景色处理
+     * @param palette 调色板序号
+     * @return 绘制树，非彩色字形返回空
+     * @throws IOException 数据错误
+     */
+    public ColorPaint getPaint(int glyphId, ColorPaletteTable cpal, int palette)
+            throws IOException {
+        final Long key = ((long) palette << 32) | (glyphId & 0xFFFFFFFFL);
+        final Resolved cached;
+        synchronized (mPaints) {
+            cached = mPaints.get(key);
+        }
+        if (cached != null && (cached == NONE || cached.mPalette == cpal))
+            return cached.mPaint;
+        final ColorPaint paint;
+        try {
+            paint = new Resolver(cpal, palette).resolveBaseGlyph(glyphId);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        synchronized (mPaints) {
+            mPaints.put(key, paint == null ? NONE : new Resolved(cpal, paint));
+        }
+        return paint;
+    }
+
+    private int readOffset24(int offset) {
+        return (mData.get(offset) & 0xFF) << 16 | mData.getChar(offset + 1);
+    }
+
+    private float readF2Dot14(int offset) {
+        return mData.getShort(offset) / 16384f;
+    }
+
+    private float readFixed(int offset) {
+        return mData.getInt(offset) / 65536f;
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mVersion, mNumBaseGlyphRecords,
+                mNumLayerRecords, mNumBaseGlyphPaintRecords, mNumLayers, mNumClips);
+    }
+
+    @Override
+    public String getString() {
+        return "ColorTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numBaseGlyphRecords=" + mNumBaseGlyphRecords +
+                ", numLayerRecords=" + mNumLayerRecords +
+                ", numBaseGlyphPaintRecords=" + mNumBaseGlyphPaintRecords +
+                ", numLayers=" + mNumLayers +
+                ", numClips=" + mNumClips +
+                '}';
+    }
+
+    /**
+     * 绘制树缓存，按访问顺序淘汰最近最少使用的条目
+     */
+    private static final class PaintCache extends LinkedHashMap<Long, Resolved> {
+
+        private static final long serialVersionUID = 1L;
+
+        PaintCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Resolved> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    }
+
+    /**
+     * 缓存的绘制树
+     */
+    private static final class Resolved {
+        private final ColorPaletteTable mPalette;
+        private final ColorPaint mPaint;
+
+        Resolved(ColorPaletteTable palette, ColorPaint paint) {
+            mPalette = palette;
+            mPaint = paint;
+        }
+    }
+
+    /**
+     * 单次解析：同一偏移的绘制表只解析一次，PaintColrGlyph 的循环引用视为数据错误
+     */
+    private final class Resolver {
+        private final ColorPaletteTable mCpal;
+        private final int mPalette;
+        private final HashMap<Integer, ColorPaint> mResolved = new HashMap<>();
+        private final HashSet<Integer> mActiveGlyphs = new HashSet<>();
+
+        Resolver(ColorPaletteTable cpal, int palette) {
+            mCpal = cpal;
+            mPalette = palette;
+        }
+
+        ColorPaint resolveBaseGlyph(int glyphId) throws IOException {
+            final int paint = findBaseGlyphPaint(glyphId);
+            if (paint >= 0) {
+                if (!mActiveGlyphs.add(glyphId))
+                    throw new IOException();
+                final ColorPaint result = resolve(paint, 0);
+                mActiveGlyphs.remove(glyphId);
+                return result;
+            }
+            final int record = findBaseGlyph(glyphId);
+            if (record < 0)
+                return null;
+            final int first = mData.getChar(record + 2);
+            final int count = mData.getChar(record + 4);
+            if (first + count > mNumLayerRecords)
+                throw new IOException();
+            final ColorPaint[] layers = new ColorPaint[count];
+            for (int i = 0; i < count; i++) {
+                final int layer = mLayerRecordsOffset + (first + i) * 4;
+                layers[i] = new ColorPaint.Glyph(mData.getChar(layer),
+                        createSolid(mData.getChar(layer + 2), 1));
+            }
+            return new ColorPaint.Layers(layers);
+        }
+
+        private int resolveColor(int paletteIndex, float alpha) {
+            final int color = paletteIndex == FOREGROUND_PALETTE_INDEX || mCpal == null ?
+                    0xFF000000 : mCpal.getColor(mPalette, paletteIndex);
+            final int a = Math.max(0, Math.min(255, Math.round((color >>> 24) * alpha)));
+            return a << 24 | (color & 0x00FFFFFF);
+        }
+
+        private ColorPaint createSolid(int paletteIndex, float alpha) {
+            return new ColorPaint.Solid(resolveColor(paletteIndex, alpha),
+                    paletteIndex == FOREGROUND_PALETTE_INDEX || mCpal == null);
+        }
+
+        private ColorPaint.ColorLine readColorLine(int offset, boolean variable) {
+            final int extend = mData.get(offset) & 0xFF;
+            final int count = mData.getChar(offset + 1);
+            final int size = variable ? 10 : 6;
+            final float[] stops = new float[count];
+            final int[] colors = new int[count];
+            final boolean[] foregrounds = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                final int stop = offset + 3 + i * size;
+                final int paletteIndex = mData.getChar(stop + 2);
+                stops[i] = readF2Dot14(stop);
+                colors[i] = resolveColor(paletteIndex, readF2Dot14(stop + 4));
+                foregrounds[i] = paletteIndex == FOREGROUND_PALETTE_INDEX || mCpal == null;
+            }
+            // 色标按偏移排序（插入排序，色标通常很少且已有序）
+            for (int i = 1; i < count; i++) {
+                final float stop = stops[i];
+                final int color = colors[i];
+                final boolean foreground = foregrounds[i];
+                int j = i - 1;
+                while (j >= 0 && stops[j] > stop) {
+                    stops[j + 1] = stops[j];
+                    colors[j + 1] = colors[j];
+                    foregrounds[j + 1] = foregrounds[j];
+                    j--;
+                }
+                stops[j + 1] = stop;
+                colors[j + 1] = color;
+                foregrounds[j + 1] = foreground;
+            }
+            return new ColorPaint.ColorLine(extend > ColorPaint.EXTEND_REFLECT ?
+                    ColorPaint.EXTEND_PAD : extend, stops, colors, foregrounds);
+        }
+
+        private ColorPaint resolve(int offset, int depth) throws IOException {
+            if (depth > MAX_DEPTH)
+                throw new IOException();
+            final ColorPaint resolved = mResolved.get(offset);
+            if (resolved != null)
+                return resolved;
+            final ColorPaint paint = parse(offset, depth);
+            mResolved.put(offset, paint);
+            return paint;
+        }
+
+        private ColorPaint child(int offset, int depth) throws IOException {
+            return resolve(offset + readOffset24(offset + 1), depth + 1);
+        }
+
+        private ColorPaint parse(int offset, int depth) throws IOException {
+            final int format = mData.get(offset) & 0xFF;
+            switch (format) {
+                default:
+                    throw new IOException();
+                case 1: {
+                    // PaintColrLayers
+                    final int count = mData.get(offset + 1) & 0xFF;
+                    final int first = mData.getInt(offset + 2);
+                    if (first < 0 || (long) first + count > mNumLayers)
+                        throw new IOException();
+                    final ColorPaint[] layers = new ColorPaint[count];
+                    for (int i = 0; i < count; i++) {
+                        final int layer = mLayerListOffset + 4 + (first + i) * 4;
+                        layers[i] = resolve(mLayerListOffset + mData.getInt(layer), depth + 1);
+                    }
+                    return new ColorPaint.Layers(layers);
+                }
+                case 2:
+                case 3:
+                    // PaintSolid, PaintVarSolid
+                    return createSolid(mData.getChar(offset + 1), readF2Dot14(offset + 3));
+                case 4:
+                case 5:
+                    // PaintLinearGradient, PaintVarLinearGradient
+                    return new ColorPaint.LinearGradient(
+                            readColorLine(offset + readOffset24(offset + 1), format == 5),
+                            mData.getShort(offset + 4), mData.getShort(offset + 6),
+                            mData.getShort(offset + 8), mData.getShort(offset + 10),
+                            mData.getShort(offset + 12), mData.getShort(offset + 14));
+                case 6:
+                case 7:
+                    // PaintRadialGradient, PaintVarRadialGradient
+                    return new ColorPaint.RadialGradient(
+                            readColorLine(offset + readOffset24(offset + 1), format == 7),
+                            mData.getShort(offset + 4), mData.getShort(offset + 6),
+                            mData.getChar(offset + 8), mData.getShort(offset + 10),
+                            mData.getShort(offset + 12), mData.getChar(offset + 14));
+                case 8:
+                case 9:
+                    // PaintSweepGradient, PaintVarSweepGradient, angles are 180° per 1.0
+                    return new ColorPaint.SweepGradient(
+                            readColorLine(offset + readOffset24(offset + 1), format == 9),
+                            mData.getShort(offset + 4), mData.getShort(offset + 6),
+                            readF2Dot14(offset + 8) * 180, readF2Dot14(offset + 10) * 180);
+                case 10:
+                    // PaintGlyph
+                    return new ColorPaint.Glyph(mData.getChar(offset + 4), child(offset, depth));
+                case 11: {
+                    // PaintColrGlyph
+                    final int glyphId = mData.getChar(offset + 1);
+                    if (findBaseGlyphPaint(glyphId) < 0)
+                        throw new IOException();
+                    return new ColorPaint.ColrGlyph(glyphId, resolveBaseGlyph(glyphId));
+                }
+                case 12:
+                case 13: {
+                    // PaintTransform, PaintVarTransform
+                    final int affine = offset + readOffset24(offset + 4);
+                    return new ColorPaint.Transform(new float[]{readFixed(affine),
+                            readFixed(affine + 4), readFixed(affine + 8), readFixed(affine + 12),
+                            readFixed(affine + 16), readFixed(affine + 20)},
+                            child(offset, depth));
+                }
+                case 14:
+                case 15:
+                    // PaintTranslate, PaintVarTranslate
+                    return new ColorPaint.Transform(new float[]{1, 0, 0, 1,
+                            mData.getShort(offset + 4), mData.getShort(offset + 6)},
+                            child(offset, depth));
+                case 16:
+                case 17:
+                case 18:
+                case 19: {
+                    // PaintScale, PaintScaleAroundCenter and variable versions
+                    final float scaleX = readF2Dot14(offset + 4);
+                    final float scaleY = readF2Dot14(offset + 6);
+                    return createTransform(scaleX, 0, 0, scaleY, offset, format >= 18 ?
+                            offset + 8 : -1, depth);
+                }
+                case 20:
+                case 21:
+                case 22:
+                case 23: {
+                    // PaintScaleUniform, PaintScaleUniformAroundCenter and variable versions
+                    final float scale = readF2Dot14(offset + 4);
+                    return createTransform(scale, 0, 0, scale, offset, format >= 22 ?
+                            offset + 6 : -1, depth);
+                }
+                case 24:
+                case 25:
+                case 26:
+                case 27: {
+                    // PaintRotate, PaintRotateAroundCenter and variable versions
+                    final double angle = readF2Dot14(offset + 4) * Math.PI;
+                    final float cos = (float) Math.cos(angle);
+                    final float sin = (float) Math.sin(angle);
+                    return createTransform(cos, sin, -sin, cos, offset, format >= 26 ?
+                            offset + 6 : -1, depth);
+                }
+                case 28:
+                case 29:
+                case 30:
+                case 31: {
+                    // PaintSkew, PaintSkewAroundCenter and variable versions
+                    final float xSkew = (float) Math.tan(readF2Dot14(offset + 4) * Math.PI);
+                    final float ySkew = (float) Math.tan(readF2Dot14(offset + 6) * Math.PI);
+                    return createTransform(1, ySkew, -xSkew, 1, offset, format >= 30 ?
+                            offset + 8 : -1, depth);
+                }
+                case 32:
+                    // PaintComposite
+                    return new ColorPaint.Composite(child(offset, depth),
+                            mData.get(offset + 4) & 0xFF,
+                            resolve(offset + readOffset24(offset + 5), depth + 1));
+            }
+        }
+
+        private ColorPaint createTransform(float xx, float yx, float xy, float yy, int offset,
+                                           int center, int depth) throws IOException {
+            float dx = 0;
+            float dy = 0;
+            if (center >= 0) {
+                // translate(center) · M · translate(-center)
+                final float cx = mData.getShort(center);
+                final float cy = mData.getShort(center + 2);
+                dx = cx - (xx * cx + xy * cy);
+                dy = cy - (yx * cx + yy * cy);
+            }
+            return new ColorPaint.Transform(new float[]{xx, yx, xy, yy, dx, dy},
+                    child(offset, depth));
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Compact Font Format Version 2 Table
+ * This table contains a Compact Font Format (CFF) version 2 font representation. CFF2 is an
+ * extension of CFF that drops the Name, String and Encoding data, and adds the blend and
+ * vsindex operators together with an Item Variation Store so that glyph outlines can vary
+ * across the design space of a variable font.
+ * 区域系数由 {@link ItemVariationStore} 按位置缓存，同一实例下解码各字形时不会重复计算。
+ */
+@SuppressWarnings("unused")
+public class CompactFontFormat2Table extends BaseTable implements GlyphOutlineSource {
+
+    private final ByteBuffer mData;
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final float[] mFontMatrix;
+    private final CompactFontFormatIndex mGlobalSubrs;
+    private final CompactFontFormatIndex mCharStrings;
+    private final int mFDSelectOffset;
+    private final PrivateRecord[] mPrivateRecords;
+    private final ItemVariationStore mItemVariationStore;
+
+    public CompactFontFormat2Table(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_CFF2)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        mData = data;
+        try {
+            mMajorVersion = data.get(0) & 0xFF;
+            mMinorVersion = data.get(1) & 0xFF;
+            if (mMajorVersion != 2)
+                throw new IOException();
+            final int headerSize = data.get(2) & 0xFF;
+            final int topDictLength = data.getChar(3);
+            final CompactFontFormatDict top = new CompactFontFormatDict(data, headerSize,
+                    headerSize + topDictLength);
+            mGlobalSubrs = new CompactFontFormatIndex(data, headerSize + topDictLength, true);
+            final double[] matrix = top.get(CompactFontFormatDict.FONT_MATRIX);
+            mFontMatrix = new float[]{0.001f, 0, 0, 0.001f, 0, 0};
+            if (matrix != null && matrix.length == mFontMatrix.length) {
+                for (int i = 0; i < matrix.length; i++) {
+                    mFontMatrix[i] = (float) matrix[i];
+                }
+            }
+            final int charStrings = top.getInt(CompactFontFormatDict.CHAR_STRINGS, -1);
+            if (charStrings <= 0)
+                throw new IOException();
+            mCharStrings = new CompactFontFormatIndex(data, charStrings, true);
+            final int variationStore = top.getInt(CompactFontFormatDict.VSTORE, 0);
+            // VariationStore 数据前有 uint16 长度
+            mItemVariationStore = variationStore > 0 ?
+                    new ItemVariationStore(data, variationStore + 2) : null;
+            final int[] regionCounts = new int[mItemVariationStore == null ? 0 :
+                    mItemVariationStore.getItemVariationDataCount()];
+            for (int i = 0; i < regionCounts.length; i++) {
+                regionCounts[i] = mItemVariationStore.getRegionIndexCount(i);
+            }
+            final int fdArray = top.getInt(CompactFontFormatDict.FD_ARRAY, -1);
+            if (fdArray <= 0)
+                throw new IOException();
+            final CompactFontFormatIndex fonts = new CompactFontFormatIndex(data, fdArray, true);
+            if (fonts.getCount() < 1)
+                throw new IOException();
+            mPrivateRecords = new PrivateRecord[fonts.getCount()];
+            for (int i = 0; i < mPrivateRecords.length; i++) {
+                final CompactFontFormatDict font = new CompactFontFormatDict(data,
+                        fonts.getStart(i), fonts.getEnd(i));
+                mPrivateRecords[i] = readPrivate(data, font.get(CompactFontFormatDict.PRIVATE),
+                        regionCounts);
+            }
+            final int fdSelect = top.getInt(CompactFontFormatDict.FD_SELECT, -1);
+            if (mPrivateRecords.length > 1 && fdSelect <= 0)
+                throw new IOException();
+            mFDSelectOffset = mPrivateRecords.length > 1 ? fdSelect : -1;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static PrivateRecord readPrivate(ByteBuffer data, double[] operands,
+                                             int[] regionCounts) throws IOException {
+        if (operands == null || operands.length < 2)
+            return new PrivateRecord(CompactFontFormatIndex.EMPTY, 0);
+        final int size = (int) operands[0];
+        final int offset = (int) operands[1];
+        if (size < 0 || offset < 0 || (long) offset + size > data.limit())
+            throw new IOException();
+        final CompactFontFormatDict dict = new CompactFontFormatDict(data, offset, offset + size,
+                regionCounts);
+        final int subrs = dict.getInt(CompactFontFormatDict.SUBRS, 0);
+        return new PrivateRecord(subrs > 0 ?
+                new CompactFontFormatIndex(data, offset + subrs, true) :
+                CompactFontFormatIndex.EMPTY,
+                dict.getInt(CompactFontFormatDict.VSINDEX, 0));
+    }
+
+    /**
+     * Format major version (set to 2).
+     *
+     * @return Major version.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Format minor version (set to zero).
+     *
+     * @return Minor version.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The FontMatrix, maps glyph space to text space.
+     *
+     * @return Font matrix, a new array is created on every call.
+     */
+    public float[] getFontMatrix() {
+        return mFontMatrix.clone();
+    }
+
+    /**
+     * 获取变体数据
+     *
+     * @return 变体数据，非可变字体为空
+     */
+    public ItemVariationStore getItemVariationStore() {
+        return mItemVariationStore;
+    }
+
+    @Override
+    public int getNumGlyphs() {
+        return mCharStrings.getCount();
+    }
+
+    /**
+     * 获取字体字典数目
+     *
+     * @return 字体字典数目
+     */
+    public int getNumberOfFontDicts() {
+        return mPrivateRecords.length;
+    }
+
+    /**
+     * 获取字形所属的字体字典
+     *
+     * @param glyphId 字形ID
+     * @return 字体字典序号
+     * @throws IOException 数据错误
+     */
+    public int getFontDictIndex(int glyphId) throws IOException {
+        if (glyphId < 0 || glyphId >= getNumGlyphs())
+            throw new IOException();
+        if (mFDSelectOffset < 0)
+            return 0;
+        return CompactFontFormatTable.getFontDictIndex(mData, mFDSelectOffset, glyphId);
+    }
+
+    /**
+     * 解码默认实例的字形轮廓
+     *
+     * @param glyphId 字形ID
+     * @param sink    轮廓接收器
+     * @throws IOException 字形ID越界或数据错误
+     */
+    @Override
+    public void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException {
+        decodeOutline(glyphId, (float[]) null, sink);
+    }
+
+    /**
+     * 解码指定设计空间位置的字形轮廓
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标（-1 至 1，按 'fvar' 的轴顺序），为空时为默认实例
+     * @param sink        轮廓接收器
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public void decodeOutline(int glyphId, float[] coordinates, GlyphOutlineSink sink)
+            throws IOException {
+        decodeOutline(glyphId, mItemVariationStore == null ? null :
+                mItemVariationStore.getScalars(coordinates), sink);
+    }
+
+    private void decodeOutline(int glyphId, float[][] scalars, GlyphOutlineSink sink)
+            throws IOException {
+        final int fd = getFontDictIndex(glyphId);
+        if (fd >= mPrivateRecords.length)
+            throw new IOException();
+        final PrivateRecord record = mPrivateRecords[fd];
+        CharStringInterpreter.get().decode(mData, mCharStrings, glyphId, mGlobalSubrs,
+                record.mSubrs, record.mVsIndex, scalars, sink);
+    }
+
+    /**
+     * 获取指定实例的字形轮廓来源，可直接交给光栅化器使用
+     *
+     * @param instance 实例，为空时为默认实例
+     * @return 字形轮廓来源
+     */
+    public GlyphOutlineSource getGlyphOutlineSource(VariationInstance instance) {
+        if (instance == null || instance.isDefault() || mItemVariationStore == null)
+            return this;
+        final ItemVariationStore store = mItemVariationStore;
+        return new GlyphOutlineSource() {
+            @Override
+            public int getNumGlyphs() {
+                return CompactFontFormat2Table.this.getNumGlyphs();
+            }
+
+            @Override
+            public void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException {
+                CompactFontFormat2Table.this.decodeOutline(glyphId, store.getScalars(instance),
+                        sink);
+            }
+        };
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion,
+                getNumGlyphs(), mPrivateRecords.length);
+        result = 31 * result + Arrays.hashCode(mFontMatrix);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "CompactFontFormat2Table{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", numGlyphs=" + getNumGlyphs() +
+                ", fontDicts=" + mPrivateRecords.length +
+                ", fontMatrix=" + Arrays.toString(mFontMatrix) +
+                ", itemVariationStore=" + String.valueOf(mItemVariationStore) +
+                '}';
+    }
+
+    /**
+     * Private DICT 中解码字形所需的数据
+     */
+    private static final class PrivateRecord {
+        private final CompactFontFormatIndex mSubrs;
+        private final int mVsIndex;
+
+        PrivateRecord(CompactFontFormatIndex subrs, int vsindex) {
+            mSubrs = subrs;
+            mVsIndex = vsindex;
+        }
+    }
+}
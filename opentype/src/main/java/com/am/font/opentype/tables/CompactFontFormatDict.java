@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * CFF DICT
+ * Key-value pairs in a compact operand-operator format. Two-byte operators (escape 12) are
+ * keyed as 1200 + second byte.
+ */
+final class CompactFontFormatDict {
+
+    // Top DICT
+    static final int VERSION = 0;
+    static final int FONT_BBOX = 5;
+    static final int CHARSET = 15;
+    static final int ENCODING = 16;
+    static final int CHAR_STRINGS = 17;
+    static final int PRIVATE = 18;
+    static final int CHARSTRING_TYPE = 1206;
+    static final int FONT_MATRIX = 1207;
+    static final int ROS = 1230;
+    static final int CID_COUNT = 1234;
+    static final int FD_ARRAY = 1236;
+    static final int FD_SELECT = 1237;
+    static final int FONT_NAME = 1238;
+    // Private DICT
+    static final int SUBRS = 19;
+    static final int DEFAULT_WIDTH_X = 20;
+    static final int NOMINAL_WIDTH_X = 21;
+    // CFF2
+    static final int VSINDEX = 22;
+    static final int BLEND = 23;
+    static final int VSTORE = 24;
+    static final int MAX_STACK = 1225;
+    private static final int MAX_OPERANDS = 513;
+    private static final char[] REAL_NIBBLES = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '.', 'E', 'e', 0, '-', 0};
+    private final HashMap<Integer, double[]> mEntries = new HashMap<>();
+
+    CompactFontFormatDict(ByteBuffer data, int start, int end) throws IOException {
+        this(data, start, end, null);
+    }
+
+    /**
+     * 解析 DICT
+     *
+     * @param data         表数据
+     * @param start        起始位置
+     * @param end          结束位置（不含）
+     * @param regionCounts CFF2 Private DICT 中 blend 运算符所需的各 vsindex 区域数目，CFF 为空
+     * @throws IOException 数据错误
+     */
+    CompactFontFormatDict(ByteBuffer data, int start, int end, int[] regionCounts)
+            throws IOException {
+        if (start < 0 || end > data.limit() || start > end)
+            throw new IOException();
+        final double[] operands = new double[MAX_OPERANDS];
+        int count = 0;
+        int position = start;
+        try {
+            while (position < end) {
+                final int b0 = data.get(position++) & 0xFF;
+                if (b0 <= 27 && b0 != 28) {
+                    final int operator = b0 == 12 ? 1200 + (data.get(position++) & 0xFF) : b0;
+                    if (operator == BLEND && regionCounts != null) {
+                        // 只保留默认值，变体增量仅影响微调参数
+                        if (count < 1)
+                            throw new IOException();
+                        final int values = (int) operands[--count];
+                        final int vsindex = (int) get(VSINDEX, 0);
+                        if (vsindex < 0 || vsindex >= regionCounts.length)
+                            throw new IOException();
+                        final int deltas = values * regionCounts[vsindex];
+                        if (values < 0 || count < values + deltas)
+                            throw new IOException();
+                        count -= deltas;
+                        continue;
+                    }
+                    mEntries.put(operator, Arrays.copyOf(operands, count));
+                    count = 0;
+                    continue;
+                }
+                if (count >= MAX_OPERANDS)
+                    throw new IOException();
+                if (b0 == 28) {
+                    operands[count++] = data.getShort(position);
+                    position += 2;
+                } else if (b0 == 29) {
+                    operands[count++] = data.getInt(position);
+                    position += 4;
+                } else if (b0 == 30) {
+                    final StringBuilder builder = new StringBuilder();
+                    boolean done = false;
+                    while (!done) {
+                        final int b = data.get(position++) & 0xFF;
+                        for (int nibble : new int[]{b >> 4, b & 0x0F}) {
+                            if (nibble == 0x0F) {
+                                done = true;
+                                break;
+                            }
+                            if (nibble == 0x0C)
+                                builder.append("E-");
+                            else if (nibble != 0x0D)
+                                builder.append(REAL_NIBBLES[nibble]);
+                        }
+                    }
+                    try {
+                        operands[count++] = builder.length() == 0 ? 0 :
+                                Double.parseDouble(builder.toString());
+                    } catch (NumberFormatException e) {
+                        throw new IOException(e);
+                    }
+                } else if (b0 <= 246) {
+                    operands[count++] = b0 - 139;
+                } else if (b0 <= 250) {
+                    operands[count++] = (b0 - 247) * 256 + (data.get(position++) & 0xFF) + 108;
+                } else if (b0 <= 254) {
+                    operands[count++] = -(b0 - 251) * 256 - (data.get(position++) & 0xFF) - 108;
+                } else {
+                    throw new IOException();// 255 仅用于 CharString
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    boolean contains(int key) {
+        return mEntries.containsKey(key);
+    }
+
+    double[] get(int key) {
+        return mEntries.get(key);
+    }
+
+    double get(int key, double defaultValue) {
+        final double[] operands = mEntries.get(key);
+        return operands == null || operands.length == 0 ? defaultValue : operands[0];
+    }
+
+    int getInt(int key, int defaultValue) {
+        return (int) get(key, defaultValue);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        for (Integer key : mEntries.keySet()) {
+            if (builder.length() > 1)
+                builder.append(", ");
+            builder.append(key).append('=').append(Arrays.toString(mEntries.get(key)));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * CFF INDEX
+ * An array of variable-sized objects. Only the header is read on construction; the offset
+ * array is decoded once on first access and cached, so large subroutine and CharStrings
+ * INDEXes cost nothing until a glyph actually needs them.
+ * CFF uses a 16-bit count, CFF2 a 32-bit count.
+ */
+final class CompactFontFormatIndex {
+
+    static final CompactFontFormatIndex EMPTY = new CompactFontFormatIndex();
+    private final ByteBuffer mData;
+    private final int mCount;
+    private final int mOffSize;
+    private final int mOffsetsStart;
+    private final int mDataStart;
+    private final int mEnd;
+    private volatile int[] mOffsets;
+
+    private CompactFontFormatIndex() {
+        mData = null;
+        mCount = 0;
+        mOffSize = 0;
+        mOffsetsStart = 0;
+        mDataStart = 0;
+        mEnd = 0;
+        mOffsets = new int[]{0};
+    }
+
+    CompactFontFormatIndex(ByteBuffer data, int offset, boolean cff2) throws IOException {
+        try {
+            final int count;
+            final int header;
+            if (cff2) {
+                count = data.getInt(offset);
+                header = 4;
+            } else {
+                count = data.getChar(offset);
+                header = 2;
+            }
+            if (count < 0)
+                throw new IOException();
+            mData = data;
+            mCount = count;
+            if (count == 0) {
+                mOffSize = 0;
+                mOffsetsStart = 0;
+                mDataStart = 0;
+                mEnd = offset + header;
+                return;
+            }
+            final int offSize = data.get(offset + header) & 0xFF;
+            if (offSize < 1 || offSize > 4)
+                throw new IOException();
+            mOffSize = offSize;
+            mOffsetsStart = offset + header + 1;
+            final long dataStart = mOffsetsStart + (long) (count + 1) * offSize - 1;
+            if (dataStart >= data.limit())
+                throw new IOException();
+            mDataStart = (int) dataStart;
+            final long end = dataStart + readOffset(count);
+            if (end > data.limit())
+                throw new IOException();
+            mEnd = (int) end;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private int readOffset(int index) {
+        int position = mOffsetsStart + index * mOffSize;
+        int value = 0;
+        for (int i = 0; i < mOffSize; i++) {
+            value = (value << 8) | (mData.get(position++) & 0xFF);
+        }
+        return value;
+    }
+
+    private int[] getOffsets() throws IOException {
+        int[] offsets = mOffsets;
+        if (offsets == null) {
+            offsets = new int[mCount + 1];
+            int previous = 1;
+            for (int i = 0; i <= mCount; i++) {
+                final int offset = readOffset(i);
+                if (offset < previous)
+                    throw new IOException();
+                offsets[i] = previous = offset;
+            }
+            if (offsets[0] != 1)
+                throw new IOException();
+            mOffsets = offsets;
+        }
+        return offsets;
+    }
+
+    /**
+     * 获取对象数目
+     *
+     * @return 对象数目
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * 获取 INDEX 之后的位置
+     *
+     * @return 位置
+     */
+    int getEnd() {
+        return mEnd;
+    }
+
+    /**
+     * 获取对象起始位置
+     *
+     * @param index 序号
+     * @return 相对表数据的位置
+     * @throws IOException 数据错误
+     */
+    int getStart(int index) throws IOException {
+        if (index < 0 || index >= mCount)
+            throw new IOException();
+        return mDataStart + getOffsets()[index];
+    }
+
+    /**
+     * 获取对象结束位置
+     *
+     * @param index 序号
+     * @return 相对表数据的位置（不含）
+     * @throws IOException 数据错误
+     */
+    int getEnd(int index) throws IOException {
+        if (index < 0 || index >= mCount)
+            throw new IOException();
+        return mDataStart + getOffsets()[index + 1];
+    }
+
+    /**
+     * 获取对象数据，作为字符串
+     *
+     * @param index 序号
+     * @return 字符串（Latin-1）
+     * @throws IOException 数据错误
+     */
+    String getString(int index) throws IOException {
+        final int start = getStart(index);
+        final int end = getEnd(index);
+        final char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (mData.get(start + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 子程序偏置
+     *
+     * @return 偏置
+     */
+    int getSubroutineBias() {
+        return mCount < 1240 ? 107 : mCount < 33900 ? 1131 : 32768;
+    }
+}
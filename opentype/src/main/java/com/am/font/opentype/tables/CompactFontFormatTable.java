@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Compact Font Format Table
+ * This table contains a Compact Font Format font representation (also known as a PostScript
+ * Type 1, or CIDFont) and is structured according to Adobe Technical Note #5176:
+ * "The Compact Font Format Specification," and Adobe Technical Note #5177: "Type 2 Charstring
+ * Format."
+ * 仅解析 INDEX 头部、DICT、字符集与 FDSelect；CharStrings 与子程序的偏移量在首次使用时解码并缓存，
+ * 子程序在调用时才执行。
+ */
+@SuppressWarnings("unused")
+public class CompactFontFormatTable extends BaseTable implements GlyphOutlineSource {
+
+    private static final int NUMBER_OF_STANDARD_STRINGS = 391;
+    private final ByteBuffer mData;
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final String mFontName;
+    private final CompactFontFormatIndex mStrings;
+    private final CompactFontFormatIndex mGlobalSubrs;
+    private final CompactFontFormatIndex mCharStrings;
+    private final int mCharStringType;
+    private final float[] mFontMatrix;
+    private final float[] mOutlineMatrix;// 字形空间到设计单位，恒等变换时为空
+    private final float[] mFontBBox;
+    private final boolean mCIDFont;
+    private final int[] mCharset;
+    private final int mFDSelectOffset;
+    private final PrivateRecord[] mPrivateRecords;
+    private volatile int[] mSeacGlyphIds;
+
+    public CompactFontFormatTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        this(reader, record, 0);
+    }
+
+    /**
+     * 创建表，输出轮廓时先按 FontMatrix 把字形空间映射到 em，再乘以每 em 单位数得到设计单位；
+     * Top DICT 未声明 FontMatrix 时视为字形空间已是设计单位
+     *
+     * @param reader     读取器
+     * @param record     表记录
+     * @param unitsPerEm 'head' 表的每 em 单位数，不大于 0 时按 FontMatrix 的纵向缩放推算
+     * @throws IOException 数据错误
+     */
+    public CompactFontFormatTable(OpenTypeReader reader, TableRecord record, int unitsPerEm)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_CFF)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        mData = data;
+        try {
+            mMajorVersion = data.get(0) & 0xFF;
+            mMinorVersion = data.get(1) & 0xFF;
+            if (mMajorVersion != 1)
+                throw new IOException();
+            final int hdrSize = data.get(2) & 0xFF;
+            final CompactFontFormatIndex names = new CompactFontFormatIndex(data, hdrSize, false);
+            final CompactFontFormatIndex topDicts =
+                    new CompactFontFormatIndex(data, names.getEnd(), false);
+            mStrings = new CompactFontFormatIndex(data, topDicts.getEnd(), false);
+            mGlobalSubrs = new CompactFontFormatIndex(data, mStrings.getEnd(), false);
+            if (names.getCount() < 1 || topDicts.getCount() < 1)
+                throw new IOException();
+            // OpenType 中的 CFF 只包含一个字体
+            mFontName = names.getString(0);
+            final CompactFontFormatDict top = new CompactFontFormatDict(data,
+                    topDicts.getStart(0), topDicts.getEnd(0));
+            mCharStringType = top.getInt(CompactFontFormatDict.CHARSTRING_TYPE, 2);
+            if (mCharStringType != 2)
+                throw new IOException();
+            mFontMatrix = toFloats(top.get(CompactFontFormatDict.FONT_MATRIX),
+                    new float[]{0.001f, 0, 0, 0.001f, 0, 0});
+            // 未声明 FontMatrix 时字形空间即设计单位（与 'head' 一致），不做换算
+            mOutlineMatrix = !top.contains(CompactFontFormatDict.FONT_MATRIX) ? null :
+                    getOutlineMatrix(mFontMatrix, unitsPerEm);
+            mFontBBox = toFloats(top.get(CompactFontFormatDict.FONT_BBOX), new float[4]);
+            final int charStrings = top.getInt(CompactFontFormatDict.CHAR_STRINGS, -1);
+            if (charStrings <= 0)
+                throw new IOException();
+            mCharStrings = new CompactFontFormatIndex(data, charStrings, false);
+            final int numGlyphs = mCharStrings.getCount();
+            mCIDFont = top.contains(CompactFontFormatDict.ROS);
+            mCharset = readCharset(data,
+                    top.getInt(CompactFontFormatDict.CHARSET, 0), numGlyphs, mCIDFont);
+            if (mCIDFont) {
+                final int fdArray = top.getInt(CompactFontFormatDict.FD_ARRAY, -1);
+                final int fdSelect = top.getInt(CompactFontFormatDict.FD_SELECT, -1);
+                if (fdArray <= 0 || fdSelect <= 0)
+                    throw new IOException();
+                final CompactFontFormatIndex fonts =
+                        new CompactFontFormatIndex(data, fdArray, false);
+                mPrivateRecords = new PrivateRecord[fonts.getCount()];
+                for (int i = 0; i < mPrivateRecords.length; i++) {
+                    final CompactFontFormatDict font = new CompactFontFormatDict(data,
+                            fonts.getStart(i), fonts.getEnd(i));
+                    mPrivateRecords[i] = readPrivate(data,
+                            font.get(CompactFontFormatDict.PRIVATE));
+                }
+                final int format = data.get(fdSelect) & 0xFF;
+                if (format != 0 && format != 3)
+                    throw new IOException();
+                mFDSelectOffset = fdSelect;
+            } else {
+                mPrivateRecords = new PrivateRecord[]{
+                        readPrivate(data, top.get(CompactFontFormatDict.PRIVATE))};
+                mFDSelectOffset = -1;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static float[] toFloats(double[] values, float[] defaultValue) {
+        if (values == null || values.length != defaultValue.length)
+            return defaultValue;
+        final float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    private static float[] getOutlineMatrix(float[] fontMatrix, int unitsPerEm) {
+        float scale = unitsPerEm;
+        if (scale <= 0)
+            scale = fontMatrix[3] == 0 ? 1000 : Math.round(1 / Math.abs(fontMatrix[3]));
+        final float[] matrix = new float[6];
+        boolean identity = true;
+        for (int i = 0; i < 6; i++) {
+            matrix[i] = fontMatrix[i] * scale;
+            if (Math.abs(matrix[i] - (i == 0 || i == 3 ? 1 : 0)) > 1e-4f)
+                identity = false;
+        }
+        return identity ? null : matrix;
+    }
+
+    private static int[] readCharset(ByteBuffer data, int offset, int numGlyphs,
+                                     boolean cid) throws IOException {
+        final int[] charset = new int[numGlyphs];
+        if (offset == 0) {
+            // 预定义字符集 ISOAdobe：SID 与字形ID相同
+            for (int i = 0; i < numGlyphs; i++) {
+                charset[i] = i;
+            }
+            return charset;
+        }
+        if (offset <= 2)
+            throw new IOException();// 不支持预定义字符集 Expert 与 ExpertSubset（仅见于早期专家字体）
+        final int format = data.get(offset) & 0xFF;
+        int position = offset + 1;
+        int glyph = 1;// .notdef 不在字符集中
+        switch (format) {
+            case 0:
+                while (glyph < numGlyphs) {
+                    charset[glyph++] = data.getChar(position);
+                    position += 2;
+                }
+                break;
+            case 1:
+            case 2:
+                while (glyph < numGlyphs) {
+                    final int first = data.getChar(position);
+                    final int left = format == 1 ? data.get(position + 2) & 0xFF :
+                            data.getChar(position + 2);
+                    position += format == 1 ? 3 : 4;
+                    for (int i = 0; i <= left && glyph < numGlyphs; i++) {
+                        charset[glyph++] = first + i;
+                    }
+                }
+                break;
+            default:
+                throw new IOException();
+        }
+        return charset;
+    }
+
+    private static PrivateRecord readPrivate(ByteBuffer data, double[] operands)
+            throws IOException {
+        if (operands == null || operands.length < 2)
+            return new PrivateRecord(CompactFontFormatIndex.EMPTY, 0, 0);
+        final int size = (int) operands[0];
+        final int offset = (int) operands[1];
+        if (size < 0 || offset < 0 || (long) offset + size > data.limit())
+            throw new IOException();
+        final CompactFontFormatDict dict = new CompactFontFormatDict(data, offset, offset + size);
+        final int subrs = dict.getInt(CompactFontFormatDict.SUBRS, 0);
+        return new PrivateRecord(subrs > 0 ?
+                new CompactFontFormatIndex(data, offset + subrs, false) :
+                CompactFontFormatIndex.EMPTY,
+                (float) dict.get(CompactFontFormatDict.DEFAULT_WIDTH_X, 0),
+                (float) dict.get(CompactFontFormatDict.NOMINAL_WIDTH_X, 0));
+    }
+
+    /**
+     * Format major version (starting at 1).
+     *
+     * @return Major version.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Format minor version (starting at 0).
+     *
+     * @return Minor version.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The PostScript name of the font.
+     *
+     * @return Font name.
+     */
+    public String getFontName() {
+        return mFontName;
+    }
+
+    /**
+     * Whether the font is CID-keyed (the Top DICT begins with ROS).
+     *
+     * @return True if CID-keyed.
+     */
+    public boolean isCIDFont() {
+        return mCIDFont;
+    }
+
+    /**
+     * Charstring type, always 2 in OpenType.
+     *
+     * @return Charstring type.
+     */
+    public int getCharStringType() {
+        return mCharStringType;
+    }
+
+    /**
+     * The FontMatrix, maps glyph space to text space.
+     *
+     * @return Font matrix, a new array is created on every call.
+     */
+    public float[] getFontMatrix() {
+        return mFontMatrix.clone();
+    }
+
+    /**
+     * The FontBBox: xMin, yMin, xMax, yMax.
+     *
+     * @return Font bounding box, a new array is created on every call.
+     */
+    public float[] getFontBBox() {
+        return mFontBBox.clone();
+    }
+
+    @Override
+    public int getNumGlyphs() {
+        return mCharStrings.getCount();
+    }
+
+    /**
+     * 获取字形的 SID（名称键控字体）或 CID（CID 键控字体）
+     *
+     * @param glyphId 字形ID
+     * @return SID 或 CID
+     */
+    public int getCharsetId(int glyphId) {
+        return mCharset[glyphId];
+    }
+
+    /**
+     * 获取自定义字符串，标准字符串（SID 小于 391）不包含在表中，返回空
+     *
+     * @param sid 字符串ID
+     * @return 字符串
+     * @throws IOException 数据错误
+     */
+    public String getString(int sid) throws IOException {
+        final int index = sid - NUMBER_OF_STANDARD_STRINGS;
+        if (index < 0 || index >= mStrings.getCount())
+            return null;
+        return mStrings.getString(index);
+    }
+
+    /**
+     * 获取字形所属的字体字典（CID 键控字体），名称键控字体始终为0
+     *
+     * @param glyphId 字形ID
+     * @return 字体字典序号
+     * @throws IOException 数据错误
+     */
+    public int getFontDictIndex(int glyphId) throws IOException {
+        if (glyphId < 0 || glyphId >= getNumGlyphs())
+            throw new IOException();
+        if (mFDSelectOffset < 0)
+            return 0;
+        return getFontDictIndex(mData, mFDSelectOffset, glyphId);
+    }
+
+    /**
+     * 查询 FDSelect，支持格式 0、3 与 4（CFF2）
+     */
+    static int getFontDictIndex(ByteBuffer data, int offset, int glyphId) throws IOException {
+        try {
+            final int format = data.get(offset) & 0xFF;
+            if (format == 0)
+                return data.get(offset + 1 + glyphId) & 0xFF;
+            if (format != 3 && format != 4)
+                throw new IOException();
+            // 按首个字形ID递增的区间，二分查找
+            final boolean wide = format == 4;
+            final int ranges = wide ? data.getInt(offset + 1) : data.getChar(offset + 1);
+            final int start = offset + (wide ? 5 : 3);
+            final int size = wide ? 6 : 3;
+            int low = 0;
+            int high = ranges - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int position = start + middle * size;
+                final int first = wide ? data.getInt(position) : data.getChar(position);
+                final int next = wide ? data.getInt(position + size) :
+                        data.getChar(position + size);// 下一区间或 sentinel
+                if (glyphId < first)
+                    high = middle - 1;
+                else if (glyphId >= next)
+                    low = middle + 1;
+                else
+                    return wide ? data.getChar(position + 4) : data.get(position + 2) & 0xFF;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        throw new IOException();
+    }
+
+    /**
+     * 获取字体字典数目
+     *
+     * @return 字体字典数目，名称键控字体为1
+     */
+    public int getNumberOfFontDicts() {
+        return mPrivateRecords.length;
+    }
+
+    /**
+     * 获取默认步进宽度（Private DICT 的 defaultWidthX）
+     *
+     * @param fontDictIndex 字体字典序号
+     * @return 默认步进宽度
+     */
+    public float getDefaultWidthX(int fontDictIndex) {
+        return mPrivateRecords[fontDictIndex].mDefaultWidthX;
+    }
+
+    /**
+     * 获取名义步进宽度（Private DICT 的 nominalWidthX）
+     *
+     * @param fontDictIndex 字体字典序号
+     * @return 名义步进宽度
+     */
+    public float getNominalWidthX(int fontDictIndex) {
+        return mPrivateRecords[fontDictIndex].mNominalWidthX;
+    }
+
+    /**
+     * 解码字形轮廓，输出直线与三次曲线，坐标已按 FontMatrix 换算为设计单位
+     *
+     * @param glyphId 字形ID
+     * @param sink    轮廓接收器
+     * @throws IOException 字形ID越界或数据错误
+     */
+    @Override
+    public void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException {
+        final int fd = getFontDictIndex(glyphId);
+        if (fd >= mPrivateRecords.length)
+            throw new IOException();
+        CharStringInterpreter.get().decode(mData, mCharStrings, glyphId, mGlobalSubrs,
+                mPrivateRecords[fd].mSubrs, mCIDFont ? null : getSeacGlyphIds(), mOutlineMatrix,
+                sink);
+    }
+
+    /**
+     * 标准编码到字形ID的映射，供 endchar 的重音组合使用
+     */
+    private int[] getSeacGlyphIds() {
+        int[] ids = mSeacGlyphIds;
+        if (ids == null) {
+            final int[] sids = new int[NUMBER_OF_STANDARD_STRINGS];
+            Arrays.fill(sids, -1);
+            for (int glyph = mCharset.length - 1; glyph >= 0; glyph--) {
+                final int sid = mCharset[glyph];
+                if (sid < sids.length)
+                    sids[sid] = glyph;
+            }
+            ids = new int[256];
+            for (int code = 0; code < ids.length; code++) {
+                final int sid = getStandardEncodingSid(code);
+                ids[code] = sid == 0 ? -1 : sids[sid];
+            }
+            mSeacGlyphIds = ids;
+        }
+        return ids;
+    }
+
+    /**
+     * 标准编码（Standard Encoding）中字符码对应的 SID
+     */
+    private static int getStandardEncodingSid(int code) {
+        if (code >= 32 && code <= 126)
+            return code - 31;
+        switch (code) {
+            case 161:
+            case 162:
+            case 163:
+            case 164:
+            case 165:
+            case 166:
+            case 167:
+            case 168:
+            case 169:
+            case 170:
+            case 171:
+            case 172:
+            case 173:
+            case 174:
+            case 175:
+                return code - 65;// exclamdown (96) - fl (110)
+            case 177:
+            case 178:
+            case 179:
+            case 180:
+                return code - 66;// endash (111) - periodcentered (114)
+            case 182:
+            case 183:
+            case 184:
+            case 185:
+            case 186:
+            case 187:
+            case 188:
+            case 189:
+                return code - 67;// paragraph (115) - perthousand (122)
+            case 191:
+                return 123;// questiondown
+            case 193:
+            case 194:
+            case 195:
+            case 196:
+            case 197:
+            case 198:
+            case 199:
+            case 200:
+                return code - 69;// grave (124) - dieresis (131)
+            case 202:
+            case 203:
+                return code - 70;// ring (132), cedilla (133)
+            case 205:
+            case 206:
+            case 207:
+            case 208:
+                return code - 71;// hungarumlaut (134) - emdash (137)
+            case 225:
+                return 138;// AE
+            case 227:
+                return 139;// ordfeminine
+            case 232:
+            case 233:
+            case 234:
+            case 235:
+                return code - 92;// Lslash (140) - ordmasculine (143)
+            case 241:
+                return 144;// ae
+            case 245:
+                return 145;// dotlessi
+            case 248:
+            case 249:
+            case 250:
+            case 251:
+                return code - 102;// lslash (146) - germandbls (149)
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion, mFontName,
+                mCharStringType, mCIDFont, getNumGlyphs());
+        result = 31 * result + Arrays.hashCode(mFontMatrix);
+        result = 31 * result + Arrays.hashCode(mFontBBox);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "CompactFontFormatTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", fontName=" + mFontName +
+                ", charStringType=" + mCharStringType +
+                ", cidFont=" + mCIDFont +
+                ", numGlyphs=" + getNumGlyphs() +
+                ", fontDicts=" + mPrivateRecords.length +
+                ", fontMatrix=" + Arrays.toString(mFontMatrix) +
+                ", fontBBox=" + Arrays.toString(mFontBBox) +
+                '}';
+    }
+
+    /**
+     * Private DICT 中解码字形所需的数据
+     */
+    private static final class PrivateRecord {
+        private final CompactFontFormatIndex mSubrs;
+        private final float mDefaultWidthX;
+        private final float mNominalWidthX;
+
+        PrivateRecord(CompactFontFormatIndex subrs, float defaultWidthX, float nominalWidthX) {
+            mSubrs = subrs;
+            mDefaultWidthX = defaultWidthX;
+            mNominalWidthX = nominalWidthX;
+        }
+    }
+}
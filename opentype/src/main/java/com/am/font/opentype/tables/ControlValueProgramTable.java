@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Control Value Program Table
+ * The Control Value Program consists of a set of TrueType instructions that will be executed whenever the font or point size or transformation matrix change and before each glyph is interpreted. Any instruction is legal in the CVT Program but since no glyph is associated with it, instructions intended to move points within a particular glyph outline cannot be used in the CVT Program.
+ */
+@SuppressWarnings("unused")
+public class ControlValueProgramTable extends BaseTable {
+
+    private final byte[] mInstructions;
+
+    public ControlValueProgramTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_PREP)
+            throw new IOException();
+        final byte[] instructions = new byte[record.getLength()];
+        readTableData(reader, record).duplicate().get(instructions);
+        mInstructions = instructions;
+    }
+
+    /**
+     * Instructions, the array is shared and must not be modified.
+     *
+     * @return Instructions.
+     */
+    public byte[] getInstructions() {
+        return mInstructions;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode());
+        result = 31 * result + Arrays.hashCode(mInstructions);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "ControlValueProgramTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", instructions=" + Arrays.toString(mInstructions) +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Control Value Table
+ * This table contains a list of values that can be referenced by instructions.
+ * They can be used, among other things, to control characteristics for different glyphs.
+ * The length of the table must be an integral number of FWORD units.
+ */
+@SuppressWarnings("unused")
+public class ControlValueTable extends BaseTable {
+
+    private final short[] mValues;
+
+    public ControlValueTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_CVT)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final short[] values = new short[record.getLength() / 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (short) reader.readShort();
+        }
+        mValues = values;
+    }
+
+    /**
+     * Number of values.
+     *
+     * @return Number of values.
+     */
+    public int getNumberOfValues() {
+        return mValues.length;
+    }
+
+    /**
+     * Value referenceable by instructions, in font design units.
+     *
+     * @param index cvt index
+     * @return Value.
+     */
+    public int getValue(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * List of values referenceable by instructions, a new array is created on every call.
+     *
+     * @return Values.
+     */
+    public int[] getValues() {
+        final int[] values = new int[mValues.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mValues[i];
+        }
+        return values;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode());
+        result = 31 * result + Arrays.hashCode(mValues);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "ControlValueTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", values=" + Arrays.toString(mValues) +
+                '}';
+    }
+}
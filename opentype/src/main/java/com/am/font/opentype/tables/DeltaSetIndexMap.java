@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Delta Set Index Map
+ * Maps glyph IDs or other item indices to delta-set indices (outer and inner index pairs)
+ * in an {@link ItemVariationStore}. Indices beyond the end of the map use the last entry.
+ * 映射以基本类型数组保存，每项高 16 位为外层序号，低 16 位为内层序号。
+ */
+@SuppressWarnings("unused")
+public class DeltaSetIndexMap {
+
+    private final int mFormat;
+    private final int mEntryFormat;
+    private final int[] mEntries;
+
+    DeltaSetIndexMap(ByteBuffer data, int offset) throws IOException {
+        try {
+            mFormat = data.get(offset) & 0xFF;
+            mEntryFormat = data.get(offset + 1) & 0xFF;
+            final int mapCount;
+            int position;
+            if (mFormat == 0) {
+                mapCount = data.getChar(offset + 2);
+                position = offset + 4;
+            } else if (mFormat == 1) {
+                mapCount = data.getInt(offset + 2);
+                position = offset + 6;
+            } else {
+                throw new IOException();
+            }
+            final int entrySize = ((mEntryFormat & 0x30) >> 4) + 1;
+            final int innerBitCount = (mEntryFormat & 0x0F) + 1;
+            if (mapCount < 0 || mapCount > (data.limit() - position) / entrySize)
+                throw new IOException();
+            final int[] entries = new int[mapCount];
+            for (int i = 0; i < mapCount; i++) {
+                int entry = 0;
+                for (int j = 0; j < entrySize; j++) {
+                    entry = entry << 8 | (data.get(position++) & 0xFF);
+                }
+                final int outer = entry >>> innerBitCount;
+                final int inner = entry & ((1 << innerBitCount) - 1);
+                if (outer > 0xFFFF)
+                    throw new IOException();
+                entries[i] = outer << 16 | inner;
+            }
+            mEntries = entries;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * DeltaSetIndexMap format: set to 0 (16-bit map count) or 1 (32-bit map count).
+     *
+     * @return Format.
+     */
+    public int getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * A packed field that describes the compressed representation of delta-set indices.
+     *
+     * @return Entry format.
+     */
+    public int getEntryFormat() {
+        return mEntryFormat;
+    }
+
+    /**
+     * The number of mapping entries.
+     *
+     * @return Map count.
+     */
+    public int getMapCount() {
+        return mEntries.length;
+    }
+
+    /**
+     * The outer (item variation data) index of the delta-set for the item.
+     *
+     * @param index item index, typically the glyph ID
+     * @return Outer index, 0xFFFF for an empty map.
+     */
+    public int getOuterIndex(int index) {
+        if (mEntries.length == 0)
+            return 0xFFFF;
+        return mEntries[index < mEntries.length ? index : mEntries.length - 1] >>> 16;
+    }
+
+    /**
+     * The inner (row) index of the delta-set for the item.
+     *
+     * @param index item index, typically the glyph ID
+     * @return Inner index, 0xFFFF for an empty map.
+     */
+    public int getInnerIndex(int index) {
+        if (mEntries.length == 0)
+            return 0xFFFF;
+        return mEntries[index < mEntries.length ? index : mEntries.length - 1] & 0xFFFF;
+    }
+
+    @Override
+    public String toString() {
+        return "DeltaSetIndexMap{" +
+                "format=" + mFormat +
+                ", entryFormat=" + mEntryFormat +
+                ", mapCount=" + mEntries.length +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Font Program Table
+ * This table is similar to the CVT Program, except that it is only run once, when the font is first used. It is used only for FDEFs and IDEFs. Thus the CVT Program need not contain function definitions. However, the CVT Program may redefine existing FDEFs or IDEFs.
+ */
+@SuppressWarnings("unused")
+public class FontProgramTable extends BaseTable {
+
+    private final byte[] mInstructions;
+
+    public FontProgramTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_FPGM)
+            throw new IOException();
+        final byte[] instructions = new byte[record.getLength()];
+        readTableData(reader, record).duplicate().get(instructions);
+        mInstructions = instructions;
+    }
+
+    /**
+     * Instructions, the array is shared and must not be modified.
+     *
+     * @return Instructions.
+     */
+    public byte[] getInstructions() {
+        return mInstructions;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode());
+        result = 31 * result + Arrays.hashCode(mInstructions);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "FontProgramTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", instructions=" + Arrays.toString(mInstructions) +
+                '}';
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Font Variations Table
+ * The font variations table ('fvar') is used in variable fonts to specify the variation axes
+ * and named instances of the font. User coordinates are normalized once into a
+ * {@link VariationInstance}; instances are cached by user coordinates and interned by their
+ * normalized coordinates in bounded LRU maps, so every variation consumer of a recently used
+ * instance shares the same normalized vector.
+ */
+@SuppressWarnings("unused")
+public class FontVariationsTable extends BaseTable {
+
+    private static final int MAX_CACHED_INSTANCES = 256;
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final List<VariationAxisRecord> mAxes;
+    private final List<InstanceRecord> mInstances;
+    private final InstanceCache mInstanceCache = new InstanceCache();
+    private final InstanceCache mInternedInstances = new InstanceCache();
+
+    public FontVariationsTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_FVAR)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final int majorVersion = reader.readUnsignedShort();
+        final int minorVersion = reader.readUnsignedShort();
+        final int axesArrayOffset = reader.readUnsignedShort();
+        reader.skip(2);// reserved
+        final int axisCount = reader.readUnsignedShort();
+        final int axisSize = reader.readUnsignedShort();
+        final int instanceCount = reader.readUnsignedShort();
+        final int instanceSize = reader.readUnsignedShort();
+        if (majorVersion != 1 || axisSize < 20 || (instanceCount > 0 &&
+                instanceSize < axisCount * 4 + 4))
+            throw new IOException();
+        final ArrayList<VariationAxisRecord> axes = new ArrayList<>();
+        for (int i = 0; i < axisCount; i++) {
+            reader.seek(record.getOffset() + axesArrayOffset + (long) i * axisSize);
+            final int axisTag = reader.readInt();
+            final float minValue = reader.readFixed();
+            final float defaultValue = reader.readFixed();
+            final float maxValue = reader.readFixed();
+            final int flags = reader.readUnsignedShort();
+            final int axisNameID = reader.readUnsignedShort();
+            axes.add(new VariationAxisRecord(axisTag, minValue, defaultValue, maxValue, flags,
+                    axisNameID));
+        }
+        final ArrayList<InstanceRecord> instances = new ArrayList<>();
+        final long instancesOffset = record.getOffset() + axesArrayOffset +
+                (long) axisCount * axisSize;
+        for (int i = 0; i < instanceCount; i++) {
+            reader.seek(instancesOffset + (long) i * instanceSize);
+            final int subfamilyNameID = reader.readUnsignedShort();
+            final int flags = reader.readUnsignedShort();
+            final float[] coordinates = new float[axisCount];
+            for (int j = 0; j < axisCount; j++) {
+                coordinates[j] = reader.readFixed();
+            }
+            final int postScriptNameID = instanceSize >= axisCount * 4 + 6 ?
+                    reader.readUnsignedShort() : 0xFFFF;
+            instances.add(new InstanceRecord(subfamilyNameID, flags, coordinates,
+                    postScriptNameID));
+        }
+        mMajorVersion = majorVersion;
+        mMinorVersion = minorVersion;
+        mAxes = axes;
+        mInstances = instances;
+    }
+
+    /**
+     * Major version number of the font variations table — set to 1.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the font variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The number of variation axes in the font.
+     *
+     * @return Axis count.
+     */
+    public int getAxisCount() {
+        return mAxes.size();
+    }
+
+    /**
+     * The variation axis records.
+     *
+     * @return Variation axis records.
+     */
+    public List<VariationAxisRecord> getAxes() {
+        return mAxes;
+    }
+
+    /**
+     * 获取轴序号
+     *
+     * @param axisTag 轴标签，如 {@link VariationAxisRecord#TAG_WEIGHT}
+     * @return 轴序号，不存在时返回 -1
+     */
+    public int findAxis(int axisTag) {
+        for (int i = 0; i < mAxes.size(); i++) {
+            if (mAxes.get(i).getAxisTag() == axisTag)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The number of named instances defined in the font.
+     *
+     * @return Instance count.
+     */
+    public int getInstanceCount() {
+        return mInstances.size();
+    }
+
+    /**
+     * The named instance records.
+     *
+     * @return Instance records.
+     */
+    public List<InstanceRecord> getInstances() {
+        return mInstances;
+    }
+
+    /**
+     * 获取默认实例
+     *
+     * @param avar 轴变化表，可为 null
+     * @return 实例
+     */
+    public VariationInstance getDefaultInstance(AxisVariationsTable avar) {
+        final float[] coordinates = new float[mAxes.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = mAxes.get(i).getDefaultValue();
+        }
+        return getInstance(avar, coordinates);
+    }
+
+    /**
+     * 获取命名实例
+     *
+     * @param avar  轴变化表，可为 null
+     * @param index 命名实例序号
+     * @return 实例
+     */
+    public VariationInstance getNamedInstance(AxisVariationsTable avar, int index) {
+        return getInstance(avar, mInstances.get(index).mCoordinates);
+    }
+
+    /**
+     * 获取实例
+     *
+     * @param avar     轴变化表，可为 null
+     * @param axisTags 轴标签，未指定的轴取默认值，字体不含的轴被忽略
+     * @param values   用户坐标
+     * @return 实例
+     */
+    public VariationInstance getInstance(AxisVariationsTable avar, int[] axisTags,
+                                         float[] values) {
+        if (axisTags.length != values.length)
+            throw new IllegalArgumentException();
+        final float[] coordinates = new float[mAxes.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = mAxes.get(i).getDefaultValue();
+        }
+        for (int i = 0; i < axisTags.length; i++) {
+            final int axis = findAxis(axisTags[i]);
+            if (axis >= 0)
+                coordinates[axis] = values[i];
+        }
+        return getInstance(avar, coordinates);
+    }
+
+    /**
+     * 获取实例，相同用户坐标返回缓存的实例，实例的用户坐标总是调用方给出的值；
+     * 归一化坐标相同的实例相等，且共享同一个归一化坐标数组（及依此缓存的区域系数）。
+     * 最近使用的 {@value #MAX_CACHED_INSTANCES} 组用户坐标对应的实例为同一对象，
+     * 更早的按最近最少使用淘汰，再次获取会得到新的（相等的）对象。
+     * 与规范一致，归一化坐标在 avar 映射前后均取整到 F2Dot14 精度。
+     *
+     * @param avar            轴变化表，可为 null
+     * @param userCoordinates 用户坐标，按轴顺序排列，缺少的轴取默认值
+     * @return 实例
+     */
+    public VariationInstance getInstance(AxisVariationsTable avar, float... userCoordinates) {
+        final InstanceKey key = new InstanceKey(avar, userCoordinates);
+        final int axisCount = mAxes.size();
+        synchronized (mInstanceCache) {
+            final VariationInstance cached = mInstanceCache.get(key);
+            if (cached != null) {
+                // 同时刷新驻留条目，使缓存命中的实例不会先于其驻留条目被淘汰
+                final InstanceKey normalizedKey = new InstanceKey(null, cached.getCoordinates());
+                if (mInternedInstances.get(normalizedKey) == null)
+                    mInternedInstances.put(normalizedKey, cached);
+                return cached;
+            }
+            final float[] user = new float[axisCount];
+            final float[] normalized = new float[axisCount];
+            for (int i = 0; i < axisCount; i++) {
+                final VariationAxisRecord axis = mAxes.get(i);
+                user[i] = userCoordinates != null && i < userCoordinates.length ?
+                        userCoordinates[i] : axis.getDefaultValue();
+                float value = toF2Dot14(axis.normalize(user[i]));
+                if (avar != null)
+                    value = toF2Dot14(avar.map(i, value));
+                normalized[i] = value;
+            }
+            final InstanceKey normalizedKey = new InstanceKey(null, normalized);
+            final VariationInstance interned = mInternedInstances.get(normalizedKey);
+            final VariationInstance instance;
+            if (interned == null) {
+                instance = new VariationInstance(mAxes, user, normalized);
+                mInternedInstances.put(normalizedKey, instance);
+            } else if (interned.hasUserCoordinates(user)) {
+                instance = interned;
+            } else {
+                // 用户坐标不同（如超出轴范围后被限制），共享归一化坐标但保留调用方的用户坐标
+                instance = new VariationInstance(mAxes, user, interned.getCoordinates());
+            }
+            mInstanceCache.put(new InstanceKey(avar, userCoordinates == null ? null :
+                    userCoordinates.clone()), instance);
+            return instance;
+        }
+    }
+
+    static float toF2Dot14(float value) {
+        return Math.round(Math.max(-2, Math.min(1.99993896484375f, value)) * 16384) / 16384f;
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion, mAxes,
+                mInstances);
+    }
+
+    @Override
+    public String getString() {
+        return "FontVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", axes=" + String.valueOf(mAxes) +
+                ", instances=" + String.valueOf(mInstances) +
+                '}';
+    }
+
+    /**
+     * 实例缓存，按访问顺序淘汰最近最少使用的条目
+     */
+    private static final class InstanceCache extends LinkedHashMap<InstanceKey, VariationInstance> {
+
+        private static final long serialVersionUID = 1L;
+
+        InstanceCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<InstanceKey, VariationInstance> eldest) {
+            return size() > MAX_CACHED_INSTANCES;
+        }
+    }
+
+    /**
+     * 实例缓存键
+     */
+    private static final class InstanceKey {
+        private final AxisVariationsTable mAvar;
+        private final float[] mCoordinates;
+        private final int mHashCode;
+
+        InstanceKey(AxisVariationsTable avar, float[] coordinates) {
+            mAvar = avar;
+            mCoordinates = coordinates;
+            mHashCode = 31 * System.identityHashCode(avar) + Arrays.hashCode(coordinates);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            InstanceKey that = (InstanceKey) o;
+            return mAvar == that.mAvar && Arrays.equals(mCoordinates, that.mCoordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * Variation Axis Record
+     */
+    public static class VariationAxisRecord {
+        public static final int TAG_WEIGHT = 0x77676874;// wght
+        public static final int TAG_WIDTH = 0x77647468;// wdth
+        public static final int TAG_ITALIC = 0x6974616C;// ital
+        public static final int TAG_SLANT = 0x736C6E74;// slnt
+        public static final int TAG_OPTICAL_SIZE = 0x6F70737A;// opsz
+        public static final int FLAG_HIDDEN_AXIS = 0x0001;
+        private final int mAxisTag;
+        private final float mMinValue;
+        private final float mDefaultValue;
+        private final float mMaxValue;
+        private final int mFlags;
+        private final int mAxisNameID;
+
+        @SuppressWarnings("WeakerAccess")
+        public VariationAxisRecord(int axisTag, float minValue, float defaultValue,
+                                   float maxValue, int flags, int axisNameID) {
+            mAxisTag = axisTag;
+            mMinValue = minValue;
+            mDefaultValue = defaultValue;
+            mMaxValue = maxValue;
+            mFlags = flags;
+            mAxisNameID = axisNameID;
+        }
+
+        /**
+         * Tag identifying the design variation for the axis.
+         *
+         * @return Axis tag.
+         */
+        public int getAxisTag() {
+            return mAxisTag;
+        }
+
+        /**
+         * The minimum coordinate value for the axis.
+         *
+         * @return Minimum value.
+         */
+        public float getMinValue() {
+            return mMinValue;
+        }
+
+        /**
+         * The default coordinate value for the axis.
+         *
+         * @return Default value.
+         */
+        public float getDefaultValue() {
+            return mDefaultValue;
+        }
+
+        /**
+         * The maximum coordinate value for the axis.
+         *
+         * @return Maximum value.
+         */
+        public float getMaxValue() {
+            return mMaxValue;
+        }
+
+        /**
+         * Axis qualifiers.
+         *
+         * @return Flags.
+         */
+        public int getFlags() {
+            return mFlags;
+        }
+
+        /**
+         * The name ID for entries in the 'name' table that provide a display name for
+         * this axis.
+         *
+         * @return Axis name ID.
+         */
+        public int getAxisNameID() {
+            return mAxisNameID;
+        }
+
+        /**
+         * 默认归一化：用户坐标限制在轴范围内后映射到 -1 至 1，默认值映射为 0
+         *
+         * @param value 用户坐标
+         * @return 归一化坐标
+         */
+        public float normalize(float value) {
+            final float clamped = Math.max(mMinValue, Math.min(mMaxValue, value));
+            if (clamped < mDefaultValue)
+                return mDefaultValue == mMinValue ? 0 :
+                        (clamped - mDefaultValue) / (mDefaultValue - mMinValue);
+            if (clamped > mDefaultValue)
+                return mMaxValue == mDefaultValue ? 0 :
+                        (clamped - mDefaultValue) / (mMaxValue - mDefaultValue);
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            VariationAxisRecord that = (VariationAxisRecord) o;
+            return mAxisTag == that.mAxisTag &&
+                    Float.compare(that.mMinValue, mMinValue) == 0 &&
+                    Float.compare(that.mDefaultValue, mDefaultValue) == 0 &&
+                    Float.compare(that.mMaxValue, mMaxValue) == 0 &&
+                    mFlags == that.mFlags &&
+                    mAxisNameID == that.mAxisNameID;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mAxisTag, mMinValue, mDefaultValue, mMaxValue, mFlags,
+                    mAxisNameID);
+        }
+
+        @Override
+        public String toString() {
+            return "VariationAxisRecord{" +
+                    "axisTag=" + mAxisTag +
+                    ", minValue=" + mMinValue +
+                    ", defaultValue=" + mDefaultValue +
+                    ", maxValue=" + mMaxValue +
+                    ", flags=" + mFlags +
+                    ", axisNameID=" + mAxisNameID +
+                    '}';
+        }
+    }
+
+    /**
+     * Instance Record
+     */
+    public static class InstanceRecord {
+        private final int mSubfamilyNameID;
+        private final int mFlags;
+        private final float[] mCoordinates;
+        private final int mPostScriptNameID;
+
+        @SuppressWarnings("WeakerAccess")
+        public InstanceRecord(int subfamilyNameID, int flags, float[] coordinates,
+                              int postScriptNameID) {
+            mSubfamilyNameID = subfamilyNameID;
+            mFlags = flags;
+            mCoordinates = coordinates;
+            mPostScriptNameID = postScriptNameID;
+        }
+
+        /**
+         * The name ID for entries in the 'name' table that provide subfamily names for
+         * this instance.
+         *
+         * @return Subfamily name ID.
+         */
+        public int getSubfamilyNameID() {
+            return mSubfamilyNameID;
+        }
+
+        /**
+         * Reserved for future use — set to 0.
+         *
+         * @return Flags.
+         */
+        public int getFlags() {
+            return mFlags;
+        }
+
+        /**
+         * The user coordinates of this instance, in axis order.
+         *
+         * @return Coordinates, a new array is created on every call.
+         */
+        public float[] getCoordinates() {
+            return mCoordinates.clone();
+        }
+
+        /**
+         * The name ID for entries in the 'name' table that provide PostScript names for
+         * this instance, 0xFFFF if absent.
+         *
+         * @return PostScript name ID.
+         */
+        public int getPostScriptNameID() {
+            return mPostScriptNameID;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            InstanceRecord that = (InstanceRecord) o;
+            return mSubfamilyNameID == that.mSubfamilyNameID &&
+                    mFlags == that.mFlags &&
+                    mPostScriptNameID == that.mPostScriptNameID &&
+                    Arrays.equals(mCoordinates, that.mCoordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(mSubfamilyNameID, mFlags, mPostScriptNameID);
+            result = 31 * result + Arrays.hashCode(mCoordinates);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "InstanceRecord{" +
+                    "subfamilyNameID=" + mSubfamilyNameID +
+                    ", flags=" + mFlags +
+                    ", coordinates=" + Arrays.toString(mCoordinates) +
+                    ", postScriptNameID=" + mPostScriptNameID +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+/**
+ * 字形轮廓接收器
+ * Receives the path commands of a glyph outline. Coordinates are in font design units with
+ * the y axis pointing up. Every contour starts with {@link #moveTo(float, float)} and ends
+ * with {@link #closePath()}.
+ */
+public interface GlyphOutlineSink {
+
+    /**
+     * Starts a new contour.
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    void moveTo(float x, float y);
+
+    /**
+     * Adds a straight line from the current point.
+     *
+     * @param x x-coordinate of the end point
+     * @param y y-coordinate of the end point
+     */
+    void lineTo(float x, float y);
+
+    /**
+     * Adds a quadratic Bézier curve from the current point.
+     *
+     * @param x1 x-coordinate of the control point
+     * @param y1 y-coordinate of the control point
+     * @param x2 x-coordinate of the end point
+     * @param y2 y-coordinate of the end point
+     */
+    void quadTo(float x1, float y1, float x2, float y2);
+
+    /**
+     * Adds a cubic Bézier curve from the current point.
+     *
+     * @param x1 x-coordinate of the first control point
+     * @param y1 y-coordinate of the first control point
+     * @param x2 x-coordinate of the second control point
+     * @param y2 y-coordinate of the second control point
+     * @param x3 x-coordinate of the end point
+     * @param y3 y-coordinate of the end point
+     */
+    void curveTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+    /**
+     * Closes the current contour with a straight line back to its first point.
+     */
+    void closePath();
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+
+/**
+ * 字形轮廓来源
+ * A table that stores glyph outlines, either TrueType ('glyf') or PostScript ('CFF ', 'CFF2').
+ * Coordinates are emitted in font design units.
+ */
+public interface GlyphOutlineSource {
+
+    /**
+     * 获取字形数目
+     *
+     * @return 字形数目
+     */
+    int getNumGlyphs();
+
+    /**
+     * 解码字形轮廓并输出路径命令
+     *
+     * @param glyphId 字形ID
+     * @param sink    轮廓接收器
+     * @throws IOException 字形ID越界或数据错误
+     */
+    void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException;
+}
@@ -16,7 +16,11 @@
 package com.am.font.opentype.tables;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import com.am.font.opentype.OpenTypeReader;
 import com.am.font.opentype.TableRecord;
@@ -41,8 +45,44 @@ import java.util.Objects;
  * in glyph ID order.
  */
 @SuppressWarnings("unused")
-public class GlyphTable extends BaseTable {
+public class GlyphTable extends BaseTable implements GlyphOutlineSource {
 
+    // Simple Glyph Flags
+    public static final int ON_CURVE_POINT = 0x01;// the point is on the curve
+    public static final int X_SHORT_VECTOR = 0x02;// the x-coordinate is 1 byte long
+    public static final int Y_SHORT_VECTOR = 0x04;// the y-coordinate is 1 byte long
+    public static final int REPEAT_FLAG = 0x08;// the next byte specifies the number of additional times this flag is to be repeated
+    public static final int X_IS_SAME_OR_POSITIVE_X_SHORT_VECTOR = 0x10;
+    public static final int Y_IS_SAME_OR_POSITIVE_Y_SHORT_VECTOR = 0x20;
+    public static final int OVERLAP_SIMPLE = 0x40;// contours in the glyph description may overlap
+    // Composite Glyph Flags
+    public static final int ARG_1_AND_2_ARE_WORDS = 0x0001;// the arguments are 16-bit
+    public static final int ARGS_ARE_XY_VALUES = 0x0002;// the arguments are signed xy values, otherwise unsigned point numbers
+    public static final int ROUND_XY_TO_GRID = 0x0004;// round the xy values to the grid
+    public static final int WE_HAVE_A_SCALE = 0x0008;// there is a simple scale for the component
+    public static final int MORE_COMPONENTS = 0x0020;// at least one more glyph after this one
+    public static final int WE_HAVE_AN_X_AND_Y_SCALE = 0x0040;// the x direction will use a different scale from the y direction
+    public static final int WE_HAVE_A_TWO_BY_TWO = 0x0080;// there is a 2 by 2 transformation
+    public static final int WE_HAVE_INSTRUCTIONS = 0x0100;// following the last component are instructions for the composite character
+    public static final int USE_MY_METRICS = 0x0200;// use metrics from this component for the composite glyph
+    public static final int OVERLAP_COMPOUND = 0x0400;// the components of the compound glyph overlap
+    public static final int SCALED_COMPONENT_OFFSET = 0x0800;// the composite is designed to have the component offset scaled
+    public static final int UNSCALED_COMPONENT_OFFSET = 0x1000;// the composite is designed not to have the component offset scaled
+    public static final int MAX_COMPONENT_DEPTH = 64;// 复合字形嵌套深度的硬性上限，maxp 的值仅供参考
+    private static final int MAX_CACHED_OUTLINES = 1024;
+    private static final ThreadLocal<OutlineBuffer> OUTLINE_BUFFERS =
+            new ThreadLocal<OutlineBuffer>() {
+                @Override
+                protected OutlineBuffer initialValue() {
+                    return new OutlineBuffer();
+                }
+            };
+
+    private final ByteBuffer mData;
+    private final IndexToLocationTable mLoca;
+    private final int mNumGlyphs;
+    private final IntLruCache<GlyphOutline> mCompositeOutlines =
+            new IntLruCache<>(MAX_CACHED_OUTLINES);
     private final int mNumberOfContours;
     private final int mXMin;
     private final int mYMin;
@@ -50,50 +90,43 @@ public class GlyphTable extends BaseTable {
     private final int mYMax;
     private final Object mGlyphDescription;
 
+    /**
+     * 创建不含 'loca' 信息的表，仅能访问位于表起始处的首个字形（.notdef）
+     *
+     * @param reader 读取器
+     * @param record 表记录
+     * @throws IOException 数据错误
+     */
     public GlyphTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        this(reader, record, null, null);
+    }
+
+    public GlyphTable(OpenTypeReader reader, TableRecord record, IndexToLocationTable loca,
+                      MaximumProfileTable maxp) throws IOException {
         super(record);
-        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_GLYF)
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_GLYF ||
+                (loca == null) != (maxp == null))
             throw new IOException();
-        reader.seek(record.getOffset());
-        final int numberOfContours = reader.readShort();
-        final int xMin = reader.readShort();
-        final int yMin = reader.readShort();
-        final int xMax = reader.readShort();
-        final int yMax = reader.readShort();
-        final Object glyphDescription;
-        if (numberOfContours >= 0) {
-            // Simple Glyph Description
-            final int[] endPtsOfContours = new int[numberOfContours];
-            for (int i = 0; i < endPtsOfContours.length; i++) {
-                endPtsOfContours[i] = reader.readUnsignedShort();
-            }
-            final int instructionLength = reader.readUnsignedShort();
-            final int[] instructions = new int[instructionLength];
-            for (int i = 0; i < instructions.length; i++) {
-                instructions[i] = reader.readUnsignedByte();
-            }
-            // TODO: 2018/9/27 flags xCoordinates yCoordinates
-            // uint8            flags[variable]          Array of flag elements.
-            // uint8 or int16   xCoordinates[variable]   Contour point x-coordinates.
-            // uint8 or int16   yCoordinates[variable]   Contour point y-coordinates.
-            glyphDescription = new SimpleGlyphDescription(endPtsOfContours, instructionLength,
-                    instructions, null, null, null);
+        mData = readTableData(reader, record);
+        mLoca = loca;
+        mNumGlyphs = maxp != null ? maxp.getNumGlyphs() : mData.capacity() > 0 ? 1 : 0;
+        // 首个字形（.notdef）
+        if (mNumGlyphs > 0 && getGlyphDataLength(0) > 0) {
+            final int offset = getGlyphDataOffset(0);
+            mNumberOfContours = mData.getShort(offset);
+            mXMin = mData.getShort(offset + 2);
+            mYMin = mData.getShort(offset + 4);
+            mXMax = mData.getShort(offset + 6);
+            mYMax = mData.getShort(offset + 8);
+            mGlyphDescription = getGlyphDescription(0);
         } else {
-            // Composite Glyph Description
-            final int flags = reader.readUnsignedShort();
-            final int glyphIndex = reader.readUnsignedShort();
-            // TODO: 2018/9/27  argument1 argument2 and so on
-            // uint8, int8, uint16 or int16   argument1   x-offset for component or point number.
-            // uint8, int8, uint16 or int16   argument2   y-offset for component or point number.
-            glyphDescription = new CompositeGlyphDescription(flags, glyphIndex,
-                    0, 0);
-        }
-        mNumberOfContours = numberOfContours;
-        mXMin = xMin;
-        mYMin = yMin;
-        mXMax = xMax;
-        mYMax = yMax;
-        mGlyphDescription = glyphDescription;
+            mNumberOfContours = 0;
+            mXMin = 0;
+            mYMin = 0;
+            mXMax = 0;
+            mYMax = 0;
+            mGlyphDescription = null;
+        }
     }
 
     /**
@@ -151,16 +184,458 @@ public class GlyphTable extends BaseTable {
         return mGlyphDescription;
     }
 
+    /**
+     * 获取字形数目
+     *
+     * @return 字形数目
+     */
+    @Override
+    public int getNumGlyphs() {
+        return mNumGlyphs;
+    }
+
+    /**
+     * 获取字形描述
+     *
+     * @param glyphId 字形ID
+     * @return {@link SimpleGlyphDescription} 或 {@link CompositeGlyphDescription}，空字形返回空
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public Object getGlyphDescription(int glyphId) throws IOException {
+        final int length = getGlyphDataLength(glyphId);
+        if (length <= 0)
+            return null;
+        final int offset = getGlyphDataOffset(glyphId);
+        try {
+            final int numberOfContours = mData.getShort(offset);
+            if (numberOfContours >= 0)
+                return decodeSimpleGlyph(offset, numberOfContours);
+            return decodeCompositeGlyph(offset);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 获取字形轮廓，复合字形会被递归展开为单一轮廓，并缓存最近使用的 1024 个。
+     * 'maxp' 表的 maxComponentDepth 常常偏小，因此仅以固定的硬性上限（64）限制嵌套深度，
+     * 出现循环引用或超出上限时视为数据错误。
+     *
+     * @param glyphId 字形ID
+     * @return 字形轮廓，坐标为字体设计单位
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphOutline getGlyphOutline(int glyphId) throws IOException {
+        final GlyphOutline cached = mCompositeOutlines.get(glyphId);
+        if (cached != null)
+            return cached;
+        try {
+            return resolveOutline(glyphId, 0, null);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 解码字形轮廓并直接输出路径命令，on/off-curve 点（含隐含中点）直接转换为直线与二次曲线。
+     * 简单字形使用线程内复用的缓冲区解码，复合字形使用缓存的展开轮廓，因此不会为每个字形产生垃圾对象。
+     * 接收器在回调中不应在同一线程内再次调用本方法。
+     *
+     * @param glyphId 字形ID
+     * @param sink    轮廓接收器
+     * @throws IOException 字形ID越界或数据错误
+     */
+    @Override
+    public void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException {
+        if (getGlyphDataLength(glyphId) <= 0)
+            return;
+        final int offset = getGlyphDataOffset(glyphId);
+        try {
+            final int numberOfContours = mData.getShort(offset);
+            if (numberOfContours < 0) {
+                getGlyphOutline(glyphId).decodeOutline(sink);
+                return;
+            }
+            final int numPoints = getNumberOfPoints(offset, numberOfContours);
+            final OutlineBuffer buffer = OUTLINE_BUFFERS.get();
+            buffer.ensureCapacity(numberOfContours, numPoints);
+            final int[] flags = buffer.mFlags;
+            final int[] dxs = buffer.mDeltaXs;
+            final int[] dys = buffer.mDeltaYs;
+            final float[] xs = buffer.mXs;
+            final float[] ys = buffer.mYs;
+            final boolean[] onCurves = buffer.mOnCurves;
+            decodeSimpleGlyph(offset, numberOfContours, numPoints, buffer.mEndPtsOfContours,
+                    flags, dxs, dys);
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < numPoints; i++) {
+                x += dxs[i];
+                y += dys[i];
+                xs[i] = x;
+                ys[i] = y;
+                onCurves[i] = (flags[i] & ON_CURVE_POINT) != 0;
+            }
+            decodeContours(buffer.mEndPtsOfContours, numberOfContours, xs, ys, onCurves, sink);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 将 TrueType 轮廓点转换为路径命令，两个连续 off-curve 点之间隐含一个 on-curve 中点
+     */
+    static void decodeContours(int[] endPtsOfContours, int numberOfContours,
+                               float[] xs, float[] ys, boolean[] onCurves,
+                               GlyphOutlineSink sink) {
+        int start = 0;
+        for (int c = 0; c < numberOfContours; c++) {
+            final int end = endPtsOfContours[c];
+            if (end < start) {
+                continue;
+            }
+            final float startX;
+            final float startY;
+            int first;
+            int last;
+            if (onCurves[start]) {
+                startX = xs[start];
+                startY = ys[start];
+                first = start + 1;
+                last = end;
+            } else if (onCurves[end]) {
+                startX = xs[end];
+                startY = ys[end];
+                first = start;
+                last = end - 1;
+            } else {
+                startX = (xs[start] + xs[end]) * 0.5f;
+                startY = (ys[start] + ys[end]) * 0.5f;
+                first = start;
+                last = end;
+            }
+            sink.moveTo(startX, startY);
+            boolean pending = false;
+            float cx = 0;
+            float cy = 0;
+            for (int i = first; i <= last; i++) {
+                final float x = xs[i];
+                final float y = ys[i];
+                if (onCurves[i]) {
+                    if (pending) {
+                        sink.quadTo(cx, cy, x, y);
+                        pending = false;
+                    } else {
+                        sink.lineTo(x, y);
+                    }
+                } else {
+                    if (pending)
+                        sink.quadTo(cx, cy, (cx + x) * 0.5f, (cy + y) * 0.5f);
+                    cx = x;
+                    cy = y;
+                    pending = true;
+                }
+            }
+            if (pending)
+                sink.quadTo(cx, cy, startX, startY);
+            sink.closePath();
+            start = end + 1;
+        }
+    }
+
+    private int getGlyphDataOffset(int glyphId) throws IOException {
+        if (glyphId < 0 || glyphId >= mNumGlyphs)
+            throw new IOException();
+        return mLoca == null ? 0 : mLoca.getGlyphOffset(glyphId);
+    }
+
+    private int getGlyphDataLength(int glyphId) throws IOException {
+        if (glyphId < 0 || glyphId >= mNumGlyphs)
+            throw new IOException();
+        return mLoca == null ? mData.capacity() : mLoca.getGlyphLength(glyphId);
+    }
+
+    private SimpleGlyphDescription decodeSimpleGlyph(int offset, int numberOfContours) {
+        final int numPoints = getNumberOfPoints(offset, numberOfContours);
+        final int[] endPtsOfContours = new int[numberOfContours];
+        final int[] flags = new int[numPoints];
+        final int[] xCoordinates = new int[numPoints];
+        final int[] yCoordinates = new int[numPoints];
+        int pos = offset + 10 + numberOfContours * 2;
+        final int instructionLength = mData.getChar(pos);
+        pos += 2;
+        final int[] instructions = new int[instructionLength];
+        for (int i = 0; i < instructionLength; i++) {
+            instructions[i] = mData.get(pos++) & 0xFF;
+        }
+        decodeSimpleGlyph(offset, numberOfContours, numPoints, endPtsOfContours, flags,
+                xCoordinates, yCoordinates);
+        return new SimpleGlyphDescription(endPtsOfContours, instructionLength, instructions,
+                flags, xCoordinates, yCoordinates);
+    }
+
+    private int getNumberOfPoints(int offset, int numberOfContours) {
+        return numberOfContours == 0 ? 0 :
+                mData.getChar(offset + 10 + (numberOfContours - 1) * 2) + 1;
+    }
+
+    private void decodeSimpleGlyph(int offset, int numberOfContours, int numPoints,
+                                   int[] endPtsOfContours, int[] flags,
+                                   int[] xCoordinates, int[] yCoordinates) {
+        int pos = offset + 10;
+        for (int i = 0; i < numberOfContours; i++) {
+            endPtsOfContours[i] = mData.getChar(pos);
+            pos += 2;
+        }
+        pos += 2 + mData.getChar(pos);// instructions
+        for (int i = 0; i < numPoints; ) {
+            final int flag = mData.get(pos++) & 0xFF;
+            flags[i++] = flag;
+            if ((flag & REPEAT_FLAG) != 0) {
+                int repeat = mData.get(pos++) & 0xFF;
+                while (repeat > 0 && i < numPoints) {
+                    flags[i++] = flag;
+                    repeat--;
+                }
+            }
+        }
+        for (int i = 0; i < numPoints; i++) {
+            final int flag = flags[i];
+            if ((flag & X_SHORT_VECTOR) != 0) {
+                final int value = mData.get(pos++) & 0xFF;
+                xCoordinates[i] = (flag & X_IS_SAME_OR_POSITIVE_X_SHORT_VECTOR) != 0 ?
+                        value : -value;
+            } else if ((flag & X_IS_SAME_OR_POSITIVE_X_SHORT_VECTOR) == 0) {
+                xCoordinates[i] = mData.getShort(pos);
+                pos += 2;
+            } else {
+                xCoordinates[i] = 0;
+            }
+        }
+        for (int i = 0; i < numPoints; i++) {
+            final int flag = flags[i];
+            if ((flag & Y_SHORT_VECTOR) != 0) {
+                final int value = mData.get(pos++) & 0xFF;
+                yCoordinates[i] = (flag & Y_IS_SAME_OR_POSITIVE_Y_SHORT_VECTOR) != 0 ?
+                        value : -value;
+            } else if ((flag & Y_IS_SAME_OR_POSITIVE_Y_SHORT_VECTOR) == 0) {
+                yCoordinates[i] = mData.getShort(pos);
+                pos += 2;
+            } else {
+                yCoordinates[i] = 0;
+            }
+        }
+    }
+
+    private CompositeGlyphDescription decodeCompositeGlyph(int offset) {
+        int pos = offset + 10;
+        final ArrayList<ComponentRecord> components = new ArrayList<>();
+        boolean hasInstructions = false;
+        int flags;
+        do {
+            flags = mData.getChar(pos);
+            final int glyphIndex = mData.getChar(pos + 2);
+            pos += 4;
+            final int argument1;
+            final int argument2;
+            if ((flags & ARG_1_AND_2_ARE_WORDS) != 0) {
+                if ((flags & ARGS_ARE_XY_VALUES) != 0) {
+                    argument1 = mData.getShort(pos);
+                    argument2 = mData.getShort(pos + 2);
+                } else {
+                    argument1 = mData.getChar(pos);
+                    argument2 = mData.getChar(pos + 2);
+                }
+                pos += 4;
+            } else {
+                if ((flags & ARGS_ARE_XY_VALUES) != 0) {
+                    argument1 = mData.get(pos);
+                    argument2 = mData.get(pos + 1);
+                } else {
+                    argument1 = mData.get(pos) & 0xFF;
+                    argument2 = mData.get(pos + 1) & 0xFF;
+                }
+                pos += 2;
+            }
+            float xScale = 1;
+            float scale01 = 0;
+            float scale10 = 0;
+            float yScale = 1;
+            if ((flags & WE_HAVE_A_SCALE) != 0) {
+                xScale = yScale = mData.getShort(pos) / 16384f;
+                pos += 2;
+            } else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+                xScale = mData.getShort(pos) / 16384f;
+                yScale = mData.getShort(pos + 2) / 16384f;
+                pos += 4;
+            } else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0) {
+                xScale = mData.getShort(pos) / 16384f;
+                scale01 = mData.getShort(pos + 2) / 16384f;
+                scale10 = mData.getShort(pos + 4) / 16384f;
+                yScale = mData.getShort(pos + 6) / 16384f;
+                pos += 8;
+            }
+            if ((flags & WE_HAVE_INSTRUCTIONS) != 0)
+                hasInstructions = true;
+            components.add(new ComponentRecord(flags, glyphIndex, argument1, argument2,
+                    xScale, scale01, scale10, yScale));
+        } while ((flags & MORE_COMPONENTS) != 0);
+        final int[] instructions;
+        if (hasInstructions) {
+            final int numInstr = mData.getChar(pos);
+            pos += 2;
+            instructions = new int[numInstr];
+            for (int i = 0; i < numInstr; i++) {
+                instructions[i] = mData.get(pos++) & 0xFF;
+            }
+        } else {
+            instructions = new int[0];
+        }
+        return new CompositeGlyphDescription(components, instructions);
+    }
+
+    private GlyphOutline resolveOutline(int glyphId, int depth, int[] path) throws IOException {
+        final GlyphOutline cached = mCompositeOutlines.get(glyphId);
+        if (cached != null)
+            return cached;
+        if (getGlyphDataLength(glyphId) <= 0)
+            return GlyphOutline.EMPTY;
+        final int offset = getGlyphDataOffset(glyphId);
+        final int numberOfContours = mData.getShort(offset);
+        final int xMin = mData.getShort(offset + 2);
+        final int yMin = mData.getShort(offset + 4);
+        final int xMax = mData.getShort(offset + 6);
+        final int yMax = mData.getShort(offset + 8);
+        if (numberOfContours >= 0) {
+            final SimpleGlyphDescription description =
+                    decodeSimpleGlyph(offset, numberOfContours);
+            final int[] flags = description.getFlags();
+            final int[] dxs = description.getXCoordinates();
+            final int[] dys = description.getYCoordinates();
+            final float[] xs = new float[flags.length];
+            final float[] ys = new float[flags.length];
+            final boolean[] onCurves = new boolean[flags.length];
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < flags.length; i++) {
+                x += dxs[i];
+                y += dys[i];
+                xs[i] = x;
+                ys[i] = y;
+                onCurves[i] = (flags[i] & ON_CURVE_POINT) != 0;
+            }
+            return new GlyphOutline(xMin, yMin, xMax, yMax, description.getEndPtsOfContours(),
+                    xs, ys, onCurves);
+        }
+        // 复合字形
+        if (depth >= MAX_COMPONENT_DEPTH)
+            throw new IOException();// 嵌套过深
+        if (path == null)
+            path = new int[MAX_COMPONENT_DEPTH];
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == glyphId)
+                throw new IOException();// 循环引用
+        }
+        path[depth] = glyphId;
+        final CompositeGlyphDescription description = decodeCompositeGlyph(offset);
+        final List<ComponentRecord> components = description.getComponents();
+        final GlyphOutline[] children = new GlyphOutline[components.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = resolveOutline(components.get(i).getGlyphIndex(), depth + 1, path);
+        }
+        final GlyphOutline outline = composeOutline(xMin, yMin, xMax, yMax, components,
+                children, null, null);
+        final GlyphOutline previous = mCompositeOutlines.putIfAbsent(glyphId, outline);
+        return previous == null ? outline : previous;
+    }
+
+    /**
+     * 组合复合字形，子字形轮廓按组件变换后依次拼接
+     *
+     * @param components 组件
+     * @param children   各组件对应的子字形轮廓
+     * @param offsetXs   各组件偏移量（参数为 xy 值时）的横向增量，为空时不调整
+     * @param offsetYs   各组件偏移量（参数为 xy 值时）的纵向增量，为空时不调整
+     */
+    static GlyphOutline composeOutline(int xMin, int yMin, int xMax, int yMax,
+                                       List<ComponentRecord> components,
+                                       GlyphOutline[] children,
+                                       float[] offsetXs, float[] offsetYs) throws IOException {
+        int count = 0;
+        int contours = 0;
+        float[] xs = new float[32];
+        float[] ys = new float[32];
+        boolean[] onCurves = new boolean[32];
+        int[] endPtsOfContours = new int[4];
+        for (int index = 0; index < children.length; index++) {
+            final ComponentRecord component = components.get(index);
+            final GlyphOutline child = children[index];
+            final int points = child.getNumberOfPoints();
+            if (count + points > xs.length) {
+                final int capacity = Math.max(xs.length * 2, count + points);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                onCurves = Arrays.copyOf(onCurves, capacity);
+            }
+            final int[] childEnds = child.getEndPtsOfContours();
+            if (contours + childEnds.length > endPtsOfContours.length)
+                endPtsOfContours = Arrays.copyOf(endPtsOfContours,
+                        Math.max(endPtsOfContours.length * 2, contours + childEnds.length));
+            final float a = component.getXScale();
+            final float b = component.getScale01();
+            final float c = component.getScale10();
+            final float d = component.getYScale();
+            final float[] cxs = child.getXCoordinates();
+            final float[] cys = child.getYCoordinates();
+            final int flags = component.getFlags();
+            float dx;
+            float dy;
+            if ((flags & ARGS_ARE_XY_VALUES) != 0) {
+                dx = component.getArgument1();
+                dy = component.getArgument2();
+                if (offsetXs != null) {
+                    dx += offsetXs[index];
+                    dy += offsetYs[index];
+                }
+                dx *= component.getOffsetXScale();
+                dy *= component.getOffsetYScale();
+            } else {
+                // 点匹配：父字形已组合的点与子字形变换后的点重合
+                final int parent = component.getArgument1();
+                final int point = component.getArgument2();
+                if (parent >= count || point >= points)
+                    throw new IOException();
+                dx = xs[parent] - (a * cxs[point] + c * cys[point]);
+                dy = ys[parent] - (b * cxs[point] + d * cys[point]);
+            }
+            for (int i = 0; i < points; i++) {
+                final float x = cxs[i];
+                final float y = cys[i];
+                xs[count + i] = a * x + c * y + dx;
+                ys[count + i] = b * x + d * y + dy;
+            }
+            System.arraycopy(child.getOnCurves(), 0, onCurves, count, points);
+            for (int end : childEnds) {
+                endPtsOfContours[contours++] = count + end;
+            }
+            count += points;
+        }
+        return new GlyphOutline(xMin, yMin, xMax, yMax,
+                Arrays.copyOf(endPtsOfContours, contours), Arrays.copyOf(xs, count),
+                Arrays.copyOf(ys, count), Arrays.copyOf(onCurves, count));
+    }
+
     @Override
     public int getHashCode() {
-        return Objects.hash(super.getHashCode(), mNumberOfContours, mXMin, mYMin, mXMax, mYMax,
-                mGlyphDescription);
+        return Objects.hash(super.getHashCode(), mNumGlyphs, mNumberOfContours, mXMin, mYMin,
+                mXMax, mYMax, mGlyphDescription);
     }
 
     @Override
     public String getString() {
         return "GlyphTable{" +
                 "record=" + String.valueOf(getTableRecord()) +
+                ", numGlyphs=" + mNumGlyphs +
                 ", numberOfContours=" + mNumberOfContours +
                 ", xMin=" + mXMin +
                 ", yMin=" + mYMin +
@@ -224,7 +699,7 @@ public class GlyphTable extends BaseTable {
         }
 
         /**
-         * Array of flag elements.
+         * Array of flag elements, one for each point (repeated flags are expanded).
          *
          * @return Flags.
          */
@@ -293,17 +768,128 @@ public class GlyphTable extends BaseTable {
      * Composite Glyph Description
      */
     public static class CompositeGlyphDescription {
+        private final List<ComponentRecord> mComponents;
+        private final int[] mInstructions;
+
+        @SuppressWarnings("WeakerAccess")
+        public CompositeGlyphDescription(int flags, int glyphIndex, int argument1, int argument2) {
+            this(Collections.singletonList(new ComponentRecord(flags, glyphIndex,
+                    argument1, argument2, 1, 0, 0, 1)), new int[0]);
+        }
+
+        @SuppressWarnings("WeakerAccess")
+        public CompositeGlyphDescription(List<ComponentRecord> components, int[] instructions) {
+            mComponents = components;
+            mInstructions = instructions;
+        }
+
+        /**
+         * Component flag of the first component
+         *
+         * @return Component flag.
+         */
+        public int getFlags() {
+            return mComponents.get(0).getFlags();
+        }
+
+        /**
+         * Glyph index of the first component
+         *
+         * @return Glyph index of component.
+         */
+        public int getGlyphIndex() {
+            return mComponents.get(0).getGlyphIndex();
+        }
+
+        /**
+         * x-offset for the first component or point number;
+         * type depends on bits 0 and 1 in component flags
+         *
+         * @return x-offset for component or point number.
+         */
+        public int getArgument1() {
+            return mComponents.get(0).getArgument1();
+        }
+
+        /**
+         * y-offset for the first component or point number;
+         * type depends on bits 0 and 1 in component flags
+         *
+         * @return y-offset for component or point number.
+         */
+        public int getArgument2() {
+            return mComponents.get(0).getArgument2();
+        }
+
+        /**
+         * All component records, in the order they appear in the glyph data.
+         *
+         * @return Components.
+         */
+        public List<ComponentRecord> getComponents() {
+            return mComponents;
+        }
+
+        /**
+         * Instructions for the composite character, present only if a component has
+         * WE_HAVE_INSTRUCTIONS set.
+         *
+         * @return Instructions.
+         */
+        public int[] getInstructions() {
+            return mInstructions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CompositeGlyphDescription that = (CompositeGlyphDescription) o;
+            return Objects.equals(mComponents, that.mComponents) &&
+                    Arrays.equals(mInstructions, that.mInstructions);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(mComponents);
+            result = 31 * result + Arrays.hashCode(mInstructions);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "CompositeGlyphDescription{" +
+                    "components=" + String.valueOf(mComponents) +
+                    ", instructions=" + Arrays.toString(mInstructions) +
+                    '}';
+        }
+    }
+
+    /**
+     * Component Record
+     * The transformation is x' = xScale * x + scale10 * y, y' = scale01 * x + yScale * y.
+     */
+    public static class ComponentRecord {
         private final int mFlags;
         private final int mGlyphIndex;
         private final int mArgument1;
         private final int mArgument2;
+        private final float mXScale;
+        private final float mScale01;
+        private final float mScale10;
+        private final float mYScale;
 
         @SuppressWarnings("WeakerAccess")
-        public CompositeGlyphDescription(int flags, int glyphIndex, int argument1, int argument2) {
+        public ComponentRecord(int flags, int glyphIndex, int argument1, int argument2,
+                               float xScale, float scale01, float scale10, float yScale) {
             mFlags = flags;
             mGlyphIndex = glyphIndex;
             mArgument1 = argument1;
             mArgument2 = argument2;
+            mXScale = xScale;
+            mScale01 = scale01;
+            mScale10 = scale10;
+            mYScale = yScale;
         }
 
         /**
@@ -342,30 +928,299 @@ public class GlyphTable extends BaseTable {
             return mArgument2;
         }
 
+        /**
+         * Scale in x direction (1 if no scale is given).
+         *
+         * @return Scale in x direction.
+         */
+        public float getXScale() {
+            return mXScale;
+        }
+
+        /**
+         * The scale01 entry of a 2 by 2 transformation (0 if not given).
+         *
+         * @return Scale01.
+         */
+        public float getScale01() {
+            return mScale01;
+        }
+
+        /**
+         * The scale10 entry of a 2 by 2 transformation (0 if not given).
+         *
+         * @return Scale10.
+         */
+        public float getScale10() {
+            return mScale10;
+        }
+
+        /**
+         * Scale in y direction (1 if no scale is given).
+         *
+         * @return Scale in y direction.
+         */
+        public float getYScale() {
+            return mYScale;
+        }
+
+        /**
+         * Scale applied to the x offset (argument1 as xy value). With SCALED_COMPONENT_OFFSET
+         * set (and UNSCALED_COMPONENT_OFFSET clear) the offset is scaled by the length of the
+         * first column of the transformation [xScale scale01; scale10 yScale], as FreeType
+         * and Apple do, so rotation and skew do not move the offset; otherwise 1.
+         *
+         * @return Scale of the x offset.
+         */
+        public float getOffsetXScale() {
+            return isOffsetScaled() ? (float) Math.hypot(mXScale, mScale10) : 1;
+        }
+
+        /**
+         * Scale applied to the y offset (argument2 as xy value), the length of the second
+         * column of the transformation when the offset is scaled; otherwise 1.
+         *
+         * @return Scale of the y offset.
+         */
+        public float getOffsetYScale() {
+            return isOffsetScaled() ? (float) Math.hypot(mScale01, mYScale) : 1;
+        }
+
+        private boolean isOffsetScaled() {
+            return (mFlags & SCALED_COMPONENT_OFFSET) != 0 &&
+                    (mFlags & UNSCALED_COMPONENT_OFFSET) == 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
-            CompositeGlyphDescription that = (CompositeGlyphDescription) o;
+            ComponentRecord that = (ComponentRecord) o;
             return mFlags == that.mFlags &&
                     mGlyphIndex == that.mGlyphIndex &&
                     mArgument1 == that.mArgument1 &&
-                    mArgument2 == that.mArgument2;
+                    mArgument2 == that.mArgument2 &&
+                    Float.compare(that.mXScale, mXScale) == 0 &&
+                    Float.compare(that.mScale01, mScale01) == 0 &&
+                    Float.compare(that.mScale10, mScale10) == 0 &&
+                    Float.compare(that.mYScale, mYScale) == 0;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(mFlags, mGlyphIndex, mArgument1, mArgument2);
+            return Objects.hash(mFlags, mGlyphIndex, mArgument1, mArgument2,
+                    mXScale, mScale01, mScale10, mYScale);
         }
 
         @Override
         public String toString() {
-            return "CompositeGlyphDescription{" +
+            return "ComponentRecord{" +
                     "flags=" + mFlags +
                     ", glyphIndex=" + mGlyphIndex +
                     ", argument1=" + mArgument1 +
                     ", argument2=" + mArgument2 +
+                    ", xScale=" + mXScale +
+                    ", scale01=" + mScale01 +
+                    ", scale10=" + mScale10 +
+                    ", yScale=" + mYScale +
+                    '}';
+        }
+    }
+
+    /**
+     * Glyph Outline
+     * Contours of a glyph with absolute coordinates in font design units. Composite glyphs are
+     * flattened, so the points of all components are transformed and concatenated.
+     */
+    public static class GlyphOutline {
+
+        static final GlyphOutline EMPTY = new GlyphOutline(0, 0, 0, 0,
+                new int[0], new float[0], new float[0], new boolean[0]);
+        private final int mXMin;
+        private final int mYMin;
+        private final int mXMax;
+        private final int mYMax;
+        private final int[] mEndPtsOfContours;
+        private final float[] mXCoordinates;
+        private final float[] mYCoordinates;
+        private final boolean[] mOnCurves;
+
+        @SuppressWarnings("WeakerAccess")
+        public GlyphOutline(int xMin, int yMin, int xMax, int yMax, int[] endPtsOfContours,
+                            float[] xCoordinates, float[] yCoordinates, boolean[] onCurves) {
+            mXMin = xMin;
+            mYMin = yMin;
+            mXMax = xMax;
+            mYMax = yMax;
+            mEndPtsOfContours = endPtsOfContours;
+            mXCoordinates = xCoordinates;
+            mYCoordinates = yCoordinates;
+            mOnCurves = onCurves;
+        }
+
+        /**
+         * Minimum x for coordinate data.
+         *
+         * @return Minimum x for coordinate data.
+         */
+        public int getXMin() {
+            return mXMin;
+        }
+
+        /**
+         * Minimum y for coordinate data.
+         *
+         * @return Minimum y for coordinate data.
+         */
+        public int getYMin() {
+            return mYMin;
+        }
+
+        /**
+         * Maximum x for coordinate data.
+         *
+         * @return Maximum x for coordinate data.
+         */
+        public int getXMax() {
+            return mXMax;
+        }
+
+        /**
+         * Maximum y for coordinate data.
+         *
+         * @return Maximum y for coordinate data.
+         */
+        public int getYMax() {
+            return mYMax;
+        }
+
+        /**
+         * The number of contours.
+         *
+         * @return The number of contours.
+         */
+        public int getNumberOfContours() {
+            return mEndPtsOfContours.length;
+        }
+
+        /**
+         * The number of points.
+         *
+         * @return The number of points.
+         */
+        public int getNumberOfPoints() {
+            return mXCoordinates.length;
+        }
+
+        /**
+         * Array of point indices for the last point of each contour, in increasing numeric order.
+         *
+         * @return Array of point indices for the last point of each contour.
+         */
+        public int[] getEndPtsOfContours() {
+            return mEndPtsOfContours;
+        }
+
+        /**
+         * Absolute point x-coordinates.
+         *
+         * @return Point x-coordinates.
+         */
+        public float[] getXCoordinates() {
+            return mXCoordinates;
+        }
+
+        /**
+         * Absolute point y-coordinates.
+         *
+         * @return Point y-coordinates.
+         */
+        public float[] getYCoordinates() {
+            return mYCoordinates;
+        }
+
+        /**
+         * Whether each point is on the curve.
+         *
+         * @return On curve flags.
+         */
+        public boolean[] getOnCurves() {
+            return mOnCurves;
+        }
+
+        /**
+         * 输出路径命令
+         *
+         * @param sink 轮廓接收器
+         */
+        public void decodeOutline(GlyphOutlineSink sink) {
+            decodeContours(mEndPtsOfContours, mEndPtsOfContours.length,
+                    mXCoordinates, mYCoordinates, mOnCurves, sink);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GlyphOutline that = (GlyphOutline) o;
+            return mXMin == that.mXMin &&
+                    mYMin == that.mYMin &&
+                    mXMax == that.mXMax &&
+                    mYMax == that.mYMax &&
+                    Arrays.equals(mEndPtsOfContours, that.mEndPtsOfContours) &&
+                    Arrays.equals(mXCoordinates, that.mXCoordinates) &&
+                    Arrays.equals(mYCoordinates, that.mYCoordinates) &&
+                    Arrays.equals(mOnCurves, that.mOnCurves);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(mXMin, mYMin, mXMax, mYMax);
+            result = 31 * result + Arrays.hashCode(mEndPtsOfContours);
+            result = 31 * result + Arrays.hashCode(mXCoordinates);
+            result = 31 * result + Arrays.hashCode(mYCoordinates);
+            result = 31 * result + Arrays.hashCode(mOnCurves);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "GlyphOutline{" +
+                    "xMin=" + mXMin +
+                    ", yMin=" + mYMin +
+                    ", xMax=" + mXMax +
+                    ", yMax=" + mYMax +
+                    ", endPtsOfContours=" + Arrays.toString(mEndPtsOfContours) +
+                    ", xCoordinates=" + Arrays.toString(mXCoordinates) +
+                    ", yCoordinates=" + Arrays.toString(mYCoordinates) +
+                    ", onCurves=" + Arrays.toString(mOnCurves) +
                     '}';
         }
     }
+
+    /**
+     * 简单字形解码缓冲区，每个线程一份
+     */
+    private static class OutlineBuffer {
+        int[] mEndPtsOfContours = new int[16];
+        int[] mFlags = new int[128];
+        int[] mDeltaXs = new int[128];
+        int[] mDeltaYs = new int[128];
+        float[] mXs = new float[128];
+        float[] mYs = new float[128];
+        boolean[] mOnCurves = new boolean[128];
+
+        void ensureCapacity(int numberOfContours, int numPoints) {
+            if (mEndPtsOfContours.length < numberOfContours)
+                mEndPtsOfContours = new int[numberOfContours];
+            if (mFlags.length < numPoints) {
+                mFlags = new int[numPoints];
+                mDeltaXs = new int[numPoints];
+                mDeltaYs = new int[numPoints];
+                mXs = new float[numPoints];
+                mYs = new float[numPoints];
+                mOnCurves = new boolean[numPoints];
+            }
+        }
+    }
 }
@@ -0,0 +1,808 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Glyph Variations Table
+ * The 'gvar' table is used in combination with the 'glyf' table to provide variations for
+ * TrueType outlines. Each glyph has a set of tuple variations; a tuple variation gives point
+ * deltas that apply with full effect at its peak location in the normalized design space and
+ * with a scaled effect within its region. Points not referenced by a tuple variation of a
+ * simple glyph get inferred deltas (IUP). For composite glyphs the deltas move the component
+ * offsets. The last four points of every glyph are the phantom points (left, right, top and
+ * bottom side bearing), which carry the metrics variations.
+ * 各字形的变化数据在首次使用时才解码；应用变化后的轮廓按字形与坐标缓存，淘汰最近最少使用的条目。
+ */
+@SuppressWarnings("unused")
+public class GlyphVariationsTable extends BaseTable {
+
+    public static final int SHARED_POINT_NUMBERS = 0x8000;// 存在共享点序号
+    public static final int COUNT_MASK = 0x0FFF;
+    public static final int EMBEDDED_PEAK_TUPLE = 0x8000;// 头部内含峰值坐标
+    public static final int INTERMEDIATE_REGION = 0x4000;// 头部内含中间区域起止坐标
+    public static final int PRIVATE_POINT_NUMBERS = 0x2000;// 数据内含私有点序号
+    public static final int TUPLE_INDEX_MASK = 0x0FFF;
+    public static final int PHANTOM_POINT_COUNT = 4;
+    private static final int POINTS_ARE_WORDS = 0x80;
+    private static final int POINT_RUN_COUNT_MASK = 0x7F;
+    private static final int DELTAS_ARE_ZERO = 0x80;
+    private static final int DELTAS_ARE_WORDS = 0x40;
+    private static final int DELTA_RUN_COUNT_MASK = 0x3F;
+    private static final int MAX_CACHED_OUTLINES = 1024;
+    private static final TupleVariation[] NO_VARIATIONS = new TupleVariation[0];
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final int mAxisCount;
+    private final float[][] mSharedTuples;
+    private final int mGlyphCount;
+    private final int mFlags;
+    private final ByteBuffer mData;
+    private final int mGlyphVariationDataArrayOffset;
+    private final int[] mGlyphVariationDataOffsets;
+    private final ConcurrentHashMap<Integer, TupleVariation[]> mVariations =
+            new ConcurrentHashMap<>();
+    private final OutlineCache mOutlines = new OutlineCache();
+
+    public GlyphVariationsTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_GVAR)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mMajorVersion = data.getChar(0);
+            mMinorVersion = data.getChar(2);
+            if (mMajorVersion != 1)
+                throw new IOException();
+            mAxisCount = data.getChar(4);
+            final int sharedTupleCount = data.getChar(6);
+            final int sharedTuplesOffset = data.getInt(8);
+            mGlyphCount = data.getChar(12);
+            mFlags = data.getChar(14);
+            mGlyphVariationDataArrayOffset = data.getInt(16);
+            mSharedTuples = new float[sharedTupleCount][];
+            int pos = sharedTuplesOffset;
+            for (int i = 0; i < sharedTupleCount; i++) {
+                final float[] tuple = new float[mAxisCount];
+                for (int j = 0; j < mAxisCount; j++) {
+                    tuple[j] = data.getShort(pos) / 16384f;
+                    pos += 2;
+                }
+                mSharedTuples[i] = tuple;
+            }
+            mGlyphVariationDataOffsets = new int[mGlyphCount + 1];
+            pos = 20;
+            for (int i = 0; i <= mGlyphCount; i++) {
+                if ((mFlags & 1) != 0) {
+                    mGlyphVariationDataOffsets[i] = data.getInt(pos);
+                    pos += 4;
+                } else {
+                    mGlyphVariationDataOffsets[i] = data.getChar(pos) * 2;
+                    pos += 2;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        mData = data;
+    }
+
+    /**
+     * Major version number of the glyph variations table — set to 1.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the glyph variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The number of variation axes for this font. This must be the same number as axisCount
+     * in the 'fvar' table.
+     *
+     * @return Axis count.
+     */
+    public int getAxisCount() {
+        return mAxisCount;
+    }
+
+    /**
+     * The number of shared tuple records. Shared tuple records can be referenced within
+     * glyph variation data tables for multiple glyphs, as opposed to other tuple records
+     * stored directly within a glyph variation data table.
+     *
+     * @return Shared tuple count.
+     */
+    public int getSharedTupleCount() {
+        return mSharedTuples.length;
+    }
+
+    /**
+     * 获取共享峰值坐标
+     *
+     * @param index 序号
+     * @return 归一化坐标
+     */
+    public float[] getSharedTuple(int index) {
+        return mSharedTuples[index].clone();
+    }
+
+    /**
+     * The number of glyphs in this font. This must match the number of glyphs stored
+     * elsewhere in the font.
+     *
+     * @return Glyph count.
+     */
+    public int getGlyphCount() {
+        return mGlyphCount;
+    }
+
+    /**
+     * Bit-field that gives the format of the offset array that follows. If bit 0 is clear,
+     * the offsets are uint16; if bit 0 is set, the offsets are uint32.
+     *
+     * @return Flags.
+     */
+    public int getFlags() {
+        return mFlags;
+    }
+
+    /**
+     * 判断字形是否有变化数据
+     *
+     * @param glyphId 字形ID
+     * @return 是否有变化数据
+     */
+    public boolean hasVariations(int glyphId) {
+        return glyphId >= 0 && glyphId < mGlyphCount &&
+                mGlyphVariationDataOffsets[glyphId + 1] > mGlyphVariationDataOffsets[glyphId];
+    }
+
+    /**
+     * 获取应用变化后的字形轮廓，复合字形的组件同样应用各自的变化；结果按字形与坐标缓存
+     *
+     * @param glyf     'glyf' 表
+     * @param glyphId  字形ID
+     * @param instance 实例，为空时返回默认轮廓
+     * @return 字形轮廓
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphTable.GlyphOutline getGlyphOutline(GlyphTable glyf, int glyphId,
+                                                   VariationInstance instance)
+            throws IOException {
+        return getGlyphOutline(glyf, glyphId,
+                instance == null ? null : instance.getCoordinates());
+    }
+
+    /**
+     * 获取应用变化后的字形轮廓，复合字形的组件同样应用各自的变化；结果按字形与坐标缓存
+     *
+     * @param glyf        'glyf' 表
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标，为空或全为 0 时返回默认轮廓
+     * @return 字形轮廓
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public GlyphTable.GlyphOutline getGlyphOutline(GlyphTable glyf, int glyphId,
+                                                   float[] coordinates) throws IOException {
+        if (isDefault(coordinates))
+            return glyf.getGlyphOutline(glyphId);
+        return getVariedGlyph(glyf, glyphId, coordinates).mOutline;
+    }
+
+    /**
+     * 获取幻影点的变化量，依次为左、右、上、下四个幻影点的 x 与 y 增量。
+     * 右幻影点与左幻影点的 x 增量之差即为水平步进的变化量，可在缺少 HVAR 表时使用。
+     *
+     * @param glyf     'glyf' 表
+     * @param glyphId  字形ID
+     * @param instance 实例
+     * @return 增量（长度为 8），数组共享，不可修改
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public float[] getPhantomDeltas(GlyphTable glyf, int glyphId, VariationInstance instance)
+            throws IOException {
+        final float[] coordinates = instance == null ? null : instance.getCoordinates();
+        if (isDefault(coordinates))
+            return VariedGlyph.NO_DELTAS;
+        return getVariedGlyph(glyf, glyphId, coordinates).mPhantomDeltas;
+    }
+
+    /**
+     * 获取各点的增量，x 与 y 交替排列；简单字形为各轮廓点（含推断的增量），复合字形为各组件的偏移量，
+     * 最后四个为幻影点。
+     *
+     * @param glyf     'glyf' 表
+     * @param glyphId  字形ID
+     * @param instance 实例
+     * @return 增量，数组共享，不可修改；默认实例返回空
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public float[] getPointDeltas(GlyphTable glyf, int glyphId, VariationInstance instance)
+            throws IOException {
+        final float[] coordinates = instance == null ? null : instance.getCoordinates();
+        if (isDefault(coordinates))
+            return null;
+        return getVariedGlyph(glyf, glyphId, coordinates).mPointDeltas;
+    }
+
+    /**
+     * 获取水平步进的变化量（右幻影点与左幻影点 x 增量之差）
+     *
+     * @param glyf     'glyf' 表
+     * @param glyphId  字形ID
+     * @param instance 实例
+     * @return 变化量（字体设计单位）
+     * @throws IOException 字形ID越界或数据错误
+     */
+    public float getAdvanceWidthDelta(GlyphTable glyf, int glyphId, VariationInstance instance)
+            throws IOException {
+        final float[] deltas = getPhantomDeltas(glyf, glyphId, instance);
+        return deltas[2] - deltas[0];
+    }
+
+    /**
+     * 获取指定实例的字形轮廓来源，可直接交给光栅化器使用
+     *
+     * @param glyf     'glyf' 表
+     * @param instance 实例
+     * @return 字形轮廓来源
+     */
+    public GlyphOutlineSource getGlyphOutlineSource(GlyphTable glyf,
+                                                    VariationInstance instance) {
+        if (instance == null || instance.isDefault())
+            return glyf;
+        return new VariedOutlineSource(this, glyf, instance.getCoordinates());
+    }
+
+    private static boolean isDefault(float[] coordinates) {
+        if (coordinates == null)
+            return true;
+        for (float coordinate : coordinates) {
+            if (coordinate != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private VariedGlyph getVariedGlyph(GlyphTable glyf, int glyphId, float[] coordinates)
+            throws IOException {
+        final OutlineKey key = new OutlineKey(glyphId, coordinates);
+        synchronized (mOutlines) {
+            final VariedGlyph cached = mOutlines.get(key);
+            if (cached != null)
+                return cached;
+        }
+        // 默认轮廓的解析会校验复合字形的嵌套深度与循环引用，因此之后的递归是安全的
+        final GlyphTable.GlyphOutline outline = glyf.getGlyphOutline(glyphId);
+        final VariedGlyph glyph;
+        try {
+            glyph = applyVariations(glyf, glyphId, outline, coordinates);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        synchronized (mOutlines) {
+            final VariedGlyph previous = mOutlines.get(key);
+            if (previous != null)
+                return previous;
+            mOutlines.put(new OutlineKey(glyphId, coordinates.clone()), glyph);
+        }
+        return glyph;
+    }
+
+    private VariedGlyph applyVariations(GlyphTable glyf, int glyphId,
+                                        GlyphTable.GlyphOutline outline, float[] coordinates)
+            throws IOException {
+        final Object description = glyf.getGlyphDescription(glyphId);
+        final boolean composite = description instanceof GlyphTable.CompositeGlyphDescription;
+        final List<GlyphTable.ComponentRecord> components = composite ?
+                ((GlyphTable.CompositeGlyphDescription) description).getComponents() : null;
+        final int numPoints = composite ? components.size() : outline.getNumberOfPoints();
+        final int totalPoints = numPoints + PHANTOM_POINT_COUNT;
+        final float[] deltaXs = new float[totalPoints];
+        final float[] deltaYs = new float[totalPoints];
+        boolean varied = false;
+        final TupleVariation[] variations = getTupleVariations(glyphId, totalPoints);
+        float[] tupleXs = null;
+        float[] tupleYs = null;
+        boolean[] touched = null;
+        for (TupleVariation variation : variations) {
+            final float scalar = variation.getScalar(coordinates);
+            if (scalar == 0)
+                continue;
+            varied = true;
+            final int[] points = variation.mPointNumbers;
+            final int[] xs = variation.mDeltaXs;
+            final int[] ys = variation.mDeltaYs;
+            if (points == null) {
+                for (int i = 0; i < totalPoints; i++) {
+                    deltaXs[i] += xs[i] * scalar;
+                    deltaYs[i] += ys[i] * scalar;
+                }
+                continue;
+            }
+            if (composite) {
+                for (int i = 0; i < points.length; i++) {
+                    final int point = points[i];
+                    if (point < totalPoints) {
+                        deltaXs[point] += xs[i] * scalar;
+                        deltaYs[point] += ys[i] * scalar;
+                    }
+                }
+                continue;
+            }
+            if (tupleXs == null) {
+                tupleXs = new float[totalPoints];
+                tupleYs = new float[totalPoints];
+                touched = new boolean[totalPoints];
+            } else {
+                Arrays.fill(tupleXs, 0);
+                Arrays.fill(tupleYs, 0);
+                Arrays.fill(touched, false);
+            }
+            for (int i = 0; i < points.length; i++) {
+                final int point = points[i];
+                if (point < totalPoints) {
+                    tupleXs[point] = xs[i];
+                    tupleYs[point] = ys[i];
+                    touched[point] = true;
+                }
+            }
+            inferDeltas(outline, tupleXs, tupleYs, touched);
+            for (int i = 0; i < totalPoints; i++) {
+                deltaXs[i] += tupleXs[i] * scalar;
+                deltaYs[i] += tupleYs[i] * scalar;
+            }
+        }
+        final float[] pointDeltas = new float[totalPoints * 2];
+        for (int i = 0; i < totalPoints; i++) {
+            pointDeltas[i * 2] = deltaXs[i];
+            pointDeltas[i * 2 + 1] = deltaYs[i];
+        }
+        final float[] phantomDeltas = Arrays.copyOfRange(pointDeltas, numPoints * 2,
+                pointDeltas.length);
+        if (composite) {
+            final GlyphTable.GlyphOutline[] children =
+                    new GlyphTable.GlyphOutline[components.size()];
+            for (int i = 0; i < children.length; i++) {
+                final int child = components.get(i).getGlyphIndex();
+                children[i] = getVariedGlyph(glyf, child, coordinates).mOutline;
+            }
+            final GlyphTable.GlyphOutline composed = GlyphTable.composeOutline(0, 0, 0, 0,
+                    components, children, deltaXs, deltaYs);
+            return new VariedGlyph(withBounds(composed, composed.getXCoordinates(),
+                    composed.getYCoordinates()), pointDeltas, phantomDeltas);
+        }
+        if (!varied)
+            return new VariedGlyph(outline, pointDeltas, phantomDeltas);
+        final float[] xs = outline.getXCoordinates();
+        final float[] ys = outline.getYCoordinates();
+        final float[] newXs = new float[numPoints];
+        final float[] newYs = new float[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            newXs[i] = xs[i] + deltaXs[i];
+            newYs[i] = ys[i] + deltaYs[i];
+        }
+        return new VariedGlyph(withBounds(outline, newXs, newYs), pointDeltas,
+                phantomDeltas);
+    }
+
+    private static GlyphTable.GlyphOutline withBounds(GlyphTable.GlyphOutline outline,
+                                                      float[] xs, float[] ys) {
+        if (xs.length == 0)
+            return new GlyphTable.GlyphOutline(0, 0, 0, 0, outline.getEndPtsOfContours(),
+                    xs, ys, outline.getOnCurves());
+        float xMin = xs[0];
+        float yMin = ys[0];
+        float xMax = xs[0];
+        float yMax = ys[0];
+        for (int i = 1; i < xs.length; i++) {
+            xMin = Math.min(xMin, xs[i]);
+            yMin = Math.min(yMin, ys[i]);
+            xMax = Math.max(xMax, xs[i]);
+            yMax = Math.max(yMax, ys[i]);
+        }
+        return new GlyphTable.GlyphOutline((int) Math.floor(xMin), (int) Math.floor(yMin),
+                (int) Math.ceil(xMax), (int) Math.ceil(yMax), outline.getEndPtsOfContours(),
+                xs, ys, outline.getOnCurves());
+    }
+
+    /**
+     * 推断未引用点的增量（IUP）：每条轮廓内，未引用点按原始坐标在前后两个已引用点之间线性插值，
+     * 超出两点范围时取较近一侧的增量；轮廓内只有一个已引用点时所有点取其增量。
+     */
+    static void inferDeltas(GlyphTable.GlyphOutline outline, float[] deltaXs, float[] deltaYs,
+                            boolean[] touched) {
+        final int[] ends = outline.getEndPtsOfContours();
+        final float[] xs = outline.getXCoordinates();
+        final float[] ys = outline.getYCoordinates();
+        int start = 0;
+        for (int end : ends) {
+            int first = -1;
+            for (int i = start; i <= end; i++) {
+                if (touched[i]) {
+                    first = i;
+                    break;
+                }
+            }
+            if (first < 0) {
+                start = end + 1;
+                continue;
+            }
+            int previous = first;
+            int i = first;
+            do {
+                i = i == end ? start : i + 1;
+                if (touched[i]) {
+                    if (i != (previous == end ? start : previous + 1))
+                        interpolate(xs, ys, deltaXs, deltaYs, start, end, previous, i);
+                    previous = i;
+                }
+            } while (i != first);
+            start = end + 1;
+        }
+    }
+
+    private static void interpolate(float[] xs, float[] ys, float[] deltaXs, float[] deltaYs,
+                                    int start, int end, int p1, int p2) {
+        int i = p1 == end ? start : p1 + 1;
+        while (i != p2) {
+            deltaXs[i] = interpolate(xs[i], xs[p1], xs[p2], deltaXs[p1], deltaXs[p2]);
+            deltaYs[i] = interpolate(ys[i], ys[p1], ys[p2], deltaYs[p1], deltaYs[p2]);
+            i = i == end ? start : i + 1;
+        }
+    }
+
+    private static float interpolate(float value, float v1, float v2, float d1, float d2) {
+        if (v1 == v2)
+            return d1 == d2 ? d1 : 0;
+        if (v1 > v2) {
+            float t = v1;
+            v1 = v2;
+            v2 = t;
+            t = d1;
+            d1 = d2;
+            d2 = t;
+        }
+        if (value <= v1)
+            return d1;
+        if (value >= v2)
+            return d2;
+        return d1 + (value - v1) * (d2 - d1) / (v2 - v1);
+    }
+
+    private TupleVariation[] getTupleVariations(int glyphId, int totalPoints)
+            throws IOException {
+        if (!hasVariations(glyphId))
+            return NO_VARIATIONS;
+        final TupleVariation[] cached = mVariations.get(glyphId);
+        if (cached != null)
+            return cached;
+        final TupleVariation[] variations;
+        try {
+            variations = decodeTupleVariations(mGlyphVariationDataArrayOffset +
+                    mGlyphVariationDataOffsets[glyphId], totalPoints);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        final TupleVariation[] previous = mVariations.putIfAbsent(glyphId, variations);
+        return previous == null ? variations : previous;
+    }
+
+    private TupleVariation[] decodeTupleVariations(int offset, int totalPoints)
+            throws IOException {
+        final ByteBuffer data = mData;
+        final int tupleVariationCount = data.getChar(offset);
+        final int count = tupleVariationCount & COUNT_MASK;
+        int serialized = offset + data.getChar(offset + 2);
+        final int[] cursor = new int[1];
+        int[] sharedPoints = null;
+        if ((tupleVariationCount & SHARED_POINT_NUMBERS) != 0) {
+            cursor[0] = serialized;
+            sharedPoints = readPointNumbers(data, cursor);
+            serialized = cursor[0];
+        }
+        final TupleVariation[] variations = new TupleVariation[count];
+        int header = offset + 4;
+        for (int i = 0; i < count; i++) {
+            final int variationDataSize = data.getChar(header);
+            final int tupleIndex = data.getChar(header + 2);
+            header += 4;
+            final float[] peak;
+            if ((tupleIndex & EMBEDDED_PEAK_TUPLE) != 0) {
+                peak = new float[mAxisCount];
+                for (int j = 0; j < mAxisCount; j++) {
+                    peak[j] = data.getShort(header) / 16384f;
+                    header += 2;
+                }
+            } else {
+                final int index = tupleIndex & TUPLE_INDEX_MASK;
+                if (index >= mSharedTuples.length)
+                    throw new IOException();
+                peak = mSharedTuples[index];
+            }
+            float[] starts = null;
+            float[] ends = null;
+            if ((tupleIndex & INTERMEDIATE_REGION) != 0) {
+                starts = new float[mAxisCount];
+                ends = new float[mAxisCount];
+                for (int j = 0; j < mAxisCount; j++) {
+                    starts[j] = data.getShort(header) / 16384f;
+                    header += 2;
+                }
+                for (int j = 0; j < mAxisCount; j++) {
+                    ends[j] = data.getShort(header) / 16384f;
+                    header += 2;
+                }
+            }
+            cursor[0] = serialized;
+            final int[] points = (tupleIndex & PRIVATE_POINT_NUMBERS) != 0 ?
+                    readPointNumbers(data, cursor) : sharedPoints;
+            final int deltaCount = points == null ? totalPoints : points.length;
+            final int[] deltaXs = readDeltas(data, cursor, deltaCount);
+            final int[] deltaYs = readDeltas(data, cursor, deltaCount);
+            variations[i] = new TupleVariation(peak, starts, ends, points, deltaXs, deltaYs);
+            serialized += variationDataSize;
+        }
+        return variations;
+    }
+
+    /**
+     * 读取压缩点序号，返回空表示引用全部点
+     */
+    private static int[] readPointNumbers(ByteBuffer data, int[] cursor) {
+        int pos = cursor[0];
+        int count = data.get(pos++) & 0xFF;
+        if (count == 0) {
+            cursor[0] = pos;
+            return null;
+        }
+        if ((count & POINTS_ARE_WORDS) != 0)
+            count = ((count & POINT_RUN_COUNT_MASK) << 8) | (data.get(pos++) & 0xFF);
+        final int[] points = new int[count];
+        int point = 0;
+        int i = 0;
+        while (i < count) {
+            final int control = data.get(pos++) & 0xFF;
+            final int run = (control & POINT_RUN_COUNT_MASK) + 1;
+            for (int j = 0; j < run && i < count; j++) {
+                if ((control & POINTS_ARE_WORDS) != 0) {
+                    point += data.getChar(pos);
+                    pos += 2;
+                } else {
+                    point += data.get(pos++) & 0xFF;
+                }
+                points[i++] = point;
+            }
+        }
+        cursor[0] = pos;
+        return points;
+    }
+
+    /**
+     * 读取压缩增量
+     */
+    private static int[] readDeltas(ByteBuffer data, int[] cursor, int count) {
+        int pos = cursor[0];
+        final int[] deltas = new int[count];
+        int i = 0;
+        while (i < count) {
+            final int control = data.get(pos++) & 0xFF;
+            final int run = (control & DELTA_RUN_COUNT_MASK) + 1;
+            final int size = (control & DELTAS_ARE_ZERO) != 0 ?
+                    ((control & DELTAS_ARE_WORDS) != 0 ? 4 : 0) :
+                    ((control & DELTAS_ARE_WORDS) != 0 ? 2 : 1);
+            for (int j = 0; j < run && i < count; j++) {
+                switch (size) {
+                    case 0:
+                        deltas[i++] = 0;
+                        break;
+                    case 1:
+                        deltas[i++] = data.get(pos++);
+                        break;
+                    case 2:
+                        deltas[i++] = data.getShort(pos);
+                        pos += 2;
+                        break;
+                    default:
+                        deltas[i++] = data.getInt(pos);
+                        pos += 4;
+                        break;
+                }
+            }
+        }
+        cursor[0] = pos;
+        return deltas;
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion, mAxisCount,
+                mGlyphCount, mFlags);
+    }
+
+    @Override
+    public String getString() {
+        return "GlyphVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", axisCount=" + mAxisCount +
+                ", sharedTuples=" + Arrays.deepToString(mSharedTuples) +
+                ", glyphCount=" + mGlyphCount +
+                ", flags=" + mFlags +
+                '}';
+    }
+
+    /**
+     * 元组变化，峰值与区域坐标为归一化值
+     */
+    private static final class TupleVariation {
+        final float[] mPeak;
+        final float[] mStarts;
+        final float[] mEnds;
+        final int[] mPointNumbers;
+        final int[] mDeltaXs;
+        final int[] mDeltaYs;
+
+        TupleVariation(float[] peak, float[] starts, float[] ends, int[] pointNumbers,
+                       int[] deltaXs, int[] deltaYs) {
+            mPeak = peak;
+            mStarts = starts;
+            mEnds = ends;
+            mPointNumbers = pointNumbers;
+            mDeltaXs = deltaXs;
+            mDeltaYs = deltaYs;
+        }
+
+        float getScalar(float[] coordinates) {
+            float scalar = 1;
+            for (int axis = 0; axis < mPeak.length; axis++) {
+                final float peak = mPeak[axis];
+                if (peak == 0)
+                    continue;
+                final float value = axis < coordinates.length ? coordinates[axis] : 0;
+                if (value == peak)
+                    continue;
+                if (mStarts == null) {
+                    if (value == 0 || (value < 0) != (peak < 0) ||
+                            Math.abs(value) > Math.abs(peak))
+                        return 0;
+                    scalar *= value / peak;
+                    continue;
+                }
+                final float start = mStarts[axis];
+                final float end = mEnds[axis];
+                if (start > peak || peak > end || (start < 0 && end > 0))
+                    continue;
+                if (value < start || value > end)
+                    return 0;
+                if (value < peak)
+                    scalar *= (value - start) / (peak - start);
+                else
+                    scalar *= (end - value) / (end - peak);
+            }
+            return scalar;
+        }
+    }
+
+    /**
+     * 应用变化后的字形
+     */
+    private static final class VariedGlyph {
+        static final float[] NO_DELTAS = new float[PHANTOM_POINT_COUNT * 2];
+        final GlyphTable.GlyphOutline mOutline;
+        final float[] mPointDeltas;
+        final float[] mPhantomDeltas;
+
+        VariedGlyph(GlyphTable.GlyphOutline outline, float[] pointDeltas,
+                    float[] phantomDeltas) {
+            mOutline = outline;
+            mPointDeltas = pointDeltas;
+            mPhantomDeltas = phantomDeltas;
+        }
+    }
+
+    /**
+     * 轮廓缓存，按访问顺序淘汰最近最少使用的条目
+     */
+    private static final class OutlineCache extends LinkedHashMap<OutlineKey, VariedGlyph> {
+
+        private static final long serialVersionUID = 1L;
+
+        OutlineCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<OutlineKey, VariedGlyph> eldest) {
+            return size() > MAX_CACHED_OUTLINES;
+        }
+    }
+
+    /**
+     * 轮廓缓存键，实例坐标数组通常为同一对象，比较时可直接命中
+     */
+    private static final class OutlineKey {
+        private final int mGlyphId;
+        private final float[] mCoordinates;
+        private final int mHashCode;
+
+        OutlineKey(int glyphId, float[] coordinates) {
+            mGlyphId = glyphId;
+            mCoordinates = coordinates;
+            mHashCode = 31 * glyphId + Arrays.hashCode(coordinates);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            OutlineKey that = (OutlineKey) o;
+            return mGlyphId == that.mGlyphId && Arrays.equals(mCoordinates, that.mCoordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * 指定实例的字形轮廓来源
+     */
+    private static final class VariedOutlineSource implements GlyphOutlineSource {
+        private final GlyphVariationsTable mGvar;
+        private final GlyphTable mGlyf;
+        private final float[] mCoordinates;
+
+        VariedOutlineSource(GlyphVariationsTable gvar, GlyphTable glyf, float[] coordinates) {
+            mGvar = gvar;
+            mGlyf = glyf;
+            mCoordinates = coordinates;
+        }
+
+        @Override
+        public int getNumGlyphs() {
+            return mGlyf.getNumGlyphs();
+        }
+
+        @Override
+        public void decodeOutline(int glyphId, GlyphOutlineSink sink) throws IOException {
+            mGvar.getGlyphOutline(mGlyf, glyphId, mCoordinates).decodeOutline(sink);
+        }
+    }
+}
@@ -69,7 +69,7 @@ public class HeaderTable extends BaseTable {
         final int xMax = reader.readShort();
         final int yMax = reader.readShort();
         final int macStyle = reader.readUnsignedShort();
-        final int lowestRecPPEM = reader.readUnsignedInt();
+        final int lowestRecPPEM = reader.readUnsignedShort();
         final int fontDirectionHint = reader.readShort();
         final int indexToLocFormat = reader.readShort();
         final int glyphDataFormat = reader.readShort();
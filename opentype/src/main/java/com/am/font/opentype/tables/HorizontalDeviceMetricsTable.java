@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Horizontal Device Metrics Table
+ * The hdmx table relates to OpenType fonts with TrueType outlines. The Apple hdmx table
+ * contains the widths of every glyph at a list of sizes (pixels per em), as produced by
+ * the hinting instructions. Applications can use these integer advances directly instead
+ * of scaling and hinting the glyphs.
+ * 记录按像素大小索引，查询为一次数组访问。
+ */
+@SuppressWarnings("unused")
+public class HorizontalDeviceMetricsTable extends BaseTable {
+
+    private final int mVersion;
+    private final int mNumRecords;
+    private final int mSizeDeviceRecord;
+    private final int mNumGlyphs;
+    private final int[] mPixelSizes;
+    private final int[] mMaxWidths;
+    private final byte[][] mWidths;// 按像素大小（0-255）索引，无记录时为空
+
+    public HorizontalDeviceMetricsTable(OpenTypeReader reader, TableRecord record,
+                                        int numGlyphs) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_HDMX)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            mNumRecords = data.getShort(2);
+            mSizeDeviceRecord = data.getInt(4);
+            if (mVersion != 0 || mNumRecords < 0 || mSizeDeviceRecord < 2 + numGlyphs)
+                throw new IOException();
+            mNumGlyphs = numGlyphs;
+            mPixelSizes = new int[mNumRecords];
+            mMaxWidths = new int[mNumRecords];
+            mWidths = new byte[256][];
+            int pos = 8;
+            for (int i = 0; i < mNumRecords; i++) {
+                final int pixelSize = data.get(pos) & 0xFF;
+                mPixelSizes[i] = pixelSize;
+                mMaxWidths[i] = data.get(pos + 1) & 0xFF;
+                final byte[] widths = new byte[numGlyphs];
+                for (int j = 0; j < numGlyphs; j++) {
+                    widths[j] = data.get(pos + 2 + j);
+                }
+                mWidths[pixelSize] = widths;
+                pos += mSizeDeviceRecord;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Table version number (0).
+     *
+     * @return Table version number.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of device records.
+     *
+     * @return Number of device records.
+     */
+    public int getNumRecords() {
+        return mNumRecords;
+    }
+
+    /**
+     * Size of a device record, 32-bit aligned.
+     *
+     * @return Size of a device record.
+     */
+    public int getSizeDeviceRecord() {
+        return mSizeDeviceRecord;
+    }
+
+    /**
+     * 获取字形数目
+     *
+     * @return 字形数目
+     */
+    public int getNumGlyphs() {
+        return mNumGlyphs;
+    }
+
+    /**
+     * Pixel size for following widths (as ppem).
+     *
+     * @param index 记录序号
+     * @return Pixel size.
+     */
+    public int getPixelSize(int index) {
+        return mPixelSizes[index];
+    }
+
+    /**
+     * Maximum width.
+     *
+     * @param index 记录序号
+     * @return Maximum width.
+     */
+    public int getMaxWidth(int index) {
+        return mMaxWidths[index];
+    }
+
+    /**
+     * 判断是否包含该像素大小的记录
+     *
+     * @param ppem 像素大小
+     * @return 是否包含
+     */
+    public boolean containsPixelSize(int ppem) {
+        return ppem >= 0 && ppem < mWidths.length && mWidths[ppem] != null;
+    }
+
+    /**
+     * 获取字形在该像素大小下的步进
+     *
+     * @param ppem    像素大小
+     * @param glyphId 字形ID
+     * @return 步进（像素），不包含该像素大小的记录或字形ID越界时返回 -1
+     */
+    public int getWidth(int ppem, int glyphId) {
+        if (ppem < 0 || ppem >= mWidths.length)
+            return -1;
+        final byte[] widths = mWidths[ppem];
+        if (widths == null || glyphId < 0 || glyphId >= widths.length)
+            return -1;
+        return widths[glyphId] & 0xFF;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion, mNumRecords, mSizeDeviceRecord,
+                mNumGlyphs);
+        result = 31 * result + Arrays.hashCode(mPixelSizes);
+        result = 31 * result + Arrays.deepHashCode(mWidths);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "HorizontalDeviceMetricsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numRecords=" + mNumRecords +
+                ", sizeDeviceRecord=" + mSizeDeviceRecord +
+                ", pixelSizes=" + Arrays.toString(mPixelSizes) +
+                '}';
+    }
+}
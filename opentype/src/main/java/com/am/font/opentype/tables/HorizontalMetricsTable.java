@@ -16,9 +16,7 @@
 package com.am.font.opentype.tables;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import com.am.font.opentype.OpenTypeReader;
 import com.am.font.opentype.TableRecord;
@@ -35,42 +33,88 @@ import java.util.Objects;
 @SuppressWarnings("unused")
 public class HorizontalMetricsTable extends BaseTable {
 
-    private final List<LongHorMetricRecord> mHMetrics;
-    private final int[] mLeftSideBearings;
+    private final int mNumberOfHMetrics;
+    private final char[] mAdvanceWidths;
+    private final short[] mLsbs;
 
     public HorizontalMetricsTable(OpenTypeReader reader, TableRecord record,
                                   int numberOfHMetrics, int numGlyphs) throws IOException {
         super(record);
         if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_HMTX)
             throw new IOException();
+        if (numberOfHMetrics < 0 || numGlyphs < 0)
+            throw new IOException();
         reader.seek(record.getOffset());
-        final ArrayList<LongHorMetricRecord> hMetrics = new ArrayList<>();
+        // 前进宽度与左侧支承分别以基本类型数组保存，按字形ID直接索引
+        final char[] advanceWidths = new char[numberOfHMetrics];
+        final short[] lsbs = new short[Math.max(numberOfHMetrics, numGlyphs)];
         for (int i = 0; i < numberOfHMetrics; i++) {
-            hMetrics.add(new LongHorMetricRecord(reader.readUnsignedShort(), reader.readShort()));
+            advanceWidths[i] = (char) reader.readUnsignedShort();
+            lsbs[i] = (short) reader.readShort();
         }
-        final int[] leftSideBearings;
-        if (numGlyphs > numberOfHMetrics) {
-            leftSideBearings = new int[numGlyphs - numberOfHMetrics];
-
-            for (int i = numberOfHMetrics; i < numGlyphs; i++) {
-                leftSideBearings[i - numberOfHMetrics] = reader.readShort();
-            }
-        } else {
-            leftSideBearings = null;
+        for (int i = numberOfHMetrics; i < numGlyphs; i++) {
+            lsbs[i] = (short) reader.readShort();
         }
-        mHMetrics = hMetrics;
-        mLeftSideBearings = leftSideBearings;
+        mNumberOfHMetrics = numberOfHMetrics;
+        mAdvanceWidths = advanceWidths;
+        mLsbs = lsbs;
+    }
+
+    /**
+     * Number of hMetric entries, taken from the 'hhea' table.
+     *
+     * @return Number of hMetrics.
+     */
+    public int getNumberOfHMetrics() {
+        return mNumberOfHMetrics;
+    }
+
+    /**
+     * 获取字形数目
+     *
+     * @return 字形数目（不小于 numberOfHMetrics）
+     */
+    public int getNumGlyphs() {
+        return mLsbs.length;
+    }
+
+    /**
+     * Advance width of the glyph, in font design units. Glyph IDs greater than or equal to
+     * numberOfHMetrics share the advance width of the last hMetrics record.
+     *
+     * @param glyphId glyph ID
+     * @return Advance width.
+     */
+    public int getAdvanceWidth(int glyphId) {
+        if (glyphId < 0)
+            throw new IndexOutOfBoundsException();
+        if (mNumberOfHMetrics == 0)
+            return 0;
+        return mAdvanceWidths[glyphId < mNumberOfHMetrics ? glyphId : mNumberOfHMetrics - 1];
+    }
+
+    /**
+     * Glyph left side bearing, in font design units.
+     *
+     * @param glyphId glyph ID
+     * @return Glyph left side bearing.
+     */
+    public int getLsb(int glyphId) {
+        return mLsbs[glyphId];
     }
 
     /**
      * Paired advance width and left side bearing values for each glyph.
-     * Records are indexed by glyph ID.
+     * Records are indexed by glyph ID. A new record is created on every call, use
+     * {@link #getAdvanceWidth(int)} or {@link #getLsb(int)} instead where possible.
      *
-     * @param index glyph ID
+     * @param index glyph ID, less than numberOfHMetrics
      * @return LongHorMetric Record.
      */
     public LongHorMetricRecord getLongHorMetricRecord(int index) {
-        return mHMetrics.get(index);
+        if (index < 0 || index >= mNumberOfHMetrics)
+            throw new IndexOutOfBoundsException();
+        return new LongHorMetricRecord(mAdvanceWidths[index], mLsbs[index]);
     }
 
     /**
@@ -82,22 +126,29 @@ public class HorizontalMetricsTable extends BaseTable {
      * @return Left side bearing.
      */
     public int getLeftSideBearing(int index) {
-        return mLeftSideBearings == null ? 0 : mLeftSideBearings[index];
+        final int glyphId = mNumberOfHMetrics + index;
+        return glyphId < mLsbs.length ? mLsbs[glyphId] : 0;
     }
 
     @Override
     public int getHashCode() {
-        int result = Objects.hash(super.getHashCode(), mHMetrics);
-        result = 31 * result + Arrays.hashCode(mLeftSideBearings);
+        int result = Objects.hash(super.getHashCode(), mNumberOfHMetrics);
+        result = 31 * result + Arrays.hashCode(mAdvanceWidths);
+        result = 31 * result + Arrays.hashCode(mLsbs);
         return result;
     }
 
     @Override
     public String getString() {
+        final int[] advanceWidths = new int[mAdvanceWidths.length];
+        for (int i = 0; i < advanceWidths.length; i++) {
+            advanceWidths[i] = mAdvanceWidths[i];
+        }
         return "HorizontalMetricsTable{" +
                 "record=" + String.valueOf(getTableRecord()) +
-                ", hMetrics=" + String.valueOf(mHMetrics) +
-                ", leftSideBearings=" + Arrays.toString(mLeftSideBearings) +
+                ", numberOfHMetrics=" + mNumberOfHMetrics +
+                ", advanceWidths=" + Arrays.toString(advanceWidths) +
+                ", lsbs=" + Arrays.toString(mLsbs) +
                 '}';
     }
 
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Horizontal Metrics Variations Table
+ * The HVAR table is used in variable fonts to provide variations for horizontal glyph metrics
+ * values. This can be used to provide variation data for advance widths in the 'hmtx' table.
+ * In fonts with TrueType outlines, it can also be used to provide variation data for left
+ * and right side bearings obtained from the 'hmtx' table and glyph bounding box.
+ * When the advance width mapping is absent, glyph IDs are used directly as inner indices
+ * into the first item variation data subtable.
+ */
+@SuppressWarnings("unused")
+public class HorizontalMetricsVariationsTable extends BaseTable {
+
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final ItemVariationStore mItemVariationStore;
+    private final DeltaSetIndexMap mAdvanceWidthMapping;
+    private final DeltaSetIndexMap mLsbMapping;
+    private final DeltaSetIndexMap mRsbMapping;
+
+    public HorizontalMetricsVariationsTable(OpenTypeReader reader, TableRecord record)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_HVAR)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mMajorVersion = data.getChar(0);
+            mMinorVersion = data.getChar(2);
+            if (mMajorVersion != 1)
+                throw new IOException();
+            final int itemVariationStore = data.getInt(4);
+            final int advanceWidthMapping = data.getInt(8);
+            final int lsbMapping = data.getInt(12);
+            final int rsbMapping = data.getInt(16);
+            if (itemVariationStore <= 0)
+                throw new IOException();
+            mItemVariationStore = new ItemVariationStore(data, itemVariationStore);
+            mAdvanceWidthMapping = advanceWidthMapping > 0 ?
+                    new DeltaSetIndexMap(data, advanceWidthMapping) : null;
+            mLsbMapping = lsbMapping > 0 ? new DeltaSetIndexMap(data, lsbMapping) : null;
+            mRsbMapping = rsbMapping > 0 ? new DeltaSetIndexMap(data, rsbMapping) : null;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Major version number of the horizontal metrics variations table — set to 1.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the horizontal metrics variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The item variation store table.
+     *
+     * @return Item variation store.
+     */
+    public ItemVariationStore getItemVariationStore() {
+        return mItemVariationStore;
+    }
+
+    /**
+     * The delta-set index mapping for advance widths, may be null.
+     *
+     * @return Advance width mapping.
+     */
+    public DeltaSetIndexMap getAdvanceWidthMapping() {
+        return mAdvanceWidthMapping;
+    }
+
+    /**
+     * The delta-set index mapping for left side bearings, may be null.
+     *
+     * @return Left side bearing mapping.
+     */
+    public DeltaSetIndexMap getLsbMapping() {
+        return mLsbMapping;
+    }
+
+    /**
+     * The delta-set index mapping for right side bearings, may be null.
+     *
+     * @return Right side bearing mapping.
+     */
+    public DeltaSetIndexMap getRsbMapping() {
+        return mRsbMapping;
+    }
+
+    /**
+     * 获取区域系数，排版大量字形时先获取一次再逐字形计算增量
+     *
+     * @param coordinates 归一化坐标
+     * @return 区域系数
+     */
+    public float[][] getScalars(float[] coordinates) {
+        return mItemVariationStore.getScalars(coordinates);
+    }
+
+    /**
+     * 获取实例的区域系数，按实例查找缓存，无需逐次计算坐标的散列值
+     *
+     * @param instance 实例，为空时为默认实例
+     * @return 区域系数
+     */
+    public float[][] getScalars(VariationInstance instance) {
+        return mItemVariationStore.getScalars(instance);
+    }
+
+    /**
+     * 获取前进宽度增量
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getAdvanceWidthDelta(int glyphId, float[] coordinates) {
+        return getAdvanceWidthDelta(glyphId, mItemVariationStore.getScalars(coordinates));
+    }
+
+    /**
+     * 获取前进宽度增量
+     *
+     * @param glyphId 字形ID
+     * @param scalars {@link #getScalars(float[])} 返回的区域系数
+     * @return 增量（设计单位）
+     */
+    public float getAdvanceWidthDelta(int glyphId, float[][] scalars) {
+        if (mAdvanceWidthMapping == null)
+            return mItemVariationStore.getDelta(0, glyphId, scalars);
+        return mItemVariationStore.getDelta(mAdvanceWidthMapping.getOuterIndex(glyphId),
+                mAdvanceWidthMapping.getInnerIndex(glyphId), scalars);
+    }
+
+    /**
+     * 获取左侧支承增量，未提供映射时返回0（需由字形轮廓变化计算）
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getLsbDelta(int glyphId, float[] coordinates) {
+        if (mLsbMapping == null)
+            return 0;
+        return mItemVariationStore.getDelta(mLsbMapping.getOuterIndex(glyphId),
+                mLsbMapping.getInnerIndex(glyphId), coordinates);
+    }
+
+    /**
+     * 获取右侧支承增量，未提供映射时返回0（需由字形轮廓变化计算）
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getRsbDelta(int glyphId, float[] coordinates) {
+        if (mRsbMapping == null)
+            return 0;
+        return mItemVariationStore.getDelta(mRsbMapping.getOuterIndex(glyphId),
+                mRsbMapping.getInnerIndex(glyphId), coordinates);
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+    }
+
+    @Override
+    public String getString() {
+        return "HorizontalMetricsVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", itemVariationStore=" + String.valueOf(mItemVariationStore) +
+                ", advanceWidthMapping=" + String.valueOf(mAdvanceWidthMapping) +
+                ", lsbMapping=" + String.valueOf(mLsbMapping) +
+                ", rsbMapping=" + String.valueOf(mRsbMapping) +
+                '}';
+    }
+}
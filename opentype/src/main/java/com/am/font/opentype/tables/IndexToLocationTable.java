@@ -16,7 +16,9 @@
 package com.am.font.opentype.tables;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Objects;
 
 import com.am.font.opentype.OpenTypeReader;
 import com.am.font.opentype.TableRecord;
@@ -26,47 +28,115 @@ import com.am.font.opentype.TableRecord;
  * The indexToLoc table stores the offsets to the locations of the glyphs in the font,
  * relative to the beginning of the glyphData table. In order to compute the length of
  * the last glyph element, there is an extra entry after the last valid index.
+ * 读取器支持内存映射时直接从映射区域读取偏移量；否则短格式以 char 保存（访问时乘 2），
+ * 长格式以 int 保存。
  */
 @SuppressWarnings("unused")
 public class IndexToLocationTable extends BaseTable {
 
-    private final int[] mOffsets;
+    private final int mIndexToLocFormat;
+    private final int mNumGlyphs;
+    private final ByteBuffer mData;
+    private final char[] mShortOffsets;
+    private final int[] mLongOffsets;
 
     public IndexToLocationTable(OpenTypeReader reader, TableRecord record, int indexToLocFormat,
                                 int numGlyphs) throws IOException {
         super(record);
         if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_LOCA)
             throw new IOException();
-        reader.seek(record.getOffset());
         final int size = numGlyphs + 1;
-        final int[] offsets = new int[size];
-        if (indexToLocFormat == 0) {
-            // Short version
-            for (int i = 0; i < size; i++) {
-                offsets[i] = reader.readUnsignedShort();
-            }
-        } else {
-            // Long version
-            for (int i = 0; i < size; i++) {
-                offsets[i] = reader.readUnsignedInt();
+        if (record.getLength() < size * (indexToLocFormat == 0 ? 2 : 4))
+            throw new IOException();
+        final ByteBuffer data = reader.map(record.getOffset(), record.getLength());
+        char[] shortOffsets = null;
+        int[] longOffsets = null;
+        if (data == null) {
+            reader.seek(record.getOffset());
+            if (indexToLocFormat == 0) {
+                // Short version, the actual local offset divided by 2 is stored.
+                shortOffsets = new char[size];
+                for (int i = 0; i < size; i++) {
+                    shortOffsets[i] = (char) reader.readUnsignedShort();
+                }
+            } else {
+                // Long version
+                longOffsets = new int[size];
+                for (int i = 0; i < size; i++) {
+                    longOffsets[i] = reader.readUnsignedInt();
+                }
             }
         }
-        mOffsets = offsets;
+        mIndexToLocFormat = indexToLocFormat;
+        mNumGlyphs = numGlyphs;
+        mData = data;
+        mShortOffsets = shortOffsets;
+        mLongOffsets = longOffsets;
+    }
+
+    /**
+     * 0 for short offsets (Offset16), 1 for long (Offset32).
+     *
+     * @return Index to loc format.
+     */
+    public int getIndexToLocFormat() {
+        return mIndexToLocFormat;
     }
 
     /**
-     * The actual local offset
+     * The number of glyphs in the font.
+     *
+     * @return Number of glyphs.
+     */
+    public int getNumGlyphs() {
+        return mNumGlyphs;
+    }
+
+    /**
+     * The actual local offset of the glyph data, relative to the beginning of the 'glyf' table.
+     *
+     * @param glyphId glyph ID, 0 to numGlyphs (the extra entry gives the end of the last glyph).
+     * @return The actual local offset.
+     */
+    public int getGlyphOffset(int glyphId) {
+        if (glyphId < 0 || glyphId > mNumGlyphs)
+            throw new IndexOutOfBoundsException();
+        if (mData != null)
+            return mIndexToLocFormat == 0 ? mData.getChar(glyphId << 1) << 1 :
+                    mData.getInt(glyphId << 2);
+        return mShortOffsets != null ? mShortOffsets[glyphId] << 1 : mLongOffsets[glyphId];
+    }
+
+    /**
+     * The length of the glyph data, 0 for glyphs without outlines.
+     *
+     * @param glyphId glyph ID
+     * @return The length of the glyph data.
+     */
+    public int getGlyphLength(int glyphId) {
+        return getGlyphOffset(glyphId + 1) - getGlyphOffset(glyphId);
+    }
+
+    /**
+     * The actual local offsets. The offsets are copied into a new array on every call, use
+     * {@link #getGlyphOffset(int)} or {@link #getGlyphLength(int)} instead where possible.
      *
      * @return The actual local offset.
      */
     public int[] getOffsets() {
-        return mOffsets;
+        final int[] offsets = new int[mNumGlyphs + 1];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = getGlyphOffset(i);
+        }
+        return offsets;
     }
 
     @Override
     public int getHashCode() {
-        int result = super.getHashCode();
-        result = 31 * result + Arrays.hashCode(mOffsets);
+        int result = Objects.hash(super.getHashCode(), mIndexToLocFormat, mNumGlyphs);
+        for (int i = 0; i <= mNumGlyphs; i++) {
+            result = 31 * result + getGlyphOffset(i);
+        }
         return result;
     }
 
@@ -74,7 +144,9 @@ public class IndexToLocationTable extends BaseTable {
     public String getString() {
         return "IndexToLocationTable{" +
                 "record=" + String.valueOf(getTableRecord()) +
-                ", offsets=" + Arrays.toString(mOffsets) +
+                ", indexToLocFormat=" + mIndexToLocFormat +
+                ", numGlyphs=" + mNumGlyphs +
+                ", offsets=" + Arrays.toString(getOffsets()) +
                 '}';
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.util.Arrays;
+
+/**
+ * 整数键 LRU 缓存
+ * Least recently used cache keyed by int (typically a glyph ID). Entries live in fixed
+ * primitive arrays sized for the maximum count: the hash chains and the recency list are slot
+ * indices, so lookups and insertions allocate nothing. When the cache is full the least
+ * recently used entry is replaced. Access is synchronized.
+ *
+ * @param <V> 值类型
+ */
+@SuppressWarnings("unused")
+public class IntLruCache<V> {
+
+    private final int mMaxSize;
+    private final int mShift;
+    private final int[] mBuckets;// 链表首个槽位 + 1，0 表示空
+    private final int[] mNext;// 同一桶中下一槽位 + 1
+    private final int[] mKeys;
+    private final Object[] mValues;
+    private final int[] mNewer;
+    private final int[] mOlder;
+    private int mNewest = -1;
+    private int mOldest = -1;
+    private int mSize;
+
+    public IntLruCache(int maxSize) {
+        if (maxSize <= 0 || maxSize > 1 << 29)
+            throw new IllegalArgumentException();
+        int bits = 1;
+        while (1 << bits < maxSize * 2) {
+            bits++;
+        }
+        mMaxSize = maxSize;
+        mShift = 32 - bits;
+        mBuckets = new int[1 << bits];
+        mNext = new int[maxSize];
+        mKeys = new int[maxSize];
+        mValues = new Object[maxSize];
+        mNewer = new int[maxSize];
+        mOlder = new int[maxSize];
+    }
+
+    /**
+     * 获取最大条目数
+     *
+     * @return 最大条目数
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * 获取条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * 获取值，命中的条目成为最近使用的条目
+     *
+     * @param key 键
+     * @return 值，不存在时返回空
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V get(int key) {
+        final int slot = find(key);
+        if (slot < 0)
+            return null;
+        touch(slot);
+        return (V) mValues[slot];
+    }
+
+    /**
+     * 不存在时放入值，缓存已满时替换最久未使用的条目
+     *
+     * @param key   键
+     * @param value 值
+     * @return 已存在的值，不存在时返回空
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V putIfAbsent(int key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int slot = find(key);
+        if (slot >= 0) {
+            touch(slot);
+            return (V) mValues[slot];
+        }
+        if (mSize < mMaxSize) {
+            slot = mSize++;
+        } else {
+            slot = mOldest;
+            unlink(slot);
+            removeFromBucket(slot);
+        }
+        final int bucket = bucket(key);
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mNext[slot] = mBuckets[bucket];
+        mBuckets[bucket] = slot + 1;
+        linkNewest(slot);
+        return null;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        Arrays.fill(mBuckets, 0);
+        Arrays.fill(mValues, 0, mSize, null);
+        mNewest = -1;
+        mOldest = -1;
+        mSize = 0;
+    }
+
+    private int bucket(int key) {
+        return (key * 0x9E3779B9) >>> mShift;
+    }
+
+    private int find(int key) {
+        int slot = mBuckets[bucket(key)] - 1;
+        while (slot >= 0 && mKeys[slot] != key) {
+            slot = mNext[slot] - 1;
+        }
+        return slot;
+    }
+
+    private void removeFromBucket(int slot) {
+        final int bucket = bucket(mKeys[slot]);
+        int current = mBuckets[bucket] - 1;
+        if (current == slot) {
+            mBuckets[bucket] = mNext[slot];
+            return;
+        }
+        while (mNext[current] - 1 != slot) {
+            current = mNext[current] - 1;
+        }
+        mNext[current] = mNext[slot];
+    }
+
+    private void touch(int slot) {
+        if (slot != mNewest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+    }
+
+    private void unlink(int slot) {
+        final int newer = mNewer[slot];
+        final int older = mOlder[slot];
+        if (newer >= 0)
+            mOlder[newer] = older;
+        else
+            mNewest = older;
+        if (older >= 0)
+            mNewer[older] = newer;
+        else
+            mOldest = newer;
+    }
+
+    private void linkNewest(int slot) {
+        mNewer[slot] = -1;
+        mOlder[slot] = mNewest;
+        if (mNewest >= 0)
+            mNewer[mNewest] = slot;
+        mNewest = slot;
+        if (mOldest < 0)
+            mOldest = slot;
+    }
+}
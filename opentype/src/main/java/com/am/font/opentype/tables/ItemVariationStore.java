@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Item Variation Store
+ * Variation data shared by the 'CFF2', 'HVAR', 'VVAR' and 'MVAR' tables. A variation region
+ * is a range in normalized design space; its scalar at a given location weights every delta
+ * that belongs to the region.
+ * 区域系数按设计空间位置缓存（最近最少使用淘汰），同一实例下排版时不会为每个字形重复计算，
+ * 命中时不创建对象。
+ */
+@SuppressWarnings("unused")
+public class ItemVariationStore {
+
+    private static final int MAX_CACHED_LOCATIONS = 32;
+    private static final float[] EMPTY = new float[0];
+    private final int mFormat;
+    private final int mAxisCount;
+    private final int mRegionCount;
+    /**
+     * 每个区域按轴依次保存 start、peak、end
+     */
+    private final float[] mRegions;
+    private final int[][] mRegionIndexes;
+    private final int[] mItemCounts;
+    /**
+     * 每个数据子表按行（item）依次保存各区域的增量
+     */
+    private final int[][] mDeltas;
+    private final ScalarCache mScalars = new ScalarCache();
+
+    ItemVariationStore(ByteBuffer data, int offset) throws IOException {
+        try {
+            mFormat = data.getChar(offset);
+            if (mFormat != 1)
+                throw new IOException();
+            final int regionList = offset + data.getInt(offset + 2);
+            final int dataCount = data.getChar(offset + 6);
+            mAxisCount = data.getChar(regionList);
+            mRegionCount = data.getChar(regionList + 2);
+            final float[] regions = new float[mRegionCount * mAxisCount * 3];
+            int position = regionList + 4;
+            for (int i = 0; i < regions.length; i++) {
+                regions[i] = data.getShort(position) / 16384f;
+                position += 2;
+            }
+            mRegions = regions;
+            mRegionIndexes = new int[dataCount][];
+            mItemCounts = new int[dataCount];
+            mDeltas = new int[dataCount][];
+            for (int i = 0; i < dataCount; i++) {
+                final int itemData = offset + data.getInt(offset + 8 + i * 4);
+                final int itemCount = data.getChar(itemData);
+                final int wordDeltaCount = data.getChar(itemData + 2);
+                final int regionIndexCount = data.getChar(itemData + 4);
+                final int[] indexes = new int[regionIndexCount];
+                for (int j = 0; j < regionIndexCount; j++) {
+                    indexes[j] = data.getChar(itemData + 6 + j * 2);
+                    if (indexes[j] >= mRegionCount)
+                        throw new IOException();
+                }
+                mRegionIndexes[i] = indexes;
+                mItemCounts[i] = itemCount;
+                // LONG_WORDS 置位时前 wordCount 个增量为 int32，其余为 int16；否则为 int16 与 int8
+                final boolean longWords = (wordDeltaCount & 0x8000) != 0;
+                final int wordCount = wordDeltaCount & 0x7FFF;
+                if (wordCount > regionIndexCount)
+                    throw new IOException();
+                final int[] deltas = new int[itemCount * regionIndexCount];
+                position = itemData + 6 + regionIndexCount * 2;
+                int index = 0;
+                for (int item = 0; item < itemCount; item++) {
+                    for (int j = 0; j < regionIndexCount; j++) {
+                        if (j < wordCount) {
+                            if (longWords) {
+                                deltas[index++] = data.getInt(position);
+                                position += 4;
+                            } else {
+                                deltas[index++] = data.getShort(position);
+                                position += 2;
+                            }
+                        } else {
+                            if (longWords) {
+                                deltas[index++] = data.getShort(position);
+                                position += 2;
+                            } else {
+                                deltas[index++] = data.get(position);
+                                position += 1;
+                            }
+                        }
+                    }
+                }
+                mDeltas[i] = deltas;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Format, set to 1.
+     *
+     * @return Format.
+     */
+    public int getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * The number of variation axes for this font.
+     *
+     * @return Axis count.
+     */
+    public int getAxisCount() {
+        return mAxisCount;
+    }
+
+    /**
+     * The number of variation region tables in the variation region list.
+     *
+     * @return Region count.
+     */
+    public int getRegionCount() {
+        return mRegionCount;
+    }
+
+    /**
+     * The number of item variation data subtables.
+     *
+     * @return Item variation data count.
+     */
+    public int getItemVariationDataCount() {
+        return mRegionIndexes.length;
+    }
+
+    /**
+     * 获取数据子表引用的区域数目
+     *
+     * @param index 数据子表序号（CFF2 中即 vsindex）
+     * @return 区域数目
+     */
+    public int getRegionIndexCount(int index) {
+        return mRegionIndexes[index].length;
+    }
+
+    /**
+     * 获取数据子表的行数
+     *
+     * @param index 数据子表序号
+     * @return 行数（item count）
+     */
+    public int getItemCount(int index) {
+        return mItemCounts[index];
+    }
+
+    /**
+     * 计算增量
+     *
+     * @param outerIndex  数据子表序号
+     * @param innerIndex  行序号
+     * @param coordinates 归一化坐标（-1 至 1），缺少的轴按 0 处理
+     * @return 增量（设计单位）
+     */
+    public float getDelta(int outerIndex, int innerIndex, float[] coordinates) {
+        return getDelta(outerIndex, innerIndex, getScalars(coordinates));
+    }
+
+    /**
+     * 计算增量
+     *
+     * @param outerIndex 数据子表序号
+     * @param innerIndex 行序号
+     * @param scalars    {@link #getScalars(float[])} 返回的区域系数
+     * @return 增量（设计单位）
+     */
+    public float getDelta(int outerIndex, int innerIndex, float[][] scalars) {
+        if (outerIndex == 0xFFFF && innerIndex == 0xFFFF)
+            return 0;// NO_VARIATION_INDEX
+        if (outerIndex < 0 || outerIndex >= mDeltas.length || innerIndex < 0 ||
+                innerIndex >= mItemCounts[outerIndex])
+            throw new IndexOutOfBoundsException();
+        final float[] values = scalars[outerIndex];
+        final int[] deltas = mDeltas[outerIndex];
+        int position = innerIndex * values.length;
+        float delta = 0;
+        for (float value : values) {
+            final int d = deltas[position++];
+            if (value != 0)
+                delta += value * d;
+        }
+        return delta;
+    }
+
+    /**
+     * 计算区域系数
+     *
+     * @param region      区域序号
+     * @param coordinates 归一化坐标（-1 至 1），缺少的轴按 0 处理
+     * @return 系数（0 至 1）
+     */
+    public float getRegionScalar(int region, float[] coordinates) {
+        float scalar = 1;
+        int position = region * mAxisCount * 3;
+        for (int axis = 0; axis < mAxisCount; axis++, position += 3) {
+            final float start = mRegions[position];
+            final float peak = mRegions[position + 1];
+            final float end = mRegions[position + 2];
+            if (start > peak || peak > end)
+                continue;
+            if (start < 0 && end > 0 && peak != 0)
+                continue;
+            if (peak == 0)
+                continue;
+            final float value = coordinates != null && axis < coordinates.length ?
+                    coordinates[axis] : 0;
+            if (value < start || value > end)
+                return 0;
+            if (value == peak)
+                continue;
+            if (value < peak)
+                scalar *= (value - start) / (peak - start);
+            else
+                scalar *= (end - value) / (end - peak);
+        }
+        return scalar;
+    }
+
+    /**
+     * 获取各数据子表引用区域的系数，按位置缓存
+     *
+     * @param coordinates 归一化坐标
+     * @return 系数，第一维为数据子表序号，数组共享，不可修改
+     */
+    public float[][] getScalars(float[] coordinates) {
+        final float[] location = coordinates == null ? EMPTY : coordinates;
+        return getScalars(location, Arrays.hashCode(location));
+    }
+
+    /**
+     * 获取实例的区域系数，按实例的相等性（归一化坐标）与预先计算的散列值查找缓存
+     *
+     * @param instance 实例，为空时为默认实例
+     * @return 系数，第一维为数据子表序号，数组共享，不可修改
+     */
+    public float[][] getScalars(VariationInstance instance) {
+        if (instance == null)
+            return getScalars(EMPTY, Arrays.hashCode(EMPTY));
+        // VariationInstance 的散列值即其归一化坐标的 Arrays.hashCode，与按坐标查询共用缓存条目
+        return getScalars(instance.getCoordinates(), instance.hashCode());
+    }
+
+    private float[][] getScalars(float[] location, int hashCode) {
+        final float[][] cached = mScalars.get(location, hashCode);
+        if (cached != null)
+            return cached;
+        final float[] regions = new float[mRegionCount];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = getRegionScalar(i, location);
+        }
+        final float[][] scalars = new float[mRegionIndexes.length][];
+        for (int i = 0; i < scalars.length; i++) {
+            final int[] indexes = mRegionIndexes[i];
+            final float[] values = new float[indexes.length];
+            for (int j = 0; j < indexes.length; j++) {
+                values[j] = regions[indexes[j]];
+            }
+            scalars[i] = values;
+        }
+        return mScalars.putIfAbsent(location, hashCode, scalars);
+    }
+
+    @Override
+    public String toString() {
+        return "ItemVariationStore{" +
+                "format=" + mFormat +
+                ", axisCount=" + mAxisCount +
+                ", regionCount=" + mRegionCount +
+                ", itemVariationDataCount=" + mRegionIndexes.length +
+                '}';
+    }
+
+    /**
+     * 区域系数缓存
+     * Fixed-slot LRU keyed by the normalized coordinates. Slots are scanned by hash code before
+     * the coordinates are compared, so a hit allocates nothing; when all slots are in use the
+     * least recently used one is replaced.
+     */
+    private static final class ScalarCache {
+        private final int[] mHashCodes = new int[MAX_CACHED_LOCATIONS];
+        private final float[][] mCoordinates = new float[MAX_CACHED_LOCATIONS][];
+        private final float[][][] mScalars = new float[MAX_CACHED_LOCATIONS][][];
+        private final long[] mLastUsed = new long[MAX_CACHED_LOCATIONS];
+        private long mClock;
+        private int mSize;
+
+        synchronized float[][] get(float[] coordinates, int hashCode) {
+            for (int i = 0; i < mSize; i++) {
+                if (mHashCodes[i] == hashCode && Arrays.equals(mCoordinates[i], coordinates)) {
+                    mLastUsed[i] = ++mClock;
+                    return mScalars[i];
+                }
+            }
+            return null;
+        }
+
+        synchronized float[][] putIfAbsent(float[] coordinates, int hashCode,
+                                           float[][] scalars) {
+            final float[][] cached = get(coordinates, hashCode);
+            if (cached != null)
+                return cached;
+            int slot;
+            if (mSize < MAX_CACHED_LOCATIONS) {
+                slot = mSize++;
+            } else {
+                slot = 0;
+                for (int i = 1; i < mSize; i++) {
+                    if (mLastUsed[i] < mLastUsed[slot])
+                        slot = i;
+                }
+            }
+            mHashCodes[slot] = hashCode;
+            mCoordinates[slot] = coordinates.clone();
+            mScalars[slot] = scalars;
+            mLastUsed[slot] = ++mClock;
+            return scalars;
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.am.font.opentype.tables;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.am.font.opentype.OpenTypeReader;
@@ -44,6 +45,9 @@ public class KerningTable extends BaseTable {
     private final int mVersion;
     private final int mNumberOfTables;
     private final List<SubTable> mSubTables;
+    private final int[] mPairs;
+    private final short[] mValues;
+    private final int[] mLeftOffsets;
 
     public KerningTable(OpenTypeReader reader, TableRecord record) throws IOException {
         super(record);
@@ -97,6 +101,61 @@ public class KerningTable extends BaseTable {
         mVersion = version;
         mNumberOfTables = numberOfTables;
         mSubTables = subTables;
+        // 合并横向字距子表为按字形对排序的基本类型数组，供逐对查询
+        int count = 0;
+        for (SubTable subTable : subTables) {
+            if (isHorizontalKerning(subTable))
+                count += ((SubTableWithFormat0) subTable).getItems().size();
+        }
+        final long[] entries = new long[count];
+        int index = 0;
+        for (int i = 0; i < subTables.size(); i++) {
+            final SubTable subTable = subTables.get(i);
+            if (!isHorizontalKerning(subTable))
+                continue;
+            final long flags = (long) i << 17 | (subTable.getOverride() != 0 ? 1 << 16 : 0);
+            for (KerningItem item : ((SubTableWithFormat0) subTable).getItems()) {
+                // 高 32 位为字形对，低 32 位为子表序号、替换标记与数值，同一字形对按子表顺序排列；
+                // 字形对翻转符号位后按有符号数排序即为按字形ID的无符号顺序
+                entries[index++] = (long) toKey(item.getLeft(), item.getRight()) << 32 |
+                        flags | (item.getValue() & 0xFFFF);
+            }
+        }
+        Arrays.sort(entries);
+        final int[] pairs = new int[count];
+        final short[] values = new short[count];
+        int size = 0;
+        for (long entry : entries) {
+            final int pair = (int) (entry >> 32);
+            final short value = (short) entry;
+            if (size > 0 && pairs[size - 1] == pair) {
+                values[size - 1] = (entry & 1 << 16) != 0 ? value :
+                        (short) (values[size - 1] + value);
+            } else {
+                pairs[size] = pair;
+                values[size] = value;
+                size++;
+            }
+        }
+        mPairs = Arrays.copyOf(pairs, size);
+        mValues = Arrays.copyOf(values, size);
+        // 按左侧字形索引字形对的范围，查询时只需在该字形的字形对中查找
+        final int[] leftOffsets = new int[size == 0 ? 1 : getLeft(pairs[size - 1]) + 2];
+        for (int i = 0, left = 0; left < leftOffsets.length; left++) {
+            while (i < size && getLeft(pairs[i]) < left) {
+                i++;
+            }
+            leftOffsets[left] = i;
+        }
+        mLeftOffsets = leftOffsets;
+    }
+
+    private static int toKey(int left, int right) {
+        return (left << 16 | right) ^ Integer.MIN_VALUE;
+    }
+
+    private static int getLeft(int key) {
+        return (key ^ Integer.MIN_VALUE) >>> 16;
     }
 
     /**
@@ -126,6 +185,39 @@ public class KerningTable extends BaseTable {
         return mSubTables;
     }
 
+    /**
+     * Horizontal kerning value of a glyph pair, accumulated over all format 0 subtables
+     * that contain horizontal kerning values (not minimum values nor cross-stream kerning).
+     *
+     * @param left  glyph index of the left-hand glyph
+     * @param right glyph index of the right-hand glyph
+     * @return Kerning value, in font design units, 0 if the pair is not kerned.
+     */
+    public int getKerning(int left, int right) {
+        if (left < 0 || left >= mLeftOffsets.length - 1 || (right & 0xFFFF0000) != 0)
+            return 0;
+        final int start = mLeftOffsets[left];
+        final int end = mLeftOffsets[left + 1];
+        if (start == end)
+            return 0;
+        final int index = Arrays.binarySearch(mPairs, start, end, toKey(left, right));
+        return index < 0 ? 0 : mValues[index];
+    }
+
+    /**
+     * Whether the table contains horizontal kerning pairs.
+     *
+     * @return True if {@link #getKerning(int, int)} may return a non-zero value.
+     */
+    public boolean hasKerning() {
+        return mPairs.length > 0;
+    }
+
+    private static boolean isHorizontalKerning(SubTable subTable) {
+        return subTable instanceof SubTableWithFormat0 && subTable.getHorizontal() != 0 &&
+                subTable.getMinimum() == 0 && subTable.getCrossStream() == 0;
+    }
+
     @Override
     public int getHashCode() {
         return Objects.hash(super.getHashCode(), mVersion, mNumberOfTables, mSubTables);
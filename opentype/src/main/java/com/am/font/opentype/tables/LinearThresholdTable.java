@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Linear Threshold Table
+ * The LTSH table relates to OpenType fonts containing TrueType outlines. There are noticeable
+ * improvements to fonts on the screen when instructions are carefully applied to the
+ * sidebearings. The gain in readability is offset by the necessity for the OS to grid fit the
+ * glyphs in order to find the actual advance width for the glyphs (since instructions may be
+ * moving the sidebearing points). The LTSH table gives, for each glyph, the pixel size from
+ * which the advance width scales linearly, so that the glyph need not be hinted to find it.
+ */
+@SuppressWarnings("unused")
+public class LinearThresholdTable extends BaseTable {
+
+    private final int mVersion;
+    private final byte[] mYPels;
+
+    public LinearThresholdTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_LTSH)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final int version = reader.readUnsignedShort();
+        final int numGlyphs = reader.readUnsignedShort();
+        if (version != 0 || record.getLength() < 4 + numGlyphs)
+            throw new IOException();
+        final byte[] yPels = new byte[numGlyphs];
+        int read = 0;
+        while (read < numGlyphs) {
+            final int count = reader.read(yPels, read, numGlyphs - read);
+            if (count < 0)
+                throw new IOException();
+            read += count;
+        }
+        mVersion = version;
+        mYPels = yPels;
+    }
+
+    /**
+     * Version number (starts at 0).
+     *
+     * @return Version number.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of glyphs (from “numGlyphs” in 'maxp' table).
+     *
+     * @return Number of glyphs.
+     */
+    public int getNumGlyphs() {
+        return mYPels.length;
+    }
+
+    /**
+     * The vertical pel height at which the glyph can be assumed to scale linearly.
+     * On a per glyph basis.
+     *
+     * @param glyphId glyph ID
+     * @return Vertical pel height, 0 if the glyph ID is out of range.
+     */
+    public int getYPel(int glyphId) {
+        return glyphId < 0 || glyphId >= mYPels.length ? 0 : mYPels[glyphId] & 0xFF;
+    }
+
+    /**
+     * 判断字形在该像素大小下步进是否线性缩放，即无需执行指令即可得到步进；
+     * 阈值为 1 的字形在所有大小下均为线性，阈值为 0 视为未知。
+     *
+     * @param ppem    像素大小
+     * @param glyphId 字形ID
+     * @return 是否线性缩放
+     */
+    public boolean isLinear(int ppem, int glyphId) {
+        final int yPel = getYPel(glyphId);
+        return yPel != 0 && ppem >= yPel;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion);
+        result = 31 * result + Arrays.hashCode(mYPels);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "LinearThresholdTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numGlyphs=" + mYPels.length +
+                '}';
+    }
+}
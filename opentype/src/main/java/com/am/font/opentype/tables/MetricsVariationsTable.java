@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Metrics Variations Table
+ * The metrics variations table is used in variable fonts to provide variations for font-wide
+ * metric values found in the OS/2 table and other font tables. Each value record associates
+ * a tag that identifies a metric with a delta-set index in the item variation store.
+ * The records are sorted by tag and looked up with a binary search.
+ */
+@SuppressWarnings("unused")
+public class MetricsVariationsTable extends BaseTable {
+
+    public static final int TAG_HORIZONTAL_ASCENDER = 0x68617363;// hasc, OS/2.sTypoAscender
+    public static final int TAG_HORIZONTAL_DESCENDER = 0x68647363;// hdsc, OS/2.sTypoDescender
+    public static final int TAG_HORIZONTAL_LINE_GAP = 0x686C6770;// hlgp, OS/2.sTypoLineGap
+    public static final int TAG_HORIZONTAL_CLIPPING_ASCENT = 0x68636C61;// hcla, OS/2.usWinAscent
+    public static final int TAG_HORIZONTAL_CLIPPING_DESCENT = 0x68636C64;// hcld, OS/2.usWinDescent
+    public static final int TAG_VERTICAL_ASCENDER = 0x76617363;// vasc, vhea.ascent
+    public static final int TAG_VERTICAL_DESCENDER = 0x76647363;// vdsc, vhea.descent
+    public static final int TAG_VERTICAL_LINE_GAP = 0x766C6770;// vlgp, vhea.lineGap
+    public static final int TAG_HORIZONTAL_CARET_RISE = 0x68637273;// hcrs, hhea.caretSlopeRise
+    public static final int TAG_HORIZONTAL_CARET_RUN = 0x6863726E;// hcrn, hhea.caretSlopeRun
+    public static final int TAG_HORIZONTAL_CARET_OFFSET = 0x68636F66;// hcof, hhea.caretOffset
+    public static final int TAG_X_HEIGHT = 0x78686774;// xhgt, OS/2.sxHeight
+    public static final int TAG_CAP_HEIGHT = 0x63706874;// cpht, OS/2.sCapHeight
+    public static final int TAG_SUBSCRIPT_X_SIZE = 0x73627873;// sbxs, OS/2.ySubscriptXSize
+    public static final int TAG_SUBSCRIPT_Y_SIZE = 0x73627973;// sbys, OS/2.ySubscriptYSize
+    public static final int TAG_SUBSCRIPT_X_OFFSET = 0x7362786F;// sbxo, OS/2.ySubscriptXOffset
+    public static final int TAG_SUBSCRIPT_Y_OFFSET = 0x7362796F;// sbyo, OS/2.ySubscriptYOffset
+    public static final int TAG_SUPERSCRIPT_X_SIZE = 0x73707873;// spxs, OS/2.ySuperscriptXSize
+    public static final int TAG_SUPERSCRIPT_Y_SIZE = 0x73707973;// spys, OS/2.ySuperscriptYSize
+    public static final int TAG_SUPERSCRIPT_X_OFFSET = 0x7370786F;// spxo, OS/2.ySuperscriptXOffset
+    public static final int TAG_SUPERSCRIPT_Y_OFFSET = 0x7370796F;// spyo, OS/2.ySuperscriptYOffset
+    public static final int TAG_STRIKEOUT_SIZE = 0x73747273;// strs, OS/2.yStrikeoutSize
+    public static final int TAG_STRIKEOUT_OFFSET = 0x7374726F;// stro, OS/2.yStrikeoutPosition
+    public static final int TAG_UNDERLINE_SIZE = 0x756E6473;// unds, post.underlineThickness
+    public static final int TAG_UNDERLINE_OFFSET = 0x756E646F;// undo, post.underlinePosition
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final int[] mValueTags;
+    private final int[] mDeltaSetIndexes;
+    private final ItemVariationStore mItemVariationStore;
+
+    public MetricsVariationsTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_MVAR)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mMajorVersion = data.getChar(0);
+            mMinorVersion = data.getChar(2);
+            if (mMajorVersion != 1)
+                throw new IOException();
+            final int valueRecordSize = data.getChar(6);
+            final int valueRecordCount = data.getChar(8);
+            final int itemVariationStore = data.getChar(10);
+            if (valueRecordCount > 0 && (valueRecordSize < 8 || itemVariationStore == 0))
+                throw new IOException();
+            final int[] valueTags = new int[valueRecordCount];
+            final int[] deltaSetIndexes = new int[valueRecordCount];
+            for (int i = 0; i < valueRecordCount; i++) {
+                final int position = 12 + i * valueRecordSize;
+                valueTags[i] = data.getInt(position);
+                deltaSetIndexes[i] = data.getChar(position + 4) << 16 |
+                        data.getChar(position + 6);
+                if (i > 0 && valueTags[i] <= valueTags[i - 1])
+                    throw new IOException();// Sorted by value tag.
+            }
+            mValueTags = valueTags;
+            mDeltaSetIndexes = deltaSetIndexes;
+            mItemVariationStore = itemVariationStore == 0 ? null :
+                    new ItemVariationStore(data, itemVariationStore);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Major version number of the metrics variations table — set to 1.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the metrics variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The number of value records.
+     *
+     * @return Value record count.
+     */
+    public int getValueRecordCount() {
+        return mValueTags.length;
+    }
+
+    /**
+     * Four-byte tag identifying a font-wide measure.
+     *
+     * @param index value record index
+     * @return Value tag.
+     */
+    public int getValueTag(int index) {
+        return mValueTags[index];
+    }
+
+    /**
+     * The item variation store table, null if there are no value records.
+     *
+     * @return Item variation store.
+     */
+    public ItemVariationStore getItemVariationStore() {
+        return mItemVariationStore;
+    }
+
+    /**
+     * 判断是否包含度量值的变化数据
+     *
+     * @param valueTag 度量值标签
+     * @return 是否包含
+     */
+    public boolean containsValue(int valueTag) {
+        return Arrays.binarySearch(mValueTags, valueTag) >= 0;
+    }
+
+    /**
+     * 获取度量值增量
+     *
+     * @param valueTag    度量值标签，如 {@link #TAG_X_HEIGHT}
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位），不包含该度量值时返回0
+     */
+    public float getDelta(int valueTag, float[] coordinates) {
+        final int index = Arrays.binarySearch(mValueTags, valueTag);
+        if (index < 0)
+            return 0;
+        final int deltaSetIndex = mDeltaSetIndexes[index];
+        return mItemVariationStore.getDelta(deltaSetIndex >>> 16, deltaSetIndex & 0xFFFF,
+                coordinates);
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+        result = 31 * result + Arrays.hashCode(mValueTags);
+        result = 31 * result + Arrays.hashCode(mDeltaSetIndexes);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "MetricsVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", valueRecordCount=" + mValueTags.length +
+                ", itemVariationStore=" + String.valueOf(mItemVariationStore) +
+                '}';
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * The SVG (Scalable Vector Graphics) Table
+ * This table contains SVG descriptions for some or all of the glyphs in the font. Each SVG
+ * document covers a range of glyph IDs and may be stored plain text or gzip-compressed.
+ * 构造时只读取文档记录（按字形范围排序，可二分查找）；压缩文档在首次获取时解压，
+ * 解压结果放入 {@link SvgDocumentCache}，未压缩文档直接返回字体数据的视图；
+ * 解压后超过 {@link #MAX_DOCUMENT_SIZE} 的文档视为数据错误。
+ */
+@SuppressWarnings("unused")
+public class ScalableVectorGraphicsTable extends BaseTable {
+
+    public static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024;// 解压后文档的最大字节数
+    private final ByteBuffer mData;
+    private final int mVersion;
+    private final int[] mStartGlyphIds;
+    private final int[] mEndGlyphIds;
+    private final int[] mDocOffsets;
+    private final int[] mDocLengths;
+
+    public ScalableVectorGraphicsTable(OpenTypeReader reader, TableRecord record)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_SVG)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            final int list = data.getInt(2);
+            final int numEntries = data.getChar(list);
+            mStartGlyphIds = new int[numEntries];
+            mEndGlyphIds = new int[numEntries];
+            mDocOffsets = new int[numEntries];
+            mDocLengths = new int[numEntries];
+            for (int i = 0; i < numEntries; i++) {
+                final int offset = list + 2 + i * 12;
+                mStartGlyphIds[i] = data.getChar(offset);
+                mEndGlyphIds[i] = data.getChar(offset + 2);
+                // Offset from the beginning of the SVGDocumentList to an SVG document.
+                mDocOffsets[i] = list + data.getInt(offset + 4);
+                mDocLengths[i] = data.getInt(offset + 8);
+                if (mDocOffsets[i] < list || mDocLengths[i] < 0 ||
+                        (long) mDocOffsets[i] + mDocLengths[i] > data.limit())
+                    throw new IOException();
+                if (mEndGlyphIds[i] < mStartGlyphIds[i] ||
+                        (i > 0 && mStartGlyphIds[i] <= mEndGlyphIds[i - 1]))
+                    throw new IOException();// 记录需按字形ID升序排列且互不重叠
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        mData = data;
+    }
+
+    /**
+     * Table version (starting at 0). Set to 0.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of SVG document records.
+     *
+     * @return Number of entries.
+     */
+    public int getNumEntries() {
+        return mStartGlyphIds.length;
+    }
+
+    /**
+     * The first glyph ID for the range covered by this record.
+     *
+     * @param index 记录序号
+     * @return Start glyph ID.
+     */
+    public int getStartGlyphId(int index) {
+        return mStartGlyphIds[index];
+    }
+
+    /**
+     * The last glyph ID for the range covered by this record.
+     *
+     * @param index 记录序号
+     * @return End glyph ID.
+     */
+    public int getEndGlyphId(int index) {
+        return mEndGlyphIds[index];
+    }
+
+    /**
+     * 查找包含字形的文档
+     *
+     * @param glyphId 字形ID
+     * @return 记录序号，没有文档时返回-1
+     */
+    public int findDocument(int glyphId) {
+        int low = 0;
+        int high = mStartGlyphIds.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mEndGlyphIds[mid] < glyphId)
+                low = mid + 1;
+            else if (mStartGlyphIds[mid] > glyphId)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * 判断文档是否经过 gzip 压缩
+     *
+     * @param index 记录序号
+     * @return 是否压缩
+     */
+    public boolean isCompressed(int index) {
+        final int offset = mDocOffsets[index];
+        return mDocLengths[index] >= 3 && (mData.get(offset) & 0xFF) == 0x1F &&
+                (mData.get(offset + 1) & 0xFF) == 0x8B && mData.get(offset + 2) == 0x08;
+    }
+
+    /**
+     * 获取原始文档数据，直接引用字体数据，不复制、不解压
+     *
+     * @param index 记录序号
+     * @return 文档数据（只读）
+     */
+    public ByteBuffer getRawDocument(int index) {
+        final ByteBuffer buffer = mData.duplicate();
+        buffer.limit(mDocOffsets[index] + mDocLengths[index]);
+        buffer.position(mDocOffsets[index]);
+        return buffer.slice();
+    }
+
+    /**
+     * 获取文档，压缩文档解压后放入默认缓存
+     *
+     * @param index 记录序号
+     * @return UTF-8 编码的 SVG 文档（只读）
+     * @throws IOException 解压失败
+     */
+    public ByteBuffer getDocument(int index) throws IOException {
+        return getDocument(index, SvgDocumentCache.getDefault());
+    }
+
+    /**
+     * 获取文档
+     *
+     * @param index 记录序号
+     * @param cache 解压结果缓存，为空时不缓存
+     * @return UTF-8 编码的 SVG 文档（只读）
+     * @throws IOException 解压失败或解压后超过 {@link #MAX_DOCUMENT_SIZE}
+     */
+    public ByteBuffer getDocument(int index, SvgDocumentCache cache) throws IOException {
+        if (!isCompressed(index))
+            return getRawDocument(index);
+        byte[] document = cache == null ? null : cache.get(this, index);
+        if (document == null) {
+            document = inflate(getRawDocument(index), MAX_DOCUMENT_SIZE);
+            if (cache != null)
+                cache.put(this, index, document);
+        }
+        return ByteBuffer.wrap(document).asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取包含字形的文档
+     *
+     * @param glyphId 字形ID
+     * @return UTF-8 编码的 SVG 文档（只读），没有文档时返回空
+     * @throws IOException 解压失败
+     */
+    public ByteBuffer getDocumentForGlyph(int glyphId) throws IOException {
+        final int index = findDocument(glyphId);
+        return index < 0 ? null : getDocument(index);
+    }
+
+    static byte[] inflate(ByteBuffer data, int maxSize) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(
+                (int) Math.min((long) data.remaining() * 4, maxSize));
+        try (GZIPInputStream input = new GZIPInputStream(new BufferInputStream(data))) {
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                if (count > maxSize - output.size())
+                    throw new IOException();// 压缩比异常的文档，避免无限制地占用内存
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion);
+        result = 31 * result + Arrays.hashCode(mStartGlyphIds);
+        result = 31 * result + Arrays.hashCode(mEndGlyphIds);
+        result = 31 * result + Arrays.hashCode(mDocLengths);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "ScalableVectorGraphicsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numEntries=" + mStartGlyphIds.length +
+                '}';
+    }
+
+    /**
+     * 读取 ByteBuffer 的输入流，避免复制压缩数据
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!mBuffer.hasRemaining())
+                return -1;
+            final int count = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * 标准位图字形
+ * A glyph graphic read from the 'sbix' table. The data is a view of the font data in the
+ * format given by the graphic type (usually PNG); it is neither copied nor decoded.
+ */
+@SuppressWarnings("unused")
+public class StandardBitmapGlyph {
+
+    /**
+     * Portable Network Graphics.
+     */
+    public static final int GRAPHIC_TYPE_PNG = 0x706E6720;// png
+    /**
+     * JPEG.
+     */
+    public static final int GRAPHIC_TYPE_JPG = 0x6A706720;// jpg
+    /**
+     * Tagged Image File Format.
+     */
+    public static final int GRAPHIC_TYPE_TIFF = 0x74696666;// tiff
+    /**
+     * The data is the glyph ID of another glyph in the same strike.
+     */
+    public static final int GRAPHIC_TYPE_DUPE = 0x64757065;// dupe
+    private final int mGlyphId;
+    private final int mPpem;
+    private final int mPpi;
+    private final int mOriginOffsetX;
+    private final int mOriginOffsetY;
+    private final int mGraphicType;
+    private final ByteBuffer mData;
+
+    StandardBitmapGlyph(int glyphId, int ppem, int ppi, int originOffsetX, int originOffsetY,
+                        int graphicType, ByteBuffer data) {
+        mGlyphId = glyphId;
+        mPpem = ppem;
+        mPpi = ppi;
+        mOriginOffsetX = originOffsetX;
+        mOriginOffsetY = originOffsetY;
+        mGraphicType = graphicType;
+        mData = data;
+    }
+
+    /**
+     * 获取字形ID
+     *
+     * @return 字形ID
+     */
+    public int getGlyphId() {
+        return mGlyphId;
+    }
+
+    /**
+     * The PPEM size for which this strike was designed.
+     *
+     * @return Ppem.
+     */
+    public int getPpem() {
+        return mPpem;
+    }
+
+    /**
+     * The device pixel density (in PPI) for which this strike was designed.
+     *
+     * @return Ppi.
+     */
+    public int getPpi() {
+        return mPpi;
+    }
+
+    /**
+     * The horizontal (x-axis) position of the left edge of the bitmap graphic in relation to
+     * the glyph design space origin.
+     *
+     * @return Origin offset x.
+     */
+    public int getOriginOffsetX() {
+        return mOriginOffsetX;
+    }
+
+    /**
+     * The vertical (y-axis) position of the bottom edge of the bitmap graphic in relation to
+     * the glyph design space origin.
+     *
+     * @return Origin offset y.
+     */
+    public int getOriginOffsetY() {
+        return mOriginOffsetY;
+    }
+
+    /**
+     * Indicates the format of the embedded graphic data: one of 'jpg ', 'png ' or 'tiff'.
+     *
+     * @return Graphic type.
+     */
+    public int getGraphicType() {
+        return mGraphicType;
+    }
+
+    /**
+     * 获取图像数据，直接引用字体数据，不复制
+     *
+     * @return 图像数据（只读）
+     */
+    public ByteBuffer getData() {
+        return mData.duplicate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StandardBitmapGlyph that = (StandardBitmapGlyph) o;
+        return mGlyphId == that.mGlyphId &&
+                mPpem == that.mPpem &&
+                mPpi == that.mPpi &&
+                mOriginOffsetX == that.mOriginOffsetX &&
+                mOriginOffsetY == that.mOriginOffsetY &&
+                mGraphicType == that.mGraphicType &&
+                Objects.equals(mData, that.mData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mGlyphId, mPpem, mPpi, mOriginOffsetX, mOriginOffsetY, mGraphicType,
+                mData);
+    }
+
+    @Override
+    public String toString() {
+        return "StandardBitmapGlyph{" +
+                "glyphId=" + mGlyphId +
+                ", ppem=" + mPpem +
+                ", ppi=" + mPpi +
+                ", originOffsetX=" + mOriginOffsetX +
+                ", originOffsetY=" + mOriginOffsetY +
+                ", graphicType=" + mGraphicType +
+                ", length=" + mData.remaining() +
+                '}';
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Standard Bitmap Graphics Table
+ * This table provides access to bitmap data in a standard graphics format, such as PNG, JPEG
+ * or TIFF. It is organized into strikes, each holding the graphics of every glyph at one
+ * size (ppem) and pixel density (ppi).
+ * 构造时只读取各 strike 的 ppem 与 ppi，并按 ppem 排序以便二分选择；strike 的偏移数组与字形
+ * 数据均在请求时直接从表数据读取，不预先展开。
+ */
+@SuppressWarnings("unused")
+public class StandardBitmapGraphicsTable extends BaseTable {
+
+    /**
+     * Bit 1: Draw outlines.
+     */
+    public static final int FLAG_DRAW_OUTLINES = 0x0002;
+    private final ByteBuffer mData;
+    private final int mVersion;
+    private final int mFlags;
+    private final int mNumGlyphs;
+    private final int[] mStrikeOffsets;
+    private final int[] mPpems;
+    private final int[] mPpis;
+    private final int[] mStrikesByPpem;
+
+    public StandardBitmapGraphicsTable(OpenTypeReader reader, TableRecord record, int numGlyphs)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_SBIX)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            mFlags = data.getChar(2);
+            final int numStrikes = data.getInt(4);
+            if (numStrikes < 0 || 8L + numStrikes * 4L > data.limit())
+                throw new IOException();
+            mStrikeOffsets = new int[numStrikes];
+            mPpems = new int[numStrikes];
+            mPpis = new int[numStrikes];
+            final long strikeLength = 4L + (numGlyphs + 1L) * 4L;
+            final long[] order = new long[numStrikes];
+            for (int i = 0; i < numStrikes; i++) {
+                final int offset = data.getInt(8 + i * 4);
+                if (offset < 0 || offset + strikeLength > data.limit())
+                    throw new IOException();
+                mStrikeOffsets[i] = offset;
+                mPpems[i] = data.getChar(offset);
+                mPpis[i] = data.getChar(offset + 2);
+                order[i] = ((long) mPpems[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            mStrikesByPpem = new int[numStrikes];
+            for (int i = 0; i < numStrikes; i++) {
+                mStrikesByPpem[i] = (int) order[i];
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+        mData = data;
+        mNumGlyphs = numGlyphs;
+    }
+
+    /**
+     * Table version number — set to 1.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Bit 0: Set to 1. Bit 1: Draw outlines. Bits 2 to 15: reserved (set to 0).
+     *
+     * @return Flags.
+     */
+    public int getFlags() {
+        return mFlags;
+    }
+
+    /**
+     * Number of bitmap strikes.
+     *
+     * @return Number of strikes.
+     */
+    public int getNumStrikes() {
+        return mStrikeOffsets.length;
+    }
+
+    /**
+     * The PPEM size for which this strike was designed.
+     *
+     * @param strikeIndex strike 序号
+     * @return Ppem.
+     */
+    public int getPpem(int strikeIndex) {
+        return mPpems[strikeIndex];
+    }
+
+    /**
+     * The device pixel density (in PPI) for which this strike was designed.
+     *
+     * @param strikeIndex strike 序号
+     * @return Ppi.
+     */
+    public int getPpi(int strikeIndex) {
+        return mPpis[strikeIndex];
+    }
+
+    /**
+     * 查找最适合目标字号的 strike：优先取不小于目标的最小 ppem（缩小显示），否则取最大 ppem
+     *
+     * @param ppem 目标字号（像素）
+     * @return strike 序号，没有 strike 时返回-1
+     */
+    public int findStrike(int ppem) {
+        final int count = mStrikesByPpem.length;
+        if (count == 0)
+            return -1;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mPpems[mStrikesByPpem[mid]] < ppem)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return mStrikesByPpem[low < count ? low : count - 1];
+    }
+
+    /**
+     * 获取字形图像，'dupe' 类型会解析为所引用的字形
+     *
+     * @param strikeIndex strike 序号
+     * @param glyphId     字形ID
+     * @return 字形图像，该 strike 中没有此字形时返回空
+     * @throws IOException 数据错误
+     */
+    public StandardBitmapGlyph getGlyph(int strikeIndex, int glyphId) throws IOException {
+        if (glyphId < 0 || glyphId >= mNumGlyphs)
+            return null;
+        try {
+            StandardBitmapGlyph glyph = readGlyph(strikeIndex, glyphId);
+            if (glyph != null && glyph.getGraphicType() == StandardBitmapGlyph.GRAPHIC_TYPE_DUPE) {
+                final ByteBuffer data = glyph.getData();
+                if (data.remaining() < 2)
+                    throw new IOException();
+                final int target = data.getChar(0);
+                if (target >= mNumGlyphs)
+                    throw new IOException();
+                final StandardBitmapGlyph source = readGlyph(strikeIndex, target);
+                if (source == null ||
+                        source.getGraphicType() == StandardBitmapGlyph.GRAPHIC_TYPE_DUPE)
+                    return null;
+                glyph = new StandardBitmapGlyph(glyphId, source.getPpem(), source.getPpi(),
+                        source.getOriginOffsetX(), source.getOriginOffsetY(),
+                        source.getGraphicType(), source.getData());
+            }
+            return glyph;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private StandardBitmapGlyph readGlyph(int strikeIndex, int glyphId) throws IOException {
+        final int strike = mStrikeOffsets[strikeIndex];
+        // Offset from the beginning of the strike data header to bitmap data for an
+        // individual glyph ID.
+        final int start = mData.getInt(strike + 4 + glyphId * 4);
+        final int end = mData.getInt(strike + 8 + glyphId * 4);
+        if (end - start == 0)
+            return null;
+        if (start < 0 || end - start < 8 || (long) strike + end > mData.limit())
+            throw new IOException();
+        final int offset = strike + start;
+        final ByteBuffer data = mData.duplicate();
+        data.limit(strike + end);
+        data.position(offset + 8);
+        return new StandardBitmapGlyph(glyphId, mPpems[strikeIndex], mPpis[strikeIndex],
+                mData.getShort(offset), mData.getShort(offset + 2), mData.getInt(offset + 4),
+                data.slice());
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion, mFlags, mNumGlyphs);
+        result = 31 * result + Arrays.hashCode(mStrikeOffsets);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "StandardBitmapGraphicsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", flags=" + mFlags +
+                ", numGlyphs=" + mNumGlyphs +
+                ", ppems=" + Arrays.toString(mPpems) +
+                ", ppis=" + Arrays.toString(mPpis) +
+                '}';
+    }
+}
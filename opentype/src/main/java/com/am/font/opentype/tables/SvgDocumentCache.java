@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SVG 文档缓存
+ * Byte bounded LRU cache of inflated SVG documents. A single cache is normally shared by all
+ * fonts (see {@link #getDefault()}) so that the memory spent on decompressed documents stays
+ * within one budget however many fonts are open. Tables are compared by reference and held
+ * weakly, so the cache never keeps a dropped font's table data alive; their documents are
+ * evicted on the next access.
+ */
+@SuppressWarnings("unused")
+public class SvgDocumentCache {
+
+    public static final long DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+    private static final int ENTRY_OVERHEAD = 48;// 条目对象及键的估算开销（字节）
+    private static final SvgDocumentCache DEFAULT = new SvgDocumentCache(DEFAULT_MAX_SIZE);
+    private final LinkedHashMap<Key, byte[]> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> mQueue = new ReferenceQueue<>();
+    private long mMaxSize;
+    private long mSize;
+
+    public SvgDocumentCache(long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException();
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 获取所有字体共享的默认缓存
+     *
+     * @return 默认缓存
+     */
+    public static SvgDocumentCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取最大占用字节数
+     *
+     * @return 最大占用字节数
+     */
+    public synchronized long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * 设置最大占用字节数，超出部分立即淘汰
+     *
+     * @param maxSize 最大占用字节数
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException();
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 获取当前占用字节数（含条目估算开销）
+     *
+     * @return 当前占用字节数
+     */
+    public synchronized long getSize() {
+        expungeStaleEntries();
+        return mSize;
+    }
+
+    /**
+     * 获取缓存条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int getCount() {
+        expungeStaleEntries();
+        return mEntries.size();
+    }
+
+    synchronized byte[] get(Object table, int index) {
+        expungeStaleEntries();
+        return mEntries.get(new Key(table, index, null));
+    }
+
+    synchronized void put(Object table, int index, byte[] document) {
+        expungeStaleEntries();
+        final long cost = document.length + ENTRY_OVERHEAD;
+        if (cost > mMaxSize)
+            return;
+        final byte[] old = mEntries.remove(new Key(table, index, null));
+        if (old != null)
+            mSize -= old.length + ENTRY_OVERHEAD;
+        trimToSize(mMaxSize - cost);
+        mEntries.put(new Key(table, index, mQueue), document);
+        mSize += cost;
+    }
+
+    /**
+     * 移除表的全部文档
+     *
+     * @param table 表
+     */
+    public synchronized void remove(Object table) {
+        final Iterator<Map.Entry<Key, byte[]>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, byte[]> item = iterator.next();
+            if (item.getKey().get() == table) {
+                mSize -= item.getValue().length + ENTRY_OVERHEAD;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+        while (mQueue.poll() != null) {
+            // 条目已全部移除，丢弃排队的引用
+        }
+    }
+
+    /**
+     * 移除表已被回收的文档
+     */
+    private void expungeStaleEntries() {
+        Object reference;
+        while ((reference = mQueue.poll()) != null) {
+            final byte[] document = mEntries.remove(reference);
+            if (document != null)
+                mSize -= document.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private void trimToSize(long size) {
+        final Iterator<byte[]> iterator = mEntries.values().iterator();
+        while (mSize > size && iterator.hasNext()) {
+            mSize -= iterator.next().length + ENTRY_OVERHEAD;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 缓存键，弱引用表；表被回收后键只与自身相等
+     */
+    private static final class Key extends WeakReference<Object> {
+        private final int mIndex;
+        private final int mHashCode;
+
+        Key(Object table, int index, ReferenceQueue<Object> queue) {
+            super(table, queue);
+            mIndex = index;
+            mHashCode = 31 * System.identityHashCode(table) + index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            final Object table = get();
+            return table != null && table == key.get() &&
+                    mIndex == key.mIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
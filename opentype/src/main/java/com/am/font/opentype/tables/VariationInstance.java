@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 可变字体实例
+ * A location in the design space of a variable font. User coordinates (for example wght=650)
+ * are normalized once through the 'fvar' axis ranges and the 'avar' segment maps and rounded
+ * to F2Dot14 precision. Instances are obtained from
+ * {@link FontVariationsTable#getInstance(AxisVariationsTable, float...)}, which interns them by
+ * normalized coordinates, so consumers such as {@link ItemVariationStore} can share the same
+ * normalized vector (and its cached region scalars) for every lookup.
+ * 实例不可变，可在多线程间共享。
+ */
+@SuppressWarnings("unused")
+public final class VariationInstance {
+
+    private final int[] mAxisTags;
+    private final float[] mUserCoordinates;
+    private final float[] mCoordinates;
+    private final boolean mDefault;
+    private final int mHashCode;
+
+    VariationInstance(List<FontVariationsTable.VariationAxisRecord> axes,
+                      float[] userCoordinates, float[] coordinates) {
+        mAxisTags = new int[axes.size()];
+        for (int i = 0; i < mAxisTags.length; i++) {
+            mAxisTags[i] = axes.get(i).getAxisTag();
+        }
+        mUserCoordinates = userCoordinates;
+        mCoordinates = coordinates;
+        boolean isDefault = true;
+        for (float coordinate : coordinates) {
+            if (coordinate != 0) {
+                isDefault = false;
+                break;
+            }
+        }
+        mDefault = isDefault;
+        mHashCode = Arrays.hashCode(coordinates);
+    }
+
+    /**
+     * 获取轴数目
+     *
+     * @return 轴数目
+     */
+    public int getAxisCount() {
+        return mCoordinates.length;
+    }
+
+    /**
+     * 获取轴标签
+     *
+     * @param axis 轴序号
+     * @return 轴标签
+     */
+    public int getAxisTag(int axis) {
+        return mAxisTags[axis];
+    }
+
+    /**
+     * 获取用户坐标（限制在轴范围内之前的原始值）
+     *
+     * @param axis 轴序号
+     * @return 用户坐标
+     */
+    public float getUserCoordinate(int axis) {
+        return mUserCoordinates[axis];
+    }
+
+    boolean hasUserCoordinates(float[] userCoordinates) {
+        return Arrays.equals(mUserCoordinates, userCoordinates);
+    }
+
+    /**
+     * 获取归一化坐标
+     *
+     * @param axis 轴序号
+     * @return 归一化坐标（-1 至 1）
+     */
+    public float getCoordinate(int axis) {
+        return mCoordinates[axis];
+    }
+
+    /**
+     * 获取归一化坐标，数组共享，不可修改；可直接传给各变化数据的计算方法
+     *
+     * @return 归一化坐标
+     */
+    public float[] getCoordinates() {
+        return mCoordinates;
+    }
+
+    /**
+     * 获取 F2Dot14 定点格式的归一化坐标
+     *
+     * @param axis 轴序号
+     * @return 归一化坐标（-16384 至 16384）
+     */
+    public int getCoordinateF2Dot14(int axis) {
+        return Math.round(mCoordinates[axis] * 16384);
+    }
+
+    /**
+     * 判断是否为默认实例（所有归一化坐标为 0）
+     *
+     * @return 是否为默认实例
+     */
+    public boolean isDefault() {
+        return mDefault;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VariationInstance that = (VariationInstance) o;
+        return Arrays.equals(mCoordinates, that.mCoordinates);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "VariationInstance{" +
+                "userCoordinates=" + Arrays.toString(mUserCoordinates) +
+                ", coordinates=" + Arrays.toString(mCoordinates) +
+                '}';
+    }
+}
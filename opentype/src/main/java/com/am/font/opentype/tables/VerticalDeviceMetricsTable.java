@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Vertical Device Metrics Table
+ * The VDMX table relates to OpenType fonts with TrueType outlines. Under Windows, the
+ * usWinAscent and usWinDescent values from the 'OS/2' table will be used to determine the
+ * maximum black height for a font at any given size. The VDMX table provides the precomputed
+ * yMax and yMin values of the hinted glyphs for a range of pixel heights, grouped by the
+ * aspect ratio of the device.
+ */
+@SuppressWarnings("unused")
+public class VerticalDeviceMetricsTable extends BaseTable {
+
+    private final int mVersion;
+    private final int mNumRecs;
+    private final int[] mCharSets;
+    private final int[] mXRatios;
+    private final int[] mYStartRatios;
+    private final int[] mYEndRatios;
+    private final int[] mGroupIndexes;// 各比例对应的分组
+    private final char[][] mYPelHeights;
+    private final short[][] mYMaxes;
+    private final short[][] mYMins;
+
+    public VerticalDeviceMetricsTable(OpenTypeReader reader, TableRecord record)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_VDMX)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mVersion = data.getChar(0);
+            mNumRecs = data.getChar(2);
+            final int numRatios = data.getChar(4);
+            if (mVersion > 1)
+                throw new IOException();
+            mCharSets = new int[numRatios];
+            mXRatios = new int[numRatios];
+            mYStartRatios = new int[numRatios];
+            mYEndRatios = new int[numRatios];
+            mGroupIndexes = new int[numRatios];
+            final int[] groupOffsets = new int[numRatios];
+            int groups = 0;
+            for (int i = 0; i < numRatios; i++) {
+                final int pos = 6 + i * 4;
+                mCharSets[i] = data.get(pos) & 0xFF;
+                mXRatios[i] = data.get(pos + 1) & 0xFF;
+                mYStartRatios[i] = data.get(pos + 2) & 0xFF;
+                mYEndRatios[i] = data.get(pos + 3) & 0xFF;
+                final int offset = data.getChar(6 + numRatios * 4 + i * 2);
+                // 多个比例可共享同一分组
+                int group = -1;
+                for (int j = 0; j < groups; j++) {
+                    if (groupOffsets[j] == offset) {
+                        group = j;
+                        break;
+                    }
+                }
+                if (group < 0) {
+                    group = groups;
+                    groupOffsets[groups++] = offset;
+                }
+                mGroupIndexes[i] = group;
+            }
+            mYPelHeights = new char[groups][];
+            mYMaxes = new short[groups][];
+            mYMins = new short[groups][];
+            for (int i = 0; i < groups; i++) {
+                int pos = groupOffsets[i];
+                final int recs = data.getChar(pos);
+                pos += 4;// recs, startsz, endsz
+                final char[] yPelHeights = new char[recs];
+                final short[] yMaxes = new short[recs];
+                final short[] yMins = new short[recs];
+                for (int j = 0; j < recs; j++) {
+                    yPelHeights[j] = data.getChar(pos);
+                    yMaxes[j] = data.getShort(pos + 2);
+                    yMins[j] = data.getShort(pos + 4);
+                    pos += 6;
+                }
+                mYPelHeights[i] = yPelHeights;
+                mYMaxes[i] = yMaxes;
+                mYMins[i] = yMins;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Version number (0 or 1).
+     *
+     * @return Version number.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Number of VDMX groups present.
+     *
+     * @return Number of VDMX groups.
+     */
+    public int getNumRecs() {
+        return mNumRecs;
+    }
+
+    /**
+     * Number of aspect ratio groupings.
+     *
+     * @return Number of aspect ratio groupings.
+     */
+    public int getNumRatios() {
+        return mXRatios.length;
+    }
+
+    /**
+     * Character set (see below).
+     *
+     * @param index 比例序号
+     * @return Character set.
+     */
+    public int getCharSet(int index) {
+        return mCharSets[index];
+    }
+
+    /**
+     * Value to use for x-Ratio. 0 matches any aspect ratio.
+     *
+     * @param index 比例序号
+     * @return X ratio.
+     */
+    public int getXRatio(int index) {
+        return mXRatios[index];
+    }
+
+    /**
+     * Starting y-Ratio value.
+     *
+     * @param index 比例序号
+     * @return Starting y ratio.
+     */
+    public int getYStartRatio(int index) {
+        return mYStartRatios[index];
+    }
+
+    /**
+     * Ending y-Ratio value.
+     *
+     * @param index 比例序号
+     * @return Ending y ratio.
+     */
+    public int getYEndRatio(int index) {
+        return mYEndRatios[index];
+    }
+
+    /**
+     * 获取与设备横纵像素大小匹配的比例，按表内顺序取第一个匹配项
+     *
+     * @param xPpem 横向像素大小
+     * @param yPpem 纵向像素大小
+     * @return 比例序号，无匹配时返回 -1
+     */
+    public int findRatio(int xPpem, int yPpem) {
+        for (int i = 0; i < mXRatios.length; i++) {
+            final int xRatio = mXRatios[i];
+            if (xRatio == 0)
+                return i;
+            final long y = (long) xRatio * yPpem;
+            if (y >= (long) mYStartRatios[i] * xPpem && y <= (long) mYEndRatios[i] * xPpem)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 判断是否包含该像素大小的记录
+     *
+     * @param xPpem 横向像素大小
+     * @param yPpem 纵向像素大小
+     * @return 是否包含
+     */
+    public boolean containsPixelSize(int xPpem, int yPpem) {
+        return findEntry(xPpem, yPpem) >= 0;
+    }
+
+    /**
+     * 获取该像素大小下所有字形的最大 y 值
+     *
+     * @param xPpem 横向像素大小
+     * @param yPpem 纵向像素大小
+     * @return 最大 y 值（像素），不包含该像素大小的记录时返回 0
+     */
+    public int getYMax(int xPpem, int yPpem) {
+        final int entry = findEntry(xPpem, yPpem);
+        return entry < 0 ? 0 : mYMaxes[entry >>> 16][entry & 0xFFFF];
+    }
+
+    /**
+     * 获取该像素大小下所有字形的最小 y 值
+     *
+     * @param xPpem 横向像素大小
+     * @param yPpem 纵向像素大小
+     * @return 最小 y 值（像素，通常为负数），不包含该像素大小的记录时返回 0
+     */
+    public int getYMin(int xPpem, int yPpem) {
+        final int entry = findEntry(xPpem, yPpem);
+        return entry < 0 ? 0 : mYMins[entry >>> 16][entry & 0xFFFF];
+    }
+
+    /**
+     * 查找记录，返回分组序号（高 16 位）与记录序号（低 16 位），不存在时返回 -1
+     */
+    private int findEntry(int xPpem, int yPpem) {
+        if (yPpem < 0 || yPpem > 0xFFFF)
+            return -1;
+        final int ratio = findRatio(xPpem, yPpem);
+        if (ratio < 0)
+            return -1;
+        final int group = mGroupIndexes[ratio];
+        final int index = Arrays.binarySearch(mYPelHeights[group], (char) yPpem);
+        return index < 0 ? -1 : (group << 16) | index;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mVersion, mNumRecs);
+        result = 31 * result + Arrays.hashCode(mXRatios);
+        result = 31 * result + Arrays.deepHashCode(mYPelHeights);
+        result = 31 * result + Arrays.deepHashCode(mYMaxes);
+        result = 31 * result + Arrays.deepHashCode(mYMins);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "VerticalDeviceMetricsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", numRecs=" + mNumRecs +
+                ", numRatios=" + mXRatios.length +
+                '}';
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+import java.util.Objects;
+
+/**
+ * Vertical Header Table
+ * The vertical header table (tag name: 'vhea') contains information needed for vertical fonts.
+ * The glyphs of vertical fonts are written either top to bottom or bottom to top.
+ * This table contains information that is general to the font as a whole.
+ * Information that pertains to specific glyphs is given in the vertical metrics table ('vmtx').
+ */
+@SuppressWarnings("unused")
+public class VerticalHeaderTable extends BaseTable {
+
+    private final int mVersion;
+    private final int mAscender;
+    private final int mDescender;
+    private final int mLineGap;
+    private final int mAdvanceHeightMax;
+    private final int mMinTopSideBearing;
+    private final int mMinBottomSideBearing;
+    private final int mYMaxExtent;
+    private final int mCaretSlopeRise;
+    private final int mCaretSlopeRun;
+    private final int mCaretOffset;
+    private final int mMetricDataFormat;
+    private final int mNumOfLongVerMetrics;
+
+    public VerticalHeaderTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_VHEA)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final int version = reader.readInt();
+        final int ascender = reader.readShort();
+        final int descender = reader.readShort();
+        final int lineGap = reader.readShort();
+        final int advanceHeightMax = reader.readUnsignedShort();
+        final int minTopSideBearing = reader.readShort();
+        final int minBottomSideBearing = reader.readShort();
+        final int yMaxExtent = reader.readShort();
+        final int caretSlopeRise = reader.readShort();
+        final int caretSlopeRun = reader.readShort();
+        final int caretOffset = reader.readShort();
+        reader.skip(8);// reserved
+        final int metricDataFormat = reader.readShort();
+        final int numOfLongVerMetrics = reader.readUnsignedShort();
+
+        mVersion = version;
+        mAscender = ascender;
+        mDescender = descender;
+        mLineGap = lineGap;
+        mAdvanceHeightMax = advanceHeightMax;
+        mMinTopSideBearing = minTopSideBearing;
+        mMinBottomSideBearing = minBottomSideBearing;
+        mYMaxExtent = yMaxExtent;
+        mCaretSlopeRise = caretSlopeRise;
+        mCaretSlopeRun = caretSlopeRun;
+        mCaretOffset = caretOffset;
+        mMetricDataFormat = metricDataFormat;
+        mNumOfLongVerMetrics = numOfLongVerMetrics;
+    }
+
+    /**
+     * Version of the vertical header table, 0x00010000 for version 1.0 or 0x00011000 for version
+     * 1.1.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Distance in font design units from the centerline to the previous line’s descent
+     * (vertTypoAscender in version 1.1).
+     *
+     * @return Ascender.
+     */
+    public int getAscender() {
+        return mAscender;
+    }
+
+    /**
+     * Distance in font design units from the centerline to the next line’s ascent
+     * (vertTypoDescender in version 1.1).
+     *
+     * @return Descender.
+     */
+    public int getDescender() {
+        return mDescender;
+    }
+
+    /**
+     * Reserved, set to 0 in version 1.0, vertical typographic line gap (vertTypoLineGap) in version
+     * 1.1.
+     *
+     * @return Line gap.
+     */
+    public int getLineGap() {
+        return mLineGap;
+    }
+
+    /**
+     * The maximum advance height measurement, in font design units, found in the font.
+     *
+     * @return Maximum advance height.
+     */
+    public int getAdvanceHeightMax() {
+        return mAdvanceHeightMax;
+    }
+
+    /**
+     * The minimum top sidebearing measurement found in the font, in font design units.
+     *
+     * @return Minimum top sidebearing.
+     */
+    public int getMinTopSideBearing() {
+        return mMinTopSideBearing;
+    }
+
+    /**
+     * The minimum bottom sidebearing measurement found in the font, in font design units.
+     *
+     * @return Minimum bottom sidebearing.
+     */
+    public int getMinBottomSideBearing() {
+        return mMinBottomSideBearing;
+    }
+
+    /**
+     * Defined as yMaxExtent = max(tsb + (yMax - yMin)).
+     *
+     * @return yMax extent.
+     */
+    public int getYMaxExtent() {
+        return mYMaxExtent;
+    }
+
+    /**
+     * The value of the caretSlopeRise field divided by the value of the caretSlopeRun field
+     * determines the slope of the caret. A value of 0 for the rise and a value of 1 for the run
+     * specifies a horizontal caret.
+     *
+     * @return Caret slope rise.
+     */
+    public int getCaretSlopeRise() {
+        return mCaretSlopeRise;
+    }
+
+    /**
+     * See the caretSlopeRise field. Value = 1 for nonslanted vertical fonts.
+     *
+     * @return Caret slope run.
+     */
+    public int getCaretSlopeRun() {
+        return mCaretSlopeRun;
+    }
+
+    /**
+     * The amount by which the highlight on a slanted glyph needs to be shifted away from the glyph
+     * in order to produce the best appearance. Set value equal to 0 for nonslanted fonts.
+     *
+     * @return Caret offset.
+     */
+    public int getCaretOffset() {
+        return mCaretOffset;
+    }
+
+    /**
+     * Set to 0.
+     *
+     * @return Metric data format.
+     */
+    public int getMetricDataFormat() {
+        return mMetricDataFormat;
+    }
+
+    /**
+     * Number of advance heights in the vertical metrics table.
+     *
+     * @return Number of advance heights.
+     */
+    public int getNumOfLongVerMetrics() {
+        return mNumOfLongVerMetrics;
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mVersion, mAscender, mDescender, mLineGap,
+                mAdvanceHeightMax, mMinTopSideBearing, mMinBottomSideBearing, mYMaxExtent,
+                mCaretSlopeRise, mCaretSlopeRun, mCaretOffset, mMetricDataFormat,
+                mNumOfLongVerMetrics);
+    }
+
+    @Override
+    public String getString() {
+        return "VerticalHeaderTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", version=" + mVersion +
+                ", ascender=" + mAscender +
+                ", descender=" + mDescender +
+                ", lineGap=" + mLineGap +
+                ", advanceHeightMax=" + mAdvanceHeightMax +
+                ", minTopSideBearing=" + mMinTopSideBearing +
+                ", minBottomSideBearing=" + mMinBottomSideBearing +
+                ", yMaxExtent=" + mYMaxExtent +
+                ", caretSlopeRise=" + mCaretSlopeRise +
+                ", caretSlopeRun=" + mCaretSlopeRun +
+                ", caretOffset=" + mCaretOffset +
+                ", metricDataFormat=" + mMetricDataFormat +
+                ", numOfLongVerMetrics=" + mNumOfLongVerMetrics +
+                '}';
+    }
+}
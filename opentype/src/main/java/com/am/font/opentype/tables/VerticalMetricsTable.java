@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Vertical Metrics Table
+ * The vertical metrics table allows you to specify the vertical spacing for each glyph in
+ * a vertical font. This table consists of either one or two arrays that contain metric
+ * information (the advance heights and top sidebearings) for the vertical layout of each of
+ * the glyphs in the font.
+ * 前进高度与顶部支承以基本类型数组保存，按字形ID直接索引。
+ */
+@SuppressWarnings("unused")
+public class VerticalMetricsTable extends BaseTable {
+
+    private final int mNumOfLongVerMetrics;
+    private final char[] mAdvanceHeights;
+    private final short[] mTopSideBearings;
+
+    public VerticalMetricsTable(OpenTypeReader reader, TableRecord record,
+                                int numOfLongVerMetrics, int numGlyphs) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_VMTX)
+            throw new IOException();
+        if (numOfLongVerMetrics < 0 || numGlyphs < 0)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final char[] advanceHeights = new char[numOfLongVerMetrics];
+        final short[] topSideBearings = new short[Math.max(numOfLongVerMetrics, numGlyphs)];
+        for (int i = 0; i < numOfLongVerMetrics; i++) {
+            advanceHeights[i] = (char) reader.readUnsignedShort();
+            topSideBearings[i] = (short) reader.readShort();
+        }
+        for (int i = numOfLongVerMetrics; i < numGlyphs; i++) {
+            topSideBearings[i] = (short) reader.readShort();
+        }
+        mNumOfLongVerMetrics = numOfLongVerMetrics;
+        mAdvanceHeights = advanceHeights;
+        mTopSideBearings = topSideBearings;
+    }
+
+    /**
+     * Number of long vertical metrics, taken from the 'vhea' table.
+     *
+     * @return Number of long vertical metrics.
+     */
+    public int getNumOfLongVerMetrics() {
+        return mNumOfLongVerMetrics;
+    }
+
+    /**
+     * The advance height of the glyph, in font design units. Glyph IDs greater than or equal
+     * to numOfLongVerMetrics share the advance height of the last long vertical metric.
+     *
+     * @param glyphId glyph ID
+     * @return Advance height.
+     */
+    public int getAdvanceHeight(int glyphId) {
+        if (glyphId < 0)
+            throw new IndexOutOfBoundsException();
+        if (mNumOfLongVerMetrics == 0)
+            return 0;
+        return mAdvanceHeights[glyphId < mNumOfLongVerMetrics ?
+                glyphId : mNumOfLongVerMetrics - 1];
+    }
+
+    /**
+     * The top sidebearing of the glyph, in font design units.
+     *
+     * @param glyphId glyph ID
+     * @return Top sidebearing.
+     */
+    public int getTopSideBearing(int glyphId) {
+        return mTopSideBearings[glyphId];
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mNumOfLongVerMetrics);
+        result = 31 * result + Arrays.hashCode(mAdvanceHeights);
+        result = 31 * result + Arrays.hashCode(mTopSideBearings);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        final int[] advanceHeights = new int[mAdvanceHeights.length];
+        for (int i = 0; i < advanceHeights.length; i++) {
+            advanceHeights[i] = mAdvanceHeights[i];
+        }
+        return "VerticalMetricsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", numOfLongVerMetrics=" + mNumOfLongVerMetrics +
+                ", advanceHeights=" + Arrays.toString(advanceHeights) +
+                ", topSideBearings=" + Arrays.toString(mTopSideBearings) +
+                '}';
+    }
+}
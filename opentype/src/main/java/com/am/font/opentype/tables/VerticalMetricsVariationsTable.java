@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Vertical Metrics Variations Table
+ * The VVAR table is used in variable fonts to provide variations for vertical glyph metrics
+ * values. This can be used to provide variation data for advance heights in the 'vmtx' table.
+ * In fonts with TrueType outlines, it can also be used to provide variation data for top and
+ * bottom side bearings obtained from the 'vmtx' table and glyph bounding box. In fonts with
+ * CFF2 outlines, it can be used to provide variation data for vertical origin Y coordinates
+ * obtained from the 'VORG' table.
+ * When the advance height mapping is absent, glyph IDs are used directly as inner indices
+ * into the first item variation data subtable.
+ */
+@SuppressWarnings("unused")
+public class VerticalMetricsVariationsTable extends BaseTable {
+
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final ItemVariationStore mItemVariationStore;
+    private final DeltaSetIndexMap mAdvanceHeightMapping;
+    private final DeltaSetIndexMap mTsbMapping;
+    private final DeltaSetIndexMap mBsbMapping;
+    private final DeltaSetIndexMap mVOrgMapping;
+
+    public VerticalMetricsVariationsTable(OpenTypeReader reader, TableRecord record)
+            throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_VVAR)
+            throw new IOException();
+        final ByteBuffer data = readTableData(reader, record);
+        try {
+            mMajorVersion = data.getChar(0);
+            mMinorVersion = data.getChar(2);
+            if (mMajorVersion != 1)
+                throw new IOException();
+            final int itemVariationStore = data.getInt(4);
+            final int advanceHeightMapping = data.getInt(8);
+            final int tsbMapping = data.getInt(12);
+            final int bsbMapping = data.getInt(16);
+            final int vOrgMapping = data.getInt(20);
+            if (itemVariationStore <= 0)
+                throw new IOException();
+            mItemVariationStore = new ItemVariationStore(data, itemVariationStore);
+            mAdvanceHeightMapping = advanceHeightMapping > 0 ?
+                    new DeltaSetIndexMap(data, advanceHeightMapping) : null;
+            mTsbMapping = tsbMapping > 0 ? new DeltaSetIndexMap(data, tsbMapping) : null;
+            mBsbMapping = bsbMapping > 0 ? new DeltaSetIndexMap(data, bsbMapping) : null;
+            mVOrgMapping = vOrgMapping > 0 ? new DeltaSetIndexMap(data, vOrgMapping) : null;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Major version number of the vertical metrics variations table — set to 1.
+     *
+     * @return Major version number.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version number of the vertical metrics variations table — set to 0.
+     *
+     * @return Minor version number.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The item variation store table.
+     *
+     * @return Item variation store.
+     */
+    public ItemVariationStore getItemVariationStore() {
+        return mItemVariationStore;
+    }
+
+    /**
+     * The delta-set index mapping for advance heights, may be null.
+     *
+     * @return Advance height mapping.
+     */
+    public DeltaSetIndexMap getAdvanceHeightMapping() {
+        return mAdvanceHeightMapping;
+    }
+
+    /**
+     * The delta-set index mapping for top side bearings, may be null.
+     *
+     * @return Top side bearing mapping.
+     */
+    public DeltaSetIndexMap getTsbMapping() {
+        return mTsbMapping;
+    }
+
+    /**
+     * The delta-set index mapping for bottom side bearings, may be null.
+     *
+     * @return Bottom side bearing mapping.
+     */
+    public DeltaSetIndexMap getBsbMapping() {
+        return mBsbMapping;
+    }
+
+    /**
+     * The delta-set index mapping for vertical origin Y coordinates, may be null.
+     *
+     * @return Vertical origin mapping.
+     */
+    public DeltaSetIndexMap getVOrgMapping() {
+        return mVOrgMapping;
+    }
+
+    /**
+     * 获取区域系数，排版大量字形时先获取一次再逐字形计算增量
+     *
+     * @param coordinates 归一化坐标
+     * @return 区域系数
+     */
+    public float[][] getScalars(float[] coordinates) {
+        return mItemVariationStore.getScalars(coordinates);
+    }
+
+    /**
+     * 获取实例的区域系数，按实例查找缓存，无需逐次计算坐标的散列值
+     *
+     * @param instance 实例，为空时为默认实例
+     * @return 区域系数
+     */
+    public float[][] getScalars(VariationInstance instance) {
+        return mItemVariationStore.getScalars(instance);
+    }
+
+    /**
+     * 获取前进高度增量
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getAdvanceHeightDelta(int glyphId, float[] coordinates) {
+        return getAdvanceHeightDelta(glyphId, mItemVariationStore.getScalars(coordinates));
+    }
+
+    /**
+     * 获取前进高度增量
+     *
+     * @param glyphId 字形ID
+     * @param scalars {@link #getScalars(float[])} 返回的区域系数
+     * @return 增量（设计单位）
+     */
+    public float getAdvanceHeightDelta(int glyphId, float[][] scalars) {
+        if (mAdvanceHeightMapping == null)
+            return mItemVariationStore.getDelta(0, glyphId, scalars);
+        return mItemVariationStore.getDelta(mAdvanceHeightMapping.getOuterIndex(glyphId),
+                mAdvanceHeightMapping.getInnerIndex(glyphId), scalars);
+    }
+
+    /**
+     * 获取顶部支承增量，未提供映射时返回0（需由字形轮廓变化计算）
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getTsbDelta(int glyphId, float[] coordinates) {
+        if (mTsbMapping == null)
+            return 0;
+        return mItemVariationStore.getDelta(mTsbMapping.getOuterIndex(glyphId),
+                mTsbMapping.getInnerIndex(glyphId), coordinates);
+    }
+
+    /**
+     * 获取底部支承增量，未提供映射时返回0（需由字形轮廓变化计算）
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getBsbDelta(int glyphId, float[] coordinates) {
+        if (mBsbMapping == null)
+            return 0;
+        return mItemVariationStore.getDelta(mBsbMapping.getOuterIndex(glyphId),
+                mBsbMapping.getInnerIndex(glyphId), coordinates);
+    }
+
+    /**
+     * 获取垂直原点增量，未提供映射时返回0
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标
+     * @return 增量（设计单位）
+     */
+    public float getVOrgDelta(int glyphId, float[] coordinates) {
+        if (mVOrgMapping == null)
+            return 0;
+        return mItemVariationStore.getDelta(mVOrgMapping.getOuterIndex(glyphId),
+                mVOrgMapping.getInnerIndex(glyphId), coordinates);
+    }
+
+    @Override
+    public int getHashCode() {
+        return Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion);
+    }
+
+    @Override
+    public String getString() {
+        return "VerticalMetricsVariationsTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", itemVariationStore=" + String.valueOf(mItemVariationStore) +
+                ", advanceHeightMapping=" + String.valueOf(mAdvanceHeightMapping) +
+                ", tsbMapping=" + String.valueOf(mTsbMapping) +
+                ", bsbMapping=" + String.valueOf(mBsbMapping) +
+                ", vOrgMapping=" + String.valueOf(mVOrgMapping) +
+                '}';
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.am.font.opentype.OpenTypeReader;
+import com.am.font.opentype.TableRecord;
+
+/**
+ * Vertical Origin Table
+ * This optional table specifies the y coordinate of the vertical origin of every glyph in
+ * the font. This table may be optionally present only in CFF or CFF2 OpenType fonts.
+ * Glyphs without an explicit entry use the default vertical origin. The records are sorted
+ * by glyph ID and looked up with a binary search.
+ */
+@SuppressWarnings("unused")
+public class VerticalOriginTable extends BaseTable {
+
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final int mDefaultVertOriginY;
+    private final char[] mGlyphIndexes;
+    private final short[] mVertOriginYs;
+
+    public VerticalOriginTable(OpenTypeReader reader, TableRecord record) throws IOException {
+        super(record);
+        if (reader == null || record == null || record.getTableTag() != TableRecord.TAG_VORG)
+            throw new IOException();
+        reader.seek(record.getOffset());
+        final int majorVersion = reader.readUnsignedShort();
+        final int minorVersion = reader.readUnsignedShort();
+        final int defaultVertOriginY = reader.readShort();
+        final int numVertOriginYMetrics = reader.readUnsignedShort();
+        if (record.getLength() < 8 + numVertOriginYMetrics * 4)
+            throw new IOException();
+        final char[] glyphIndexes = new char[numVertOriginYMetrics];
+        final short[] vertOriginYs = new short[numVertOriginYMetrics];
+        for (int i = 0; i < numVertOriginYMetrics; i++) {
+            glyphIndexes[i] = (char) reader.readUnsignedShort();
+            vertOriginYs[i] = (short) reader.readShort();
+            if (i > 0 && glyphIndexes[i] <= glyphIndexes[i - 1])
+                throw new IOException();// Must be in increasing order.
+        }
+        mMajorVersion = majorVersion;
+        mMinorVersion = minorVersion;
+        mDefaultVertOriginY = defaultVertOriginY;
+        mGlyphIndexes = glyphIndexes;
+        mVertOriginYs = vertOriginYs;
+    }
+
+    /**
+     * Major version (starting at 1). Set to 1.
+     *
+     * @return Major version.
+     */
+    public int getMajorVersion() {
+        return mMajorVersion;
+    }
+
+    /**
+     * Minor version (starting at 0). Set to 0.
+     *
+     * @return Minor version.
+     */
+    public int getMinorVersion() {
+        return mMinorVersion;
+    }
+
+    /**
+     * The y coordinate of a glyph’s vertical origin, in the font’s design coordinate system,
+     * to be used if no entry is present for the glyph.
+     *
+     * @return Default vertical origin.
+     */
+    public int getDefaultVertOriginY() {
+        return mDefaultVertOriginY;
+    }
+
+    /**
+     * Number of elements in the vertOriginYMetrics array.
+     *
+     * @return Number of vertical origin metrics.
+     */
+    public int getNumVertOriginYMetrics() {
+        return mGlyphIndexes.length;
+    }
+
+    /**
+     * The y coordinate of the glyph’s vertical origin, in the font’s design coordinate system.
+     *
+     * @param glyphId glyph ID
+     * @return Vertical origin, the default vertical origin if the glyph has no entry.
+     */
+    public int getVertOriginY(int glyphId) {
+        int low = 0;
+        int high = mGlyphIndexes.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int glyphIndex = mGlyphIndexes[mid];
+            if (glyphIndex < glyphId)
+                low = mid + 1;
+            else if (glyphIndex > glyphId)
+                high = mid - 1;
+            else
+                return mVertOriginYs[mid];
+        }
+        return mDefaultVertOriginY;
+    }
+
+    @Override
+    public int getHashCode() {
+        int result = Objects.hash(super.getHashCode(), mMajorVersion, mMinorVersion,
+                mDefaultVertOriginY);
+        result = 31 * result + Arrays.hashCode(mGlyphIndexes);
+        result = 31 * result + Arrays.hashCode(mVertOriginYs);
+        return result;
+    }
+
+    @Override
+    public String getString() {
+        return "VerticalOriginTable{" +
+                "record=" + String.valueOf(getTableRecord()) +
+                ", majorVersion=" + mMajorVersion +
+                ", minorVersion=" + mMinorVersion +
+                ", defaultVertOriginY=" + mDefaultVertOriginY +
+                ", numVertOriginYMetrics=" + mGlyphIndexes.length +
+                '}';
+    }
+}
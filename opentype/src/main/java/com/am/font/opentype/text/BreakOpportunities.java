@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+/**
+ * 断行机会
+ * Finds line break opportunities following the Unicode line breaking algorithm (UAX #14).
+ * The rules LB2 to LB30a are applied pairwise on the resolved line break classes, with the
+ * space sequences of LB8 and LB14 to LB17 tracked by remembering the class before the spaces.
+ * Line break classes come from a table built once for the BMP from ASCII and the common
+ * punctuation, CJK and emoji ranges, falling back to the general category of the character.
+ * Complex context scripts (SA) are not segmented into words: as in LB1 without a dictionary
+ * they behave as AL. The numeric sequences of LB25 are reduced to their character pairs.
+ * 结果以字节数组给出，下标为字符相对起始位置的偏移，表示该字符之前是否可以断行。
+ */
+@SuppressWarnings("unused")
+public final class BreakOpportunities {
+
+    /**
+     * 不可断行
+     */
+    public static final byte BREAK_NONE = 0;
+    /**
+     * 可断行
+     */
+    public static final byte BREAK_ALLOWED = 1;
+    /**
+     * 必须断行
+     */
+    public static final byte BREAK_MANDATORY = 2;
+
+    private static final byte BK = 0;
+    private static final byte CR = 1;
+    private static final byte LF = 2;
+    private static final byte NL = 3;
+    private static final byte SP = 4;
+    private static final byte ZW = 5;
+    private static final byte WJ = 6;
+    private static final byte GL = 7;
+    private static final byte CM = 8;
+    private static final byte ZWJ = 9;
+    private static final byte OP = 10;
+    private static final byte CL = 11;
+    private static final byte CP = 12;
+    private static final byte QU = 13;
+    private static final byte EX = 14;
+    private static final byte IS = 15;
+    private static final byte SY = 16;
+    private static final byte NS = 17;
+    private static final byte BA = 18;
+    private static final byte BB = 19;
+    private static final byte HY = 20;
+    private static final byte B2 = 21;
+    private static final byte IN = 22;
+    private static final byte NU = 23;
+    private static final byte PR = 24;
+    private static final byte PO = 25;
+    private static final byte AL = 26;
+    private static final byte ID = 27;
+    private static final byte RI = 28;
+    private static final byte[] ASCII = {
+            CM, CM, CM, CM, CM, CM, CM, CM, CM, BA, LF, BK, BK, CR, CM, CM,
+            CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM, CM,
+            SP, EX, QU, AL, PR, PO, AL, QU, OP, CP, AL, PR, IS, HY, IS, SY,
+            NU, NU, NU, NU, NU, NU, NU, NU, NU, NU, IS, IS, AL, AL, AL, EX,
+            AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL,
+            AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, OP, PR, CP, AL, AL,
+            AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL,
+            AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, AL, OP, BA, CL, AL, CM};
+    private static final int[] SMALL_KANA = {0x3041, 0x3043, 0x3045, 0x3047, 0x3049, 0x3063,
+            0x3083, 0x3085, 0x3087, 0x308E, 0x3095, 0x3096, 0x30A1, 0x30A3, 0x30A5, 0x30A7,
+            0x30A9, 0x30C3, 0x30E3, 0x30E5, 0x30E7, 0x30EE, 0x30F5, 0x30F6};
+    private static final byte[] BMP = new byte[0x10000];
+
+    static {
+        for (int c = 0; c < BMP.length; c++) {
+            BMP[c] = classify(c);
+        }
+        for (int c : SMALL_KANA) {
+            BMP[c] = NS;
+        }
+    }
+
+    private BreakOpportunities() {
+        //no instance
+    }
+
+    /**
+     * 查找断行机会
+     *
+     * @param text   文本
+     * @param start  起始位置（包含）
+     * @param end    结束位置（不包含）
+     * @param breaks 输出断行机会，长度不小于 end - start + 1；breaks[i] 表示 start + i 之前能否断行，
+     *               首位恒为 {@link #BREAK_NONE}，末位恒为 {@link #BREAK_MANDATORY}
+     */
+    public static void find(CharSequence text, int start, int end, byte[] breaks) {
+        if (start < 0 || end < start || end > text.length())
+            throw new IndexOutOfBoundsException();
+        final int count = end - start;
+        if (breaks.length <= count)
+            throw new IndexOutOfBoundsException();
+        breaks[0] = BREAK_NONE;
+        if (count == 0) {
+            breaks[0] = BREAK_MANDATORY;
+            return;
+        }
+        int i = start;
+        int codePoint = codePointAt(text, i, end);
+        int type = getLineBreakClass(codePoint);
+        // LB10
+        int previous = type == CM || type == ZWJ ? AL : type;
+        int beforeSpaces = previous;
+        boolean joiner = type == ZWJ;
+        int regionalIndicators = type == RI ? 1 : 0;
+        i += Character.charCount(codePoint);
+        while (i < end) {
+            for (int j = i - Character.charCount(codePoint) + 1; j < i; j++) {
+                breaks[j - start] = BREAK_NONE;
+            }
+            codePoint = codePointAt(text, i, end);
+            type = getLineBreakClass(codePoint);
+            final byte result;
+            if (previous == BK || previous == LF || previous == NL) {
+                // LB4, LB5
+                result = BREAK_MANDATORY;
+            } else if (previous == CR) {
+                result = type == LF ? BREAK_NONE : BREAK_MANDATORY;
+            } else if (type == BK || type == CR || type == LF || type == NL ||
+                    type == SP || type == ZW) {
+                // LB6, LB7
+                result = BREAK_NONE;
+            } else if (previous == ZW || (previous == SP && beforeSpaces == ZW)) {
+                // LB8
+                result = BREAK_ALLOWED;
+            } else if ((type == CM || type == ZWJ) && previous != SP) {
+                // LB8a, LB9：组合标记沿用前一字符的类别
+                breaks[i - start] = BREAK_NONE;
+                joiner = type == ZWJ;
+                i += Character.charCount(codePoint);
+                continue;
+            } else if (joiner) {
+                // LB8a
+                result = BREAK_NONE;
+            } else {
+                result = getPairBreak(previous == SP ? beforeSpaces : previous,
+                        type == CM || type == ZWJ ? AL : type, previous == SP,
+                        regionalIndicators);
+            }
+            breaks[i - start] = result;
+            joiner = type == ZWJ;
+            if (type == CM || type == ZWJ)
+                type = AL;
+            if (type == SP && previous != SP)
+                beforeSpaces = previous;
+            regionalIndicators = type == RI ? regionalIndicators + 1 : 0;
+            previous = type;
+            i += Character.charCount(codePoint);
+        }
+        for (int j = i - Character.charCount(codePoint) + 1; j < end; j++) {
+            breaks[j - start] = BREAK_NONE;
+        }
+        // LB3
+        breaks[count] = BREAK_MANDATORY;
+    }
+
+    /**
+     * 判断字符是否为强制断行字符（BK、CR、LF 与 NL）
+     *
+     * @param codePoint Unicode 码位
+     * @return 是否为强制断行字符
+     */
+    public static boolean isMandatoryBreak(int codePoint) {
+        final int type = getLineBreakClass(codePoint);
+        return type == BK || type == CR || type == LF || type == NL;
+    }
+
+    private static byte getPairBreak(int before, int type, boolean spaced,
+                                     int regionalIndicators) {
+        // LB11
+        if (type == WJ || (!spaced && before == WJ))
+            return BREAK_NONE;
+        // LB12, LB12a
+        if (!spaced && (before == GL || (type == GL && before != BA && before != HY)))
+            return BREAK_NONE;
+        // LB13
+        if (type == CL || type == CP || type == EX || type == IS || type == SY)
+            return BREAK_NONE;
+        // LB14 - LB17
+        if (before == OP || (before == QU && type == OP) ||
+                ((before == CL || before == CP) && type == NS) || (before == B2 && type == B2))
+            return BREAK_NONE;
+        // LB18
+        if (spaced)
+            return BREAK_ALLOWED;
+        switch (type) {
+            case QU:
+                // LB19
+            case BA:
+            case HY:
+            case NS:
+                // LB21
+            case IN:
+                // LB22
+                return BREAK_NONE;
+        }
+        switch (before) {
+            case QU:
+            case BB:
+                return BREAK_NONE;
+            case AL:
+                // LB23, LB24, LB28, LB30
+                return type == NU || type == PR || type == PO || type == AL || type == OP ?
+                        BREAK_NONE : BREAK_ALLOWED;
+            case NU:
+                // LB23, LB25, LB30
+                return type == AL || type == NU || type == PO || type == PR || type == OP ?
+                        BREAK_NONE : BREAK_ALLOWED;
+            case PR:
+                // LB23a, LB24, LB25
+                return type == ID || type == AL || type == OP || type == NU ?
+                        BREAK_NONE : BREAK_ALLOWED;
+            case PO:
+                // LB24, LB25
+                return type == AL || type == OP || type == NU ? BREAK_NONE : BREAK_ALLOWED;
+            case ID:
+                // LB23a
+                return type == PO ? BREAK_NONE : BREAK_ALLOWED;
+            case CL:
+                // LB25
+                return type == PO || type == PR ? BREAK_NONE : BREAK_ALLOWED;
+            case CP:
+                // LB25, LB30
+                return type == PO || type == PR || type == AL || type == NU ?
+                        BREAK_NONE : BREAK_ALLOWED;
+            case HY:
+            case SY:
+                // LB25
+                return type == NU ? BREAK_NONE : BREAK_ALLOWED;
+            case IS:
+                // LB25, LB29
+                return type == NU || type == AL ? BREAK_NONE : BREAK_ALLOWED;
+            case RI:
+                // LB30a：区域指示符两两成对
+                return type == RI && (regionalIndicators & 1) == 1 ?
+                        BREAK_NONE : BREAK_ALLOWED;
+        }
+        // LB31
+        return BREAK_ALLOWED;
+    }
+
+    private static int getLineBreakClass(int codePoint) {
+        if (codePoint < BMP.length)
+            return BMP[codePoint];
+        if (codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF)
+            return RI;
+        if (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF)
+            return CM;// 肤色修饰符（EM）依附于前一表情
+        if ((codePoint >= 0x1F000 && codePoint <= 0x1FAFF) ||
+                (codePoint >= 0x20000 && codePoint <= 0x3FFFD))
+            return ID;
+        if (codePoint >= 0xE0000 && codePoint <= 0xE01EF)
+            return CM;
+        return classifyByType(codePoint);
+    }
+
+    private static byte classify(int c) {
+        if (c < ASCII.length)
+            return ASCII[c];
+        switch (c) {
+            case 0x0085:
+                return NL;
+            case 0x00A0:
+            case 0x034F:
+            case 0x2007:
+            case 0x2011:
+            case 0x202F:
+                return GL;
+            case 0x00A1:
+            case 0x00BF:
+                return OP;
+            case 0x00A2:
+            case 0x00B0:
+            case 0x2103:
+            case 0x2109:
+            case 0xFF05:
+            case 0xFFE0:
+                return PO;
+            case 0x00A3:
+            case 0x00A4:
+            case 0x00A5:
+            case 0x00B1:
+            case 0x2116:
+            case 0xFF04:
+            case 0xFFE1:
+            case 0xFFE5:
+            case 0xFFE6:
+                return PR;
+            case 0x00AB:
+            case 0x00BB:
+            case 0x2018:
+            case 0x2019:
+            case 0x201B:
+            case 0x201C:
+            case 0x201D:
+            case 0x201F:
+            case 0x2039:
+            case 0x203A:
+                return QU;
+            case 0x00AD:
+            case 0x1680:
+            case 0x2010:
+            case 0x2012:
+            case 0x2013:
+            case 0x3000:
+                return BA;
+            case 0x00B4:
+            case 0x02C8:
+            case 0x02CC:
+            case 0x02DF:
+                return BB;
+            case 0x200B:
+                return ZW;
+            case 0x200D:
+                return ZWJ;
+            case 0x2014:
+                return B2;
+            case 0x2024:
+            case 0x2025:
+            case 0x2026:
+                return IN;
+            case 0x2028:
+            case 0x2029:
+                return BK;
+            case 0x2044:
+                return IS;
+            case 0x2060:
+            case 0xFEFF:
+                return WJ;
+            case 0x203C:
+            case 0x203D:
+            case 0x2047:
+            case 0x2048:
+            case 0x2049:
+            case 0x3005:
+            case 0x301C:
+            case 0x303B:
+            case 0x309B:
+            case 0x309C:
+            case 0x309D:
+            case 0x309E:
+            case 0x30A0:
+            case 0x30FB:
+            case 0x30FC:
+            case 0x30FD:
+            case 0x30FE:
+            case 0xFF1A:
+            case 0xFF1B:
+            case 0xFF65:
+            case 0xFF70:
+            case 0xFF9E:
+            case 0xFF9F:
+                return NS;
+            case 0x3001:
+            case 0x3002:
+            case 0xFE50:
+            case 0xFE52:
+            case 0xFF0C:
+            case 0xFF0E:
+            case 0xFF61:
+            case 0xFF64:
+                return CL;
+            case 0xFF01:
+            case 0xFF1F:
+                return EX;
+        }
+        if ((c >= 0x2000 && c <= 0x2006) || (c >= 0x2008 && c <= 0x200A))
+            return BA;
+        if (c >= 0x2030 && c <= 0x2037)
+            return PO;
+        if (c >= 0x20A0 && c <= 0x20CF)
+            return PR;
+        if (c >= 0x31F0 && c <= 0x31FF)
+            return NS;
+        if (c >= 0xFF67 && c <= 0xFF6F)
+            return NS;
+        if (c >= 0xD800 && c <= 0xDFFF)
+            return AL;
+        if (c >= 0x1160 && c <= 0x11FF)
+            return CM;// 韩文中声与终声依附于初声
+        if ((c >= 0x0E00 && c <= 0x0EFF) || (c >= 0x1000 && c <= 0x109F) ||
+                (c >= 0x1780 && c <= 0x17FF)) {
+            // LB1：SA 中的标记视为 CM，其余视为 AL
+            final int type = Character.getType(c);
+            return type == Character.NON_SPACING_MARK ||
+                    type == Character.COMBINING_SPACING_MARK ? CM : AL;
+        }
+        final byte type = classifyByType(c);
+        if (type == AL && ((c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0x2FFF) ||
+                (c >= 0x3040 && c <= 0x31EF) || (c >= 0x3200 && c <= 0x4DBF) ||
+                (c >= 0x4E00 && c <= 0xA4CF) || (c >= 0xAC00 && c <= 0xD7A3) ||
+                (c >= 0xF900 && c <= 0xFAFF) || (c >= 0xFE30 && c <= 0xFE4F) ||
+                (c >= 0xFF00 && c <= 0xFFEF)))
+            return ID;
+        return type;
+    }
+
+    private static byte classifyByType(int c) {
+        switch (Character.getType(c)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.CONTROL:
+            case Character.FORMAT:
+                return CM;
+            case Character.START_PUNCTUATION:
+                return OP;
+            case Character.END_PUNCTUATION:
+                return CL;
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+                return QU;
+            case Character.DECIMAL_DIGIT_NUMBER:
+                return NU;
+            case Character.SPACE_SEPARATOR:
+            case Character.DASH_PUNCTUATION:
+                return BA;
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+                return BK;
+        }
+        return AL;
+    }
+
+    private static int codePointAt(CharSequence text, int index, int end) {
+        final char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            final char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low))
+                return Character.toCodePoint(high, low);
+        }
+        return high;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalDeviceMetricsTable;
+import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.LinearThresholdTable;
+import com.am.font.opentype.tables.VerticalDeviceMetricsTable;
+
+/**
+ * 像素大小度量
+ * Integer glyph metrics at one pixel size (ppem) for small-size rendering. Advance widths come
+ * from the 'hdmx' device record for the size when there is one; otherwise the 'hmtx' advance
+ * is scaled linearly and rounded. {@link #isLinear(int)} tells whether that linear advance is
+ * already what the hinted glyph would have: either the 'head' flags state that instructions
+ * never alter advance widths, or the size has reached the glyph's 'LTSH' threshold. The
+ * vertical extent comes from the 'VDMX' record for the size, falling back to the scaled
+ * 'head' bounding box.
+ * 对象不可变，可在多线程间共享；所有查询均不分配内存。
+ */
+@SuppressWarnings("unused")
+public class DeviceMetrics {
+
+    private static final int FLAG_INSTRUCTIONS_MAY_ALTER_ADVANCE_WIDTH = 1 << 4;
+    private final HorizontalMetricsTable mHorizontalMetricsTable;
+    private final HorizontalDeviceMetricsTable mHorizontalDeviceMetricsTable;
+    private final LinearThresholdTable mLinearThresholdTable;
+    private final int mPpem;
+    private final int mUnitsPerEm;
+    private final boolean mDeviceAdvances;
+    private final boolean mAlwaysLinear;
+    private final boolean mDeviceHeights;
+    private final int mYMax;
+    private final int mYMin;
+
+    public DeviceMetrics(HeaderTable headerTable, HorizontalMetricsTable horizontalMetricsTable,
+                         HorizontalDeviceMetricsTable horizontalDeviceMetricsTable,
+                         LinearThresholdTable linearThresholdTable,
+                         VerticalDeviceMetricsTable verticalDeviceMetricsTable, int ppem) {
+        if (headerTable == null || horizontalMetricsTable == null ||
+                headerTable.getUnitsPerEm() <= 0 || ppem <= 0)
+            throw new IllegalArgumentException();
+        mHorizontalMetricsTable = horizontalMetricsTable;
+        mHorizontalDeviceMetricsTable = horizontalDeviceMetricsTable;
+        mLinearThresholdTable = linearThresholdTable;
+        mPpem = ppem;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+        mDeviceAdvances = horizontalDeviceMetricsTable != null &&
+                horizontalDeviceMetricsTable.containsPixelSize(ppem);
+        mAlwaysLinear =
+                (headerTable.getFlags() & FLAG_INSTRUCTIONS_MAY_ALTER_ADVANCE_WIDTH) == 0;
+        mDeviceHeights = verticalDeviceMetricsTable != null &&
+                verticalDeviceMetricsTable.containsPixelSize(ppem, ppem);
+        if (mDeviceHeights) {
+            mYMax = verticalDeviceMetricsTable.getYMax(ppem, ppem);
+            mYMin = verticalDeviceMetricsTable.getYMin(ppem, ppem);
+        } else {
+            mYMax = (int) Math.ceil((double) headerTable.getYMax() * ppem / mUnitsPerEm);
+            mYMin = (int) Math.floor((double) headerTable.getYMin() * ppem / mUnitsPerEm);
+        }
+    }
+
+    /**
+     * 获取像素大小
+     *
+     * @return 像素大小（ppem）
+     */
+    public int getPpem() {
+        return mPpem;
+    }
+
+    /**
+     * 获取每 em 单位数
+     *
+     * @return 每 em 单位数
+     */
+    public int getUnitsPerEm() {
+        return mUnitsPerEm;
+    }
+
+    /**
+     * 判断步进是否取自 hdmx 表
+     *
+     * @return 该像素大小存在 hdmx 记录时返回 true
+     */
+    public boolean hasDeviceAdvances() {
+        return mDeviceAdvances;
+    }
+
+    /**
+     * 判断最大、最小 y 值是否取自 VDMX 表
+     *
+     * @return 该像素大小存在 VDMX 记录时返回 true
+     */
+    public boolean hasDeviceHeights() {
+        return mDeviceHeights;
+    }
+
+    /**
+     * 判断字形步进在该像素大小下是否线性缩放，此时无需执行指令即可得到步进
+     *
+     * @param glyphId 字形ID
+     * @return 是否线性缩放
+     */
+    public boolean isLinear(int glyphId) {
+        return mAlwaysLinear || (mLinearThresholdTable != null &&
+                mLinearThresholdTable.isLinear(mPpem, glyphId));
+    }
+
+    /**
+     * 判断 {@link #getAdvanceWidth(int)} 是否为精确值（取自 hdmx 或线性缩放），
+     * 为 true 时排版无需为该字形执行缩放与指令
+     *
+     * @param glyphId 字形ID
+     * @return 是否为精确值
+     */
+    public boolean isExactAdvance(int glyphId) {
+        return (mDeviceAdvances && mHorizontalDeviceMetricsTable.getWidth(mPpem, glyphId) >= 0)
+                || isLinear(glyphId);
+    }
+
+    /**
+     * 获取字形步进，优先取 hdmx 记录，否则为线性缩放后四舍五入的值
+     *
+     * @param glyphId 字形ID
+     * @return 步进（像素）
+     */
+    public int getAdvanceWidth(int glyphId) {
+        if (mDeviceAdvances) {
+            final int width = mHorizontalDeviceMetricsTable.getWidth(mPpem, glyphId);
+            if (width >= 0)
+                return width;
+        }
+        return getLinearAdvanceWidth(glyphId);
+    }
+
+    /**
+     * 获取线性缩放后四舍五入的字形步进
+     *
+     * @param glyphId 字形ID
+     * @return 步进（像素）
+     */
+    public int getLinearAdvanceWidth(int glyphId) {
+        final long advance = (long) mHorizontalMetricsTable.getAdvanceWidth(glyphId) * mPpem;
+        return (int) ((advance + (mUnitsPerEm >> 1)) / mUnitsPerEm);
+    }
+
+    /**
+     * 测量字形序列
+     *
+     * @param glyphs   字形ID
+     * @param start    起始位置
+     * @param end      结束位置（不包含）
+     * @param advances 各字形的步进（像素），与字形ID同位置写入，可为空
+     * @return 总步进（像素）
+     */
+    public int measureGlyphs(int[] glyphs, int start, int end, int[] advances) {
+        int total = 0;
+        for (int i = start; i < end; i++) {
+            final int advance = getAdvanceWidth(glyphs[i]);
+            if (advances != null)
+                advances[i] = advance;
+            total += advance;
+        }
+        return total;
+    }
+
+    /**
+     * 获取所有字形的最大 y 值
+     *
+     * @return 最大 y 值（像素）
+     */
+    public int getYMax() {
+        return mYMax;
+    }
+
+    /**
+     * 获取所有字形的最小 y 值
+     *
+     * @return 最小 y 值（像素），通常为负数
+     */
+    public int getYMin() {
+        return mYMin;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceMetrics{" +
+                "ppem=" + mPpem +
+                ", unitsPerEm=" + mUnitsPerEm +
+                ", deviceAdvances=" + mDeviceAdvances +
+                ", deviceHeights=" + mDeviceHeights +
+                ", yMax=" + mYMax +
+                ", yMin=" + mYMin +
+                '}';
+    }
+}
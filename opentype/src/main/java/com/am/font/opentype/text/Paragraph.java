@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 段落排版结果
+ * Lines of one laid out paragraph. Line ranges are absolute offsets into the source text and
+ * cover the paragraph without gaps: the end of a line is the start of the next one and
+ * includes its trailing spaces and line terminator. The width of a line excludes those
+ * trailing characters and includes the hyphen drawn at a soft hyphen break.
+ * All lines share the line box of the font: the line gap is split in half above and below
+ * the ascent and descent, as for CSS line-height: normal. Vertical positions are measured
+ * downwards from the top of the paragraph. All lengths are 26.6 fixed-point pixels.
+ */
+@SuppressWarnings("unused")
+public class Paragraph {
+
+    private final int mStart;
+    private final int mEnd;
+    private final int mWidth;
+    private final int mLineCount;
+    private final int[] mLineStarts;
+    private final int[] mLineWidths;
+    private final boolean[] mHyphenated;
+    private final int mAscent;
+    private final int mDescent;
+    private final int mLineHeight;
+
+    Paragraph(int start, int end, int width, int lineCount, int[] lineStarts, int[] lineWidths,
+              boolean[] hyphenated, int ascent, int descent, int lineGap) {
+        mStart = start;
+        mEnd = end;
+        mWidth = width;
+        mLineCount = lineCount;
+        mLineStarts = lineStarts;
+        mLineWidths = lineWidths;
+        mHyphenated = hyphenated;
+        mAscent = ascent;
+        mDescent = descent;
+        mLineHeight = ascent + descent + lineGap;
+    }
+
+    /**
+     * 获取起始位置
+     *
+     * @return 段落在文本中的起始位置（包含）
+     */
+    public int getStart() {
+        return mStart;
+    }
+
+    /**
+     * 获取结束位置
+     *
+     * @return 段落在文本中的结束位置（不包含）
+     */
+    public int getEnd() {
+        return mEnd;
+    }
+
+    /**
+     * 获取排版宽度
+     *
+     * @return 排版时的行宽（26.6）
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 获取行数
+     *
+     * @return 行数，空段落也占一行
+     */
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * 获取行起始位置
+     *
+     * @param line 行
+     * @return 起始位置（包含）
+     */
+    public int getLineStart(int line) {
+        checkLine(line);
+        return mLineStarts[line];
+    }
+
+    /**
+     * 获取行结束位置
+     *
+     * @param line 行
+     * @return 结束位置（不包含），含行尾空白与换行符
+     */
+    public int getLineEnd(int line) {
+        checkLine(line);
+        return line + 1 < mLineCount ? mLineStarts[line + 1] : mEnd;
+    }
+
+    /**
+     * 获取行宽
+     *
+     * @param line 行
+     * @return 行宽（26.6），不含行尾空白；一个无法断开的词比排版宽度更宽时可超出排版宽度
+     */
+    public int getLineWidth(int line) {
+        checkLine(line);
+        return mLineWidths[line];
+    }
+
+    /**
+     * 判断行是否在软连字符处断开，此时行尾需绘制连字符
+     *
+     * @param line 行
+     * @return 是否在软连字符处断开
+     */
+    public boolean isLineHyphenated(int line) {
+        checkLine(line);
+        return mHyphenated[line];
+    }
+
+    /**
+     * 获取行顶部位置
+     *
+     * @param line 行
+     * @return 行框顶部（26.6）
+     */
+    public int getLineTop(int line) {
+        checkLine(line);
+        return line * mLineHeight;
+    }
+
+    /**
+     * 获取行基线位置
+     *
+     * @param line 行
+     * @return 基线（26.6）
+     */
+    public int getLineBaseline(int line) {
+        return getLineTop(line) + getHalfLeading() + mAscent;
+    }
+
+    /**
+     * 获取行底部位置
+     *
+     * @param line 行
+     * @return 行框底部（26.6）
+     */
+    public int getLineBottom(int line) {
+        return getLineTop(line) + mLineHeight;
+    }
+
+    /**
+     * 获取所在行
+     *
+     * @param offset 文本位置
+     * @return 包含该位置的行
+     */
+    public int getLineForOffset(int offset) {
+        if (offset < mStart || offset > mEnd)
+            throw new IndexOutOfBoundsException();
+        final int index = Arrays.binarySearch(mLineStarts, 0, mLineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 获取行高
+     *
+     * @return 行高（26.6）
+     */
+    public int getLineHeight() {
+        return mLineHeight;
+    }
+
+    /**
+     * 获取段落高度
+     *
+     * @return 段落高度（26.6）
+     */
+    public int getHeight() {
+        return mLineCount * mLineHeight;
+    }
+
+    /**
+     * 获取最大行宽
+     *
+     * @return 最大行宽（26.6）
+     */
+    public int getMaxLineWidth() {
+        int max = 0;
+        for (int i = 0; i < mLineCount; i++) {
+            max = Math.max(max, mLineWidths[i]);
+        }
+        return max;
+    }
+
+    private int getHalfLeading() {
+        return (mLineHeight - mAscent - mDescent) >> 1;
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= mLineCount)
+            throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Paragraph that = (Paragraph) o;
+        if (mStart != that.mStart || mEnd != that.mEnd || mWidth != that.mWidth ||
+                mLineCount != that.mLineCount || mAscent != that.mAscent ||
+                mDescent != that.mDescent || mLineHeight != that.mLineHeight)
+            return false;
+        for (int i = 0; i < mLineCount; i++) {
+            if (mLineStarts[i] != that.mLineStarts[i] || mLineWidths[i] != that.mLineWidths[i] ||
+                    mHyphenated[i] != that.mHyphenated[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(mStart, mEnd, mWidth, mLineCount, mAscent, mDescent,
+                mLineHeight);
+        for (int i = 0; i < mLineCount; i++) {
+            result = 31 * result + mLineStarts[i];
+            result = 31 * result + mLineWidths[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Paragraph{" +
+                "start=" + mStart +
+                ", end=" + mEnd +
+                ", width=" + mWidth +
+                ", lineCount=" + mLineCount +
+                ", lineHeight=" + mLineHeight +
+                '}';
+    }
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalHeaderTable;
+import com.am.font.opentype.tables.OS2Table;
+
+/**
+ * 段落排版器
+ * Breaks paragraphs into lines of a given width. Characters are mapped through 'cmap',
+ * advances come from the {@link ScaledFont} (so 'hmtx' plus the variation deltas of its
+ * instance) and 'kern' pairs are scaled with the same fixed-point factor; all widths are
+ * 26.6 pixels. Break opportunities follow UAX #14 ({@link BreakOpportunities}).
+ * Two strategies are offered: {@link #STRATEGY_GREEDY} fills each line as far as it goes, and
+ * {@link #STRATEGY_OPTIMAL} chooses the breaks of the whole paragraph together with the
+ * Knuth-Plass total-fit algorithm, minimizing the demerits of the lines. Interword spaces may
+ * stretch by half and shrink by a third of their width; break opportunities between other
+ * characters (as between ideographs) may stretch by an eighth of an em, so CJK text is
+ * balanced as well. A word wider than the line is put on a line of its own and overflows.
+ * The line box is taken from 'OS/2' typographic metrics when USE_TYPO_METRICS is set, else
+ * from 'hhea', else from the 'OS/2' typographic or Windows metrics; ascent and descent are
+ * rounded outwards to whole pixels.
+ * Paragraphs of a text are independent and are laid out in parallel in a ForkJoinPool;
+ * 排版器不持有可变状态，可在多线程间共享。
+ */
+@SuppressWarnings("unused")
+public class ParagraphLayout {
+
+    /**
+     * 贪心断行：每行尽量填满
+     */
+    public static final int STRATEGY_GREEDY = 0;
+    /**
+     * 最优断行：Knuth-Plass 全段优化
+     */
+    public static final int STRATEGY_OPTIMAL = 1;
+    private static final int USE_TYPO_METRICS = 1 << 7;
+    private static final int CHARS_PER_TASK = 4096;
+    private static final int LINE_PENALTY = 10;
+    private static final int HYPHEN_PENALTY = 50;
+    private static final int MAX_BADNESS = 1000000;
+    private static final long ADJACENT_FITNESS_DEMERITS = 10000;
+    private static final long DOUBLE_HYPHEN_DEMERITS = 10000;
+    private static final long OVERFULL_DEMERITS = 1L << 40;
+    private static final char SOFT_HYPHEN = '\u00AD';
+    private final TextMeasurer mMeasurer;
+    private final ScaledFont mFont;
+    private final int mAscent;
+    private final int mDescent;
+    private final int mLineGap;
+    private final int mHyphenWidth;
+    private final int mCharacterStretch;
+
+    /**
+     * 创建段落排版器，所需的表取自字体对象
+     *
+     * @param font       字体，需已解析 cmap、head、hhea 与 hmtx 表
+     * @param scaledFont 同一字体的定尺寸字体
+     */
+    public ParagraphLayout(OpenType font, ScaledFont scaledFont) {
+        this(new TextMeasurer(font.getCharacterMappingTable(), font.getHorizontalMetricsTable(),
+                        font.getHorizontalMetricsVariationsTable(), font.getKerningTable(),
+                        font.getHeadTable()), scaledFont, font.getHeadTable(),
+                font.getHorizontalHeaderTable(), font.getOS2Table());
+    }
+
+    /**
+     * 创建段落排版器
+     *
+     * @param measurer              文本测量器，提供字符映射与字距调整
+     * @param font                  定尺寸字体，提供前进宽度
+     * @param headerTable           head 表
+     * @param horizontalHeaderTable hhea 表，可为空
+     * @param os2Table              OS/2 表，可为空
+     */
+    public ParagraphLayout(TextMeasurer measurer, ScaledFont font, HeaderTable headerTable,
+                           HorizontalHeaderTable horizontalHeaderTable, OS2Table os2Table) {
+        if (measurer == null || font == null || headerTable == null)
+            throw new IllegalArgumentException();
+        mMeasurer = measurer;
+        mFont = font;
+        final int ascender;
+        final int descender;
+        final int lineGap;
+        if (os2Table != null && os2Table.getVersion() >= 4 &&
+                (os2Table.getSelection() & USE_TYPO_METRICS) != 0) {
+            ascender = os2Table.getTypoAscender();
+            descender = os2Table.getTypoDescender();
+            lineGap = os2Table.getTypoLineGap();
+        } else if (horizontalHeaderTable != null && (horizontalHeaderTable.getAscender() != 0 ||
+                horizontalHeaderTable.getDescender() != 0)) {
+            ascender = horizontalHeaderTable.getAscender();
+            descender = horizontalHeaderTable.getDescender();
+            lineGap = horizontalHeaderTable.getLineGap();
+        } else if (os2Table != null && (os2Table.getTypoAscender() != 0 ||
+                os2Table.getTypoDescender() != 0)) {
+            ascender = os2Table.getTypoAscender();
+            descender = os2Table.getTypoDescender();
+            lineGap = os2Table.getTypoLineGap();
+        } else if (os2Table != null) {
+            ascender = os2Table.getWinAscent();
+            descender = -os2Table.getWinDescent();
+            lineGap = 0;
+        } else {
+            ascender = headerTable.getYMax();
+            descender = headerTable.getYMin();
+            lineGap = 0;
+        }
+        mAscent = (font.scale(ascender) + 63) & -64;
+        mDescent = (-font.scale(descender) + 63) & -64;
+        mLineGap = (font.scale(Math.max(lineGap, 0)) + 32) & -64;
+        mHyphenWidth = font.getAdvance(measurer.getGlyphId('-'));
+        mCharacterStretch = font.getPpem26Dot6() >> 3;
+    }
+
+    /**
+     * 获取上升高度
+     *
+     * @return 上升高度（26.6），为整像素
+     */
+    public int getAscent() {
+        return mAscent;
+    }
+
+    /**
+     * 获取下降深度
+     *
+     * @return 下降深度（26.6），为整像素，向下为正
+     */
+    public int getDescent() {
+        return mDescent;
+    }
+
+    /**
+     * 获取行间距
+     *
+     * @return 行间距（26.6）
+     */
+    public int getLineGap() {
+        return mLineGap;
+    }
+
+    /**
+     * 获取行高
+     *
+     * @return 行高（26.6）
+     */
+    public int getLineHeight() {
+        return mAscent + mDescent + mLineGap;
+    }
+
+    /**
+     * 排版单个段落
+     *
+     * @param text     文本
+     * @param start    段落起始位置（包含）
+     * @param end      段落结束位置（不包含）
+     * @param width    行宽（26.6）
+     * @param strategy 断行策略
+     * @return 段落
+     */
+    public Paragraph layout(CharSequence text, int start, int end, int width, int strategy) {
+        if (start < 0 || end < start || end > text.length())
+            throw new IndexOutOfBoundsException();
+        if (width <= 0 || (strategy != STRATEGY_GREEDY && strategy != STRATEGY_OPTIMAL))
+            throw new IllegalArgumentException();
+        final Run run = new Run(text, start, end);
+        final Lines lines = new Lines();
+        if (strategy == STRATEGY_OPTIMAL) {
+            breakOptimal(run, width, lines);
+        } else {
+            breakGreedy(run, width, lines);
+        }
+        return new Paragraph(start, end, width, lines.mCount, lines.mStarts, lines.mWidths,
+                lines.mHyphenated, mAscent, mDescent, mLineGap);
+    }
+
+    /**
+     * 排版文本，使用临时的 ForkJoinPool 并行处理段落
+     *
+     * @param text     文本
+     * @param width    行宽（26.6）
+     * @param strategy 断行策略
+     * @return 段落，按文本顺序排列
+     */
+    public Paragraph[] layoutText(CharSequence text, int width, int strategy) {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return layoutText(text, width, strategy, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 排版文本
+     * 文本在段落分隔符（CR、LF、CRLF、NEL 与 PS）之后分段，分隔符属于其前一段落，
+     * 各段落首尾相接覆盖整个文本；LS、VT 与 FF 仅在段落内强制换行。
+     *
+     * @param text     文本
+     * @param width    行宽（26.6）
+     * @param strategy 断行策略
+     * @param pool     并行处理段落所用的线程池
+     * @return 段落，按文本顺序排列
+     */
+    public Paragraph[] layoutText(CharSequence text, int width, int strategy,
+                                  ForkJoinPool pool) {
+        final int length = text.length();
+        int count = 0;
+        int[] ends = new int[16];
+        int i = 0;
+        while (i < length) {
+            final char c = text.charAt(i++);
+            if (c == '\r' && i < length && text.charAt(i) == '\n')
+                i++;
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2029' || i == length) {
+                if (count == ends.length)
+                    ends = Arrays.copyOf(ends, count * 2);
+                ends[count++] = i;
+            }
+        }
+        if (count == 0)
+            ends[count++] = 0;
+        final CharSequence[] texts = new CharSequence[count];
+        final int[] starts = new int[count];
+        Arrays.fill(texts, text);
+        for (int j = 1; j < count; j++) {
+            starts[j] = ends[j - 1];
+        }
+        return layout(texts, starts, Arrays.copyOf(ends, count), width, strategy, pool);
+    }
+
+    /**
+     * 排版多个段落，使用临时的 ForkJoinPool 并行处理
+     *
+     * @param paragraphs 段落文本
+     * @param width      行宽（26.6）
+     * @param strategy   断行策略
+     * @return 段落，顺序与参数一致
+     */
+    public Paragraph[] layoutParagraphs(List<? extends CharSequence> paragraphs, int width,
+                                        int strategy) {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return layoutParagraphs(paragraphs, width, strategy, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 排版多个段落
+     *
+     * @param paragraphs 段落文本，每个文本整体作为一个段落
+     * @param width      行宽（26.6）
+     * @param strategy   断行策略
+     * @param pool       并行处理段落所用的线程池
+     * @return 段落，顺序与参数一致
+     */
+    public Paragraph[] layoutParagraphs(List<? extends CharSequence> paragraphs, int width,
+                                        int strategy, ForkJoinPool pool) {
+        final int count = paragraphs.size();
+        final CharSequence[] texts = paragraphs.toArray(new CharSequence[count]);
+        final int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            ends[i] = texts[i].length();
+        }
+        return layout(texts, new int[count], ends, width, strategy, pool);
+    }
+
+    private Paragraph[] layout(CharSequence[] texts, int[] starts, int[] ends, int width,
+                               int strategy, ForkJoinPool pool) {
+        if (width <= 0 || (strategy != STRATEGY_GREEDY && strategy != STRATEGY_OPTIMAL))
+            throw new IllegalArgumentException();
+        final Job job = new Job(texts, starts, ends, width, strategy);
+        if (texts.length > 0)
+            pool.invoke(new ParagraphTask(job, 0, texts.length));
+        return job.mResults;
+    }
+
+    private void breakGreedy(Run run, int width, Lines lines) {
+        final byte[] breaks = run.mBreaks;
+        int lineStart = 0;
+        int candidate = 0;
+        for (int i = 1; i < breaks.length; i++) {
+            final byte type = breaks[i];
+            if (type == BreakOpportunities.BREAK_NONE)
+                continue;
+            if (candidate > lineStart && run.getWidth(lineStart, i) > width) {
+                addLine(run, lines, lineStart, candidate);
+                lineStart = candidate;
+            }
+            if (type == BreakOpportunities.BREAK_MANDATORY) {
+                addLine(run, lines, lineStart, i);
+                lineStart = i;
+            }
+            candidate = i;
+        }
+        if (lines.mCount == 0)
+            addLine(run, lines, 0, 0);
+    }
+
+    private void breakOptimal(Run run, int width, Lines lines) {
+        final byte[] breaks = run.mBreaks;
+        final Nodes nodes = new Nodes();
+        final long[] best = new long[4];
+        final int[] bestNodes = new int[4];
+        int[] active = new int[16];
+        int activeCount = 1;
+        active[0] = nodes.add(0, -1, 1, 0, false);
+        for (int b = 1; b < breaks.length; b++) {
+            final byte type = breaks[b];
+            if (type == BreakOpportunities.BREAK_NONE)
+                continue;
+            final boolean forced = type == BreakOpportunities.BREAK_MANDATORY;
+            final boolean hyphen = !forced && run.isHyphenBreak(b);
+            Arrays.fill(best, Long.MAX_VALUE);
+            Arrays.fill(bestNodes, -1);
+            int fallback = -1;
+            int kept = 0;
+            for (int k = 0; k < activeCount; k++) {
+                final int a = active[k];
+                final int lineStart = nodes.mPositions[a];
+                final long shortfall = width - run.getWidth(lineStart, b);
+                final double ratio;
+                if (shortfall < 0) {
+                    final long shrink = run.getShrink(lineStart, b);
+                    ratio = shrink > 0 ? (double) shortfall / shrink : Double.NEGATIVE_INFINITY;
+                } else if (forced) {
+                    ratio = 0;
+                } else {
+                    final long stretch = run.getStretch(lineStart, b);
+                    ratio = stretch > 0 ? (double) shortfall / stretch : Double.POSITIVE_INFINITY;
+                }
+                if (ratio < -1) {
+                    // 过满，此后从该节点出发的行只会更宽
+                    if (fallback < 0 || lineStart > nodes.mPositions[fallback])
+                        fallback = a;
+                    continue;
+                }
+                active[kept++] = a;
+                // 不像 TeX 那样截断于 10000，过松的行之间仍有优劣之分
+                final int badness = (int) Math.min(100 * Math.abs(ratio * ratio * ratio),
+                        MAX_BADNESS);
+                final int fitness = ratio < -0.5 ? 0 : ratio <= 0.5 ? 1 : ratio <= 1 ? 2 : 3;
+                long demerits = (long) (LINE_PENALTY + badness) * (LINE_PENALTY + badness);
+                if (hyphen) {
+                    demerits += HYPHEN_PENALTY * HYPHEN_PENALTY;
+                    if (nodes.mHyphenated[a])
+                        demerits += DOUBLE_HYPHEN_DEMERITS;
+                }
+                if (Math.abs(fitness - nodes.mFitness[a]) > 1)
+                    demerits += ADJACENT_FITNESS_DEMERITS;
+                demerits += nodes.mDemerits[a];
+                if (demerits < best[fitness]) {
+                    best[fitness] = demerits;
+                    bestNodes[fitness] = a;
+                }
+            }
+            activeCount = forced ? 0 : kept;
+            if (active.length < activeCount + best.length)
+                active = Arrays.copyOf(active, active.length * 2 + best.length);
+            for (int fitness = 0; fitness < best.length; fitness++) {
+                if (bestNodes[fitness] >= 0)
+                    active[activeCount++] = nodes.add(b, bestNodes[fitness], fitness,
+                            best[fitness], hyphen);
+            }
+            if (activeCount == 0 && fallback >= 0) {
+                // 没有可行的断点，让最短的一行溢出
+                active[activeCount++] = nodes.add(b, fallback, 1,
+                        nodes.mDemerits[fallback] + OVERFULL_DEMERITS, false);
+            }
+        }
+        int last = -1;
+        for (int k = 0; k < activeCount; k++) {
+            final int a = active[k];
+            if (last < 0 || nodes.mDemerits[a] < nodes.mDemerits[last])
+                last = a;
+        }
+        int count = 0;
+        for (int node = last; nodes.mPrevious[node] >= 0; node = nodes.mPrevious[node]) {
+            count++;
+        }
+        final int[] ends = new int[count];
+        for (int node = last; nodes.mPrevious[node] >= 0; node = nodes.mPrevious[node]) {
+            ends[--count] = nodes.mPositions[node];
+        }
+        int lineStart = 0;
+        for (int end : ends) {
+            addLine(run, lines, lineStart, end);
+            lineStart = end;
+        }
+        if (lines.mCount == 0)
+            addLine(run, lines, 0, 0);
+    }
+
+    private void addLine(Run run, Lines lines, int lineStart, int lineEnd) {
+        lines.add(run.mStart + lineStart, (int) run.getWidth(lineStart, lineEnd),
+                lineEnd > lineStart && run.isSoftHyphen(lineEnd - 1));
+    }
+
+    private static boolean isIgnorable(int codePoint) {
+        switch (codePoint) {
+            case SOFT_HYPHEN:
+            case '\u200B':
+            case '\u200C':
+            case '\u200D':
+            case '\u2060':
+            case '\uFEFF':
+                return true;
+        }
+        return BreakOpportunities.isMandatoryBreak(codePoint);
+    }
+
+    private static boolean isSpace(int codePoint) {
+        if (codePoint < 0x80)
+            return codePoint == ' ';
+        return codePoint != '\u2007' && codePoint != '\u202F' &&
+                Character.getType(codePoint) == Character.SPACE_SEPARATOR;
+    }
+
+    private static boolean isHanging(int codePoint) {
+        return codePoint == '\t' || (codePoint != '\u00A0' && isSpace(codePoint)) ||
+                BreakOpportunities.isMandatoryBreak(codePoint);
+    }
+
+    private static int codePointAt(CharSequence text, int index, int end) {
+        final char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            final char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low))
+                return Character.toCodePoint(high, low);
+        }
+        return high;
+    }
+
+    /**
+     * 段落的测量结果，宽度、伸展与收缩量均以前缀和保存，任意两断点间的行宽可直接求得
+     */
+    private final class Run {
+        final CharSequence mText;
+        final int mStart;
+        final byte[] mBreaks;
+        final long[] mAdvances;
+        final int[] mKerning;
+        final long[] mStretch;
+        final long[] mShrink;
+        final boolean[] mHanging;
+
+        Run(CharSequence text, int start, int end) {
+            final int count = end - start;
+            mText = text;
+            mStart = start;
+            mBreaks = new byte[count + 1];
+            BreakOpportunities.find(text, start, end, mBreaks);
+            mAdvances = new long[count + 1];
+            mKerning = new int[count];
+            mStretch = new long[count + 1];
+            mShrink = new long[count + 1];
+            mHanging = new boolean[count];
+            final int[] advances = new int[count];
+            int previousGlyph = -1;
+            int previousIndex = -1;
+            int i = 0;
+            while (i < count) {
+                final int codePoint = codePointAt(text, start + i, end);
+                final int last = i + Character.charCount(codePoint) - 1;
+                mHanging[i] = isHanging(codePoint);
+                if (isIgnorable(codePoint)) {
+                    previousGlyph = -1;
+                } else {
+                    final int glyph = mMeasurer.getGlyphId(codePoint);
+                    advances[i] = mFont.getAdvance(glyph);
+                    if (previousGlyph >= 0)
+                        mKerning[previousIndex] =
+                                mFont.scale(mMeasurer.getKerning(previousGlyph, glyph));
+                    previousGlyph = glyph;
+                    previousIndex = last;
+                }
+                i = last + 1;
+            }
+            for (i = 0; i < count; i++) {
+                mAdvances[i + 1] = mAdvances[i] + advances[i] + mKerning[i];
+                long stretch = 0;
+                long shrink = 0;
+                final char c = text.charAt(start + i);
+                if (isSpace(c)) {
+                    stretch = advances[i] >> 1;
+                    shrink = advances[i] / 3;
+                } else if (mBreaks[i + 1] == BreakOpportunities.BREAK_ALLOWED && i + 1 < count &&
+                        !mHanging[i + 1] && !mHanging[i]) {
+                    stretch = mCharacterStretch;
+                }
+                mStretch[i + 1] = mStretch[i] + stretch;
+                mShrink[i + 1] = mShrink[i] + shrink;
+            }
+        }
+
+        /**
+         * 行宽，不含行尾空白与行尾字距调整，软连字符处断开时含连字符宽度
+         *
+         * @param lineStart 行起始位置
+         * @param lineEnd   行结束位置
+         * @return 行宽（26.6）
+         */
+        long getWidth(int lineStart, int lineEnd) {
+            final int end = trim(lineStart, lineEnd);
+            if (end == lineStart)
+                return 0;
+            final long width = mAdvances[end] - mAdvances[lineStart] - mKerning[end - 1];
+            return isSoftHyphen(end - 1) ? width + mHyphenWidth : width;
+        }
+
+        long getStretch(int lineStart, int lineEnd) {
+            final int end = trim(lineStart, lineEnd);
+            return end - 1 > lineStart ? mStretch[end - 1] - mStretch[lineStart] : 0;
+        }
+
+        long getShrink(int lineStart, int lineEnd) {
+            final int end = trim(lineStart, lineEnd);
+            return end - 1 > lineStart ? mShrink[end - 1] - mShrink[lineStart] : 0;
+        }
+
+        boolean isSoftHyphen(int index) {
+            return mText.charAt(mStart + index) == SOFT_HYPHEN;
+        }
+
+        boolean isHyphenBreak(int index) {
+            final char c = mText.charAt(mStart + index - 1);
+            return c == SOFT_HYPHEN || c == '-' || c == '\u2010';
+        }
+
+        private int trim(int lineStart, int lineEnd) {
+            int end = lineEnd;
+            while (end > lineStart && mHanging[end - 1]) {
+                end--;
+            }
+            return end;
+        }
+    }
+
+    /**
+     * 断行结果
+     */
+    private static final class Lines {
+        int mCount;
+        int[] mStarts = new int[8];
+        int[] mWidths = new int[8];
+        boolean[] mHyphenated = new boolean[8];
+
+        void add(int start, int width, boolean hyphenated) {
+            if (mCount == mStarts.length) {
+                mStarts = Arrays.copyOf(mStarts, mCount * 2);
+                mWidths = Arrays.copyOf(mWidths, mCount * 2);
+                mHyphenated = Arrays.copyOf(mHyphenated, mCount * 2);
+            }
+            mStarts[mCount] = start;
+            mWidths[mCount] = width;
+            mHyphenated[mCount] = hyphenated;
+            mCount++;
+        }
+    }
+
+    /**
+     * 最优断行的候选断点
+     */
+    private static final class Nodes {
+        int mCount;
+        int[] mPositions = new int[64];
+        int[] mPrevious = new int[64];
+        int[] mFitness = new int[64];
+        long[] mDemerits = new long[64];
+        boolean[] mHyphenated = new boolean[64];
+
+        int add(int position, int previous, int fitness, long demerits, boolean hyphenated) {
+            if (mCount == mPositions.length) {
+                mPositions = Arrays.copyOf(mPositions, mCount * 2);
+                mPrevious = Arrays.copyOf(mPrevious, mCount * 2);
+                mFitness = Arrays.copyOf(mFitness, mCount * 2);
+                mDemerits = Arrays.copyOf(mDemerits, mCount * 2);
+                mHyphenated = Arrays.copyOf(mHyphenated, mCount * 2);
+            }
+            mPositions[mCount] = position;
+            mPrevious[mCount] = previous;
+            mFitness[mCount] = fitness;
+            mDemerits[mCount] = demerits;
+            mHyphenated[mCount] = hyphenated;
+            return mCount++;
+        }
+    }
+
+    /**
+     * 单次排版的状态，各段落的结果写入各自的位置，无需同步
+     */
+    private static final class Job {
+        final CharSequence[] mTexts;
+        final int[] mStarts;
+        final int[] mEnds;
+        final long[] mOffsets;
+        final int mWidth;
+        final int mStrategy;
+        final Paragraph[] mResults;
+
+        Job(CharSequence[] texts, int[] starts, int[] ends, int width, int strategy) {
+            mTexts = texts;
+            mStarts = starts;
+            mEnds = ends;
+            mWidth = width;
+            mStrategy = strategy;
+            mResults = new Paragraph[texts.length];
+            mOffsets = new long[texts.length + 1];
+            for (int i = 0; i < texts.length; i++) {
+                mOffsets[i + 1] = mOffsets[i] + ends[i] - starts[i];
+            }
+        }
+    }
+
+    /**
+     * 按段落范围拆分的并行任务，按字符数对半拆分
+     */
+    private final class ParagraphTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Job mJob;
+        private final int mStart;
+        private final int mEnd;
+
+        ParagraphTask(Job job, int start, int end) {
+            mJob = job;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            final long[] offsets = mJob.mOffsets;
+            if (mEnd - mStart > 1 && offsets[mEnd] - offsets[mStart] > CHARS_PER_TASK) {
+                final long half = (offsets[mStart] + offsets[mEnd]) >>> 1;
+                int middle = Arrays.binarySearch(offsets, mStart, mEnd, half);
+                middle = middle >= 0 ? middle : -middle - 1;
+                middle = Math.max(mStart + 1, Math.min(middle, mEnd - 1));
+                invokeAll(new ParagraphTask(mJob, mStart, middle),
+                        new ParagraphTask(mJob, middle, mEnd));
+                return;
+            }
+            for (int i = mStart; i < mEnd; i++) {
+                mJob.mResults[i] = layout(mJob.mTexts[i], mJob.mStarts[i], mJob.mEnds[i],
+                        mJob.mWidth, mJob.mStrategy);
+            }
+        }
+    }
+}
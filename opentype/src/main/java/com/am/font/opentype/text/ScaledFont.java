@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.tables.GlyphOutlineSink;
+import com.am.font.opentype.tables.GlyphOutlineSource;
+import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.GlyphVariationsTable;
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.HorizontalMetricsVariationsTable;
+import com.am.font.opentype.tables.VariationInstance;
+
+/**
+ * 定尺寸字体
+ * A font at one pixel size, optionally at one location of a variable font. The size is kept as
+ * a 26.6 fixed-point ppem and converted once into a 16.16 fixed-point scale
+ * (ppem / unitsPerEm), so every conversion from font units is a single integer multiply with
+ * the same rounding as FreeType's FT_MulFix. Scaled advances and bounding boxes are 26.6
+ * values, computed on first use and cached per glyph in primitive arrays.
+ * 缓存的值与计算线程无关，对象可在多线程间共享，各线程得到完全相同的结果。
+ */
+@SuppressWarnings("unused")
+public class ScaledFont {
+
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private final HorizontalMetricsTable mHorizontalMetricsTable;
+    private final HorizontalMetricsVariationsTable mHorizontalMetricsVariationsTable;
+    private final GlyphVariationsTable mGlyphVariationsTable;
+    private final GlyphTable mGlyphTable;
+    private final GlyphOutlineSource mGlyphOutlineSource;
+    private final VariationInstance mInstance;
+    private final int mUnitsPerEm;
+    private final int mPpem;
+    private final int mScale;
+    private final int mNumGlyphs;
+    private final int[] mAdvances;
+    private final int[] mBounds;
+    private final AtomicIntegerArray mBoundsReady;
+
+    /**
+     * 创建定尺寸字体，轮廓来源与变化数据取自字体对象
+     *
+     * @param font     字体，需已解析 head 与 hmtx 表
+     * @param ppem     像素大小（每 em 像素数）
+     * @param instance 实例，为空时为默认实例
+     */
+    public ScaledFont(OpenType font, float ppem, VariationInstance instance) {
+        this(font.getHeadTable(), font.getHorizontalMetricsTable(),
+                font.getHorizontalMetricsVariationsTable(), font.getGlyphVariationsTable(),
+                font.getGlyphTable(), font.getGlyphOutlineSource(instance), instance,
+                Math.round(ppem * 64));
+    }
+
+    /**
+     * 创建定尺寸字体；可变字体的步进增量取自 HVAR 表
+     *
+     * @param headerTable                      head 表
+     * @param horizontalMetricsTable           hmtx 表
+     * @param horizontalMetricsVariationsTable HVAR 表，可为空
+     * @param glyphOutlineSource               轮廓来源，用于计算边界，可为空
+     * @param instance                         实例，为空时为默认实例
+     * @param ppem                             像素大小（每 em 像素数）
+     */
+    public ScaledFont(HeaderTable headerTable, HorizontalMetricsTable horizontalMetricsTable,
+                      HorizontalMetricsVariationsTable horizontalMetricsVariationsTable,
+                      GlyphOutlineSource glyphOutlineSource, VariationInstance instance,
+                      float ppem) {
+        this(headerTable, horizontalMetricsTable, horizontalMetricsVariationsTable, null, null,
+                glyphOutlineSource, instance, Math.round(ppem * 64));
+    }
+
+    private ScaledFont(HeaderTable headerTable, HorizontalMetricsTable horizontalMetricsTable,
+                       HorizontalMetricsVariationsTable horizontalMetricsVariationsTable,
+                       GlyphVariationsTable glyphVariationsTable, GlyphTable glyphTable,
+                       GlyphOutlineSource glyphOutlineSource, VariationInstance instance,
+                       int ppem26Dot6) {
+        if (headerTable == null || horizontalMetricsTable == null ||
+                headerTable.getUnitsPerEm() <= 0 || ppem26Dot6 <= 0)
+            throw new IllegalArgumentException();
+        final boolean varied = instance != null && !instance.isDefault();
+        mHorizontalMetricsTable = horizontalMetricsTable;
+        mHorizontalMetricsVariationsTable = varied ? horizontalMetricsVariationsTable : null;
+        mGlyphVariationsTable = varied && horizontalMetricsVariationsTable == null ?
+                glyphVariationsTable : null;
+        mGlyphTable = glyphTable;
+        mGlyphOutlineSource = glyphOutlineSource;
+        mInstance = varied ? instance : null;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+        mPpem = ppem26Dot6;
+        mScale = (int) ((((long) ppem26Dot6 << 16) + (mUnitsPerEm >> 1)) / mUnitsPerEm);
+        mNumGlyphs = horizontalMetricsTable.getNumGlyphs();
+        mAdvances = new int[mNumGlyphs];
+        Arrays.fill(mAdvances, UNKNOWN);
+        mBounds = new int[mNumGlyphs * 4];
+        mBoundsReady = new AtomicIntegerArray(mNumGlyphs);
+    }
+
+    /**
+     * 获取每 em 设计单位数
+     *
+     * @return 每 em 设计单位数
+     */
+    public int getUnitsPerEm() {
+        return mUnitsPerEm;
+    }
+
+    /**
+     * 获取像素大小
+     *
+     * @return 像素大小（26.6 定点数）
+     */
+    public int getPpem26Dot6() {
+        return mPpem;
+    }
+
+    /**
+     * 获取像素大小
+     *
+     * @return 像素大小
+     */
+    public float getPpem() {
+        return mPpem / 64f;
+    }
+
+    /**
+     * 获取缩放系数，设计单位乘以该系数得到 26.6 定点数像素值
+     *
+     * @return 缩放系数（16.16 定点数）
+     */
+    public int getScale() {
+        return mScale;
+    }
+
+    /**
+     * 获取实例
+     *
+     * @return 实例，默认实例返回空
+     */
+    public VariationInstance getInstance() {
+        return mInstance;
+    }
+
+    /**
+     * 获取字形数目
+     *
+     * @return 字形数目
+     */
+    public int getNumGlyphs() {
+        return mNumGlyphs;
+    }
+
+    /**
+     * 将设计单位转换为像素，按 FT_MulFix 的方式四舍五入（远离零）
+     *
+     * @param units 设计单位
+     * @return 像素（26.6 定点数）
+     */
+    public int scale(int units) {
+        return multiply(units, mScale);
+    }
+
+    static int multiply(int value, int scale) {
+        final long product = (long) value * scale;
+        return (int) (product < 0 ? -((-product + 0x8000) >> 16) : (product + 0x8000) >> 16);
+    }
+
+    /**
+     * 将 26.6 定点数转换为浮点像素
+     *
+     * @param value 26.6 定点数
+     * @return 像素
+     */
+    public static float toPixels(int value) {
+        return value / 64f;
+    }
+
+    /**
+     * 获取字形步进
+     *
+     * @param glyphId 字形ID
+     * @return 步进（26.6 定点数像素）
+     */
+    public int getAdvance(int glyphId) {
+        int advance = mAdvances[glyphId];
+        if (advance == UNKNOWN) {
+            advance = scale(getAdvanceWidth(glyphId));
+            mAdvances[glyphId] = advance;// int 写入是原子的，重复计算得到相同的值
+        }
+        return advance;
+    }
+
+    /**
+     * 获取字形步进（设计单位），可变字体按实例应用增量后取整
+     *
+     * @param glyphId 字形ID
+     * @return 步进（设计单位）
+     */
+    public int getAdvanceWidth(int glyphId) {
+        final int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+        if (mHorizontalMetricsVariationsTable != null)
+            return advance + Math.round(mHorizontalMetricsVariationsTable.getAdvanceWidthDelta(
+                    glyphId, mHorizontalMetricsVariationsTable.getScalars(mInstance)));
+        if (mGlyphVariationsTable != null && mGlyphTable != null) {
+            try {
+                return advance + Math.round(mGlyphVariationsTable.getAdvanceWidthDelta(
+                        mGlyphTable, glyphId, mInstance));
+            } catch (IOException e) {
+                return advance;
+            }
+        }
+        return advance;
+    }
+
+    /**
+     * 测量字形序列
+     *
+     * @param glyphs   字形ID
+     * @param start    起始位置
+     * @param end      结束位置（不包含）
+     * @param advances 各字形的步进（26.6 定点数像素），与字形ID同位置写入，可为空
+     * @return 总步进（26.6 定点数像素）
+     */
+    public int getAdvances(int[] glyphs, int start, int end, int[] advances) {
+        int total = 0;
+        for (int i = start; i < end; i++) {
+            final int advance = getAdvance(glyphs[i]);
+            if (advances != null)
+                advances[i] = advance;
+            total += advance;
+        }
+        return total;
+    }
+
+    /**
+     * 获取字形边界最小 x 值
+     *
+     * @param glyphId 字形ID
+     * @return 最小 x 值（26.6 定点数像素），空字形为 0
+     */
+    public int getXMin(int glyphId) {
+        return mBounds[ensureBounds(glyphId)];
+    }
+
+    /**
+     * 获取字形边界最小 y 值
+     *
+     * @param glyphId 字形ID
+     * @return 最小 y 值（26.6 定点数像素），空字形为 0
+     */
+    public int getYMin(int glyphId) {
+        return mBounds[ensureBounds(glyphId) + 1];
+    }
+
+    /**
+     * 获取字形边界最大 x 值
+     *
+     * @param glyphId 字形ID
+     * @return 最大 x 值（26.6 定点数像素），空字形为 0
+     */
+    public int getXMax(int glyphId) {
+        return mBounds[ensureBounds(glyphId) + 2];
+    }
+
+    /**
+     * 获取字形边界最大 y 值
+     *
+     * @param glyphId 字形ID
+     * @return 最大 y 值（26.6 定点数像素），空字形为 0
+     */
+    public int getYMax(int glyphId) {
+        return mBounds[ensureBounds(glyphId) + 3];
+    }
+
+    /**
+     * 计算并缓存字形边界（控制点包围盒），边界先写入数组再以 volatile 写标记完成，
+     * 读取方看到标记后即可见完整的边界。
+     *
+     * @return 边界在缓存数组中的位置
+     */
+    private int ensureBounds(int glyphId) {
+        if (glyphId < 0 || glyphId >= mNumGlyphs)
+            throw new IndexOutOfBoundsException();
+        final int index = glyphId * 4;
+        if (mBoundsReady.get(glyphId) != 0)
+            return index;
+        final BoundsSink sink = new BoundsSink();
+        if (mGlyphOutlineSource != null) {
+            try {
+                mGlyphOutlineSource.decodeOutline(glyphId, sink);
+            } catch (IOException e) {
+                sink.mEmpty = true;
+            }
+        }
+        if (!sink.mEmpty) {
+            mBounds[index] = scaleFloor(sink.mXMin);
+            mBounds[index + 1] = scaleFloor(sink.mYMin);
+            mBounds[index + 2] = scaleCeil(sink.mXMax);
+            mBounds[index + 3] = scaleCeil(sink.mYMax);
+        }
+        mBoundsReady.set(glyphId, 1);
+        return index;
+    }
+
+    /**
+     * 边界坐标可能为小数（变化后的轮廓），向外取整到设计单位后再缩放
+     */
+    private int scaleFloor(float value) {
+        return scale((int) Math.floor(value));
+    }
+
+    private int scaleCeil(float value) {
+        return scale((int) Math.ceil(value));
+    }
+
+    @Override
+    public String toString() {
+        return "ScaledFont{" +
+                "unitsPerEm=" + mUnitsPerEm +
+                ", ppem=" + getPpem() +
+                ", scale=" + mScale +
+                ", instance=" + mInstance +
+                '}';
+    }
+
+    /**
+     * 计算控制点包围盒
+     */
+    private static final class BoundsSink implements GlyphOutlineSink {
+        boolean mEmpty = true;
+        float mXMin;
+        float mYMin;
+        float mXMax;
+        float mYMax;
+
+        private void add(float x, float y) {
+            if (mEmpty) {
+                mEmpty = false;
+                mXMin = mXMax = x;
+                mYMin = mYMax = y;
+                return;
+            }
+            mXMin = Math.min(mXMin, x);
+            mYMin = Math.min(mYMin, y);
+            mXMax = Math.max(mXMax, x);
+            mYMax = Math.max(mYMax, y);
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            add(x1, y1);
+            add(x2, y2);
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            add(x1, y1);
+            add(x2, y2);
+            add(x3, y3);
+        }
+
+        @Override
+        public void closePath() {
+        }
+    }
+}
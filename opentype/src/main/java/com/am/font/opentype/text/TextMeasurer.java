@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.tables.CharacterMappingTable;
+import com.am.font.opentype.tables.HeaderTable;
+import com.am.font.opentype.tables.HorizontalMetricsTable;
+import com.am.font.opentype.tables.HorizontalMetricsVariationsTable;
+import com.am.font.opentype.tables.KerningTable;
+
+/**
+ * 文本测量器
+ * Measures text by combining the 'cmap' character lookup, 'hmtx' advance widths and 'kern'
+ * pair adjustments. Results are written into caller supplied arrays and nothing is allocated
+ * per call, so words can be measured repeatedly during layout without producing garbage.
+ * Kerning between two glyphs is added to the advance of the first one. For character
+ * sequences the advances are indexed by char: the advance of a supplementary character is
+ * stored at its high surrogate and the low surrogate gets 0. In variable fonts the advances at
+ * a design-space location are adjusted with the 'HVAR' deltas; the region scalars are fetched
+ * once per call, so each region is evaluated only once for a whole run of glyphs.
+ * 测量器不持有可变状态，可在多线程间共享。
+ */
+@SuppressWarnings("unused")
+public class TextMeasurer {
+
+    private final CharacterMappingTable mCharacterMappingTable;
+    private final HorizontalMetricsTable mHorizontalMetricsTable;
+    private final HorizontalMetricsVariationsTable mHorizontalMetricsVariationsTable;
+    private final KerningTable mKerningTable;
+    private final int mUnitsPerEm;
+    private final char[] mLatinGlyphs = new char[256];
+
+    public TextMeasurer(CharacterMappingTable characterMappingTable,
+                        HorizontalMetricsTable horizontalMetricsTable,
+                        KerningTable kerningTable, HeaderTable headerTable) {
+        this(characterMappingTable, horizontalMetricsTable, null, kerningTable, headerTable);
+    }
+
+    public TextMeasurer(CharacterMappingTable characterMappingTable,
+                        HorizontalMetricsTable horizontalMetricsTable,
+                        HorizontalMetricsVariationsTable horizontalMetricsVariationsTable,
+                        KerningTable kerningTable, HeaderTable headerTable) {
+        if (characterMappingTable == null || horizontalMetricsTable == null ||
+                headerTable == null || headerTable.getUnitsPerEm() <= 0)
+            throw new IllegalArgumentException();
+        mCharacterMappingTable = characterMappingTable;
+        mHorizontalMetricsTable = horizontalMetricsTable;
+        mHorizontalMetricsVariationsTable = horizontalMetricsVariationsTable;
+        mKerningTable = kerningTable == null || !kerningTable.hasKerning() ? null : kerningTable;
+        mUnitsPerEm = headerTable.getUnitsPerEm();
+        // 拉丁字符最为常见，预先映射以免逐字符查找 cmap
+        for (int i = 0; i < mLatinGlyphs.length; i++) {
+            mLatinGlyphs[i] = (char) characterMappingTable.getGlyphId(i);
+        }
+    }
+
+    /**
+     * 获取每 em 设计单位数
+     *
+     * @return 每 em 设计单位数
+     */
+    public int getUnitsPerEm() {
+        return mUnitsPerEm;
+    }
+
+    /**
+     * 获取字符对应的字形ID
+     *
+     * @param codePoint Unicode 码位
+     * @return 字形ID，未映射时返回0
+     */
+    public int getGlyphId(int codePoint) {
+        if (codePoint >= 0 && codePoint < mLatinGlyphs.length)
+            return mLatinGlyphs[codePoint];
+        return mCharacterMappingTable.getGlyphId(codePoint);
+    }
+
+    /**
+     * 获取字形前进宽度
+     *
+     * @param glyphId 字形ID
+     * @return 前进宽度（设计单位）
+     */
+    public int getAdvanceWidth(int glyphId) {
+        return mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+    }
+
+    /**
+     * 获取可变字体指定位置的字形前进宽度
+     *
+     * @param glyphId     字形ID
+     * @param coordinates 归一化坐标，为 null 或不含 HVAR 表时返回默认实例的前进宽度
+     * @return 前进宽度（设计单位）
+     */
+    public float getAdvanceWidth(int glyphId, float[] coordinates) {
+        final int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+        if (coordinates == null || mHorizontalMetricsVariationsTable == null)
+            return advance;
+        return advance + mHorizontalMetricsVariationsTable.getAdvanceWidthDelta(glyphId,
+                coordinates);
+    }
+
+    /**
+     * 获取字形对的横向字距调整
+     *
+     * @param left  左侧字形ID
+     * @param right 右侧字形ID
+     * @return 字距调整（设计单位）
+     */
+    public int getKerning(int left, int right) {
+        return mKerningTable == null ? 0 : mKerningTable.getKerning(left, right);
+    }
+
+    /**
+     * 将字符映射为字形
+     *
+     * @param text   文本
+     * @param start  起始位置（包含）
+     * @param end    结束位置（不包含）
+     * @param glyphs 输出字形ID，长度不小于字符数
+     * @return 字形数量，代理对合并为一个字形
+     */
+    public int getGlyphs(CharSequence text, int start, int end, int[] glyphs) {
+        checkRange(text.length(), start, end);
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            final int codePoint = codePointAt(text, i, end);
+            glyphs[count++] = getGlyphId(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return count;
+    }
+
+    /**
+     * 测量字形序列
+     *
+     * @param glyphs   字形ID
+     * @param start    起始位置
+     * @param count    字形数量
+     * @param advances 输出每个字形的前进宽度（设计单位，含字距调整），可为 null
+     * @return 总前进宽度（设计单位）
+     */
+    public int measureGlyphs(int[] glyphs, int start, int count, int[] advances) {
+        checkRange(glyphs.length, start, start + count);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            final int glyphId = glyphs[start + i];
+            int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+            if (mKerningTable != null && i + 1 < count)
+                advance += mKerningTable.getKerning(glyphId, glyphs[start + i + 1]);
+            if (advances != null)
+                advances[i] = advance;
+            total += advance;
+        }
+        return total;
+    }
+
+    /**
+     * 测量字形序列
+     *
+     * @param glyphs    字形ID
+     * @param start     起始位置
+     * @param count     字形数量
+     * @param pixelSize 像素大小（ppem）
+     * @param advances  输出每个字形的前进宽度（像素，含字距调整），可为 null
+     * @return 总前进宽度（像素）
+     */
+    public float measureGlyphs(int[] glyphs, int start, int count, float pixelSize,
+                               float[] advances) {
+        checkRange(glyphs.length, start, start + count);
+        final float scale = pixelSize / mUnitsPerEm;
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            final int glyphId = glyphs[start + i];
+            int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+            if (mKerningTable != null && i + 1 < count)
+                advance += mKerningTable.getKerning(glyphId, glyphs[start + i + 1]);
+            if (advances != null)
+                advances[i] = advance * scale;
+            total += advance;
+        }
+        return total * scale;
+    }
+
+    /**
+     * 测量可变字体指定位置的字形序列
+     *
+     * @param glyphs      字形ID
+     * @param start       起始位置
+     * @param count       字形数量
+     * @param coordinates 归一化坐标，为 null 或不含 HVAR 表时按默认实例测量
+     * @param pixelSize   像素大小（ppem）
+     * @param advances    输出每个字形的前进宽度（像素，含字距调整），可为 null
+     * @return 总前进宽度（像素）
+     */
+    public float measureGlyphs(int[] glyphs, int start, int count, float[] coordinates,
+                               float pixelSize, float[] advances) {
+        if (coordinates == null || mHorizontalMetricsVariationsTable == null)
+            return measureGlyphs(glyphs, start, count, pixelSize, advances);
+        checkRange(glyphs.length, start, start + count);
+        final float scale = pixelSize / mUnitsPerEm;
+        final HorizontalMetricsVariationsTable variations = mHorizontalMetricsVariationsTable;
+        final float[][] scalars = variations.getScalars(coordinates);
+        float total = 0;
+        for (int i = 0; i < count; i++) {
+            final int glyphId = glyphs[start + i];
+            float advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId) +
+                    variations.getAdvanceWidthDelta(glyphId, scalars);
+            if (mKerningTable != null && i + 1 < count)
+                advance += mKerningTable.getKerning(glyphId, glyphs[start + i + 1]);
+            if (advances != null)
+                advances[i] = advance * scale;
+            total += advance;
+        }
+        return total * scale;
+    }
+
+    /**
+     * 测量文本
+     *
+     * @param text  文本
+     * @param start 起始位置（包含）
+     * @param end   结束位置（不包含）
+     * @return 总前进宽度（设计单位）
+     */
+    public int measureText(CharSequence text, int start, int end) {
+        return measureText(text, start, end, (int[]) null);
+    }
+
+    /**
+     * 测量文本
+     *
+     * @param text     文本
+     * @param start    起始位置（包含）
+     * @param end      结束位置（不包含）
+     * @param advances 输出每个字符的前进宽度（设计单位，含字距调整），长度不小于字符数，可为 null
+     * @return 总前进宽度（设计单位）
+     */
+    public int measureText(CharSequence text, int start, int end, int[] advances) {
+        checkRange(text.length(), start, end);
+        int total = 0;
+        int previousGlyph = -1;
+        int previousIndex = -1;
+        int i = start;
+        while (i < end) {
+            final int codePoint = codePointAt(text, i, end);
+            final int charCount = Character.charCount(codePoint);
+            final int glyphId = getGlyphId(codePoint);
+            final int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+            if (mKerningTable != null && previousGlyph >= 0) {
+                final int kerning = mKerningTable.getKerning(previousGlyph, glyphId);
+                if (advances != null)
+                    advances[previousIndex] += kerning;
+                total += kerning;
+            }
+            if (advances != null) {
+                advances[i - start] = advance;
+                if (charCount == 2)
+                    advances[i - start + 1] = 0;
+            }
+            total += advance;
+            previousGlyph = glyphId;
+            previousIndex = i - start;
+            i += charCount;
+        }
+        return total;
+    }
+
+    /**
+     * 测量文本
+     *
+     * @param text      文本
+     * @param start     起始位置（包含）
+     * @param end       结束位置（不包含）
+     * @param pixelSize 像素大小（ppem）
+     * @return 总前进宽度（像素）
+     */
+    public float measureText(CharSequence text, int start, int end, float pixelSize) {
+        return measureText(text, start, end) * (pixelSize / mUnitsPerEm);
+    }
+
+    /**
+     * 测量文本
+     *
+     * @param text      文本
+     * @param start     起始位置（包含）
+     * @param end       结束位置（不包含）
+     * @param pixelSize 像素大小（ppem）
+     * @param advances  输出每个字符的前进宽度（像素，含字距调整），长度不小于字符数，可为 null
+     * @return 总前进宽度（像素）
+     */
+    public float measureText(CharSequence text, int start, int end, float pixelSize,
+                             float[] advances) {
+        checkRange(text.length(), start, end);
+        final float scale = pixelSize / mUnitsPerEm;
+        int total = 0;
+        int previousGlyph = -1;
+        int previousIndex = -1;
+        int previousAdvance = 0;
+        int i = start;
+        while (i < end) {
+            final int codePoint = codePointAt(text, i, end);
+            final int charCount = Character.charCount(codePoint);
+            final int glyphId = getGlyphId(codePoint);
+            final int advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId);
+            if (mKerningTable != null && previousGlyph >= 0) {
+                final int kerning = mKerningTable.getKerning(previousGlyph, glyphId);
+                if (advances != null && kerning != 0)
+                    advances[previousIndex] = (previousAdvance + kerning) * scale;
+                total += kerning;
+            }
+            if (advances != null) {
+                advances[i - start] = advance * scale;
+                if (charCount == 2)
+                    advances[i - start + 1] = 0;
+            }
+            total += advance;
+            previousGlyph = glyphId;
+            previousIndex = i - start;
+            previousAdvance = advance;
+            i += charCount;
+        }
+        return total * scale;
+    }
+
+    /**
+     * 测量可变字体指定位置的文本
+     *
+     * @param text        文本
+     * @param start       起始位置（包含）
+     * @param end         结束位置（不包含）
+     * @param coordinates 归一化坐标，为 null 或不含 HVAR 表时按默认实例测量
+     * @param pixelSize   像素大小（ppem）
+     * @param advances    输出每个字符的前进宽度（像素，含字距调整），长度不小于字符数，可为 null
+     * @return 总前进宽度（像素）
+     */
+    public float measureText(CharSequence text, int start, int end, float[] coordinates,
+                             float pixelSize, float[] advances) {
+        if (coordinates == null || mHorizontalMetricsVariationsTable == null)
+            return measureText(text, start, end, pixelSize, advances);
+        checkRange(text.length(), start, end);
+        final float scale = pixelSize / mUnitsPerEm;
+        final HorizontalMetricsVariationsTable variations = mHorizontalMetricsVariationsTable;
+        final float[][] scalars = variations.getScalars(coordinates);
+        float total = 0;
+        int previousGlyph = -1;
+        int previousIndex = -1;
+        float previousAdvance = 0;
+        int i = start;
+        while (i < end) {
+            final int codePoint = codePointAt(text, i, end);
+            final int charCount = Character.charCount(codePoint);
+            final int glyphId = getGlyphId(codePoint);
+            final float advance = mHorizontalMetricsTable.getAdvanceWidth(glyphId) +
+                    variations.getAdvanceWidthDelta(glyphId, scalars);
+            if (mKerningTable != null && previousGlyph >= 0) {
+                final int kerning = mKerningTable.getKerning(previousGlyph, glyphId);
+                if (advances != null && kerning != 0)
+                    advances[previousIndex] = (previousAdvance + kerning) * scale;
+                total += kerning;
+            }
+            if (advances != null) {
+                advances[i - start] = advance * scale;
+                if (charCount == 2)
+                    advances[i - start + 1] = 0;
+            }
+            total += advance;
+            previousGlyph = glyphId;
+            previousIndex = i - start;
+            previousAdvance = advance;
+            i += charCount;
+        }
+        return total * scale;
+    }
+
+    private static int codePointAt(CharSequence text, int index, int end) {
+        final char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            final char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low))
+                return Character.toCodePoint(high, low);
+        }
+        return high;
+    }
+
+    private static void checkRange(int length, int start, int end) {
+        if (start < 0 || end < start || end > length)
+            throw new IndexOutOfBoundsException();
+    }
+}
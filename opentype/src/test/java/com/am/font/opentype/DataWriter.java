@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 大端数据写入器，用于在测试中构造表数据
+ */
+public class DataWriter {
+
+    private final ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
+
+    public DataWriter u8(int value) {
+        mOutput.write(value);
+        return this;
+    }
+
+    public DataWriter u16(int value) {
+        mOutput.write(value >>> 8);
+        mOutput.write(value);
+        return this;
+    }
+
+    public DataWriter u24(int value) {
+        mOutput.write(value >>> 16);
+        return u16(value);
+    }
+
+    public DataWriter u32(int value) {
+        u16(value >>> 16);
+        return u16(value);
+    }
+
+    public DataWriter u16s(int... values) {
+        for (int value : values)
+            u16(value);
+        return this;
+    }
+
+    public DataWriter fixed(float value) {
+        return u32(Math.round(value * 65536));
+    }
+
+    public DataWriter f2dot14(float value) {
+        return u16(Math.round(value * 16384));
+    }
+
+    public DataWriter tag(String tag) {
+        for (int i = 0; i < 4; i++)
+            mOutput.write(tag.charAt(i));
+        return this;
+    }
+
+    public DataWriter bytes(byte[] data) {
+        mOutput.write(data, 0, data.length);
+        return this;
+    }
+
+    public DataWriter zeros(int count) {
+        for (int i = 0; i < count; i++)
+            mOutput.write(0);
+        return this;
+    }
+
+    public DataWriter align(int alignment) {
+        while (mOutput.size() % alignment != 0)
+            mOutput.write(0);
+        return this;
+    }
+
+    public int size() {
+        return mOutput.size();
+    }
+
+    public byte[] toByteArray() {
+        return mOutput.toByteArray();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 测试字体构造器
+ * Assembles a small sfnt from raw tables, writes it to a temporary file and parses it. Tables are
+ * parsed in the order they were added, so dependencies (head, maxp, hhea) go first.
+ */
+public class FontBuilder {
+
+    private final LinkedHashMap<Integer, byte[]> mTables = new LinkedHashMap<>();
+    private int mVersion = 0x00010000;
+
+    public FontBuilder version(int version) {
+        mVersion = version;
+        return this;
+    }
+
+    public FontBuilder table(int tag, byte[] data) {
+        mTables.put(tag, data);
+        return this;
+    }
+
+    public byte[] build() {
+        final DataWriter writer = new DataWriter();
+        final int numTables = mTables.size();
+        writer.u32(mVersion).u16(numTables).u16s(0, 0, 0);
+        int offset = 12 + numTables * 16;
+        for (Map.Entry<Integer, byte[]> table : mTables.entrySet()) {
+            final int length = table.getValue().length;
+            writer.u32(table.getKey()).u32(0).u32(offset).u32(length);
+            offset += (length + 3) & ~3;
+        }
+        for (byte[] data : mTables.values())
+            writer.bytes(data).align(4);
+        return writer.toByteArray();
+    }
+
+    public OpenType parse() throws IOException {
+        return parse(build(), tags());
+    }
+
+    public int[] tags() {
+        final ArrayList<Integer> list = new ArrayList<>(mTables.keySet());
+        final int[] tags = new int[list.size()];
+        for (int i = 0; i < tags.length; i++)
+            tags[i] = list.get(i);
+        return tags;
+    }
+
+    public static File write(byte[] font) throws IOException {
+        final File file = File.createTempFile("font", ".otf");
+        file.deleteOnExit();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(font);
+        }
+        return file;
+    }
+
+    public static OpenType parse(byte[] font, int... tags) throws IOException {
+        final OpenTypeParser parser = new OpenTypeParser();
+        try (FileOpenTypeReader reader = new FileOpenTypeReader(write(font))) {
+            parser.parse(reader, tags);
+        }
+        if (parser.isInvalid())
+            throw new IOException();
+        return parser.getOpenType();
+    }
+
+    public static byte[] head(int unitsPerEm, int indexToLocFormat) {
+        return new DataWriter()
+                .u16s(1, 0).u32(0x00010000).u32(0).u32(0x5F0F3CF5).u16(0).u16(unitsPerEm)
+                .zeros(16).u16s(0, 0, 0, 0).u16s(0, 8, 2).u16(indexToLocFormat).u16(0)
+                .toByteArray();
+    }
+
+    public static byte[] maxp(int numGlyphs, int maxComponentDepth) {
+        // 指令相关的上限取足够运行测试程序的值
+        return new DataWriter()
+                .u32(0x00010000).u16(numGlyphs).u16s(0, 0, 0, 0)
+                .u16s(2, 16, 16, 16, 0, 64, 256, 0).u16(maxComponentDepth)
+                .toByteArray();
+    }
+
+    public static byte[] hhea(int ascender, int descender, int lineGap, int numberOfHMetrics) {
+        return new DataWriter()
+                .u16s(1, 0, ascender, descender, lineGap).zeros(24).u16(numberOfHMetrics)
+                .toByteArray();
+    }
+
+    public static byte[] hmtx(int... advances) {
+        final DataWriter writer = new DataWriter();
+        for (int advance : advances)
+            writer.u16(advance).u16(0);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 单轴（'wght'）'fvar' 表，不含命名实例
+     */
+    public static byte[] fvar(float minValue, float defaultValue, float maxValue) {
+        return new DataWriter()
+                .u16s(1, 0, 16, 2, 1, 20, 0, 8)
+                .tag("wght").fixed(minValue).fixed(defaultValue).fixed(maxValue).u16s(0, 256)
+                .toByteArray();
+    }
+}
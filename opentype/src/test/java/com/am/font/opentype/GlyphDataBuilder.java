@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype;
+
+import java.util.ArrayList;
+
+/**
+ * 测试用 'glyf' 与 'loca' 表构造器
+ */
+public class GlyphDataBuilder {
+
+    private final ArrayList<byte[]> mGlyphs = new ArrayList<>();
+
+    /**
+     * 添加空字形
+     */
+    public GlyphDataBuilder empty() {
+        mGlyphs.add(new byte[0]);
+        return this;
+    }
+
+    /**
+     * 添加简单字形
+     *
+     * @param endPtsOfContours 轮廓终点
+     * @param points           绝对坐标 x0, y0, x1, y1...
+     * @param onCurves         是否为曲线上的点，为空时全部在曲线上
+     */
+    public GlyphDataBuilder simple(int[] endPtsOfContours, int[] points, boolean[] onCurves) {
+        return simple(endPtsOfContours, points, onCurves, new byte[0]);
+    }
+
+    /**
+     * 添加带指令的简单字形
+     *
+     * @param endPtsOfContours 轮廓终点
+     * @param points           绝对坐标 x0, y0, x1, y1...
+     * @param onCurves         是否为曲线上的点，为空时全部在曲线上
+     * @param instructions     字形指令
+     */
+    public GlyphDataBuilder simple(int[] endPtsOfContours, int[] points, boolean[] onCurves,
+                                   byte[] instructions) {
+        final int numPoints = points.length / 2;
+        int xMin = Integer.MAX_VALUE;
+        int yMin = Integer.MAX_VALUE;
+        int xMax = Integer.MIN_VALUE;
+        int yMax = Integer.MIN_VALUE;
+        for (int i = 0; i < numPoints; i++) {
+            xMin = Math.min(xMin, points[i * 2]);
+            xMax = Math.max(xMax, points[i * 2]);
+            yMin = Math.min(yMin, points[i * 2 + 1]);
+            yMax = Math.max(yMax, points[i * 2 + 1]);
+        }
+        final DataWriter writer = new DataWriter()
+                .u16(endPtsOfContours.length).u16s(xMin, yMin, xMax, yMax)
+                .u16s(endPtsOfContours).u16(instructions.length).bytes(instructions);
+        for (int i = 0; i < numPoints; i++)
+            writer.u8(onCurves == null || onCurves[i] ? 1 : 0);
+        for (int axis = 0; axis < 2; axis++) {
+            int last = 0;
+            for (int i = 0; i < numPoints; i++) {
+                writer.u16(points[i * 2 + axis] - last);
+                last = points[i * 2 + axis];
+            }
+        }
+        mGlyphs.add(writer.align(2).toByteArray());
+        return this;
+    }
+
+    /**
+     * 添加复合字形
+     *
+     * @param components 组件数据，见 {@link #component(int, int, int, int, float...)}
+     */
+    public GlyphDataBuilder composite(byte[]... components) {
+        final DataWriter writer = new DataWriter().u16(0xFFFF).u16s(0, 0, 0, 0);
+        for (int i = 0; i < components.length; i++) {
+            final byte[] component = components[i];
+            if (i < components.length - 1)
+                component[1] |= 0x20;// MORE_COMPONENTS
+            writer.bytes(component);
+        }
+        mGlyphs.add(writer.align(2).toByteArray());
+        return this;
+    }
+
+    /**
+     * 构造组件数据，参数总是以 16 位写入
+     *
+     * @param flags      标志（自动添加 ARG_1_AND_2_ARE_WORDS 及变换标志）
+     * @param glyphIndex 组件字形ID
+     * @param argument1  参数1
+     * @param argument2  参数2
+     * @param transform  空、单一缩放、x/y 缩放或 2x2 矩阵（xScale, scale01, scale10, yScale）
+     */
+    public static byte[] component(int flags, int glyphIndex, int argument1, int argument2,
+                                   float... transform) {
+        flags |= 0x0001;
+        if (transform.length == 1)
+            flags |= 0x0008;
+        else if (transform.length == 2)
+            flags |= 0x0040;
+        else if (transform.length == 4)
+            flags |= 0x0080;
+        final DataWriter writer = new DataWriter().u16(flags).u16(glyphIndex)
+                .u16(argument1).u16(argument2);
+        for (float value : transform)
+            writer.f2dot14(value);
+        return writer.toByteArray();
+    }
+
+    public int getNumGlyphs() {
+        return mGlyphs.size();
+    }
+
+    /**
+     * 构造 'glyf' 表
+     */
+    public byte[] glyf() {
+        final DataWriter writer = new DataWriter();
+        for (byte[] glyph : mGlyphs)
+            writer.bytes(glyph);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 构造 'loca' 表
+     *
+     * @param longFormat 是否为长格式
+     */
+    public byte[] loca(boolean longFormat) {
+        final DataWriter writer = new DataWriter();
+        int offset = 0;
+        for (int i = 0; i <= mGlyphs.size(); i++) {
+            if (longFormat)
+                writer.u32(offset);
+            else
+                writer.u16(offset / 2);
+            if (i < mGlyphs.size())
+                offset += mGlyphs.get(i).length;
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 构造仅含 head、maxp、loca、glyf 的字体
+     *
+     * @param longFormat        是否使用长格式 'loca'
+     * @param maxComponentDepth 'maxp' 中记录的最大组件嵌套深度
+     */
+    public FontBuilder font(boolean longFormat, int maxComponentDepth) {
+        return new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(1000, longFormat ? 1 : 0))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(getNumGlyphs(), maxComponentDepth))
+                .table(TableRecord.TAG_LOCA, loca(longFormat))
+                .table(TableRecord.TAG_GLYF, glyf());
+    }
+}
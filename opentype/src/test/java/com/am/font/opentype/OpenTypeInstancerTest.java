@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype;
+
+import com.am.font.opentype.tables.GlyphTable;
+import com.am.font.opentype.tables.GlyphVariationsTable;
+import com.am.font.opentype.tables.HeaderTable;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.am.font.opentype.GlyphDataBuilder.component;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 静态实例生成测试：生成的字体重新解析后与变化后的轮廓及度量一致
+ */
+public class OpenTypeInstancerTest {
+
+    private static final int PRIVATE_PEAK = GlyphVariationsTable.EMBEDDED_PEAK_TUPLE |
+            GlyphVariationsTable.PRIVATE_POINT_NUMBERS;
+    private static final int[] TAGS = {TableRecord.TAG_HEAD, TableRecord.TAG_MAXP,
+            TableRecord.TAG_HHEA, TableRecord.TAG_HMTX, TableRecord.TAG_LOCA,
+            TableRecord.TAG_GLYF, TableRecord.TAG_FVAR, TableRecord.TAG_GVAR};
+    private static byte[] sFont;
+
+    /**
+     * 字形 0 为方形与三角形，峰值 +1 的元组移动方形的点 0、点 3 与右幻影点；
+     * 字形 1 为旋转 90 度且偏移量经缩放的字形 0，本身没有变化数据
+     */
+    @BeforeClass
+    public static void setUp() {
+        final GlyphDataBuilder glyphs = new GlyphDataBuilder()
+                .simple(new int[]{4, 7}, new int[]{0, 0, 50, 0, 100, 0, 100, 100, 0, 100,
+                        200, 0, 300, 0, 200, 100}, null)
+                .composite(component(GlyphTable.ARGS_ARE_XY_VALUES |
+                        GlyphTable.SCALED_COMPONENT_OFFSET, 0, 100, 0, 0, 1, -1, 0));
+        final byte[] variationData = new DataWriter()
+                .u16(1).u16(10)
+                .u16(13).u16(PRIVATE_PEAK).f2dot14(1)
+                .u8(3).u8(0x02).u8(0).u8(3).u8(6)// 点 0, 3, 9（右幻影点）
+                .u8(0x02).u8(10).u8(30).u8(40).u8(0x02).u8(0).u8(20).u8(0)
+                .align(2).toByteArray();
+        final byte[] gvar = new DataWriter()
+                .u16(1).u16(0).u16(1).u16(0).u32(26).u16(2).u16(0).u32(26)
+                .u16s(0, variationData.length / 2, variationData.length / 2)
+                .bytes(variationData).toByteArray();
+        sFont = new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(1000, 0))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(2, 1))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 2))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(500, 600))
+                .table(TableRecord.TAG_LOCA, glyphs.loca(false))
+                .table(TableRecord.TAG_GLYF, glyphs.glyf())
+                .table(TableRecord.TAG_FVAR, FontBuilder.fvar(100, 400, 900))
+                .table(TableRecord.TAG_GVAR, gvar)
+                .build();
+    }
+
+    private static OpenType instantiate(float weight) throws IOException {
+        final OpenType font = FontBuilder.parse(sFont, TAGS);
+        final byte[] data;
+        try (FileOpenTypeReader reader = new FileOpenTypeReader(FontBuilder.write(sFont))) {
+            data = new OpenTypeInstancer(font, reader)
+                    .instantiate(font.getVariationInstance(weight));
+        }
+        return FontBuilder.parse(data, TAGS);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final OpenType font = instantiate(900);
+        assertNull(font.getTableRecord(TableRecord.TAG_FVAR));
+        assertNull(font.getTableRecord(TableRecord.TAG_GVAR));
+        final GlyphTable.GlyphOutline outline = font.getGlyphTable().getGlyphOutline(0);
+        assertArrayEquals(new float[]{10, 70, 130, 130, 10, 200, 300, 200},
+                outline.getXCoordinates(), 0);
+        assertArrayEquals(new float[]{0, 0, 0, 120, 120, 0, 0, 100},
+                outline.getYCoordinates(), 0);
+        // 缺少 HVAR 时步进取自幻影点
+        assertEquals(540, font.getHorizontalMetricsTable().getAdvanceWidth(0));
+        assertEquals(10, font.getHorizontalMetricsTable().getLsb(0));
+        assertEquals(600, font.getHorizontalMetricsTable().getAdvanceWidth(1));
+    }
+
+    @Test
+    public void compositeOffsetIsScaledNotTransformed() throws IOException {
+        final OpenType font = instantiate(900);
+        final GlyphTable.GlyphOutline outline = font.getGlyphTable().getGlyphOutline(1);
+        // 旋转矩阵的列长度为 1，偏移量保持 (100, 0)
+        assertArrayEquals(new float[]{100, 100, 100, -20, -20, 100, 100, 0},
+                outline.getXCoordinates(), 0);
+        assertArrayEquals(new float[]{10, 70, 130, 130, 10, 200, 300, 200},
+                outline.getYCoordinates(), 0);
+        final HeaderTable head = font.getHeadTable();
+        assertEquals(-20, head.getXMin());
+        assertEquals(0, head.getYMin());
+        assertEquals(300, head.getXMax());
+        assertEquals(300, head.getYMax());
+        assertEquals(-20, outline.getXMin());
+        assertEquals(300, outline.getYMax());
+        assertEquals(-20, font.getHorizontalMetricsTable().getLsb(1));
+    }
+
+    @Test
+    public void defaultInstanceKeepsOutlines() throws IOException {
+        final OpenType font = instantiate(400);
+        final GlyphTable.GlyphOutline outline = font.getGlyphTable().getGlyphOutline(0);
+        assertArrayEquals(new float[]{0, 50, 100, 100, 0, 200, 300, 200},
+                outline.getXCoordinates(), 0);
+        assertEquals(500, font.getHorizontalMetricsTable().getAdvanceWidth(0));
+        assertEquals(0, font.getHeadTable().getXMin());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.hinting;
+
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.tables.GlyphTable;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.am.font.opentype.GlyphDataBuilder.component;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TrueType 字形微调测试
+ */
+public class TrueTypeHinterTest {
+
+    private static final int XY = GlyphTable.ARGS_ARE_XY_VALUES;
+    private static final int SCALED = GlyphTable.SCALED_COMPONENT_OFFSET;
+    private static TrueTypeHinter sHinter;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final int[] square = {0, 0, 1000, 0, 1000, 1000, 0, 1000};
+        sHinter = new TrueTypeHinter(new GlyphDataBuilder()
+                .simple(new int[]{3}, square, null)// 0
+                .simple(new int[]{3}, square, null, new byte[]{
+                        0x01,// SVTCA[x]
+                        (byte) 0xB1, 1, 64,// PUSHB[2] 1 64
+                        0x38// SHPIX，点 1 右移 1 像素
+                })// 1
+                .composite(component(XY | SCALED, 0, 100, 0, 0, 1, -1, 0))// 2 旋转 90 度
+                .composite(component(XY | SCALED, 0, 100, 200, 1.5f))// 3
+                .composite(component(XY, 5, 100, 0))// 4
+                .composite(component(XY, 6, 100, 0))// 5
+                .composite(component(XY, 0, 100, 0))// 6
+                .composite(component(XY, 8, 0, 0))// 7 循环引用
+                .composite(component(XY, 7, 0, 0), component(XY, 7, 0, 0))// 8
+                .font(false, 1).parse());
+    }
+
+    private static void assertPoints(HintedGlyph glyph, float... expected) {
+        final float[] xs = glyph.getOutline().getXCoordinates();
+        final float[] ys = glyph.getOutline().getYCoordinates();
+        assertEquals(expected.length / 2, xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals("x" + i, expected[i * 2], xs[i], 1e-3f);
+            assertEquals("y" + i, expected[i * 2 + 1], ys[i], 1e-3f);
+        }
+    }
+
+    @Test
+    public void unhintedGlyphIsScaledBack() throws IOException {
+        final HintedGlyph glyph = sHinter.hint(0, 10);
+        assertTrue(sHinter.isEnabled());
+        assertPoints(glyph, 0, 0, 1000, 0, 1000, 1000, 0, 1000);
+    }
+
+    @Test
+    public void glyphProgramMovesPoint() throws IOException {
+        final HintedGlyph glyph = sHinter.hint(1, 10);
+        assertTrue(glyph.isHinted());
+        // 10 ppem 时 1 像素为 100 单位
+        assertPoints(glyph, 0, 0, 1100, 0, 1000, 1000, 0, 1000);
+        assertPoints(sHinter.hint(1, 20), 0, 0, 1050, 0, 1000, 1000, 0, 1000);
+    }
+
+    @Test
+    public void scaledOffsetUsesColumnLengths() throws IOException {
+        // 旋转后偏移保持 (100, 0)，轮廓原点随之移动
+        final float[] xs = sHinter.hint(2, 10).getOutline().getXCoordinates();
+        final float[] ys = sHinter.hint(2, 10).getOutline().getYCoordinates();
+        assertEquals(0, ys[0], 1e-3f);
+        assertEquals(1000, ys[1], 1e-3f);
+        assertEquals(xs[0] - 1000, xs[2], 1e-3f);
+        assertEquals(1000, xs[0] - xs[3], 1e-3f);
+        // 缩放 1.5 倍，偏移同样缩放为 (150, 300)
+        final HintedGlyph scaled = sHinter.hint(3, 10);
+        final float[] sys = scaled.getOutline().getYCoordinates();
+        assertEquals(300, sys[0], 1e-3f);
+        assertEquals(1800, sys[2], 1e-3f);
+    }
+
+    @Test
+    public void maxpDepthIsAdvisory() throws IOException {
+        assertEquals(4, sHinter.hint(4, 10).getOutline().getNumberOfPoints());
+    }
+
+    @Test
+    public void cycleIsRejected() {
+        try {
+            sHinter.hint(7, 10);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void sharedStateIsCopiedOnWrite() throws IOException {
+        final Interpreter interpreter = new Interpreter(16, 2, 0, 0, 1000);
+        final int[] cvt = {1, 2};
+        final int[] storage = {3, 4};
+        interpreter.mCvt = cvt;
+        interpreter.mCvtShared = true;
+        interpreter.mStorage = storage;
+        interpreter.mStorageShared = true;
+        interpreter.execute(new byte[]{
+                (byte) 0xB0, 1,// PUSHB[1] 1
+                0x43,// RS
+                0x21// POP
+        });
+        // 只读不复制
+        assertSame(cvt, interpreter.mCvt);
+        assertSame(storage, interpreter.mStorage);
+        interpreter.execute(new byte[]{
+                (byte) 0xB1, 0, 7,// PUSHB[2] 0 7
+                0x42,// WS
+                (byte) 0xB1, 1, 64,// PUSHB[2] 1 64
+                0x44// WCVTP
+        });
+        assertArrayEquals(new int[]{1, 2}, cvt);
+        assertArrayEquals(new int[]{3, 4}, storage);
+        assertArrayEquals(new int[]{1, 64}, interpreter.mCvt);
+        assertArrayEquals(new int[]{7, 4}, interpreter.mStorage);
+    }
+
+    @Test
+    public void sizeStatesAreBounded() throws IOException {
+        for (int ppem = 1; ppem <= 100; ppem++) {
+            sHinter.hint(1, ppem);
+        }
+        assertEquals(32, sHinter.getCachedSizeCount());
+        assertPoints(sHinter.hint(1, 10), 0, 0, 1100, 0, 1000, 1000, 0, 1000);
+        sHinter.clear();
+        assertEquals(0, sHinter.getCachedSizeCount());
+    }
+}
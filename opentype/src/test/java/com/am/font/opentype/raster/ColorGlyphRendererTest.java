@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 彩色字形渲染测试
+ */
+public class ColorGlyphRendererTest {
+
+    private static ColorGlyphRenderer sRenderer;
+
+    /**
+     * 调色板条目：红、半透明绿、蓝
+     */
+    private static byte[] cpal() {
+        return new DataWriter().u16(0).u16(3).u16(1).u16(3).u32(14).u16(0)
+                .u8(0).u8(0).u8(0xFF).u8(0xFF)
+                .u8(0).u8(0xFF).u8(0).u8(0x80)
+                .u8(0xFF).u8(0).u8(0).u8(0xFF)
+                .toByteArray();
+    }
+
+    /**
+     * 字形 3：整个正方形为红色，左半部分叠加半透明绿色；字形 4：正方形使用前景色；
+     * 字形 5：正方形填充从左（红）到右（蓝）的线性渐变
+     */
+    private static byte[] colr() {
+        return new DataWriter().u16(1).u16(2).u32(34).u32(46).u16(3)
+                .u32(58).u32(0).u32(0).u32(0).u32(0)
+                .u16(3).u16(0).u16(2).u16(4).u16(2).u16(1)
+                .u16(1).u16(0).u16(2).u16(1).u16(1).u16(0xFFFF)
+                .u32(1).u16(5).u32(10)
+                .u8(10).u24(6).u16(1)
+                .u8(4).u24(16).u16s(0, 0, 1000, 0, 0, 1000)
+                .u8(0).u16(2).f2dot14(0).u16(0).f2dot14(1).f2dot14(1).u16(2).f2dot14(1)
+                .toByteArray();
+    }
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final OpenType font = new GlyphDataBuilder()
+                .empty()
+                .simple(new int[]{3}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000}, null)
+                .simple(new int[]{3}, new int[]{0, 0, 500, 0, 500, 1000, 0, 1000}, null)
+                .empty()
+                .empty()
+                .empty()
+                .font(false, 0)
+                .table(TableRecord.TAG_COLR, colr())
+                .table(TableRecord.TAG_CPAL, cpal())
+                .parse();
+        sRenderer = new ColorGlyphRenderer(font.getGlyphTable(), font.getHeadTable(),
+                font.getColorTable(), font.getColorPaletteTable());
+    }
+
+    private static void assertPixel(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            assertEquals(Integer.toHexString(actual), expected >>> shift & 0xFF,
+                    actual >>> shift & 0xFF, 1);
+        }
+    }
+
+    @Test
+    public void nonColorGlyphIsEmpty() throws IOException {
+        assertFalse(sRenderer.isColorGlyph(1));
+        assertTrue(sRenderer.render(1, 10, 0, 0xFF000000).isEmpty());
+    }
+
+    @Test
+    public void layersAreCompositedSourceOver() throws IOException {
+        final ColorGlyphBitmap bitmap = sRenderer.render(3, 10, 0, 0xFF000000);
+        assertEquals(10, bitmap.getWidth());
+        assertEquals(10, bitmap.getHeight());
+        assertEquals(10, bitmap.getTop());
+        // 预乘：绿色 alpha 128 叠加在红色上
+        assertPixel(0xFF7F8000, bitmap.getPixel(2, 5));
+        assertPixel(0xFFFF0000, bitmap.getPixel(7, 5));
+    }
+
+    @Test
+    public void foregroundColor() throws IOException {
+        final ColorGlyphBitmap bitmap = sRenderer.render(4, 10, 0, 0xFF00FF00);
+        assertPixel(0xFF00FF00, bitmap.getPixel(5, 5));
+        // 半透明前景色输出为预乘值
+        assertPixel(0x80008000, sRenderer.render(4, 10, 0, 0x8000FF00).getPixel(5, 5));
+    }
+
+    @Test
+    public void linearGradient() throws IOException {
+        final ColorGlyphBitmap bitmap = sRenderer.render(5, 10, 0, 0xFF000000);
+        int previousRed = 256;
+        for (int x = 0; x < 10; x++) {
+            final int pixel = bitmap.getPixel(x, 5);
+            assertEquals(0xFF, pixel >>> 24);
+            final int red = pixel >>> 16 & 0xFF;
+            final int blue = pixel & 0xFF;
+            assertEquals(255, red + blue, 2);
+            assertTrue(red < previousRed);
+            previousRed = red;
+        }
+        assertTrue((bitmap.getPixel(0, 5) >>> 16 & 0xFF) > 230);
+        assertTrue((bitmap.getPixel(9, 5) & 0xFF) > 230);
+        // 渐变沿 x 方向，同一列颜色相同
+        assertEquals(bitmap.getPixel(3, 0), bitmap.getPixel(3, 9));
+    }
+}
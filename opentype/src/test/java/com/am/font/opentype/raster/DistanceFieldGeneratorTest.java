@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.tables.GlyphOutlineSink;
+import com.am.font.opentype.tables.GlyphOutlineSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 距离场生成测试
+ */
+public class DistanceFieldGeneratorTest {
+
+    private static OpenType sFont;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        sFont = new GlyphDataBuilder()
+                .empty()
+                .simple(new int[]{3}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000}, null)
+                .simple(new int[]{2}, new int[]{0, 0, 1000, 0, 500, 1000}, null)
+                .simple(new int[]{3}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000},
+                        new boolean[]{true, false, true, false})
+                .font(false, 0).parse();
+    }
+
+    private static DistanceFieldGenerator generator(boolean multiChannel, int maxCached) {
+        return new DistanceFieldGenerator(sFont.getGlyphTable(), sFont.getHeadTable(), 32, 4,
+                multiChannel, maxCached);
+    }
+
+    private static int median(DistanceField field, int x, int y) {
+        final int r = field.getValue(x, y, 0);
+        final int g = field.getValue(x, y, 1);
+        final int b = field.getValue(x, y, 2);
+        return Math.max(Math.min(r, g), Math.min(Math.max(r, g), b));
+    }
+
+    @Test
+    public void singleChannelDistances() throws IOException {
+        final DistanceField field = generator(false, 8).generate(1);
+        assertEquals(1, field.getChannels());
+        // 四周各留 3 像素边距
+        assertEquals(38, field.getWidth());
+        assertEquals(38, field.getHeight());
+        assertEquals(-3, field.getLeft());
+        assertEquals(35, field.getTop());
+        final int y = 19;
+        // 像素中心距左边缘 0.5 像素（内）与 0.5 像素（外）
+        assertEquals(Math.round((0.5 / 4 + 0.5) * 255), field.getValue(3, y, 0));
+        assertEquals(Math.round((-0.5 / 4 + 0.5) * 255), field.getValue(2, y, 0));
+        assertEquals(255, field.getValue(19, y, 0));
+        assertEquals(0, field.getValue(0, y, 0));
+    }
+
+    @Test
+    public void multiChannelMedianMatchesSingleChannel() throws IOException {
+        for (int glyphId = 1; glyphId <= 3; glyphId++) {
+            final DistanceField single = generator(false, 8).generate(glyphId);
+            final DistanceField multi = generator(true, 8).generate(glyphId);
+            assertEquals(3, multi.getChannels());
+            assertEquals(single.getWidth(), multi.getWidth());
+            for (int y = 0; y < single.getHeight(); y++) {
+                for (int x = 0; x < single.getWidth(); x++) {
+                    final int expected = single.getValue(x, y, 0);
+                    final int actual = median(multi, x, y);
+                    // 内外判断一致
+                    assertEquals(expected >= 128, actual >= 128);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fieldsDoNotDependOnPreviousGlyphs() throws IOException {
+        final DistanceFieldGenerator generator = generator(true, 8);
+        final DistanceField fresh = generator(true, 8).generate(2);
+        generator.generate(3);
+        generator.generate(1);
+        assertArrayEquals(fresh.getData(), generator.generate(2).getData());
+    }
+
+    /**
+     * 拱形：底边为直线，顶部为二次曲线 (0, 0) - (500, 1000) - (1000, 0)；
+     * 字形 1 以三次曲线（升阶后的同一曲线）输出，字形 0 以二次曲线输出
+     */
+    private static GlyphOutlineSource arch() {
+        return new GlyphOutlineSource() {
+            @Override
+            public int getNumGlyphs() {
+                return 2;
+            }
+
+            @Override
+            public void decodeOutline(int glyphId, GlyphOutlineSink sink) {
+                sink.moveTo(0, 0);
+                if (glyphId == 0)
+                    sink.quadTo(500, 1000, 1000, 0);
+                else
+                    sink.curveTo(1000 / 3f, 2000 / 3f, 2000 / 3f, 2000 / 3f, 1000, 0);
+                sink.closePath();
+            }
+        };
+    }
+
+    @Test
+    public void elevatedQuadraticCurve() throws IOException {
+        // 33 ppem 时曲线顶点 (500, 500) 位于像素 (16.5, 16.5)，即像素中心
+        final DistanceFieldGenerator generator = new DistanceFieldGenerator(arch(),
+                sFont.getHeadTable(), 33, 4, false, 8);
+        final DistanceField quad = generator.generate(0);
+        final DistanceField cubic = generator.generate(1);
+        // 两者的边界不同（二次曲线的控制点参与计算），按像素坐标对齐后比较
+        final int dx = cubic.getLeft() - quad.getLeft();
+        final int dy = quad.getTop() - cubic.getTop();
+        final int x = 16 - cubic.getLeft();
+        final int y = cubic.getTop() - 17;
+        // 顶点在曲线上，距离为 0
+        assertEquals(127.5f, cubic.getValue(x, y, 0), 1);
+        assertEquals(127.5f, quad.getValue(x + dx, y + dy, 0), 1);
+        // 各分段内部的距离与二次曲线一致，控制点偏向弦时曲线附近的值明显不同
+        for (int j = 0; j < cubic.getHeight(); j++) {
+            for (int i = 0; i < cubic.getWidth(); i++)
+                assertEquals(quad.getValue(i + dx, j + dy, 0), cubic.getValue(i, j, 0), 2);
+        }
+    }
+
+    @Test
+    public void emptyGlyph() throws IOException {
+        assertTrue(generator(true, 8).get(0).isEmpty());
+    }
+
+    @Test
+    public void cacheIsBounded() throws IOException {
+        final DistanceFieldGenerator generator = generator(false, 2);
+        final DistanceField first = generator.get(1);
+        assertSame(first, generator.get(1));
+        generator.get(2);
+        generator.get(3);
+        final DistanceField again = generator.get(1);
+        assertNotSame(first, again);
+        assertEquals(first, again);
+        assertSame(again, generator.get(1));
+    }
+
+    @Test
+    public void batchMatchesSerial() throws IOException {
+        final int[] glyphIds = new int[40];
+        for (int i = 0; i < glyphIds.length; i++)
+            glyphIds[i] = i % 4;
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final DistanceField[] fields = generator(true, 8).get(glyphIds, pool);
+            final DistanceFieldGenerator serial = generator(true, 8);
+            for (int i = 0; i < glyphIds.length; i++)
+                assertEquals(serial.generate(glyphIds[i]), fields[i]);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
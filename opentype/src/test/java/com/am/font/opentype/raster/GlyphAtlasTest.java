@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 天际线图集打包测试
+ */
+public class GlyphAtlasTest {
+
+    private static GlyphBitmap bitmap(int width, int height, int value) {
+        final byte[] coverage = new byte[width * height];
+        Arrays.fill(coverage, (byte) value);
+        return new GlyphBitmap(width, height, 1, height, coverage);
+    }
+
+    private static boolean overlaps(GlyphAtlas.Region a, GlyphAtlas.Region b, int padding) {
+        return a.getX() < b.getX() + b.getWidth() + padding &&
+                b.getX() < a.getX() + a.getWidth() + padding &&
+                a.getY() < b.getY() + b.getHeight() + padding &&
+                b.getY() < a.getY() + a.getHeight() + padding;
+    }
+
+    @Test
+    public void packsBottomLeftWithoutOverlap() {
+        final GlyphAtlas atlas = new GlyphAtlas(64, 64, 1, 1);
+        final Object font = new Object();
+        final GlyphAtlas.Region first = atlas.put(font, 0, 12, 0, bitmap(10, 20, 1));
+        final GlyphAtlas.Region second = atlas.put(font, 1, 12, 0, bitmap(10, 5, 2));
+        assertEquals(0, first.getX());
+        assertEquals(0, first.getY());
+        assertEquals(11, second.getX());
+        assertEquals(0, second.getY());
+        final ArrayList<GlyphAtlas.Region> regions = new ArrayList<>();
+        regions.add(first);
+        regions.add(second);
+        for (int i = 2; i < 40; i++) {
+            final GlyphAtlas.Region region =
+                    atlas.put(font, i, 12, 0, bitmap(3 + i % 7, 2 + i % 5, i));
+            if (region == null || !atlas.isValid(first))
+                break;
+            assertTrue(region.getX() + region.getWidth() <= 64);
+            assertTrue(region.getY() + region.getHeight() <= 64);
+            for (GlyphAtlas.Region other : regions)
+                assertFalse(overlaps(region, other, 1));
+            regions.add(region);
+        }
+        // 像素被复制到页面
+        final GlyphAtlas.Page page = atlas.getPage(0);
+        assertEquals(2, page.getPixels()[second.getY() * 64 + second.getX()]);
+        assertEquals(0, page.getDirtyLeft());
+        assertEquals(0, page.getDirtyTop());
+        assertTrue(page.isDirty());
+        page.clearDirty();
+        assertFalse(page.isDirty());
+        assertEquals(0f, second.getV0(), 1e-6f);
+        assertEquals(11f / 64, second.getU0(), 1e-6f);
+    }
+
+    @Test
+    public void lookupAndReplace() {
+        final GlyphAtlas atlas = new GlyphAtlas(32, 32, 2, 0);
+        final Object font = new Object();
+        final GlyphAtlas.Region region = atlas.put(font, 7, 12, 1, bitmap(4, 4, 9));
+        assertSame(region, atlas.get(font, 7, 12, 1));
+        assertNull(atlas.get(font, 7, 12, 0));
+        assertNull(atlas.get(new Object(), 7, 12, 1));
+        final GlyphAtlas.Region replaced = atlas.put(font, 7, 12, 1, bitmap(6, 6, 9));
+        assertSame(replaced, atlas.get(font, 7, 12, 1));
+        assertEquals(1, atlas.getRegionCount());
+    }
+
+    @Test
+    public void reusedLookupKey() throws InterruptedException {
+        final GlyphAtlas atlas = new GlyphAtlas(32, 32, 1, 0);
+        final Object font = new Object();
+        final GlyphAtlas.Region a = atlas.put(font, 1, 12, 0, bitmap(2, 2, 1));
+        final GlyphAtlas.Region b = atlas.put(font, 1, 12, 1, bitmap(2, 2, 2));
+        final GlyphAtlas.Region c = atlas.put(font, 1, 13, 0, bitmap(2, 2, 3));
+        for (int i = 0; i < 3; i++) {
+            assertSame(a, atlas.get(font, 1, 12, 0));
+            assertSame(b, atlas.get(font, 1, 12, 1));
+            assertSame(c, atlas.get(font, 1, 13, 0));
+            assertNull(atlas.get(font, 2, 12, 0));
+        }
+        // 查找用的键不持有未打包的字体
+        Object other = new Object();
+        final WeakReference<Object> reference = new WeakReference<>(other);
+        assertNull(atlas.get(other, 1, 12, 0));
+        other = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertSame(a, atlas.get(font, 1, 12, 0));
+    }
+
+    @Test
+    public void emptyAndOversizedGlyphs() {
+        final GlyphAtlas atlas = new GlyphAtlas(16, 16, 1, 1);
+        final Object font = new Object();
+        final GlyphAtlas.Region space =
+                atlas.put(font, 3, 12, 0, new GlyphBitmap(0, 0, 0, 0, new byte[0]));
+        assertNotNull(space);
+        assertTrue(space.isEmpty());
+        assertTrue(atlas.isValid(space));
+        assertSame(space, atlas.get(font, 3, 12, 0));
+        assertEquals(0, atlas.getPageCount());
+        assertNull(atlas.put(font, 4, 12, 0, bitmap(16, 4, 1)));// 加上间距后超出页面
+    }
+
+    @Test
+    public void leastRecentlyUsedPageIsRecycled() {
+        final GlyphAtlas atlas = new GlyphAtlas(16, 16, 2, 0);
+        final Object font = new Object();
+        final GlyphAtlas.Region a = atlas.put(font, 0, 12, 0, bitmap(16, 16, 1));
+        final GlyphAtlas.Region b = atlas.put(font, 1, 12, 0, bitmap(16, 16, 2));
+        assertEquals(2, atlas.getPageCount());
+        assertNotNull(atlas.get(font, 0, 12, 0));// 页面 0 变为最近使用
+        final GlyphAtlas.Region c = atlas.put(font, 2, 12, 0, bitmap(16, 16, 3));
+        assertEquals(b.getPage(), c.getPage());
+        assertFalse(atlas.isValid(b));
+        assertTrue(atlas.isValid(a));
+        assertTrue(atlas.isValid(c));
+        assertNull(atlas.get(font, 1, 12, 0));
+        assertEquals(2, atlas.getRegionCount());
+        atlas.clear();
+        assertEquals(0, atlas.getRegionCount());
+        assertFalse(atlas.isValid(a));
+    }
+}
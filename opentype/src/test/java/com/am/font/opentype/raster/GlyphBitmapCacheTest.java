@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 字形位图缓存测试
+ */
+public class GlyphBitmapCacheTest {
+
+    private static GlyphBitmap bitmap(int size, int seed) {
+        final byte[] coverage = new byte[size * size];
+        for (int i = 0; i < coverage.length; i++)
+            coverage[i] = (byte) (i * 31 + seed);
+        return new GlyphBitmap(size, size, seed, size, coverage);
+    }
+
+    private static void roundTrip(GlyphBitmapCache cache) {
+        final Object font = new Object();
+        final GlyphBitmap bitmap = bitmap(12, 3);
+        cache.put(font, 5, 16, 0.3f, bitmap);
+        assertNull(cache.get(font, 5, 16, 0.6f));// 不同的亚像素相位
+        assertNull(cache.get(new Object(), 5, 16, 0.3f));// 不同的字体
+        final GlyphBitmap cached = cache.get(font, 5, 16, 1.3f);
+        assertNotNull(cached);
+        assertEquals(bitmap, cached);
+        final GlyphBitmapCache.BitmapBuffer buffer = new GlyphBitmapCache.BitmapBuffer();
+        assertFalse(cache.get(font, 6, 16, 0.3f, buffer));
+        assertTrue(cache.get(font, 5, 16, 0.3f, buffer));
+        assertEquals(12, buffer.getWidth());
+        assertEquals(12, buffer.getHeight());
+        assertEquals(3, buffer.getLeft());
+        assertEquals(12, buffer.getTop());
+        assertEquals(bitmap, buffer.toBitmap());
+        final byte[] coverage = buffer.getCoverage();
+        cache.put(font, 7, 16, 0, bitmap(4, 1));
+        assertTrue(cache.get(font, 7, 16, 0, buffer));
+        assertSame(coverage, buffer.getCoverage());// 较小的位图复用缓冲区
+        assertEquals(bitmap(4, 1), buffer.toBitmap());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        cache.remove(font);
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void heapRoundTrip() {
+        roundTrip(new GlyphBitmapCache(1 << 20));
+    }
+
+    @Test
+    public void offHeapRoundTrip() {
+        final GlyphBitmapCache cache = new GlyphBitmapCache(1 << 20, 4, true);
+        assertTrue(cache.isOffHeap());
+        roundTrip(cache);
+    }
+
+    @Test
+    public void sizeStaysWithinBudget() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            final GlyphBitmapCache cache = new GlyphBitmapCache(1 << 16, 1, offHeap);
+            final Object font = new Object();
+            for (int i = 0; i < 1000; i++) {
+                cache.put(font, i, 12 + i % 7, 0, bitmap(8 + i % 24, i));
+                assertTrue(cache.getSize() <= cache.getMaxSize());
+            }
+            // 最近放入的位图仍然可用
+            assertEquals(bitmap(8 + 999 % 24, 999), cache.get(font, 999, 12 + 999 % 7, 0));
+            cache.clear();
+            assertEquals(0, cache.getCount());
+        }
+    }
+
+    @Test
+    public void slabExhaustionEvictsOtherStripes() {
+        // 堆外内存只有一页，被 1024 字节大小类占用后，放入其他大小类的位图需要淘汰所有分段
+        final GlyphBitmapCache cache = new GlyphBitmapCache(1 << 16, 1, true);
+        final Object font = new Object();
+        for (int i = 0; i < 64; i++)
+            cache.put(font, i, 16, 0, bitmap(32, i));
+        assertTrue(cache.getCount() > 0);
+        final GlyphBitmap large = bitmap(40, 9);
+        for (int i = 0; i < 16; i++) {
+            cache.put(font, 1000 + i, 16, 0, large);
+            assertEquals(large, cache.get(font, 1000 + i, 16, 0));
+        }
+        for (int i = 0; i < 64; i++)
+            assertNull(cache.get(font, i, 16, 0));
+    }
+
+    @Test
+    public void rasterizesOnMiss() throws IOException {
+        final OpenType font = new GlyphDataBuilder()
+                .simple(new int[]{3}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000}, null)
+                .font(false, 0).parse();
+        final GlyphRasterizer rasterizer =
+                new GlyphRasterizer(font.getGlyphTable(), font.getHeadTable());
+        final GlyphBitmapCache cache = new GlyphBitmapCache(1 << 20);
+        final GlyphBitmap first = cache.get(rasterizer, font, 0, 10, 0.5f);
+        assertEquals(11, first.getWidth());
+        assertSame(first, cache.get(rasterizer, font, 0, 10, 0.6f));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void bufferHitsSmallerThanCapacity() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            final GlyphBitmapCache.BitmapBuffer buffer = new GlyphBitmapCache.BitmapBuffer();
+            assertTrue(buffer.isEmpty());
+            final GlyphBitmapCache cache = new GlyphBitmapCache(1 << 20, 4, offHeap);
+            // 长度不是 8 的倍数的位图
+            cache.put(this, 1, 8, 0, bitmap(3, 2));
+            cache.put(this, 2, 8, 0, bitmap(7, 5));
+            assertTrue(cache.get(this, 2, 8, 0, buffer));
+            assertArrayEquals(bitmap(7, 5).getCoverage(), buffer.toBitmap().getCoverage());
+            assertTrue(cache.get(this, 1, 8, 0, buffer));
+            assertArrayEquals(bitmap(3, 2).getCoverage(), buffer.toBitmap().getCoverage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.raster;
+
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 字形光栅化器覆盖率测试
+ */
+public class GlyphRasterizerTest {
+
+    private static GlyphRasterizer sRasterizer;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final OpenType font = new GlyphDataBuilder()
+                .empty()
+                .simple(new int[]{3}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000}, null)
+                .simple(new int[]{2}, new int[]{0, 0, 1000, 0, 0, 1000}, null)
+                .simple(new int[]{3, 7}, new int[]{0, 0, 1000, 0, 1000, 1000, 0, 1000,
+                        250, 250, 250, 750, 750, 750, 750, 250}, null)
+                .font(false, 0).parse();
+        sRasterizer = new GlyphRasterizer(font.getGlyphTable(), font.getHeadTable());
+    }
+
+    private static long sum(GlyphBitmap bitmap) {
+        long sum = 0;
+        for (byte value : bitmap.getCoverage())
+            sum += value & 0xFF;
+        return sum;
+    }
+
+    @Test
+    public void emptyGlyph() throws IOException {
+        assertTrue(sRasterizer.rasterize(0, 16).isEmpty());
+    }
+
+    @Test
+    public void squareIsFullyCovered() throws IOException {
+        final GlyphBitmap bitmap = sRasterizer.rasterize(1, 10);
+        assertEquals(10, bitmap.getWidth());
+        assertEquals(10, bitmap.getHeight());
+        assertEquals(0, bitmap.getLeft());
+        assertEquals(10, bitmap.getTop());
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++)
+                assertEquals(255, bitmap.getCoverage(x, y));
+        }
+    }
+
+    @Test
+    public void subpixelOffsetSplitsEdgeCoverage() throws IOException {
+        final GlyphBitmap bitmap = sRasterizer.rasterize(1, 10, 0.5f, 0);
+        assertEquals(11, bitmap.getWidth());
+        assertEquals(128, bitmap.getCoverage(0, 5), 1);
+        assertEquals(255, bitmap.getCoverage(5, 5));
+        assertEquals(128, bitmap.getCoverage(10, 5), 1);
+    }
+
+    @Test
+    public void coverageMatchesArea() throws IOException {
+        // 直角三角形面积为 50 平方像素
+        final GlyphBitmap triangle = sRasterizer.rasterize(2, 10);
+        assertEquals(50 * 255, sum(triangle), 10 * 2);
+        // 对角线穿过的像素覆盖一半
+        assertEquals(128, triangle.getCoverage(4, 4), 1);
+        assertEquals(255, triangle.getCoverage(0, 9));
+        assertEquals(0, triangle.getCoverage(9, 0));
+    }
+
+    @Test
+    public void nonZeroWindingCutsHole() throws IOException {
+        // 内轮廓方向相反，在中心形成 5x5 的孔
+        final GlyphBitmap bitmap = sRasterizer.rasterize(3, 20);
+        assertEquals(0, bitmap.getCoverage(10, 10));
+        assertEquals(255, bitmap.getCoverage(2, 2));
+        assertEquals((400 - 100) * 255, sum(bitmap), 10);
+    }
+}
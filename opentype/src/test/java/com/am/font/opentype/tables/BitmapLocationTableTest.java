@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 'EBLC'/'EBDT' 与 'CBLC'/'CBDT' 位图字形测试
+ */
+public class BitmapLocationTableTest {
+
+    private static void size(DataWriter writer, int arrayOffset, int subTables, int start,
+                             int end, int ppem, int bitDepth) {
+        writer.u32(arrayOffset).u32(0).u32(subTables).u32(0)
+                .u8(ppem).u8(-ppem / 4 & 0xFF).zeros(10)
+                .zeros(12)
+                .u16(start).u16(end).u8(ppem).u8(ppem).u8(bitDepth)
+                .u8(BitmapSize.FLAG_HORIZONTAL_METRICS);
+    }
+
+    /**
+     * 两个尺寸：12 像素含字形 1-2（索引格式 1，图像格式 1，字形 2 缺失），
+     * 20 像素含字形 1-3（索引格式 2，图像格式 5）
+     */
+    private static OpenType embedded() throws IOException {
+        final DataWriter eblc = new DataWriter().u16(2).u16(0).u32(2);
+        size(eblc, 104, 1, 1, 2, 12, 1);
+        size(eblc, 132, 1, 1, 3, 20, 1);
+        eblc.u16(1).u16(2).u32(8)
+                .u16(1).u16(1).u32(4).u32(0).u32(7).u32(7);
+        eblc.u16(1).u16(3).u32(8)
+                .u16(2).u16(5).u32(11).u32(1)
+                .u8(2).u8(4).u8(0).u8(2).u8(5).u8(0).u8(0).u8(0);
+        assertEquals(160, eblc.size());
+        final DataWriter ebdt = new DataWriter().u16(2).u16(0)
+                .u8(2).u8(3).u8(1).u8(2).u8(4).u8(0xE0).u8(0xA0)
+                .u8(0xF0).u8(0x0F).u8(0xAA);
+        return new FontBuilder().table(TableRecord.TAG_EBLC, eblc.toByteArray())
+                .table(TableRecord.TAG_EBDT, ebdt.toByteArray()).parse();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    @Test
+    public void findSize() throws IOException {
+        final BitmapLocationTable eblc = embedded().getEmbeddedBitmapLocationTable();
+        assertEquals(2, eblc.getMajorVersion());
+        assertEquals(2, eblc.getNumSizes());
+        assertEquals(12, eblc.getSize(0).getPpemY());
+        assertEquals(-3, eblc.getSize(0).getHoriDescender());
+        // 优先取不小于目标的最小尺寸，否则取最大尺寸
+        assertEquals(0, eblc.findSize(12, 1));
+        assertEquals(0, eblc.findSize(8, 1));
+        assertEquals(1, eblc.findSize(14, 1));
+        assertEquals(1, eblc.findSize(30, 1));
+        assertEquals(1, eblc.findSize(12, 3));
+        assertEquals(-1, eblc.findSize(12, 4));
+    }
+
+    @Test
+    public void embeddedGlyphs() throws IOException {
+        final OpenType font = embedded();
+        final BitmapLocationTable eblc = font.getEmbeddedBitmapLocationTable();
+        final BitmapDataTable ebdt = font.getEmbeddedBitmapDataTable();
+        final BitmapGlyph small = ebdt.getGlyph(eblc, 0, 1);
+        assertEquals(1, small.getImageFormat());
+        assertFalse(small.isBitAligned());
+        assertEquals(3, small.getWidth());
+        assertEquals(2, small.getHeight());
+        assertEquals(1, small.getHoriBearingX());
+        assertEquals(2, small.getHoriBearingY());
+        assertEquals(4, small.getHoriAdvance());
+        assertArrayEquals(new byte[]{(byte) 0xE0, (byte) 0xA0}, bytes(small.getImageData()));
+        assertNull(ebdt.getGlyph(eblc, 0, 2));
+        assertNull(ebdt.getGlyph(eblc, 0, 3));
+        final BitmapGlyph large = ebdt.getGlyph(eblc, 1, 3);
+        assertEquals(5, large.getImageFormat());
+        assertTrue(large.isBitAligned());
+        assertEquals(4, large.getWidth());
+        assertEquals(5, large.getHoriAdvance());
+        assertArrayEquals(new byte[]{(byte) 0xAA}, bytes(large.getImageData()));
+        assertArrayEquals(new byte[]{0x0F}, bytes(ebdt.getGlyph(eblc, 1, 2).getImageData()));
+    }
+
+    @Test
+    public void colorPng() throws IOException {
+        // 单个尺寸，索引格式 3，图像格式 17
+        final DataWriter cblc = new DataWriter().u16(3).u16(0).u32(1);
+        size(cblc, 56, 1, 1, 1, 109, 32);
+        cblc.u16(1).u16(1).u32(8)
+                .u16(3).u16(17).u32(4).u16(0).u16(13);
+        final byte[] png = {(byte) 0x89, 'P', 'N', 'G'};
+        final DataWriter cbdt = new DataWriter().u16(3).u16(0)
+                .u8(8).u8(9).u8(0).u8(8).u8(10).u32(png.length).bytes(png);
+        final OpenType font = new FontBuilder().table(TableRecord.TAG_CBLC, cblc.toByteArray())
+                .table(TableRecord.TAG_CBDT, cbdt.toByteArray()).parse();
+        final BitmapLocationTable location = font.getColorBitmapLocationTable();
+        final BitmapGlyph glyph = font.getColorBitmapDataTable().getGlyph(location, 0, 1);
+        assertEquals(32, glyph.getBitDepth());
+        assertTrue(glyph.isPng());
+        assertEquals(9, glyph.getWidth());
+        assertEquals(10, glyph.getHoriAdvance());
+        assertArrayEquals(png, bytes(glyph.getImageData()));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 测试用 'CFF ' 表构造器，仅包含单个名称键控字体，不含 Private DICT
+ */
+public class CffBuilder {
+
+    private final ArrayList<byte[]> mCharStrings = new ArrayList<>();
+    private double[] mFontMatrix;
+    private int mPredefinedCharset;
+    private int[] mCharset;
+
+    public CffBuilder fontMatrix(double... matrix) {
+        mFontMatrix = matrix;
+        return this;
+    }
+
+    /**
+     * 使用预定义字符集
+     *
+     * @param id 0 为 ISOAdobe，1 为 Expert，2 为 ExpertSubset
+     */
+    public CffBuilder predefinedCharset(int id) {
+        mPredefinedCharset = id;
+        mCharset = null;
+        return this;
+    }
+
+    /**
+     * 使用格式 0 的自定义字符集
+     *
+     * @param sids 字形 1 起的 SID
+     */
+    public CffBuilder charset(int... sids) {
+        mCharset = sids;
+        return this;
+    }
+
+    /**
+     * 添加 Type 2 字符串
+     *
+     * @param program 以空格分隔的操作数与运算符，例如 "0 0 rmoveto endchar"
+     */
+    public CffBuilder glyph(String program) {
+        mCharStrings.add(charString(program));
+        return this;
+    }
+
+    /**
+     * 编码 Type 2 字符串，整数以 16 位形式写入
+     *
+     * @param program 以空格分隔的操作数与运算符
+     * @return 字符串数据
+     */
+    static byte[] charString(String program) {
+        final DataWriter writer = new DataWriter();
+        for (String token : program.trim().split("\\s+")) {
+            switch (token) {
+                case "rlineto":
+                    writer.u8(5);
+                    break;
+                case "rrcurveto":
+                    writer.u8(8);
+                    break;
+                case "endchar":
+                    writer.u8(14);
+                    break;
+                case "blend":
+                    writer.u8(16);
+                    break;
+                case "rmoveto":
+                    writer.u8(21);
+                    break;
+                default:
+                    writer.u8(28).u16(Integer.parseInt(token));
+                    break;
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 编码 INDEX，偏移均为 4 字节
+     *
+     * @param items 数据
+     * @param cff2  是否为 CFF2（count 为 32 位）
+     * @return INDEX 数据
+     */
+    static byte[] index(List<byte[]> items, boolean cff2) {
+        final DataWriter writer = new DataWriter();
+        if (cff2)
+            writer.u32(items.size());
+        else
+            writer.u16(items.size());
+        if (items.isEmpty())
+            return writer.toByteArray();
+        writer.u8(4);
+        int offset = 1;
+        writer.u32(offset);
+        for (byte[] item : items) {
+            offset += item.length;
+            writer.u32(offset);
+        }
+        for (byte[] item : items)
+            writer.bytes(item);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 写入 5 字节整数操作数
+     *
+     * @param writer 写入器
+     * @param value  值
+     */
+    static void integer(DataWriter writer, int value) {
+        writer.u8(29).u32(value);
+    }
+
+    private static void real(DataWriter writer, double value) {
+        final String text = String.format(Locale.US, "%.6E", value);
+        final StringBuilder nibbles = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c >= '0' && c <= '9')
+                nibbles.append(c);
+            else if (c == '.')
+                nibbles.append('a');
+            else if (c == '-')
+                nibbles.append(i > 0 && text.charAt(i - 1) == 'E' ? "" : "e");
+            else if (c == 'E')
+                nibbles.append(text.charAt(i + 1) == '-' ? 'c' : 'b');
+        }
+        nibbles.append('f');
+        if (nibbles.length() % 2 != 0)
+            nibbles.append('f');
+        writer.u8(30);
+        for (int i = 0; i < nibbles.length(); i += 2)
+            writer.u8(Integer.parseInt(nibbles.substring(i, i + 2), 16));
+    }
+
+    private byte[] topDict(int charset, int charStrings) {
+        final DataWriter writer = new DataWriter();
+        if (mFontMatrix != null) {
+            for (double value : mFontMatrix)
+                real(writer, value);
+            writer.u8(12).u8(7);
+        }
+        integer(writer, charset);
+        writer.u8(15);
+        integer(writer, charStrings);
+        writer.u8(17);
+        return writer.toByteArray();
+    }
+
+    public byte[] build() {
+        final byte[] name = "Test".getBytes();
+        final ArrayList<byte[]> names = new ArrayList<>();
+        names.add(name);
+        final byte[] header = {1, 0, 4, 4};
+        final byte[] nameIndex = index(names, false);
+        final ArrayList<byte[]> dicts = new ArrayList<>();
+        dicts.add(topDict(0, 0));
+        final int topSize = index(dicts, false).length;
+        final byte[] empty = index(new ArrayList<byte[]>(), false);
+        final int charsetOffset = header.length + nameIndex.length + topSize + empty.length * 2;
+        byte[] charset = new byte[0];
+        if (mCharset != null) {
+            final DataWriter writer = new DataWriter().u8(0);
+            for (int sid : mCharset)
+                writer.u16(sid);
+            charset = writer.toByteArray();
+        }
+        final int charStringsOffset = charsetOffset + charset.length;
+        dicts.clear();
+        dicts.add(topDict(mCharset != null ? charsetOffset : mPredefinedCharset,
+                charStringsOffset));
+        return new DataWriter().bytes(header).bytes(nameIndex).bytes(index(dicts, false))
+                .bytes(empty).bytes(empty).bytes(charset).bytes(index(mCharStrings, false))
+                .toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 'COLR' 与 'CPAL' 表测试
+ */
+public class ColorTableTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0x8000FF00;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static void color(DataWriter writer, int argb) {
+        // BGRA
+        writer.u8(argb & 0xFF).u8(argb >>> 8 & 0xFF).u8(argb >>> 16 & 0xFF).u8(argb >>> 24);
+    }
+
+    /**
+     * 两个调色板各两个条目，调色板 1 适用于深色背景
+     */
+    private static byte[] cpal() {
+        final DataWriter writer = new DataWriter().u16(1).u16(2).u16(2).u16(4).u32(28)
+                .u16(0).u16(2)
+                .u32(44).u32(0).u32(0);
+        color(writer, RED);
+        color(writer, GREEN);
+        color(writer, BLUE);
+        color(writer, WHITE);
+        return writer.u32(0).u32(ColorPaletteTable.USABLE_WITH_DARK_BACKGROUND).toByteArray();
+    }
+
+    /**
+     * 字形 5 为 v0 图层（字形 10 用条目 0，字形 11 用前景色）；
+     * 字形 6 为 PaintGlyph(12, PaintSolid(1, 0.5))，字形 7 为 PaintColrGlyph(6)，
+     * 字形 8 为引用自身的 PaintColrGlyph；字形 6-7 有裁剪框
+     */
+    private static byte[] colr() {
+        final DataWriter writer = new DataWriter().u16(1).u16(1).u32(34).u32(40).u16(2)
+                .u32(48).u32(0).u32(88).u32(0).u32(0);
+        writer.u16(5).u16(0).u16(2);
+        writer.u16(10).u16(0).u16(11).u16(ColorTable.FOREGROUND_PALETTE_INDEX);
+        writer.u32(3).u16(6).u32(22).u16(7).u32(33).u16(8).u32(36);
+        writer.u8(10).u24(6).u16(12)
+                .u8(2).u16(1).f2dot14(0.5f);
+        writer.u8(11).u16(6);
+        writer.u8(11).u16(8);
+        writer.u8(0);
+        writer.u8(1).u32(1).u16(6).u16(7).u24(12)
+                .u8(1).u16(-10 & 0xFFFF).u16(-20 & 0xFFFF).u16(500).u16(700);
+        return writer.toByteArray();
+    }
+
+    private static OpenType parse() throws IOException {
+        return new FontBuilder().table(TableRecord.TAG_COLR, colr())
+                .table(TableRecord.TAG_CPAL, cpal()).parse();
+    }
+
+    @Test
+    public void palettes() throws IOException {
+        final ColorPaletteTable cpal = parse().getColorPaletteTable();
+        assertEquals(2, cpal.getNumPalettes());
+        assertEquals(2, cpal.getNumPaletteEntries());
+        assertEquals(GREEN, cpal.getColor(0, 1));
+        assertArrayEquals(new int[]{BLUE, WHITE}, cpal.getPalette(1));
+        assertEquals(1, cpal.findPalette(ColorPaletteTable.USABLE_WITH_DARK_BACKGROUND));
+        assertEquals(0, cpal.findPalette(ColorPaletteTable.USABLE_WITH_LIGHT_BACKGROUND));
+        assertEquals(0xFFFF, cpal.getPaletteLabel(0));
+    }
+
+    @Test
+    public void layers() throws IOException {
+        final OpenType font = parse();
+        final ColorTable colr = font.getColorTable();
+        final ColorPaletteTable cpal = font.getColorPaletteTable();
+        assertTrue(colr.isColorGlyph(5));
+        assertFalse(colr.isColorGlyph(4));
+        assertNull(colr.getPaint(4, cpal, 0));
+        final ColorPaint.Layers layers = (ColorPaint.Layers) colr.getPaint(5, cpal, 1);
+        assertEquals(2, layers.getLayerCount());
+        final ColorPaint.Glyph first = (ColorPaint.Glyph) layers.getLayer(0);
+        assertEquals(10, first.getGlyphId());
+        assertEquals(BLUE, ((ColorPaint.Solid) first.getPaint()).getColor());
+        final ColorPaint.Solid second =
+                (ColorPaint.Solid) ((ColorPaint.Glyph) layers.getLayer(1)).getPaint();
+        assertTrue(second.isForeground());
+        assertEquals(RED, ((ColorPaint.Solid) ((ColorPaint.Glyph) ((ColorPaint.Layers)
+                colr.getPaint(5, cpal, 0)).getLayer(0)).getPaint()).getColor());
+    }
+
+    @Test
+    public void paintGraph() throws IOException {
+        final OpenType font = parse();
+        final ColorTable colr = font.getColorTable();
+        final ColorPaletteTable cpal = font.getColorPaletteTable();
+        final ColorPaint.Glyph glyph = (ColorPaint.Glyph) colr.getPaint(6, cpal, 0);
+        assertEquals(12, glyph.getGlyphId());
+        // 条目 1 的 alpha 为 0x80，再乘以 0.5
+        assertEquals(0x4000FF00, ((ColorPaint.Solid) glyph.getPaint()).getColor());
+        assertSame(glyph, colr.getPaint(6, cpal, 0));
+        // 缓存满时只淘汰最近最少使用的条目
+        for (int i = 0; i < 10000; i++) {
+            assertNull(colr.getPaint(1000 + i, cpal, 0));
+            assertSame(glyph, colr.getPaint(6, cpal, 0));
+        }
+        final ColorPaint.ColrGlyph reference = (ColorPaint.ColrGlyph) colr.getPaint(7, cpal, 0);
+        assertEquals(6, reference.getGlyphId());
+        assertEquals(glyph, reference.getPaint());
+        assertArrayEquals(new float[]{-10, -20, 500, 700}, colr.getClipBox(7), 0);
+        assertNull(colr.getClipBox(8));
+        try {
+            colr.getPaint(8, cpal, 0);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+}
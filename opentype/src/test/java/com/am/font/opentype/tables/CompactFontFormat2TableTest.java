@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 'CFF2' 表 blend 解码与区域系数缓存测试
+ */
+public class CompactFontFormat2TableTest {
+
+    /**
+     * 单轴、两个区域：区域 0 的峰值在 +1，区域 1 的峰值在 -1
+     */
+    private static byte[] build(String... glyphs) {
+        final DataWriter store = new DataWriter()
+                .u16(1).u32(12).u16(1).u32(28)
+                .u16(1).u16(2)
+                .f2dot14(0).f2dot14(1).f2dot14(1)
+                .f2dot14(-1).f2dot14(-1).f2dot14(0)
+                .u16(0).u16(0).u16(2).u16s(0, 1);
+        final ArrayList<byte[]> charStrings = new ArrayList<>();
+        for (String glyph : glyphs)
+            charStrings.add(CffBuilder.charString(glyph));
+        final byte[] globalSubrs = CffBuilder.index(new ArrayList<byte[]>(), true);
+        final int topLength = 19;
+        final int vstore = 5 + topLength + globalSubrs.length;
+        final int charStringsOffset = vstore + 2 + store.size();
+        final byte[] charStringsIndex = CffBuilder.index(charStrings, true);
+        final int fdArray = charStringsOffset + charStringsIndex.length;
+        final DataWriter top = new DataWriter();
+        CffBuilder.integer(top, charStringsOffset);
+        top.u8(17);
+        CffBuilder.integer(top, fdArray);
+        top.u8(12).u8(36);
+        CffBuilder.integer(top, vstore);
+        top.u8(24);
+        assertEquals(topLength, top.size());
+        return new DataWriter().u8(2).u8(0).u8(5).u16(topLength).bytes(top.toByteArray())
+                .bytes(globalSubrs).u16(store.size()).bytes(store.toByteArray())
+                .bytes(charStringsIndex)
+                .bytes(CffBuilder.index(Collections.singletonList(new byte[0]), true))
+                .toByteArray();
+    }
+
+    private static CompactFontFormat2Table parse(String... glyphs) throws IOException {
+        return new FontBuilder().version(0x4F54544F).table(TableRecord.TAG_CFF2, build(glyphs))
+                .parse().getCompactFontFormat2Table();
+    }
+
+    private static String decode(CompactFontFormat2Table cff2, int glyphId, float... coordinates)
+            throws IOException {
+        final RecordingSink sink = new RecordingSink();
+        cff2.decodeOutline(glyphId, coordinates.length == 0 ? null : coordinates, sink);
+        return sink.toString();
+    }
+
+    @Test
+    public void blend() throws IOException {
+        final CompactFontFormat2Table cff2 =
+                parse("0 0 rmoveto 500 100 -200 1 blend 0 rlineto 0 700 rlineto");
+        assertEquals(1, cff2.getNumGlyphs());
+        assertEquals(2, cff2.getItemVariationStore().getRegionCount());
+        assertEquals("M0,0 L500,0 L500,700 Z", decode(cff2, 0));
+        assertEquals("M0,0 L600,0 L600,700 Z", decode(cff2, 0, 1));
+        assertEquals("M0,0 L550,0 L550,700 Z", decode(cff2, 0, 0.5f));
+        assertEquals("M0,0 L300,0 L300,700 Z", decode(cff2, 0, -1));
+        assertEquals("M0,0 L400,0 L400,700 Z", decode(cff2, 0, -0.5f));
+    }
+
+    @Test
+    public void regionScalars() throws IOException {
+        final ItemVariationStore store = parse("0 0 rmoveto").getItemVariationStore();
+        assertEquals(0.25f, store.getRegionScalar(0, new float[]{0.25f}), 0);
+        assertEquals(0, store.getRegionScalar(1, new float[]{0.25f}), 0);
+        assertEquals(0.75f, store.getRegionScalar(1, new float[]{-0.75f}), 0);
+        assertEquals(0, store.getRegionScalar(0, null), 0);
+        assertArrayEquals(new float[]{0.5f, 0}, store.getScalars(new float[]{0.5f})[0], 0);
+    }
+
+    @Test
+    public void scalarsCacheEvictsLeastRecentlyUsed() throws IOException {
+        final ItemVariationStore store = parse("0 0 rmoveto").getItemVariationStore();
+        final float[][] first = store.getScalars(new float[]{0});
+        final float[][] second = store.getScalars(new float[]{0.01f});
+        // 命中时按坐标内容匹配，不依赖数组引用
+        assertSame(first, store.getScalars(new float[]{0}));
+        for (int i = 2; i < 32; i++) {
+            store.getScalars(new float[]{i / 100f});
+        }
+        assertSame(first, store.getScalars(new float[]{0}));
+        store.getScalars(new float[]{0.5f});
+        assertSame(first, store.getScalars(new float[]{0}));
+        assertNotSame(second, store.getScalars(new float[]{0.01f}));
+    }
+}
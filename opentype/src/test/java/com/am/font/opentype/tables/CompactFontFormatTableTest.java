@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 'CFF ' 表解析与 Type 2 字符串解码测试
+ */
+public class CompactFontFormatTableTest {
+
+    private static final String RECTANGLE = "0 0 rmoveto 500 0 0 700 -500 0 rlineto endchar";
+    private static final String CURVE = "100 0 rmoveto 0 100 100 100 100 0 rrcurveto endchar";
+
+    private static CompactFontFormatTable parse(CffBuilder builder, int unitsPerEm)
+            throws IOException {
+        final FontBuilder font = new FontBuilder().version(0x4F54544F);
+        if (unitsPerEm > 0)
+            font.table(TableRecord.TAG_HEAD, FontBuilder.head(unitsPerEm, 0));
+        return font.table(TableRecord.TAG_CFF, builder.build()).parse()
+                .getCompactFontFormatTable();
+    }
+
+    private static String decode(CompactFontFormatTable cff, int glyphId) throws IOException {
+        final RecordingSink sink = new RecordingSink();
+        cff.decodeOutline(glyphId, sink);
+        return sink.toString();
+    }
+
+    @Test
+    public void decodesCharStrings() throws IOException {
+        final CompactFontFormatTable cff =
+                parse(new CffBuilder().glyph("endchar").glyph(RECTANGLE).glyph(CURVE), 1000);
+        assertEquals(3, cff.getNumGlyphs());
+        assertEquals("Test", cff.getFontName());
+        assertArrayEquals(new float[]{0.001f, 0, 0, 0.001f, 0, 0}, cff.getFontMatrix(), 0);
+        assertEquals("", decode(cff, 0));
+        assertEquals("M0,0 L500,0 L500,700 L0,700 Z", decode(cff, 1));
+        assertEquals("M100,0 C100,100 200,200 300,200 Z", decode(cff, 2));
+    }
+
+    @Test
+    public void fontMatrixIsApplied() throws IOException {
+        final CffBuilder builder = new CffBuilder().glyph("endchar").glyph(RECTANGLE)
+                .fontMatrix(0.0005, 0, 0, 0.0005, 0, 0);
+        // 字形空间为 2000 单位每 em，换算为 'head' 的 1000 单位
+        assertEquals("M0,0 L250,0 L250,350 L0,350 Z", decode(parse(builder, 1000), 1));
+        // 与 'head' 一致时不缩放
+        assertEquals("M0,0 L500,0 L500,700 L0,700 Z", decode(parse(builder, 2000), 1));
+        // 缺少 'head' 时按 FontMatrix 推算每 em 单位数
+        assertEquals("M0,0 L500,0 L500,700 L0,700 Z", decode(parse(builder, 0), 1));
+    }
+
+    @Test
+    public void absentFontMatrixKeepsDesignUnits() throws IOException {
+        final String rectangle = "M0,0 L500,0 L500,700 L0,700 Z";
+        final CffBuilder builder = new CffBuilder().glyph("endchar").glyph(RECTANGLE);
+        assertEquals(rectangle, decode(parse(builder, 2048), 1));
+        // 显式声明的默认矩阵按 1000 单位每 em 换算
+        builder.fontMatrix(0.001, 0, 0, 0.001, 0, 0);
+        assertEquals("M0,0 L1024,0 L1024,1433.6 L0,1433.6 Z", decode(parse(builder, 2048), 1));
+    }
+
+    @Test
+    public void obliqueFontMatrix() throws IOException {
+        final CffBuilder builder = new CffBuilder().glyph("endchar").glyph(RECTANGLE)
+                .fontMatrix(0.001, 0, 0.00025, 0.001, 0.01, 0);
+        assertEquals("M10,0 L510,0 L685,700 L185,700 Z", decode(parse(builder, 1000), 1));
+    }
+
+    @Test
+    public void charsets() throws IOException {
+        final CompactFontFormatTable isoAdobe =
+                parse(new CffBuilder().glyph("endchar").glyph(RECTANGLE), 1000);
+        assertEquals(1, isoAdobe.getCharsetId(1));
+        final CompactFontFormatTable custom = parse(new CffBuilder()
+                .glyph("endchar").glyph(RECTANGLE).glyph(CURVE).charset(34, 66), 1000);
+        assertEquals(0, custom.getCharsetId(0));
+        assertEquals(34, custom.getCharsetId(1));
+        assertEquals(66, custom.getCharsetId(2));
+    }
+
+    @Test
+    public void expertCharsetsAreRejected() {
+        for (int id = 1; id <= 2; id++) {
+            try {
+                parse(new CffBuilder().glyph("endchar").predefinedCharset(id), 1000);
+                fail();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 'fvar' 与 'avar' 表测试
+ */
+public class FontVariationsTableTest {
+
+    private static final float F2DOT14 = 1 / 16384f;
+
+    private static OpenType parse(boolean avar) throws IOException {
+        // 0.5 映射为 0.8，其余分段保持不变
+        return parse(avar ? 0.5f : 0, avar ? 0.8f : 0);
+    }
+
+    private static OpenType parse(float from, float to) throws IOException {
+        final FontBuilder builder = new FontBuilder()
+                .table(TableRecord.TAG_FVAR, FontBuilder.fvar(100, 400, 900));
+        if (from != 0)
+            builder.table(TableRecord.TAG_AVAR, new DataWriter().u16s(1, 0, 0, 1, 4)
+                    .f2dot14(-1).f2dot14(-1).f2dot14(0).f2dot14(0)
+                    .f2dot14(from).f2dot14(to).f2dot14(1).f2dot14(1)
+                    .toByteArray());
+        return builder.parse();
+    }
+
+    @Test
+    public void normalize() throws IOException {
+        final OpenType font = parse(false);
+        final FontVariationsTable fvar = font.getFontVariationsTable();
+        assertEquals(1, fvar.getAxes().size());
+        assertEquals(0, font.getVariationInstance(400).getCoordinate(0), 0);
+        assertEquals(-0.5f, font.getVariationInstance(250).getCoordinate(0), 0);
+        assertEquals(0.25f, font.getVariationInstance(525).getCoordinate(0), 0);
+        // 超出轴范围的坐标被限制，缺少的轴取默认值
+        assertEquals(-1, font.getVariationInstance(0).getCoordinate(0), 0);
+        assertEquals(1, font.getVariationInstance(1000).getCoordinate(0), 0);
+        assertSame(font.getVariationInstance(400), font.getVariationInstance());
+        assertSame(font.getVariationInstance(400), fvar.getDefaultInstance(null));
+    }
+
+    @Test
+    public void avarMapping() throws IOException {
+        final OpenType font = parse(true);
+        final AxisVariationsTable avar = font.getAxisVariationsTable();
+        assertEquals(0.8f, avar.map(0, 0.5f), F2DOT14);
+        assertEquals(0.4f, font.getVariationInstance(525).getCoordinate(0), F2DOT14);
+        assertEquals(0.8f, font.getVariationInstance(650).getCoordinate(0), F2DOT14);
+        assertEquals(-0.5f, font.getVariationInstance(250).getCoordinate(0), 0);
+        assertEquals(1, font.getVariationInstance(900).getCoordinate(0), 0);
+        // 带与不带 avar 的实例分别缓存
+        assertEquals(0.5f, font.getFontVariationsTable().getInstance(null, 650)
+                .getCoordinate(0), 0);
+    }
+
+    @Test
+    public void roundedBeforeAvarMapping() throws IOException {
+        // 陡峭分段：最小的正 F2Dot14 值映射为 0.5
+        final OpenType font = parse(F2DOT14, 0.5f);
+        // 归一化为 0.6 / 16384，映射前先取整到 1 / 16384
+        final float user = 400 + 500 * 0.6f * F2DOT14;
+        assertEquals(0.5f, font.getVariationInstance(user).getCoordinate(0), 0);
+        assertEquals(0, font.getVariationInstance(400 + 500 * 0.4f * F2DOT14)
+                .getCoordinate(0), 0);
+    }
+
+    @Test
+    public void instancesAreInterned() throws IOException {
+        final FontVariationsTable fvar = parse(false).getFontVariationsTable();
+        final VariationInstance instance = fvar.getInstance(null, 650);
+        assertSame(instance, fvar.getInstance(null, 650));
+        // 用户坐标不同但归一化坐标相同：实例相等并共享归一化坐标，但保留各自的用户坐标
+        final VariationInstance clamped = fvar.getInstance(null, 900);
+        final VariationInstance beyond = fvar.getInstance(null, 1000);
+        assertEquals(clamped, beyond);
+        assertNotSame(clamped, beyond);
+        assertSame(clamped.getCoordinates(), beyond.getCoordinates());
+        assertEquals(900, clamped.getUserCoordinate(0), 0);
+        assertEquals(1000, beyond.getUserCoordinate(0), 0);
+        assertSame(beyond, fvar.getInstance(null, 1000));
+        final VariationInstance stale = fvar.getInstance(null, 200);
+        for (int i = 0; i < 1000; i++) {
+            fvar.getInstance(null, 400 + i * 0.5f);
+            assertSame(instance, fvar.getInstance(null, 650));
+            final VariationInstance over = fvar.getInstance(null, 1000 + i);
+            assertSame(clamped.getCoordinates(), over.getCoordinates());
+            assertEquals(1000 + i, over.getUserCoordinate(0), 0);
+        }
+        assertEquals(900, fvar.getInstance(null, 900).getUserCoordinate(0), 0);
+        // 最近最少使用的实例被淘汰，再次获取得到相等的新对象
+        final VariationInstance renewed = fvar.getInstance(null, 200);
+        assertEquals(stale, renewed);
+        assertEquals(stale.hashCode(), renewed.hashCode());
+        assertNotSame(stale, renewed);
+        assertSame(renewed, fvar.getInstance(null, 200));
+    }
+}
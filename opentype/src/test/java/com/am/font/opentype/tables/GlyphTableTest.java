@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.FileOpenTypeReader;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.am.font.opentype.GlyphDataBuilder.component;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 'glyf' 表复合字形展开测试
+ */
+public class GlyphTableTest {
+
+    private static final int XY = GlyphTable.ARGS_ARE_XY_VALUES;
+    private static final int SCALED = GlyphTable.SCALED_COMPONENT_OFFSET;
+    private static final int[] SQUARE = {0, 0, 100, 0, 100, 100, 0, 100};
+    private static final int[] TRIANGLE = {0, 0, 50, 0, 0, 50};
+    private static GlyphTable sGlyf;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final GlyphDataBuilder builder = new GlyphDataBuilder()
+                .simple(new int[]{3}, SQUARE, null)// 0
+                .simple(new int[]{2}, TRIANGLE, null)// 1
+                .composite(component(XY, 0, 10, 20),
+                        component(XY, 1, 300, 0, 1.5f))// 2
+                .composite(component(XY, 0, 0, 0),
+                        component(0, 1, 2, 1))// 3 点匹配
+                .composite(component(XY | SCALED, 1, 100, 0, 0, 1, -1, 0))// 4 旋转 90 度
+                .composite(component(XY | SCALED, 1, 10, 20, 1.5f))// 5
+                .composite(component(XY, 1, 10, 20, 1.5f))// 6
+                .composite(component(XY, 8, 1, 0))// 7
+                .composite(component(XY, 9, 1, 0))// 8
+                .composite(component(XY, 0, 1, 0))// 9
+                .composite(component(XY, 11, 0, 0))// 10 循环引用
+                .composite(component(XY, 10, 0, 0))// 11
+                .simple(new int[]{3, 7}, new int[]{0, 0, 100, 0, 100, 100, 0, 100,
+                        200, 0, 300, 0, 300, 100, 200, 100}, new boolean[]{
+                        true, false, false, true, false, false, false, false});// 12
+        final OpenType font = builder.font(false, 1).parse();
+        sGlyf = font.getGlyphTable();
+        assertNotNull(sGlyf);
+    }
+
+    private static void assertPoints(int glyphId, float... expected) throws IOException {
+        final GlyphTable.GlyphOutline outline = sGlyf.getGlyphOutline(glyphId);
+        final float[] xs = outline.getXCoordinates();
+        final float[] ys = outline.getYCoordinates();
+        assertEquals(expected.length / 2, outline.getNumberOfPoints());
+        for (int i = 0; i < expected.length / 2; i++) {
+            assertEquals("x" + i, expected[i * 2], xs[i], 1e-3f);
+            assertEquals("y" + i, expected[i * 2 + 1], ys[i], 1e-3f);
+        }
+    }
+
+    @Test
+    public void simpleGlyph() throws IOException {
+        assertPoints(0, 0, 0, 100, 0, 100, 100, 0, 100);
+        assertEquals(13, sGlyf.getNumGlyphs());
+    }
+
+    @Test
+    public void compositeIsFlattened() throws IOException {
+        final GlyphTable.GlyphOutline outline = sGlyf.getGlyphOutline(2);
+        assertEquals(2, outline.getNumberOfContours());
+        assertArrayEquals(new int[]{3, 6}, outline.getEndPtsOfContours());
+        assertPoints(2, 10, 20, 110, 20, 110, 120, 10, 120,
+                300, 0, 375, 0, 300, 75);
+    }
+
+    @Test
+    public void pointMatching() throws IOException {
+        // 三角形的点 1 (50, 0) 对齐到正方形的点 2 (100, 100)
+        assertPoints(3, 0, 0, 100, 0, 100, 100, 0, 100,
+                50, 100, 100, 100, 50, 150);
+    }
+
+    @Test
+    public void scaledOffsetUsesColumnLengths() throws IOException {
+        // 旋转不改变列向量长度，偏移保持不变
+        assertPoints(4, 100, 0, 100, 50, 50, 0);
+        // 缩放 1.5 倍，偏移同样缩放
+        assertPoints(5, 15, 30, 90, 30, 15, 105);
+        // 未设置 SCALED_COMPONENT_OFFSET 时偏移不缩放
+        assertPoints(6, 10, 20, 85, 20, 10, 95);
+    }
+
+    @Test
+    public void maxpDepthIsAdvisory() throws IOException {
+        // 'maxp' 声明深度为 1，实际嵌套 3 层仍可展开
+        assertPoints(7, 3, 0, 103, 0, 103, 100, 3, 100);
+    }
+
+    @Test
+    public void cycleIsRejected() {
+        try {
+            sGlyf.getGlyphOutline(10);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void outlineIsCached() throws IOException {
+        assertSame(sGlyf.getGlyphOutline(2), sGlyf.getGlyphOutline(2));
+    }
+
+    @Test
+    public void legacyConstructorReadsFirstGlyph() throws IOException {
+        final GlyphDataBuilder builder = new GlyphDataBuilder()
+                .simple(new int[]{2}, TRIANGLE, null);
+        final byte[] font = builder.font(false, 0).build();
+        final OpenType parsed = FontBuilder.parse(font, TableRecord.TAG_HEAD,
+                TableRecord.TAG_MAXP, TableRecord.TAG_GLYF);
+        assertNull(parsed.getGlyphTable());
+        try (FileOpenTypeReader reader = new FileOpenTypeReader(FontBuilder.write(font))) {
+            final GlyphTable glyf = new GlyphTable(reader,
+                    parsed.getTableRecord(TableRecord.TAG_GLYF));
+            assertEquals(1, glyf.getNumGlyphs());
+            assertEquals(1, glyf.getNumberOfContours());
+            assertEquals(50, glyf.getXMax());
+        }
+    }
+
+    @Test
+    public void decodeOutlineImpliesOnCurvePoints() throws IOException {
+        final RecordingSink sink = new RecordingSink();
+        sGlyf.decodeOutline(12, sink);
+        assertEquals("M0,0 Q100,0 100,50 Q100,100 0,100 Z" +
+                " M200,50 Q200,0 250,0 Q300,0 300,50 Q300,100 250,100 Q200,100 200,50 Z",
+                sink.toString());
+    }
+
+    @Test
+    public void decodeOutlineFlattensComposites() throws IOException {
+        final RecordingSink sink = new RecordingSink();
+        sGlyf.decodeOutline(2, sink);
+        assertEquals("M10,20 L110,20 L110,120 L10,120 Z M300,0 L375,0 L300,75 Z",
+                sink.toString());
+        final RecordingSink simple = new RecordingSink();
+        sGlyf.decodeOutline(1, simple);
+        assertEquals("M0,0 L50,0 L0,50 Z", simple.toString());
+    }
+}
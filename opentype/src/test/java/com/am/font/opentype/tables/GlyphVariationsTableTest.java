@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 'gvar' 表与未引用点增量推断（IUP）测试
+ */
+public class GlyphVariationsTableTest {
+
+    private static final int PRIVATE_PEAK = GlyphVariationsTable.EMBEDDED_PEAK_TUPLE |
+            GlyphVariationsTable.PRIVATE_POINT_NUMBERS;
+    private static OpenType sFont;
+
+    /**
+     * 字形 0 含两条轮廓：五点的方形（含底边中点）与三角形。
+     * 峰值 +1 的元组仅引用方形的点 0 与点 3，峰值 -1 的元组仅引用三角形的第一个点。
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final GlyphDataBuilder glyphs = new GlyphDataBuilder()
+                .simple(new int[]{4, 7}, new int[]{0, 0, 50, 0, 100, 0, 100, 100, 0, 100,
+                        200, 0, 300, 0, 200, 100}, null)
+                .simple(new int[]{2}, new int[]{0, 0, 50, 0, 0, 50}, null);
+        final byte[] variationData = new DataWriter()
+                .u16(2).u16(16)
+                .u16(10).u16(PRIVATE_PEAK).f2dot14(1)
+                .u16(7).u16(PRIVATE_PEAK).f2dot14(-1)
+                .u8(2).u8(0x01).u8(0).u8(3)// 点 0, 3
+                .u8(0x01).u8(10).u8(30).u8(0x01).u8(0).u8(20)
+                .u8(1).u8(0x00).u8(5)// 点 5
+                .u8(0x00).u8(7).u8(0x00).u8(-3 & 0xFF)
+                .align(2).toByteArray();
+        final byte[] gvar = new DataWriter()
+                .u16(1).u16(0).u16(1).u16(0).u32(26).u16(2).u16(0).u32(26)
+                .u16s(0, variationData.length / 2, variationData.length / 2)
+                .bytes(variationData).toByteArray();
+        sFont = glyphs.font(false, 0)
+                .table(TableRecord.TAG_FVAR, FontBuilder.fvar(100, 400, 900))
+                .table(TableRecord.TAG_GVAR, gvar).parse();
+    }
+
+    private static void assertDeltas(float[] deltas, float... expected) {
+        for (int i = 0; i < expected.length; i++)
+            assertEquals("delta" + i, expected[i], deltas[i], 1e-4f);
+    }
+
+    @Test
+    public void header() {
+        final GlyphVariationsTable gvar = sFont.getGlyphVariationsTable();
+        assertEquals(1, gvar.getAxisCount());
+        assertEquals(2, gvar.getGlyphCount());
+        assertTrue(gvar.hasVariations(0));
+        assertFalse(gvar.hasVariations(1));
+    }
+
+    @Test
+    public void interpolateUntouchedPoints() throws IOException {
+        final GlyphVariationsTable gvar = sFont.getGlyphVariationsTable();
+        final GlyphTable glyf = sFont.getGlyphTable();
+        final float[] deltas = gvar.getPointDeltas(glyf, 0, sFont.getVariationInstance(900));
+        assertEquals((8 + GlyphVariationsTable.PHANTOM_POINT_COUNT) * 2, deltas.length);
+        // 点 1 在点 0 与点 3 之间插值；点 2 与点 4 超出范围，取较近一侧的增量
+        assertDeltas(deltas, 10, 0, 20, 0, 30, 0, 30, 20, 10, 20,
+                // 三角形未被引用，幻影点不参与推断
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertEquals(0, gvar.getAdvanceWidthDelta(glyf, 0, sFont.getVariationInstance(900)), 0);
+    }
+
+    @Test
+    public void singleTouchedPointShiftsContour() throws IOException {
+        final float[] deltas = sFont.getGlyphVariationsTable().getPointDeltas(
+                sFont.getGlyphTable(), 0, sFont.getVariationInstance(250));
+        // 实例 250 归一化为 -0.5
+        assertDeltas(deltas, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                3.5f, -1.5f, 3.5f, -1.5f, 3.5f, -1.5f);
+    }
+
+    @Test
+    public void variedOutline() throws IOException {
+        final GlyphVariationsTable gvar = sFont.getGlyphVariationsTable();
+        final GlyphTable glyf = sFont.getGlyphTable();
+        final VariationInstance instance = sFont.getVariationInstance(650);
+        final GlyphTable.GlyphOutline outline = gvar.getGlyphOutline(glyf, 0, instance);
+        assertArrayEquals(new float[]{5, 60, 115, 115, 5, 200, 300, 200},
+                outline.getXCoordinates(), 1e-4f);
+        assertArrayEquals(new float[]{0, 0, 0, 110, 110, 0, 0, 100},
+                outline.getYCoordinates(), 1e-4f);
+        assertEquals(110, outline.getYMax());
+        assertSame(outline, gvar.getGlyphOutline(glyf, 0, instance));
+        // 缓存满时只淘汰最近最少使用的轮廓
+        for (int i = 1; i <= 3000; i++) {
+            gvar.getGlyphOutline(glyf, 1, new float[]{i / 4096f});
+            assertSame(outline, gvar.getGlyphOutline(glyf, 0, instance));
+        }
+        // 默认实例与无变化数据的字形直接返回默认轮廓
+        assertArrayEquals(glyf.getGlyphOutline(0).getXCoordinates(),
+                gvar.getGlyphOutline(glyf, 0, sFont.getVariationInstance(400))
+                        .getXCoordinates(), 0);
+        assertArrayEquals(glyf.getGlyphOutline(1).getXCoordinates(),
+                gvar.getGlyphOutline(glyf, 1, instance).getXCoordinates(), 0);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 'hmtx' 表测试
+ */
+public class HorizontalMetricsTableTest {
+
+    /**
+     * 四个字形，前两个有完整的度量，后两个仅有左侧支承
+     */
+    private static HorizontalMetricsTable parse() throws IOException {
+        final byte[] hmtx = new DataWriter().u16(600).u16(10).u16(500).u16(-20 & 0xFFFF)
+                .u16(30).u16(-40 & 0xFFFF).toByteArray();
+        return new FontBuilder()
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 2))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(4, 0))
+                .table(TableRecord.TAG_HMTX, hmtx).parse().getHorizontalMetricsTable();
+    }
+
+    @Test
+    public void trailingGlyphsShareLastAdvance() throws IOException {
+        final HorizontalMetricsTable hmtx = parse();
+        assertEquals(2, hmtx.getNumberOfHMetrics());
+        assertEquals(4, hmtx.getNumGlyphs());
+        assertEquals(600, hmtx.getAdvanceWidth(0));
+        assertEquals(500, hmtx.getAdvanceWidth(1));
+        assertEquals(500, hmtx.getAdvanceWidth(2));
+        assertEquals(500, hmtx.getAdvanceWidth(3));
+    }
+
+    @Test
+    public void leftSideBearings() throws IOException {
+        final HorizontalMetricsTable hmtx = parse();
+        assertEquals(10, hmtx.getLsb(0));
+        assertEquals(-20, hmtx.getLsb(1));
+        assertEquals(30, hmtx.getLsb(2));
+        assertEquals(-40, hmtx.getLsb(3));
+        assertEquals(30, hmtx.getLeftSideBearing(0));
+        assertEquals(-40, hmtx.getLeftSideBearing(1));
+        assertEquals(0, hmtx.getLeftSideBearing(2));
+        assertEquals(-20, hmtx.getLongHorMetricRecord(1).getLsb());
+        try {
+            hmtx.getLongHorMetricRecord(2);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+    }
+}
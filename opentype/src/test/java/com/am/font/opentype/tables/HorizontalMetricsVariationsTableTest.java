@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 'HVAR' 表与共享的 ItemVariationStore 测试
+ */
+public class HorizontalMetricsVariationsTableTest {
+
+    /**
+     * 无映射（按字形ID隐式索引），单轴两个区域：峰值在 +1 与 -1；
+     * 字形 1 的增量为 (100, -50)，字形 2 为 (20, 10)
+     */
+    private static OpenType parse() throws IOException {
+        final byte[] hvar = new DataWriter().u16(1).u16(0).u32(20).u32(0).u32(0).u32(0)
+                .u16(1).u32(12).u16(1).u32(28)
+                .u16(1).u16(2)
+                .f2dot14(0).f2dot14(1).f2dot14(1)
+                .f2dot14(-1).f2dot14(-1).f2dot14(0)
+                .u16(3).u16(0).u16(2).u16s(0, 1)
+                .u8(0).u8(0).u8(100).u8(-50 & 0xFF).u8(20).u8(10)
+                .toByteArray();
+        return new FontBuilder()
+                .table(TableRecord.TAG_FVAR, FontBuilder.fvar(100, 400, 900))
+                .table(TableRecord.TAG_HVAR, hvar).parse();
+    }
+
+    @Test
+    public void advanceWidthDeltas() throws IOException {
+        final HorizontalMetricsVariationsTable hvar =
+                parse().getHorizontalMetricsVariationsTable();
+        assertEquals(0, hvar.getAdvanceWidthDelta(0, new float[]{1}), 0);
+        assertEquals(100, hvar.getAdvanceWidthDelta(1, new float[]{1}), 0);
+        assertEquals(50, hvar.getAdvanceWidthDelta(1, new float[]{0.5f}), 0);
+        assertEquals(-50, hvar.getAdvanceWidthDelta(1, new float[]{-1}), 0);
+        assertEquals(-12.5f, hvar.getAdvanceWidthDelta(1, new float[]{-0.25f}), 0);
+        assertEquals(2.5f, hvar.getAdvanceWidthDelta(2, new float[]{-0.25f}), 0);
+        assertEquals(0, hvar.getAdvanceWidthDelta(2, (float[]) null), 0);
+        assertEquals(0, hvar.getLsbDelta(1, new float[]{1}), 0);
+    }
+
+    @Test
+    public void regionScalars() throws IOException {
+        final ItemVariationStore store =
+                parse().getHorizontalMetricsVariationsTable().getItemVariationStore();
+        assertEquals(1, store.getAxisCount());
+        assertEquals(3, store.getItemCount(0));
+        assertArrayEquals(new float[]{0, 0.75f}, store.getScalars(new float[]{-0.75f})[0], 0);
+        // 超出区域范围、缺少的轴与未给出的坐标均得到 0
+        assertEquals(0, store.getRegionScalar(0, new float[]{-0.1f}), 0);
+        assertEquals(0, store.getRegionScalar(1, new float[0]), 0);
+        assertEquals(0, store.getDelta(0xFFFF, 0xFFFF, new float[]{1}), 0);
+    }
+
+    @Test
+    public void scalarsAreSharedByEqualInstances() throws IOException {
+        final OpenType font = parse();
+        final HorizontalMetricsVariationsTable hvar = font.getHorizontalMetricsVariationsTable();
+        final VariationInstance instance = font.getVariationInstance(650);
+        assertArrayEquals(new float[]{0.5f}, instance.getCoordinates(), 0);
+        final float[][] scalars = hvar.getScalars(instance);
+        assertSame(scalars, hvar.getScalars(new float[]{0.5f}));
+        assertSame(scalars, hvar.getScalars(font.getVariationInstance(650)));
+        assertEquals(50, hvar.getAdvanceWidthDelta(1, scalars), 0);
+        assertSame(hvar.getScalars((VariationInstance) null), hvar.getScalars((float[]) null));
+    }
+}
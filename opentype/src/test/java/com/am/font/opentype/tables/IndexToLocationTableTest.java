@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.FileOpenTypeReader;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * 'loca' 表短格式与长格式测试
+ */
+public class IndexToLocationTableTest {
+
+    private static GlyphDataBuilder glyphs() {
+        return new GlyphDataBuilder()
+                .simple(new int[]{3}, new int[]{0, 0, 100, 0, 100, 100, 0, 100}, null)
+                .empty()
+                .simple(new int[]{2}, new int[]{0, 0, 50, 0, 0, 50}, null)
+                .empty();
+    }
+
+    private static IndexToLocationTable read(byte[] font, boolean mapped) throws IOException {
+        final OpenType ot = FontBuilder.parse(font, TableRecord.TAG_HEAD, TableRecord.TAG_MAXP);
+        final File file = FontBuilder.write(font);
+        try (FileOpenTypeReader reader = mapped ? new FileOpenTypeReader(file) :
+                new FileOpenTypeReader(file) {
+                    @Override
+                    public ByteBuffer map(long pos, int size) {
+                        return null;
+                    }
+                }) {
+            return new IndexToLocationTable(reader, ot.getTableRecord(TableRecord.TAG_LOCA),
+                    ot.getHeadTable().getIndexToLocFormat(),
+                    ot.getMaximumProfileTable().getNumGlyphs());
+        }
+    }
+
+    private static void assertOffsets(boolean longFormat) throws IOException {
+        final byte[] font = glyphs().font(longFormat, 0).build();
+        final int[] expected = {0, 34, 34, 64, 64};
+        for (boolean mapped : new boolean[]{true, false}) {
+            final IndexToLocationTable loca = read(font, mapped);
+            assertEquals(longFormat ? 1 : 0, loca.getIndexToLocFormat());
+            assertEquals(4, loca.getNumGlyphs());
+            assertArrayEquals(expected, loca.getOffsets());
+            assertNotSame(loca.getOffsets(), loca.getOffsets());
+            assertEquals(34, loca.getGlyphLength(0));
+            assertEquals(0, loca.getGlyphLength(1));
+            assertEquals(30, loca.getGlyphLength(2));
+            assertEquals(64, loca.getGlyphOffset(4));
+        }
+        assertEquals(read(font, true).getHashCode(), read(font, false).getHashCode());
+    }
+
+    @Test
+    public void shortFormat() throws IOException {
+        assertOffsets(false);
+    }
+
+    @Test
+    public void longFormat() throws IOException {
+        assertOffsets(true);
+    }
+
+    @Test
+    public void glyphTableUsesBothFormats() throws IOException {
+        for (boolean longFormat : new boolean[]{false, true}) {
+            final GlyphTable glyf = glyphs().font(longFormat, 0).parse().getGlyphTable();
+            assertEquals(3, glyf.getGlyphOutline(2).getNumberOfPoints());
+            assertEquals(0, glyf.getGlyphOutline(1).getNumberOfPoints());
+        }
+    }
+
+    @Test
+    public void hashCodeCoversOffsets() throws IOException {
+        final byte[] font = glyphs().font(false, 0).build();
+        final byte[] other = new GlyphDataBuilder()
+                .simple(new int[]{2}, new int[]{0, 0, 50, 0, 0, 50}, null)
+                .empty()
+                .simple(new int[]{3}, new int[]{0, 0, 100, 0, 100, 100, 0, 100}, null)
+                .empty()
+                .font(false, 0).build();
+        assertNotEquals(read(font, true).getHashCode(), read(other, true).getHashCode());
+    }
+}
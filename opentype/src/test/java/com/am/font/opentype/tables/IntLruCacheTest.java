@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 整数键 LRU 缓存测试
+ */
+public class IntLruCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final IntLruCache<String> cache = new IntLruCache<>(3);
+        cache.putIfAbsent(1, "a");
+        cache.putIfAbsent(2, "b");
+        cache.putIfAbsent(3, "c");
+        assertEquals("a", cache.get(1));// 1 变为最近使用
+        cache.putIfAbsent(4, "d");
+        assertEquals(3, cache.size());
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals("d", cache.get(4));
+    }
+
+    @Test
+    public void putIfAbsentKeepsExisting() {
+        final IntLruCache<String> cache = new IntLruCache<>(2);
+        final String first = "a";
+        assertNull(cache.putIfAbsent(7, first));
+        assertSame(first, cache.putIfAbsent(7, "b"));
+        assertSame(first, cache.get(7));
+    }
+
+    @Test
+    public void manyKeys() {
+        final IntLruCache<Integer> cache = new IntLruCache<>(64);
+        for (int i = 0; i < 10000; i++) {
+            cache.putIfAbsent(i * 31, i);
+            assertEquals(Integer.valueOf(i), cache.get(i * 31));
+        }
+        assertEquals(64, cache.size());
+        for (int i = 10000 - 64; i < 10000; i++)
+            assertEquals(Integer.valueOf(i), cache.get(i * 31));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(0));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+/**
+ * 以文本记录路径命令的轮廓接收器，坐标保留至多两位小数
+ */
+public class RecordingSink implements GlyphOutlineSink {
+
+    private final StringBuilder mBuilder = new StringBuilder();
+
+    private void append(char command, float... values) {
+        if (mBuilder.length() > 0)
+            mBuilder.append(' ');
+        mBuilder.append(command);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                mBuilder.append(i % 2 == 0 ? ' ' : ',');
+            final float value = Math.round(values[i] * 100) / 100f;
+            if (value == (int) value)
+                mBuilder.append((int) value);
+            else
+                mBuilder.append(value);
+        }
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        append('M', x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        append('L', x, y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        append('Q', x1, y1, x2, y2);
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        append('C', x1, y1, x2, y2, x3, y3);
+    }
+
+    @Override
+    public void closePath() {
+        append('Z');
+    }
+
+    @Override
+    public String toString() {
+        return mBuilder.toString();
+    }
+}
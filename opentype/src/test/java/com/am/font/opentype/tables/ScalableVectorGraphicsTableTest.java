@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 'SVG ' 表文档查找、gzip 解压与文档缓存测试
+ */
+public class ScalableVectorGraphicsTableTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String PLAIN = "<svg id=\"glyph1\"/>";
+    private static final String COMPRESSED = "<svg id=\"glyph5\"><path d=\"M0 0h10v10z\"/></svg>";
+
+    private static byte[] gzip(String text) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream stream = new GZIPOutputStream(output)) {
+            stream.write(text.getBytes(UTF_8));
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 字形 1-2 使用未压缩文档，字形 5 使用 gzip 压缩文档
+     */
+    private static ScalableVectorGraphicsTable parse() throws IOException {
+        final byte[] plain = PLAIN.getBytes(UTF_8);
+        final byte[] compressed = gzip(COMPRESSED);
+        final DataWriter svg = new DataWriter().u16(0).u32(10).u32(0)
+                .u16(2)
+                .u16(1).u16(2).u32(26).u32(plain.length)
+                .u16(5).u16(5).u32(26 + plain.length).u32(compressed.length)
+                .bytes(plain).bytes(compressed);
+        return new FontBuilder().table(TableRecord.TAG_SVG, svg.toByteArray()).parse()
+                .getScalableVectorGraphicsTable();
+    }
+
+    private static String text(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Test
+    public void findDocument() throws IOException {
+        final ScalableVectorGraphicsTable svg = parse();
+        assertEquals(2, svg.getNumEntries());
+        assertEquals(-1, svg.findDocument(0));
+        assertEquals(0, svg.findDocument(1));
+        assertEquals(0, svg.findDocument(2));
+        assertEquals(-1, svg.findDocument(3));
+        assertEquals(1, svg.findDocument(5));
+        assertNull(svg.getDocumentForGlyph(4));
+    }
+
+    @Test
+    public void inflatesCompressedDocuments() throws IOException {
+        final ScalableVectorGraphicsTable svg = parse();
+        assertFalse(svg.isCompressed(0));
+        assertTrue(svg.isCompressed(1));
+        final SvgDocumentCache cache = new SvgDocumentCache(1024);
+        assertEquals(PLAIN, text(svg.getDocument(0, cache)));
+        assertEquals(0, cache.getCount());
+        assertEquals(COMPRESSED, text(svg.getDocument(1, cache)));
+        assertEquals(1, cache.getCount());
+        assertEquals(COMPRESSED, text(svg.getDocument(1, cache)));
+        assertEquals(COMPRESSED, text(svg.getDocument(1, null)));
+        cache.remove(svg);
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void cacheIsBoundedBySize() {
+        final Object table = new Object();
+        final SvgDocumentCache cache = new SvgDocumentCache(500);
+        cache.put(table, 0, new byte[100]);
+        cache.put(table, 1, new byte[100]);
+        cache.put(table, 2, new byte[100]);
+        // 访问 0 后，1 成为最久未使用的文档
+        cache.get(table, 0);
+        cache.put(table, 3, new byte[100]);
+        assertEquals(3, cache.getCount());
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+        assertNull(cache.get(table, 1));
+        assertEquals(100, cache.get(table, 0).length);
+        // 超过上限的文档不缓存（每个条目另计估算开销）
+        cache.put(table, 4, new byte[500]);
+        assertNull(cache.get(table, 4));
+        cache.setMaxSize(200);
+        assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void inflatedSizeIsBounded() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            builder.append("<g/>");
+        final byte[] compressed = gzip(builder.toString());
+        assertEquals(40000, ScalableVectorGraphicsTable.inflate(
+                ByteBuffer.wrap(compressed), 40000).length);
+        try {
+            ScalableVectorGraphicsTable.inflate(ByteBuffer.wrap(compressed), 39999);
+            fail();
+        } catch (IOException e) {
+            // 超过上限
+        }
+    }
+
+    @Test
+    public void cacheDoesNotRetainTables() throws InterruptedException {
+        final SvgDocumentCache cache = new SvgDocumentCache(1024);
+        Object table = new Object();
+        cache.put(table, 0, new byte[100]);
+        cache.put(new Object(), 0, new byte[100]);
+        assertEquals(100, cache.get(table, 0).length);
+        table = null;
+        // 表被回收后其文档在下次访问时移除
+        for (int i = 0; i < 50 && cache.getCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+}
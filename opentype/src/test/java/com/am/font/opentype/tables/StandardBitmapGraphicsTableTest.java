@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 'sbix' 表 strike 选择与 'dupe' 解析测试
+ */
+public class StandardBitmapGraphicsTableTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G'};
+
+    /**
+     * 三个字形、三个 strike（ppem 64、20、40，未按大小排列），仅 64 的 strike 含图像：
+     * 字形 1 为 PNG，字形 2 为引用字形 1 的 'dupe'
+     */
+    private static StandardBitmapGraphicsTable parse() throws IOException {
+        final DataWriter sbix = new DataWriter().u16(1).u16(1).u32(3).u32(20).u32(62).u32(82);
+        sbix.u16(64).u16(72).u32(20).u32(20).u32(32).u32(42)
+                .u16(-2 & 0xFFFF).u16(5).tag("png ").bytes(PNG)
+                .u16(0).u16(0).tag("dupe").u16(1);
+        for (int ppem : new int[]{20, 40}) {
+            sbix.u16(ppem).u16(72).u32(20).u32(20).u32(20).u32(20);
+        }
+        return new FontBuilder().table(TableRecord.TAG_MAXP, FontBuilder.maxp(3, 0))
+                .table(TableRecord.TAG_SBIX, sbix.toByteArray()).parse()
+                .getStandardBitmapGraphicsTable();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    @Test
+    public void findStrike() throws IOException {
+        final StandardBitmapGraphicsTable sbix = parse();
+        assertEquals(3, sbix.getNumStrikes());
+        assertEquals(1, sbix.findStrike(8));
+        assertEquals(1, sbix.findStrike(20));
+        assertEquals(2, sbix.findStrike(21));
+        assertEquals(0, sbix.findStrike(48));
+        assertEquals(0, sbix.findStrike(128));
+    }
+
+    @Test
+    public void glyphs() throws IOException {
+        final StandardBitmapGraphicsTable sbix = parse();
+        assertNull(sbix.getGlyph(0, 0));
+        assertNull(sbix.getGlyph(1, 1));
+        assertNull(sbix.getGlyph(0, 3));
+        final StandardBitmapGlyph png = sbix.getGlyph(0, 1);
+        assertEquals(StandardBitmapGlyph.GRAPHIC_TYPE_PNG, png.getGraphicType());
+        assertEquals(64, png.getPpem());
+        assertEquals(-2, png.getOriginOffsetX());
+        assertEquals(5, png.getOriginOffsetY());
+        assertArrayEquals(PNG, bytes(png.getData()));
+        final StandardBitmapGlyph dupe = sbix.getGlyph(0, 2);
+        assertEquals(2, dupe.getGlyphId());
+        assertEquals(StandardBitmapGlyph.GRAPHIC_TYPE_PNG, dupe.getGraphicType());
+        assertEquals(-2, dupe.getOriginOffsetX());
+        assertArrayEquals(PNG, bytes(dupe.getData()));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.tables;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 'vhea'、'vmtx' 与 'VORG' 表测试
+ */
+public class VerticalMetricsTableTest {
+
+    private static byte[] vhea(int numOfLongVerMetrics) {
+        return new DataWriter().u32(0x00011000).u16(500).u16(-500 & 0xFFFF).u16(0)
+                .u16(1100).u16(20).u16(30).u16(1000).u16(0).u16(1).u16(0).zeros(8).u16(0)
+                .u16(numOfLongVerMetrics).toByteArray();
+    }
+
+    private static OpenType parse(byte[] vorg) throws IOException {
+        final byte[] vmtx = new DataWriter().u16(1000).u16(100).u16(1100).u16(-50 & 0xFFFF)
+                .u16(70).toByteArray();
+        final FontBuilder builder = new FontBuilder()
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(3, 0))
+                .table(TableRecord.TAG_VHEA, vhea(2))
+                .table(TableRecord.TAG_VMTX, vmtx);
+        if (vorg != null)
+            builder.table(TableRecord.TAG_VORG, vorg);
+        return builder.parse();
+    }
+
+    @Test
+    public void verticalMetrics() throws IOException {
+        final OpenType font = parse(null);
+        final VerticalHeaderTable vhea = font.getVerticalHeaderTable();
+        assertEquals(500, vhea.getAscender());
+        assertEquals(-500, vhea.getDescender());
+        assertEquals(1100, vhea.getAdvanceHeightMax());
+        assertEquals(2, vhea.getNumOfLongVerMetrics());
+        final VerticalMetricsTable vmtx = font.getVerticalMetricsTable();
+        assertEquals(1000, vmtx.getAdvanceHeight(0));
+        assertEquals(1100, vmtx.getAdvanceHeight(1));
+        assertEquals(1100, vmtx.getAdvanceHeight(2));
+        assertEquals(100, vmtx.getTopSideBearing(0));
+        assertEquals(-50, vmtx.getTopSideBearing(1));
+        assertEquals(70, vmtx.getTopSideBearing(2));
+    }
+
+    @Test
+    public void verticalOrigins() throws IOException {
+        final byte[] vorg = new DataWriter().u16(1).u16(0).u16(880).u16(3)
+                .u16(1).u16(900).u16(4).u16(-10 & 0xFFFF).u16(9).u16(800).toByteArray();
+        final VerticalOriginTable table = parse(vorg).getVerticalOriginTable();
+        assertEquals(880, table.getDefaultVertOriginY());
+        assertEquals(3, table.getNumVertOriginYMetrics());
+        assertEquals(880, table.getVertOriginY(0));
+        assertEquals(900, table.getVertOriginY(1));
+        assertEquals(-10, table.getVertOriginY(4));
+        assertEquals(880, table.getVertOriginY(5));
+        assertEquals(800, table.getVertOriginY(9));
+    }
+
+    @Test
+    public void unsortedVerticalOriginsAreRejected() {
+        final byte[] vorg = new DataWriter().u16(1).u16(0).u16(880).u16(2)
+                .u16(4).u16(900).u16(1).u16(800).toByteArray();
+        try {
+            parse(vorg);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+}
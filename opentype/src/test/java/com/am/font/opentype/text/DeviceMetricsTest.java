@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+import com.am.font.opentype.tables.HorizontalDeviceMetricsTable;
+import com.am.font.opentype.tables.LinearThresholdTable;
+import com.am.font.opentype.tables.VerticalDeviceMetricsTable;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 像素大小度量测试，含 'hdmx'、'LTSH' 与 'VDMX' 表
+ */
+public class DeviceMetricsTest {
+
+    private static final int FLAG_INSTRUCTIONS_MAY_ALTER_ADVANCE_WIDTH = 1 << 4;
+    private static OpenType sHinted;
+    private static OpenType sLinear;
+
+    /**
+     * 三个字形，步进 500、550 与 0；hdmx 仅含 12 ppem 的记录，
+     * LTSH 阈值依次为 1、20 与 0（未知），VDMX 的 1:1 与默认比例共享 12、16 ppem 两条记录
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        sHinted = font(FLAG_INSTRUCTIONS_MAY_ALTER_ADVANCE_WIDTH);
+        sLinear = font(0);
+    }
+
+    private static OpenType font(int flags) throws IOException {
+        final byte[] head = new DataWriter()
+                .u16s(1, 0).u32(0x00010000).u32(0).u32(0x5F0F3CF5).u16(flags).u16(1000)
+                .zeros(16).u16s(-100, -250, 1100, 900).u16s(0, 8, 2).u16(0).u16(0)
+                .toByteArray();
+        final byte[] hdmx = new DataWriter().u16(0).u16(1).u32(8)
+                .u8(12).u8(8).u8(7).u8(8).u8(0).zeros(3)
+                .toByteArray();
+        final byte[] ltsh = new DataWriter().u16(0).u16(3).u8(1).u8(20).u8(0).toByteArray();
+        final byte[] vdmx = new DataWriter().u16(1).u16(1).u16(2)
+                .u8(1).u8(1).u8(1).u8(1)
+                .u8(1).u8(0).u8(0).u8(0)
+                .u16s(18, 18)
+                .u16(2).u8(12).u8(16)
+                .u16s(12, 10, -3)
+                .u16s(16, 13, -4)
+                .toByteArray();
+        return new FontBuilder()
+                .table(TableRecord.TAG_HEAD, head)
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(3, 0))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 3))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(500, 550, 0))
+                .table(TableRecord.TAG_HDMX, hdmx)
+                .table(TableRecord.TAG_LTSH, ltsh)
+                .table(TableRecord.TAG_VDMX, vdmx)
+                .parse();
+    }
+
+    private static DeviceMetrics metrics(OpenType font, int ppem) {
+        return new DeviceMetrics(font.getHeadTable(), font.getHorizontalMetricsTable(),
+                font.getHorizontalDeviceMetricsTable(), font.getLinearThresholdTable(),
+                font.getVerticalDeviceMetricsTable(), ppem);
+    }
+
+    @Test
+    public void tables() {
+        final HorizontalDeviceMetricsTable hdmx = sHinted.getHorizontalDeviceMetricsTable();
+        assertEquals(1, hdmx.getNumRecords());
+        assertEquals(12, hdmx.getPixelSize(0));
+        assertEquals(8, hdmx.getMaxWidth(0));
+        assertTrue(hdmx.containsPixelSize(12));
+        assertFalse(hdmx.containsPixelSize(13));
+        assertEquals(8, hdmx.getWidth(12, 1));
+        assertEquals(-1, hdmx.getWidth(12, 3));
+        assertEquals(-1, hdmx.getWidth(300, 0));
+        final LinearThresholdTable ltsh = sHinted.getLinearThresholdTable();
+        assertEquals(20, ltsh.getYPel(1));
+        assertEquals(0, ltsh.getYPel(5));
+        final VerticalDeviceMetricsTable vdmx = sHinted.getVerticalDeviceMetricsTable();
+        assertEquals(2, vdmx.getNumRatios());
+        assertEquals(0, vdmx.findRatio(10, 10));
+        assertEquals(1, vdmx.findRatio(20, 10));
+        assertEquals(13, vdmx.getYMax(8, 16));
+        assertEquals(-3, vdmx.getYMin(12, 12));
+        assertFalse(vdmx.containsPixelSize(14, 14));
+        assertEquals(0, vdmx.getYMax(14, 14));
+    }
+
+    @Test
+    public void deviceAdvances() {
+        final DeviceMetrics metrics = metrics(sHinted, 12);
+        assertTrue(metrics.hasDeviceAdvances());
+        assertEquals(7, metrics.getAdvanceWidth(0));
+        assertEquals(8, metrics.getAdvanceWidth(1));
+        assertEquals(0, metrics.getAdvanceWidth(2));
+        assertEquals(7, metrics.getLinearAdvanceWidth(1));
+        assertTrue(metrics.isExactAdvance(1));
+        final int[] advances = new int[4];
+        assertEquals(15, metrics.measureGlyphs(new int[]{9, 0, 1, 9}, 1, 3, advances));
+        assertArrayEquals(new int[]{0, 7, 8, 0}, advances);
+    }
+
+    @Test
+    public void linearThreshold() {
+        final DeviceMetrics small = metrics(sHinted, 16);
+        assertFalse(small.hasDeviceAdvances());
+        assertEquals(8, small.getAdvanceWidth(0));
+        assertEquals(9, small.getAdvanceWidth(1));
+        assertTrue(small.isLinear(0));
+        assertFalse(small.isLinear(1));
+        assertFalse(small.isExactAdvance(1));
+        assertFalse(small.isLinear(2));
+        final DeviceMetrics large = metrics(sHinted, 20);
+        assertTrue(large.isLinear(1));
+        assertTrue(large.isExactAdvance(1));
+        assertFalse(large.isLinear(2));
+        // head 未声明指令可能改变步进时所有字形均为线性
+        final DeviceMetrics linear = metrics(sLinear, 16);
+        assertTrue(linear.isLinear(1));
+        assertTrue(linear.isLinear(2));
+    }
+
+    @Test
+    public void verticalExtent() {
+        final DeviceMetrics device = metrics(sHinted, 16);
+        assertTrue(device.hasDeviceHeights());
+        assertEquals(13, device.getYMax());
+        assertEquals(-4, device.getYMin());
+        // 无 VDMX 记录时按 head 边界缩放，向外取整
+        final DeviceMetrics scaled = metrics(sHinted, 14);
+        assertFalse(scaled.hasDeviceHeights());
+        assertEquals(13, scaled.getYMax());
+        assertEquals(-4, scaled.getYMin());
+        final DeviceMetrics other = metrics(sHinted, 10);
+        assertEquals(9, other.getYMax());
+        assertEquals(-3, other.getYMin());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 段落断行测试：贪心与最优断行，以及过长单词的溢出
+ */
+public class ParagraphLayoutTest {
+
+    private static final int CHAR = 640;// 10 ppem 下每个字符 10 像素（26.6）
+    private static ParagraphLayout sLayout;
+
+    /**
+     * 等宽字体：U+0020-U+007E 依次映射到字形 1-95，步进均为 1000
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final byte[] format4 = new DataWriter().u16(4).u16(32).u16(0).u16(4).u16(4).u16(1)
+                .u16(0)
+                .u16s(0x7E, 0xFFFF).u16(0)
+                .u16s(0x20, 0xFFFF)
+                .u16s(1 - 0x20 & 0xFFFF, 1)
+                .u16s(0, 0)
+                .toByteArray();
+        final int[] advances = new int[96];
+        Arrays.fill(advances, 1000);
+        final OpenType font = new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(1000, 0))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 96))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(96, 0))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(advances))
+                .table(TableRecord.TAG_CMAP, TextMeasurerTest.cmap(1, format4))
+                .parse();
+        sLayout = new ParagraphLayout(font, new ScaledFont(font, 10, null));
+    }
+
+    private static String[] lines(String text, int chars, int strategy) {
+        return lines(text, sLayout.layout(text, 0, text.length(), chars * CHAR, strategy));
+    }
+
+    private static String[] lines(String text, Paragraph paragraph) {
+        final String[] lines = new String[paragraph.getLineCount()];
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = text.substring(paragraph.getLineStart(i), paragraph.getLineEnd(i));
+        return lines;
+    }
+
+    @Test
+    public void lineBox() {
+        assertEquals(512, sLayout.getAscent());
+        assertEquals(128, sLayout.getDescent());
+        assertEquals(640, sLayout.getLineHeight());
+    }
+
+    @Test
+    public void greedyFillsEachLine() {
+        final String text = "a b c dddd ee ff";
+        final Paragraph paragraph = sLayout.layout(text, 0, text.length(), 6 * CHAR,
+                ParagraphLayout.STRATEGY_GREEDY);
+        assertArrayEquals(new String[]{"a b c ", "dddd ", "ee ff"}, lines(text, paragraph));
+        // 行尾空白不计入行宽
+        assertEquals(5 * CHAR, paragraph.getLineWidth(0));
+        assertEquals(4 * CHAR, paragraph.getLineWidth(1));
+    }
+
+    @Test
+    public void optimalAvoidsLinesThatCannotStretch() {
+        // 贪心断行的第二行没有空白可伸展，最优断行改为在前一行留出空隙
+        assertArrayEquals(new String[]{"a b ", "c dddd ", "ee ff"},
+                lines("a b c dddd ee ff", 6, ParagraphLayout.STRATEGY_OPTIMAL));
+        // 两种策略结果相同时不改变断行
+        assertArrayEquals(new String[]{"aaa bb ", "cc dd ", "eeee"},
+                lines("aaa bb cc dd eeee", 6, ParagraphLayout.STRATEGY_OPTIMAL));
+    }
+
+    @Test
+    public void overfullWordGetsLineOfItsOwn() {
+        for (int strategy : new int[]{ParagraphLayout.STRATEGY_GREEDY,
+                ParagraphLayout.STRATEGY_OPTIMAL}) {
+            final String text = "aa bbbbbbbbbb cc";
+            final Paragraph paragraph = sLayout.layout(text, 0, text.length(), 6 * CHAR,
+                    strategy);
+            assertArrayEquals(new String[]{"aa ", "bbbbbbbbbb ", "cc"},
+                    lines(text, paragraph));
+            assertEquals(10 * CHAR, paragraph.getLineWidth(1));
+            assertEquals(10 * CHAR, paragraph.getMaxLineWidth());
+            assertArrayEquals(new String[]{"bbbbbbbbbb"}, lines("bbbbbbbbbb", 6, strategy));
+        }
+    }
+
+    @Test
+    public void hyphenAndMandatoryBreaks() {
+        for (int strategy : new int[]{ParagraphLayout.STRATEGY_GREEDY,
+                ParagraphLayout.STRATEGY_OPTIMAL}) {
+            assertArrayEquals(new String[]{"aa bb-", "cc dd"},
+                    lines("aa bb-cc dd", 6, strategy));
+            assertArrayEquals(new String[]{"aa bb\n", "cc dd"},
+                    lines("aa bb\ncc dd", 20, strategy));
+        }
+        final Paragraph empty = sLayout.layout("", 0, 0, CHAR,
+                ParagraphLayout.STRATEGY_OPTIMAL);
+        assertEquals(1, empty.getLineCount());
+        assertEquals(CHAR, empty.getWidth());
+    }
+
+    @Test
+    public void layoutTextSplitsParagraphs() {
+        // 超过单个任务的字符数，段落被拆分到多个任务
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300; i++)
+            builder.append("a b c dddd ee ff\n");
+        final String text = builder.append("x").toString();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Paragraph[] paragraphs;
+        try {
+            paragraphs = sLayout.layoutText(text, 6 * CHAR, ParagraphLayout.STRATEGY_OPTIMAL,
+                    pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(301, paragraphs.length);
+        int start = 0;
+        for (Paragraph paragraph : paragraphs) {
+            assertEquals(start, paragraph.getStart());
+            assertEquals(sLayout.layout(text, paragraph.getStart(), paragraph.getEnd(),
+                    6 * CHAR, ParagraphLayout.STRATEGY_OPTIMAL), paragraph);
+            start = paragraph.getEnd();
+        }
+        assertEquals(text.length(), start);
+        assertEquals(3, paragraphs[0].getLineCount());
+        assertEquals(1, paragraphs[300].getLineCount());
+        assertFalse(paragraphs[0].isLineHyphenated(0));
+    }
+}
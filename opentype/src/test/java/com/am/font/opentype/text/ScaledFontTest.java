@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.GlyphDataBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 定点缩放测试：26.6 像素大小、16.16 缩放系数与远离零的舍入
+ */
+public class ScaledFontTest {
+
+    @Test
+    public void multiplyRoundsHalfAwayFromZero() {
+        assertEquals(1, ScaledFont.multiply(1, 0x8000));
+        assertEquals(-1, ScaledFont.multiply(-1, 0x8000));
+        assertEquals(2, ScaledFont.multiply(3, 0x8000));
+        assertEquals(-2, ScaledFont.multiply(-3, 0x8000));
+        assertEquals(0, ScaledFont.multiply(1, 0x7FFF));
+        assertEquals(0, ScaledFont.multiply(-1, 0x7FFF));
+        assertEquals(0x7FFF, ScaledFont.multiply(0x7FFF, 0x10000));
+    }
+
+    @Test
+    public void scale() throws IOException {
+        final OpenType font = new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(2048, 0))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(1, 0))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(1600, -400, 0, 1))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(1229))
+                .parse();
+        final ScaledFont scaled = new ScaledFont(font, 12.5f, null);
+        assertEquals(800, scaled.getPpem26Dot6());
+        assertEquals(12.5f, scaled.getPpem(), 0);
+        assertEquals(25600, scaled.getScale());
+        // 390.625 与 -160.15625 取最近的 1/64 像素
+        assertEquals(391, scaled.scale(1000));
+        assertEquals(-160, scaled.scale(-410));
+        assertEquals(480, scaled.getAdvance(0));
+        assertEquals(7.5f, ScaledFont.toPixels(480), 0);
+        // 像素大小先取整到 1/64
+        assertEquals(801, new ScaledFont(font, 12.51f, null).getPpem26Dot6());
+    }
+
+    @Test
+    public void advancesAndBounds() throws IOException {
+        final GlyphDataBuilder glyphs = new GlyphDataBuilder()
+                .simple(new int[]{3}, new int[]{-33, -17, 517, -17, 517, 733, -33, 733}, null)
+                .empty();
+        final OpenType font = glyphs.font(false, 0)
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 2))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(550, 250))
+                .parse();
+        final ScaledFont scaled = new ScaledFont(font, 10, null);
+        assertEquals(41943, scaled.getScale());
+        assertEquals(2, scaled.getNumGlyphs());
+        // 控制框四边分别缩放并舍入：-21.12、-10.88、330.88、469.12
+        assertEquals(-21, scaled.getXMin(0));
+        assertEquals(-11, scaled.getYMin(0));
+        assertEquals(331, scaled.getXMax(0));
+        assertEquals(469, scaled.getYMax(0));
+        assertEquals(0, scaled.getXMax(1));
+        final int[] advances = new int[3];
+        assertEquals(352 + 160, scaled.getAdvances(new int[]{0, 1, 0}, 0, 2, advances));
+        assertArrayEquals(new int[]{352, 160, 0}, advances);
+    }
+
+    @Test
+    public void variedAdvance() throws IOException {
+        // 单区域（峰值 +1），字形 1 的步进增量为 100
+        final byte[] hvar = new DataWriter().u16(1).u16(0).u32(20).u32(0).u32(0).u32(0)
+                .u16(1).u32(12).u16(1).u32(22)
+                .u16(1).u16(1).f2dot14(0).f2dot14(1).f2dot14(1)
+                .u16(2).u16(0).u16(1).u16(0)
+                .u8(0).u8(100)
+                .toByteArray();
+        final OpenType font = new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(1000, 0))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(2, 0))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 2))
+                .table(TableRecord.TAG_HMTX, FontBuilder.hmtx(500, 500))
+                .table(TableRecord.TAG_FVAR, FontBuilder.fvar(100, 400, 900))
+                .table(TableRecord.TAG_HVAR, hvar)
+                .parse();
+        final ScaledFont varied = new ScaledFont(font, 10, font.getVariationInstance(650));
+        assertEquals(500, varied.getAdvanceWidth(0));
+        assertEquals(550, varied.getAdvanceWidth(1));
+        assertEquals(352, varied.getAdvance(1));
+        // 默认实例不应用变化
+        final ScaledFont regular = new ScaledFont(font, 10, font.getVariationInstance(400));
+        assertNull(regular.getInstance());
+        assertEquals(320, regular.getAdvance(1));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.am.font.opentype.text;
+
+import com.am.font.opentype.DataWriter;
+import com.am.font.opentype.FontBuilder;
+import com.am.font.opentype.OpenType;
+import com.am.font.opentype.TableRecord;
+import com.am.font.opentype.tables.CharacterMappingTable;
+import com.am.font.opentype.tables.KerningTable;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 文本测量测试，含 'cmap' 格式 4/12 查找与 'kern' 替换标志
+ */
+public class TextMeasurerTest {
+
+    private static final String EMOJI = new String(Character.toChars(0x1F600));
+    private static TextMeasurer sMeasurer;
+
+    /**
+     * 格式 4：A-C 映射到 1-3（idDelta），a-b 经 glyphIdArray 映射到 5 与 0
+     */
+    static byte[] format4() {
+        return new DataWriter().u16(4).u16(44).u16(0).u16(6).u16(4).u16(1).u16(2)
+                .u16s(67, 98, 0xFFFF).u16(0)
+                .u16s(65, 97, 0xFFFF)
+                .u16s(1 - 65 & 0xFFFF, 0, 1)
+                .u16s(0, 4, 0)
+                .u16s(5, 0)
+                .toByteArray();
+    }
+
+    /**
+     * 格式 12：A-C 映射到 1-3，U+1F600-U+1F601 映射到 7-8
+     */
+    static byte[] format12() {
+        return new DataWriter().u16(12).u16(0).u32(40).u32(0).u32(2)
+                .u32(65).u32(67).u32(1)
+                .u32(0x1F600).u32(0x1F601).u32(7)
+                .toByteArray();
+    }
+
+    static byte[] cmap(int encodingID, byte[] subTable) {
+        return new DataWriter().u16(0).u16(1).u16(3).u16(encodingID).u32(12)
+                .bytes(subTable).toByteArray();
+    }
+
+    private static void kernSubTable(DataWriter writer, int coverage, int... pairs) {
+        final int count = pairs.length / 3;
+        writer.u16(0).u16(14 + count * 6).u16(coverage).u16(count).u16s(0, 0, 0);
+        for (int i = 0; i < pairs.length; i += 3) {
+            writer.u16(pairs[i]).u16(pairs[i + 1]).u16(pairs[i + 2] & 0xFFFF);
+        }
+    }
+
+    /**
+     * 子表依次为：累加、替换、累加、最小值（不参与字距调整）
+     */
+    private static byte[] kern() {
+        final DataWriter writer = new DataWriter().u16(0).u16(4);
+        kernSubTable(writer, 0x0001, 1, 2, -50, 2, 3, -30);
+        kernSubTable(writer, 0x0009, 1, 2, -80);
+        kernSubTable(writer, 0x0001, 1, 2, 10, 2, 3, -5);
+        kernSubTable(writer, 0x0003, 2, 3, -999);
+        return writer.toByteArray();
+    }
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final OpenType font = new FontBuilder()
+                .table(TableRecord.TAG_HEAD, FontBuilder.head(1000, 0))
+                .table(TableRecord.TAG_HHEA, FontBuilder.hhea(800, -200, 0, 9))
+                .table(TableRecord.TAG_MAXP, FontBuilder.maxp(9, 0))
+                .table(TableRecord.TAG_HMTX,
+                        FontBuilder.hmtx(500, 600, 610, 620, 0, 550, 0, 1000, 1000))
+                .table(TableRecord.TAG_CMAP, cmap(10, format12()))
+                .table(TableRecord.TAG_KERN, kern())
+                .parse();
+        sMeasurer = new TextMeasurer(font.getCharacterMappingTable(),
+                font.getHorizontalMetricsTable(), font.getKerningTable(), font.getHeadTable());
+    }
+
+    @Test
+    public void format4Lookup() throws IOException {
+        final CharacterMappingTable cmap = new FontBuilder()
+                .table(TableRecord.TAG_CMAP, cmap(1, format4())).parse()
+                .getCharacterMappingTable();
+        assertEquals(0, cmap.getGlyphId(64));
+        assertEquals(1, cmap.getGlyphId('A'));
+        assertEquals(3, cmap.getGlyphId('C'));
+        assertEquals(0, cmap.getGlyphId('D'));
+        assertEquals(5, cmap.getGlyphId('a'));
+        assertEquals(0, cmap.getGlyphId('b'));
+        assertEquals(0, cmap.getGlyphId(0xFFFF));
+        assertEquals(0, cmap.getGlyphId(0x1F600));
+    }
+
+    @Test
+    public void format12Lookup() {
+        assertEquals(1, sMeasurer.getGlyphId('A'));
+        assertEquals(3, sMeasurer.getGlyphId('C'));
+        assertEquals(0, sMeasurer.getGlyphId('D'));
+        assertEquals(7, sMeasurer.getGlyphId(0x1F600));
+        assertEquals(8, sMeasurer.getGlyphId(0x1F601));
+        assertEquals(0, sMeasurer.getGlyphId(0x1F602));
+        final int[] glyphs = new int[4];
+        assertEquals(3, sMeasurer.getGlyphs("A" + EMOJI + "B", 0, 4, glyphs));
+        assertArrayEquals(new int[]{1, 7, 2, 0}, glyphs);
+    }
+
+    @Test
+    public void overrideReplacesAccumulatedKerning() {
+        // (1, 2)：-50 被替换为 -80，再累加 10；(2, 3)：-30 - 5，最小值子表被忽略
+        assertEquals(-70, sMeasurer.getKerning(1, 2));
+        assertEquals(-35, sMeasurer.getKerning(2, 3));
+        assertEquals(0, sMeasurer.getKerning(3, 1));
+    }
+
+    @Test
+    public void highGlyphIdsAreKerned() throws IOException {
+        // 左侧字形ID不小于 32768 时字形对的最高位为 1
+        final DataWriter writer = new DataWriter().u16(0).u16(1);
+        kernSubTable(writer, 0x0001, 5, 6, -50, 40000, 7, -30, 65535, 65535, 12);
+        final KerningTable kern = new FontBuilder()
+                .table(TableRecord.TAG_KERN, writer.toByteArray()).parse().getKerningTable();
+        assertEquals(-50, kern.getKerning(5, 6));
+        assertEquals(-30, kern.getKerning(40000, 7));
+        assertEquals(12, kern.getKerning(65535, 65535));
+        assertEquals(0, kern.getKerning(40000, 6));
+        assertEquals(0, kern.getKerning(32768, 7));
+        assertEquals(0, kern.getKerning(65536, 7));
+    }
+
+    @Test
+    public void measureText() {
+        final int[] advances = new int[3];
+        assertEquals(600 + 610 + 620 - 70 - 35, sMeasurer.measureText("ABC", 0, 3, advances));
+        assertArrayEquals(new int[]{530, 575, 620}, advances);
+        assertEquals(17.25f, sMeasurer.measureText("ABC", 0, 3, 10), 1e-4f);
+        assertEquals(1600, sMeasurer.measureText("A" + EMOJI, 0, 3, advances));
+        assertArrayEquals(new int[]{600, 1000, 0}, advances);
+        final int[] glyphs = {1, 2, 3};
+        assertEquals(1725, sMeasurer.measureGlyphs(glyphs, 0, 3, null));
+    }
+}